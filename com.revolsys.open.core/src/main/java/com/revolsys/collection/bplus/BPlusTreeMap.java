@@ -13,6 +13,7 @@ import org.springframework.util.comparator.ComparableComparator;
 
 import com.revolsys.collection.MapKeySetEntrySet;
 import com.revolsys.io.FileUtil;
+import com.revolsys.io.page.BinaryPageValueManager;
 import com.revolsys.io.page.FileMappedPageManager;
 import com.revolsys.io.page.FilePageManager;
 import com.revolsys.io.page.MemoryPageManager;
@@ -102,22 +103,49 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     return map;
   }
 
+  /**
+   * Create a temporary disk based map from int keys to values written using
+   * the value manager. Variable length values (e.g. those written using
+   * {@link BinaryPageValueManager}) are stored in their own data pages, fixed
+   * size values are stored in the tree pages.
+   *
+   * @param values The initial values for the map, or null if the map is empty.
+   * @param valueManager The manager to read and write the values.
+   * @return The map.
+   */
+  public static <V> Map<Integer, V> createIntTempDisk(
+    final Map<Integer, V> values, PageValueManager<V> valueManager) {
+    final File file = FileUtil.createTempFile("int", ".btree");
+    final PageManager pageManager = new FilePageManager(file);
+    final PageValueManager<Integer> keyManager = PageValueManager.INT;
+    if (valueManager instanceof SerializablePageValueManager
+      || valueManager instanceof BinaryPageValueManager) {
+      valueManager = BPlusTreePageValueManager.create(pageManager, valueManager);
+    }
+    final Comparator<Integer> comparator = new ComparableComparator<Integer>();
+    final BPlusTreeMap<Integer, V> map = new BPlusTreeMap<Integer, V>(
+        pageManager, comparator, keyManager, valueManager);
+    if (values != null) {
+      map.putAll(values);
+    }
+    return map;
+  }
+
   public static <K extends Comparable<?>, V> Map<K, V> createTempDisk(
     final Map<K, V> values, PageValueManager<K> keyManager,
     PageValueManager<V> valueManager) {
     final File file = FileUtil.createTempFile("temp", ".bplustree");
     final PageManager pageManager = new FilePageManager(file);
 
-    if (keyManager instanceof SerializablePageValueManager) {
-      final SerializablePageValueManager<K> serializeableManager = (SerializablePageValueManager<K>)keyManager;
-      keyManager = BPlusTreePageValueManager.create(pageManager,
-        serializeableManager);
+    if (keyManager instanceof SerializablePageValueManager
+      || keyManager instanceof BinaryPageValueManager) {
+      keyManager = BPlusTreePageValueManager.create(pageManager, keyManager);
     }
 
-    if (valueManager instanceof SerializablePageValueManager) {
-      final SerializablePageValueManager<V> serializeableManager = (SerializablePageValueManager<V>)valueManager;
+    if (valueManager instanceof SerializablePageValueManager
+      || valueManager instanceof BinaryPageValueManager) {
       valueManager = BPlusTreePageValueManager.create(pageManager,
-        serializeableManager);
+        valueManager);
     }
 
     final Comparator<K> comparator = new ComparableComparator();
@@ -132,16 +160,15 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     final File file = FileUtil.createTempFile("temp", ".bplustree");
     final PageManager pageManager = new FileMappedPageManager(file);
 
-    if (keyManager instanceof SerializablePageValueManager) {
-      final SerializablePageValueManager<K> serializeableManager = (SerializablePageValueManager<K>)keyManager;
-      keyManager = BPlusTreePageValueManager.create(pageManager,
-        serializeableManager);
+    if (keyManager instanceof SerializablePageValueManager
+      || keyManager instanceof BinaryPageValueManager) {
+      keyManager = BPlusTreePageValueManager.create(pageManager, keyManager);
     }
 
-    if (valueManager instanceof SerializablePageValueManager) {
-      final SerializablePageValueManager<V> serializeableManager = (SerializablePageValueManager<V>)valueManager;
+    if (valueManager instanceof SerializablePageValueManager
+      || valueManager instanceof BinaryPageValueManager) {
       valueManager = BPlusTreePageValueManager.create(pageManager,
-        serializeableManager);
+        valueManager);
     }
 
     final Comparator<K> comparator = new ComparableComparator<K>();
@@ -264,10 +291,10 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     page.setOffset(this.leafHeaderSize);
     while (page.getOffset() < numBytes) {
       final K currentKey = this.keyManager.readFromPage(page);
-      final V currentValue = this.valueManager.readFromPage(page);
+      final byte[] valueBytes = this.valueManager.getBytes(page);
       final int compare = this.comparator.compare(currentKey, key);
       if (compare == 0) {
-        return currentValue;
+        return this.valueManager.getValue(valueBytes);
       }
     }
     return null;
@@ -276,20 +303,22 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
   @SuppressWarnings("unchecked")
   <T> int getLeafValues(final List<T> values, int pageIndex, final boolean key) {
     values.clear();
-    final Page page = this.pages.getPage(pageIndex);
+    Page page = this.pages.getPage(pageIndex);
 
-    final byte pageType = page.readByte();
+    byte pageType = page.readByte();
     while (pageType == INTERIOR) {
       page.readShort(); // skip num bytes
       pageIndex = page.readInt();
       this.pages.releasePage(page);
+      page = this.pages.getPage(pageIndex);
+      pageType = page.readByte();
     }
 
     if (pageType != LEAF) {
+      this.pages.releasePage(page);
       throw new IllegalArgumentException("Unknown page type " + pageType);
     }
 
-    // TODO traverse to leaf
     try {
       final int numBytes = page.readShort();
       final int nextPageId = page.readInt();
@@ -379,15 +408,14 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     }
   }
 
-  protected PutResult put(final int pageIndex, final Integer nextPageIndex,
-    final K key, final V value) {
+  protected PutResult put(final int pageIndex, final K key, final V value) {
     PutResult result;
     final Page page = this.pages.getPage(pageIndex);
     final byte pageType = page.readByte();
     if (pageType == INTERIOR) {
       result = putInterior(page, key, value);
     } else if (pageType == LEAF) {
-      result = putLeaf(page, nextPageIndex, key, value);
+      result = putLeaf(page, key, value);
     } else {
       throw new IllegalArgumentException("Unknown page type " + pageType);
     }
@@ -398,7 +426,7 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
   @Override
   public V put(final K key, final V value) {
     this.modCount++;
-    final PutResult result = put(this.rootPageIndex, -1, key, value);
+    final PutResult result = put(this.rootPageIndex, key, value);
     if (result.wasSplit()) {
       final Page rootPage = this.pages.getPage(this.rootPageIndex);
       final Page leftPage = this.pages.createPage();
@@ -440,8 +468,7 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
         final int compare = this.comparator.compare(currentKey, key);
         if (compare > 0) {
           final int previousPageIndex = MethodPageValueManager.getIntValue(previousPageIndexBytes);
-          final int nextPageIndex = MethodPageValueManager.getIntValue(nextPageIndexBytes);
-          result = put(previousPageIndex, nextPageIndex, key, value);
+          result = put(previousPageIndex, key, value);
           if (result.wasSplit()) {
             pageIndexesBytes.add(result.newPageIndexBytes);
             keysBytes.add(result.newKeyBytes);
@@ -456,7 +483,7 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     }
     if (result == null) {
       final int previousPageIndex = MethodPageValueManager.getIntValue(previousPageIndexBytes);
-      result = put(previousPageIndex, 0, key, value);
+      result = put(previousPageIndex, key, value);
       if (result.wasSplit()) {
         pageIndexesBytes.add(result.newPageIndexBytes);
         keysBytes.add(result.newKeyBytes);
@@ -468,8 +495,7 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
     return result;
   }
 
-  private PutResult putLeaf(final Page page, final int nextPageIndex,
-    final K key, final V value) {
+  private PutResult putLeaf(final Page page, final K key, final V value) {
     final PutResult result = new PutResult();
     final byte[] keyBytes = this.keyManager.getBytes(key);
     final List<byte[]> keysBytes = new ArrayList<byte[]>();
@@ -478,21 +504,22 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
 
     boolean newValueWritten = false;
     final int numBytes = page.readShort();
-    page.readInt();
+    final int nextPageIndex = page.readInt();
     while (page.getOffset() < numBytes) {
       final byte[] currentKeyBytes = this.keyManager.getBytes(page);
       final K currentKey = this.keyManager.getValue(currentKeyBytes);
       final byte[] currentValueBytes = this.valueManager.getBytes(page);
       final int compare = this.comparator.compare(currentKey, key);
 
-      if (compare >= 0) {
+      if (!newValueWritten && compare >= 0) {
         keysBytes.add(keyBytes);
         valuesBytes.add(valueBytes);
         newValueWritten = true;
-        result.hasOldValue = true;
       }
       if (compare == 0) {
+        result.hasOldValue = true;
         result.oldValue = this.valueManager.getValue(currentValueBytes);
+        this.valueManager.disposeBytes(currentValueBytes);
       } else {
         keysBytes.add(currentKeyBytes);
         valuesBytes.add(currentValueBytes);
@@ -568,6 +595,7 @@ public class BPlusTreeMap<K, V> extends AbstractMap<K, V> {
         if (compare == 0) {
           result.oldValue = this.valueManager.getValue(valueBytes);
           result.hasOldValue = true;
+          this.valueManager.disposeBytes(valueBytes);
         } else {
           keysBytes.add(keyBytes);
           valuesBytes.add(valueBytes);
@@ -35,6 +35,7 @@ public class BPlusTreePageValueManager<T> implements PageValueManager<T> {
       BPlusTreeMap.skipHeader(dataPage);
       final int nextPageIndex = dataPage.readInt();
       this.pageManager.removePage(dataPage);
+      this.pageManager.releasePage(dataPage);
       dataPage = this.pageManager.getPage(nextPageIndex);
       dataPage.setOffset(0);
       pageType = dataPage.readByte();
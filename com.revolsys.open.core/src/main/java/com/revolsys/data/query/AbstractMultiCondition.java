@@ -7,7 +7,10 @@ import java.util.Collections;
 import java.util.List;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.filter.Filter;
 import com.revolsys.util.CollectionUtil;
 
 public abstract class AbstractMultiCondition extends Condition {
@@ -73,6 +76,19 @@ public abstract class AbstractMultiCondition extends Condition {
     return clone;
   }
 
+  /**
+   * Compile each of the conditions.
+   */
+  protected List<Filter<Record>> compileConditions(
+    final RecordDefinition recordDefinition) {
+    final List<Filter<Record>> filters = new ArrayList<>(this.values.size());
+    for (final QueryValue value : this.values) {
+      final Condition condition = (Condition)value;
+      filters.add(condition.compile(recordDefinition));
+    }
+    return filters;
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof AbstractMultiCondition) {
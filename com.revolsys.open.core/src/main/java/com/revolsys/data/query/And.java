@@ -5,6 +5,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
+
 public class And extends AbstractMultiCondition {
 
   public And(final Collection<? extends Condition> conditions) {
@@ -34,6 +38,28 @@ public class And extends AbstractMultiCondition {
     return (And)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final List<Filter<Record>> filters = compileConditions(recordDefinition);
+    final String string = toString();
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        for (final Filter<Record> filter : filters) {
+          if (!filter.accept(record)) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public String toString() {
+        return string;
+      }
+    };
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof And) {
@@ -6,7 +6,10 @@ import java.util.List;
 import java.util.Map;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.filter.Filter;
 import com.revolsys.util.CompareUtil;
 import com.revolsys.util.JavaBeanUtil;
 
@@ -74,6 +77,44 @@ public class Between extends Condition {
     return clone;
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final CompiledValue column = this.column.compileValue(recordDefinition);
+    final CompiledValue min = compileValue(recordDefinition, this.min,
+      this.column);
+    final CompiledValue max = compileValue(recordDefinition, this.max,
+      this.column);
+    final String string = toString();
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        final Object columnValue = column.getValue(record);
+        if (columnValue == null) {
+          return false;
+        } else {
+          final Object minValue = min.getValue(record);
+          if (minValue == null
+            || CompareUtil.compare(minValue, columnValue) > 0) {
+            return false;
+          } else {
+            final Object maxValue = max.getValue(record);
+            if (maxValue == null
+              || CompareUtil.compare(maxValue, columnValue) < 0) {
+              return false;
+            } else {
+              return true;
+            }
+          }
+        }
+      }
+
+      @Override
+      public String toString() {
+        return string;
+      }
+    };
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof Between) {
@@ -6,6 +6,7 @@ import java.util.List;
 
 import com.revolsys.converter.string.StringConverterRegistry;
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
 
 public class BinaryCondition extends Condition {
@@ -65,6 +66,14 @@ public class BinaryCondition extends Condition {
     return clone;
   }
 
+  protected CompiledValue compileLeft(final RecordDefinition recordDefinition) {
+    return compileValue(recordDefinition, this.left, this.right);
+  }
+
+  protected CompiledValue compileRight(final RecordDefinition recordDefinition) {
+    return compileValue(recordDefinition, this.right, this.left);
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof BinaryCondition) {
@@ -5,6 +5,7 @@ import java.util.Map;
 
 import com.revolsys.converter.string.StringConverterRegistry;
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
@@ -40,6 +41,42 @@ public class Column extends QueryValue {
     return new Column(this.name);
   }
 
+  /**
+   * Compile the column to read the value using the index of the field in the
+   * record definition. Records with a different record definition are read
+   * using the field name.
+   */
+  @Override
+  public CompiledValue compileValue(final RecordDefinition recordDefinition) {
+    final String name = this.name;
+    final int fieldIndex;
+    if (recordDefinition == null) {
+      fieldIndex = -1;
+    } else {
+      fieldIndex = recordDefinition.getFieldIndex(name);
+    }
+    if (fieldIndex == -1) {
+      return super.compileValue(recordDefinition);
+    } else {
+      return new CompiledValue() {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <V> V getValue(final Record record) {
+          if (record.getRecordDefinition() == recordDefinition) {
+            return record.getValue(fieldIndex);
+          } else {
+            return (V)record.get(name);
+          }
+        }
+
+        @Override
+        public String toString() {
+          return name;
+        }
+      };
+    }
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof Column) {
@@ -0,0 +1,38 @@
+package com.revolsys.data.query;
+
+import com.revolsys.converter.string.StringConverterRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+
+/**
+ * A {@link QueryValue} compiled for a {@link RecordDefinition} using
+ * {@link QueryValue#compileValue(RecordDefinition)}. Columns are read from the record using the field index and constants are
+ * converted to the field's type when the value is compiled.
+ */
+public abstract class CompiledValue {
+  public static CompiledValue constant(final Object value) {
+    return new CompiledValue() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <V> V getValue(final Record record) {
+        return (V)value;
+      }
+
+      @Override
+      public String toString() {
+        return String.valueOf(value);
+      }
+    };
+  }
+
+  public String getStringValue(final Record record) {
+    final Object value = getValue(record);
+    if (value instanceof String) {
+      return (String)value;
+    } else {
+      return StringConverterRegistry.toString(value);
+    }
+  }
+
+  public abstract <V> V getValue(Record record);
+}
@@ -2,6 +2,12 @@ package com.revolsys.data.query;
 
 import java.util.Map;
 
+import com.revolsys.converter.string.StringConverterRegistry;
+import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.FieldDefinition;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.types.DataType;
 import com.revolsys.filter.Filter;
 
 public abstract class Condition extends QueryValue implements
@@ -16,6 +22,57 @@ Filter<Map<String, Object>> {
     }
   }
 
+  /**
+   * Compile the value. If the value is a {@link Value} and the other value is
+   * a {@link Column} the constant is converted to the type of the column's
+   * field.
+   */
+  protected static CompiledValue compileValue(
+    final RecordDefinition recordDefinition, final QueryValue value,
+    final QueryValue otherValue) {
+    if (value == null) {
+      return CompiledValue.constant(null);
+    } else if (value instanceof Value && otherValue instanceof Column) {
+      final Object fieldValue = toFieldValue(recordDefinition,
+        (Column)otherValue, ((Value)value).getQueryValue());
+      return CompiledValue.constant(fieldValue);
+    } else {
+      return value.compileValue(recordDefinition);
+    }
+  }
+
+  /**
+   * Convert the constant to the type of the column's field. The constant is
+   * returned unchanged if the field doesn't exist, the value can't be
+   * converted or the conversion loses information (e.g. 1.5 to an integer),
+   * so the compiled condition gives the same result as {@link #accept(Map)}.
+   */
+  protected static Object toFieldValue(final RecordDefinition recordDefinition,
+    final Column column, final Object value) {
+    if (value != null && recordDefinition != null) {
+      final FieldDefinition field = recordDefinition.getField(column.getName());
+      if (field != null) {
+        final DataType dataType = field.getType();
+        final Class<?> typeClass = dataType.getJavaClass();
+        if (typeClass.isInstance(value)) {
+          return value;
+        } else {
+          try {
+            final Object fieldValue = StringConverterRegistry.toObject(
+              dataType, value);
+            if (typeClass.isInstance(fieldValue)
+              && EqualsRegistry.equal(value, fieldValue)) {
+              return fieldValue;
+            }
+          } catch (final RuntimeException e) {
+            // Compare using the original value
+          }
+        }
+      }
+    }
+    return value;
+  }
+
   @Override
   public boolean accept(final Map<String, Object> record) {
     throw new UnsupportedOperationException("Cannot filter using " + toString());
@@ -26,6 +83,34 @@ Filter<Map<String, Object>> {
     return (Condition)super.clone();
   }
 
+  /**
+   * <p>Compile the condition to a filter for records of the record definition.
+   * Columns are read using the field index, constants are converted to the
+   * type of the field they are compared with and LIKE patterns are compiled
+   * once instead of for each record.</p>
+   *
+   * <p>The filter is independent of any later changes to the condition.
+   * Conditions that can't be compiled are evaluated using
+   * {@link #accept(Map)} on a clone of the condition.</p>
+   *
+   * @param recordDefinition The record definition of the records to filter.
+   * @return The filter.
+   */
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final Condition condition = clone();
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        return condition.accept(record);
+      }
+
+      @Override
+      public String toString() {
+        return condition.toString();
+      }
+    };
+  }
+
   @SuppressWarnings("unchecked")
   @Override
   public <V> V getValue(final Map<String, Object> record) {
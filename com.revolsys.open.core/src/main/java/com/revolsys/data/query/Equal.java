@@ -3,9 +3,38 @@ package com.revolsys.data.query;
 import java.util.Map;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.equals.NumberEquals;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
 
 public class Equal extends BinaryCondition {
 
+  /**
+   * Check if the values are equal. Values of the same immutable class are
+   * compared using {@link Object#equals(Object)} instead of looking up the
+   * comparison in the {@link EqualsRegistry}.
+   */
+  public static boolean equal(final Object value1, final Object value2) {
+    if (value1 == value2) {
+      return true;
+    } else if (value1 == null || value2 == null) {
+      return false;
+    } else {
+      final Class<?> valueClass = value1.getClass();
+      if (valueClass == value2.getClass()) {
+        if (valueClass == String.class || valueClass == Integer.class
+          || valueClass == Long.class || valueClass == Short.class
+          || valueClass == Byte.class || valueClass == Boolean.class) {
+          return value1.equals(value2);
+        } else if (valueClass == Double.class) {
+          return NumberEquals.equal((Double)value1, (Double)value2);
+        }
+      }
+      return EqualsRegistry.equal(value1, value2);
+    }
+  }
+
   public Equal(final QueryValue left, final QueryValue right) {
     super(left, "=", right);
   }
@@ -26,4 +55,22 @@ public class Equal extends BinaryCondition {
     return (Equal)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final CompiledValue left = compileLeft(recordDefinition);
+    final CompiledValue right = compileRight(recordDefinition);
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        final Object value1 = left.getValue(record);
+        final Object value2 = right.getValue(record);
+        return equal(value1, value2);
+      }
+
+      @Override
+      public String toString() {
+        return left + " = " + right;
+      }
+    };
+  }
 }
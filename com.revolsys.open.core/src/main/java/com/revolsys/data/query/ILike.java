@@ -3,7 +3,10 @@ package com.revolsys.data.query;
 import java.util.Map;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.filter.Filter;
 import com.revolsys.util.Property;
 
 public class ILike extends BinaryCondition {
@@ -68,4 +71,16 @@ public class ILike extends BinaryCondition {
     return (ILike)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final QueryValue right = getRight();
+    if (right instanceof Value) {
+      final CompiledValue left = compileLeft(recordDefinition);
+      final String pattern = right.getStringValue(null);
+      return Like.compile(left, pattern, true);
+    } else {
+      return super.compile(recordDefinition);
+    }
+  }
+
 }
@@ -1,15 +1,21 @@
 package com.revolsys.data.query;
 
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.revolsys.converter.string.StringConverterRegistry;
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.FieldDefinition;
+import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.filter.Filter;
 
 public class In extends Condition {
 
@@ -93,6 +99,70 @@ public class In extends Condition {
     return clone;
   }
 
+  /**
+   * Compile the condition. The allowed values are converted to the field's
+   * type once. If all the allowed values are of the same immutable class they
+   * are looked up in a hash set. A null value is only accepted if null is one
+   * of the allowed values, like {@link #accept(Map)}.
+   */
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final CompiledValue left = compileValue(recordDefinition, this.left, null);
+    final List<Object> allowedValues = new ArrayList<>();
+    boolean hasNull = false;
+    Class<?> valueClass = null;
+    for (Object allowedValue : this.values.getValues()) {
+      if (this.left instanceof Column) {
+        allowedValue = toFieldValue(recordDefinition, (Column)this.left,
+          allowedValue);
+      }
+      if (allowedValue == null) {
+        hasNull = true;
+      } else {
+        allowedValues.add(allowedValue);
+        if (allowedValues.size() == 1) {
+          valueClass = allowedValue.getClass();
+        } else if (valueClass != allowedValue.getClass()) {
+          valueClass = null;
+        }
+      }
+    }
+    final Object[] values = allowedValues.toArray();
+    final Set<Object> valueSet;
+    if (valueClass == String.class || valueClass == Integer.class
+      || valueClass == Long.class || valueClass == Short.class) {
+      valueSet = new HashSet<>(allowedValues);
+    } else {
+      valueSet = null;
+    }
+    final Class<?> setValueClass = valueClass;
+    final boolean acceptNull = hasNull;
+    final String string = toString();
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        final Object value = left.getValue(record);
+        if (value == null) {
+          return acceptNull;
+        } else if (valueSet != null && value.getClass() == setValueClass) {
+          return valueSet.contains(value);
+        } else {
+          for (final Object allowedValue : values) {
+            if (Equal.equal(value, allowedValue)) {
+              return true;
+            }
+          }
+          return false;
+        }
+      }
+
+      @Override
+      public String toString() {
+        return string;
+      }
+    };
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof In) {
@@ -2,6 +2,10 @@ package com.revolsys.data.query;
 
 import java.util.Map;
 
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
+
 public class IsNotNull extends RightUnaryCondition {
 
   public IsNotNull(final QueryValue value) {
@@ -14,4 +18,22 @@ public class IsNotNull extends RightUnaryCondition {
     final Object value = queryValue.getValue(record);
     return value != null;
   }
+
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final CompiledValue compiledValue = getValue().compileValue(
+      recordDefinition);
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        final Object value = compiledValue.getValue(record);
+        return value != null;
+      }
+
+      @Override
+      public String toString() {
+        return compiledValue + " IS NOT NULL";
+      }
+    };
+  }
 }
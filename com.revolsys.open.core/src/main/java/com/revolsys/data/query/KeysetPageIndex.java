@@ -0,0 +1,276 @@
+package com.revolsys.data.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.FieldDefinition;
+import com.revolsys.data.record.schema.RecordDefinition;
+
+/**
+ * <p>Create the queries for pages of records using keyset (seek) pagination.
+ * The records are ordered by the order by fields followed by the id fields so
+ * the order is unique. The query for a page starts after the key of the
+ * nearest checkpoint at or before the page using a range condition on the key
+ * fields, so the database can use the index instead of skipping all the rows
+ * before the page. Only the pages between the checkpoint and the page are
+ * skipped using the offset.</p>
+ *
+ * <p>Before the first page that is more than {@link #getCheckpointInterval()}
+ * pages after the nearest checkpoint is loaded, the caller should read the
+ * records from {@link #getKeyQuery(Query)}, which only returns the key
+ * fields, and pass them to {@link #setKeyRecords(Iterable)}. This saves the
+ * key at the start of every checkpoint interval, so the offset for a page is
+ * never more than the checkpoint interval. After a full page is loaded the
+ * key of the last record is also saved as the checkpoint for the next
+ * page.</p>
+ *
+ * <p>Keyset pagination is only used if the record definition has an id field
+ * and all the order by fields are required, as rows with null values would be
+ * excluded by the range condition. Otherwise the queries use the offset from
+ * the first record.</p>
+ */
+public class KeysetPageIndex {
+  private int checkpointInterval = 10;
+
+  private final TreeMap<Integer, Object[]> checkpoints = new TreeMap<>();
+
+  private final List<FieldDefinition> keyFields = new ArrayList<>();
+
+  private final boolean keyset;
+
+  private boolean keysLoaded;
+
+  private final Map<String, Boolean> orderBy = new LinkedHashMap<>();
+
+  private final int pageSize;
+
+  public KeysetPageIndex(final RecordDefinition recordDefinition,
+    final Map<String, Boolean> orderBy, final int pageSize) {
+    this.pageSize = pageSize;
+    boolean keyset = false;
+    if (orderBy != null) {
+      this.orderBy.putAll(orderBy);
+    }
+    if (recordDefinition != null) {
+      final List<String> idFieldNames = recordDefinition.getIdFieldNames();
+      if (!idFieldNames.isEmpty()) {
+        keyset = true;
+        for (final String idFieldName : idFieldNames) {
+          if (!this.orderBy.containsKey(idFieldName)) {
+            this.orderBy.put(idFieldName, Boolean.TRUE);
+          }
+        }
+        for (final String fieldName : this.orderBy.keySet()) {
+          final FieldDefinition field = recordDefinition.getField(fieldName);
+          if (field == null) {
+            keyset = false;
+          } else if (!field.isRequired() && !idFieldNames.contains(fieldName)) {
+            keyset = false;
+          } else {
+            this.keyFields.add(field);
+          }
+        }
+      }
+    }
+    this.keyset = keyset;
+  }
+
+  /**
+   * Get the condition for the records after the key.
+   * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ...
+   */
+  protected Condition getAfterKeyCondition(final Object[] key) {
+    final List<Condition> conditions = new ArrayList<>();
+    for (int i = 0; i < this.keyFields.size(); i++) {
+      final List<Condition> keyConditions = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        final FieldDefinition field = this.keyFields.get(j);
+        keyConditions.add(Q.equal(field, key[j]));
+      }
+      final FieldDefinition field = this.keyFields.get(i);
+      final String fieldName = field.getName();
+      if (this.orderBy.get(fieldName)) {
+        keyConditions.add(Q.greaterThan(field, key[i]));
+      } else {
+        keyConditions.add(Q.lessThan(field, key[i]));
+      }
+      if (keyConditions.size() == 1) {
+        conditions.add(keyConditions.get(0));
+      } else {
+        conditions.add(Q.and(keyConditions));
+      }
+    }
+    if (conditions.size() == 1) {
+      return conditions.get(0);
+    } else {
+      return Q.or(conditions);
+    }
+  }
+
+  public int getCheckpointInterval() {
+    return this.checkpointInterval;
+  }
+
+  /**
+   * Get the values of the key fields from the record.
+   *
+   * @return The key or null if a key field has a null value.
+   */
+  protected Object[] getKey(final Record record) {
+    final Object[] key = new Object[this.keyFields.size()];
+    for (int i = 0; i < key.length; i++) {
+      final FieldDefinition field = this.keyFields.get(i);
+      final String fieldName = field.getName();
+      final Object value = record.getValue(fieldName);
+      if (value == null) {
+        return null;
+      } else {
+        key[i] = value;
+      }
+    }
+    return key;
+  }
+
+  /**
+   * Get a copy of the query that returns only the key fields of all the
+   * records, in the same order as the pages.
+   *
+   * @param query The query for all the records.
+   * @return The query for the keys.
+   */
+  public Query getKeyQuery(final Query query) {
+    final Query keyQuery = query.clone();
+    final List<String> fieldNames = new ArrayList<>();
+    for (final FieldDefinition field : this.keyFields) {
+      fieldNames.add(field.getName());
+    }
+    keyQuery.setFieldNames(fieldNames);
+    keyQuery.setOrderBy(this.orderBy);
+    keyQuery.setOffset(0);
+    keyQuery.setLimit(-1);
+    return keyQuery;
+  }
+
+  public Map<String, Boolean> getOrderBy() {
+    return Collections.unmodifiableMap(this.orderBy);
+  }
+
+  /**
+   * Get a copy of the query that returns the records for the page. The query
+   * is ordered by the order by and id fields and limited to the page size.
+   *
+   * @param query The query for all the records.
+   * @param pageNumber The page number, starting at 0.
+   * @return The query for the page.
+   */
+  public Query getPageQuery(final Query query, final int pageNumber) {
+    final Query pageQuery = query.clone();
+    pageQuery.setOrderBy(this.orderBy);
+    int startPageNumber = 0;
+    if (this.keyset && query.getSql() == null) {
+      Entry<Integer, Object[]> checkpoint;
+      synchronized (this.checkpoints) {
+        checkpoint = this.checkpoints.floorEntry(pageNumber);
+      }
+      if (checkpoint != null) {
+        startPageNumber = checkpoint.getKey();
+        final Object[] key = checkpoint.getValue();
+        pageQuery.and(getAfterKeyCondition(key));
+      }
+    }
+    pageQuery.setOffset((pageNumber - startPageNumber) * this.pageSize);
+    pageQuery.setLimit(this.pageSize);
+    return pageQuery;
+  }
+
+  public int getPageSize() {
+    return this.pageSize;
+  }
+
+  /**
+   * Check if the keys should be loaded using {@link #getKeyQuery(Query)}
+   * before the page is loaded. This is true the first time a page is more
+   * than the checkpoint interval after the nearest checkpoint.
+   *
+   * @param query The query for all the records.
+   * @param pageNumber The page number, starting at 0.
+   * @return True if the keys should be loaded.
+   */
+  public boolean isKeyScanRequired(final Query query, final int pageNumber) {
+    if (this.keyset && query.getSql() == null) {
+      synchronized (this.checkpoints) {
+        if (!this.keysLoaded) {
+          final Integer checkpointPageNumber = this.checkpoints.floorKey(pageNumber);
+          if (checkpointPageNumber == null) {
+            return pageNumber > this.checkpointInterval;
+          } else {
+            return pageNumber - checkpointPageNumber > this.checkpointInterval;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  public boolean isKeyset() {
+    return this.keyset;
+  }
+
+  public void setCheckpointInterval(final int checkpointInterval) {
+    this.checkpointInterval = Math.max(1, checkpointInterval);
+  }
+
+  /**
+   * Save the key at the start of every checkpoint interval from the records
+   * returned by the {@link #getKeyQuery(Query)}.
+   *
+   * @param records The key records in order.
+   */
+  public void setKeyRecords(final Iterable<? extends Record> records) {
+    if (this.keyset) {
+      final int recordsPerCheckpoint = this.pageSize * this.checkpointInterval;
+      final Map<Integer, Object[]> checkpoints = new HashMap<>();
+      int recordCount = 0;
+      for (final Record record : records) {
+        recordCount++;
+        if (recordCount % recordsPerCheckpoint == 0) {
+          final Object[] key = getKey(record);
+          if (key != null) {
+            checkpoints.put(recordCount / this.pageSize, key);
+          }
+        }
+      }
+      synchronized (this.checkpoints) {
+        this.checkpoints.putAll(checkpoints);
+        this.keysLoaded = true;
+      }
+    }
+  }
+
+  /**
+   * Save the key of the last record in the page as the checkpoint for the
+   * next page. Partial pages are ignored as they are the last page.
+   *
+   * @param pageNumber The page number, starting at 0.
+   * @param records The records in the page.
+   */
+  public void setPageRecords(final int pageNumber,
+    final List<? extends Record> records) {
+    if (this.keyset && records.size() == this.pageSize) {
+      final Record record = records.get(records.size() - 1);
+      final Object[] key = getKey(record);
+      if (key != null) {
+        synchronized (this.checkpoints) {
+          this.checkpoints.put(pageNumber + 1, key);
+        }
+      }
+    }
+  }
+}
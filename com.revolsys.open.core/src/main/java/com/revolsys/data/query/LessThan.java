@@ -2,6 +2,9 @@ package com.revolsys.data.query;
 
 import java.util.Map;
 
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
 import com.revolsys.util.CompareUtil;
 
 public class LessThan extends BinaryCondition {
@@ -26,4 +29,23 @@ public class LessThan extends BinaryCondition {
     return (LessThan)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final CompiledValue left = compileLeft(recordDefinition);
+    final CompiledValue right = compileRight(recordDefinition);
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        final Object value1 = left.getValue(record);
+        final Object value2 = right.getValue(record);
+        return CompareUtil.compare(value1, value2) < 0;
+      }
+
+      @Override
+      public String toString() {
+        return left + " < " + right;
+      }
+    };
+  }
+
 }
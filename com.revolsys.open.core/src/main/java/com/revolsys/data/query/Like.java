@@ -1,35 +1,104 @@
 package com.revolsys.data.query;
 
 import java.util.Map;
+import java.util.regex.Pattern;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
 import com.revolsys.util.Property;
 
 public class Like extends BinaryCondition {
 
-  public static String toPattern(String value2) {
-    value2 = value2.replaceAll("\\\\", "\\\\");
-    value2 = value2.replaceAll("\\[", "\\[");
-    value2 = value2.replaceAll("\\]", "\\]");
-    value2 = value2.replaceAll("\\{", "\\{");
-    value2 = value2.replaceAll("\\}", "\\}");
-    value2 = value2.replaceAll("\\(", "\\)");
-    value2 = value2.replaceAll("\\)", "\\)");
-    value2 = value2.replaceAll("\\^", "\\^");
-    value2 = value2.replaceAll("\\$", "\\$");
-    value2 = value2.replaceAll("\\+", "\\+");
-    value2 = value2.replaceAll("\\-", "\\-");
-    value2 = value2.replaceAll("\\*", "\\*");
-    value2 = value2.replaceAll("\\?", "\\?");
-    value2 = value2.replaceAll("\\|", "\\|");
-    value2 = value2.replaceAll("\\,", "\\,");
-    value2 = value2.replaceAll("\\:", "\\:");
-    value2 = value2.replaceAll("\\!", "\\!");
-    value2 = value2.replaceAll("\\<", "\\<");
-    value2 = value2.replaceAll("\\>", "\\>");
-    value2 = value2.replaceAll("\\=", "\\=");
-    value2 = value2.replaceAll("%", ".*");
-    return value2;
+  /**
+   * Create a filter for a LIKE with a constant pattern. The pattern is
+   * compiled once if it contains a % otherwise the values are compared for
+   * equality.
+   *
+   * @param left The compiled left value.
+   * @param right The pattern.
+   * @param upperCase True if the values and pattern are compared in upper case.
+   */
+  static Filter<Record> compile(final CompiledValue left, final String right,
+    final boolean upperCase) {
+    final String operator;
+    if (upperCase) {
+      operator = " ILIKE ";
+    } else {
+      operator = " LIKE ";
+    }
+    if (Property.hasValue(right)) {
+      final String value2;
+      if (upperCase) {
+        value2 = right.toUpperCase();
+      } else {
+        value2 = right;
+      }
+      final Pattern pattern;
+      if (value2.contains("%")) {
+        pattern = Pattern.compile(toPattern(value2));
+      } else {
+        pattern = null;
+      }
+      return new Filter<Record>() {
+        @Override
+        public boolean accept(final Record record) {
+          String value1 = left.getStringValue(record);
+          if (Property.hasValue(value1)) {
+            if (upperCase) {
+              value1 = value1.toUpperCase();
+            }
+            if (pattern == null) {
+              return value1.equals(value2);
+            } else {
+              return pattern.matcher(value1).matches();
+            }
+          } else {
+            return false;
+          }
+        }
+
+        @Override
+        public String toString() {
+          return left + operator + "'" + value2 + "'";
+        }
+      };
+    } else {
+      return new Filter<Record>() {
+        @Override
+        public boolean accept(final Record record) {
+          final String value1 = left.getStringValue(record);
+          return !Property.hasValue(value1);
+        }
+
+        @Override
+        public String toString() {
+          return left + operator + "''";
+        }
+      };
+    }
+  }
+
+  /**
+   * Convert a LIKE pattern to a regular expression. Each % matches any
+   * characters, all other characters are matched literally.
+   */
+  public static String toPattern(final String value) {
+    final StringBuilder pattern = new StringBuilder();
+    int startIndex = 0;
+    for (int index = value.indexOf('%'); index != -1; index = value.indexOf(
+      '%', startIndex)) {
+      if (index > startIndex) {
+        pattern.append(Pattern.quote(value.substring(startIndex, index)));
+      }
+      pattern.append(".*");
+      startIndex = index + 1;
+    }
+    if (startIndex < value.length()) {
+      pattern.append(Pattern.quote(value.substring(startIndex)));
+    }
+    return pattern.toString();
   }
 
   public Like(final QueryValue left, final QueryValue right) {
@@ -69,4 +138,15 @@ public class Like extends BinaryCondition {
     return (Like)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final QueryValue right = getRight();
+    if (right instanceof Value) {
+      final CompiledValue left = compileLeft(recordDefinition);
+      final String pattern = right.getStringValue(null);
+      return compile(left, pattern, false);
+    } else {
+      return super.compile(recordDefinition);
+    }
+  }
 }
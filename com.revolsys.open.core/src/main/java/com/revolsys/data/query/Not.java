@@ -2,6 +2,10 @@ package com.revolsys.data.query;
 
 import java.util.Map;
 
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
+
 public class Not extends LeftUnaryCondition {
 
   public Not(final Condition condition) {
@@ -23,6 +27,23 @@ public class Not extends LeftUnaryCondition {
     return (Not)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final Condition condition = getQueryValue();
+    final Filter<Record> filter = condition.compile(recordDefinition);
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        return !filter.accept(record);
+      }
+
+      @Override
+      public String toString() {
+        return "NOT " + filter;
+      }
+    };
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof Not) {
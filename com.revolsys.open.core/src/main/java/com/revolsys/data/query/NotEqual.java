@@ -3,6 +3,9 @@ package com.revolsys.data.query;
 import java.util.Map;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
 
 public class NotEqual extends BinaryCondition {
 
@@ -26,4 +29,23 @@ public class NotEqual extends BinaryCondition {
     return (NotEqual)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final CompiledValue left = compileLeft(recordDefinition);
+    final CompiledValue right = compileRight(recordDefinition);
+    return new Filter<Record>() {
+      @Override
+      public boolean accept(final Record record) {
+        final Object value1 = left.getValue(record);
+        final Object value2 = right.getValue(record);
+        return !Equal.equal(value1, value2);
+      }
+
+      @Override
+      public String toString() {
+        return left + " <> " + right;
+      }
+    };
+  }
+
 }
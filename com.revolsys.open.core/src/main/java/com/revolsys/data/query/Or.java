@@ -5,6 +5,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
+
 public class Or extends AbstractMultiCondition {
 
   public Or(final Collection<? extends Condition> conditions) {
@@ -35,6 +39,32 @@ public class Or extends AbstractMultiCondition {
     return (Or)super.clone();
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    final List<Filter<Record>> filters = compileConditions(recordDefinition);
+    final String string = toString();
+    if (filters.isEmpty()) {
+      return super.compile(recordDefinition);
+    } else {
+      return new Filter<Record>() {
+        @Override
+        public boolean accept(final Record record) {
+          for (final Filter<Record> filter : filters) {
+            if (filter.accept(record)) {
+              return true;
+            }
+          }
+          return false;
+        }
+
+        @Override
+        public String toString() {
+          return string;
+        }
+      };
+    }
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof Or) {
@@ -6,7 +6,10 @@ import java.util.List;
 import java.util.Map;
 
 import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.filter.Filter;
 
 public class ParenthesisCondition extends Condition {
 
@@ -41,6 +44,11 @@ public class ParenthesisCondition extends Condition {
     return clone;
   }
 
+  @Override
+  public Filter<Record> compile(final RecordDefinition recordDefinition) {
+    return this.condition.compile(recordDefinition);
+  }
+
   @Override
   public boolean equals(final Object obj) {
     if (obj instanceof ParenthesisCondition) {
@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -110,7 +110,7 @@ public class Query extends AbstractObjectWithProperties implements Cloneable {
 
   private int offset = 0;
 
-  private Map<String, Boolean> orderBy = new HashMap<String, Boolean>();
+  private Map<String, Boolean> orderBy = new LinkedHashMap<String, Boolean>();
 
   private List<Object> parameters = new ArrayList<Object>();
 
@@ -171,7 +171,7 @@ public class Query extends AbstractObjectWithProperties implements Cloneable {
       final Query clone = (Query)super.clone();
       clone.fieldNames = new ArrayList<String>(clone.fieldNames);
       clone.parameters = new ArrayList<Object>(this.parameters);
-      clone.orderBy = new HashMap<String, Boolean>(this.orderBy);
+      clone.orderBy = new LinkedHashMap<String, Boolean>(this.orderBy);
       if (this.whereCondition != null) {
         clone.whereCondition = this.whereCondition.clone();
       }
@@ -40,6 +40,7 @@ import com.revolsys.data.query.functions.EnvelopeIntersects;
 import com.revolsys.data.query.functions.Function;
 import com.revolsys.data.query.functions.GetMapValue;
 import com.revolsys.data.query.functions.WithinDistance;
+import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordStore;
@@ -109,6 +110,48 @@ public abstract class QueryValue implements Cloneable {
     return boundingBox;
   }
 
+  /**
+   * Get the bounding box that the records matching the query's where condition
+   * must intersect.
+   *
+   * @param query The query.
+   * @return The bounding box or null if the where condition is not an
+   * {@link EnvelopeIntersects} or an {@link And} condition with an
+   * {@link EnvelopeIntersects}.
+   */
+  public static BoundingBox getFilterBoundingBox(final Query query) {
+    final Condition whereCondition = query.getWhereCondition();
+    return getFilterBoundingBox(whereCondition);
+  }
+
+  private static BoundingBox getFilterBoundingBox(final QueryValue queryValue) {
+    BoundingBox boundingBox = null;
+    if (queryValue instanceof EnvelopeIntersects) {
+      final EnvelopeIntersects intersects = (EnvelopeIntersects)queryValue;
+      boundingBox = expand(boundingBox,
+        getValueBoundingBox(intersects.getBoundingBox1Value()));
+      boundingBox = expand(boundingBox,
+        getValueBoundingBox(intersects.getBoundingBox2Value()));
+    } else if (queryValue instanceof And) {
+      for (final QueryValue childValue : queryValue.getQueryValues()) {
+        boundingBox = expand(boundingBox, getFilterBoundingBox(childValue));
+      }
+    }
+    return boundingBox;
+  }
+
+  private static BoundingBox getValueBoundingBox(final QueryValue queryValue) {
+    if (queryValue instanceof Value) {
+      final Object value = ((Value)queryValue).getValue();
+      if (value instanceof BoundingBox) {
+        return (BoundingBox)value;
+      } else if (value instanceof Geometry) {
+        return ((Geometry)value).getBoundingBox();
+      }
+    }
+    return null;
+  }
+
   public static Condition parseWhere(final RecordDefinition recordDefinition,
     final String whereClause) {
     if (recordDefinition == null) {
@@ -404,6 +447,26 @@ public abstract class QueryValue implements Cloneable {
     }
   }
 
+  /**
+   * Compile the value so it can be read from records of the record definition
+   * without walking the query tree. Subclasses that can't be compiled return
+   * a value that calls {@link #getValue(Map)} on a clone of the query value.
+   */
+  public CompiledValue compileValue(final RecordDefinition recordDefinition) {
+    final QueryValue queryValue = clone();
+    return new CompiledValue() {
+      @Override
+      public <V> V getValue(final Record record) {
+        return queryValue.getValue(record);
+      }
+
+      @Override
+      public String toString() {
+        return queryValue.toString();
+      }
+    };
+  }
+
   public List<QueryValue> getQueryValues() {
     return Collections.emptyList();
   }
@@ -85,6 +85,11 @@ public class Value extends QueryValue {
     return (Value)super.clone();
   }
 
+  @Override
+  public CompiledValue compileValue(final RecordDefinition recordDefinition) {
+    return CompiledValue.constant(this.queryValue);
+  }
+
   public void convert(final DataType dataType) {
     if (this.queryValue != null) {
       final Object newValue = StringConverterRegistry.toObject(dataType,
@@ -1,5 +1,6 @@
 package com.revolsys.data.record;
 
+import java.math.BigDecimal;
 import java.sql.Clob;
 import java.sql.SQLException;
 import java.util.AbstractMap;
@@ -479,6 +480,17 @@ public abstract class AbstractRecord extends AbstractMap<String, Object> impleme
     return oldValue;
   }
 
+  @Override
+  public void setDecimal(final int index, final long unscaledValue,
+    final int scale) {
+    setValue(index, BigDecimal.valueOf(unscaledValue, scale));
+  }
+
+  @Override
+  public void setDouble(final int index, final double value) {
+    setValue(index, Double.valueOf(value));
+  }
+
   /**
    * Set the value of the primary geometry attribute.
    *
@@ -516,6 +528,16 @@ public abstract class AbstractRecord extends AbstractMap<String, Object> impleme
     }
   }
 
+  @Override
+  public void setInt(final int index, final int value) {
+    setValue(index, Integer.valueOf(value));
+  }
+
+  @Override
+  public void setLong(final int index, final long value) {
+    setValue(index, Long.valueOf(value));
+  }
+
   /**
    * Set the value of the attribute with the specified name.
    *
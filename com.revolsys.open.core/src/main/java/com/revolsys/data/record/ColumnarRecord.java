@@ -0,0 +1,206 @@
+package com.revolsys.data.record;
+
+import java.util.Map;
+
+import com.revolsys.data.equals.EqualsInstance;
+import com.revolsys.data.identifier.SingleIdentifier;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.util.Property;
+
+/**
+ * The ColumnarRecord is an implementation of {@link Record} which stores the
+ * attribute values in a row of the primitive column arrays shared by all the
+ * records created by a {@link ColumnarRecordFactory} for the same record
+ * definition.
+ *
+ * @see ColumnarRecordFactory
+ */
+public class ColumnarRecord extends BaseRecord {
+  /** Serialization version */
+  private static final long serialVersionUID = 1L;
+
+  private transient RecordColumns columns;
+
+  private transient int row;
+
+  ColumnarRecord(final RecordDefinition recordDefinition,
+    final RecordColumns columns) {
+    super(recordDefinition);
+    this.columns = columns;
+    this.row = columns.addRow();
+    final Map<String, Object> defaultValues = recordDefinition.getDefaultValues();
+    setValuesByPath(defaultValues);
+    setState(RecordState.New);
+  }
+
+  /**
+   * Create a clone of the object in a new row of the same columns.
+   *
+   * @return The cloned object.
+   */
+  @Override
+  public ColumnarRecord clone() {
+    final ColumnarRecord clone = (ColumnarRecord)super.clone();
+    clone.row = this.columns.addRow();
+    final int fieldCount = getRecordDefinition().getFieldCount();
+    for (int i = 0; i < fieldCount; i++) {
+      final Object value = this.columns.getValue(this.row, i);
+      this.columns.setValue(clone.row, i, value);
+    }
+    return clone;
+  }
+
+  /**
+   * Get the scale of the unscaled decimal values of the attribute.
+   *
+   * @param index The index of the attribute.
+   * @return The scale or -1 if the attribute isn't stored as unscaled decimals.
+   * @see #getUnscaledDecimal(int)
+   */
+  public int getDecimalScale(final int index) {
+    if (index < 0) {
+      return -1;
+    } else {
+      return this.columns.getDecimalScale(index);
+    }
+  }
+
+  /**
+   * Get the unscaled value of a decimal attribute without creating a
+   * {@link java.math.BigDecimal}. The decimal value is the unscaled value
+   * divided by 10^{@link #getDecimalScale(int)}.
+   *
+   * @param index The index of the attribute.
+   * @return The unscaled value.
+   * @throws IllegalStateException If {@link #isUnscaledDecimal(int)} is false.
+   */
+  public long getUnscaledDecimal(final int index) {
+    return this.columns.getUnscaledDecimal(this.row, index);
+  }
+
+  /**
+   * Get the value of the attribute with the specified index.
+   *
+   * @param index The index of the attribute.
+   * @return The attribute value.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends Object> T getValue(final int index) {
+    if (index < 0) {
+      return null;
+    } else {
+      return (T)this.columns.getValue(this.row, index);
+    }
+  }
+
+  /**
+   * Check if the value of the attribute is a decimal stored as an unscaled
+   * long that can be read using {@link #getUnscaledDecimal(int)}.
+   *
+   * @param index The index of the attribute.
+   * @return True if the value is an unscaled decimal.
+   */
+  public boolean isUnscaledDecimal(final int index) {
+    if (index < 0) {
+      return false;
+    } else {
+      return this.columns.isUnscaledDecimal(this.row, index);
+    }
+  }
+
+  private boolean isStateTracked() {
+    final RecordState state = getState();
+    return state == RecordState.Persisted || state == RecordState.Deleted;
+  }
+
+  @Override
+  public void setDecimal(final int index, final long unscaledValue,
+    final int scale) {
+    if (index >= 0) {
+      if (isStateTracked()) {
+        super.setDecimal(index, unscaledValue, scale);
+      } else {
+        this.columns.setDecimal(this.row, index, unscaledValue, scale);
+      }
+    }
+  }
+
+  @Override
+  public void setDouble(final int index, final double value) {
+    if (index >= 0) {
+      if (isStateTracked()) {
+        super.setDouble(index, value);
+      } else {
+        this.columns.setDouble(this.row, index, value);
+      }
+    }
+  }
+
+  @Override
+  public void setInt(final int index, final int value) {
+    if (index >= 0) {
+      if (isStateTracked()) {
+        super.setInt(index, value);
+      } else {
+        this.columns.setInt(this.row, index, value);
+      }
+    }
+  }
+
+  @Override
+  public void setLong(final int index, final long value) {
+    if (index >= 0) {
+      if (isStateTracked()) {
+        super.setLong(index, value);
+      } else {
+        this.columns.setLong(this.row, index, value);
+      }
+    }
+  }
+
+  /**
+   * Set the value of the attribute with the specified name.
+   *
+   * @param index The index of the attribute.
+   * @param value The new value.
+   */
+  @Override
+  public void setValue(final int index, Object value) {
+    if (index >= 0) {
+      if (value instanceof String) {
+        final String string = (String)value;
+        if (!Property.hasValue(string)) {
+          value = null;
+        }
+      }
+      if (value instanceof SingleIdentifier) {
+        final SingleIdentifier identifier = (SingleIdentifier)value;
+        value = identifier.getValue(0);
+      }
+      if (isStateTracked()) {
+        final Object oldValue = this.columns.getValue(this.row, index);
+        if (!EqualsInstance.INSTANCE.equals(oldValue, value)) {
+          updateState();
+        }
+      }
+      this.columns.setValue(this.row, index, value);
+    }
+  }
+
+  /**
+   * The columns are shared with the other records so serialize a copy of the
+   * values.
+   *
+   * @return The {@link ArrayRecord} to serialize.
+   */
+  protected Object writeReplace() {
+    final ArrayRecord record = new ArrayRecord(getRecordDefinition());
+    final int fieldCount = getRecordDefinition().getFieldCount();
+    for (int i = 0; i < fieldCount; i++) {
+      record.setValue(i, getValue(i));
+    }
+    record.setState(getState());
+    return record;
+  }
+}
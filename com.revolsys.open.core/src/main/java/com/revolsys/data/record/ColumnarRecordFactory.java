@@ -0,0 +1,58 @@
+package com.revolsys.data.record;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.revolsys.data.record.schema.RecordDefinition;
+
+/**
+ * The ColumnarRecordFactory is an implementation of {@link RecordFactory} for
+ * creating {@link ColumnarRecord} instances. The values of all the records
+ * created for a record definition are stored in primitive column arrays
+ * (int[], long[], double[] and dictionary encoded strings) instead of an array
+ * of boxed objects for each record. Use a factory for each large load, the
+ * columns are kept until the factory and all of its records are garbage
+ * collected.
+ *
+ * @see ColumnarRecord
+ */
+public class ColumnarRecordFactory implements RecordFactory {
+  private final Map<RecordDefinition, RecordColumns> columnsByRecordDefinition = new IdentityHashMap<>();
+
+  /**
+   * Create an instance of ColumnarRecord using the record definition
+   *
+   * @param recordDefinition The record definition used to create the instance.
+   * @return The Record instance.
+   */
+  @Override
+  public ColumnarRecord createRecord(final RecordDefinition recordDefinition) {
+    final RecordColumns columns = getColumns(recordDefinition);
+    return new ColumnarRecord(recordDefinition, columns);
+  }
+
+  private synchronized RecordColumns getColumns(
+    final RecordDefinition recordDefinition) {
+    RecordColumns columns = this.columnsByRecordDefinition.get(recordDefinition);
+    if (columns == null) {
+      columns = new RecordColumns(recordDefinition);
+      this.columnsByRecordDefinition.put(recordDefinition, columns);
+    }
+    return columns;
+  }
+
+  /**
+   * Get the number of records created for the record definition.
+   *
+   * @param recordDefinition The record definition.
+   * @return The number of records.
+   */
+  public synchronized int getRecordCount(final RecordDefinition recordDefinition) {
+    final RecordColumns columns = this.columnsByRecordDefinition.get(recordDefinition);
+    if (columns == null) {
+      return 0;
+    } else {
+      return columns.getRowCount();
+    }
+  }
+}
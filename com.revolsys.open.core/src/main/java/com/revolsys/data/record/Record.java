@@ -122,6 +122,19 @@ public interface Record extends Map<String, Object>, Comparable<Record>, Identif
 
   boolean isValid(String fieldName);
 
+  /**
+   * Set the value of a decimal attribute from the unscaled value and scale
+   * without creating a {@link java.math.BigDecimal} if the record can store it
+   * directly.
+   *
+   * @param index The index of the attribute.
+   * @param unscaledValue The unscaled value.
+   * @param scale The number of digits after the decimal point.
+   */
+  void setDecimal(int index, long unscaledValue, int scale);
+
+  void setDouble(int index, double value);
+
   /**
    * Set the value of the primary geometry attribute.
    *
@@ -138,6 +151,10 @@ public interface Record extends Map<String, Object>, Comparable<Record>, Identif
    */
   void setIdValue(Object id);
 
+  void setInt(int index, int value);
+
+  void setLong(int index, long value);
+
   void setState(final RecordState state);
 
   /**
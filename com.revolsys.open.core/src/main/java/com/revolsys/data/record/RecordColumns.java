@@ -0,0 +1,772 @@
+package com.revolsys.data.record;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.types.DataType;
+
+/**
+ * The column storage for the {@link ColumnarRecord}s of one record definition.
+ * Each field has a column of primitive arrays allocated in blocks of
+ * {@link #BLOCK_SIZE} rows so the arrays never need to be copied as rows are
+ * added. Numbers are converted to the field's type where the value fits,
+ * other values are stored as objects.
+ */
+final class RecordColumns {
+  private static class BooleanColumn extends Column {
+    private byte[][] blocks = new byte[0][];
+
+    @Override
+    protected void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      final byte value = this.blocks[row >> BLOCK_SHIFT][row & BLOCK_MASK];
+      if (value == NULL) {
+        return null;
+      } else if (value == OBJECT) {
+        return getObject(row);
+      } else {
+        return value == TRUE;
+      }
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      final byte[] block = this.blocks[row >> BLOCK_SHIFT];
+      final int offset = row & BLOCK_MASK;
+      removeObject(block[offset], row);
+      if (value == null) {
+        block[offset] = NULL;
+      } else if (value instanceof Boolean) {
+        if ((Boolean)value) {
+          block[offset] = TRUE;
+        } else {
+          block[offset] = FALSE;
+        }
+      } else {
+        setObject(row, value);
+        block[offset] = OBJECT;
+      }
+    }
+  }
+
+  private static abstract class Column {
+    private volatile Map<Integer, Object> objects;
+
+    protected abstract void addBlock(int blockIndex);
+
+    public int getDecimalScale() {
+      return -1;
+    }
+
+    protected Object getObject(final int row) {
+      final Map<Integer, Object> objects = this.objects;
+      if (objects == null) {
+        return null;
+      } else {
+        return objects.get(row);
+      }
+    }
+
+    public long getUnscaledDecimal(final int row) {
+      throw new IllegalStateException("Value is not an unscaled decimal");
+    }
+
+    public abstract Object getValue(int row);
+
+    public boolean isUnscaledDecimal(final int row) {
+      return false;
+    }
+
+    protected void removeObject(final byte state, final int row) {
+      if (state == OBJECT) {
+        this.objects.remove(row);
+      }
+    }
+
+    public void setDecimal(final int row, final long unscaledValue,
+      final int scale) {
+      setValue(row, BigDecimal.valueOf(unscaledValue, scale));
+    }
+
+    public void setDouble(final int row, final double value) {
+      setValue(row, value);
+    }
+
+    public void setInt(final int row, final int value) {
+      setValue(row, value);
+    }
+
+    public void setLong(final int row, final long value) {
+      setValue(row, value);
+    }
+
+    protected void setObject(final int row, final Object value) {
+      if (this.objects == null) {
+        synchronized (this) {
+          if (this.objects == null) {
+            this.objects = new ConcurrentHashMap<>();
+          }
+        }
+      }
+      this.objects.put(row, value);
+    }
+
+    public abstract void setValue(int row, Object value);
+  }
+
+  private static class DecimalColumn extends Column {
+    private long[][] blocks = new long[0][];
+
+    private final int scale;
+
+    private byte[][] states = new byte[0][];
+
+    public DecimalColumn(final int scale) {
+      this.scale = scale;
+    }
+
+    @Override
+    protected void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new long[BLOCK_SIZE];
+      this.states = grow(this.states, blockIndex);
+      this.states[blockIndex] = new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public int getDecimalScale() {
+      return this.scale;
+    }
+
+    @Override
+    public long getUnscaledDecimal(final int row) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      if (this.states[blockIndex][offset] == VALUE) {
+        return this.blocks[blockIndex][offset];
+      } else {
+        return super.getUnscaledDecimal(row);
+      }
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final byte state = this.states[blockIndex][offset];
+      if (state == NULL) {
+        return null;
+      } else if (state == OBJECT) {
+        return getObject(row);
+      } else {
+        return BigDecimal.valueOf(this.blocks[blockIndex][offset], this.scale);
+      }
+    }
+
+    @Override
+    public boolean isUnscaledDecimal(final int row) {
+      return this.states[row >> BLOCK_SHIFT][row & BLOCK_MASK] == VALUE;
+    }
+
+    @Override
+    public void setDecimal(final int row, final long unscaledValue,
+      final int scale) {
+      if (scale == this.scale) {
+        final int blockIndex = row >> BLOCK_SHIFT;
+        final int offset = row & BLOCK_MASK;
+        final byte[] states = this.states[blockIndex];
+        removeObject(states[offset], row);
+        this.blocks[blockIndex][offset] = unscaledValue;
+        states[offset] = VALUE;
+      } else {
+        super.setDecimal(row, unscaledValue, scale);
+      }
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value instanceof BigDecimal) {
+        final BigDecimal decimal = (BigDecimal)value;
+        if (decimal.scale() == this.scale && decimal.precision() <= 18) {
+          setDecimal(row, decimal.unscaledValue().longValue(), this.scale);
+          return;
+        }
+      }
+      final byte[] states = this.states[row >> BLOCK_SHIFT];
+      final int offset = row & BLOCK_MASK;
+      removeObject(states[offset], row);
+      if (value == null) {
+        states[offset] = NULL;
+      } else {
+        setObject(row, value);
+        states[offset] = OBJECT;
+      }
+    }
+  }
+
+  private static class DoubleColumn extends Column {
+    private double[][] blocks = new double[0][];
+
+    private final boolean floatValue;
+
+    private byte[][] states = new byte[0][];
+
+    public DoubleColumn(final boolean floatValue) {
+      this.floatValue = floatValue;
+    }
+
+    @Override
+    protected void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new double[BLOCK_SIZE];
+      this.states = grow(this.states, blockIndex);
+      this.states[blockIndex] = new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final byte state = this.states[blockIndex][offset];
+      if (state == NULL) {
+        return null;
+      } else if (state == OBJECT) {
+        return getObject(row);
+      } else {
+        final double value = this.blocks[blockIndex][offset];
+        if (this.floatValue) {
+          return (float)value;
+        } else {
+          return value;
+        }
+      }
+    }
+
+    @Override
+    public void setDecimal(final int row, final long unscaledValue,
+      final int scale) {
+      if (scale == 0) {
+        setDouble(row, unscaledValue);
+      } else if (scale > 0 && scale < DOUBLE_POWERS_OF_10.length
+          && Math.abs(unscaledValue) < MAX_EXACT_DOUBLE) {
+        // Both values are exact doubles so the division is correctly rounded
+        setDouble(row, unscaledValue / DOUBLE_POWERS_OF_10[scale]);
+      } else {
+        setDouble(row, BigDecimal.valueOf(unscaledValue, scale).doubleValue());
+      }
+    }
+
+    @Override
+    public void setDouble(final int row, final double value) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final byte[] states = this.states[blockIndex];
+      removeObject(states[offset], row);
+      if (this.floatValue) {
+        this.blocks[blockIndex][offset] = (float)value;
+      } else {
+        this.blocks[blockIndex][offset] = value;
+      }
+      states[offset] = VALUE;
+    }
+
+    @Override
+    public void setInt(final int row, final int value) {
+      setDouble(row, value);
+    }
+
+    @Override
+    public void setLong(final int row, final long value) {
+      setDouble(row, value);
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      if (value instanceof Number) {
+        final Number number = (Number)value;
+        setDouble(row, number.doubleValue());
+      } else {
+        final byte[] states = this.states[row >> BLOCK_SHIFT];
+        final int offset = row & BLOCK_MASK;
+        removeObject(states[offset], row);
+        if (value == null) {
+          states[offset] = NULL;
+        } else {
+          setObject(row, value);
+          states[offset] = OBJECT;
+        }
+      }
+    }
+  }
+
+  private static class IntColumn extends Column {
+    private int[][] blocks = new int[0][];
+
+    private final Class<?> javaClass;
+
+    private final long maxValue;
+
+    private final long minValue;
+
+    private byte[][] states = new byte[0][];
+
+    public IntColumn(final Class<?> javaClass) {
+      this.javaClass = javaClass;
+      if (javaClass == Byte.class) {
+        this.minValue = Byte.MIN_VALUE;
+        this.maxValue = Byte.MAX_VALUE;
+      } else if (javaClass == Short.class) {
+        this.minValue = Short.MIN_VALUE;
+        this.maxValue = Short.MAX_VALUE;
+      } else {
+        this.minValue = Integer.MIN_VALUE;
+        this.maxValue = Integer.MAX_VALUE;
+      }
+    }
+
+    @Override
+    protected void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new int[BLOCK_SIZE];
+      this.states = grow(this.states, blockIndex);
+      this.states[blockIndex] = new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final byte state = this.states[blockIndex][offset];
+      if (state == NULL) {
+        return null;
+      } else if (state == OBJECT) {
+        return getObject(row);
+      } else {
+        final int value = this.blocks[blockIndex][offset];
+        if (this.javaClass == Byte.class) {
+          return (byte)value;
+        } else if (this.javaClass == Short.class) {
+          return (short)value;
+        } else {
+          return value;
+        }
+      }
+    }
+
+    @Override
+    public void setDecimal(final int row, final long unscaledValue,
+      final int scale) {
+      if (scale == 0) {
+        setLong(row, unscaledValue);
+      } else {
+        super.setDecimal(row, unscaledValue, scale);
+      }
+    }
+
+    @Override
+    public void setInt(final int row, final int value) {
+      if (value < this.minValue || value > this.maxValue) {
+        super.setInt(row, value);
+      } else {
+        final int blockIndex = row >> BLOCK_SHIFT;
+        final int offset = row & BLOCK_MASK;
+        final byte[] states = this.states[blockIndex];
+        removeObject(states[offset], row);
+        this.blocks[blockIndex][offset] = value;
+        states[offset] = VALUE;
+      }
+    }
+
+    @Override
+    public void setLong(final int row, final long value) {
+      if (value < this.minValue || value > this.maxValue) {
+        super.setLong(row, value);
+      } else {
+        setInt(row, (int)value);
+      }
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      final Long longValue = toLong(value);
+      if (longValue != null && longValue >= this.minValue
+          && longValue <= this.maxValue) {
+        setInt(row, longValue.intValue());
+      } else {
+        final byte[] states = this.states[row >> BLOCK_SHIFT];
+        final int offset = row & BLOCK_MASK;
+        removeObject(states[offset], row);
+        if (value == null) {
+          states[offset] = NULL;
+        } else {
+          setObject(row, value);
+          states[offset] = OBJECT;
+        }
+      }
+    }
+  }
+
+  private static class LongColumn extends Column {
+    private long[][] blocks = new long[0][];
+
+    private byte[][] states = new byte[0][];
+
+    @Override
+    protected void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new long[BLOCK_SIZE];
+      this.states = grow(this.states, blockIndex);
+      this.states[blockIndex] = new byte[BLOCK_SIZE];
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final byte state = this.states[blockIndex][offset];
+      if (state == NULL) {
+        return null;
+      } else if (state == OBJECT) {
+        return getObject(row);
+      } else {
+        return this.blocks[blockIndex][offset];
+      }
+    }
+
+    @Override
+    public void setDecimal(final int row, final long unscaledValue,
+      final int scale) {
+      if (scale == 0) {
+        setLong(row, unscaledValue);
+      } else {
+        super.setDecimal(row, unscaledValue, scale);
+      }
+    }
+
+    @Override
+    public void setInt(final int row, final int value) {
+      setLong(row, value);
+    }
+
+    @Override
+    public void setLong(final int row, final long value) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final byte[] states = this.states[blockIndex];
+      removeObject(states[offset], row);
+      this.blocks[blockIndex][offset] = value;
+      states[offset] = VALUE;
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      final Long longValue = toLong(value);
+      if (longValue != null) {
+        setLong(row, longValue);
+      } else {
+        final byte[] states = this.states[row >> BLOCK_SHIFT];
+        final int offset = row & BLOCK_MASK;
+        removeObject(states[offset], row);
+        if (value == null) {
+          states[offset] = NULL;
+        } else {
+          setObject(row, value);
+          states[offset] = OBJECT;
+        }
+      }
+    }
+  }
+
+  private static class ObjectColumn extends Column {
+    private Object[][] blocks = new Object[0][];
+
+    @Override
+    protected void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new Object[BLOCK_SIZE];
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      return this.blocks[row >> BLOCK_SHIFT][row & BLOCK_MASK];
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      this.blocks[row >> BLOCK_SHIFT][row & BLOCK_MASK] = value;
+    }
+  }
+
+  /**
+   * Strings are stored as a code into a dictionary of the distinct values. Once
+   * the dictionary is full, or for values that aren't strings, the value is
+   * stored in an object block.
+   */
+  private static class StringColumn extends Column {
+    private int[][] blocks = new int[0][];
+
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    private Object[][] objectBlocks = new Object[0][];
+
+    private volatile String[] values = new String[16];
+
+    @Override
+    protected synchronized void addBlock(final int blockIndex) {
+      this.blocks = grow(this.blocks, blockIndex);
+      this.blocks[blockIndex] = new int[BLOCK_SIZE];
+      this.objectBlocks = grow(this.objectBlocks, blockIndex);
+    }
+
+    private synchronized int getCode(final String value) {
+      final Integer code = this.codes.get(value);
+      if (code == null) {
+        final int newCode = this.codes.size() + 1;
+        if (newCode > MAX_DICTIONARY_SIZE) {
+          return OBJECT_CODE;
+        } else {
+          String[] values = this.values;
+          if (newCode >= values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+          }
+          values[newCode] = value;
+          this.values = values;
+          this.codes.put(value, newCode);
+          return newCode;
+        }
+      } else {
+        return code;
+      }
+    }
+
+    private synchronized Object[] getObjectBlock(final int blockIndex) {
+      Object[] block = this.objectBlocks[blockIndex];
+      if (block == null) {
+        block = new Object[BLOCK_SIZE];
+        this.objectBlocks[blockIndex] = block;
+      }
+      return block;
+    }
+
+    @Override
+    public Object getValue(final int row) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final int code = this.blocks[blockIndex][offset];
+      if (code == 0) {
+        return null;
+      } else if (code == OBJECT_CODE) {
+        return getObjectBlock(blockIndex)[offset];
+      } else {
+        return this.values[code];
+      }
+    }
+
+    @Override
+    public void setValue(final int row, final Object value) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      final int offset = row & BLOCK_MASK;
+      final int[] block = this.blocks[blockIndex];
+      if (block[offset] == OBJECT_CODE) {
+        getObjectBlock(blockIndex)[offset] = null;
+      }
+      if (value == null) {
+        block[offset] = 0;
+      } else {
+        int code = OBJECT_CODE;
+        if (value instanceof String) {
+          code = getCode((String)value);
+        }
+        if (code == OBJECT_CODE) {
+          getObjectBlock(blockIndex)[offset] = value;
+        }
+        block[offset] = code;
+      }
+    }
+  }
+
+  private static final int BLOCK_SHIFT = 10;
+
+  private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  private static final double[] DOUBLE_POWERS_OF_10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+    1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private static final byte FALSE = 1;
+
+  private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+  private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+  private static final byte NULL = 0;
+
+  private static final byte OBJECT = 3;
+
+  private static final int OBJECT_CODE = -1;
+
+  private static final byte TRUE = 2;
+
+  private static final byte VALUE = 1;
+
+  private static Column createColumn(final RecordDefinition recordDefinition,
+    final int index) {
+    final DataType dataType = recordDefinition.getFieldType(index);
+    final Class<?> javaClass;
+    if (dataType == null) {
+      javaClass = Object.class;
+    } else {
+      javaClass = dataType.getJavaClass();
+    }
+    if (javaClass == Integer.class || javaClass == Short.class
+        || javaClass == Byte.class) {
+      return new IntColumn(javaClass);
+    } else if (javaClass == Long.class) {
+      return new LongColumn();
+    } else if (javaClass == Double.class) {
+      return new DoubleColumn(false);
+    } else if (javaClass == Float.class) {
+      return new DoubleColumn(true);
+    } else if (javaClass == Boolean.class) {
+      return new BooleanColumn();
+    } else if (javaClass == String.class) {
+      return new StringColumn();
+    } else if (javaClass == BigDecimal.class) {
+      final int length = recordDefinition.getFieldLength(index);
+      if (length > 0 && length <= 18) {
+        return new DecimalColumn(recordDefinition.getFieldScale(index));
+      }
+    }
+    return new ObjectColumn();
+  }
+
+  private static <T> T[] grow(final T[] blocks, final int blockIndex) {
+    if (blockIndex < blocks.length) {
+      return blocks;
+    } else {
+      return Arrays.copyOf(blocks, Math.max(blockIndex + 1, blocks.length * 2));
+    }
+  }
+
+  private static Long toLong(final Object value) {
+    if (value instanceof Integer || value instanceof Long
+        || value instanceof Short || value instanceof Byte) {
+      return ((Number)value).longValue();
+    } else if (value instanceof BigInteger) {
+      final BigInteger integer = (BigInteger)value;
+      if (integer.bitLength() < 64) {
+        return integer.longValue();
+      }
+    } else if (value instanceof BigDecimal) {
+      final BigDecimal decimal = (BigDecimal)value;
+      try {
+        return decimal.longValueExact();
+      } catch (final ArithmeticException e) {
+      }
+    }
+    return null;
+  }
+
+  private final Column[] columns;
+
+  private int rowCount;
+
+  public RecordColumns(final RecordDefinition recordDefinition) {
+    final int fieldCount = recordDefinition.getFieldCount();
+    this.columns = new Column[fieldCount];
+    for (int i = 0; i < fieldCount; i++) {
+      this.columns[i] = createColumn(recordDefinition, i);
+    }
+  }
+
+  public synchronized int addRow() {
+    final int row = this.rowCount;
+    if ((row & BLOCK_MASK) == 0) {
+      final int blockIndex = row >> BLOCK_SHIFT;
+      for (final Column column : this.columns) {
+        column.addBlock(blockIndex);
+      }
+    }
+    this.rowCount++;
+    return row;
+  }
+
+  /**
+   * Get the scale of the unscaled decimal values stored in the field's column.
+   *
+   * @param index The index of the field.
+   * @return The scale or -1 if the column doesn't store unscaled decimals.
+   */
+  public int getDecimalScale(final int index) {
+    return this.columns[index].getDecimalScale();
+  }
+
+  public synchronized int getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Get the unscaled value of a decimal without creating a {@link BigDecimal}.
+   * The value is the decimal multiplied by 10^{@link #getDecimalScale(int)}.
+   *
+   * @param row The row.
+   * @param index The index of the field.
+   * @return The unscaled value.
+   * @throws IllegalStateException If {@link #isUnscaledDecimal(int, int)} is
+   * false for the value.
+   */
+  public long getUnscaledDecimal(final int row, final int index) {
+    return this.columns[index].getUnscaledDecimal(row);
+  }
+
+  public Object getValue(final int row, final int index) {
+    return this.columns[index].getValue(row);
+  }
+
+  /**
+   * Check if the value is a decimal stored as an unscaled long with the scale
+   * of the field. Null values and decimals with a different scale or
+   * precision are stored as objects.
+   *
+   * @param row The row.
+   * @param index The index of the field.
+   * @return True if {@link #getUnscaledDecimal(int, int)} can be used.
+   */
+  public boolean isUnscaledDecimal(final int row, final int index) {
+    return this.columns[index].isUnscaledDecimal(row);
+  }
+
+  public void setDecimal(final int row, final int index,
+    final long unscaledValue, final int scale) {
+    this.columns[index].setDecimal(row, unscaledValue, scale);
+  }
+
+  public void setDouble(final int row, final int index, final double value) {
+    this.columns[index].setDouble(row, value);
+  }
+
+  public void setInt(final int row, final int index, final int value) {
+    this.columns[index].setInt(row, value);
+  }
+
+  public void setLong(final int row, final int index, final long value) {
+    this.columns[index].setLong(row, value);
+  }
+
+  public void setValue(final int row, final int index, final Object value) {
+    this.columns[index].setValue(row, value);
+  }
+}
@@ -0,0 +1,501 @@
+package com.revolsys.gis.algorithm.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.revolsys.collection.Visitor;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.visitor.CreateListVisitor;
+
+/**
+ * <p>A spatial index of objects by id that stores the sorted ids of the
+ * objects whose bounding box intersects each cell of a regular grid. The cells
+ * are stored in a map from the cell key to the ids so a disk based map (e.g.
+ * a {@link com.revolsys.collection.bplus.BPlusTreeMap}) can be used for large
+ * data sets instead of holding the index in memory. The ids must not be
+ * negative.</p>
+ *
+ * <p>A cell with more than {@link #MAX_CELL_IDS} ids is split into 4 child
+ * cells, up to {@link #MAX_SPLIT_DEPTH} times, so adding an object to a dense
+ * area doesn't copy an ever growing list of ids. Objects that intersect more
+ * than one child stay in the split cell.</p>
+ *
+ * <p>Objects whose bounding box covers more than {@link #MAX_OBJECT_CELLS}
+ * cells are stored in a single list that is checked for all queries.</p>
+ */
+public abstract class AbstractIdObjectGridIndex<T> implements IdObjectIndex<T> {
+
+  private static final long LARGE_OBJECTS_KEY = Long.MIN_VALUE;
+
+  public static final int MAX_CELL_IDS = 256;
+
+  public static final int MAX_OBJECT_CELLS = 64;
+
+  public static final int MAX_SPLIT_DEPTH = 16;
+
+  /**
+   * The first value of a split cell, followed by the index of the first child
+   * cell and the ids of the objects that intersect more than one child.
+   */
+  private static final int SPLIT = -1;
+
+  private static final int SPLIT_HEADER_SIZE = 2;
+
+  /**
+   * Add the id to the sorted ids from the start index.
+   *
+   * @return The new ids or the ids if they already contained the id.
+   */
+  private static int[] addId(final int[] ids, final int startIndex,
+    final int id) {
+    if (ids == null) {
+      return new int[] {
+        id
+      };
+    } else {
+      final int index = Arrays.binarySearch(ids, startIndex, ids.length, id);
+      if (index < 0) {
+        final int insertIndex = -index - 1;
+        final int[] newIds = new int[ids.length + 1];
+        System.arraycopy(ids, 0, newIds, 0, insertIndex);
+        newIds[insertIndex] = id;
+        System.arraycopy(ids, insertIndex, newIds, insertIndex + 1, ids.length
+          - insertIndex);
+        return newIds;
+      } else {
+        return ids;
+      }
+    }
+  }
+
+  /**
+   * Get a cell size so that each cell contains about 16 objects if the objects
+   * are evenly distributed, but is at least twice the average size of the
+   * objects.
+   *
+   * @param boundingBox The bounding box of all the objects.
+   * @param objectCount The number of objects.
+   * @param averageSize The average of the width or height of the objects.
+   * @return The cell size.
+   */
+  protected static double getCellSize(final BoundingBox boundingBox,
+    final int objectCount, final double averageSize) {
+    double cellSize = 2 * averageSize;
+    if (objectCount > 0 && !boundingBox.isEmpty()) {
+      final double area = boundingBox.getWidth() * boundingBox.getHeight();
+      cellSize = Math.max(cellSize, Math.sqrt(area * 16 / objectCount));
+    }
+    if (cellSize > 0 && !Double.isInfinite(cellSize)) {
+      return cellSize;
+    } else {
+      return 1;
+    }
+  }
+
+  /**
+   * Get the number of the child of a split cell that contains the envelope,
+   * 0 to 3 from the bottom left, or -1 if the envelope intersects more than
+   * one child.
+   */
+  private static int getChild(final double minX, final double minY,
+    final double size, final BoundingBox envelope) {
+    final double middleX = minX + size / 2;
+    final double middleY = minY + size / 2;
+    int child;
+    if (envelope.getMaxX() < middleX) {
+      child = 0;
+    } else if (envelope.getMinX() >= middleX) {
+      child = 1;
+    } else {
+      return -1;
+    }
+    if (envelope.getMaxY() < middleY) {
+      return child;
+    } else if (envelope.getMinY() >= middleY) {
+      return child + 2;
+    } else {
+      return -1;
+    }
+  }
+
+  private static long getChildKey(final int[] ids, final int child) {
+    return LARGE_OBJECTS_KEY + ids[1] + child;
+  }
+
+  private static long getKey(final int cellX, final int cellY) {
+    return (long)cellX << 32 | cellY & 0xFFFFFFFFL;
+  }
+
+  private static boolean intersects(final BoundingBox envelope,
+    final double minX, final double minY, final double size) {
+    return envelope.getMaxX() >= minX && envelope.getMinX() <= minX + size
+      && envelope.getMaxY() >= minY && envelope.getMinY() <= minY + size;
+  }
+
+  private static boolean isSplit(final int[] ids) {
+    return ids != null && ids.length >= SPLIT_HEADER_SIZE && ids[0] == SPLIT;
+  }
+
+  /**
+   * Remove the id from the sorted ids from the start index.
+   *
+   * @return The new ids or the ids if they didn't contain the id.
+   */
+  private static int[] removeId(final int[] ids, final int startIndex,
+    final int id) {
+    final int index = Arrays.binarySearch(ids, startIndex, ids.length, id);
+    if (index < 0) {
+      return ids;
+    } else {
+      final int[] newIds = new int[ids.length - 1];
+      System.arraycopy(ids, 0, newIds, 0, index);
+      System.arraycopy(ids, index + 1, newIds, index, newIds.length - index);
+      return newIds;
+    }
+  }
+
+  private final double cellSize;
+
+  private final Map<Long, int[]> cells;
+
+  /**
+   * The index of the next child cell. The keys of the child cells are offset
+   * from {@link #LARGE_OBJECTS_KEY} so they can't be the key of a grid cell.
+   */
+  private int nextChildIndex = 1;
+
+  public AbstractIdObjectGridIndex(final double cellSize,
+    final Map<Long, int[]> cells) {
+    this.cellSize = cellSize;
+    this.cells = cells;
+  }
+
+  public void add(final Collection<Integer> ids) {
+    for (final Integer id : ids) {
+      final T object = getObject(id);
+      add(object);
+    }
+  }
+
+  @Override
+  public T add(final T object) {
+    final BoundingBox envelope = getEnvelope(object);
+    if (!envelope.isEmpty()) {
+      final int id = getId(object);
+      for (final long key : getObjectKeys(envelope)) {
+        if (key == LARGE_OBJECTS_KEY) {
+          final int[] ids = this.cells.get(key);
+          final int[] newIds = addId(ids, 0, id);
+          if (newIds != ids) {
+            this.cells.put(key, newIds);
+          }
+        } else {
+          addId(key, getCellMin((int)(key >> 32)), getCellMin((int)key),
+            this.cellSize, 0, envelope, id);
+        }
+      }
+    }
+    return object;
+  }
+
+  /**
+   * Add the id to the cell, or to the child of a split cell that contains the
+   * envelope. If the cell has more than {@link #MAX_CELL_IDS} ids it is split.
+   */
+  private void addId(final long key, final double minX, final double minY,
+    final double size, final int depth, final BoundingBox envelope,
+    final int id) {
+    final int[] ids = this.cells.get(key);
+    if (isSplit(ids)) {
+      final int child = getChild(minX, minY, size, envelope);
+      if (child == -1) {
+        final int[] newIds = addId(ids, SPLIT_HEADER_SIZE, id);
+        if (newIds != ids) {
+          this.cells.put(key, newIds);
+        }
+      } else {
+        final double childSize = size / 2;
+        final double childMinX = minX + (child & 1) * childSize;
+        final double childMinY = minY + (child >> 1) * childSize;
+        addId(getChildKey(ids, child), childMinX, childMinY, childSize,
+          depth + 1, envelope, id);
+      }
+    } else {
+      final int[] newIds = addId(ids, 0, id);
+      if (newIds.length > MAX_CELL_IDS && depth < MAX_SPLIT_DEPTH) {
+        split(key, minX, minY, size, depth, newIds, envelope, id);
+      } else if (newIds != ids) {
+        this.cells.put(key, newIds);
+      }
+    }
+  }
+
+  /**
+   * Add the ids of the cell, or of a split cell and its children that
+   * intersect the envelope, to the list of ids.
+   */
+  private void addIds(final List<int[]> idLists, final int[] ids,
+    final double minX, final double minY, final double size,
+    final BoundingBox envelope) {
+    if (isSplit(ids)) {
+      if (ids.length > SPLIT_HEADER_SIZE) {
+        idLists.add(Arrays.copyOfRange(ids, SPLIT_HEADER_SIZE, ids.length));
+      }
+      final double childSize = size / 2;
+      for (int child = 0; child < 4; child++) {
+        final double childMinX = minX + (child & 1) * childSize;
+        final double childMinY = minY + (child >> 1) * childSize;
+        if (intersects(envelope, childMinX, childMinY, childSize)) {
+          final int[] childIds = this.cells.get(getChildKey(ids, child));
+          if (childIds != null) {
+            addIds(idLists, childIds, childMinX, childMinY, childSize,
+              envelope);
+          }
+        }
+      }
+    } else {
+      idLists.add(ids);
+    }
+  }
+
+  private int getCell(final double value) {
+    final double cell = Math.floor(value / this.cellSize);
+    return (int)Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE,
+      cell));
+  }
+
+  private double getCellMin(final int cell) {
+    return cell * this.cellSize;
+  }
+
+  public double getCellSize() {
+    return this.cellSize;
+  }
+
+  /**
+   * Get the sorted ids of the objects in the cells that intersect the
+   * envelope.
+   */
+  private int[] getIds(final BoundingBox envelope) {
+    final int minX = getCell(envelope.getMinX());
+    final int minY = getCell(envelope.getMinY());
+    final int maxX = getCell(envelope.getMaxX());
+    final int maxY = getCell(envelope.getMaxY());
+    final long cellCount = ((long)maxX - minX + 1) * ((long)maxY - minY + 1);
+    final List<int[]> idLists = new ArrayList<int[]>();
+    if (cellCount > this.cells.size()) {
+      for (final Entry<Long, int[]> entry : this.cells.entrySet()) {
+        final long key = entry.getKey();
+        final int cellX = (int)(key >> 32);
+        final int cellY = (int)key;
+        if (key == LARGE_OBJECTS_KEY) {
+          idLists.add(entry.getValue());
+        } else if (cellX >= minX && cellX <= maxX && cellY >= minY
+          && cellY <= maxY) {
+          addIds(idLists, entry.getValue(), getCellMin(cellX),
+            getCellMin(cellY), this.cellSize, envelope);
+        }
+      }
+    } else {
+      for (int cellX = minX; cellX <= maxX; cellX++) {
+        for (int cellY = minY; cellY <= maxY; cellY++) {
+          final int[] cellIds = this.cells.get(getKey(cellX, cellY));
+          if (cellIds != null) {
+            addIds(idLists, cellIds, getCellMin(cellX), getCellMin(cellY),
+              this.cellSize, envelope);
+          }
+        }
+      }
+      final int[] cellIds = this.cells.get(LARGE_OBJECTS_KEY);
+      if (cellIds != null) {
+        idLists.add(cellIds);
+      }
+    }
+    return getUniqueIds(idLists);
+  }
+
+  private long[] getObjectKeys(final BoundingBox envelope) {
+    final int minX = getCell(envelope.getMinX());
+    final int minY = getCell(envelope.getMinY());
+    final int maxX = getCell(envelope.getMaxX());
+    final int maxY = getCell(envelope.getMaxY());
+    final long cellCount = ((long)maxX - minX + 1) * ((long)maxY - minY + 1);
+    if (cellCount > MAX_OBJECT_CELLS) {
+      return new long[] {
+        LARGE_OBJECTS_KEY
+      };
+    } else {
+      final long[] keys = new long[(int)cellCount];
+      int i = 0;
+      for (int cellX = minX; cellX <= maxX; cellX++) {
+        for (int cellY = minY; cellY <= maxY; cellY++) {
+          keys[i++] = getKey(cellX, cellY);
+        }
+      }
+      return keys;
+    }
+  }
+
+  /**
+   * Get the sorted unique ids from the lists of ids.
+   */
+  private int[] getUniqueIds(final List<int[]> idLists) {
+    int idCount = 0;
+    for (final int[] cellIds : idLists) {
+      idCount += cellIds.length;
+    }
+    final int[] ids = new int[idCount];
+    int offset = 0;
+    for (final int[] cellIds : idLists) {
+      System.arraycopy(cellIds, 0, ids, offset, cellIds.length);
+      offset += cellIds.length;
+    }
+    Arrays.sort(ids);
+    int uniqueCount = 0;
+    for (int i = 0; i < idCount; i++) {
+      if (uniqueCount == 0 || ids[i] != ids[uniqueCount - 1]) {
+        ids[uniqueCount++] = ids[i];
+      }
+    }
+    return Arrays.copyOf(ids, uniqueCount);
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    return queryAll().iterator();
+  }
+
+  @Override
+  public List<T> query(final BoundingBox envelope) {
+    final CreateListVisitor<T> visitor = new CreateListVisitor<T>();
+    visit(envelope, visitor);
+    return visitor.getList();
+  }
+
+  public List<T> queryAll() {
+    final List<int[]> idLists = new ArrayList<int[]>();
+    for (final int[] cellIds : this.cells.values()) {
+      if (isSplit(cellIds)) {
+        idLists.add(Arrays.copyOfRange(cellIds, SPLIT_HEADER_SIZE,
+          cellIds.length));
+      } else {
+        idLists.add(cellIds);
+      }
+    }
+    final List<Integer> uniqueIds = new ArrayList<Integer>();
+    for (final int id : getUniqueIds(idLists)) {
+      uniqueIds.add(id);
+    }
+    return getObjects(uniqueIds);
+  }
+
+  @Override
+  public boolean remove(final T object) {
+    boolean removed = false;
+    final BoundingBox envelope = getEnvelope(object);
+    if (!envelope.isEmpty()) {
+      final int id = getId(object);
+      for (final long key : getObjectKeys(envelope)) {
+        removed |= removeId(key, getCellMin((int)(key >> 32)),
+          getCellMin((int)key), this.cellSize, envelope, id);
+      }
+    }
+    return removed;
+  }
+
+  public void removeAll(final Collection<T> objects) {
+    for (final T object : objects) {
+      remove(object);
+    }
+  }
+
+  /**
+   * Remove the id from the cell, or from the child of a split cell that
+   * contains the envelope.
+   */
+  private boolean removeId(final long key, final double minX,
+    final double minY, final double size, final BoundingBox envelope,
+    final int id) {
+    final int[] ids = this.cells.get(key);
+    if (isSplit(ids)) {
+      final int child = getChild(minX, minY, size, envelope);
+      if (child == -1) {
+        final int[] newIds = removeId(ids, SPLIT_HEADER_SIZE, id);
+        if (newIds == ids) {
+          return false;
+        } else {
+          this.cells.put(key, newIds);
+          return true;
+        }
+      } else {
+        final double childSize = size / 2;
+        final double childMinX = minX + (child & 1) * childSize;
+        final double childMinY = minY + (child >> 1) * childSize;
+        return removeId(getChildKey(ids, child), childMinX, childMinY,
+          childSize, envelope, id);
+      }
+    } else if (ids != null) {
+      final int[] newIds = removeId(ids, 0, id);
+      if (newIds == ids) {
+        return false;
+      } else {
+        if (newIds.length == 0) {
+          this.cells.remove(key);
+        } else {
+          this.cells.put(key, newIds);
+        }
+        return true;
+      }
+    } else {
+      return false;
+    }
+  }
+
+  /**
+   * Split the cell into 4 child cells and add the ids of the cell to the child
+   * that contains each object's envelope, or to the split cell if it
+   * intersects more than one child.
+   *
+   * @param ids The ids of the cell including the id being added.
+   * @param envelope The envelope of the object being added.
+   * @param id The id of the object being added.
+   */
+  private void split(final long key, final double minX, final double minY,
+    final double size, final int depth, final int[] ids,
+    final BoundingBox envelope, final int id) {
+    final int childIndex = this.nextChildIndex;
+    this.nextChildIndex += 4;
+    this.cells.put(key, new int[] {
+      SPLIT, childIndex
+    });
+    for (final int cellId : ids) {
+      if (cellId == id) {
+        addId(key, minX, minY, size, depth, envelope, id);
+      } else {
+        final T object = getObject(cellId);
+        if (object != null) {
+          final BoundingBox cellEnvelope = getEnvelope(object);
+          if (!cellEnvelope.isEmpty()) {
+            addId(key, minX, minY, size, depth, cellEnvelope, cellId);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void visit(final BoundingBox envelope, final Visitor<T> visitor) {
+    if (envelope != null && !envelope.isEmpty()) {
+      final IdObjectIndexItemVisitor<T> itemVisitor = new IdObjectIndexItemVisitor<T>(
+        this, envelope, visitor);
+      for (final int id : getIds(envelope)) {
+        itemVisitor.visit(id);
+      }
+    }
+  }
+}
@@ -0,0 +1,556 @@
+package com.revolsys.gis.algorithm.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.revolsys.collection.Visitor;
+import com.revolsys.filter.Filter;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.visitor.DelegatingVisitor;
+
+/**
+ * <p>An R-Tree that is bulk loaded using the Sort-Tile-Recursive (STR)
+ * algorithm. The bounding boxes of the objects and the nodes are stored in
+ * arrays of doubles (minX, minY, maxX, maxY), with the nodes of each level of
+ * the tree stored after the nodes of the level below, so the tree is fully
+ * packed and a query doesn't allocate any node objects.</p>
+ *
+ * <p>The tree is built the first time it is queried after objects are added.
+ * Objects added after the tree was built are checked using a linear scan until
+ * there are enough of them for the tree to be rebuilt. Removed objects are
+ * marked as deleted and removed the next time the tree is built. This makes
+ * the tree best suited to indexes that are loaded once and then queried,
+ * for indexes that are frequently edited use an {@link RTree}.</p>
+ *
+ * <p>The tree is used for the triangles in a
+ * {@link com.revolsys.gis.tin.TriangulatedIrregularNetwork}. It isn't used by
+ * the {@link RecordQuadTree} or the layer spatial indexes, as the records in
+ * those indexes are added and removed as the layer is edited.</p>
+ *
+ * <p>Queries can be run concurrently from multiple threads. A query only
+ * synchronizes if objects were added or removed since the last query, to check
+ * if the tree needs to be rebuilt, so a thread can't query the tree while
+ * another thread is building it. The put and remove methods must not be
+ * called while the tree is being queried.</p>
+ */
+public class PackedRTree<T> extends AbstractSpatialIndex<T> {
+
+  private static class QueueEntry implements Comparable<QueueEntry> {
+    private final double distance;
+
+    private final int index;
+
+    private final int level;
+
+    public QueueEntry(final double distance, final int index, final int level) {
+      this.distance = distance;
+      this.index = index;
+      this.level = level;
+    }
+
+    @Override
+    public int compareTo(final QueueEntry entry) {
+      return Double.compare(this.distance, entry.distance);
+    }
+  }
+
+  public static final int DEFAULT_NODE_CAPACITY = 16;
+
+  /**
+   * The minimum number of objects added after the tree was built before the
+   * tree is rebuilt.
+   */
+  private static final int MIN_REBUILD_COUNT = 256;
+
+  private static double distance(final double[] bounds, final int index,
+    final double x, final double y) {
+    final int offset = index * 4;
+    double dx = 0;
+    if (x < bounds[offset]) {
+      dx = bounds[offset] - x;
+    } else if (x > bounds[offset + 2]) {
+      dx = x - bounds[offset + 2];
+    }
+    double dy = 0;
+    if (y < bounds[offset + 1]) {
+      dy = bounds[offset + 1] - y;
+    } else if (y > bounds[offset + 3]) {
+      dy = y - bounds[offset + 3];
+    }
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  private static boolean intersects(final double[] bounds, final int index,
+    final double minX, final double minY, final double maxX, final double maxY) {
+    final int offset = index * 4;
+    return !(bounds[offset] > maxX || bounds[offset + 2] < minX
+      || bounds[offset + 1] > maxY || bounds[offset + 3] < minY);
+  }
+
+  /**
+   * Sort the indexes in the range by the key of each index.
+   */
+  private static void sort(final double[] keys, final int[] indexes,
+    int fromIndex, int toIndex) {
+    while (toIndex - fromIndex > 16) {
+      final double pivot = keys[indexes[fromIndex + toIndex >>> 1]];
+      int i = fromIndex;
+      int j = toIndex - 1;
+      while (i <= j) {
+        while (keys[indexes[i]] < pivot) {
+          i++;
+        }
+        while (keys[indexes[j]] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          final int index = indexes[i];
+          indexes[i] = indexes[j];
+          indexes[j] = index;
+          i++;
+          j--;
+        }
+      }
+      if (j + 1 - fromIndex < toIndex - i) {
+        sort(keys, indexes, fromIndex, j + 1);
+        fromIndex = i;
+      } else {
+        sort(keys, indexes, i, toIndex);
+        toIndex = j + 1;
+      }
+    }
+    for (int i = fromIndex + 1; i < toIndex; i++) {
+      final int index = indexes[i];
+      final double key = keys[index];
+      int j = i - 1;
+      while (j >= fromIndex && keys[indexes[j]] > key) {
+        indexes[j + 1] = indexes[j];
+        j--;
+      }
+      indexes[j + 1] = index;
+    }
+  }
+
+  /**
+   * Sort the indexes of the bounding boxes using the Sort-Tile-Recursive (STR)
+   * algorithm so that each run of nodeCapacity indexes is a tile of bounding
+   * boxes that are near each other. The indexes are sorted by the x coordinate
+   * of the centre of their bounding box and split into vertical slices, then
+   * the indexes in each slice are sorted by the y coordinate of the centre.
+   *
+   * @param bounds The bounding boxes (minX, minY, maxX, maxY) of each index.
+   * @param indexes The indexes of the bounding boxes to sort.
+   * @param nodeCapacity The number of bounding boxes in each leaf node.
+   */
+  public static void sortTileRecursive(final double[] bounds,
+    final int[] indexes, final int nodeCapacity) {
+    final int size = indexes.length;
+    final int boundsCount = bounds.length / 4;
+    final double[] centreXs = new double[boundsCount];
+    final double[] centreYs = new double[boundsCount];
+    for (final int index : indexes) {
+      final int offset = index * 4;
+      centreXs[index] = (bounds[offset] + bounds[offset + 2]) / 2;
+      centreYs[index] = (bounds[offset + 1] + bounds[offset + 3]) / 2;
+    }
+    sort(centreXs, indexes, 0, size);
+    final int leafCount = (size + nodeCapacity - 1) / nodeCapacity;
+    final int sliceCount = Math.max(1, (int)Math.ceil(Math.sqrt(leafCount)));
+    final int sliceSize = Math.max(1,
+      (int)Math.ceil((double)leafCount / sliceCount))
+      * nodeCapacity;
+    for (int sliceStart = 0; sliceStart < size; sliceStart += sliceSize) {
+      final int sliceEnd = Math.min(sliceStart + sliceSize, size);
+      sort(centreYs, indexes, sliceStart, sliceEnd);
+    }
+  }
+
+  private final int nodeCapacity;
+
+  private double[] bounds = new double[64];
+
+  private double[] nodeBounds = new double[0];
+
+  private Object[] objects = new Object[16];
+
+  /** The number of objects including deleted objects. */
+  private int objectCount;
+
+  /** The number of objects in the tree, the rest are checked using a scan. */
+  private int indexedCount;
+
+  private int deletedCount;
+
+  /**
+   * The index of the first node of each level, level 0 is the objects and the
+   * other levels are in the node bounds.
+   */
+  private int[] levelStarts = new int[0];
+
+  private int[] levelEnds = new int[0];
+
+  /**
+   * Set when objects are added or removed so the next query checks if the tree
+   * needs to be rebuilt.
+   */
+  private volatile boolean modified;
+
+  public PackedRTree() {
+    this(DEFAULT_NODE_CAPACITY);
+  }
+
+  public PackedRTree(final int nodeCapacity) {
+    if (nodeCapacity < 2) {
+      throw new IllegalArgumentException("Node capacity must be >= 2 not "
+        + nodeCapacity);
+    }
+    this.nodeCapacity = nodeCapacity;
+  }
+
+  /**
+   * Build the tree from the objects that haven't been added to the tree and
+   * remove the deleted objects.
+   */
+  public synchronized void build() {
+    if (this.indexedCount < this.objectCount || this.deletedCount > 0) {
+      final int size = getSize();
+      final int[] indexes = new int[size];
+      int index = 0;
+      for (int i = 0; i < this.objectCount; i++) {
+        if (this.objects[i] != null) {
+          indexes[index++] = i;
+        }
+      }
+      sortTileRecursive(this.bounds, indexes, this.nodeCapacity);
+
+      final int nodeCapacity = this.nodeCapacity;
+      int nodeCount = 0;
+      int levelCount = 1;
+      for (int levelSize = size; levelSize > 1; levelCount++) {
+        levelSize = (levelSize + nodeCapacity - 1) / nodeCapacity;
+        nodeCount += levelSize;
+      }
+      final int[] levelStarts = new int[levelCount];
+      final int[] levelEnds = new int[levelCount];
+      final double[] bounds = new double[Math.max(size, 16) * 4];
+      final double[] nodeBounds = new double[nodeCount * 4];
+      final Object[] objects = new Object[Math.max(size, 16)];
+      for (int i = 0; i < size; i++) {
+        final int oldIndex = indexes[i];
+        objects[i] = this.objects[oldIndex];
+        System.arraycopy(this.bounds, oldIndex * 4, bounds, i * 4, 4);
+      }
+      levelEnds[0] = size;
+      int nodeIndex = 0;
+      for (int level = 1; level < levelCount; level++) {
+        final double[] childBounds = level == 1 ? bounds : nodeBounds;
+        final int childStart = levelStarts[level - 1];
+        final int childEnd = levelEnds[level - 1];
+        levelStarts[level] = nodeIndex;
+        for (int childIndex = childStart; childIndex < childEnd; childIndex += nodeCapacity) {
+          final int endIndex = Math.min(childIndex + nodeCapacity, childEnd);
+          double minX = Double.POSITIVE_INFINITY;
+          double minY = Double.POSITIVE_INFINITY;
+          double maxX = Double.NEGATIVE_INFINITY;
+          double maxY = Double.NEGATIVE_INFINITY;
+          for (int i = childIndex; i < endIndex; i++) {
+            final int offset = i * 4;
+            minX = Math.min(minX, childBounds[offset]);
+            minY = Math.min(minY, childBounds[offset + 1]);
+            maxX = Math.max(maxX, childBounds[offset + 2]);
+            maxY = Math.max(maxY, childBounds[offset + 3]);
+          }
+          final int offset = nodeIndex * 4;
+          nodeBounds[offset] = minX;
+          nodeBounds[offset + 1] = minY;
+          nodeBounds[offset + 2] = maxX;
+          nodeBounds[offset + 3] = maxY;
+          nodeIndex++;
+        }
+        levelEnds[level] = nodeIndex;
+      }
+      this.bounds = bounds;
+      this.nodeBounds = nodeBounds;
+      this.objects = objects;
+      this.levelStarts = levelStarts;
+      this.levelEnds = levelEnds;
+      this.objectCount = size;
+      this.indexedCount = size;
+      this.deletedCount = 0;
+    }
+    this.modified = false;
+  }
+
+  /**
+   * Find the objects whose bounding box is nearest to the point, nearest
+   * first.
+   *
+   * @param point The point.
+   * @param maxCount The maximum number of objects to return.
+   * @return The objects.
+   */
+  public List<T> findNearest(final Point point, final int maxCount) {
+    return findNearest(point.getX(), point.getY(), maxCount,
+      Double.POSITIVE_INFINITY);
+  }
+
+  /**
+   * Find the objects whose bounding box is nearest to the point and within the
+   * maximum distance, nearest first.
+   *
+   * @param x The x coordinate of the point.
+   * @param y The y coordinate of the point.
+   * @param maxCount The maximum number of objects to return.
+   * @param maxDistance The maximum distance from the point.
+   * @return The objects.
+   */
+  public List<T> findNearest(final double x, final double y,
+    final int maxCount, final double maxDistance) {
+    refresh();
+    final List<T> results = new ArrayList<T>();
+    if (maxCount > 0) {
+      final PriorityQueue<QueueEntry> queue = new PriorityQueue<QueueEntry>();
+      final int rootLevel = this.levelStarts.length - 1;
+      if (rootLevel >= 0 && this.indexedCount > 0) {
+        final int rootIndex = this.levelStarts[rootLevel];
+        queue.add(new QueueEntry(distance(getBounds(rootLevel), rootIndex, x,
+          y), rootIndex, rootLevel));
+      }
+      for (int i = this.indexedCount; i < this.objectCount; i++) {
+        if (this.objects[i] != null) {
+          queue.add(new QueueEntry(distance(this.bounds, i, x, y), i, 0));
+        }
+      }
+      while (!queue.isEmpty() && results.size() < maxCount) {
+        final QueueEntry entry = queue.poll();
+        if (entry.distance > maxDistance) {
+          break;
+        }
+        final int index = entry.index;
+        final int level = entry.level;
+        if (level == 0) {
+          @SuppressWarnings("unchecked")
+          final T object = (T)this.objects[index];
+          if (object != null) {
+            results.add(object);
+          }
+        } else {
+          final int childStart = getChildStart(index, level);
+          final int childEnd = getChildEnd(childStart, level);
+          final double[] childBounds = getBounds(level - 1);
+          for (int childIndex = childStart; childIndex < childEnd; childIndex++) {
+            final double distance = distance(childBounds, childIndex, x, y);
+            if (distance <= maxDistance) {
+              queue.add(new QueueEntry(distance, childIndex, level - 1));
+            }
+          }
+        }
+      }
+    }
+    return results;
+  }
+
+  private double[] getBounds(final int level) {
+    if (level == 0) {
+      return this.bounds;
+    } else {
+      return this.nodeBounds;
+    }
+  }
+
+  private int getChildEnd(final int childStart, final int level) {
+    return Math.min(childStart + this.nodeCapacity, this.levelEnds[level - 1]);
+  }
+
+  private int getChildStart(final int nodeIndex, final int level) {
+    return this.levelStarts[level - 1] + (nodeIndex - this.levelStarts[level])
+      * this.nodeCapacity;
+  }
+
+  public int getNodeCapacity() {
+    return this.nodeCapacity;
+  }
+
+  public int getSize() {
+    return this.objectCount - this.deletedCount;
+  }
+
+  @Override
+  public void put(final BoundingBox envelope, final T object) {
+    if (object != null && envelope != null && !envelope.isEmpty()) {
+      final int index = this.objectCount;
+      if (index == this.objects.length) {
+        this.objects = Arrays.copyOf(this.objects, index * 2);
+      }
+      final int offset = index * 4;
+      if (offset + 4 > this.bounds.length) {
+        this.bounds = Arrays.copyOf(this.bounds, Math.max(offset * 2, 64));
+      }
+      this.bounds[offset] = envelope.getMinX();
+      this.bounds[offset + 1] = envelope.getMinY();
+      this.bounds[offset + 2] = envelope.getMaxX();
+      this.bounds[offset + 3] = envelope.getMaxY();
+      this.objects[index] = object;
+      this.objectCount++;
+      this.modified = true;
+    }
+  }
+
+  /**
+   * Rebuild the tree if there are too many objects that aren't in the tree or
+   * too many deleted objects. The check is only synchronized if the tree was
+   * modified since the last query, so the tree is only built by one thread and
+   * the query sees the arrays from the last build.
+   */
+  private void refresh() {
+    if (this.modified) {
+      synchronized (this) {
+        if (this.modified) {
+          final int unindexedCount = this.objectCount - this.indexedCount;
+          if (unindexedCount > Math.max(MIN_REBUILD_COUNT,
+            this.indexedCount / 4)
+            || this.indexedCount == 0 && unindexedCount > 0
+            || this.deletedCount > Math.max(MIN_REBUILD_COUNT,
+              this.objectCount / 2)) {
+            build();
+          }
+          this.modified = false;
+        }
+      }
+    }
+  }
+
+  @Override
+  public boolean remove(final BoundingBox envelope, final T object) {
+    if (object != null && envelope != null && !envelope.isEmpty()) {
+      final double minX = envelope.getMinX();
+      final double minY = envelope.getMinY();
+      final double maxX = envelope.getMaxX();
+      final double maxY = envelope.getMaxY();
+      for (int i = this.indexedCount; i < this.objectCount; i++) {
+        if (removeObject(i, object)) {
+          return true;
+        }
+      }
+      final int rootLevel = this.levelStarts.length - 1;
+      if (rootLevel >= 0 && this.indexedCount > 0) {
+        return remove(this.levelStarts[rootLevel], rootLevel, minX, minY,
+          maxX, maxY, object);
+      }
+    }
+    return false;
+  }
+
+  private boolean remove(final int nodeIndex, final int level,
+    final double minX, final double minY, final double maxX,
+    final double maxY, final T object) {
+    if (intersects(getBounds(level), nodeIndex, minX, minY, maxX, maxY)) {
+      if (level == 0) {
+        return removeObject(nodeIndex, object);
+      } else {
+        final int childStart = getChildStart(nodeIndex, level);
+        final int childEnd = getChildEnd(childStart, level);
+        for (int childIndex = childStart; childIndex < childEnd; childIndex++) {
+          if (remove(childIndex, level - 1, minX, minY, maxX, maxY, object)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  private boolean removeObject(final int index, final T object) {
+    final Object indexObject = this.objects[index];
+    if (indexObject != null && indexObject.equals(object)) {
+      this.objects[index] = null;
+      this.deletedCount++;
+      this.modified = true;
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  @Override
+  public void visit(final BoundingBox envelope, final Filter<T> filter,
+    final Visitor<T> visitor) {
+    visit(envelope, new DelegatingVisitor<T>(filter, visitor));
+  }
+
+  @Override
+  public void visit(final BoundingBox envelope, final Visitor<T> visitor) {
+    if (envelope != null && !envelope.isEmpty()) {
+      refresh();
+      final double minX = envelope.getMinX();
+      final double minY = envelope.getMinY();
+      final double maxX = envelope.getMaxX();
+      final double maxY = envelope.getMaxY();
+      final int rootLevel = this.levelStarts.length - 1;
+      if (rootLevel >= 0 && this.indexedCount > 0) {
+        final int[] stack = new int[(rootLevel * this.nodeCapacity + 1) * 2];
+        int stackSize = 0;
+        stack[stackSize++] = this.levelStarts[rootLevel];
+        stack[stackSize++] = rootLevel;
+        while (stackSize > 0) {
+          final int level = stack[--stackSize];
+          final int nodeIndex = stack[--stackSize];
+          if (intersects(getBounds(level), nodeIndex, minX, minY, maxX, maxY)) {
+            if (level == 0) {
+              if (!visitObject(nodeIndex, visitor)) {
+                return;
+              }
+            } else {
+              final int childStart = getChildStart(nodeIndex, level);
+              final int childEnd = getChildEnd(childStart, level);
+              if (level == 1) {
+                for (int childIndex = childStart; childIndex < childEnd; childIndex++) {
+                  if (intersects(this.bounds, childIndex, minX, minY, maxX,
+                    maxY)) {
+                    if (!visitObject(childIndex, visitor)) {
+                      return;
+                    }
+                  }
+                }
+              } else {
+                for (int childIndex = childEnd - 1; childIndex >= childStart; childIndex--) {
+                  stack[stackSize++] = childIndex;
+                  stack[stackSize++] = level - 1;
+                }
+              }
+            }
+          }
+        }
+      }
+      for (int i = this.indexedCount; i < this.objectCount; i++) {
+        if (intersects(this.bounds, i, minX, minY, maxX, maxY)) {
+          if (!visitObject(i, visitor)) {
+            return;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public void visit(final Visitor<T> visitor) {
+    for (int i = 0; i < this.objectCount; i++) {
+      if (!visitObject(i, visitor)) {
+        return;
+      }
+    }
+  }
+
+  private boolean visitObject(final int index, final Visitor<T> visitor) {
+    @SuppressWarnings("unchecked")
+    final T object = (T)this.objects[index];
+    if (object == null) {
+      return true;
+    } else {
+      return visitor.visit(object);
+    }
+  }
+}
@@ -5,16 +5,17 @@ import java.util.LinkedList;
 import com.revolsys.collection.Visitor;
 import com.revolsys.filter.Filter;
 import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
 
 public abstract class RTreeNode<T> {
 
-  private BoundingBox boundingBox;
+  private BoundingBox boundingBox = new BoundingBoxDoubleGf();
 
   public RTreeNode() {
   }
 
   public boolean contains(final BoundingBox boundingBox) {
-    return boundingBox.covers(boundingBox);
+    return this.boundingBox.covers(boundingBox);
   }
 
   public double getArea() {
@@ -14,13 +14,13 @@ import com.revolsys.data.filter.RecordGeometryDistanceFilter;
 import com.revolsys.data.filter.RecordGeometryIntersectsFilter;
 import com.revolsys.data.record.Record;
 import com.revolsys.filter.Filter;
-import com.revolsys.gis.algorithm.index.quadtree.QuadTree;
+import com.revolsys.gis.algorithm.index.quadtree.ConcurrentQuadTree;
 import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.visitor.CreateListVisitor;
 
-public class RecordQuadTree extends QuadTree<Record> {
+public class RecordQuadTree extends ConcurrentQuadTree<Record> {
   /**
    *
    */
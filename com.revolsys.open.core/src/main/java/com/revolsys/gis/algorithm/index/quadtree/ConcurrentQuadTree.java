@@ -0,0 +1,229 @@
+package com.revolsys.gis.algorithm.index.quadtree;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.List;
+
+import com.revolsys.collection.Visitor;
+import com.revolsys.filter.Filter;
+import com.revolsys.filter.InvokeMethodFilter;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.index.SpatialIndex;
+import com.revolsys.visitor.CreateListVisitor;
+import com.revolsys.visitor.SingleObjectVisitor;
+
+/**
+ * <p>A {@link QuadTree} that can be queried by many threads while another
+ * thread edits it, without the readers taking a lock. The nodes of the tree
+ * are immutable, an edit creates copies of the nodes on the path from the root
+ * to the changed node and then publishes the new root. A query reads the root
+ * once and sees a consistent snapshot of the tree, changes made during the
+ * query aren't visible to it.</p>
+ *
+ * <p>Edits are serialized so there is a single writer at a time. Use
+ * {@link #move(BoundingBox, BoundingBox, Object)} to change the bounding box of
+ * an item so that queries never see the tree without the item.</p>
+ */
+public class ConcurrentQuadTree<T> implements SpatialIndex<T>, Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private GeometryFactory geometryFactory;
+
+  private volatile ConcurrentQuadTreeNode<T> root = ConcurrentQuadTreeNode.createRoot();
+
+  private volatile double minExtent = 1.0;
+
+  public ConcurrentQuadTree() {
+  }
+
+  public ConcurrentQuadTree(final GeometryFactory geometryFactory) {
+    this.geometryFactory = geometryFactory;
+  }
+
+  public synchronized void clear() {
+    this.root = ConcurrentQuadTreeNode.createRoot();
+    this.minExtent = 1.0;
+  }
+
+  private void collectStats(final BoundingBox envelope) {
+    final double delX = envelope.getWidth();
+    if (delX < this.minExtent && delX > 0.0) {
+      this.minExtent = delX;
+    }
+
+    final double delY = envelope.getHeight();
+    if (delY < this.minExtent && delY > 0.0) {
+      this.minExtent = delY;
+    }
+  }
+
+  protected double[] convert(BoundingBox boundingBox) {
+    if (this.geometryFactory != null) {
+      boundingBox = boundingBox.convert(this.geometryFactory);
+    }
+    return boundingBox.getBounds(2);
+  }
+
+  public int depth() {
+    return this.root.depth();
+  }
+
+  public List<T> getAll() {
+    final CreateListVisitor<T> visitor = new CreateListVisitor<T>();
+    visitAll(visitor);
+    return visitor.getList();
+  }
+
+  public T getFirst(final BoundingBox boundingBox, final Filter<T> filter) {
+    final SingleObjectVisitor<T> visitor = new SingleObjectVisitor<T>(filter);
+    visit(boundingBox, visitor);
+    return visitor.getObject();
+  }
+
+  public T getFirstBoundingBox(final Geometry geometry, final Filter<T> filter) {
+    if (geometry == null) {
+      return null;
+    } else {
+      final BoundingBox boundingBox = geometry.getBoundingBox();
+      return getFirst(boundingBox, filter);
+    }
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  public int getSize() {
+    return this.root.size();
+  }
+
+  @Override
+  public synchronized void insert(final BoundingBox boundingBox, final T item) {
+    if (boundingBox == null) {
+      throw new IllegalArgumentException("Item envelope must not be null");
+    } else {
+      final ConcurrentQuadTreeNode<T> root = insert(this.root, boundingBox,
+        item);
+      if (root != null) {
+        this.root = root;
+      }
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> insert(
+    final ConcurrentQuadTreeNode<T> root, final BoundingBox boundingBox,
+    final T item) {
+    double[] bounds = convert(boundingBox);
+    if (bounds == null) {
+      return null;
+    } else {
+      collectStats(boundingBox);
+      bounds = QuadTree.ensureExtent(bounds, this.minExtent);
+      return root.insertRoot(bounds, item);
+    }
+  }
+
+  /**
+   * Move the item from the old bounding box to the new bounding box. Queries
+   * will see the item either at the old or the new bounding box.
+   *
+   * @param oldBoundingBox The bounding box the item was inserted with.
+   * @param newBoundingBox The new bounding box of the item.
+   * @param item The item.
+   * @return True if the item was found at the old bounding box.
+   */
+  public synchronized boolean move(final BoundingBox oldBoundingBox,
+    final BoundingBox newBoundingBox, final T item) {
+    final ConcurrentQuadTreeNode<T> oldRoot = this.root;
+    ConcurrentQuadTreeNode<T> root = remove(oldRoot, oldBoundingBox, item);
+    final boolean removed = root != oldRoot;
+    if (newBoundingBox != null) {
+      final ConcurrentQuadTreeNode<T> newRoot = insert(root, newBoundingBox,
+        item);
+      if (newRoot != null) {
+        root = newRoot;
+      }
+    }
+    this.root = root;
+    return removed;
+  }
+
+  @Override
+  public List<T> query(final BoundingBox boundingBox) {
+    final CreateListVisitor<T> visitor = new CreateListVisitor<T>();
+    visit(boundingBox, visitor);
+    return visitor.getList();
+  }
+
+  public List<T> query(final BoundingBox boundingBox, final Filter<T> filter) {
+    final CreateListVisitor<T> visitor = new CreateListVisitor<T>(filter);
+    visit(boundingBox, visitor);
+    return visitor.getList();
+  }
+
+  public List<T> query(final BoundingBox boundingBox, final String methodName,
+    final Object... parameters) {
+    final InvokeMethodFilter<T> filter = new InvokeMethodFilter<T>(methodName,
+      parameters);
+    return query(boundingBox, filter);
+  }
+
+  public List<T> queryBoundingBox(final Geometry geometry) {
+    if (geometry == null) {
+      return Collections.emptyList();
+    } else {
+      final BoundingBox boundingBox = geometry.getBoundingBox();
+      return query(boundingBox);
+    }
+  }
+
+  @Override
+  public synchronized boolean remove(final BoundingBox boundingBox,
+    final T item) {
+    final ConcurrentQuadTreeNode<T> oldRoot = this.root;
+    final ConcurrentQuadTreeNode<T> root = remove(oldRoot, boundingBox, item);
+    if (root == oldRoot) {
+      return false;
+    } else {
+      this.root = root;
+      return true;
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> remove(
+    final ConcurrentQuadTreeNode<T> root, final BoundingBox boundingBox,
+    final T item) {
+    if (boundingBox == null) {
+      return root;
+    } else {
+      double[] bounds = convert(boundingBox);
+      if (bounds == null) {
+        return root;
+      } else {
+        bounds = QuadTree.ensureExtent(bounds, this.minExtent);
+        return root.remove(bounds, item);
+      }
+    }
+  }
+
+  protected void setGeometryFactory(final GeometryFactory geometryFactory) {
+    this.geometryFactory = geometryFactory;
+  }
+
+  public int size() {
+    return getSize();
+  }
+
+  public void visit(final BoundingBox boundingBox, final Visitor<T> visitor) {
+    final double[] bounds = convert(boundingBox);
+    if (bounds != null) {
+      this.root.visit(bounds, visitor);
+    }
+  }
+
+  public void visitAll(final Visitor<T> visitor) {
+    this.root.visit(visitor);
+  }
+}
@@ -0,0 +1,432 @@
+package com.revolsys.gis.algorithm.index.quadtree;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.revolsys.collection.Visitor;
+import com.revolsys.jts.index.DoubleBits;
+import com.revolsys.jts.index.IntervalSize;
+import com.revolsys.jts.util.BoundingBoxUtil;
+
+/**
+ * An immutable node in a {@link ConcurrentQuadTree}. The methods that change
+ * the tree return a new node with copies of the nodes on the path to the
+ * changed node, the nodes that weren't changed are shared with the original
+ * node. The quadrants of the nodes use the same power of 2 grid as
+ * {@link AbstractNode}.
+ */
+final class ConcurrentQuadTreeNode<T> implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  private static final Object[] EMPTY_ITEMS = new Object[0];
+
+  private static final double[] EMPTY_BOUNDS = new double[0];
+
+  private static final int ROOT_LEVEL = Integer.MIN_VALUE;
+
+  private static int computeQuadLevel(final double... bounds) {
+    final double dx = bounds[2] - bounds[0];
+    final double dy = bounds[3] - bounds[1];
+    final double dMax = dx > dy ? dx : dy;
+    return DoubleBits.exponent(dMax) + 1;
+  }
+
+  private static <V> ConcurrentQuadTreeNode<V> createNode(final double[] bounds) {
+    final double minX = bounds[0];
+    final double minY = bounds[1];
+    final double maxX = bounds[2];
+    final double maxY = bounds[3];
+    int level = computeQuadLevel(bounds);
+    double[] newBounds = getQuadBounds(minX, minY, level);
+    while (!BoundingBoxUtil.covers(newBounds[0], newBounds[1], newBounds[2],
+      newBounds[3], minX, minY, maxX, maxY)) {
+      level++;
+      newBounds = getQuadBounds(minX, minY, level);
+    }
+    return new ConcurrentQuadTreeNode<V>(level, newBounds[0], newBounds[1],
+      newBounds[2], newBounds[3], EMPTY_ITEMS, EMPTY_BOUNDS, null);
+  }
+
+  public static <V> ConcurrentQuadTreeNode<V> createRoot() {
+    return new ConcurrentQuadTreeNode<V>(ROOT_LEVEL, 0, 0, 0, 0, EMPTY_ITEMS,
+      EMPTY_BOUNDS, null);
+  }
+
+  private static double[] getQuadBounds(final double minX, final double minY,
+    final int level) {
+    final double quadSize = DoubleBits.powerOf2(level);
+    final double x1 = Math.floor(minX / quadSize) * quadSize;
+    final double y1 = Math.floor(minY / quadSize) * quadSize;
+    return new double[] {
+      x1, y1, x1 + quadSize, y1 + quadSize
+    };
+  }
+
+  private static int getSubnodeIndex(final double centreX,
+    final double centreY, final double minX, final double minY,
+    final double maxX, final double maxY) {
+    int subnodeIndex = -1;
+    if (minX >= centreX) {
+      if (minY >= centreY) {
+        subnodeIndex = 3;
+      }
+      if (maxY <= centreY) {
+        subnodeIndex = 1;
+      }
+    }
+    if (maxX <= centreX) {
+      if (minY >= centreY) {
+        subnodeIndex = 2;
+      }
+      if (maxY <= centreY) {
+        subnodeIndex = 0;
+      }
+    }
+    return subnodeIndex;
+  }
+
+  @SuppressWarnings({
+    "unchecked", "rawtypes"
+  })
+  private static <V> ConcurrentQuadTreeNode<V>[] newNodes() {
+    return new ConcurrentQuadTreeNode[4];
+  }
+
+  private final int level;
+
+  private final double minX;
+
+  private final double minY;
+
+  private final double maxX;
+
+  private final double maxY;
+
+  private final Object[] items;
+
+  /** The minX, minY, maxX, maxY of each item. */
+  private final double[] itemBounds;
+
+  private final ConcurrentQuadTreeNode<T>[] nodes;
+
+  /** The number of items in this node and its subnodes. */
+  private final int size;
+
+  private ConcurrentQuadTreeNode(final int level, final double minX,
+    final double minY, final double maxX, final double maxY,
+    final Object[] items, final double[] itemBounds,
+    final ConcurrentQuadTreeNode<T>[] nodes) {
+    this.level = level;
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    this.items = items;
+    this.itemBounds = itemBounds;
+    this.nodes = nodes;
+    int size = items.length;
+    if (nodes != null) {
+      for (final ConcurrentQuadTreeNode<T> node : nodes) {
+        if (node != null) {
+          size += node.size;
+        }
+      }
+    }
+    this.size = size;
+  }
+
+  private boolean covers(final double[] bounds) {
+    return BoundingBoxUtil.covers(this.minX, this.minY, this.maxX, this.maxY,
+      bounds[0], bounds[1], bounds[2], bounds[3]);
+  }
+
+  private ConcurrentQuadTreeNode<T> createExpanded(
+    final ConcurrentQuadTreeNode<T> node, final double[] bounds) {
+    final double[] expandedBounds = bounds.clone();
+    if (node != null) {
+      expandedBounds[0] = Math.min(expandedBounds[0], node.minX);
+      expandedBounds[1] = Math.min(expandedBounds[1], node.minY);
+      expandedBounds[2] = Math.max(expandedBounds[2], node.maxX);
+      expandedBounds[3] = Math.max(expandedBounds[3], node.maxY);
+    }
+    final ConcurrentQuadTreeNode<T> largerNode = createNode(expandedBounds);
+    if (node == null) {
+      return largerNode;
+    } else {
+      return largerNode.insertNode(node);
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> createSubnode(final int index) {
+    final double centreX = getCentreX();
+    final double centreY = getCentreY();
+    double minX = this.minX;
+    double minY = this.minY;
+    double maxX = this.maxX;
+    double maxY = this.maxY;
+    if (index == 0 || index == 2) {
+      maxX = centreX;
+    } else {
+      minX = centreX;
+    }
+    if (index == 0 || index == 1) {
+      maxY = centreY;
+    } else {
+      minY = centreY;
+    }
+    return new ConcurrentQuadTreeNode<T>(this.level - 1, minX, minY, maxX,
+      maxY, EMPTY_ITEMS, EMPTY_BOUNDS, null);
+  }
+
+  public int depth() {
+    int depth = 0;
+    if (this.nodes != null) {
+      for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+        if (node != null) {
+          depth = Math.max(depth, node.depth());
+        }
+      }
+    }
+    return depth + 1;
+  }
+
+  private double getCentreX() {
+    if (isRoot()) {
+      return 0;
+    } else {
+      return (this.minX + this.maxX) / 2;
+    }
+  }
+
+  private double getCentreY() {
+    if (isRoot()) {
+      return 0;
+    } else {
+      return (this.minY + this.maxY) / 2;
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> getNode(final int index) {
+    if (this.nodes == null) {
+      return null;
+    } else {
+      return this.nodes[index];
+    }
+  }
+
+  private int getSubnodeIndex(final double[] bounds) {
+    return getSubnodeIndex(getCentreX(), getCentreY(), bounds[0], bounds[1],
+      bounds[2], bounds[3]);
+  }
+
+  /**
+   * Insert the item into this node or the subnode that contains the bounds.
+   * The bounds must be covered by this node.
+   */
+  private ConcurrentQuadTreeNode<T> insertContained(final double[] bounds,
+    final T item) {
+    final int subnodeIndex = getSubnodeIndex(bounds);
+    if (subnodeIndex == -1) {
+      return withItem(bounds, item);
+    } else {
+      ConcurrentQuadTreeNode<T> node = getNode(subnodeIndex);
+      if (node == null) {
+        final boolean isZeroX = IntervalSize.isZeroWidth(bounds[2], bounds[0]);
+        final boolean isZeroY = IntervalSize.isZeroWidth(bounds[3], bounds[1]);
+        if (isZeroX || isZeroY) {
+          return withItem(bounds, item);
+        } else {
+          node = createSubnode(subnodeIndex);
+        }
+      }
+      return withNode(subnodeIndex, node.insertContained(bounds, item));
+    }
+  }
+
+  private ConcurrentQuadTreeNode<T> insertNode(
+    final ConcurrentQuadTreeNode<T> node) {
+    final int index = getSubnodeIndex(getCentreX(), getCentreY(), node.minX,
+      node.minY, node.maxX, node.maxY);
+    if (node.level == this.level - 1) {
+      return withNode(index, node);
+    } else {
+      final ConcurrentQuadTreeNode<T> childNode = createSubnode(index);
+      return withNode(index, childNode.insertNode(node));
+    }
+  }
+
+  /**
+   * Insert the item into the tree with this node as the root.
+   */
+  public ConcurrentQuadTreeNode<T> insertRoot(final double[] bounds,
+    final T item) {
+    final int index = getSubnodeIndex(0, 0, bounds[0], bounds[1], bounds[2],
+      bounds[3]);
+    if (index == -1) {
+      return withItem(bounds, item);
+    } else {
+      ConcurrentQuadTreeNode<T> node = getNode(index);
+      if (node == null || !node.covers(bounds)) {
+        node = createExpanded(node, bounds);
+      }
+      return withNode(index, node.insertContained(bounds, item));
+    }
+  }
+
+  private boolean isEmpty() {
+    return this.items.length == 0 && this.nodes == null;
+  }
+
+  private boolean isRoot() {
+    return this.level == ROOT_LEVEL;
+  }
+
+  private boolean isSearchMatch(final double[] bounds) {
+    if (isRoot()) {
+      return true;
+    } else {
+      return BoundingBoxUtil.intersects(this.minX, this.minY, this.maxX,
+        this.maxY, bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+  }
+
+  /**
+   * Remove the item from the tree with this node as the root.
+   *
+   * @return The new node, or this node if the item wasn't found.
+   */
+  public ConcurrentQuadTreeNode<T> remove(final double[] bounds, final T item) {
+    ConcurrentQuadTreeNode<T> newNode = this;
+    if (isSearchMatch(bounds)) {
+      if (this.nodes != null) {
+        for (int i = 0; i < 4; i++) {
+          final ConcurrentQuadTreeNode<T> node = this.nodes[i];
+          if (node != null) {
+            final ConcurrentQuadTreeNode<T> newChildNode = node.remove(bounds,
+              item);
+            if (newChildNode != node) {
+              if (newChildNode.isEmpty()) {
+                newNode = newNode.withNode(i, null);
+              } else {
+                newNode = newNode.withNode(i, newChildNode);
+              }
+            }
+          }
+        }
+      }
+      newNode = newNode.withoutItem(item);
+    }
+    return newNode;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean visit(final double[] bounds, final Visitor<T> visitor) {
+    if (isSearchMatch(bounds)) {
+      for (int i = 0; i < this.items.length; i++) {
+        final int offset = i * 4;
+        if (BoundingBoxUtil.intersects(bounds[0], bounds[1], bounds[2],
+          bounds[3], this.itemBounds[offset], this.itemBounds[offset + 1],
+          this.itemBounds[offset + 2], this.itemBounds[offset + 3])) {
+          @SuppressWarnings("unchecked")
+          final T item = (T)this.items[i];
+          if (!visitor.visit(item)) {
+            return false;
+          }
+        }
+      }
+      if (this.nodes != null) {
+        for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+          if (node != null) {
+            if (!node.visit(bounds, visitor)) {
+              return false;
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  public boolean visit(final Visitor<T> visitor) {
+    for (final Object object : this.items) {
+      @SuppressWarnings("unchecked")
+      final T item = (T)object;
+      if (!visitor.visit(item)) {
+        return false;
+      }
+    }
+    if (this.nodes != null) {
+      for (final ConcurrentQuadTreeNode<T> node : this.nodes) {
+        if (node != null) {
+          if (!node.visit(visitor)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Create a copy of this node with the item added, replacing the item if it
+   * was already in this node.
+   */
+  private ConcurrentQuadTreeNode<T> withItem(final double[] bounds,
+    final T item) {
+    final ConcurrentQuadTreeNode<T> node = withoutItem(item);
+    final int itemCount = node.items.length;
+    final Object[] items = Arrays.copyOf(node.items, itemCount + 1);
+    items[itemCount] = item;
+    final double[] itemBounds = Arrays.copyOf(node.itemBounds,
+      (itemCount + 1) * 4);
+    System.arraycopy(bounds, 0, itemBounds, itemCount * 4, 4);
+    return new ConcurrentQuadTreeNode<T>(this.level, this.minX, this.minY,
+      this.maxX, this.maxY, items, itemBounds, this.nodes);
+  }
+
+  private ConcurrentQuadTreeNode<T> withNode(final int index,
+    final ConcurrentQuadTreeNode<T> node) {
+    ConcurrentQuadTreeNode<T>[] nodes;
+    if (this.nodes == null) {
+      if (node == null) {
+        return this;
+      } else {
+        nodes = newNodes();
+      }
+    } else {
+      nodes = this.nodes.clone();
+    }
+    nodes[index] = node;
+    if (node == null && nodes[0] == null && nodes[1] == null
+      && nodes[2] == null && nodes[3] == null) {
+      nodes = null;
+    }
+    return new ConcurrentQuadTreeNode<T>(this.level, this.minX, this.minY,
+      this.maxX, this.maxY, this.items, this.itemBounds, nodes);
+  }
+
+  /**
+   * Create a copy of this node without the item, or return this node if the
+   * item isn't in this node.
+   */
+  private ConcurrentQuadTreeNode<T> withoutItem(final T item) {
+    for (int i = 0; i < this.items.length; i++) {
+      if (this.items[i] == item) {
+        final int itemCount = this.items.length - 1;
+        final Object[] items = new Object[itemCount];
+        System.arraycopy(this.items, 0, items, 0, i);
+        System.arraycopy(this.items, i + 1, items, i, itemCount - i);
+        final double[] itemBounds = new double[itemCount * 4];
+        System.arraycopy(this.itemBounds, 0, itemBounds, 0, i * 4);
+        System.arraycopy(this.itemBounds, (i + 1) * 4, itemBounds, i * 4,
+          (itemCount - i) * 4);
+        return new ConcurrentQuadTreeNode<T>(this.level, this.minX,
+          this.minY, this.maxX, this.maxY, items, itemBounds, this.nodes);
+      }
+    }
+    return this;
+  }
+}
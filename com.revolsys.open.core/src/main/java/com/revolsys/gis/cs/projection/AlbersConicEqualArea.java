@@ -82,6 +82,18 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
   /** Central Meridian. */
   private final double lambda0;
 
+  /** Constant 1 / n. */
+  private final double nInverse;
+
+  /** Constant sq(n) / sq(semiMajorAxis). */
+  private final double nSqOverASq;
+
+  /** Constant 1 - sq(e). */
+  private final double oneMinusEe;
+
+  /** Constant 1 / (2 * e). */
+  private final double oneOver2e;
+
   /** Constant n = ( sq(m(phi1)) - sq(m(phi2) ) /( q(phi2) - q(phi1) ) */
   private final double n;
 
@@ -97,6 +109,9 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
   /** Constant rho0 = semiMajorAxis * sqrt( C - n * q(phi0) ) / n. */
   private final double rho0;
 
+  /** Constant semiMajorAxis / n. */
+  private final double semiMajorAxisOverN;
+
   private final double semiMajorAxis;
 
   /** The spheriod. */
@@ -127,6 +142,8 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
 
     this.e = this.spheroid.getEccentricity();
     this.ee = this.spheroid.getEccentricitySquared();
+    this.oneMinusEe = 1.0 - this.ee;
+    this.oneOver2e = 1.0 / (2.0 * this.e);
 
     final double m1 = m(this.phi1);
     final double m2 = m(this.phi2);
@@ -136,7 +153,11 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
 
     this.n = (m1 * m1 - m2 * m2) / (q2 - q1);
     this.c = m1 * m1 + this.n * q1;
-    this.rho0 = this.semiMajorAxis * Math.sqrt(this.c - this.n * q0) / this.n;
+    this.nInverse = 1.0 / this.n;
+    this.nSqOverASq = this.n * this.n
+      / (this.semiMajorAxis * this.semiMajorAxis);
+    this.semiMajorAxisOverN = this.semiMajorAxis / this.n;
+    this.rho0 = this.semiMajorAxisOverN * Math.sqrt(this.c - this.n * q0);
   }
 
   /**
@@ -153,10 +174,11 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
     final double dX = x - this.x0;
     final double dY = y - this.y0;
     final double theta = Math.atan(dX / (this.rho0 - dY));
-    final double rho = Math.sqrt(dX * dX + Math.pow(this.rho0 - dY, 2.0));
-    final double q = (this.c - rho * rho * this.n * this.n / (this.semiMajorAxis * this.semiMajorAxis))
-        / this.n;
-    final double lambda = this.lambda0 + theta / this.n;
+    final double rho0MinusDY = this.rho0 - dY;
+    final double rhoSq = dX * dX + rho0MinusDY * rho0MinusDY;
+    final double q = (this.c - rhoSq * this.nSqOverASq) * this.nInverse;
+    final double lambda = this.lambda0 + theta * this.nInverse;
+    final double k1 = q / this.oneMinusEe;
     double li = Math.asin(q / 2.0);
     if (!Double.isNaN(li)) {
       double delta = 10e010;
@@ -164,12 +186,12 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
       int i = 0;
       do {
         final double sinLi = Math.sin(li);
+        final double oneMinusEeSinLiSq = 1.0 - this.ee * sinLi * sinLi;
 
-        final double j1 = Math.pow(1.0 - this.ee * Math.pow(sinLi, 2.0), 2.0)
+        final double j1 = oneMinusEeSinLiSq * oneMinusEeSinLiSq
             / (2.0 * Math.cos(li));
-        final double k1 = q / (1.0 - this.ee);
-        final double k2 = sinLi / (1.0 - this.ee * Math.pow(sinLi, 2.0));
-        final double k3 = 1.0 / (2.0 * this.e)
+        final double k2 = sinLi / oneMinusEeSinLiSq;
+        final double k3 = this.oneOver2e
             * Math.log((1.0 - this.e * sinLi) / (1.0 + this.e * sinLi));
         final double lip1 = li + j1 * (k1 - k2 + k3);
         delta = Math.abs(lip1 - li);
@@ -221,8 +243,7 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
     final double q = q(phi);
     final double lminusl0 = lambda - this.lambda0;
     final double theta = this.n * lminusl0;
-    final double sqrtCminsNQOverN = Math.sqrt(this.c - this.n * q) / this.n;
-    final double rho = this.semiMajorAxis * sqrtCminsNQOverN;
+    final double rho = this.semiMajorAxisOverN * Math.sqrt(this.c - this.n * q);
 
     final double x = this.x0 + rho * Math.sin(theta);
     final double y = this.y0 + this.rho0 - rho * Math.cos(theta);
@@ -248,8 +269,8 @@ public class AlbersConicEqualArea extends AbstractCoordinatesProjection {
   private double q(final double phi) {
     final double sinPhi = Math.sin(phi);
     final double eSinPhi = this.e * sinPhi;
-    final double q = (1.0 - this.ee)
-        * (sinPhi / (1.0 - this.ee * sinPhi * sinPhi) - 1.0 / (2.0 * this.e)
+    final double q = this.oneMinusEe
+        * (sinPhi / (1.0 - this.ee * sinPhi * sinPhi) - this.oneOver2e
             * Math.log((1.0 - eSinPhi) / (1.0 + eSinPhi)));
     return q;
   }
@@ -10,10 +10,16 @@ import com.revolsys.math.Angle;
 public class LambertConicConformal extends AbstractCoordinatesProjection {
   private final double a;
 
+  /** a * f. */
+  private final double aF;
+
   private final double e;
 
   private final double ee;
 
+  /** e / 2. */
+  private final double eOver2;
+
   private final double f;
 
   /** The central origin. */
@@ -21,6 +27,9 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
 
   private final double n;
 
+  /** 1 / n. */
+  private final double nInverse;
+
   private final double rho0;
 
   private final double x0;
@@ -42,6 +51,7 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
     this.a = spheroid.getSemiMajorAxis();
     this.e = spheroid.getEccentricity();
     this.ee = this.e * this.e;
+    this.eOver2 = this.e / 2;
 
     final double phi0 = Math.toRadians(latitudeOfProjection);
     final double phi1 = Math.toRadians(firstStandardParallel);
@@ -57,8 +67,10 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
     final double logT1 = Math.log(t1);
     final double logT2 = Math.log(t2);
     this.n = (logM1 - logM2) / (logT1 - logT2);
+    this.nInverse = 1 / this.n;
     this.f = m1 / (this.n * Math.pow(t1, this.n));
-    this.rho0 = this.a * this.f * Math.pow(t0, this.n);
+    this.aF = this.a * this.f;
+    this.rho0 = this.aF * Math.pow(t0, this.n);
   }
 
   @Override
@@ -76,11 +88,12 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
       dY = -dY;
     }
     final double theta = Math.atan(dX / (rho0 - dY));
-    double rho = Math.sqrt(dX * dX + Math.pow(rho0 - dY, 2));
+    final double rho0MinusDY = rho0 - dY;
+    double rho = Math.sqrt(dX * dX + rho0MinusDY * rho0MinusDY);
     if (this.n < 0) {
       rho = -rho;
     }
-    final double t = Math.pow(rho / (this.a * this.f), 1 / this.n);
+    final double t = Math.pow(rho / this.aF, this.nInverse);
     double phi = Angle.PI_OVER_2 - 2 * Math.atan(t);
     double delta = 10e010;
     do {
@@ -88,11 +101,11 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
       final double sinPhi = Math.sin(phi);
       final double eSinPhi = this.e * sinPhi;
       final double phi1 = Angle.PI_OVER_2 - 2
-          * Math.atan(t * Math.pow((1 - eSinPhi) / (1 + eSinPhi), this.e / 2));
+          * Math.atan(t * Math.pow((1 - eSinPhi) / (1 + eSinPhi), this.eOver2));
       delta = Math.abs(phi1 - phi);
       phi = phi1;
     } while (!Double.isNaN(phi) && delta > 1.0e-011);
-    final double lambda = theta / this.n + this.lambda0;
+    final double lambda = theta * this.nInverse + this.lambda0;
 
     targetCoordinates[targetOffset * targetAxisCount] = lambda;
     targetCoordinates[targetOffset * targetAxisCount + 1] = phi;
@@ -109,7 +122,7 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
     final int targetAxisCount) {
 
     final double t = t(phi);
-    final double rho = this.a * this.f * Math.pow(t, this.n);
+    final double rho = this.aF * Math.pow(t, this.n);
 
     final double theta = this.n * (lambda - this.lambda0);
     final double x = this.x0 + rho * Math.sin(theta);
@@ -124,7 +137,7 @@ public class LambertConicConformal extends AbstractCoordinatesProjection {
     final double eSinPhi = this.e * sinPhi;
 
     final double t = Math.tan(Angle.PI_OVER_4 - phi / 2)
-        / Math.pow((1 - eSinPhi) / (1 + eSinPhi), this.e / 2);
+        / Math.pow((1 - eSinPhi) / (1 + eSinPhi), this.eOver2);
     return t;
   }
 }
@@ -2,14 +2,12 @@ package com.revolsys.gis.cs.projection;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
+import javax.measure.converter.UnitConverter;
 import javax.measure.quantity.Angle;
 import javax.measure.quantity.Length;
-import javax.measure.unit.NonSI;
 import javax.measure.unit.SI;
 import javax.measure.unit.Unit;
 
@@ -75,23 +73,32 @@ public final class ProjectionFactory {
     }
   }
 
+  /**
+   * Get the operation to convert coordinates from cs1 to cs2. The unit
+   * conversions and projections are combined into one
+   * {@link ReprojectOperation} that converts each vertex in a single pass.
+   *
+   * @param cs1 The source coordinate system.
+   * @param cs2 The target coordinate system.
+   * @return The operation or null if no conversion is required or available.
+   */
   public static CoordinatesOperation getCoordinatesOperation(
     final CoordinateSystem cs1, final CoordinateSystem cs2) {
     if (cs1 == null || cs2 == null || cs1 == cs2) {
       return null;
     } else {
-      final List<CoordinatesOperation> operations = new ArrayList<CoordinatesOperation>();
+      UnitConverter sourceConverter = null;
+      CoordinatesProjection sourceProjection = null;
       if (cs1 instanceof ProjectedCoordinateSystem) {
         final ProjectedCoordinateSystem pcs1 = (ProjectedCoordinateSystem)cs1;
-        final CoordinatesOperation inverseOperation = getInverseCoordinatesOperation(pcs1);
-        if (inverseOperation == null) {
+        sourceProjection = getCoordinatesProjection(pcs1);
+        if (sourceProjection == null) {
           return null;
         }
         final Unit<Length> linearUnit1 = pcs1.getLengthUnit();
         if (!linearUnit1.equals(SI.METRE)) {
-          operations.add(new UnitConverstionOperation(linearUnit1, SI.METRE));
+          sourceConverter = linearUnit1.getConverterTo(SI.METRE);
         }
-        operations.add(inverseOperation);
       } else if (cs1 instanceof GeographicCoordinateSystem) {
         final GeographicCoordinateSystem gcs1 = (GeographicCoordinateSystem)cs1;
         final Unit<Angle> angularUnit1 = gcs1.getUnit();
@@ -104,47 +111,34 @@ public final class ProjectionFactory {
           } else {
             return null;
           }
-        } else {
-          if (!angularUnit1.equals(SI.RADIAN)) {
-            CoordinatesOperation converstionOperation;
-            if (angularUnit1.equals(NonSI.DEGREE_ANGLE)) {
-              converstionOperation = DegreesToRadiansOperation.INSTANCE;
-            } else {
-              converstionOperation = new UnitConverstionOperation(angularUnit1,
-                SI.RADIAN, 2);
-            }
-
-            operations.add(converstionOperation);
-          }
+        } else if (!angularUnit1.equals(SI.RADIAN)) {
+          sourceConverter = angularUnit1.getConverterTo(SI.RADIAN);
         }
       } else {
         return null;
       }
+      CoordinatesProjection targetProjection = null;
+      UnitConverter targetConverter = null;
       if (cs2 instanceof ProjectedCoordinateSystem) {
         final ProjectedCoordinateSystem pcs2 = (ProjectedCoordinateSystem)cs2;
-        final CoordinatesOperation projectOperation = getProjectCoordinatesOperation(pcs2);
-        if (projectOperation != null) {
-          operations.add(projectOperation);
-        }
+        targetProjection = getCoordinatesProjection(pcs2);
         final Unit<Length> linearUnit2 = pcs2.getLengthUnit();
         if (!linearUnit2.equals(SI.METRE)) {
-          operations.add(new UnitConverstionOperation(SI.METRE, linearUnit2));
+          targetConverter = SI.METRE.getConverterTo(linearUnit2);
         }
       } else if (cs2 instanceof GeographicCoordinateSystem) {
         final GeographicCoordinateSystem gcs2 = (GeographicCoordinateSystem)cs2;
         final Unit<Angle> angularUnit2 = gcs2.getUnit();
         if (!angularUnit2.equals(SI.RADIAN)) {
-          operations.add(new UnitConverstionOperation(SI.RADIAN, angularUnit2,
-            2));
+          targetConverter = SI.RADIAN.getConverterTo(angularUnit2);
         }
       }
-      switch (operations.size()) {
-        case 0:
-          return null;
-        case 1:
-          return operations.get(0);
-        default:
-          return new ChainedCoordinatesOperation(operations);
+      if (sourceConverter == null && sourceProjection == null
+        && targetProjection == null && targetConverter == null) {
+        return null;
+      } else {
+        return new ReprojectOperation(sourceConverter, sourceProjection,
+          targetProjection, targetConverter);
       }
     }
   }
@@ -0,0 +1,220 @@
+package com.revolsys.gis.cs.projection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.measure.converter.UnitConverter;
+
+import com.revolsys.util.WrappedException;
+
+/**
+ * <p>Convert coordinates between two coordinate systems in a single pass over
+ * the coordinates. For each vertex the x, y are converted from the source
+ * units, converted to geographic coordinates using the inverse of the source
+ * projection, projected using the target projection and converted to the
+ * target units. Any of the steps can be null if it isn't required. The other
+ * axis (z, m) are copied.</p>
+ *
+ * <p>The operation has no state so one instance can be cached for a pair of
+ * coordinate systems and used by many threads. Arrays with at least
+ * {@link #PARALLEL_VERTEX_COUNT} vertices are split into ranges that are
+ * converted on a shared pool of threads.</p>
+ */
+public class ReprojectOperation implements CoordinatesOperation {
+  private static final class PerformRange implements Callable<Void> {
+    private final ReprojectOperation operation;
+
+    private final int sourceAxisCount;
+
+    private final double[] sourceCoordinates;
+
+    private final int targetAxisCount;
+
+    private final double[] targetCoordinates;
+
+    private final int startIndex;
+
+    private final int endIndex;
+
+    private PerformRange(final ReprojectOperation operation,
+      final int sourceAxisCount, final double[] sourceCoordinates,
+      final int targetAxisCount, final double[] targetCoordinates,
+      final int startIndex, final int endIndex) {
+      this.operation = operation;
+      this.sourceAxisCount = sourceAxisCount;
+      this.sourceCoordinates = sourceCoordinates;
+      this.targetAxisCount = targetAxisCount;
+      this.targetCoordinates = targetCoordinates;
+      this.startIndex = startIndex;
+      this.endIndex = endIndex;
+    }
+
+    @Override
+    public Void call() {
+      this.operation.perform(this.sourceAxisCount, this.sourceCoordinates,
+        this.targetAxisCount, this.targetCoordinates, this.startIndex,
+        this.endIndex);
+      return null;
+    }
+  }
+
+  /** The minimum number of vertices to convert in parallel. */
+  public static final int PARALLEL_VERTEX_COUNT = 65536;
+
+  private static final int THREAD_COUNT = Runtime.getRuntime()
+    .availableProcessors();
+
+  private static ThreadPoolExecutor executor;
+
+  private static synchronized ThreadPoolExecutor getExecutor() {
+    if (executor == null) {
+      final AtomicInteger threadIndex = new AtomicInteger();
+      executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 10,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+        new ThreadFactory() {
+          @Override
+          public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Reproject "
+              + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+
+  private final UnitConverter sourceConverter;
+
+  private final CoordinatesProjection sourceProjection;
+
+  private final CoordinatesProjection targetProjection;
+
+  private final UnitConverter targetConverter;
+
+  /**
+   * Construct a new ReprojectOperation.
+   *
+   * @param sourceConverter The converter from the source units to metres or
+   * radians, or null if not required.
+   * @param sourceProjection The projection to convert the source coordinates
+   * to geographic coordinates in radians, or null if the source is
+   * geographic.
+   * @param targetProjection The projection to convert geographic coordinates
+   * in radians to the target coordinates, or null if the target is geographic.
+   * @param targetConverter The converter from metres or radians to the target
+   * units, or null if not required.
+   */
+  public ReprojectOperation(final UnitConverter sourceConverter,
+    final CoordinatesProjection sourceProjection,
+    final CoordinatesProjection targetProjection,
+    final UnitConverter targetConverter) {
+    this.sourceConverter = sourceConverter;
+    this.sourceProjection = sourceProjection;
+    this.targetProjection = targetProjection;
+    this.targetConverter = targetConverter;
+  }
+
+  @Override
+  public void perform(final int sourceAxisCount,
+    final double[] sourceCoordinates, final int targetAxisCount,
+    final double[] targetCoordinates) {
+    final int vertexCount = sourceCoordinates.length / sourceAxisCount;
+    if (vertexCount >= PARALLEL_VERTEX_COUNT && THREAD_COUNT > 1) {
+      final ThreadPoolExecutor executor = getExecutor();
+      final int rangeSize = (vertexCount + THREAD_COUNT - 1) / THREAD_COUNT;
+      final List<Future<Void>> futures = new ArrayList<>();
+      for (int startIndex = 0; startIndex < vertexCount; startIndex += rangeSize) {
+        final int endIndex = Math.min(vertexCount, startIndex + rangeSize);
+        futures.add(executor.submit(new PerformRange(this, sourceAxisCount,
+          sourceCoordinates, targetAxisCount, targetCoordinates, startIndex,
+          endIndex)));
+      }
+      try {
+        for (final Future<Void> future : futures) {
+          future.get();
+        }
+      } catch (final InterruptedException e) {
+        for (final Future<Void> future : futures) {
+          future.cancel(true);
+        }
+        Thread.currentThread().interrupt();
+        throw new WrappedException(e);
+      } catch (final ExecutionException e) {
+        throw new WrappedException(e.getCause());
+      }
+    } else {
+      perform(sourceAxisCount, sourceCoordinates, targetAxisCount,
+        targetCoordinates, 0, vertexCount);
+    }
+  }
+
+  /**
+   * Convert the vertices from startIndex (inclusive) to endIndex (exclusive).
+   */
+  private void perform(final int sourceAxisCount,
+    final double[] sourceCoordinates, final int targetAxisCount,
+    final double[] targetCoordinates, final int startIndex, final int endIndex) {
+    final double[] point = new double[2];
+    for (int vertexIndex = startIndex; vertexIndex < endIndex; vertexIndex++) {
+      final int sourceOffset = vertexIndex * sourceAxisCount;
+      final int targetOffset = vertexIndex * targetAxisCount;
+      double x = sourceCoordinates[sourceOffset];
+      double y = sourceCoordinates[sourceOffset + 1];
+      if (this.sourceConverter != null) {
+        x = this.sourceConverter.convert(x);
+        y = this.sourceConverter.convert(y);
+      }
+      if (this.sourceProjection != null) {
+        this.sourceProjection.inverse(x, y, point, 0, 2);
+        x = point[0];
+        y = point[1];
+      }
+      if (this.targetProjection != null) {
+        this.targetProjection.project(x, y, point, 0, 2);
+        x = point[0];
+        y = point[1];
+      }
+      if (this.targetConverter != null) {
+        x = this.targetConverter.convert(x);
+        y = this.targetConverter.convert(y);
+      }
+      targetCoordinates[targetOffset] = x;
+      targetCoordinates[targetOffset + 1] = y;
+      for (int axisIndex = 2; axisIndex < targetAxisCount; axisIndex++) {
+        if (axisIndex < sourceAxisCount) {
+          targetCoordinates[targetOffset + axisIndex] = sourceCoordinates[sourceOffset
+            + axisIndex];
+        } else {
+          targetCoordinates[targetOffset + axisIndex] = Double.NaN;
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    final StringBuilder string = new StringBuilder();
+    if (this.sourceProjection == null) {
+      string.append("geographics");
+    } else {
+      string.append(this.sourceProjection);
+    }
+    string.append(" -> ");
+    if (this.targetProjection == null) {
+      string.append("geographics");
+    } else {
+      string.append(this.targetProjection);
+    }
+    return string.toString();
+  }
+}
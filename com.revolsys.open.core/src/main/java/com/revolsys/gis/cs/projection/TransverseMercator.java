@@ -18,9 +18,24 @@ public class TransverseMercator extends AbstractCoordinatesProjection {
   /** The length in metres of the semi-major axis of the ellipsoid. */
   private final double a;
 
+  /** a * (1 - e ^ 2). */
+  private final double aOneMinusESq;
+
   /** The coordinate system providing the parameters for the projection. */
   private final ProjectedCoordinateSystem coordinateSystem;
 
+  /** The coefficient of sin(2 * μ1) in the series for ϕ1. */
+  private final double e1Coefficient2;
+
+  /** The coefficient of sin(4 * μ1) in the series for ϕ1. */
+  private final double e1Coefficient4;
+
+  /** The coefficient of sin(6 * μ1) in the series for ϕ1. */
+  private final double e1Coefficient6;
+
+  /** The coefficient of sin(8 * μ1) in the series for ϕ1. */
+  private final double e1Coefficient8;
+
   /** The eccentricity ^ 4 of the ellipsoid. */
   private final double ePow4;
 
@@ -42,6 +57,21 @@ public class TransverseMercator extends AbstractCoordinatesProjection {
   /** The value of m at the latitude of origin. */
   private final double m0;
 
+  /** The coefficient of ϕ in the series for m. */
+  private final double mCoefficient0;
+
+  /** The coefficient of sin(2 * ϕ) in the series for m. */
+  private final double mCoefficient2;
+
+  /** The coefficient of sin(4 * ϕ) in the series for m. */
+  private final double mCoefficient4;
+
+  /** The coefficient of sin(6 * ϕ) in the series for m. */
+  private final double mCoefficient6;
+
+  /** The divisor of M1 to calculate μ1. */
+  private final double muDivisor;
+
   /** False Easting. */
   private final double x0;
 
@@ -71,9 +101,28 @@ public class TransverseMercator extends AbstractCoordinatesProjection {
     this.eSq = spheroid.getEccentricitySquared();
     this.ePow4 = this.eSq * this.eSq;
     this.ePow6 = this.ePow4 * this.eSq;
+    this.aOneMinusESq = this.a * (1 - this.eSq);
+    this.mCoefficient0 = this.a
+      * (1 - this.eSq / 4 - 3 * this.ePow4 / 64 - 5 * this.ePow6 / 256);
+    this.mCoefficient2 = this.a
+      * (3 * this.eSq / 8 + 3 * this.ePow4 / 32 + 45 * this.ePow6 / 1024);
+    this.mCoefficient4 = this.a
+      * (15 * this.ePow4 / 256 + 45 * this.ePow6 / 1024);
+    this.mCoefficient6 = this.a * 35 * this.ePow6 / 3072;
+    this.muDivisor = this.mCoefficient0;
     this.m0 = m(phi0);
     this.ePrimeSq = this.eSq / (1 - this.eSq);
 
+    final double sqrt1MinusESq = Math.sqrt(1 - this.eSq);
+    final double e1 = (1 - sqrt1MinusESq) / (1 + sqrt1MinusESq);
+    final double e1Pow2 = e1 * e1;
+    final double e1Pow3 = e1Pow2 * e1;
+    final double e1Pow4 = e1Pow2 * e1Pow2;
+    this.e1Coefficient2 = 3 * e1 / 2 - 27 * e1Pow3 / 32;
+    this.e1Coefficient4 = 21 * e1Pow2 / 16 - 55 * e1Pow4 / 32;
+    this.e1Coefficient6 = 151 * e1Pow3 / 96;
+    this.e1Coefficient8 = 1097 * e1Pow4 / 512;
+
   }
 
   /**
@@ -120,17 +169,10 @@ public class TransverseMercator extends AbstractCoordinatesProjection {
     final double[] targetCoordinates, final int targetOffset,
     final int targetAxisCount) {
     final double m = this.m0 + (y - this.y0) / this.k0;
-    final double sqrt1MinusESq = Math.sqrt(1 - this.eSq);
-    final double e1 = (1 - sqrt1MinusESq) / (1 + sqrt1MinusESq);
-    final double mu = m
-        / (this.a * (1 - this.eSq / 4 - 3 * this.ePow4 / 64 - 5 * this.ePow6 / 256));
-    final double e1Pow2 = e1 * e1;
-    final double e1Pow3 = e1Pow2 * e1;
-    final double e1Pow4 = e1Pow2 * e1Pow2;
-    final double phi11 = mu + (3 * e1 / 2 - 27 * e1Pow3 / 32)
-        * Math.sin(2 * mu) + (21 * e1Pow2 / 16 - 55 * e1Pow4 / 32)
-        * Math.sin(4 * mu) + 151 * e1Pow3 / 96 * Math.sin(6 * mu)
-        + 1097 * e1Pow4 / 512 * Math.sin(8 * mu);
+    final double mu = m / this.muDivisor;
+    final double phi11 = mu + this.e1Coefficient2 * Math.sin(2 * mu)
+      + this.e1Coefficient4 * Math.sin(4 * mu) + this.e1Coefficient6
+      * Math.sin(6 * mu) + this.e1Coefficient8 * Math.sin(8 * mu);
 
     final double phi1 = phi11;
     final double cosPhi1 = Math.cos(phi1);
@@ -139,7 +181,7 @@ public class TransverseMercator extends AbstractCoordinatesProjection {
 
     final double oneMinusESqSinPhi1Sq = 1 - this.eSq * sinPhi * sinPhi;
     final double nu1 = this.a / Math.sqrt(oneMinusESqSinPhi1Sq);
-    final double rho1 = this.a * (1 - this.eSq)
+    final double rho1 = this.aOneMinusESq
         / (oneMinusESqSinPhi1Sq * Math.sqrt(oneMinusESqSinPhi1Sq));
     final double c1 = this.ePrimeSq * cosPhi1 * cosPhi1;
     final double d = (x - this.x0) / (nu1 * this.k0);
@@ -184,11 +226,9 @@ public class TransverseMercator extends AbstractCoordinatesProjection {
    * @return The value of m.
    */
   private double m(final double phi) {
-    return this.a
-        * ((1 - this.eSq / 4 - 3 * this.ePow4 / 64 - 5 * this.ePow6 / 256) * phi
-            - (3 * this.eSq / 8 + 3 * this.ePow4 / 32 + 45 * this.ePow6 / 1024)
-            * Math.sin(2 * phi) + (15 * this.ePow4 / 256 + 45 * this.ePow6 / 1024)
-            * Math.sin(4 * phi) - 35 * this.ePow6 / 3072 * Math.sin(6 * phi));
+    return this.mCoefficient0 * phi - this.mCoefficient2 * Math.sin(2 * phi)
+      + this.mCoefficient4 * Math.sin(4 * phi) - this.mCoefficient6
+      * Math.sin(6 * phi);
   }
 
   /**
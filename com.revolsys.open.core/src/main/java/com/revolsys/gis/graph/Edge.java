@@ -212,6 +212,14 @@ Externalizable {
     toNode.addInEdge(this);
   }
 
+  Edge(final int id, final Graph<T> graph, final int fromNodeId,
+    final int toNodeId) {
+    this.id = id;
+    this.graph = graph;
+    this.fromNodeId = fromNodeId;
+    this.toNodeId = toNodeId;
+  }
+
   @Override
   public int compareTo(final Edge<T> edge) {
     if (this == edge) {
@@ -344,6 +352,10 @@ Externalizable {
     return this.graph.getNode(this.fromNodeId);
   }
 
+  int getFromNodeId() {
+    return this.fromNodeId;
+  }
+
   public Graph<T> getGraph() {
     return this.graph;
   }
@@ -414,6 +426,10 @@ Externalizable {
     return this.graph.getNode(this.toNodeId);
   }
 
+  int getToNodeId() {
+    return this.toNodeId;
+  }
+
   public String getTypeName() {
     return this.graph.getTypeName(this);
   }
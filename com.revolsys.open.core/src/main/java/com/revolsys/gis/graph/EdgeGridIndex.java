@@ -0,0 +1,87 @@
+package com.revolsys.gis.graph;
+
+import java.util.List;
+
+import com.revolsys.collection.bplus.BPlusTreeMap;
+import com.revolsys.gis.algorithm.index.AbstractIdObjectGridIndex;
+import com.revolsys.io.page.IntArrayPageValueManager;
+import com.revolsys.io.page.PageValueManager;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * An index of the edges in a graph that stores the grid cells in a temporary
+ * disk based map. Used instead of an {@link EdgeQuadTree} for graphs that
+ * don't fit in memory.
+ */
+public class EdgeGridIndex<T> extends AbstractIdObjectGridIndex<Edge<T>> {
+  private static <T> double getCellSize(final Graph<T> graph) {
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    double totalSize = 0;
+    int count = 0;
+    for (final Integer edgeId : graph.getEdgeIds()) {
+      final Edge<T> edge = graph.getEdge(edgeId);
+      if (edge != null) {
+        final LineString line = edge.getLine();
+        if (line != null && !line.isEmpty()) {
+          final BoundingBox envelope = line.getBoundingBox();
+          minX = Math.min(minX, envelope.getMinX());
+          minY = Math.min(minY, envelope.getMinY());
+          maxX = Math.max(maxX, envelope.getMaxX());
+          maxY = Math.max(maxY, envelope.getMaxY());
+          totalSize += Math.max(envelope.getWidth(), envelope.getHeight());
+          count++;
+        }
+      }
+    }
+    if (count == 0) {
+      return getCellSize(new BoundingBoxDoubleGf(), 0, 0);
+    } else {
+      final BoundingBox boundingBox = new BoundingBoxDoubleGf(2, minX, minY,
+        maxX, maxY);
+      return getCellSize(boundingBox, count, totalSize / count);
+    }
+  }
+
+  private final Graph<T> graph;
+
+  public EdgeGridIndex(final Graph<T> graph) {
+    super(getCellSize(graph), BPlusTreeMap.createTempDisk(
+      PageValueManager.LONG, new IntArrayPageValueManager()));
+    this.graph = graph;
+    add(graph.getEdgeIds());
+  }
+
+  @Override
+  public BoundingBox getEnvelope(final Edge<T> edge) {
+    if (edge == null) {
+      return new BoundingBoxDoubleGf();
+    } else {
+      final LineString line = edge.getLine();
+      if (line == null) {
+        return new BoundingBoxDoubleGf();
+      } else {
+        return line.getBoundingBox();
+      }
+    }
+  }
+
+  @Override
+  public int getId(final Edge<T> edge) {
+    return edge.getId();
+  }
+
+  @Override
+  public Edge<T> getObject(final Integer id) {
+    return this.graph.getEdge(id);
+  }
+
+  @Override
+  public List<Edge<T>> getObjects(final List<Integer> ids) {
+    return this.graph.getEdges(ids);
+  }
+}
@@ -0,0 +1,63 @@
+package com.revolsys.gis.graph;
+
+import com.revolsys.io.page.MethodPageValueManager;
+import com.revolsys.io.page.Page;
+import com.revolsys.io.page.PageValueManager;
+
+/**
+ * Write the {@link Edge}s of a {@link Graph} as the edge id and the from and
+ * to node ids. The values have a fixed size of 12 bytes so they are stored in
+ * the B+ tree pages.
+ */
+public class EdgePageValueManager<T> implements PageValueManager<Edge<T>> {
+
+  private final Graph<T> graph;
+
+  public EdgePageValueManager(final Graph<T> graph) {
+    this.graph = graph;
+  }
+
+  @Override
+  public void disposeBytes(final byte[] bytes) {
+  }
+
+  @Override
+  public byte[] getBytes(final Edge<T> edge) {
+    final byte[] bytes = new byte[12];
+    setInt(bytes, 0, edge.getId());
+    setInt(bytes, 4, edge.getFromNodeId());
+    setInt(bytes, 8, edge.getToNodeId());
+    return bytes;
+  }
+
+  @Override
+  public byte[] getBytes(final Page page) {
+    return page.readBytes(12);
+  }
+
+  private int getInt(final byte[] bytes, final int offset) {
+    final byte[] intBytes = new byte[4];
+    System.arraycopy(bytes, offset, intBytes, 0, 4);
+    return MethodPageValueManager.getIntValue(intBytes);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V extends Edge<T>> V getValue(final byte[] bytes) {
+    final int id = getInt(bytes, 0);
+    final int fromNodeId = getInt(bytes, 4);
+    final int toNodeId = getInt(bytes, 8);
+    return (V)new Edge<T>(id, this.graph, fromNodeId, toNodeId);
+  }
+
+  @Override
+  public <V extends Edge<T>> V readFromPage(final Page page) {
+    final byte[] bytes = getBytes(page);
+    return getValue(bytes);
+  }
+
+  private void setInt(final byte[] bytes, final int offset, final int value) {
+    final byte[] intBytes = MethodPageValueManager.getValueIntBytes(value);
+    System.arraycopy(intBytes, 0, bytes, offset, 4);
+  }
+}
@@ -49,7 +49,10 @@ import com.revolsys.gis.model.coordinates.CoordinatesUtil;
 import com.revolsys.gis.model.coordinates.LineSegmentUtil;
 import com.revolsys.gis.model.coordinates.comparator.CoordinatesDistanceComparator;
 import com.revolsys.gis.model.coordinates.list.CoordinatesListUtil;
+import com.revolsys.io.page.LineStringPageValueManager;
+import com.revolsys.io.page.MapPageValueManager;
 import com.revolsys.io.page.PageValueManager;
+import com.revolsys.io.page.PointPageValueManager;
 import com.revolsys.io.page.SerializablePageValueManager;
 import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.jts.geom.Geometry;
@@ -104,8 +107,6 @@ public class Graph<T> {
 
   private Map<Integer, Edge<T>> edgesById = new IntHashMap<Edge<T>>();
 
-  private final Map<Edge<T>, Integer> edgeIds = new TreeMap<Edge<T>, Integer>();
-
   private GeometryFactory geometryFactory = GeometryFactory.floating3();
 
   private int nextEdgeId;
@@ -156,23 +157,31 @@ public class Graph<T> {
   protected Edge<T> addEdge(final T object, final LineString line,
     final Point from, final Point to) {
     if (this.inMemory && getEdgeCount() >= this.maxEdgesInMemory) {
-      this.edgeAttributesById = BPlusTreeMap.createIntSeralizableTempDisk(this.edgeAttributesById);
-      // TODO edgIds
-      // TODO edgeIndex
-      this.edgeLinesById = BPlusTreeMap.createIntSeralizableTempDisk(this.edgeLinesById);
-      this.edgeObjectsById = BPlusTreeMap.createIntSeralizableTempDisk(this.edgeObjectsById);
-      this.edgesById = BPlusTreeMap.createIntSeralizableTempDisk(this.edgesById);
-
-      // TODO nodeIndex
-      this.nodeAttributesById = BPlusTreeMap.createIntSeralizableTempDisk(this.nodeAttributesById);
-      this.nodesById = BPlusTreeMap.createIntSeralizableTempDisk(this.nodesById);
+      this.edgeAttributesById = BPlusTreeMap.createIntTempDisk(
+        this.edgeAttributesById, new MapPageValueManager());
+      this.edgeLinesById = BPlusTreeMap.createIntTempDisk(this.edgeLinesById,
+        new LineStringPageValueManager());
+      this.edgeObjectsById = BPlusTreeMap.createIntTempDisk(
+        this.edgeObjectsById, createObjectPageValueManager());
+      this.edgesById = BPlusTreeMap.createIntTempDisk(this.edgesById,
+        new EdgePageValueManager<T>(this));
+      this.edgeIndex = null;
+
+      this.nodeAttributesById = BPlusTreeMap.createIntTempDisk(
+        this.nodeAttributesById, new MapPageValueManager());
+      this.nodesById = BPlusTreeMap.createIntTempDisk(this.nodesById,
+        new NodePageValueManager<T>(this));
       this.nodesIdsByCoordinates = BPlusTreeMap.createTempDisk(
-        this.nodesIdsByCoordinates, new SerializablePageValueManager<Point>(),
+        this.nodesIdsByCoordinates, new PointPageValueManager(),
         PageValueManager.INT);
+      this.nodeIndex = null;
       this.inMemory = false;
     }
     final Node<T> fromNode = getNode(from);
-    final Node<T> toNode = getNode(to);
+    Node<T> toNode = getNode(to);
+    if (toNode.getId() == fromNode.getId()) {
+      toNode = fromNode;
+    }
     final int edgeId = ++this.nextEdgeId;
     final Edge<T> edge = new Edge<T>(edgeId, this, fromNode, toNode);
     if (this.edgeLinesById != null) {
@@ -180,7 +189,6 @@ public class Graph<T> {
     }
     this.edgeObjectsById.put(edgeId, object);
     this.edgesById.put(edgeId, edge);
-    this.edgeIds.put(edge, edgeId);
     if (this.edgeIndex != null) {
       this.edgeIndex.add(edge);
     }
@@ -221,13 +229,14 @@ public class Graph<T> {
   @PreDestroy
   public void close() {
     this.edgeAttributesById.clear();
-    this.edgeIds.clear();
-    // TODO edgeIndex
-    this.edgeLinesById.clear();
+    this.edgeIndex = null;
+    if (this.edgeLinesById != null) {
+      this.edgeLinesById.clear();
+    }
     this.edgeObjectsById.clear();
     this.edgesById.clear();
 
-    // TODO nodeIndex.clear();
+    this.nodeIndex = null;
     this.nodeAttributesById.clear();
     this.nodesIdsByCoordinates.clear();
   }
@@ -248,6 +257,16 @@ public class Graph<T> {
     return newEdge;
   }
 
+  /**
+   * Create the manager used to write the edge objects to disk when the graph
+   * has more than {@link #getMaxEdgesInMemory()} edges.
+   *
+   * @return The page value manager.
+   */
+  protected PageValueManager<T> createObjectPageValueManager() {
+    return new SerializablePageValueManager<T>();
+  }
+
   public void deleteEdges(final Filter<Edge<T>> filter) {
     final DeleteEdgeVisitor<T> visitor = new DeleteEdgeVisitor<T>();
     visitEdges(filter, visitor);
@@ -443,7 +462,11 @@ public class Graph<T> {
 
   public IdObjectIndex<Edge<T>> getEdgeIndex() {
     if (this.edgeIndex == null) {
-      this.edgeIndex = new EdgeQuadTree<T>(this);
+      if (this.inMemory) {
+        this.edgeIndex = new EdgeQuadTree<T>(this);
+      } else {
+        this.edgeIndex = new EdgeGridIndex<T>(this);
+      }
     }
     return this.edgeIndex;
   }
@@ -633,7 +656,11 @@ public class Graph<T> {
 
   public IdObjectIndex<Node<T>> getNodeIndex() {
     if (this.nodeIndex == null) {
-      this.nodeIndex = new NodeQuadTree<T>(this);
+      if (this.inMemory) {
+        this.nodeIndex = new NodeQuadTree<T>(this);
+      } else {
+        this.nodeIndex = new NodeGridIndex<T>(this);
+      }
     }
     return this.nodeIndex;
   }
@@ -947,16 +974,15 @@ public class Graph<T> {
     if (!edge.isRemoved()) {
       this.edgeListeners.edgeEvent(edge, null, EdgeEvent.EDGE_REMOVED, null);
       final int edgeId = edge.getId();
-      this.edgeIds.remove(edge);
+      if (this.edgeIndex != null) {
+        this.edgeIndex.remove(edge);
+      }
       this.edgesById.remove(edgeId);
       this.edgeAttributesById.remove(edgeId);
       if (this.edgeLinesById != null) {
         this.edgeLinesById.remove(edgeId);
       }
       this.edgeObjectsById.remove(edgeId);
-      if (this.edgeIndex != null) {
-        this.edgeIndex.remove(edge);
-      }
       edge.removeInternal();
     }
   }
@@ -974,12 +1000,12 @@ public class Graph<T> {
       this.nodeListeners.nodeEvent(node, null, null, NodeEvent.NODE_REMOVED,
         null);
       final int nodeId = node.getId();
-      this.nodesById.remove(nodeId);
-      this.nodeAttributesById.remove(nodeId);
-      this.nodesIdsByCoordinates.remove(node);
       if (this.nodeIndex != null) {
         this.nodeIndex.remove(node);
       }
+      this.nodesById.remove(nodeId);
+      this.nodeAttributesById.remove(nodeId);
+      this.nodesIdsByCoordinates.remove(node);
 
       node.remove();
     }
@@ -1040,9 +1066,9 @@ public class Graph<T> {
     Map<String, Object> attributes = this.edgeAttributesById.get(edgeId);
     if (attributes == null) {
       attributes = new HashMap<String, Object>();
-      this.edgeAttributesById.put(edgeId, attributes);
     }
     attributes.put(name, value);
+    this.edgeAttributesById.put(edgeId, attributes);
   }
 
   protected void setEdgeAttributes(final int edgeId,
@@ -1050,9 +1076,9 @@ public class Graph<T> {
     Map<String, Object> edgeAttributes = this.edgeAttributesById.get(edgeId);
     if (edgeAttributes == null) {
       edgeAttributes = new HashMap<String, Object>();
-      this.edgeAttributesById.put(edgeId, edgeAttributes);
     }
     edgeAttributes.putAll(attributes);
+    this.edgeAttributesById.put(edgeId, edgeAttributes);
   }
 
   public void setGeometryFactory(final GeometryFactory geometryFactory) {
@@ -1069,9 +1095,9 @@ public class Graph<T> {
     Map<String, Object> nodeAttributes = this.nodeAttributesById.get(edgeId);
     if (nodeAttributes == null) {
       nodeAttributes = new HashMap<String, Object>();
-      this.nodeAttributesById.put(edgeId, nodeAttributes);
     }
     nodeAttributes.put(name, value);
+    this.nodeAttributesById.put(edgeId, nodeAttributes);
   }
 
   protected void setNodeAttributes(final int edgeId,
@@ -1079,9 +1105,9 @@ public class Graph<T> {
     Map<String, Object> nodeAttributes = this.nodeAttributesById.get(edgeId);
     if (nodeAttributes == null) {
       nodeAttributes = new HashMap<String, Object>();
-      this.nodeAttributesById.put(edgeId, nodeAttributes);
     }
     nodeAttributes.putAll(attributes);
+    this.nodeAttributesById.put(edgeId, nodeAttributes);
   }
 
   public void setPrecisionModel(final GeometryFactory precisionModel) {
@@ -1322,6 +1348,19 @@ public class Graph<T> {
     return splitEdge(edge, Arrays.asList(nodes));
   }
 
+  /**
+   * Write the node back to the disk based map after the edges of the node were
+   * changed. Nodes read from disk are copies so the changes would otherwise be
+   * lost.
+   *
+   * @param node The node.
+   */
+  void updateNode(final Node<T> node) {
+    if (!this.inMemory) {
+      this.nodesById.put(node.getId(), node);
+    }
+  }
+
   public void visitEdges(final Comparator<Edge<T>> comparator,
     final Visitor<Edge<T>> visitor) {
     visitEdges(null, comparator, visitor);
@@ -126,6 +126,16 @@ Externalizable {
   public Node() {
   }
 
+  Node(final int nodeId, final Graph<T> graph, final double x, final double y,
+    final int[] inEdgeIds, final int[] outEdgeIds) {
+    this.id = nodeId;
+    this.graph = graph;
+    this.x = x;
+    this.y = y;
+    this.inEdgeIds = inEdgeIds;
+    this.outEdgeIds = outEdgeIds;
+  }
+
   protected Node(final int nodeId, final Graph<T> graph, final Point point) {
     this.id = nodeId;
     this.graph = graph;
@@ -145,11 +155,13 @@ Externalizable {
   protected void addInEdge(final Edge<T> edge) {
     this.inEdgeIds = addEdge(this.inEdgeIds, edge);
     updateAttributes();
+    this.graph.updateNode(this);
   }
 
   protected void addOutEdge(final Edge<T> edge) {
     this.outEdgeIds = addEdge(this.outEdgeIds, edge);
     updateAttributes();
+    this.graph.updateNode(this);
   }
 
   @Override
@@ -335,6 +347,10 @@ Externalizable {
     return this.id;
   }
 
+  int[] getInEdgeIds() {
+    return this.inEdgeIds;
+  }
+
   public int getInEdgeIndex(final Edge<T> edge) {
     return getInEdges().indexOf(edge);
   }
@@ -363,6 +379,10 @@ Externalizable {
     return graph.getEdge(this.outEdgeIds[nextIndex]);
   }
 
+  int[] getOutEdgeIds() {
+    return this.outEdgeIds;
+  }
+
   public int getOutEdgeIndex(final Edge<T> edge) {
     return getOutEdges().indexOf(edge);
   }
@@ -506,6 +526,7 @@ Externalizable {
         this.graph.remove(this);
       } else {
         updateAttributes();
+        this.graph.updateNode(this);
       }
     }
   }
@@ -0,0 +1,79 @@
+package com.revolsys.gis.graph;
+
+import java.util.List;
+
+import com.revolsys.collection.bplus.BPlusTreeMap;
+import com.revolsys.gis.algorithm.index.AbstractIdObjectGridIndex;
+import com.revolsys.io.page.IntArrayPageValueManager;
+import com.revolsys.io.page.PageValueManager;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * An index of the nodes in a graph that stores the grid cells in a temporary
+ * disk based map. Used instead of a {@link NodeQuadTree} for graphs that
+ * don't fit in memory.
+ */
+public class NodeGridIndex<T> extends AbstractIdObjectGridIndex<Node<T>> {
+  private static <T> double getCellSize(final Graph<T> graph) {
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    int count = 0;
+    for (final Integer nodeId : graph.getNodeIds()) {
+      final Node<T> node = graph.getNode(nodeId);
+      if (node != null) {
+        final double x = node.getX();
+        final double y = node.getY();
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        count++;
+      }
+    }
+    if (count == 0) {
+      return getCellSize(new BoundingBoxDoubleGf(), 0, 0);
+    } else {
+      final BoundingBox boundingBox = new BoundingBoxDoubleGf(2, minX, minY,
+        maxX, maxY);
+      return getCellSize(boundingBox, count, 0);
+    }
+  }
+
+  private final Graph<T> graph;
+
+  public NodeGridIndex(final Graph<T> graph) {
+    super(getCellSize(graph), BPlusTreeMap.createTempDisk(
+      PageValueManager.LONG, new IntArrayPageValueManager()));
+    this.graph = graph;
+    add(graph.getNodeIds());
+  }
+
+  @Override
+  public BoundingBox getEnvelope(final Node<T> node) {
+    if (node == null) {
+      return new BoundingBoxDoubleGf();
+    } else {
+      final double x = node.getX();
+      final double y = node.getY();
+      return new BoundingBoxDoubleGf(2, x, y, x, y);
+    }
+  }
+
+  @Override
+  public int getId(final Node<T> node) {
+    return node.getId();
+  }
+
+  @Override
+  public Node<T> getObject(final Integer id) {
+    return this.graph.getNode(id);
+  }
+
+  @Override
+  public List<Node<T>> getObjects(final List<Integer> ids) {
+    return this.graph.getNodes(ids);
+  }
+}
@@ -0,0 +1,40 @@
+package com.revolsys.gis.graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.revolsys.io.page.BinaryPageValueManager;
+
+/**
+ * Write the {@link Node}s of a {@link Graph} as the node id, the x, y
+ * coordinates and the ids of the in and out edges.
+ */
+public class NodePageValueManager<T> extends BinaryPageValueManager<Node<T>> {
+
+  private final Graph<T> graph;
+
+  public NodePageValueManager(final Graph<T> graph) {
+    this.graph = graph;
+  }
+
+  @Override
+  protected Node<T> readValue(final DataInput in) throws IOException {
+    final int id = readVarInt(in);
+    final double x = in.readDouble();
+    final double y = in.readDouble();
+    final int[] inEdgeIds = readIntArray(in);
+    final int[] outEdgeIds = readIntArray(in);
+    return new Node<T>(id, this.graph, x, y, inEdgeIds, outEdgeIds);
+  }
+
+  @Override
+  protected void writeValue(final DataOutput out, final Node<T> node)
+    throws IOException {
+    writeVarInt(out, node.getId());
+    out.writeDouble(node.getX());
+    out.writeDouble(node.getY());
+    writeIntArray(out, node.getInEdgeIds());
+    writeIntArray(out, node.getOutEdgeIds());
+  }
+}
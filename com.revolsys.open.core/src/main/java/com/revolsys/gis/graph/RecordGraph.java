@@ -11,6 +11,8 @@ import com.revolsys.data.record.property.DirectionalAttributes;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.filter.Filter;
 import com.revolsys.gis.graph.filter.EdgeObjectFilter;
+import com.revolsys.io.page.PageValueManager;
+import com.revolsys.io.page.RecordPageValueManager;
 import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.LineString;
 import com.revolsys.jts.geom.Point;
@@ -65,6 +67,11 @@ public class RecordGraph extends Graph<Record> {
     }
   }
 
+  @Override
+  protected PageValueManager<Record> createObjectPageValueManager() {
+    return new RecordPageValueManager();
+  }
+
   public Edge<Record> getEdge(final Record record) {
     final LineString line = record.getGeometryValue();
     final Point fromPoint = line.getPoint(0);
@@ -0,0 +1,116 @@
+package com.revolsys.gis.graph.route;
+
+/**
+ * <p>A contraction hierarchy created from a {@link RoutingGraph} for fast
+ * point to point shortest path queries using a
+ * {@link ContractionHierarchySearch}.</p>
+ *
+ * <p>The nodes are contracted in order of importance. Contracting a node
+ * removes it from the remaining graph and adds shortcut arcs between its
+ * neighbours where the path through the node is the only shortest path. The
+ * hierarchy stores the upward arcs leaving each node (to nodes contracted
+ * later) and the upward arcs entering each node (from nodes contracted
+ * later). A query is a bidirectional Dijkstra search that only follows upward
+ * arcs, so it settles a small number of nodes. Shortcuts store the contracted
+ * middle node so the path can be expanded back to graph edges.</p>
+ */
+public class ContractionHierarchy {
+  /**
+   * Create a contraction hierarchy for the routing graph.
+   *
+   * @param graph The routing graph.
+   * @return The contraction hierarchy.
+   */
+  public static ContractionHierarchy create(final RoutingGraph graph) {
+    return new ContractionHierarchyBuilder(graph).build();
+  }
+
+  private final RoutingGraph graph;
+
+  private final int[] ranks;
+
+  final int[] upOffsets;
+
+  final int[] upNodes;
+
+  final double[] upCosts;
+
+  final int[] upMiddles;
+
+  final int[] upEdgeIds;
+
+  final int[] downOffsets;
+
+  final int[] downNodes;
+
+  final double[] downCosts;
+
+  final int[] downMiddles;
+
+  final int[] downEdgeIds;
+
+  private final int shortcutCount;
+
+  ContractionHierarchy(final RoutingGraph graph, final int[] ranks,
+    final int[] upOffsets, final int[] upNodes, final double[] upCosts,
+    final int[] upMiddles, final int[] upEdgeIds, final int[] downOffsets,
+    final int[] downNodes, final double[] downCosts, final int[] downMiddles,
+    final int[] downEdgeIds, final int shortcutCount) {
+    this.graph = graph;
+    this.ranks = ranks;
+    this.upOffsets = upOffsets;
+    this.upNodes = upNodes;
+    this.upCosts = upCosts;
+    this.upMiddles = upMiddles;
+    this.upEdgeIds = upEdgeIds;
+    this.downOffsets = downOffsets;
+    this.downNodes = downNodes;
+    this.downCosts = downCosts;
+    this.downMiddles = downMiddles;
+    this.downEdgeIds = downEdgeIds;
+    this.shortcutCount = shortcutCount;
+  }
+
+  /**
+   * Get the index of the arc entering the node from the higher ranked node, or
+   * -1 if there isn't one.
+   */
+  int getDownArc(final int nodeIndex, final int fromNodeIndex) {
+    final int endArc = this.downOffsets[nodeIndex + 1];
+    for (int arc = this.downOffsets[nodeIndex]; arc < endArc; arc++) {
+      if (this.downNodes[arc] == fromNodeIndex) {
+        return arc;
+      }
+    }
+    return -1;
+  }
+
+  public RoutingGraph getGraph() {
+    return this.graph;
+  }
+
+  /**
+   * Get the order the node was contracted in.
+   */
+  public int getRank(final int nodeIndex) {
+    return this.ranks[nodeIndex];
+  }
+
+  public int getShortcutCount() {
+    return this.shortcutCount;
+  }
+
+  /**
+   * Get the index of the arc leaving the node to the higher ranked node, or -1
+   * if there isn't one.
+   */
+  int getUpArc(final int nodeIndex, final int toNodeIndex) {
+    final int endArc = this.upOffsets[nodeIndex + 1];
+    for (int arc = this.upOffsets[nodeIndex]; arc < endArc; arc++) {
+      if (this.upNodes[arc] == toNodeIndex) {
+        return arc;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,401 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.Arrays;
+
+/**
+ * Contract the nodes of a {@link RoutingGraph} to create a
+ * {@link ContractionHierarchy}. The next node to contract is the node with the
+ * lowest priority, where the priority is twice the number of shortcuts
+ * contracting the node would add minus the number of arcs it would remove,
+ * plus the number of neighbours that have already been contracted and the
+ * level of the node in the hierarchy so the contraction is spread evenly over
+ * the graph. The priorities of the neighbours of a node are updated when it is
+ * contracted and the priority of a node is checked again when it is removed
+ * from the queue.
+ */
+class ContractionHierarchyBuilder {
+  /**
+   * The arcs entering or leaving a node in the remaining graph. There is at
+   * most one arc to each other node, the one with the lowest cost.
+   */
+  private static class ArcList {
+    private int[] nodes = new int[4];
+
+    private double[] costs = new double[4];
+
+    private int[] middles = new int[4];
+
+    private int[] edgeIds = new int[4];
+
+    private int size;
+
+    public void add(final int node, final double cost, final int middle,
+      final int edgeId) {
+      final int index = indexOf(node);
+      if (index == -1) {
+        if (this.size == this.nodes.length) {
+          final int newLength = this.size * 2;
+          this.nodes = Arrays.copyOf(this.nodes, newLength);
+          this.costs = Arrays.copyOf(this.costs, newLength);
+          this.middles = Arrays.copyOf(this.middles, newLength);
+          this.edgeIds = Arrays.copyOf(this.edgeIds, newLength);
+        }
+        this.nodes[this.size] = node;
+        this.costs[this.size] = cost;
+        this.middles[this.size] = middle;
+        this.edgeIds[this.size] = edgeId;
+        this.size++;
+      } else if (cost < this.costs[index]) {
+        this.costs[index] = cost;
+        this.middles[index] = middle;
+        this.edgeIds[index] = edgeId;
+      }
+    }
+
+    public int indexOf(final int node) {
+      for (int i = 0; i < this.size; i++) {
+        if (this.nodes[i] == node) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    public void remove(final int node) {
+      final int index = indexOf(node);
+      if (index != -1) {
+        this.size--;
+        this.nodes[index] = this.nodes[this.size];
+        this.costs[index] = this.costs[this.size];
+        this.middles[index] = this.middles[this.size];
+        this.edgeIds[index] = this.edgeIds[this.size];
+      }
+    }
+  }
+
+  /**
+   * The maximum number of nodes a witness search will settle before assuming
+   * there is no witness path and adding a shortcut.
+   */
+  private static final int MAX_WITNESS_SETTLED_COUNT = 200;
+
+  /**
+   * The maximum number of nodes a witness search will settle when counting the
+   * shortcuts to calculate the priority of a node.
+   */
+  private static final int MAX_SIMULATE_WITNESS_SETTLED_COUNT = 20;
+
+  private final RoutingGraph graph;
+
+  private final int nodeCount;
+
+  private final ArcList[] outArcs;
+
+  private final ArcList[] inArcs;
+
+  private final int[] ranks;
+
+  private final int[] contractedNeighbourCounts;
+
+  private final int[] levels;
+
+  private final double[] witnessCosts;
+
+  private final int[] witnessQueryNumbers;
+
+  private final NodeHeap witnessHeap;
+
+  private int witnessQueryNumber;
+
+  private int upArcCount;
+
+  private int[] upArcFroms = new int[16];
+
+  private int[] upArcTos = new int[16];
+
+  private double[] upArcCosts = new double[16];
+
+  private int[] upArcMiddles = new int[16];
+
+  private int[] upArcEdgeIds = new int[16];
+
+  private int downArcCount;
+
+  private int[] downArcFroms = new int[16];
+
+  private int[] downArcTos = new int[16];
+
+  private double[] downArcCosts = new double[16];
+
+  private int[] downArcMiddles = new int[16];
+
+  private int[] downArcEdgeIds = new int[16];
+
+  private int shortcutCount;
+
+  public ContractionHierarchyBuilder(final RoutingGraph graph) {
+    this.graph = graph;
+    this.nodeCount = graph.getNodeCount();
+    this.outArcs = new ArcList[this.nodeCount];
+    this.inArcs = new ArcList[this.nodeCount];
+    this.ranks = new int[this.nodeCount];
+    Arrays.fill(this.ranks, -1);
+    this.contractedNeighbourCounts = new int[this.nodeCount];
+    this.levels = new int[this.nodeCount];
+    this.witnessCosts = new double[this.nodeCount];
+    this.witnessQueryNumbers = new int[this.nodeCount];
+    this.witnessHeap = new NodeHeap(this.nodeCount);
+    for (int node = 0; node < this.nodeCount; node++) {
+      this.outArcs[node] = new ArcList();
+      this.inArcs[node] = new ArcList();
+    }
+    for (int from = 0; from < this.nodeCount; from++) {
+      final int endArc = graph.outOffsets[from + 1];
+      for (int arc = graph.outOffsets[from]; arc < endArc; arc++) {
+        final int to = graph.outNodes[arc];
+        if (from != to) {
+          final double cost = graph.outCosts[arc];
+          final int edgeId = graph.outEdgeIds[arc];
+          this.outArcs[from].add(to, cost, -1, edgeId);
+          this.inArcs[to].add(from, cost, -1, edgeId);
+        }
+      }
+    }
+  }
+
+  private void addDownArc(final int node, final int fromNode,
+    final double cost, final int middle, final int edgeId) {
+    if (this.downArcCount == this.downArcFroms.length) {
+      final int newLength = this.downArcCount * 2;
+      this.downArcFroms = Arrays.copyOf(this.downArcFroms, newLength);
+      this.downArcTos = Arrays.copyOf(this.downArcTos, newLength);
+      this.downArcCosts = Arrays.copyOf(this.downArcCosts, newLength);
+      this.downArcMiddles = Arrays.copyOf(this.downArcMiddles, newLength);
+      this.downArcEdgeIds = Arrays.copyOf(this.downArcEdgeIds, newLength);
+    }
+    this.downArcFroms[this.downArcCount] = fromNode;
+    this.downArcTos[this.downArcCount] = node;
+    this.downArcCosts[this.downArcCount] = cost;
+    this.downArcMiddles[this.downArcCount] = middle;
+    this.downArcEdgeIds[this.downArcCount] = edgeId;
+    this.downArcCount++;
+  }
+
+  private void addUpArc(final int node, final int toNode, final double cost,
+    final int middle, final int edgeId) {
+    if (this.upArcCount == this.upArcFroms.length) {
+      final int newLength = this.upArcCount * 2;
+      this.upArcFroms = Arrays.copyOf(this.upArcFroms, newLength);
+      this.upArcTos = Arrays.copyOf(this.upArcTos, newLength);
+      this.upArcCosts = Arrays.copyOf(this.upArcCosts, newLength);
+      this.upArcMiddles = Arrays.copyOf(this.upArcMiddles, newLength);
+      this.upArcEdgeIds = Arrays.copyOf(this.upArcEdgeIds, newLength);
+    }
+    this.upArcFroms[this.upArcCount] = node;
+    this.upArcTos[this.upArcCount] = toNode;
+    this.upArcCosts[this.upArcCount] = cost;
+    this.upArcMiddles[this.upArcCount] = middle;
+    this.upArcEdgeIds[this.upArcCount] = edgeId;
+    this.upArcCount++;
+  }
+
+  public ContractionHierarchy build() {
+    final NodeHeap queue = new NodeHeap(this.nodeCount);
+    for (int node = 0; node < this.nodeCount; node++) {
+      queue.update(node, getPriority(node));
+    }
+    int rank = 0;
+    while (!queue.isEmpty()) {
+      final int node = queue.poll();
+      final double priority = getPriority(node);
+      if (priority > queue.peekKey()) {
+        queue.update(node, priority);
+      } else {
+        final ArcList outArcs = this.outArcs[node];
+        final ArcList inArcs = this.inArcs[node];
+        contract(node, false);
+        this.ranks[node] = rank++;
+        for (int i = 0; i < outArcs.size; i++) {
+          final int neighbour = outArcs.nodes[i];
+          queue.update(neighbour, getPriority(neighbour));
+        }
+        for (int i = 0; i < inArcs.size; i++) {
+          final int neighbour = inArcs.nodes[i];
+          queue.update(neighbour, getPriority(neighbour));
+        }
+      }
+    }
+
+    final int[] upOffsets = new int[this.nodeCount + 1];
+    final int[] upNodes = new int[this.upArcCount];
+    final double[] upCosts = new double[this.upArcCount];
+    final int[] upMiddles = new int[this.upArcCount];
+    final int[] upEdgeIds = new int[this.upArcCount];
+    toCompressedRows(this.upArcCount, this.upArcFroms, this.upArcTos,
+      this.upArcCosts, this.upArcMiddles, this.upArcEdgeIds, upOffsets,
+      upNodes, upCosts, upMiddles, upEdgeIds);
+
+    final int[] downOffsets = new int[this.nodeCount + 1];
+    final int[] downNodes = new int[this.downArcCount];
+    final double[] downCosts = new double[this.downArcCount];
+    final int[] downMiddles = new int[this.downArcCount];
+    final int[] downEdgeIds = new int[this.downArcCount];
+    toCompressedRows(this.downArcCount, this.downArcTos, this.downArcFroms,
+      this.downArcCosts, this.downArcMiddles, this.downArcEdgeIds,
+      downOffsets, downNodes, downCosts, downMiddles, downEdgeIds);
+
+    return new ContractionHierarchy(this.graph, this.ranks, upOffsets,
+      upNodes, upCosts, upMiddles, upEdgeIds, downOffsets, downNodes,
+      downCosts, downMiddles, downEdgeIds, this.shortcutCount);
+  }
+
+  /**
+   * Contract the node, adding shortcuts between the neighbours of the node
+   * where there is no witness path of the same or lower cost that doesn't go
+   * through the node.
+   *
+   * @param node The node to contract.
+   * @param simulate True if the shortcuts should only be counted.
+   * @return The number of shortcuts.
+   */
+  private int contract(final int node, final boolean simulate) {
+    int shortcutCount = 0;
+    final ArcList inArcs = this.inArcs[node];
+    final ArcList outArcs = this.outArcs[node];
+    if (outArcs.size > 0) {
+      double maxOutCost = 0;
+      for (int j = 0; j < outArcs.size; j++) {
+        maxOutCost = Math.max(maxOutCost, outArcs.costs[j]);
+      }
+      for (int i = 0; i < inArcs.size; i++) {
+        final int fromNode = inArcs.nodes[i];
+        final double inCost = inArcs.costs[i];
+        if (simulate) {
+          searchWitness(fromNode, node, outArcs, inCost + maxOutCost,
+            MAX_SIMULATE_WITNESS_SETTLED_COUNT);
+        } else {
+          searchWitness(fromNode, node, outArcs, inCost + maxOutCost,
+            MAX_WITNESS_SETTLED_COUNT);
+        }
+        for (int j = 0; j < outArcs.size; j++) {
+          final int toNode = outArcs.nodes[j];
+          if (toNode != fromNode) {
+            final double cost = inCost + outArcs.costs[j];
+            if (getWitnessCost(toNode) > cost) {
+              shortcutCount++;
+              if (!simulate) {
+                this.outArcs[fromNode].add(toNode, cost, node, -1);
+                this.inArcs[toNode].add(fromNode, cost, node, -1);
+              }
+            }
+          }
+        }
+      }
+    }
+    if (!simulate) {
+      this.shortcutCount += shortcutCount;
+      for (int j = 0; j < outArcs.size; j++) {
+        final int toNode = outArcs.nodes[j];
+        addUpArc(node, toNode, outArcs.costs[j], outArcs.middles[j],
+          outArcs.edgeIds[j]);
+        this.inArcs[toNode].remove(node);
+        this.contractedNeighbourCounts[toNode]++;
+        this.levels[toNode] = Math.max(this.levels[toNode],
+          this.levels[node] + 1);
+      }
+      for (int i = 0; i < inArcs.size; i++) {
+        final int fromNode = inArcs.nodes[i];
+        addDownArc(node, fromNode, inArcs.costs[i], inArcs.middles[i],
+          inArcs.edgeIds[i]);
+        this.outArcs[fromNode].remove(node);
+        this.contractedNeighbourCounts[fromNode]++;
+        this.levels[fromNode] = Math.max(this.levels[fromNode],
+          this.levels[node] + 1);
+      }
+      this.inArcs[node] = null;
+      this.outArcs[node] = null;
+    }
+    return shortcutCount;
+  }
+
+  private double getPriority(final int node) {
+    final int shortcutCount = contract(node, true);
+    final int arcCount = this.inArcs[node].size + this.outArcs[node].size;
+    return 2 * (shortcutCount - arcCount) + this.contractedNeighbourCounts[node]
+      + this.levels[node];
+  }
+
+  private double getWitnessCost(final int node) {
+    if (this.witnessQueryNumbers[node] == this.witnessQueryNumber) {
+      return this.witnessCosts[node];
+    } else {
+      return Double.POSITIVE_INFINITY;
+    }
+  }
+
+  /**
+   * Find the cost of the paths from the start node to the other nodes in the
+   * remaining graph that don't go through the ignored node, up to the maximum
+   * cost or until the nodes at the end of the target arcs are settled.
+   */
+  private void searchWitness(final int fromNode, final int ignoreNode,
+    final ArcList targetArcs, final double maxCost, final int maxSettledCount) {
+    this.witnessQueryNumber++;
+    if (this.witnessQueryNumber == Integer.MAX_VALUE) {
+      Arrays.fill(this.witnessQueryNumbers, 0);
+      this.witnessQueryNumber = 1;
+    }
+    final int queryNumber = this.witnessQueryNumber;
+    final NodeHeap heap = this.witnessHeap;
+    heap.clear();
+    this.witnessQueryNumbers[fromNode] = queryNumber;
+    this.witnessCosts[fromNode] = 0;
+    heap.update(fromNode, 0);
+    int settledCount = 0;
+    int targetCount = targetArcs.size;
+    while (!heap.isEmpty() && settledCount < maxSettledCount
+      && targetCount > 0) {
+      final int node = heap.poll();
+      settledCount++;
+      final double nodeCost = this.witnessCosts[node];
+      if (nodeCost > maxCost) {
+        break;
+      }
+      if (targetArcs.indexOf(node) != -1) {
+        targetCount--;
+      }
+      final ArcList arcs = this.outArcs[node];
+      for (int i = 0; i < arcs.size; i++) {
+        final int toNode = arcs.nodes[i];
+        if (toNode != ignoreNode) {
+          final double toCost = nodeCost + arcs.costs[i];
+          if (toCost < getWitnessCost(toNode)) {
+            this.witnessQueryNumbers[toNode] = queryNumber;
+            this.witnessCosts[toNode] = toCost;
+            heap.update(toNode, toCost);
+          }
+        }
+      }
+    }
+  }
+
+  private void toCompressedRows(final int arcCount, final int[] arcFroms,
+    final int[] arcTos, final double[] arcCosts, final int[] arcMiddles,
+    final int[] arcEdgeIds, final int[] offsets, final int[] nodes,
+    final double[] costs, final int[] middles, final int[] edgeIds) {
+    for (int i = 0; i < arcCount; i++) {
+      offsets[arcFroms[i] + 1]++;
+    }
+    for (int i = 0; i < this.nodeCount; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+    final int[] indexes = Arrays.copyOf(offsets, this.nodeCount);
+    for (int i = 0; i < arcCount; i++) {
+      final int index = indexes[arcFroms[i]]++;
+      nodes[index] = arcTos[i];
+      costs[index] = arcCosts[i];
+      middles[index] = arcMiddles[i];
+      edgeIds[index] = arcEdgeIds[i];
+    }
+  }
+}
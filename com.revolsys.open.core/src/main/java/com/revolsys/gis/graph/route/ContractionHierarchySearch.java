@@ -0,0 +1,259 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.Arrays;
+
+/**
+ * <p>Shortest path queries on a {@link ContractionHierarchy} using a
+ * bidirectional Dijkstra search that only follows arcs to higher ranked nodes.
+ * The search state is allocated when the search is created and reused for
+ * each query, so a query doesn't allocate any memory.</p>
+ *
+ * <p>Instances aren't thread safe; create one search per thread. The
+ * contraction hierarchy can be shared.</p>
+ */
+public class ContractionHierarchySearch {
+  private final ContractionHierarchy hierarchy;
+
+  private final double[] forwardCosts;
+
+  private final int[] forwardParentArcs;
+
+  private final int[] forwardParentNodes;
+
+  private final int[] forwardQueryNumbers;
+
+  private final NodeHeap forwardHeap;
+
+  private final double[] backwardCosts;
+
+  private final int[] backwardParentArcs;
+
+  private final int[] backwardParentNodes;
+
+  private final int[] backwardQueryNumbers;
+
+  private final NodeHeap backwardHeap;
+
+  private int queryNumber;
+
+  private int fromNodeIndex = -1;
+
+  private int toNodeIndex = -1;
+
+  private int meetingNodeIndex = -1;
+
+  private double cost = Double.POSITIVE_INFINITY;
+
+  private int settledCount;
+
+  private int[] edgeIds = new int[16];
+
+  private int edgeCount;
+
+  public ContractionHierarchySearch(final ContractionHierarchy hierarchy) {
+    this.hierarchy = hierarchy;
+    final int nodeCount = hierarchy.getGraph().getNodeCount();
+    this.forwardCosts = new double[nodeCount];
+    this.forwardParentArcs = new int[nodeCount];
+    this.forwardParentNodes = new int[nodeCount];
+    this.forwardQueryNumbers = new int[nodeCount];
+    this.forwardHeap = new NodeHeap(nodeCount);
+    this.backwardCosts = new double[nodeCount];
+    this.backwardParentArcs = new int[nodeCount];
+    this.backwardParentNodes = new int[nodeCount];
+    this.backwardQueryNumbers = new int[nodeCount];
+    this.backwardHeap = new NodeHeap(nodeCount);
+  }
+
+  private void addEdgeId(final int edgeId) {
+    if (this.edgeCount == this.edgeIds.length) {
+      this.edgeIds = Arrays.copyOf(this.edgeIds, this.edgeCount * 2);
+    }
+    this.edgeIds[this.edgeCount++] = edgeId;
+  }
+
+  /**
+   * Find the lowest cost path between two nodes.
+   *
+   * @param fromNodeIndex The index of the start node.
+   * @param toNodeIndex The index of the end node.
+   * @return The cost of the path, or {@link Double#POSITIVE_INFINITY} if there
+   * is no path.
+   */
+  public double findPath(final int fromNodeIndex, final int toNodeIndex) {
+    final ContractionHierarchy hierarchy = this.hierarchy;
+    final int[] upOffsets = hierarchy.upOffsets;
+    final int[] upNodes = hierarchy.upNodes;
+    final double[] upCosts = hierarchy.upCosts;
+    final int[] downOffsets = hierarchy.downOffsets;
+    final int[] downNodes = hierarchy.downNodes;
+    final double[] downCosts = hierarchy.downCosts;
+    final double[] forwardCosts = this.forwardCosts;
+    final int[] forwardParentArcs = this.forwardParentArcs;
+    final int[] forwardParentNodes = this.forwardParentNodes;
+    final int[] forwardQueryNumbers = this.forwardQueryNumbers;
+    final NodeHeap forwardHeap = this.forwardHeap;
+    final double[] backwardCosts = this.backwardCosts;
+    final int[] backwardParentArcs = this.backwardParentArcs;
+    final int[] backwardParentNodes = this.backwardParentNodes;
+    final int[] backwardQueryNumbers = this.backwardQueryNumbers;
+    final NodeHeap backwardHeap = this.backwardHeap;
+
+    this.queryNumber++;
+    if (this.queryNumber == Integer.MAX_VALUE) {
+      Arrays.fill(forwardQueryNumbers, 0);
+      Arrays.fill(backwardQueryNumbers, 0);
+      this.queryNumber = 1;
+    }
+    final int queryNumber = this.queryNumber;
+    this.fromNodeIndex = fromNodeIndex;
+    this.toNodeIndex = toNodeIndex;
+    this.meetingNodeIndex = -1;
+    this.settledCount = 0;
+    double bestCost = Double.POSITIVE_INFINITY;
+    forwardHeap.clear();
+    backwardHeap.clear();
+
+    forwardQueryNumbers[fromNodeIndex] = queryNumber;
+    forwardCosts[fromNodeIndex] = 0;
+    forwardHeap.update(fromNodeIndex, 0);
+    backwardQueryNumbers[toNodeIndex] = queryNumber;
+    backwardCosts[toNodeIndex] = 0;
+    backwardHeap.update(toNodeIndex, 0);
+
+    while (true) {
+      final double forwardKey = forwardHeap.peekKey();
+      final double backwardKey = backwardHeap.peekKey();
+      if (forwardKey >= bestCost && backwardKey >= bestCost) {
+        break;
+      } else if (forwardKey <= backwardKey) {
+        final int node = forwardHeap.poll();
+        this.settledCount++;
+        final double nodeCost = forwardCosts[node];
+        if (backwardQueryNumbers[node] == queryNumber) {
+          final double pathCost = nodeCost + backwardCosts[node];
+          if (pathCost < bestCost) {
+            bestCost = pathCost;
+            this.meetingNodeIndex = node;
+          }
+        }
+        final int endArc = upOffsets[node + 1];
+        for (int arc = upOffsets[node]; arc < endArc; arc++) {
+          final int toNode = upNodes[arc];
+          final double toCost = nodeCost + upCosts[arc];
+          if (forwardQueryNumbers[toNode] != queryNumber
+            || toCost < forwardCosts[toNode]) {
+            forwardQueryNumbers[toNode] = queryNumber;
+            forwardCosts[toNode] = toCost;
+            forwardParentArcs[toNode] = arc;
+            forwardParentNodes[toNode] = node;
+            forwardHeap.update(toNode, toCost);
+          }
+        }
+      } else {
+        final int node = backwardHeap.poll();
+        this.settledCount++;
+        final double nodeCost = backwardCosts[node];
+        if (forwardQueryNumbers[node] == queryNumber) {
+          final double pathCost = nodeCost + forwardCosts[node];
+          if (pathCost < bestCost) {
+            bestCost = pathCost;
+            this.meetingNodeIndex = node;
+          }
+        }
+        final int endArc = downOffsets[node + 1];
+        for (int arc = downOffsets[node]; arc < endArc; arc++) {
+          final int fromNode = downNodes[arc];
+          final double fromCost = nodeCost + downCosts[arc];
+          if (backwardQueryNumbers[fromNode] != queryNumber
+            || fromCost < backwardCosts[fromNode]) {
+            backwardQueryNumbers[fromNode] = queryNumber;
+            backwardCosts[fromNode] = fromCost;
+            backwardParentArcs[fromNode] = arc;
+            backwardParentNodes[fromNode] = node;
+            backwardHeap.update(fromNode, fromCost);
+          }
+        }
+      }
+    }
+    this.cost = bestCost;
+    return bestCost;
+  }
+
+  /**
+   * Get the cost of the path found by the last search.
+   */
+  public double getCost() {
+    return this.cost;
+  }
+
+  /**
+   * Get the ids of the graph edges along the path found by the last search,
+   * in order from the start node. Shortcuts are expanded to the edges they
+   * replace.
+   */
+  public int[] getEdgeIds() {
+    this.edgeCount = 0;
+    if (this.meetingNodeIndex != -1) {
+      final ContractionHierarchy hierarchy = this.hierarchy;
+      int forwardCount = 0;
+      int node = this.meetingNodeIndex;
+      while (node != this.fromNodeIndex) {
+        forwardCount++;
+        node = this.forwardParentNodes[node];
+      }
+      final int[] forwardNodes = new int[forwardCount + 1];
+      node = this.meetingNodeIndex;
+      for (int i = forwardCount; i >= 0; i--) {
+        forwardNodes[i] = node;
+        node = this.forwardParentNodes[node];
+      }
+      for (int i = 0; i < forwardCount; i++) {
+        final int toNode = forwardNodes[i + 1];
+        final int arc = this.forwardParentArcs[toNode];
+        unpack(forwardNodes[i], toNode, hierarchy.upMiddles[arc],
+          hierarchy.upEdgeIds[arc]);
+      }
+
+      node = this.meetingNodeIndex;
+      while (node != this.toNodeIndex) {
+        final int arc = this.backwardParentArcs[node];
+        final int toNode = this.backwardParentNodes[node];
+        unpack(node, toNode, hierarchy.downMiddles[arc],
+          hierarchy.downEdgeIds[arc]);
+        node = toNode;
+      }
+    }
+    return Arrays.copyOf(this.edgeIds, this.edgeCount);
+  }
+
+  public ContractionHierarchy getHierarchy() {
+    return this.hierarchy;
+  }
+
+  /**
+   * Get the number of nodes settled by the last search.
+   */
+  public int getSettledCount() {
+    return this.settledCount;
+  }
+
+  /**
+   * Add the edge ids for the arc from the from node to the to node, expanding
+   * shortcuts to the arcs into and out of the middle node.
+   */
+  private void unpack(final int fromNode, final int toNode, final int middle,
+    final int edgeId) {
+    if (middle == -1) {
+      addEdgeId(edgeId);
+    } else {
+      final ContractionHierarchy hierarchy = this.hierarchy;
+      final int downArc = hierarchy.getDownArc(middle, fromNode);
+      unpack(fromNode, middle, hierarchy.downMiddles[downArc],
+        hierarchy.downEdgeIds[downArc]);
+      final int upArc = hierarchy.getUpArc(middle, toNode);
+      unpack(middle, toNode, hierarchy.upMiddles[upArc],
+        hierarchy.upEdgeIds[upArc]);
+    }
+  }
+}
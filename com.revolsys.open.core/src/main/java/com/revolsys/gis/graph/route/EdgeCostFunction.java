@@ -0,0 +1,21 @@
+package com.revolsys.gis.graph.route;
+
+import com.revolsys.gis.graph.Edge;
+
+/**
+ * The cost of travelling along an edge of a graph, used to create a
+ * {@link RoutingGraph}. Costs must not be negative. A cost of
+ * {@link Double#POSITIVE_INFINITY} or {@link Double#NaN} means the edge can't
+ * be travelled in that direction.
+ */
+public interface EdgeCostFunction<T> {
+  /**
+   * Get the cost to travel from the from node to the to node of the edge.
+   */
+  double getCost(Edge<T> edge);
+
+  /**
+   * Get the cost to travel from the to node to the from node of the edge.
+   */
+  double getReverseCost(Edge<T> edge);
+}
@@ -0,0 +1,37 @@
+package com.revolsys.gis.graph.route;
+
+import com.revolsys.gis.graph.Edge;
+
+/**
+ * Use the length of the edge's line as the cost in both directions, or only
+ * from the from node to the to node if the edges are one way.
+ */
+public class EdgeLengthCostFunction<T> implements EdgeCostFunction<T> {
+  private final boolean oneWay;
+
+  public EdgeLengthCostFunction() {
+    this(false);
+  }
+
+  public EdgeLengthCostFunction(final boolean oneWay) {
+    this.oneWay = oneWay;
+  }
+
+  @Override
+  public double getCost(final Edge<T> edge) {
+    return edge.getLength();
+  }
+
+  @Override
+  public double getReverseCost(final Edge<T> edge) {
+    if (this.oneWay) {
+      return Double.POSITIVE_INFINITY;
+    } else {
+      return edge.getLength();
+    }
+  }
+
+  public boolean isOneWay() {
+    return this.oneWay;
+  }
+}
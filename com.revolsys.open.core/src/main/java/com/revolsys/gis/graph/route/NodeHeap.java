@@ -0,0 +1,129 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.Arrays;
+
+/**
+ * A binary min heap of node indexes ordered by a double key, with the position
+ * of each node in the heap so the key of a node can be decreased. All the
+ * arrays are allocated when the heap is created so searches don't allocate
+ * any memory.
+ */
+class NodeHeap {
+  private final int[] nodes;
+
+  private final int[] positions;
+
+  private final double[] keys;
+
+  private int size;
+
+  public NodeHeap(final int nodeCount) {
+    this.nodes = new int[nodeCount];
+    this.positions = new int[nodeCount];
+    this.keys = new double[nodeCount];
+    Arrays.fill(this.positions, -1);
+  }
+
+  /**
+   * Remove all the nodes from the heap.
+   */
+  public void clear() {
+    for (int i = 0; i < this.size; i++) {
+      this.positions[this.nodes[i]] = -1;
+    }
+    this.size = 0;
+  }
+
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  private void moveDown(int position) {
+    final int node = this.nodes[position];
+    final double key = this.keys[node];
+    while (true) {
+      int child = 2 * position + 1;
+      if (child >= this.size) {
+        break;
+      }
+      if (child + 1 < this.size
+        && this.keys[this.nodes[child + 1]] < this.keys[this.nodes[child]]) {
+        child++;
+      }
+      final int childNode = this.nodes[child];
+      if (this.keys[childNode] < key) {
+        this.nodes[position] = childNode;
+        this.positions[childNode] = position;
+        position = child;
+      } else {
+        break;
+      }
+    }
+    this.nodes[position] = node;
+    this.positions[node] = position;
+  }
+
+  private void moveUp(int position) {
+    final int node = this.nodes[position];
+    final double key = this.keys[node];
+    while (position > 0) {
+      final int parent = (position - 1) / 2;
+      final int parentNode = this.nodes[parent];
+      if (key < this.keys[parentNode]) {
+        this.nodes[position] = parentNode;
+        this.positions[parentNode] = position;
+        position = parent;
+      } else {
+        break;
+      }
+    }
+    this.nodes[position] = node;
+    this.positions[node] = position;
+  }
+
+  /**
+   * Get the smallest key in the heap, or {@link Double#POSITIVE_INFINITY} if
+   * the heap is empty.
+   */
+  public double peekKey() {
+    if (this.size == 0) {
+      return Double.POSITIVE_INFINITY;
+    } else {
+      return this.keys[this.nodes[0]];
+    }
+  }
+
+  /**
+   * Remove and return the node with the smallest key.
+   */
+  public int poll() {
+    final int node = this.nodes[0];
+    this.positions[node] = -1;
+    this.size--;
+    if (this.size > 0) {
+      this.nodes[0] = this.nodes[this.size];
+      moveDown(0);
+    }
+    return node;
+  }
+
+  /**
+   * Add the node to the heap, or change the key of the node if it is already
+   * in the heap.
+   */
+  public void update(final int node, final double key) {
+    final int position = this.positions[node];
+    if (position < 0) {
+      this.keys[node] = key;
+      this.nodes[this.size] = node;
+      this.size++;
+      moveUp(this.size - 1);
+    } else if (key < this.keys[node]) {
+      this.keys[node] = key;
+      moveUp(position);
+    } else if (key > this.keys[node]) {
+      this.keys[node] = key;
+      moveDown(position);
+    }
+  }
+}
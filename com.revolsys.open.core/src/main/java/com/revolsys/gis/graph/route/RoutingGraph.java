@@ -0,0 +1,242 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import com.revolsys.gis.graph.Edge;
+import com.revolsys.gis.graph.Graph;
+import com.revolsys.gis.graph.Node;
+
+/**
+ * <p>An immutable copy of the topology of a {@link Graph} for shortest path
+ * searches. The nodes are numbered from 0 to {@link #getNodeCount()} - 1 in
+ * order of the graph's node ids, and the arcs leaving and entering each node
+ * are stored in compressed sparse row arrays of node indexes and costs, so a
+ * search only reads primitive arrays.</p>
+ *
+ * <p>Each edge of the graph creates an arc from the from node to the to node
+ * and an arc in the reverse direction if the {@link EdgeCostFunction} returns
+ * a finite cost for that direction. Each arc records the id of the edge it was
+ * created from so paths can be converted back to edges using
+ * {@link Graph#getEdges(int...)}.</p>
+ */
+public class RoutingGraph {
+  /**
+   * Create a routing graph from the edges of the graph.
+   *
+   * @param graph The graph.
+   * @param costFunction The cost of each edge.
+   * @return The routing graph.
+   */
+  public static <T> RoutingGraph create(final Graph<T> graph,
+    final EdgeCostFunction<T> costFunction) {
+    final Collection<Integer> graphNodeIds = graph.getNodeIds();
+    final int[] nodeIds = new int[graphNodeIds.size()];
+    int nodeCount = 0;
+    for (final Integer nodeId : graphNodeIds) {
+      nodeIds[nodeCount++] = nodeId;
+    }
+    Arrays.sort(nodeIds, 0, nodeCount);
+    final double[] xs = new double[nodeCount];
+    final double[] ys = new double[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      final Node<T> node = graph.getNode(nodeIds[i]);
+      xs[i] = node.getX();
+      ys[i] = node.getY();
+    }
+
+    int arcCount = 0;
+    int[] arcFroms = new int[16];
+    int[] arcTos = new int[16];
+    double[] arcCosts = new double[16];
+    int[] arcEdgeIds = new int[16];
+    for (final Integer edgeId : graph.getEdgeIds()) {
+      final Edge<T> edge = graph.getEdge(edgeId);
+      if (edge != null) {
+        final int fromIndex = Arrays.binarySearch(nodeIds, 0, nodeCount,
+          edge.getFromNode().getId());
+        final int toIndex = Arrays.binarySearch(nodeIds, 0, nodeCount,
+          edge.getToNode().getId());
+        if (arcCount + 2 > arcFroms.length) {
+          final int newLength = arcFroms.length * 2;
+          arcFroms = Arrays.copyOf(arcFroms, newLength);
+          arcTos = Arrays.copyOf(arcTos, newLength);
+          arcCosts = Arrays.copyOf(arcCosts, newLength);
+          arcEdgeIds = Arrays.copyOf(arcEdgeIds, newLength);
+        }
+        final double cost = costFunction.getCost(edge);
+        if (isTraversable(edge, cost)) {
+          arcFroms[arcCount] = fromIndex;
+          arcTos[arcCount] = toIndex;
+          arcCosts[arcCount] = cost;
+          arcEdgeIds[arcCount] = edgeId;
+          arcCount++;
+        }
+        final double reverseCost = costFunction.getReverseCost(edge);
+        if (isTraversable(edge, reverseCost)) {
+          arcFroms[arcCount] = toIndex;
+          arcTos[arcCount] = fromIndex;
+          arcCosts[arcCount] = reverseCost;
+          arcEdgeIds[arcCount] = edgeId;
+          arcCount++;
+        }
+      }
+    }
+    return new RoutingGraph(nodeIds, xs, ys, arcCount, arcFroms, arcTos,
+      arcCosts, arcEdgeIds);
+  }
+
+  private static boolean isTraversable(final Edge<?> edge, final double cost) {
+    if (cost < 0) {
+      throw new IllegalArgumentException("Edge " + edge.getId()
+        + " cannot have a negative cost " + cost);
+    } else {
+      return !Double.isNaN(cost) && !Double.isInfinite(cost);
+    }
+  }
+
+  private final int[] nodeIds;
+
+  private final double[] xs;
+
+  private final double[] ys;
+
+  final int[] outOffsets;
+
+  final int[] outNodes;
+
+  final double[] outCosts;
+
+  final int[] outEdgeIds;
+
+  final int[] inOffsets;
+
+  final int[] inNodes;
+
+  final double[] inCosts;
+
+  final int[] inEdgeIds;
+
+  private final double minCostPerUnit;
+
+  private RoutingGraph(final int[] nodeIds, final double[] xs,
+    final double[] ys, final int arcCount, final int[] arcFroms,
+    final int[] arcTos, final double[] arcCosts, final int[] arcEdgeIds) {
+    final int nodeCount = xs.length;
+    this.nodeIds = Arrays.copyOf(nodeIds, nodeCount);
+    this.xs = xs;
+    this.ys = ys;
+
+    this.outOffsets = new int[nodeCount + 1];
+    this.outNodes = new int[arcCount];
+    this.outCosts = new double[arcCount];
+    this.outEdgeIds = new int[arcCount];
+    this.inOffsets = new int[nodeCount + 1];
+    this.inNodes = new int[arcCount];
+    this.inCosts = new double[arcCount];
+    this.inEdgeIds = new int[arcCount];
+    for (int i = 0; i < arcCount; i++) {
+      this.outOffsets[arcFroms[i] + 1]++;
+      this.inOffsets[arcTos[i] + 1]++;
+    }
+    for (int i = 0; i < nodeCount; i++) {
+      this.outOffsets[i + 1] += this.outOffsets[i];
+      this.inOffsets[i + 1] += this.inOffsets[i];
+    }
+    final int[] outIndexes = Arrays.copyOf(this.outOffsets, nodeCount);
+    final int[] inIndexes = Arrays.copyOf(this.inOffsets, nodeCount);
+    double minCostPerUnit = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < arcCount; i++) {
+      final int from = arcFroms[i];
+      final int to = arcTos[i];
+      final double cost = arcCosts[i];
+
+      final int outIndex = outIndexes[from]++;
+      this.outNodes[outIndex] = to;
+      this.outCosts[outIndex] = cost;
+      this.outEdgeIds[outIndex] = arcEdgeIds[i];
+
+      final int inIndex = inIndexes[to]++;
+      this.inNodes[inIndex] = from;
+      this.inCosts[inIndex] = cost;
+      this.inEdgeIds[inIndex] = arcEdgeIds[i];
+
+      final double distance = getDistance(from, to);
+      if (distance > 0) {
+        minCostPerUnit = Math.min(minCostPerUnit, cost / distance);
+      }
+    }
+    if (Double.isInfinite(minCostPerUnit)) {
+      this.minCostPerUnit = 0;
+    } else {
+      this.minCostPerUnit = minCostPerUnit;
+    }
+  }
+
+  public int getArcCount() {
+    return this.outNodes.length;
+  }
+
+  /**
+   * Get the straight line distance between two nodes.
+   */
+  public double getDistance(final int nodeIndex1, final int nodeIndex2) {
+    final double dx = this.xs[nodeIndex1] - this.xs[nodeIndex2];
+    final double dy = this.ys[nodeIndex1] - this.ys[nodeIndex2];
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  /**
+   * Get a lower bound of the cost of travelling between two nodes for an A*
+   * search. The bound is the straight line distance multiplied by the
+   * smallest cost per unit of distance of any arc, so it is never more than
+   * the actual cost.
+   */
+  public double getEstimatedCost(final int nodeIndex1, final int nodeIndex2) {
+    return this.minCostPerUnit * getDistance(nodeIndex1, nodeIndex2);
+  }
+
+  public int getInDegree(final int nodeIndex) {
+    return this.inOffsets[nodeIndex + 1] - this.inOffsets[nodeIndex];
+  }
+
+  public double getMinCostPerUnit() {
+    return this.minCostPerUnit;
+  }
+
+  public int getNodeCount() {
+    return this.xs.length;
+  }
+
+  /**
+   * Get the graph node id of the node.
+   */
+  public int getNodeId(final int nodeIndex) {
+    return this.nodeIds[nodeIndex];
+  }
+
+  /**
+   * Get the index of the node with the graph node id, or -1 if the node isn't
+   * in the routing graph.
+   */
+  public int getNodeIndex(final int nodeId) {
+    final int index = Arrays.binarySearch(this.nodeIds, nodeId);
+    if (index < 0) {
+      return -1;
+    } else {
+      return index;
+    }
+  }
+
+  public int getOutDegree(final int nodeIndex) {
+    return this.outOffsets[nodeIndex + 1] - this.outOffsets[nodeIndex];
+  }
+
+  public double getX(final int nodeIndex) {
+    return this.xs[nodeIndex];
+  }
+
+  public double getY(final int nodeIndex) {
+    return this.ys[nodeIndex];
+  }
+}
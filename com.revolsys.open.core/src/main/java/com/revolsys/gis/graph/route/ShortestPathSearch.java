@@ -0,0 +1,171 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.Arrays;
+
+/**
+ * <p>Dijkstra and A* shortest path searches on a {@link RoutingGraph}. The
+ * search state is allocated when the search is created and reused for each
+ * query, so a query doesn't allocate any memory. The nodes visited by a query
+ * are tracked using a query number instead of clearing the arrays.</p>
+ *
+ * <p>Instances aren't thread safe; create one search per thread. The routing
+ * graph can be shared.</p>
+ */
+public class ShortestPathSearch {
+  private final RoutingGraph graph;
+
+  private final double[] costs;
+
+  private final int[] parentNodes;
+
+  private final int[] parentEdgeIds;
+
+  private final int[] queryNumbers;
+
+  private final NodeHeap heap;
+
+  private int queryNumber;
+
+  private int fromNodeIndex = -1;
+
+  private int toNodeIndex = -1;
+
+  private double cost = Double.POSITIVE_INFINITY;
+
+  private int settledCount;
+
+  public ShortestPathSearch(final RoutingGraph graph) {
+    this.graph = graph;
+    final int nodeCount = graph.getNodeCount();
+    this.costs = new double[nodeCount];
+    this.parentNodes = new int[nodeCount];
+    this.parentEdgeIds = new int[nodeCount];
+    this.queryNumbers = new int[nodeCount];
+    this.heap = new NodeHeap(nodeCount);
+  }
+
+  /**
+   * Find the lowest cost path between two nodes using an A* search.
+   *
+   * @param fromNodeIndex The index of the start node.
+   * @param toNodeIndex The index of the end node.
+   * @return The cost of the path, or {@link Double#POSITIVE_INFINITY} if there
+   * is no path.
+   */
+  public double findPathAStar(final int fromNodeIndex, final int toNodeIndex) {
+    return search(fromNodeIndex, toNodeIndex, true);
+  }
+
+  /**
+   * Find the lowest cost path between two nodes using Dijkstra's algorithm.
+   *
+   * @param fromNodeIndex The index of the start node.
+   * @param toNodeIndex The index of the end node.
+   * @return The cost of the path, or {@link Double#POSITIVE_INFINITY} if there
+   * is no path.
+   */
+  public double findPathDijkstra(final int fromNodeIndex,
+    final int toNodeIndex) {
+    return search(fromNodeIndex, toNodeIndex, false);
+  }
+
+  /**
+   * Get the cost of the path found by the last search.
+   */
+  public double getCost() {
+    return this.cost;
+  }
+
+  /**
+   * Get the ids of the graph edges along the path found by the last search,
+   * in order from the start node.
+   */
+  public int[] getEdgeIds() {
+    if (Double.isInfinite(this.cost)) {
+      return new int[0];
+    } else {
+      int edgeCount = 0;
+      int node = this.toNodeIndex;
+      while (node != this.fromNodeIndex) {
+        edgeCount++;
+        node = this.parentNodes[node];
+      }
+      final int[] edgeIds = new int[edgeCount];
+      node = this.toNodeIndex;
+      for (int i = edgeCount - 1; i >= 0; i--) {
+        edgeIds[i] = this.parentEdgeIds[node];
+        node = this.parentNodes[node];
+      }
+      return edgeIds;
+    }
+  }
+
+  public RoutingGraph getGraph() {
+    return this.graph;
+  }
+
+  /**
+   * Get the number of nodes settled by the last search.
+   */
+  public int getSettledCount() {
+    return this.settledCount;
+  }
+
+  private int nextQueryNumber() {
+    this.queryNumber++;
+    if (this.queryNumber == Integer.MAX_VALUE) {
+      Arrays.fill(this.queryNumbers, 0);
+      this.queryNumber = 1;
+    }
+    return this.queryNumber;
+  }
+
+  private double search(final int fromNodeIndex, final int toNodeIndex,
+    final boolean aStar) {
+    final RoutingGraph graph = this.graph;
+    final int[] outOffsets = graph.outOffsets;
+    final int[] outNodes = graph.outNodes;
+    final double[] outCosts = graph.outCosts;
+    final int[] outEdgeIds = graph.outEdgeIds;
+    final double[] costs = this.costs;
+    final int[] queryNumbers = this.queryNumbers;
+    final NodeHeap heap = this.heap;
+    final int queryNumber = nextQueryNumber();
+
+    this.fromNodeIndex = fromNodeIndex;
+    this.toNodeIndex = toNodeIndex;
+    this.cost = Double.POSITIVE_INFINITY;
+    this.settledCount = 0;
+    heap.clear();
+
+    queryNumbers[fromNodeIndex] = queryNumber;
+    costs[fromNodeIndex] = 0;
+    heap.update(fromNodeIndex, 0);
+    while (!heap.isEmpty()) {
+      final int node = heap.poll();
+      this.settledCount++;
+      final double nodeCost = costs[node];
+      if (node == toNodeIndex) {
+        this.cost = nodeCost;
+        break;
+      }
+      for (int arc = outOffsets[node]; arc < outOffsets[node + 1]; arc++) {
+        final int toNode = outNodes[arc];
+        final double toCost = nodeCost + outCosts[arc];
+        if (queryNumbers[toNode] != queryNumber || toCost < costs[toNode]) {
+          queryNumbers[toNode] = queryNumber;
+          costs[toNode] = toCost;
+          this.parentNodes[toNode] = node;
+          this.parentEdgeIds[toNode] = outEdgeIds[arc];
+          if (aStar) {
+            heap.update(toNode,
+              toCost + graph.getEstimatedCost(toNode, toNodeIndex));
+          } else {
+            heap.update(toNode, toCost);
+          }
+        }
+      }
+    }
+    return this.cost;
+  }
+}
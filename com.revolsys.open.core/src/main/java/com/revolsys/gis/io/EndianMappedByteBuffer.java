@@ -23,16 +23,23 @@ package com.revolsys.gis.io;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 
 public class EndianMappedByteBuffer implements EndianInputOutput {
-  private final MappedByteBuffer buffer;
+  private final ByteBuffer buffer;
 
   private final RandomAccessFile randomAccessFile;
 
+  private EndianMappedByteBuffer(final ByteBuffer buffer) {
+    this.randomAccessFile = null;
+    this.buffer = buffer;
+    this.buffer.order(ByteOrder.BIG_ENDIAN);
+  }
+
   public EndianMappedByteBuffer(final File file, final MapMode mapMode)
       throws IOException {
     String mode = "r";
@@ -41,7 +48,9 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
     }
     this.randomAccessFile = new RandomAccessFile(file, mode);
     final FileChannel channel = this.randomAccessFile.getChannel();
-    this.buffer = channel.map(mapMode, 0, this.randomAccessFile.length());
+    final MappedByteBuffer buffer = channel.map(mapMode, 0,
+      this.randomAccessFile.length());
+    this.buffer = buffer;
     this.buffer.order(ByteOrder.BIG_ENDIAN);
   }
 
@@ -52,7 +61,20 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public void close() throws IOException {
-    this.randomAccessFile.close();
+    if (this.randomAccessFile != null) {
+      this.randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Create a new buffer that shares the mapped file with this buffer but has
+   * its own position, so several threads can read the file at the same time.
+   * Closing the duplicate does not close the file.
+   *
+   * @return The duplicate buffer.
+   */
+  public EndianMappedByteBuffer duplicate() {
+    return new EndianMappedByteBuffer(this.buffer.duplicate());
   }
 
   @Override
@@ -66,7 +88,11 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public long length() throws IOException {
-    return this.randomAccessFile.length();
+    if (this.randomAccessFile == null) {
+      return this.buffer.capacity();
+    } else {
+      return this.randomAccessFile.length();
+    }
   }
 
   @Override
@@ -153,7 +179,12 @@ public class EndianMappedByteBuffer implements EndianInputOutput {
 
   @Override
   public void setLength(final long length) throws IOException {
-    this.randomAccessFile.setLength(length);
+    if (this.randomAccessFile == null) {
+      throw new UnsupportedOperationException(
+        "Cannot set the length of a duplicate buffer");
+    } else {
+      this.randomAccessFile.setLength(length);
+    }
   }
 
   @Override
@@ -0,0 +1,365 @@
+package com.revolsys.gis.parallel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.revolsys.collection.AbstractIterator;
+import com.revolsys.data.comparator.RecordAttributeComparator;
+import com.revolsys.data.record.Record;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.RecordBinaryCodec;
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.process.BaseInOutProcess;
+
+/**
+ * <p>Sort records that may not fit in memory. The records are collected into
+ * chunks up to the memory budget, each chunk is sorted and written to a
+ * temporary file (a run) on a pool of threads. The runs are then merged and
+ * written to the out channel in sorted order.</p>
+ *
+ * <p>If all the records fit in a single chunk they are sorted in memory the
+ * same as {@link Sort}. Records that compare equal are written in the order
+ * they were read.</p>
+ */
+public class ExternalSort extends BaseInOutProcess<Record, Record> {
+  private class MergeEntry implements Comparable<MergeEntry> {
+    private final Iterator<Record> run;
+
+    private final int runIndex;
+
+    private Record record;
+
+    public MergeEntry(final Iterator<Record> run, final int runIndex) {
+      this.run = run;
+      this.runIndex = runIndex;
+    }
+
+    @Override
+    public int compareTo(final MergeEntry entry) {
+      final Comparator<Record> comparator = ExternalSort.this.comparator;
+      int compare = 0;
+      if (comparator != null) {
+        compare = comparator.compare(this.record, entry.record);
+      }
+      if (compare == 0) {
+        return Integer.compare(this.runIndex, entry.runIndex);
+      } else {
+        return compare;
+      }
+    }
+
+    public boolean next() {
+      if (this.run.hasNext()) {
+        this.record = this.run.next();
+        return true;
+      } else {
+        this.record = null;
+        return false;
+      }
+    }
+  }
+
+  private class RunReader extends AbstractIterator<Record> {
+    private final File file;
+
+    private DataInputStream in;
+
+    public RunReader(final File file) {
+      this.file = file;
+    }
+
+    @Override
+    protected void doClose() {
+      FileUtil.closeSilent(this.in);
+      this.in = null;
+      deleteRun(this.file);
+    }
+
+    @Override
+    protected void doInit() {
+      try {
+        this.in = new DataInputStream(new BufferedInputStream(
+          new FileInputStream(this.file), BUFFER_SIZE));
+      } catch (final IOException e) {
+        throw new RuntimeException("Unable to open " + this.file, e);
+      }
+    }
+
+    @Override
+    protected Record getNext() throws NoSuchElementException {
+      try {
+        final Record record = ExternalSort.this.codec.readRecord(this.in);
+        if (record == null) {
+          throw new NoSuchElementException();
+        } else {
+          return record;
+        }
+      } catch (final IOException e) {
+        throw new RuntimeException("Unable to read " + this.file, e);
+      }
+    }
+  }
+
+  private class RunWriter implements Callable<File> {
+    private final List<Record> records;
+
+    public RunWriter(final List<Record> records) {
+      this.records = records;
+    }
+
+    @Override
+    public File call() throws IOException {
+      if (ExternalSort.this.comparator != null) {
+        Collections.sort(this.records, ExternalSort.this.comparator);
+      }
+      return writeRun(this.records.iterator());
+    }
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final int MAX_MERGE_RUNS = 128;
+
+  private static void deleteRun(final File file) {
+    if (!file.delete() && file.exists()) {
+      file.deleteOnExit();
+    }
+  }
+
+  private List<Record> chunk = new ArrayList<Record>();
+
+  private long chunkSize;
+
+  private final RecordBinaryCodec codec = new RecordBinaryCodec();
+
+  private Comparator<Record> comparator;
+
+  private ExecutorService executor;
+
+  private String fieldName;
+
+  private long memoryBudget = 256L * 1024 * 1024;
+
+  private final LinkedList<Future<File>> pendingRuns = new LinkedList<Future<File>>();
+
+  private final List<File> runs = new ArrayList<File>();
+
+  /** The readers of the runs being merged, closed if the merge fails. */
+  private final List<RunReader> runReaders = new ArrayList<RunReader>();
+
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+
+  private void addRun(final Future<File> future) {
+    try {
+      this.runs.add(future.get());
+    } catch (final InterruptedException e) {
+      throw new RuntimeException("Interrupted writing sorted run", e);
+    } catch (final ExecutionException e) {
+      throw new RuntimeException("Unable to write sorted run", e.getCause());
+    }
+  }
+
+  private void deleteRuns() {
+    for (final RunReader reader : this.runReaders) {
+      reader.close();
+    }
+    this.runReaders.clear();
+    for (final Future<File> future : this.pendingRuns) {
+      future.cancel(true);
+    }
+    this.pendingRuns.clear();
+    for (final File file : this.runs) {
+      deleteRun(file);
+    }
+    this.runs.clear();
+  }
+
+  private long getChunkBudget() {
+    return Math.max(1, this.memoryBudget / (Math.max(1, this.threadCount) + 1));
+  }
+
+  public Comparator<Record> getComparator() {
+    return this.comparator;
+  }
+
+  public String getFieldName() {
+    return this.fieldName;
+  }
+
+  public long getMemoryBudget() {
+    return this.memoryBudget;
+  }
+
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
+  private Iterator<Record> merge(final List<Iterator<Record>> runs) {
+    final PriorityQueue<MergeEntry> queue = new PriorityQueue<MergeEntry>(
+      Math.max(1, runs.size()));
+    for (int i = 0; i < runs.size(); i++) {
+      final MergeEntry entry = new MergeEntry(runs.get(i), i);
+      if (entry.next()) {
+        queue.add(entry);
+      }
+    }
+    return new AbstractIterator<Record>() {
+      @Override
+      protected Record getNext() throws NoSuchElementException {
+        final MergeEntry entry = queue.poll();
+        if (entry == null) {
+          throw new NoSuchElementException();
+        } else {
+          final Record record = entry.record;
+          if (entry.next()) {
+            queue.add(entry);
+          }
+          return record;
+        }
+      }
+    };
+  }
+
+  private List<Iterator<Record>> openRuns(final List<File> files) {
+    final List<Iterator<Record>> readers = new ArrayList<Iterator<Record>>();
+    for (final File file : files) {
+      final RunReader reader = new RunReader(file);
+      this.runReaders.add(reader);
+      readers.add(reader);
+    }
+    return readers;
+  }
+
+  @Override
+  protected void postRun(final Channel<Record> in, final Channel<Record> out) {
+    try {
+      if (this.runs.isEmpty() && this.pendingRuns.isEmpty()) {
+        if (this.comparator != null) {
+          Collections.sort(this.chunk, this.comparator);
+        }
+        for (final Record record : this.chunk) {
+          out.write(record);
+        }
+      } else {
+        while (!this.pendingRuns.isEmpty()) {
+          addRun(this.pendingRuns.removeFirst());
+        }
+        if (this.comparator != null) {
+          Collections.sort(this.chunk, this.comparator);
+        }
+        while (this.runs.size() >= MAX_MERGE_RUNS) {
+          final List<File> files = new ArrayList<File>(this.runs.subList(0,
+            MAX_MERGE_RUNS));
+          this.runs.removeAll(files);
+          final List<Iterator<Record>> readers = openRuns(files);
+          this.runs.add(0, writeRun(merge(readers)));
+          for (final RunReader reader : this.runReaders) {
+            reader.close();
+          }
+          this.runReaders.clear();
+        }
+        final List<Iterator<Record>> readers = openRuns(this.runs);
+        this.runs.clear();
+        readers.add(this.chunk.iterator());
+        final Iterator<Record> records = merge(readers);
+        while (records.hasNext()) {
+          final Record record = records.next();
+          out.write(record);
+        }
+      }
+    } catch (final IOException e) {
+      throw new RuntimeException("Unable to merge sorted runs", e);
+    } finally {
+      this.chunk = new ArrayList<Record>();
+      this.chunkSize = 0;
+      deleteRuns();
+      if (this.executor != null) {
+        this.executor.shutdownNow();
+        this.executor = null;
+      }
+    }
+  }
+
+  @Override
+  protected void process(final Channel<Record> in, final Channel<Record> out,
+    final Record object) {
+    this.chunk.add(object);
+    this.chunkSize += RecordBinaryCodec.estimateSize(object);
+    if (this.chunkSize >= getChunkBudget()) {
+      spillChunk();
+    }
+  }
+
+  public void setComparator(final Comparator<Record> comparator) {
+    this.comparator = comparator;
+  }
+
+  public void setFieldName(final String fieldName) {
+    this.fieldName = fieldName;
+    this.comparator = new RecordAttributeComparator(fieldName);
+  }
+
+  /**
+   * @param memoryBudget The approximate maximum number of bytes of records to
+   * hold in memory, including the chunks being sorted and written.
+   */
+  public void setMemoryBudget(final long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+  }
+
+  /**
+   * @param threadCount The number of threads used to sort and write the runs.
+   */
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  private void spillChunk() {
+    if (this.executor == null) {
+      this.executor = Executors.newFixedThreadPool(Math.max(1, this.threadCount));
+    }
+    while (this.pendingRuns.size() >= Math.max(1, this.threadCount)) {
+      addRun(this.pendingRuns.removeFirst());
+    }
+    final RunWriter runWriter = new RunWriter(this.chunk);
+    this.pendingRuns.add(this.executor.submit(runWriter));
+    this.chunk = new ArrayList<Record>();
+    this.chunkSize = 0;
+  }
+
+  private File writeRun(final Iterator<Record> records) throws IOException {
+    final File file = FileUtil.createTempFile("sort", ".bin");
+    try (
+      final DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE))) {
+      while (records.hasNext()) {
+        final Record record = records.next();
+        this.codec.writeRecord(out, record);
+      }
+      this.codec.writeEnd(out);
+    } catch (final IOException | RuntimeException e) {
+      deleteRun(file);
+      throw e;
+    }
+    return file;
+  }
+}
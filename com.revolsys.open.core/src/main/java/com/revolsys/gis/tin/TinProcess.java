@@ -40,6 +40,25 @@ public class TinProcess extends BaseInOutProcess<Record, Record> {
     return this.boundingBox;
   }
 
+  private Geometry getElevation(final Geometry geometry) {
+    if (geometry instanceof LineString) {
+      final LineString line = (LineString)geometry;
+      return this.tin.getElevation(line);
+    } else {
+      final Point point = (Point)geometry;
+      final int axisCount = point.getAxisCount();
+      if (axisCount > 2) {
+        final double z = this.tin.getElevation(point);
+        if (!Double.isNaN(z) && z != point.getZ()) {
+          final double[] coordinates = point.getCoordinates();
+          coordinates[2] = z;
+          return point.getGeometryFactory().point(coordinates);
+        }
+      }
+      return point;
+    }
+  }
+
   private String getId() {
     final GeometryFactory geometryFactory = this.boundingBox.getGeometryFactory();
     final String string = MathUtil.toString(this.boundingBox.getMinX()) + "_"
@@ -144,14 +163,13 @@ public class TinProcess extends BaseInOutProcess<Record, Record> {
     if (this.tin == null) {
       loadTin();
     }
-    final LineString geometry = object.getGeometryValue();
-    if (geometry instanceof LineString) {
-      final LineString line = geometry;
-      final com.revolsys.jts.geom.BoundingBox envelope = line.getBoundingBox();
+    final Geometry geometry = object.getGeometryValue();
+    if (geometry instanceof LineString || geometry instanceof Point) {
+      final BoundingBox envelope = geometry.getBoundingBox();
       if (envelope.intersects(this.boundingBox)) {
-        final LineString newLine = this.tin.getElevation(line);
-        if (line != newLine) {
-          object.setGeometryValue(newLine);
+        final Geometry newGeometry = getElevation(geometry);
+        if (geometry != newGeometry) {
+          object.setGeometryValue(newGeometry);
         }
         if (this.updatedAttributeValues != null) {
           for (final Entry<String, Object> entry : this.updatedAttributeValues.entrySet()) {
@@ -141,7 +141,7 @@ public class Triangle extends AbstractLineString {
       final double x = getX(i);
       final double y = getY(i);
       if (bounds == null) {
-        bounds = BoundingBoxUtil.createBounds(2, x, y);
+        bounds = BoundingBoxUtil.createBounds(x, y);
       } else {
         BoundingBoxUtil.expand(null, bounds, 2, x, y);
       }
@@ -0,0 +1,393 @@
+package com.revolsys.gis.tin;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.impl.PointDouble;
+
+/**
+ * <p>Compact read only representation of the triangles in a
+ * {@link TriangulatedIrregularNetwork}. The x, y, z of the vertices are stored
+ * in a single double[] and the 3 vertex indexes and the 3 neighbour triangle
+ * indexes of each triangle are stored in int[]s. The neighbour across edge i
+ * (from vertex i to vertex i + 1) is -1 if the edge is on the boundary of the
+ * mesh.</p>
+ *
+ * <p>Points are located using jump-and-walk. A coarse grid stores a triangle
+ * near the centre of each cell. The walk starts at the triangle for the cell
+ * containing the point (or the triangle found for the previous point when
+ * locating a sequence of nearby points) and moves to the neighbour across an
+ * edge the point is outside of until the triangle containing the point is
+ * found. If the mesh isn't convex the walk can leave the mesh through a
+ * boundary edge before reaching the point, so points within the bounding box
+ * of the mesh that the walk doesn't find are located by checking each
+ * triangle.</p>
+ */
+public class TriangleMesh {
+  private final double[] vertices;
+
+  private final int[] triangleVertices;
+
+  private final int[] triangleNeighbours;
+
+  private final int triangleCount;
+
+  private final double minX;
+
+  private final double minY;
+
+  private final double maxX;
+
+  private final double maxY;
+
+  private final double cellWidth;
+
+  private final double cellHeight;
+
+  private final int gridWidth;
+
+  private final int gridHeight;
+
+  private final int[] grid;
+
+  public TriangleMesh(final List<Triangle> triangles) {
+    this.triangleCount = triangles.size();
+    this.triangleVertices = new int[this.triangleCount * 3];
+    final Map<Point, Integer> vertexIndexes = new HashMap<>();
+    double[] vertices = new double[Math.max(9, this.triangleCount * 3)];
+    int vertexCount = 0;
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (int triangleIndex = 0; triangleIndex < this.triangleCount; triangleIndex++) {
+      final Triangle triangle = triangles.get(triangleIndex);
+      final double[] coordinates = triangle.getCoordinates();
+      for (int i = 0; i < 3; i++) {
+        final double x = coordinates[i * 3];
+        final double y = coordinates[i * 3 + 1];
+        final double z = coordinates[i * 3 + 2];
+        final Point point = new PointDouble(x, y);
+        Integer vertexIndex = vertexIndexes.get(point);
+        if (vertexIndex == null) {
+          vertexIndex = vertexCount;
+          vertexIndexes.put(point, vertexIndex);
+          if (vertexCount * 3 + 3 > vertices.length) {
+            final double[] newVertices = new double[vertices.length * 2];
+            System.arraycopy(vertices, 0, newVertices, 0, vertices.length);
+            vertices = newVertices;
+          }
+          vertices[vertexCount * 3] = x;
+          vertices[vertexCount * 3 + 1] = y;
+          vertices[vertexCount * 3 + 2] = z;
+          vertexCount++;
+          minX = Math.min(minX, x);
+          minY = Math.min(minY, y);
+          maxX = Math.max(maxX, x);
+          maxY = Math.max(maxY, y);
+        }
+        this.triangleVertices[triangleIndex * 3 + i] = vertexIndex;
+      }
+    }
+    this.vertices = new double[vertexCount * 3];
+    System.arraycopy(vertices, 0, this.vertices, 0, this.vertices.length);
+    setClockwise();
+
+    this.triangleNeighbours = new int[this.triangleCount * 3];
+    setNeighbours(vertexCount);
+
+    this.minX = minX;
+    this.minY = minY;
+    this.maxX = maxX;
+    this.maxY = maxY;
+    final int gridSize = Math.max(1,
+      (int)Math.ceil(Math.sqrt(this.triangleCount / 4.0)));
+    this.gridWidth = gridSize;
+    this.gridHeight = gridSize;
+    this.cellWidth = Math.max(maxX - minX, Double.MIN_NORMAL) / gridSize;
+    this.cellHeight = Math.max(maxY - minY, Double.MIN_NORMAL) / gridSize;
+    this.grid = new int[gridSize * gridSize];
+    setGrid();
+  }
+
+  private int getCellIndex(final double x, final double y) {
+    int gridX = (int)((x - this.minX) / this.cellWidth);
+    int gridY = (int)((y - this.minY) / this.cellHeight);
+    gridX = Math.max(0, Math.min(this.gridWidth - 1, gridX));
+    gridY = Math.max(0, Math.min(this.gridHeight - 1, gridY));
+    return gridY * this.gridWidth + gridX;
+  }
+
+  /**
+   * Get the elevation of the point by linear interpolation of the z values of
+   * the triangle containing the point.
+   *
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The elevation or NaN if the point is outside the mesh.
+   */
+  public double getElevation(final double x, final double y) {
+    final int triangleIndex = getTriangleIndex(-1, x, y);
+    return getElevation(triangleIndex, x, y);
+  }
+
+  private double getElevation(final int triangleIndex, final double x,
+    final double y) {
+    if (triangleIndex == -1) {
+      return Double.NaN;
+    } else {
+      final int offset = triangleIndex * 3;
+      final int i0 = this.triangleVertices[offset] * 3;
+      final int i1 = this.triangleVertices[offset + 1] * 3;
+      final int i2 = this.triangleVertices[offset + 2] * 3;
+      final double x0 = this.vertices[i0];
+      final double y0 = this.vertices[i0 + 1];
+      final double z0 = this.vertices[i0 + 2];
+      final double x1 = this.vertices[i1];
+      final double y1 = this.vertices[i1 + 1];
+      final double z1 = this.vertices[i1 + 2];
+      final double x2 = this.vertices[i2];
+      final double y2 = this.vertices[i2 + 1];
+      final double z2 = this.vertices[i2 + 2];
+      if (x == x0 && y == y0) {
+        return z0;
+      } else if (x == x1 && y == y1) {
+        return z1;
+      } else if (x == x2 && y == y2) {
+        return z2;
+      } else {
+        final double area = (x1 - x0) * (y2 - y0) - (x2 - x0) * (y1 - y0);
+        if (area == 0) {
+          return Double.NaN;
+        } else {
+          final double w1 = ((x - x0) * (y2 - y0) - (x2 - x0) * (y - y0))
+            / area;
+          final double w2 = ((x1 - x0) * (y - y0) - (x - x0) * (y1 - y0))
+            / area;
+          return z0 + w1 * (z1 - z0) + w2 * (z2 - z0);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the elevations for a batch of points. Each point is located starting
+   * from the triangle of the previous point so consecutive nearby points (e.g.
+   * the vertices of a line) are located in a few steps.
+   *
+   * @param coordinates The coordinates of the points.
+   * @param axisCount The number of axis for each point in coordinates (>= 2).
+   * @return The elevations, NaN for points outside the mesh.
+   */
+  public double[] getElevations(final double[] coordinates,
+    final int axisCount) {
+    final int pointCount = coordinates.length / axisCount;
+    final double[] elevations = new double[pointCount];
+    int triangleIndex = -1;
+    for (int i = 0; i < pointCount; i++) {
+      final double x = coordinates[i * axisCount];
+      final double y = coordinates[i * axisCount + 1];
+      final int foundIndex = getTriangleIndex(triangleIndex, x, y);
+      elevations[i] = getElevation(foundIndex, x, y);
+      if (foundIndex != -1) {
+        triangleIndex = foundIndex;
+      }
+    }
+    return elevations;
+  }
+
+  public int getTriangleCount() {
+    return this.triangleCount;
+  }
+
+  /**
+   * Get the index of the triangle that contains the point. If the walk from the
+   * start triangle leaves the mesh the walk is tried again from the grid cell
+   * containing the point, then each triangle is checked, as the mesh may not
+   * be convex.
+   *
+   * @param startIndex The triangle to start the walk from, or -1 to start
+   * from the grid.
+   * @param x The x coordinate.
+   * @param y The y coordinate.
+   * @return The triangle index or -1 if the point is outside the mesh.
+   */
+  public int getTriangleIndex(final int startIndex, final double x,
+    final double y) {
+    if (this.triangleCount == 0) {
+      return -1;
+    } else {
+      final int cellTriangleIndex = this.grid[getCellIndex(x, y)];
+      int triangleIndex = -1;
+      if (startIndex >= 0 && startIndex != cellTriangleIndex) {
+        triangleIndex = walk(startIndex, x, y);
+      }
+      if (triangleIndex == -1) {
+        triangleIndex = walk(cellTriangleIndex, x, y);
+      }
+      if (triangleIndex == -1 && x >= this.minX && x <= this.maxX
+        && y >= this.minY && y <= this.maxY) {
+        triangleIndex = getTriangleIndexScan(x, y);
+      }
+      return triangleIndex;
+    }
+  }
+
+  /**
+   * Find the triangle containing the point by checking every triangle. Used if
+   * the walk fails to converge or leaves a mesh that isn't convex.
+   */
+  private int getTriangleIndexScan(final double x, final double y) {
+    for (int triangleIndex = 0; triangleIndex < this.triangleCount; triangleIndex++) {
+      final int offset = triangleIndex * 3;
+      if (!isOutside(offset, 0, x, y) && !isOutside(offset, 1, x, y)
+        && !isOutside(offset, 2, x, y)) {
+        return triangleIndex;
+      }
+    }
+    return -1;
+  }
+
+  public double[] getVertices() {
+    return this.vertices;
+  }
+
+  /**
+   * Check if the point is strictly on the outside (left) of the edge of the
+   * triangle. The triangles are clockwise so the inside is to the right of each
+   * edge.
+   */
+  private boolean isOutside(final int offset, final int edge, final double x,
+    final double y) {
+    final int i0 = this.triangleVertices[offset + edge] * 3;
+    final int i1 = this.triangleVertices[offset + (edge + 1) % 3] * 3;
+    final double x0 = this.vertices[i0];
+    final double y0 = this.vertices[i0 + 1];
+    final double x1 = this.vertices[i1];
+    final double y1 = this.vertices[i1 + 1];
+    return (x1 - x0) * (y - y0) - (y1 - y0) * (x - x0) > 0;
+  }
+
+  /**
+   * Make sure the vertices of each triangle are in clockwise order.
+   */
+  private void setClockwise() {
+    for (int offset = 0; offset < this.triangleVertices.length; offset += 3) {
+      final int i0 = this.triangleVertices[offset] * 3;
+      final int i1 = this.triangleVertices[offset + 1] * 3;
+      final int i2 = this.triangleVertices[offset + 2] * 3;
+      final double area = (this.vertices[i1] - this.vertices[i0])
+        * (this.vertices[i2 + 1] - this.vertices[i0 + 1])
+        - (this.vertices[i2] - this.vertices[i0])
+        * (this.vertices[i1 + 1] - this.vertices[i0 + 1]);
+      if (area > 0) {
+        final int vertexIndex = this.triangleVertices[offset + 1];
+        this.triangleVertices[offset + 1] = this.triangleVertices[offset + 2];
+        this.triangleVertices[offset + 2] = vertexIndex;
+      }
+    }
+  }
+
+  private void setGrid() {
+    for (int i = 0; i < this.grid.length; i++) {
+      this.grid[i] = -1;
+    }
+    for (int triangleIndex = 0; triangleIndex < this.triangleCount; triangleIndex++) {
+      final int offset = triangleIndex * 3;
+      double x = 0;
+      double y = 0;
+      for (int i = 0; i < 3; i++) {
+        final int vertexOffset = this.triangleVertices[offset + i] * 3;
+        x += this.vertices[vertexOffset];
+        y += this.vertices[vertexOffset + 1];
+      }
+      final int cellIndex = getCellIndex(x / 3, y / 3);
+      if (this.grid[cellIndex] == -1) {
+        this.grid[cellIndex] = triangleIndex;
+      }
+    }
+    int lastIndex = 0;
+    for (int i = 0; i < this.grid.length; i++) {
+      if (this.grid[i] == -1) {
+        this.grid[i] = lastIndex;
+      } else {
+        lastIndex = this.grid[i];
+      }
+    }
+  }
+
+  /**
+   * Set the neighbours of each triangle using the list of triangles for each
+   * vertex.
+   */
+  private void setNeighbours(final int vertexCount) {
+    final int[] vertexTriangleStart = new int[vertexCount + 1];
+    for (final int vertexIndex : this.triangleVertices) {
+      vertexTriangleStart[vertexIndex + 1]++;
+    }
+    for (int i = 0; i < vertexCount; i++) {
+      vertexTriangleStart[i + 1] += vertexTriangleStart[i];
+    }
+    final int[] vertexTriangles = new int[this.triangleVertices.length];
+    final int[] vertexTriangleCount = new int[vertexCount];
+    for (int i = 0; i < this.triangleVertices.length; i++) {
+      final int vertexIndex = this.triangleVertices[i];
+      vertexTriangles[vertexTriangleStart[vertexIndex]
+        + vertexTriangleCount[vertexIndex]++] = i / 3;
+    }
+    for (int triangleIndex = 0; triangleIndex < this.triangleCount; triangleIndex++) {
+      final int offset = triangleIndex * 3;
+      for (int edge = 0; edge < 3; edge++) {
+        final int v0 = this.triangleVertices[offset + edge];
+        final int v1 = this.triangleVertices[offset + (edge + 1) % 3];
+        int neighbourIndex = -1;
+        for (int i = vertexTriangleStart[v0]; neighbourIndex == -1
+          && i < vertexTriangleStart[v0 + 1]; i++) {
+          final int otherIndex = vertexTriangles[i];
+          if (otherIndex != triangleIndex) {
+            final int otherOffset = otherIndex * 3;
+            for (int j = 0; j < 3; j++) {
+              if (this.triangleVertices[otherOffset + j] == v1) {
+                neighbourIndex = otherIndex;
+              }
+            }
+          }
+        }
+        this.triangleNeighbours[offset + edge] = neighbourIndex;
+      }
+    }
+  }
+
+  /**
+   * Walk from the triangle across the edges the point is outside of until the
+   * triangle containing the point is found. The first edge checked is rotated
+   * on each step so the walk can't cycle forever around a vertex.
+   *
+   * @return The triangle index or -1 if the walk left the mesh.
+   */
+  private int walk(final int startIndex, final double x, final double y) {
+    int triangleIndex = startIndex;
+    int edgeOffset = 0;
+    for (int step = 0; step < this.triangleCount; step++) {
+      final int offset = triangleIndex * 3;
+      int nextIndex = -2;
+      for (int i = 0; i < 3 && nextIndex == -2; i++) {
+        final int edge = (i + edgeOffset) % 3;
+        if (isOutside(offset, edge, x, y)) {
+          nextIndex = this.triangleNeighbours[offset + edge];
+        }
+      }
+      if (nextIndex == -2) {
+        return triangleIndex;
+      } else if (nextIndex == -1) {
+        return -1;
+      } else {
+        triangleIndex = nextIndex;
+        edgeOffset = (edgeOffset + 1) % 3;
+      }
+    }
+    return getTriangleIndexScan(x, y);
+  }
+}
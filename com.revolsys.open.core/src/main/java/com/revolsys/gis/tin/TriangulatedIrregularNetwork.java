@@ -8,12 +8,12 @@ import java.util.Set;
 import java.util.TreeSet;
 
 import com.revolsys.gis.algorithm.index.EnvelopeSpatialIndex;
+import com.revolsys.gis.algorithm.index.PackedRTree;
 import com.revolsys.gis.algorithm.index.RTree;
 import com.revolsys.gis.model.coordinates.CoordinatesUtil;
 import com.revolsys.gis.model.coordinates.comparator.AngleFromPointComparator;
 import com.revolsys.jts.algorithm.CGAlgorithms;
 import com.revolsys.jts.geom.BoundingBox;
-import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.jts.geom.LineString;
 import com.revolsys.jts.geom.Point;
@@ -32,12 +32,14 @@ public class TriangulatedIrregularNetwork {
 
   private GeometryFactory geometryFactory;
 
-  private RTree<Triangle> triangleIndex;
+  private PackedRTree<Triangle> triangleIndex;
 
   private final BoundingBox boundingBox;
 
   private final Set<Point> nodes = new HashSet<Point>();
 
+  private TriangleMesh mesh;
+
   public TriangulatedIrregularNetwork(final BoundingBox boundingBox) {
     this(boundingBox.getGeometryFactory(), boundingBox);
   }
@@ -61,7 +63,7 @@ public class TriangulatedIrregularNetwork {
     this.boundingBox = boundingBox;
     setGeometryFactory(geometryFactory);
     if (loadMode) {
-      this.triangleIndex = new RTree<Triangle>();
+      this.triangleIndex = new PackedRTree<Triangle>();
     } else {
       this.circumCircleIndex = new RTree<Triangle>();
       final double minX = geometryFactory.makeXyPrecise(boundingBox.getMinX() - 100);
@@ -251,6 +253,7 @@ public class TriangulatedIrregularNetwork {
   }
 
   protected void addTriangle(final Triangle triangle) {
+    this.mesh = null;
     for (int i = 0; i < 3; i++) {
       final Point point = triangle.getPoint(i);
       if (!this.nodes.contains(point)) {
@@ -376,15 +379,12 @@ public class TriangulatedIrregularNetwork {
   public void finishEditing() {
     if (this.circumCircleIndex != null) {
       if (this.triangleIndex == null) {
-        this.triangleIndex = new RTree<Triangle>();
+        this.triangleIndex = new PackedRTree<Triangle>();
         for (final Triangle triangle : this.circumCircleIndex.findAll()) {
-          final Circle circumcircle = triangle.getCircumcircle();
-          final BoundingBox circleEnvelope = circumcircle.getEnvelopeInternal();
-          this.circumCircleIndex.remove(circleEnvelope, triangle);
-
-          final BoundingBox envelope = circumcircle.getEnvelopeInternal();
+          final BoundingBox envelope = triangle.getEnvelopeInternal();
           this.triangleIndex.put(envelope, triangle);
         }
+        this.triangleIndex.build();
       }
       this.circumCircleIndex = null;
     }
@@ -408,83 +408,69 @@ public class TriangulatedIrregularNetwork {
     return this.circumCircleIndex;
   }
 
+  /**
+   * Get a copy of the line with the z of each vertex set to the elevation of
+   * the TIN at that vertex. The vertices are located in the {@link #getMesh()}
+   * starting from the triangle of the previous vertex.
+   *
+   * @param line The line.
+   * @return The new line, or the line if the elevations weren't changed.
+   */
   public LineString getElevation(final LineString line) {
-    final GeometryFactory geometryFactory = line.getGeometryFactory();
-    final LineString oldPoints = line;
-    final int vertexCount = line.getVertexCount();
     final int axisCount = line.getAxisCount();
-    final double[] newCoordinates = new double[vertexCount * axisCount];
-
-    boolean modified = false;
-    int i = 0;
-    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
-      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
-        double value = line.getCoordinate(vertexIndex, axisIndex);
-        if (axisIndex == 2) {
-          final double newZ = getElevation(line.getPoint(vertexIndex));
-          if (!Double.isNaN(newZ)) {
-            if (value != newZ) {
-              value = newZ;
-              modified = true;
-            }
+    if (axisCount < 3) {
+      return line;
+    } else {
+      final double[] coordinates = line.getCoordinates();
+      final double[] elevations = getElevations(coordinates, axisCount);
+      double[] newCoordinates = null;
+      for (int i = 0; i < elevations.length; i++) {
+        final double newZ = elevations[i];
+        final int zIndex = i * axisCount + 2;
+        if (!Double.isNaN(newZ) && coordinates[zIndex] != newZ) {
+          if (newCoordinates == null) {
+            newCoordinates = coordinates.clone();
           }
+          newCoordinates[zIndex] = newZ;
         }
-        newCoordinates[i] = value;
-        i++;
       }
-    }
-    if (modified) {
-      return geometryFactory.lineString(axisCount, newCoordinates);
-    } else {
-      return line;
+      if (newCoordinates == null) {
+        return line;
+      } else {
+        final GeometryFactory geometryFactory = line.getGeometryFactory();
+        return geometryFactory.lineString(axisCount, newCoordinates);
+      }
     }
   }
 
-  public double getElevation(final Point coordinate) {
-    final Point point = this.geometryFactory.createCoordinates(coordinate);
-    final List<Triangle> triangles = getTriangles(coordinate);
-    for (final Triangle triangle : triangles) {
-      final Point t0 = triangle.getP0();
-      if (t0.equals(point)) {
-        return t0.getZ();
-      }
-      final Point t1 = triangle.getP1();
-      if (t1.equals(point)) {
-        return t1.getZ();
-      }
-      final Point t2 = triangle.getP2();
-      if (t2.equals(point)) {
-        return t2.getZ();
-      }
-      Point closestCorner = t0;
-      LineSegment oppositeEdge = new LineSegmentDoubleGF(t1, t2);
-      double closestDistance = coordinate.distance(closestCorner);
-      final double t1Distance = coordinate.distance(t1);
-      if (closestDistance > t1Distance) {
-        closestCorner = t1;
-        oppositeEdge = new LineSegmentDoubleGF(t2, t0);
-        closestDistance = t1Distance;
-      }
-      if (closestDistance > coordinate.distance(t2)) {
-        closestCorner = t2;
-        oppositeEdge = new LineSegmentDoubleGF(t0, t1);
-      }
-      LineSegment segment = new LineSegmentDoubleGF(closestCorner, coordinate).extend(
-        0, t0.distance(t1) + t1.distance(t2) + t0.distance(t2));
-      final Geometry intersectCoordinates = oppositeEdge.getIntersection(segment);
-      if (intersectCoordinates.getVertexCount() > 0) {
-        final Point intersectPoint = intersectCoordinates.getVertex(0);
-        final double z = oppositeEdge.getElevation(intersectPoint);
-        if (!Double.isNaN(z)) {
-          final double x = intersectPoint.getX();
-          final double y = intersectPoint.getY();
-          final Point end = new PointDouble(x, y, z);
-          segment = new LineSegmentDoubleGF(t0, end);
-          return segment.getElevation(coordinate);
-        }
-      }
+  public double getElevation(final Point point) {
+    return getMesh().getElevation(point.getX(), point.getY());
+  }
+
+  /**
+   * Get the elevations for a batch of points.
+   *
+   * @param coordinates The coordinates of the points.
+   * @param axisCount The number of axis for each point in coordinates.
+   * @return The elevations, NaN for points outside the TIN.
+   * @see TriangleMesh#getElevations(double[], int)
+   */
+  public double[] getElevations(final double[] coordinates,
+    final int axisCount) {
+    return getMesh().getElevations(coordinates, axisCount);
+  }
+
+  /**
+   * Get the indexed mesh of the triangles used to get elevations. The mesh is
+   * created the first time it is used after the triangles are changed.
+   *
+   * @return The mesh.
+   */
+  public synchronized TriangleMesh getMesh() {
+    if (this.mesh == null) {
+      this.mesh = new TriangleMesh(getTriangles());
     }
-    return Double.NaN;
+    return this.mesh;
   }
 
   public Set<Point> getNodes() {
@@ -521,10 +507,11 @@ public class TriangulatedIrregularNetwork {
 
   public EnvelopeSpatialIndex<Triangle> getTriangleIndex() {
     if (this.triangleIndex == null) {
-      this.triangleIndex = new RTree<Triangle>();
+      this.triangleIndex = new PackedRTree<Triangle>();
       for (final Triangle triangle : this.circumCircleIndex.findAll()) {
         this.triangleIndex.put(triangle.getEnvelopeInternal(), triangle);
       }
+      this.triangleIndex.build();
     }
     return this.triangleIndex;
   }
@@ -648,6 +635,7 @@ public class TriangulatedIrregularNetwork {
   }
 
   private void removeTriangle(final Triangle triangle) {
+    this.mesh = null;
     if (this.triangleIndex != null) {
       final BoundingBoxDoubleGf envelope = triangle.getEnvelopeInternal();
       this.triangleIndex.remove(envelope, triangle);
@@ -0,0 +1,455 @@
+package com.revolsys.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.revolsys.converter.string.StringConverterRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.RecordState;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.types.DataType;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryCollection;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.MultiLineString;
+import com.revolsys.jts.geom.MultiPoint;
+import com.revolsys.jts.geom.MultiPolygon;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * <p>A compact binary encoding of records, including their geometries, used to
+ * write records to temporary files and read them back in the same JVM.</p>
+ *
+ * <p>The record definitions and geometry factories aren't written to the
+ * stream, instead the index of each one in this codec is written. The same
+ * codec instance must be used to read the records back. The methods can be
+ * used from multiple threads.</p>
+ */
+public class RecordBinaryCodec {
+  private static final byte BIG_DECIMAL = 9;
+
+  private static final byte BIG_INTEGER = 10;
+
+  private static final byte BOOLEAN = 8;
+
+  private static final byte BYTE = 7;
+
+  private static final byte DATE = 11;
+
+  private static final byte DOUBLE = 4;
+
+  private static final byte FLOAT = 5;
+
+  private static final byte GEOMETRY = 14;
+
+  private static final byte GEOMETRY_COLLECTION = 7;
+
+  private static final byte INTEGER = 2;
+
+  private static final byte LINE_STRING = 2;
+
+  private static final byte LINEAR_RING = 8;
+
+  private static final byte LONG = 3;
+
+  private static final byte MULTI_LINE_STRING = 5;
+
+  private static final byte MULTI_POINT = 4;
+
+  private static final byte MULTI_POLYGON = 6;
+
+  private static final byte NULL = 0;
+
+  private static final byte OTHER = 15;
+
+  private static final byte POINT = 1;
+
+  private static final byte POLYGON = 3;
+
+  private static final byte SHORT = 6;
+
+  private static final byte SQL_DATE = 12;
+
+  private static final byte STRING = 1;
+
+  private static final byte TIMESTAMP = 13;
+
+  private static final RecordState[] STATES = RecordState.values();
+
+  /**
+   * Estimate the number of bytes of heap used by the record and its values.
+   */
+  public static long estimateSize(final Record record) {
+    long size = 64;
+    for (final Object value : record.getValues()) {
+      size += 8;
+      if (value instanceof String) {
+        size += 40 + 2 * ((String)value).length();
+      } else if (value instanceof Geometry) {
+        final Geometry geometry = (Geometry)value;
+        size += 64 + 8L * geometry.getVertexCount() * geometry.getAxisCount()
+          + 48 * geometry.getGeometryCount();
+      } else if (value != null) {
+        size += 24;
+      }
+    }
+    return size;
+  }
+
+  private static String readString(final DataInput in) throws IOException {
+    final int length = in.readInt();
+    final byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeString(final DataOutput out, final String string)
+    throws IOException {
+    final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private final Map<GeometryFactory, Integer> geometryFactoryIndexes = new IdentityHashMap<>();
+
+  private final List<GeometryFactory> geometryFactories = new ArrayList<>();
+
+  private final Map<RecordDefinition, Integer> recordDefinitionIndexes = new IdentityHashMap<>();
+
+  private final List<RecordDefinition> recordDefinitions = new ArrayList<>();
+
+  private synchronized GeometryFactory getGeometryFactory(final int index) {
+    return this.geometryFactories.get(index);
+  }
+
+  private synchronized int getGeometryFactoryIndex(
+    final GeometryFactory geometryFactory) {
+    Integer index = this.geometryFactoryIndexes.get(geometryFactory);
+    if (index == null) {
+      index = this.geometryFactories.size();
+      this.geometryFactories.add(geometryFactory);
+      this.geometryFactoryIndexes.put(geometryFactory, index);
+    }
+    return index;
+  }
+
+  private synchronized RecordDefinition getRecordDefinition(final int index) {
+    return this.recordDefinitions.get(index);
+  }
+
+  private synchronized int getRecordDefinitionIndex(
+    final RecordDefinition recordDefinition) {
+    Integer index = this.recordDefinitionIndexes.get(recordDefinition);
+    if (index == null) {
+      index = this.recordDefinitions.size();
+      this.recordDefinitions.add(recordDefinition);
+      this.recordDefinitionIndexes.put(recordDefinition, index);
+    }
+    return index;
+  }
+
+  private double[] readCoordinates(final DataInput in, final int axisCount,
+    final int vertexCount) throws IOException {
+    final double[] coordinates = new double[vertexCount * axisCount];
+    for (int i = 0; i < coordinates.length; i++) {
+      coordinates[i] = in.readDouble();
+    }
+    return coordinates;
+  }
+
+  @SuppressWarnings("unchecked")
+  public <G extends Geometry> G readGeometry(final DataInput in)
+    throws IOException {
+    final byte type = in.readByte();
+    final GeometryFactory geometryFactory = getGeometryFactory(in.readInt());
+    final int axisCount = in.readByte();
+    switch (type) {
+      case POINT:
+        if (in.readBoolean()) {
+          return (G)geometryFactory.point();
+        } else {
+          final double[] coordinates = readCoordinates(in, axisCount, 1);
+          return (G)geometryFactory.point(coordinates);
+        }
+      case LINE_STRING: {
+        final int vertexCount = in.readInt();
+        final double[] coordinates = readCoordinates(in, axisCount, vertexCount);
+        return (G)geometryFactory.lineString(axisCount, coordinates);
+      }
+      case LINEAR_RING: {
+        final int vertexCount = in.readInt();
+        final double[] coordinates = readCoordinates(in, axisCount, vertexCount);
+        return (G)geometryFactory.linearRing(axisCount, coordinates);
+      }
+      case POLYGON: {
+        final int ringCount = in.readInt();
+        if (ringCount == 0) {
+          return (G)geometryFactory.polygon();
+        } else {
+          final LinearRing[] rings = new LinearRing[ringCount];
+          for (int i = 0; i < ringCount; i++) {
+            rings[i] = readGeometry(in);
+          }
+          return (G)geometryFactory.polygon(rings);
+        }
+      }
+      case MULTI_POINT: {
+        final Point[] points = new Point[in.readInt()];
+        for (int i = 0; i < points.length; i++) {
+          points[i] = readGeometry(in);
+        }
+        return (G)geometryFactory.multiPoint(points);
+      }
+      case MULTI_LINE_STRING: {
+        final LineString[] lines = new LineString[in.readInt()];
+        for (int i = 0; i < lines.length; i++) {
+          lines[i] = readGeometry(in);
+        }
+        return (G)geometryFactory.multiLineString(lines);
+      }
+      case MULTI_POLYGON: {
+        final Polygon[] polygons = new Polygon[in.readInt()];
+        for (int i = 0; i < polygons.length; i++) {
+          polygons[i] = readGeometry(in);
+        }
+        return (G)geometryFactory.multiPolygon(polygons);
+      }
+      case GEOMETRY_COLLECTION: {
+        final Geometry[] geometries = new Geometry[in.readInt()];
+        for (int i = 0; i < geometries.length; i++) {
+          geometries[i] = readGeometry(in);
+        }
+        return (G)geometryFactory.geometryCollection(geometries);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown geometry type " + type);
+    }
+  }
+
+  /**
+   * Read a record written using {@link #writeRecord(DataOutput, Record)}.
+   *
+   * @return The record or null if the end of the records was reached.
+   */
+  public Record readRecord(final DataInput in) throws IOException {
+    final int recordDefinitionIndex = in.readInt();
+    if (recordDefinitionIndex < 0) {
+      return null;
+    } else {
+      final RecordDefinition recordDefinition = getRecordDefinition(recordDefinitionIndex);
+      final RecordState state = STATES[in.readByte()];
+      final Record record = recordDefinition.createRecord();
+      final int fieldCount = recordDefinition.getFieldCount();
+      for (int i = 0; i < fieldCount; i++) {
+        final DataType dataType = recordDefinition.getFieldType(i);
+        final Object value = readValue(in, dataType);
+        record.setValue(i, value);
+      }
+      record.setState(state);
+      return record;
+    }
+  }
+
+  public Object readValue(final DataInput in, final DataType dataType)
+    throws IOException {
+    final byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case STRING:
+        return readString(in);
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case SHORT:
+        return in.readShort();
+      case BYTE:
+        return in.readByte();
+      case BOOLEAN:
+        return in.readBoolean();
+      case BIG_DECIMAL:
+        return new BigDecimal(readString(in));
+      case BIG_INTEGER:
+        return new BigInteger(readString(in));
+      case DATE:
+        return new Date(in.readLong());
+      case SQL_DATE:
+        return new java.sql.Date(in.readLong());
+      case TIMESTAMP: {
+        final Timestamp timestamp = new Timestamp(in.readLong());
+        timestamp.setNanos(in.readInt());
+        return timestamp;
+      }
+      case GEOMETRY:
+        return readGeometry(in);
+      case OTHER: {
+        final String string = readString(in);
+        return StringConverterRegistry.toObject(dataType, string);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown value type " + type);
+    }
+  }
+
+  private void writeCoordinates(final DataOutput out, final double[] coordinates)
+    throws IOException {
+    for (final double coordinate : coordinates) {
+      out.writeDouble(coordinate);
+    }
+  }
+
+  /**
+   * Write the end marker after the last record.
+   */
+  public void writeEnd(final DataOutput out) throws IOException {
+    out.writeInt(-1);
+  }
+
+  public void writeGeometry(final DataOutput out, final Geometry geometry)
+    throws IOException {
+    final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+    final int geometryFactoryIndex = getGeometryFactoryIndex(geometryFactory);
+    final int axisCount = geometry.getAxisCount();
+    if (geometry instanceof Point) {
+      final Point point = (Point)geometry;
+      out.writeByte(POINT);
+      out.writeInt(geometryFactoryIndex);
+      out.writeByte(axisCount);
+      if (point.isEmpty()) {
+        out.writeBoolean(true);
+      } else {
+        out.writeBoolean(false);
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          out.writeDouble(point.getCoordinate(axisIndex));
+        }
+      }
+    } else if (geometry instanceof LineString) {
+      final LineString line = (LineString)geometry;
+      if (line instanceof LinearRing) {
+        out.writeByte(LINEAR_RING);
+      } else {
+        out.writeByte(LINE_STRING);
+      }
+      out.writeInt(geometryFactoryIndex);
+      out.writeByte(axisCount);
+      out.writeInt(line.getVertexCount());
+      if (!line.isEmpty()) {
+        writeCoordinates(out, line.getCoordinates());
+      }
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      out.writeByte(POLYGON);
+      out.writeInt(geometryFactoryIndex);
+      out.writeByte(axisCount);
+      final int ringCount = polygon.getRingCount();
+      out.writeInt(ringCount);
+      for (int i = 0; i < ringCount; i++) {
+        writeGeometry(out, polygon.getRing(i));
+      }
+    } else {
+      if (geometry instanceof MultiPoint) {
+        out.writeByte(MULTI_POINT);
+      } else if (geometry instanceof MultiLineString) {
+        out.writeByte(MULTI_LINE_STRING);
+      } else if (geometry instanceof MultiPolygon) {
+        out.writeByte(MULTI_POLYGON);
+      } else if (geometry instanceof GeometryCollection) {
+        out.writeByte(GEOMETRY_COLLECTION);
+      } else {
+        throw new IllegalArgumentException("Unsupported geometry type "
+          + geometry.getClass());
+      }
+      out.writeInt(geometryFactoryIndex);
+      out.writeByte(axisCount);
+      final int geometryCount = geometry.getGeometryCount();
+      out.writeInt(geometryCount);
+      for (int i = 0; i < geometryCount; i++) {
+        writeGeometry(out, geometry.getGeometry(i));
+      }
+    }
+  }
+
+  public void writeRecord(final DataOutput out, final Record record)
+    throws IOException {
+    final RecordDefinition recordDefinition = record.getRecordDefinition();
+    out.writeInt(getRecordDefinitionIndex(recordDefinition));
+    out.writeByte(record.getState().ordinal());
+    final int fieldCount = recordDefinition.getFieldCount();
+    for (int i = 0; i < fieldCount; i++) {
+      final Object value = record.getValue(i);
+      writeValue(out, value);
+    }
+  }
+
+  public void writeValue(final DataOutput out, final Object value)
+    throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof String) {
+      out.writeByte(STRING);
+      writeString(out, (String)value);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer)value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long)value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double)value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float)value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short)value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte)value);
+    } else if (value instanceof Boolean) {
+      out.writeByte(BOOLEAN);
+      out.writeBoolean((Boolean)value);
+    } else if (value instanceof BigDecimal) {
+      out.writeByte(BIG_DECIMAL);
+      writeString(out, value.toString());
+    } else if (value instanceof BigInteger) {
+      out.writeByte(BIG_INTEGER);
+      writeString(out, value.toString());
+    } else if (value instanceof Timestamp) {
+      final Timestamp timestamp = (Timestamp)value;
+      out.writeByte(TIMESTAMP);
+      out.writeLong(timestamp.getTime());
+      out.writeInt(timestamp.getNanos());
+    } else if (value instanceof java.sql.Date) {
+      out.writeByte(SQL_DATE);
+      out.writeLong(((java.sql.Date)value).getTime());
+    } else if (value instanceof Date) {
+      out.writeByte(DATE);
+      out.writeLong(((Date)value).getTime());
+    } else if (value instanceof Geometry) {
+      out.writeByte(GEOMETRY);
+      writeGeometry(out, (Geometry)value);
+    } else {
+      out.writeByte(OTHER);
+      writeString(out, StringConverterRegistry.toString(value));
+    }
+  }
+}
@@ -19,6 +19,7 @@ import com.revolsys.collection.AbstractIterator;
 import com.revolsys.data.io.RecordIo;
 import com.revolsys.data.io.RecordReader;
 import com.revolsys.data.query.Query;
+import com.revolsys.data.query.QueryValue;
 import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.AbstractRecordStore;
 import com.revolsys.data.record.schema.FieldDefinition;
@@ -31,6 +32,7 @@ import com.revolsys.io.ObjectWithProperties;
 import com.revolsys.io.Path;
 import com.revolsys.io.Writer;
 import com.revolsys.io.filter.ExtensionFilenameFilter;
+import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.spring.SpringUtil;
 
 public class DirectoryRecordStore extends AbstractRecordStore {
@@ -84,6 +86,10 @@ public class DirectoryRecordStore extends AbstractRecordStore {
     final String path = query.getTypeName();
     final RecordReader reader = query(path);
     reader.setProperties(properties);
+    final BoundingBox boundingBox = QueryValue.getFilterBoundingBox(query);
+    if (boundingBox != null) {
+      reader.setProperty("boundingBox", boundingBox);
+    }
     return new RecordReaderQueryIterator(reader, query);
   }
 
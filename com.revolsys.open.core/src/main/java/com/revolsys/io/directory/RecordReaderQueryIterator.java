@@ -1,25 +1,75 @@
 package com.revolsys.io.directory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
 import com.revolsys.collection.AbstractIterator;
+import com.revolsys.data.comparator.RecordAttributeComparator;
 import com.revolsys.data.io.RecordReader;
 import com.revolsys.data.query.Condition;
 import com.revolsys.data.query.Query;
 import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.filter.Filter;
 
+/**
+ * Iterate over the records from a reader that match the where condition of a
+ * query. If the query has an order by the matching records are read into
+ * memory and sorted. The offset and limit of the query are applied to the
+ * matching (sorted) records.
+ */
 public class RecordReaderQueryIterator extends AbstractIterator<Record> {
 
+  private static Comparator<Record> createComparator(
+    final Map<String, Boolean> orderBy) {
+    final List<RecordAttributeComparator> comparators = new ArrayList<>();
+    for (final Entry<String, Boolean> entry : orderBy.entrySet()) {
+      final String fieldName = entry.getKey();
+      final boolean ascending = !Boolean.FALSE.equals(entry.getValue());
+      comparators.add(new RecordAttributeComparator(ascending, fieldName));
+    }
+    return new Comparator<Record>() {
+      @Override
+      public int compare(final Record record1, final Record record2) {
+        for (final RecordAttributeComparator comparator : comparators) {
+          final int compare = comparator.compare(record1, record2);
+          if (compare != 0) {
+            return compare;
+          }
+        }
+        return 0;
+      }
+    };
+  }
+
   private final Condition whereCondition;
 
+  private Filter<Record> filter;
+
   private final RecordReader reader;
 
   private Iterator<Record> iterator;
 
+  private final int offset;
+
+  private final int limit;
+
+  private final Map<String, Boolean> orderBy;
+
+  private int count;
+
   public RecordReaderQueryIterator(final RecordReader reader, final Query query) {
     this.reader = reader;
     this.whereCondition = query.getWhereCondition();
+    this.offset = query.getOffset();
+    this.limit = query.getLimit();
+    this.orderBy = query.getOrderBy();
   }
 
   @Override
@@ -27,19 +77,52 @@ public class RecordReaderQueryIterator extends AbstractIterator<Record> {
     this.reader.close();
   }
 
+  @Override
+  protected void doInit() {
+    this.reader.open();
+    this.iterator = this.reader.iterator();
+    if (this.whereCondition != null) {
+      final RecordDefinition recordDefinition = this.reader.getRecordDefinition();
+      this.filter = this.whereCondition.compile(recordDefinition);
+    }
+    if (this.orderBy != null && !this.orderBy.isEmpty()) {
+      final List<Record> records = new ArrayList<>();
+      while (this.iterator.hasNext()) {
+        final Record record = this.iterator.next();
+        if (this.filter == null || this.filter.accept(record)) {
+          records.add(record);
+        }
+      }
+      Collections.sort(records, createComparator(this.orderBy));
+      this.filter = null;
+      this.iterator = records.iterator();
+    }
+    for (int i = 0; i < this.offset; i++) {
+      try {
+        getNextMatch();
+      } catch (final NoSuchElementException e) {
+        break;
+      }
+    }
+  }
+
   @Override
   protected Record getNext() throws NoSuchElementException {
+    if (this.limit >= 0 && this.count >= this.limit) {
+      throw new NoSuchElementException();
+    } else {
+      final Record record = getNextMatch();
+      this.count++;
+      return record;
+    }
+  }
+
+  private Record getNextMatch() throws NoSuchElementException {
     while (true) {
       final Record record = this.iterator.next();
-      if (this.whereCondition == null || this.whereCondition.accept(record)) {
+      if (this.filter == null || this.filter.accept(record)) {
         return record;
       }
     }
   }
-
-  @Override
-  public synchronized void init() {
-    this.reader.open();
-    this.iterator = this.reader.iterator();
-  }
 }
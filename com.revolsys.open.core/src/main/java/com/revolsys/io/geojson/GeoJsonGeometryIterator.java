@@ -2,6 +2,7 @@ package com.revolsys.io.geojson;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -23,10 +24,16 @@ import com.revolsys.jts.geom.impl.LineStringDouble;
 public class GeoJsonGeometryIterator extends AbstractIterator<Geometry>
 implements GeoJsonConstants {
 
+  /** The buffer the coordinates of a coordinates list are read into. */
+  private double[] coordinates = new double[1024];
+
   private GeometryFactory geometryFactory;
 
   private JsonParser in;
 
+  /** The ordinates of the point being read. */
+  private final double[] pointCoordinates = new double[4];
+
   public GeoJsonGeometryIterator(final Resource resource) throws IOException {
     this.in = new JsonParser(resource);
   }
@@ -73,48 +80,57 @@ implements GeoJsonConstants {
     throw new NoSuchElementException();
   }
 
+  /**
+   * Read the array of point coordinates directly into the coordinates buffer.
+   * The number of axis is taken from the first point, missing ordinates in
+   * other points are set to NaN.
+   */
   private LineString readCoordinatesList(final boolean cogo, final boolean ring) {
-    final List<Double> coordinates = new ArrayList<>();
-    final int axisCount = readCoordinatesList(coordinates);
-    if (cogo) {
-      final int vertexCount = coordinates.size() / axisCount;
-      if (vertexCount > 0) {
-        final double firstX = coordinates.get(0);
-        final double firstY = coordinates.get(1);
-        double previousX = firstX;
-        double previousY = firstY;
-        for (int i = 1; i < vertexCount; i++) {
-          final double distance = coordinates.get(i * axisCount);
-          final double angleDegrees = coordinates.get(i * axisCount + 1);
-          final double angle = Math.toRadians((450 - angleDegrees) % 360);
-          final double x = previousX + distance * Math.cos(angle);
-          final double y = previousY + distance * Math.sin(angle);
-
-          coordinates.set(i * axisCount, x);
-          coordinates.set(i * axisCount + 1, y);
-          previousX = x;
-          previousY = y;
-        }
-        if (ring) {
-          coordinates.set((vertexCount - 1) * axisCount, firstX);
-          coordinates.set((vertexCount - 1) * axisCount + 1, firstY);
-        }
-      }
-    }
-    return new LineStringDouble(axisCount, coordinates);
-  }
-
-  private int readCoordinatesList(final List<Double> coordinates) {
-    int axisCount = 0;
+    int axisCount = 2;
+    int vertexCount = 0;
+    double[] coordinates = this.coordinates;
+    final double[] pointCoordinates = this.pointCoordinates;
     if (this.in.getEvent() == EventType.startArray || this.in.hasNext()
         && this.in.next() == EventType.startArray) {
       EventType event = this.in.next();
-      if (event != EventType.endArray) {
-        do {
-          axisCount = Math.max(axisCount,
-            readCoordinatesListCoordinates(coordinates));
+      while (event == EventType.startArray) {
+        int pointAxisCount = 0;
+        event = this.in.next();
+        while (event == EventType.number) {
+          if (pointAxisCount < pointCoordinates.length) {
+            pointCoordinates[pointAxisCount] = this.in.getDoubleValue();
+          }
+          pointAxisCount++;
           event = this.in.next();
-        } while (event == EventType.comma);
+          if (event == EventType.comma) {
+            event = this.in.next();
+          }
+        }
+        if (event != EventType.endArray) {
+          throw new IllegalStateException("Exepecting end array, not: "
+              + event);
+        }
+        if (vertexCount == 0) {
+          axisCount = Math.max(2,
+            Math.min(pointCoordinates.length, pointAxisCount));
+        }
+        final int offset = vertexCount * axisCount;
+        if (offset + axisCount > coordinates.length) {
+          coordinates = Arrays.copyOf(coordinates, coordinates.length * 2);
+          this.coordinates = coordinates;
+        }
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          if (axisIndex < pointAxisCount) {
+            coordinates[offset + axisIndex] = pointCoordinates[axisIndex];
+          } else {
+            coordinates[offset + axisIndex] = Double.NaN;
+          }
+        }
+        vertexCount++;
+        event = this.in.next();
+        if (event == EventType.comma) {
+          event = this.in.next();
+        }
       }
       if (event != EventType.endArray) {
         throw new IllegalStateException("Exepecting end array, not: " + event);
@@ -123,40 +139,34 @@ implements GeoJsonConstants {
       throw new IllegalStateException("Exepecting start array, not: "
           + this.in.getEvent());
     }
-    return axisCount;
-  }
+    if (vertexCount == 0) {
+      return new LineStringDouble(2);
+    } else {
+      if (cogo) {
+        final double firstX = coordinates[0];
+        final double firstY = coordinates[1];
+        double previousX = firstX;
+        double previousY = firstY;
+        for (int i = 1; i < vertexCount; i++) {
+          final double distance = coordinates[i * axisCount];
+          final double angleDegrees = coordinates[i * axisCount + 1];
+          final double angle = Math.toRadians((450 - angleDegrees) % 360);
+          final double x = previousX + distance * Math.cos(angle);
+          final double y = previousY + distance * Math.sin(angle);
 
-  /**
-   * Read one points coordinates and add them to the list of coordinate values.
-   *
-   * @param values The list to add the points coordinates to.
-   * @return The dimension of the coordinate read.
-   */
-  private int readCoordinatesListCoordinates(final List<Double> values) {
-    int numAxis = 0;
-    if (this.in.getEvent() == EventType.startArray || this.in.hasNext()
-        && this.in.next() == EventType.startArray) {
-      EventType event = this.in.getEvent();
-      do {
-        final Object value = JsonParser.getValue(this.in);
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          values.add(((Number)value).doubleValue());
-          numAxis++;
-          event = this.in.next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
+          coordinates[i * axisCount] = x;
+          coordinates[i * axisCount + 1] = y;
+          previousX = x;
+          previousY = y;
+        }
+        if (ring) {
+          coordinates[(vertexCount - 1) * axisCount] = firstX;
+          coordinates[(vertexCount - 1) * axisCount + 1] = firstY;
         }
-      } while (event == EventType.comma);
-      if (event != EventType.endArray) {
-        throw new IllegalStateException("Exepecting end array, not: " + event);
       }
-
-      return numAxis;
-    } else {
-      throw new IllegalStateException("Exepecting start array, not: "
-          + this.in.getEvent());
+      final int coordinateCount = vertexCount * axisCount;
+      return new LineStringDouble(axisCount, vertexCount, Arrays.copyOf(
+        coordinates, coordinateCount));
     }
   }
 
@@ -1,6 +1,5 @@
 package com.revolsys.io.json;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -10,6 +9,7 @@ import java.math.BigDecimal;
 import java.sql.Clob;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -20,7 +20,6 @@ import java.util.NoSuchElementException;
 import org.springframework.core.io.Resource;
 
 import com.revolsys.io.FileUtil;
-import com.revolsys.util.MathUtil;
 
 public class JsonParser implements Iterator<JsonParser.EventType>,
 AutoCloseable {
@@ -28,6 +27,14 @@ AutoCloseable {
     booleanValue, colon, comma, endArray, endDocument, endObject, nullValue, number, startArray, startDocument, startObject, string, unknown
   }
 
+  private static final int BUFFER_SIZE = 8192;
+
+  /** The powers of 10 that can be represented exactly as a double. */
+  private static final double[] POWERS_OF_10 = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13,
+    1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
   public static List<Object> getArray(final JsonParser parser) {
     if (parser.getEvent() == EventType.startArray || parser.hasNext()
         && parser.next() == EventType.startArray) {
@@ -57,24 +64,27 @@ AutoCloseable {
   public static double[] getDoubleArray(final JsonParser parser) {
     if (parser.getEvent() == EventType.startArray || parser.hasNext()
         && parser.next() == EventType.startArray) {
-      EventType event = parser.getEvent();
-      final List<Number> list = new ArrayList<Number>();
-      do {
-        final Object value = getValue(parser);
-        if (value instanceof EventType) {
-          event = (EventType)value;
-        } else if (value instanceof Number) {
-          list.add((Number)value);
+      double[] values = new double[4];
+      int count = 0;
+      EventType event = parser.next();
+      while (event == EventType.number) {
+        if (count == values.length) {
+          values = Arrays.copyOf(values, count * 2);
+        }
+        values[count++] = parser.getDoubleValue();
+        event = parser.next();
+        if (event == EventType.comma) {
           event = parser.next();
-        } else {
-          throw new IllegalArgumentException("Expecting number, not: " + value);
+          if (event != EventType.number) {
+            throw new IllegalArgumentException("Expecting number, not: "
+              + event);
+          }
         }
-      } while (event == EventType.comma);
+      }
       if (event != EventType.endArray) {
         throw new IllegalStateException("Exepecting end array, not: " + event);
       }
-
-      return MathUtil.toDoubleArray(list);
+      return Arrays.copyOf(values, count);
     } else if (parser.getEvent() == EventType.nullValue) {
       return null;
     } else {
@@ -180,6 +190,99 @@ AutoCloseable {
     }
   }
 
+  /**
+   * Parse the characters of a JSON number to a double. Numbers with at most
+   * 15 significant digits and an exponent between -22 and 22 are calculated
+   * using a single multiply or divide which is exact. Other numbers are parsed
+   * using {@link Double#parseDouble(String)}.
+   */
+  static double parseDouble(final char[] chars, final int length) {
+    int index = 0;
+    boolean negative = false;
+    if (length > 0 && chars[0] == '-') {
+      negative = true;
+      index++;
+    }
+    long mantissa = 0;
+    int digitCount = 0;
+    int exponent = 0;
+    for (; index < length; index++) {
+      final char character = chars[index];
+      if (character >= '0' && character <= '9') {
+        if (digitCount < 18) {
+          mantissa = mantissa * 10 + (character - '0');
+          if (mantissa != 0) {
+            digitCount++;
+          }
+        } else {
+          exponent++;
+        }
+      } else {
+        break;
+      }
+    }
+    if (index < length && chars[index] == '.') {
+      index++;
+      for (; index < length; index++) {
+        final char character = chars[index];
+        if (character >= '0' && character <= '9') {
+          if (digitCount < 18) {
+            mantissa = mantissa * 10 + (character - '0');
+            if (mantissa != 0) {
+              digitCount++;
+            }
+            exponent--;
+          }
+        } else {
+          break;
+        }
+      }
+    }
+    if (index < length && (chars[index] == 'e' || chars[index] == 'E')) {
+      index++;
+      boolean negativeExponent = false;
+      if (index < length && (chars[index] == '-' || chars[index] == '+')) {
+        negativeExponent = chars[index] == '-';
+        index++;
+      }
+      int exponentValue = 0;
+      for (; index < length; index++) {
+        final char character = chars[index];
+        if (character >= '0' && character <= '9' && exponentValue < 10000) {
+          exponentValue = exponentValue * 10 + (character - '0');
+        } else {
+          break;
+        }
+      }
+      if (negativeExponent) {
+        exponent -= exponentValue;
+      } else {
+        exponent += exponentValue;
+      }
+    }
+    if (index == length && digitCount <= 15) {
+      double value;
+      if (mantissa == 0) {
+        value = 0;
+      } else if (exponent == 0) {
+        value = mantissa;
+      } else if (exponent > 0 && exponent <= 22) {
+        value = mantissa * POWERS_OF_10[exponent];
+      } else if (exponent < 0 && exponent >= -22) {
+        value = mantissa / POWERS_OF_10[-exponent];
+      } else {
+        return Double.parseDouble(new String(chars, 0, length));
+      }
+      if (negative) {
+        return -value;
+      } else {
+        return value;
+      }
+    } else {
+      return Double.parseDouble(new String(chars, 0, length));
+    }
+  }
+
   @SuppressWarnings("unchecked")
   public static <V> V read(final InputStream in) {
     return (V)read(FileUtil.createUtf8Reader(in));
@@ -298,28 +401,48 @@ AutoCloseable {
     return null;
   }
 
+  private final char[] buffer = new char[BUFFER_SIZE];
+
+  private int bufferIndex;
+
+  private int bufferLength;
+
   private int currentCharacter;
 
+  private double currentDoubleValue;
+
   private EventType currentEvent = EventType.startDocument;
 
+  private char[] currentNumber = new char[32];
+
+  private int currentNumberLength;
+
   private Object currentValue;
 
   private int depth;
 
+  private double nextDoubleValue;
+
   private EventType nextEvent = EventType.startDocument;
 
+  private char[] nextNumber = new char[32];
+
+  private int nextNumberLength;
+
   private Object nextValue;
 
   private final Reader reader;
 
+  private final StringBuilder text = new StringBuilder();
+
   public JsonParser(final InputStream in) {
     this(FileUtil.createUtf8Reader(in));
   }
 
   public JsonParser(final Reader reader) {
-    this.reader = new BufferedReader(reader);
+    this.reader = reader;
     try {
-      this.currentCharacter = this.reader.read();
+      this.currentCharacter = read();
     } catch (final IOException e) {
       throw new RuntimeException(e);
     }
@@ -338,12 +461,29 @@ AutoCloseable {
     return this.depth;
   }
 
+  /**
+   * Get the value of the current number event as a double without creating
+   * a {@link BigDecimal}.
+   */
+  public double getDoubleValue() {
+    if (this.currentEvent == EventType.number) {
+      return this.currentDoubleValue;
+    } else {
+      throw new IllegalStateException("Expecting a number, not: "
+        + this.currentEvent);
+    }
+  }
+
   public EventType getEvent() {
     return this.currentEvent;
   }
 
   @SuppressWarnings("unchecked")
   public <T> T getValue() {
+    if (this.currentEvent == EventType.number && this.currentValue == null) {
+      this.currentValue = new BigDecimal(this.currentNumber, 0,
+        this.currentNumberLength);
+    }
     return (T)this.currentValue;
   }
 
@@ -359,59 +499,59 @@ AutoCloseable {
       switch (this.currentCharacter) {
         case ',':
           this.nextEvent = EventType.comma;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case ':':
           this.nextEvent = EventType.colon;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case '{':
           this.nextEvent = EventType.startObject;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           this.depth++;
           break;
         case '}':
           this.nextEvent = EventType.endObject;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           this.depth--;
           break;
         case '[':
           this.nextEvent = EventType.startArray;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case ']':
           this.nextEvent = EventType.endArray;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case 't':
           for (int i = 0; i < 3; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.booleanValue;
           this.nextValue = Boolean.TRUE;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case 'f':
           for (int i = 0; i < 4; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.booleanValue;
           this.nextValue = Boolean.FALSE;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case 'n':
           for (int i = 0; i < 3; i++) {
-            this.currentCharacter = this.reader.read();
+            this.currentCharacter = read();
           }
           this.nextEvent = EventType.nullValue;
           this.nextValue = null;
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case '"':
           this.nextEvent = EventType.string;
 
           processString();
-          this.currentCharacter = this.reader.read();
+          this.currentCharacter = read();
           break;
         case '-':
           this.nextEvent = EventType.number;
@@ -440,6 +580,13 @@ AutoCloseable {
     if (hasNext()) {
       this.currentValue = this.nextValue;
       this.currentEvent = this.nextEvent;
+      if (this.nextEvent == EventType.number) {
+        final char[] number = this.currentNumber;
+        this.currentNumber = this.nextNumber;
+        this.currentNumberLength = this.nextNumberLength;
+        this.currentDoubleValue = this.nextDoubleValue;
+        this.nextNumber = number;
+      }
       moveNext();
       return this.currentEvent;
     } else {
@@ -447,46 +594,56 @@ AutoCloseable {
     }
   }
 
+  /**
+   * Copy the characters of the number to the next number buffer and parse the
+   * double value. The {@link BigDecimal} value is only created if
+   * {@link #getValue()} is called.
+   */
   private void processNumber() throws IOException {
-    final StringBuilder text = new StringBuilder();
-    if (this.currentCharacter == '-') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
-    }
-    while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
-    }
-    if (this.currentCharacter == '.') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
-      while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
+    char[] number = this.nextNumber;
+    int length = 0;
+    while (this.currentCharacter >= '0' && this.currentCharacter <= '9'
+      || this.currentCharacter == '-' || this.currentCharacter == '+'
+      || this.currentCharacter == '.' || this.currentCharacter == 'e'
+      || this.currentCharacter == 'E') {
+      if (length == number.length) {
+        number = Arrays.copyOf(number, length * 2);
+        this.nextNumber = number;
       }
+      number[length++] = (char)this.currentCharacter;
+      this.currentCharacter = read();
     }
-
-    if (this.currentCharacter == 'e' || this.currentCharacter == 'E') {
-      text.append((char)this.currentCharacter);
-      this.currentCharacter = this.reader.read();
-      if (this.currentCharacter == '-' || this.currentCharacter == '+') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
-      }
-      while (this.currentCharacter >= '0' && this.currentCharacter <= '9') {
-        text.append((char)this.currentCharacter);
-        this.currentCharacter = this.reader.read();
-      }
-    }
-    this.nextValue = new BigDecimal(text.toString());
+    this.nextNumberLength = length;
+    this.nextDoubleValue = parseDouble(number, length);
   }
 
+  /**
+   * Read the string, copying the runs of characters without escapes directly
+   * from the buffer.
+   */
   private void processString() throws IOException {
-    final StringBuilder text = new StringBuilder();
-    this.currentCharacter = this.reader.read();
-    while (this.currentCharacter != '"') {
-      if (this.currentCharacter == '\\') {
-        this.currentCharacter = this.reader.read();
+    final StringBuilder text = this.text;
+    text.setLength(0);
+    final char[] buffer = this.buffer;
+    while (true) {
+      int index = this.bufferIndex;
+      final int bufferLength = this.bufferLength;
+      while (index < bufferLength) {
+        final char character = buffer[index];
+        if (character == '"' || character == '\\') {
+            break;
+        } else {
+          index++;
+        }
+      }
+      text.append(buffer, this.bufferIndex, index - this.bufferIndex);
+      this.bufferIndex = index;
+      this.currentCharacter = read();
+      if (this.currentCharacter == '"' || this.currentCharacter == -1) {
+        this.nextValue = text.toString();
+        return;
+      } else if (this.currentCharacter == '\\') {
+        this.currentCharacter = read();
         switch (this.currentCharacter) {
           case 'n':
             text.append('\n');
@@ -498,11 +655,22 @@ AutoCloseable {
             text.append('\t');
             break;
           case 'b':
-            text.setLength(text.length() - 1);
+            text.append('\b');
+            break;
+          case 'f':
+            text.append('\f');
             break;
           case 'u':
-            // TODO process hex
+            int character = 0;
+            for (int i = 0; i < 4; i++) {
+              character = character * 16
+                + Character.digit((char)read(), 16);
+            }
+            text.append((char)character);
             break;
+          case -1:
+            this.nextValue = text.toString();
+            return;
           default:
             text.append((char)this.currentCharacter);
             break;
@@ -510,9 +678,23 @@ AutoCloseable {
       } else {
         text.append((char)this.currentCharacter);
       }
-      this.currentCharacter = this.reader.read();
     }
-    this.nextValue = text.toString();
+  }
+
+  /**
+   * Read the next character from the buffer, filling the buffer from the
+   * reader if required.
+   */
+  private int read() throws IOException {
+    if (this.bufferIndex >= this.bufferLength) {
+      this.bufferIndex = 0;
+      this.bufferLength = this.reader.read(this.buffer, 0, this.buffer.length);
+      if (this.bufferLength <= 0) {
+        this.bufferLength = 0;
+        return -1;
+      }
+    }
+    return this.buffer[this.bufferIndex++];
   }
 
   @Override
@@ -521,7 +703,7 @@ AutoCloseable {
 
   private void skipWhitespace() throws IOException {
     while (Character.isWhitespace(this.currentCharacter)) {
-      this.currentCharacter = this.reader.read();
+      this.currentCharacter = read();
     }
   }
 
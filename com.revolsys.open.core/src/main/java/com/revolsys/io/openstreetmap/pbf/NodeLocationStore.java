@@ -0,0 +1,39 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.io.Closeable;
+
+/**
+ * <p>A store of the location of OSM nodes used to build the geometries of the
+ * ways and relations that reference them.</p>
+ *
+ * <p>Locations are accessed by first finding the index of the node id and then
+ * reading the coordinates at that index. This allows the geometries to be
+ * assembled without creating a {@link com.revolsys.jts.geom.Point} for every
+ * node.</p>
+ */
+public interface NodeLocationStore extends Closeable {
+  @Override
+  void close();
+
+  /**
+   * Get the index of the node with the id.
+   *
+   * @param id The node id.
+   * @return The index or -1 if the node is not in the store.
+   */
+  long getIndex(long id);
+
+  /**
+   * Get the longitude of the node at the index returned by {@link #getIndex(long)}.
+   */
+  double getX(long index);
+
+  /**
+   * Get the latitude of the node at the index returned by {@link #getIndex(long)}.
+   */
+  double getY(long index);
+
+  void put(long id, double x, double y);
+
+  long size();
+}
@@ -0,0 +1,63 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.io.openstreetmap.model.OsmElement;
+
+/**
+ * The decoded contents of a PBF PrimitiveBlock. A block can be decoded on any
+ * thread as it doesn't depend on the other blocks. The node locations are
+ * added to the {@link NodeLocationStore} and the way and relation geometries
+ * are assembled when the block is added to the {@link OsmPbfRecordIterator}
+ * in file order.
+ */
+public class OsmPbfBlock {
+  final List<OsmElement> elements = new ArrayList<>();
+
+  private double[] nodeCoordinates = new double[0];
+
+  private int nodeCount;
+
+  private long[] nodeIds = new long[0];
+
+  final List<List<Long>> relationMemberIds = new ArrayList<>();
+
+  final List<List<String>> relationMemberRoles = new ArrayList<>();
+
+  final List<List<Integer>> relationMemberTypes = new ArrayList<>();
+
+  final List<String> strings = new ArrayList<>();
+
+  final List<List<Long>> wayNodeIds = new ArrayList<>();
+
+  void addNodeLocation(final long id, final double x, final double y) {
+    final int index = this.nodeCount;
+    if (index == this.nodeIds.length) {
+      final int newLength = Math.max(64, index * 2);
+      final long[] newIds = new long[newLength];
+      System.arraycopy(this.nodeIds, 0, newIds, 0, index);
+      this.nodeIds = newIds;
+      final double[] newCoordinates = new double[newLength * 2];
+      System.arraycopy(this.nodeCoordinates, 0, newCoordinates, 0, index * 2);
+      this.nodeCoordinates = newCoordinates;
+    }
+    this.nodeIds[index] = id;
+    this.nodeCoordinates[index * 2] = x;
+    this.nodeCoordinates[index * 2 + 1] = y;
+    this.nodeCount++;
+  }
+
+  void addNodeLocations(final NodeLocationStore nodeLocations) {
+    for (int i = 0; i < this.nodeCount; i++) {
+      final long id = this.nodeIds[i];
+      final double x = this.nodeCoordinates[i * 2];
+      final double y = this.nodeCoordinates[i * 2 + 1];
+      nodeLocations.put(id, x, y);
+    }
+  }
+
+  String getString(final int stringId) {
+    return this.strings.get(stringId);
+  }
+}
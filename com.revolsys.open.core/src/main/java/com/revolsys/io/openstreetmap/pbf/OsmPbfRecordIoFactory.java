@@ -15,6 +15,8 @@ import com.revolsys.gis.cs.epsg.EpsgCoordinateSystems;
 
 public class OsmPbfRecordIoFactory extends
 AbstractRecordAndGeometryReaderFactory {
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+
   public OsmPbfRecordIoFactory() {
     super("Open Street Map PBF", true);
     addMediaTypeAndFileExtension("application/x-pbf+osm", "osm.pbf");
@@ -24,6 +26,7 @@ AbstractRecordAndGeometryReaderFactory {
   public RecordReader createRecordReader(final Resource resource,
     final RecordFactory recordFactory) {
     final OsmPbfRecordIterator iterator = new OsmPbfRecordIterator(resource);
+    iterator.setThreadCount(this.threadCount);
     return new RecordIteratorReader(iterator);
   }
 
@@ -32,10 +35,23 @@ AbstractRecordAndGeometryReaderFactory {
     return Collections.singleton(EpsgCoordinateSystems.wgs84());
   }
 
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
   @Override
   public boolean isCoordinateSystemSupported(
     final CoordinateSystem coordinateSystem) {
     return coordinateSystem instanceof GeographicCoordinateSystem;
   }
 
+  /**
+   * Set the number of threads the readers use to inflate and decode the
+   * blocks, defaults to the number of available processors. A value of 1
+   * decodes the blocks on the thread reading the records.
+   */
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+
 }
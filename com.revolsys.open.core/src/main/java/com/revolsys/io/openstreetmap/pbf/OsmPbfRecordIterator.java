@@ -4,12 +4,21 @@ import java.io.DataInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
 
@@ -32,12 +41,43 @@ import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.LineString;
 import com.revolsys.jts.geom.Point;
 import com.revolsys.jts.geom.Polygon;
-import com.revolsys.jts.geom.impl.PointDouble;
 import com.revolsys.spring.SpringUtil;
 import com.revolsys.util.Property;
 
+/**
+ * <p>Read the nodes, ways and relations from an OSM PBF file.</p>
+ *
+ * <p>If the thread count is greater than 1 a reader thread reads the raw
+ * blobs from the file and a pool of worker threads inflates and decodes the
+ * blocks in parallel. The decoded blocks are added in file order on the
+ * thread reading the records.</p>
+ */
 public class OsmPbfRecordIterator extends AbstractIterator<Record> implements
 RecordIterator {
+  private class BlockDecoder implements Callable<OsmPbfBlock> {
+    private final String blobType;
+
+    private final byte[] blob;
+
+    public BlockDecoder(final String blobType, final byte[] blob) {
+      this.blobType = blobType;
+      this.blob = blob;
+    }
+
+    @Override
+    public OsmPbfBlock call() throws IOException {
+      final byte[] blobContent = inflateBlob(this.blob);
+      final OsmPbfBlock block = new OsmPbfBlock();
+      if ("OSMHeader".equals(this.blobType)) {
+        processOsmHeader(blobContent);
+      } else if ("OSMData".equals(this.blobType)) {
+        final ProtocolBufferInputStream in = new ProtocolBufferInputStream(
+          blobContent);
+        parseBlock(block, in);
+      }
+      return block;
+    }
+  }
 
   public static Date toDate(final long time) {
     return new Date(DATE_GRANULARITY * time);
@@ -58,9 +98,9 @@ RecordIterator {
 
   private final ProtocolBufferInputStream blobHeaderIn = new ProtocolBufferInputStream();
 
-  private final ProtocolBufferInputStream blobIn = new ProtocolBufferInputStream();
+  private BlockingQueue<Future<OsmPbfBlock>> blockFutures;
 
-  private String blobType = null;
+  private ExecutorService blockExecutor;
 
   private final LinkedList<Record> currentRecords = new LinkedList<>();
 
@@ -68,7 +108,11 @@ RecordIterator {
 
   private DataInputStream in;
 
-  private final LongHashMap<Point> nodePoints = new LongHashMap<>();
+  private NodeLocationStore nodeLocations;
+
+  private Thread readerThread;
+
+  private int threadCount = 1;
 
   private final LongHashMap<Geometry> wayGeometries = new LongHashMap<>();
 
@@ -86,24 +130,85 @@ RecordIterator {
 
   private final LinkedList<OsmWay> ways = new LinkedList<>();
 
-  private List<String> strings = Collections.emptyList();
-
-  private final ProtocolBufferInputStream blockIn = new ProtocolBufferInputStream();
-
   public OsmPbfRecordIterator(final DataInputStream in) {
+    this(in, new PackedNodeLocationStore());
+  }
+
+  public OsmPbfRecordIterator(final DataInputStream in,
+    final NodeLocationStore nodeLocations) {
     this.in = in;
+    this.nodeLocations = nodeLocations;
   }
 
   public OsmPbfRecordIterator(final Resource resource) {
     this(new DataInputStream(SpringUtil.getInputStream(resource)));
   }
 
-  protected void addNode(final List<Record> currentRecords, final OsmNode node) {
-    final long id = node.getId();
-    final Point point = (Point)node.getGeometryValue();
-    this.nodePoints.put(id, point);
-    if (node.hasTags()) {
-      currentRecords.add(node);
+  public OsmPbfRecordIterator(final Resource resource,
+    final NodeLocationStore nodeLocations) {
+    this(new DataInputStream(SpringUtil.getInputStream(resource)),
+      nodeLocations);
+  }
+
+  private void addBlock(final OsmPbfBlock block) {
+    block.addNodeLocations(this.nodeLocations);
+    final Iterator<List<Long>> wayNodeIds = block.wayNodeIds.iterator();
+    final Iterator<List<Long>> memberIds = block.relationMemberIds.iterator();
+    final Iterator<List<String>> memberRoles = block.relationMemberRoles.iterator();
+    final Iterator<List<Integer>> memberTypes = block.relationMemberTypes.iterator();
+    for (final OsmElement element : block.elements) {
+      if (element instanceof OsmWay) {
+        addWay((OsmWay)element, wayNodeIds.next());
+      } else if (element instanceof OsmRelation) {
+        addRelation((OsmRelation)element, memberIds.next(),
+          memberRoles.next(), memberTypes.next());
+      } else {
+        this.currentRecords.add(element);
+      }
+    }
+  }
+
+  private void addRelation(final OsmRelation relation,
+    final List<Long> memberIds, final List<String> memberRoles,
+    final List<Integer> memberTypes) {
+    final List<Geometry> parts = new ArrayList<>();
+    long memberId = 0;
+    for (int i = 0; i < memberIds.size(); i++) {
+      final long memberIdOffset = memberIds.get(i);
+      memberId += memberIdOffset;
+      Geometry geometry = null;
+      final int memberType = memberTypes.get(i);
+      switch (memberType) {
+        case 0:
+          geometry = getNodePoint(memberId);
+          break;
+
+        case 1:
+          geometry = this.wayGeometries.get(memberId);
+          break;
+        default:
+          throw new RuntimeException("Unknown member type " + memberType);
+      }
+
+      if (geometry != null) {
+        parts.add(geometry);
+      }
+    }
+
+    if (memberIds.size() == parts.size()) {
+      final Geometry geometry = OsmConstants.WGS84_2D.geometry(parts);
+      if (memberTypes.get(0) == 1 && !Property.hasValue(memberRoles.get(0))) {
+
+      }
+      relation.setGeometryValue(geometry);
+      this.currentRecords.add(relation);
+      final long relationId = relation.getId();
+      this.relationGeometries.put(relationId, geometry);
+    } else {
+      this.relations.add(relation);
+      this.relationMemberIds.add(memberIds);
+      this.relationMemberRoles.add(memberRoles);
+      this.relationMemberTypes.add(memberTypes);
     }
   }
 
@@ -122,20 +227,57 @@ RecordIterator {
     }
   }
 
+  private void addWay(final OsmWay way, final List<Long> nodeIds) {
+    final double[] coordinates = getNodeCoordinates(nodeIds);
+    if (coordinates != null) {
+      Geometry geometry;
+      if (coordinates.length == 2) {
+        geometry = OsmConstants.WGS84_2D.point(coordinates);
+      } else {
+        geometry = OsmConstants.WGS84_2D.lineString(2, coordinates);
+      }
+      way.setGeometryValue(geometry);
+      isPolygon(way, geometry);
+      if (way.hasTags()) {
+        this.currentRecords.add(way);
+      }
+      geometry = way.getGeometryValue();
+      this.wayGeometries.put(way.getId(), geometry);
+    } else {
+      this.ways.add(way);
+      this.wayNodeIds.add(nodeIds);
+    }
+  }
+
   @Override
   public void doClose() {
-    FileUtil.closeSilent(this.in);
+    if (this.readerThread != null) {
+      this.readerThread.interrupt();
+      this.readerThread = null;
+    }
+    if (this.blockExecutor != null) {
+      this.blockExecutor.shutdownNow();
+      this.blockExecutor = null;
+    }
+    this.blockFutures = null;
+    FileUtil.closeSilent(this.in, this.nodeLocations);
     this.in = null;
+    this.nodeLocations = null;
   }
 
   @Override
   protected Record getNext() throws NoSuchElementException {
     try {
       while (this.currentRecords.isEmpty() && !this.eof) {
-        try {
-          parseBlob();
-        } catch (final EOFException e) {
+        final OsmPbfBlock block = readBlock();
+        if (block == null) {
           this.eof = true;
+          if (this.blockExecutor != null) {
+            this.blockExecutor.shutdown();
+            this.blockExecutor = null;
+          }
+        } else {
+          addBlock(block);
         }
       }
       if (!this.currentRecords.isEmpty()) {
@@ -153,13 +295,110 @@ RecordIterator {
     }
   }
 
+  public NodeLocationStore getNodeLocations() {
+    return this.nodeLocations;
+  }
+
+  /**
+   * Get the coordinates of the nodes, if all the nodes exist.
+   *
+   * @param nodeIds The delta encoded node ids.
+   * @return The coordinates or null if any of the nodes weren't found.
+   */
+  private double[] getNodeCoordinates(final List<Long> nodeIds) {
+    final double[] coordinates = new double[nodeIds.size() * 2];
+    int coordinateIndex = 0;
+    long nodeId = 0;
+    for (final long nodeIdOffset : nodeIds) {
+      nodeId += nodeIdOffset;
+      final long index = this.nodeLocations.getIndex(nodeId);
+      if (index == -1) {
+        return null;
+      } else {
+        coordinates[coordinateIndex++] = this.nodeLocations.getX(index);
+        coordinates[coordinateIndex++] = this.nodeLocations.getY(index);
+      }
+    }
+    return coordinates;
+  }
+
+  private Point getNodePoint(final long nodeId) {
+    final long index = this.nodeLocations.getIndex(nodeId);
+    if (index == -1) {
+      return null;
+    } else {
+      final double x = this.nodeLocations.getX(index);
+      final double y = this.nodeLocations.getY(index);
+      return OsmConstants.WGS84_2D.point(x, y);
+    }
+  }
+
   @Override
   public RecordDefinition getRecordDefinition() {
     return OsmElement.RECORD_DEFINITION;
   }
 
-  private String getString(final int stringId) {
-    return this.strings.get(stringId);
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
+  private byte[] inflateBlob(final byte[] blob) throws IOException {
+    final ProtocolBufferInputStream blobIn = new ProtocolBufferInputStream(
+      blob);
+    byte[] raw = null;
+    int rawSize = 0;
+    byte[] zlibData = null;
+    boolean running = true;
+    while (running) {
+      final int tag = blobIn.readTag();
+      switch (tag) {
+        case 0:
+          running = false;
+          break;
+        case 10:
+          raw = blobIn.readBytes();
+          break;
+        case 16:
+          rawSize = blobIn.readInt32();
+          break;
+        case 26:
+          zlibData = blobIn.readBytes();
+          break;
+        case 34:
+          throw new RuntimeException("LZMA not supported");
+        case 42:
+          throw new RuntimeException("ZIP2 not supported");
+        default:
+          blobIn.skipField(tag);
+          running = false;
+          break;
+      }
+    }
+
+    if (raw != null) {
+      return raw;
+    } else if (zlibData != null) {
+      final Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(zlibData);
+        final byte[] blobData = new byte[rawSize];
+        try {
+          inflater.inflate(blobData);
+        } catch (final DataFormatException e) {
+          throw new RuntimeException("Unable to decompress PBF blob.", e);
+        }
+        if (!inflater.finished()) {
+          throw new RuntimeException(
+              "PBF blob contains incomplete compressed data.");
+        }
+        return blobData;
+      } finally {
+        inflater.end();
+      }
+    } else {
+      throw new RuntimeException(
+          "PBF blob uses unsupported compression, only raw or zlib may be used.");
+    }
   }
 
   public boolean isPolygon(final OsmWay way, final Geometry geometry) {
@@ -185,28 +424,9 @@ RecordIterator {
     return false;
   }
 
-  private void parseBlob() throws IOException {
-
-    final byte[] blobContent = readBlobContent();
-
-    try {
-      if ("OSMHeader".equals(this.blobType)) {
-        processOsmHeader(blobContent);
-      } else if ("OSMData".equals(this.blobType)) {
-        this.blockIn.setBuffer(blobContent);
-        parseBlock(this.blockIn);
-
-      } else {
-      }
-    } catch (final InvalidProtocolBufferException e) {
-      e.printStackTrace();
-    }
-  }
-
-  private void parseBlock(final ProtocolBufferInputStream in)
-      throws IOException {
+  private void parseBlock(final OsmPbfBlock block,
+    final ProtocolBufferInputStream in) throws IOException {
     boolean running = true;
-    this.strings = new ArrayList<>();
     double lonOffset = 0;
     double latOffset = 0;
     int granularity = GRANULARITY;
@@ -219,10 +439,10 @@ RecordIterator {
           running = false;
           break;
         case 10:
-          readStrings(in, this.strings);
+          readStrings(in, block.strings);
           break;
         case 18:
-          parseOsmElement(in);
+          parseOsmElement(block, in);
           break;
         case 136:
           granularity = in.readInt32();
@@ -237,15 +457,15 @@ RecordIterator {
           lonOffset = in.readInt64();
           break;
         default:
-          this.blobIn.skipField(tag);
+          in.skipField(tag);
           running = false;
           break;
       }
     }
   }
 
-  private DenseInfo parseDenseInfo(final ProtocolBufferInputStream input)
-      throws IOException {
+  private DenseInfo parseDenseInfo(final OsmPbfBlock block,
+    final ProtocolBufferInputStream input) throws IOException {
     final DenseInfo info = new DenseInfo();
     final int inLength = input.startLengthDelimited();
 
@@ -279,10 +499,10 @@ RecordIterator {
           input.readInts(info.uids);
           break;
         case 40:
-          readStringById(input, info.userNames);
+          readStringById(block, input, info.userNames);
           break;
         case 42:
-          readStringsByIds(input, info.userNames);
+          readStringsByIds(block, input, info.userNames);
           break;
         case 48:
           input.readBool(info.visibles);
@@ -299,8 +519,8 @@ RecordIterator {
     return info;
   }
 
-  private void parseDenseNodes(final ProtocolBufferInputStream in)
-      throws IOException {
+  private void parseDenseNodes(final OsmPbfBlock block,
+    final ProtocolBufferInputStream in) throws IOException {
 
     final List<Long> ids = new ArrayList<>();
     final List<Double> latitudes = new ArrayList<>();
@@ -323,7 +543,7 @@ RecordIterator {
           in.readLongs(ids);
           break;
         case 42:
-          denseInfo = parseDenseInfo(in);
+          denseInfo = parseDenseInfo(block, in);
           break;
         case 64:
           readDegreesById(in, latitudes);
@@ -338,10 +558,10 @@ RecordIterator {
           readDegreesByIds(in, longitudes);
           break;
         case 80:
-          readStringById(in, keysAndValues);
+          readStringById(block, in, keysAndValues);
           break;
         case 82:
-          readStringsByIds(in, keysAndValues);
+          readStringsByIds(block, in, keysAndValues);
           break;
         default:
           in.skipField(tag);
@@ -355,12 +575,13 @@ RecordIterator {
         + longitudes.size() + ") don't match");
     }
     if (denseInfo == null && keysAndValues.isEmpty()) {
+      long id = 0;
       for (int i = 0; i < ids.size(); i++) {
-        final long id = ids.get(i);
+        final long idOffset = ids.get(i);
+        id += idOffset;
         final double latitude = latitudes.get(i);
         final double longitude = longitudes.get(i);
-        final PointDouble point = new PointDouble(longitude, latitude);
-        this.nodePoints.put(id, point);
+        block.addNodeLocation(id, longitude, latitude);
       }
     } else {
       final Iterator<String> keysAndValuesIterator = keysAndValues.iterator();
@@ -370,8 +591,7 @@ RecordIterator {
         id += idOffset;
         final double latitude = latitudes.get(i);
         final double longitude = longitudes.get(i);
-        final Point point = OsmConstants.WGS84_2D.point(longitude, latitude);
-        this.nodePoints.put(id, point);
+        block.addNodeLocation(id, longitude, latitude);
         OsmNode node = null;
 
         while (keysAndValuesIterator.hasNext()) {
@@ -386,8 +606,9 @@ RecordIterator {
           if (node == null) {
             node = new OsmNode();
             node.setId(id);
-            node.setGeometryValue(point);
-            this.currentRecords.add(node);
+            node.setGeometryValue(OsmConstants.WGS84_2D.point(longitude,
+              latitude));
+            block.elements.add(node);
           }
           final String value = keysAndValuesIterator.next();
 
@@ -407,8 +628,9 @@ RecordIterator {
     }
   }
 
-  private void parseInfo(final ProtocolBufferInputStream input,
-    final OsmElement element) throws IOException {
+  private void parseInfo(final OsmPbfBlock block,
+    final ProtocolBufferInputStream input, final OsmElement element)
+        throws IOException {
     final int inLength = input.startLengthDelimited();
 
     boolean running = true;
@@ -437,7 +659,7 @@ RecordIterator {
           break;
         case 40:
           final int userSid = input.readUInt32();
-          final String userName = getString(userSid);
+          final String userName = block.getString(userSid);
           element.setUser(userName);
           break;
         case 48:
@@ -452,8 +674,8 @@ RecordIterator {
     input.endLengthDelimited(inLength);
   }
 
-  private void parseNode(final ProtocolBufferInputStream input)
-      throws IOException {
+  private void parseNode(final OsmPbfBlock block,
+    final ProtocolBufferInputStream input) throws IOException {
 
     final OsmNode node = new OsmNode();
     final List<String> keys = new ArrayList<>();
@@ -473,19 +695,19 @@ RecordIterator {
           node.setId(id);
           break;
         case 16:
-          readStringById(input, keys);
+          readStringById(block, input, keys);
           break;
         case 18:
-          readStringsByIds(input, keys);
+          readStringsByIds(block, input, keys);
           break;
         case 24:
-          readStringById(input, values);
+          readStringById(block, input, values);
           break;
         case 26:
-          readStringsByIds(input, values);
+          readStringsByIds(block, input, values);
           break;
         case 34:
-          parseInfo(input, node);
+          parseInfo(block, input, node);
           break;
         case 64:
           lat = toDegrees(input.readSInt64());
@@ -496,14 +718,15 @@ RecordIterator {
       }
     }
     input.endLengthDelimited(inLength);
-    final Point point = OsmConstants.WGS84_2D.point(lat, lon);
+    block.addNodeLocation(node.getId(), lon, lat);
+    final Point point = OsmConstants.WGS84_2D.point(lon, lat);
     node.setGeometryValue(point);
     addTags(node, keys, values);
-    this.currentRecords.add(node);
+    block.elements.add(node);
   }
 
-  private void parseOsmElement(final ProtocolBufferInputStream in)
-      throws IOException {
+  private void parseOsmElement(final OsmPbfBlock block,
+    final ProtocolBufferInputStream in) throws IOException {
     final int inLength = in.startLengthDelimited();
     boolean running = true;
     while (running) {
@@ -513,16 +736,16 @@ RecordIterator {
           running = false;
           break;
         case 10:
-          parseNode(in);
+          parseNode(block, in);
           break;
         case 18:
-          parseDenseNodes(in);
+          parseDenseNodes(block, in);
           break;
         case 26:
-          parseWay(in);
+          parseWay(block, in);
           break;
         case 34: {
-          parseRelation(in);
+          parseRelation(block, in);
           break;
         }
         case 42: {
@@ -542,8 +765,8 @@ RecordIterator {
     in.endLengthDelimited(inLength);
   }
 
-  private void parseRelation(final ProtocolBufferInputStream input)
-      throws IOException {
+  private void parseRelation(final OsmPbfBlock block,
+    final ProtocolBufferInputStream input) throws IOException {
 
     final OsmRelation relation = new OsmRelation();
     final List<String> keys = new ArrayList<>();
@@ -566,25 +789,25 @@ RecordIterator {
           relation.setId(id);
           break;
         case 16:
-          readStringById(input, keys);
+          readStringById(block, input, keys);
           break;
         case 18:
-          readStringsByIds(input, keys);
+          readStringsByIds(block, input, keys);
           break;
         case 24:
-          readStringById(input, values);
+          readStringById(block, input, values);
           break;
         case 26:
-          readStringsByIds(input, values);
+          readStringsByIds(block, input, values);
           break;
         case 34:
-          parseInfo(input, relation);
+          parseInfo(block, input, relation);
           break;
         case 64:
           readStrings(input, memberRoles);
           break;
         case 66:
-          readStringsByIds(input, memberRoles);
+          readStringsByIds(block, input, memberRoles);
           break;
         case 72:
           input.readLong(memberIds);
@@ -602,50 +825,14 @@ RecordIterator {
     }
     input.endLengthDelimited(inLength);
     addTags(relation, keys, values);
-
-    final List<Geometry> parts = new ArrayList<>();
-    long memberId = 0;
-    for (int i = 0; i < memberIds.size(); i++) {
-      final long memberIdOffset = memberIds.get(i);
-      memberId += memberIdOffset;
-      Geometry geometry = null;
-      final int memberType = memberTypes.get(i);
-      switch (memberType) {
-        case 0:
-          geometry = this.nodePoints.get(memberId);
-          break;
-
-        case 1:
-          geometry = this.wayGeometries.get(memberId);
-          break;
-        default:
-          throw new RuntimeException("Unknown member type " + memberType);
-      }
-
-      if (geometry != null) {
-        parts.add(geometry);
-      }
-    }
-
-    if (memberIds.size() == parts.size()) {
-      final Geometry geometry = OsmConstants.WGS84_2D.geometry(parts);
-      if (memberTypes.get(0) == 1 && !Property.hasValue(memberRoles.get(0))) {
-
-      }
-      relation.setGeometryValue(geometry);
-      this.currentRecords.add(relation);
-      final long relationId = relation.getId();
-      this.relationGeometries.put(relationId, geometry);
-    } else {
-      this.relations.add(relation);
-      this.relationMemberIds.add(memberIds);
-      this.relationMemberRoles.add(memberRoles);
-      this.relationMemberTypes.add(memberTypes);
-    }
+    block.elements.add(relation);
+    block.relationMemberIds.add(memberIds);
+    block.relationMemberRoles.add(memberRoles);
+    block.relationMemberTypes.add(memberTypes);
   }
 
-  private void parseWay(final ProtocolBufferInputStream input)
-      throws IOException {
+  private void parseWay(final OsmPbfBlock block,
+    final ProtocolBufferInputStream input) throws IOException {
 
     final OsmWay way = new OsmWay();
     final List<String> keys = new ArrayList<>();
@@ -665,19 +852,19 @@ RecordIterator {
           way.setId(wayId);
           break;
         case 16:
-          readStringById(input, keys);
+          readStringById(block, input, keys);
           break;
         case 18:
-          readStringsByIds(input, keys);
+          readStringsByIds(block, input, keys);
           break;
         case 24:
-          readStringById(input, values);
+          readStringById(block, input, values);
           break;
         case 26:
-          readStringsByIds(input, values);
+          readStringsByIds(block, input, values);
           break;
         case 34:
-          parseInfo(input, way);
+          parseInfo(block, input, way);
           break;
         case 64:
           input.readLong(nodeIds);
@@ -689,36 +876,8 @@ RecordIterator {
     }
     input.endLengthDelimited(inLength);
     addTags(way, keys, values);
-
-    final List<Point> points = new ArrayList<>();
-    long nodeId = 0;
-    for (final long nodeIdOffset : nodeIds) {
-      nodeId += nodeIdOffset;
-      final Point point = this.nodePoints.get(nodeId);
-
-      if (point != null) {
-        points.add(point);
-      }
-    }
-
-    if (nodeIds.size() == points.size()) {
-      Geometry geometry;
-      if (points.size() == 1) {
-        geometry = points.get(0);
-      } else {
-        geometry = OsmConstants.WGS84_2D.lineString(points);
-      }
-      way.setGeometryValue(geometry);
-      isPolygon(way, geometry);
-      if (way.hasTags()) {
-        this.currentRecords.add(way);
-      }
-      geometry = way.getGeometryValue();
-      this.wayGeometries.put(wayId, geometry);
-    } else {
-      this.ways.add(way);
-      this.wayNodeIds.add(nodeIds);
-    }
+    block.elements.add(way);
+    block.wayNodeIds.add(nodeIds);
   }
 
   private void processOsmHeader(final byte[] data)
@@ -768,24 +927,31 @@ RecordIterator {
       final OsmWay way = this.ways.removeFirst();
       final List<Long> nodeIds = this.wayNodeIds.removeFirst();
       final List<LineString> lines = new ArrayList<>();
-      final List<Point> points = new ArrayList<>();
+      final double[] coordinates = new double[nodeIds.size() * 2];
+      int vertexCount = 0;
       long nodeId = 0;
       for (final Long nodeIdRef : nodeIds) {
         nodeId += nodeIdRef;
-        final Point point = this.nodePoints.get(nodeId);
-        if (point == null) {
-          if (points.size() > 1) {
-            final LineString line = OsmConstants.WGS84_2D.lineString(points);
-            lines.add(line);
+        final long index = this.nodeLocations.getIndex(nodeId);
+        if (index == -1) {
+          if (vertexCount > 1) {
+            final double[] lineCoordinates = new double[vertexCount * 2];
+            System.arraycopy(coordinates, 0, lineCoordinates, 0,
+              lineCoordinates.length);
+            lines.add(OsmConstants.WGS84_2D.lineString(2, lineCoordinates));
           }
-          points.clear();
+          vertexCount = 0;
         } else {
-          points.add(point);
+          coordinates[vertexCount * 2] = this.nodeLocations.getX(index);
+          coordinates[vertexCount * 2 + 1] = this.nodeLocations.getY(index);
+          vertexCount++;
         }
       }
-      if (points.size() > 1) {
-        final LineString line = OsmConstants.WGS84_2D.lineString(points);
-        lines.add(line);
+      if (vertexCount > 1) {
+        final double[] lineCoordinates = new double[vertexCount * 2];
+        System.arraycopy(coordinates, 0, lineCoordinates, 0,
+          lineCoordinates.length);
+        lines.add(OsmConstants.WGS84_2D.lineString(2, lineCoordinates));
       }
       if (!lines.isEmpty()) {
         final Geometry geometry = OsmConstants.WGS84_2D.geometry(lines);
@@ -798,101 +964,87 @@ RecordIterator {
     throw new NoSuchElementException();
   }
 
-  private byte[] readBlobContent() throws IOException {
+  /**
+   * Read the next BlobHeader and the raw bytes of the Blob, the blob is
+   * inflated and decoded by the returned decoder.
+   *
+   * @return The decoder or null if the end of the file was reached.
+   */
+  private BlockDecoder readBlob() throws IOException {
+    final int headerLength;
     try {
-      final int blobSize = readBlobHeader();
-      final byte[] data = new byte[blobSize];
-      this.in.readFully(data);
-      this.blobIn.setBuffer(data);
-      byte[] raw = null;
-      int rawSize = 0;
-      byte[] zlibData = null;
-      boolean running = true;
-      while (running) {
-        final int tag = this.blobIn.readTag();
-        switch (tag) {
-          case 0:
-            running = false;
-            break;
-          case 10:
-            raw = this.blobIn.readBytes();
-            break;
-          case 16:
-            rawSize = this.blobIn.readInt32();
-            break;
-          case 26:
-            zlibData = this.blobIn.readBytes();
-            break;
-          case 34:
-            throw new RuntimeException("LZMA not supported");
-          case 42:
-            throw new RuntimeException("ZIP2 not supported");
-          default:
-            this.blobIn.skipField(tag);
-            running = false;
-            break;
-        }
-      }
+      headerLength = this.in.readInt();
+    } catch (final EOFException e) {
+      return null;
+    }
+    final byte[] headerBuffer = new byte[headerLength];
+    this.in.readFully(headerBuffer);
+    this.blobHeaderIn.setBuffer(headerBuffer);
 
-      if (raw != null) {
-        return raw;
-      } else if (zlibData != null) {
-        final Inflater inflater = new Inflater();
-        inflater.setInput(zlibData);
-        final byte[] blobData = new byte[rawSize];
-        try {
-          inflater.inflate(blobData);
-        } catch (final DataFormatException e) {
-          throw new RuntimeException("Unable to decompress PBF blob.", e);
+    String blobType = null;
+    int blobSize = 0;
+    boolean running = true;
+    while (running) {
+      final int tag = this.blobHeaderIn.readTag();
+      switch (tag) {
+        case 0:
+          running = false;
+          break;
+        case 10: {
+          blobType = this.blobHeaderIn.readString();
+          break;
         }
-        if (!inflater.finished()) {
-          throw new RuntimeException(
-              "PBF blob contains incomplete compressed data.");
+        case 18: {
+          this.blobHeaderIn.readBytes();
+          break;
         }
-        return blobData;
-      } else {
-        throw new RuntimeException(
-            "PBF blob uses unsupported compression, only raw or zlib may be used.");
+        case 24: {
+          blobSize = this.blobHeaderIn.readInt32();
+          break;
+        }
+        default:
+          this.blobHeaderIn.skipField(tag);
+          break;
       }
-    } finally {
-      this.blobIn.setInputStream(null);
     }
+    final byte[] blob = new byte[blobSize];
+    this.in.readFully(blob);
+    return new BlockDecoder(blobType, blob);
   }
 
-  private int readBlobHeader() throws IOException {
-    try {
-      final int headerLength = this.in.readInt();
-      final byte[] headerBuffer = new byte[headerLength];
-      this.in.readFully(headerBuffer);
-      this.blobHeaderIn.setBuffer(headerBuffer);
-
-      this.blobType = null;
-      int blobSize = 0;
-      while (true) {
-        final int tag = this.blobHeaderIn.readTag();
-        switch (tag) {
-          case 0:
-            return blobSize;
-          case 10: {
-            this.blobType = this.blobHeaderIn.readString();
-            break;
-          }
-          case 18: {
-            this.blobHeaderIn.readBytes();
-            break;
-          }
-          case 24: {
-            blobSize = this.blobHeaderIn.readInt32();
-            break;
-          }
-          default:
-            this.blobHeaderIn.skipField(tag);
-            break;
+  /**
+   * Read the next block in file order, decoding it on this thread or waiting
+   * for the worker threads to decode it.
+   *
+   * @return The block or null if the end of the file was reached.
+   */
+  private OsmPbfBlock readBlock() throws IOException {
+    if (this.threadCount <= 1) {
+      final BlockDecoder decoder = readBlob();
+      if (decoder == null) {
+        return null;
+      } else {
+        return decoder.call();
+      }
+    } else {
+      if (this.readerThread == null) {
+        startReader();
+      }
+      try {
+        final Future<OsmPbfBlock> future = this.blockFutures.take();
+        return future.get();
+      } catch (final InterruptedException e) {
+        throw new RuntimeException("Interrupted reading PBF blocks", e);
+      } catch (final ExecutionException e) {
+        final Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException)cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException)cause;
+        } else {
+          throw new RuntimeException("Unable to decode PBF block", cause);
         }
       }
-
-    } finally {
-      this.blobHeaderIn.setInputStream(null);
     }
   }
 
@@ -917,10 +1069,11 @@ RecordIterator {
     in.popLimit(oldLength);
   }
 
-  private void readStringById(final ProtocolBufferInputStream in,
-    final List<String> strings) throws IOException {
+  private void readStringById(final OsmPbfBlock block,
+    final ProtocolBufferInputStream in, final List<String> strings)
+        throws IOException {
     final int stringId = in.readUInt32();
-    final String string = getString(stringId);
+    final String string = block.getString(stringId);
     strings.add(string);
   }
 
@@ -938,19 +1091,20 @@ RecordIterator {
           strings.add(string);
           break;
         default:
-          this.blobIn.skipField(tag);
+          in.skipField(tag);
           break;
       }
     }
   }
 
-  private void readStringsByIds(final ProtocolBufferInputStream in,
-    final List<String> strings) throws IOException {
+  private void readStringsByIds(final OsmPbfBlock block,
+    final ProtocolBufferInputStream in, final List<String> strings)
+        throws IOException {
     final int length = in.readRawVarint32();
     final int oldLength = in.pushLimit(length);
     while (in.getBytesUntilLimit() > 0) {
       final int stringId = in.readUInt32();
-      final String string = getString(stringId);
+      final String string = block.getString(stringId);
       strings.add(string);
     }
     in.popLimit(oldLength);
@@ -960,4 +1114,81 @@ RecordIterator {
   public void remove() {
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Set the number of threads used to inflate and decode the blocks. If
+   * greater than 1 a reader thread is also used to read the blobs.
+   */
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  private void startReader() {
+    final int threadCount = this.threadCount;
+    final AtomicInteger threadIndex = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount,
+      new ThreadFactory() {
+        @Override
+        public Thread newThread(final Runnable runnable) {
+          final Thread thread = new Thread(runnable, "OSM PBF Decoder "
+            + threadIndex.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    final BlockingQueue<Future<OsmPbfBlock>> blockFutures = new ArrayBlockingQueue<>(
+      threadCount * 4);
+    this.blockExecutor = executor;
+    this.blockFutures = blockFutures;
+    this.readerThread = new Thread("OSM PBF Reader") {
+      @Override
+      public void run() {
+        try {
+          boolean running = true;
+          while (running) {
+            Future<OsmPbfBlock> future;
+            try {
+              final BlockDecoder decoder = readBlob();
+              if (decoder == null) {
+                final FutureTask<OsmPbfBlock> endOfFile = new FutureTask<>(
+                  new Callable<OsmPbfBlock>() {
+                    @Override
+                    public OsmPbfBlock call() {
+                      return null;
+                    }
+                  });
+                endOfFile.run();
+                future = endOfFile;
+                running = false;
+              } else {
+                future = executor.submit(decoder);
+              }
+            } catch (final Throwable e) {
+              final FutureTask<OsmPbfBlock> error = new FutureTask<>(
+                new Callable<OsmPbfBlock>() {
+                  @Override
+                  public OsmPbfBlock call() throws Exception {
+                    if (e instanceof Exception) {
+                      throw (Exception)e;
+                    } else {
+                      throw new RuntimeException(e);
+                    }
+                  }
+                });
+              error.run();
+              future = error;
+              running = false;
+            }
+            blockFutures.put(future);
+          }
+        } catch (final InterruptedException e) {
+        } finally {
+          // Let the decoders already submitted finish, then stop the threads
+          executor.shutdown();
+        }
+      }
+    };
+    this.readerThread.setDaemon(true);
+    this.readerThread.start();
+  }
 }
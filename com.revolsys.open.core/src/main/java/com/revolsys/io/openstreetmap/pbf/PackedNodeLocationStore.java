@@ -0,0 +1,475 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.io.FileUtil;
+
+/**
+ * <p>A {@link NodeLocationStore} that packs the node ids and the coordinates
+ * (as integers in 1e-7 degrees, the default PBF granularity) into fixed size
+ * blocks sorted by id. Lookups are a binary search over the blocks and then
+ * within the block.</p>
+ *
+ * <p>Once the size of the blocks on the heap exceeds the heap budget the oldest
+ * blocks are written to a temporary memory mapped file and read from there.
+ * PBF files are normally sorted by id so the blocks don't overlap, unsorted
+ * files still work but each lookup must check every block that overlaps the
+ * id. If a node id is put more than once the last location put is
+ * returned.</p>
+ */
+public class PackedNodeLocationStore implements NodeLocationStore {
+  private abstract static class Block {
+    private final long minId;
+
+    private final long maxId;
+
+    private final int size;
+
+    public Block(final long minId, final long maxId, final int size) {
+      this.minId = minId;
+      this.maxId = maxId;
+      this.size = size;
+    }
+
+    protected abstract long getId(int index);
+
+    public int getIndex(final long id) {
+      if (id < this.minId || id > this.maxId) {
+        return -1;
+      } else {
+        int low = 0;
+        int high = this.size - 1;
+        while (low <= high) {
+          final int middle = (low + high) >>> 1;
+          final long middleId = getId(middle);
+          if (middleId < id) {
+            low = middle + 1;
+          } else if (middleId > id) {
+            high = middle - 1;
+          } else {
+            return middle;
+          }
+        }
+        return -1;
+      }
+    }
+
+    protected abstract int getX(int index);
+
+    protected abstract int getY(int index);
+  }
+
+  private static class HeapBlock extends Block {
+    private final long[] ids;
+
+    private final int[] xs;
+
+    private final int[] ys;
+
+    public HeapBlock(final long[] ids, final int[] xs, final int[] ys,
+      final int size) {
+      super(ids[0], ids[size - 1], size);
+      this.ids = ids;
+      this.xs = xs;
+      this.ys = ys;
+    }
+
+    @Override
+    protected long getId(final int index) {
+      return this.ids[index];
+    }
+
+    @Override
+    protected int getX(final int index) {
+      return this.xs[index];
+    }
+
+    @Override
+    protected int getY(final int index) {
+      return this.ys[index];
+    }
+  }
+
+  private static class MappedBlock extends Block {
+    private final ByteBuffer buffer;
+
+    public MappedBlock(final Block block, final ByteBuffer buffer) {
+      super(block.minId, block.maxId, block.size);
+      this.buffer = buffer;
+    }
+
+    @Override
+    protected long getId(final int index) {
+      return this.buffer.getLong(index * ENTRY_BYTES);
+    }
+
+    @Override
+    protected int getX(final int index) {
+      return this.buffer.getInt(index * ENTRY_BYTES + 8);
+    }
+
+    @Override
+    protected int getY(final int index) {
+      return this.buffer.getInt(index * ENTRY_BYTES + 12);
+    }
+  }
+
+  private static final int BLOCK_SHIFT = 16;
+
+  static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  private static final int ENTRY_BYTES = 16;
+
+  private static final int BLOCK_BYTES = BLOCK_SIZE * ENTRY_BYTES;
+
+  private static final long SEGMENT_BYTES = 1L << 30;
+
+  private static final int BLOCKS_PER_SEGMENT = (int)(SEGMENT_BYTES / BLOCK_BYTES);
+
+  public static final long DEFAULT_HEAP_BUDGET = 256L * 1024 * 1024;
+
+  private static final double SCALE = 10000000;
+
+  /**
+   * Sort the entries by id and then by the order they were put, so the last
+   * location put for a duplicate id is after the others.
+   */
+  private static void sort(final long[] ids, final int[] xs, final int[] ys,
+    final int[] order, final int from, final int to) {
+    if (to - from < 16) {
+      for (int i = from + 1; i <= to; i++) {
+        for (int j = i; j > from
+          && (ids[j - 1] > ids[j] || ids[j - 1] == ids[j]
+            && order[j - 1] > order[j]); j--) {
+          swap(ids, xs, ys, order, j, j - 1);
+        }
+      }
+    } else {
+      final int middle = (from + to) >>> 1;
+      final long pivotId = ids[middle];
+      final int pivotOrder = order[middle];
+      int i = from;
+      int j = to;
+      while (i <= j) {
+        while (ids[i] < pivotId || ids[i] == pivotId && order[i] < pivotOrder) {
+          i++;
+        }
+        while (ids[j] > pivotId || ids[j] == pivotId && order[j] > pivotOrder) {
+          j--;
+        }
+        if (i <= j) {
+          swap(ids, xs, ys, order, i, j);
+          i++;
+          j--;
+        }
+      }
+      if (from < j) {
+        sort(ids, xs, ys, order, from, j);
+      }
+      if (i < to) {
+        sort(ids, xs, ys, order, i, to);
+      }
+    }
+  }
+
+  private static void swap(final long[] ids, final int[] xs, final int[] ys,
+    final int[] order, final int i, final int j) {
+    final long id = ids[i];
+    ids[i] = ids[j];
+    ids[j] = id;
+    final int x = xs[i];
+    xs[i] = xs[j];
+    xs[j] = x;
+    final int y = ys[i];
+    ys[i] = ys[j];
+    ys[j] = y;
+    final int index = order[i];
+    order[i] = order[j];
+    order[j] = index;
+  }
+
+  private final List<Block> blocks = new ArrayList<>();
+
+  private long[] blockMaxIds = new long[64];
+
+  private long blockNodeCount;
+
+  private boolean blocksSorted = true;
+
+  private int count;
+
+  private boolean currentSorted = true;
+
+  private File file;
+
+  private FileChannel fileChannel;
+
+  private int firstHeapBlockIndex;
+
+  private final long heapBudget;
+
+  private long[] ids = new long[BLOCK_SIZE];
+
+  private RandomAccessFile randomAccessFile;
+
+  private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+  private int spilledBlockCount;
+
+  private int[] xs = new int[BLOCK_SIZE];
+
+  private int[] ys = new int[BLOCK_SIZE];
+
+  public PackedNodeLocationStore() {
+    this(DEFAULT_HEAP_BUDGET);
+  }
+
+  /**
+   * @param heapBudget The maximum number of bytes of node locations to keep on
+   * the heap before writing them to a memory mapped file.
+   */
+  public PackedNodeLocationStore(final long heapBudget) {
+    this.heapBudget = heapBudget;
+  }
+
+  @Override
+  public void close() {
+    this.blocks.clear();
+    this.segments.clear();
+    this.blockNodeCount = 0;
+    this.count = 0;
+    FileUtil.closeSilent(this.fileChannel, this.randomAccessFile);
+    this.fileChannel = null;
+    this.randomAccessFile = null;
+    if (this.file != null) {
+      if (!this.file.delete()) {
+        this.file.deleteOnExit();
+      }
+      this.file = null;
+    }
+  }
+
+  private void finishBlock() {
+    int size = this.count;
+    if (!this.currentSorted) {
+      final int[] order = new int[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      sort(this.ids, this.xs, this.ys, order, 0, size - 1);
+      size = removeDuplicates(size);
+    }
+    final Block block = new HeapBlock(this.ids, this.xs, this.ys, size);
+    final int blockIndex = this.blocks.size();
+    if (blockIndex > 0 && block.minId <= this.blockMaxIds[blockIndex - 1]) {
+      this.blocksSorted = false;
+    }
+    if (blockIndex == this.blockMaxIds.length) {
+      final long[] newMaxIds = new long[blockIndex * 2];
+      System.arraycopy(this.blockMaxIds, 0, newMaxIds, 0, blockIndex);
+      this.blockMaxIds = newMaxIds;
+    }
+    this.blockMaxIds[blockIndex] = block.maxId;
+    this.blocks.add(block);
+    this.blockNodeCount += size;
+
+    this.ids = new long[BLOCK_SIZE];
+    this.xs = new int[BLOCK_SIZE];
+    this.ys = new int[BLOCK_SIZE];
+    this.count = 0;
+    this.currentSorted = true;
+
+    while ((long)(this.blocks.size() - this.firstHeapBlockIndex) * BLOCK_BYTES > this.heapBudget) {
+      spillBlock(this.firstHeapBlockIndex);
+      this.firstHeapBlockIndex++;
+    }
+  }
+
+  private int getCurrentIndex(final long id) {
+    final int count = this.count;
+    if (this.currentSorted) {
+      int low = 0;
+      int high = count - 1;
+      while (low <= high) {
+        final int middle = (low + high) >>> 1;
+        final long middleId = this.ids[middle];
+        if (middleId < id) {
+          low = middle + 1;
+        } else if (middleId > id) {
+          high = middle - 1;
+        } else {
+          return middle;
+        }
+      }
+    } else {
+      for (int i = count - 1; i >= 0; i--) {
+        if (this.ids[i] == id) {
+          return i;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the index of the node, checking the current block first and then the
+   * blocks from the last to the first so the last location put for the node
+   * is returned.
+   */
+  @Override
+  public long getIndex(final long id) {
+    final int blockCount = this.blocks.size();
+    final int currentIndex = getCurrentIndex(id);
+    if (currentIndex != -1) {
+      return toIndex(blockCount, currentIndex);
+    } else if (this.blocksSorted) {
+      int low = 0;
+      int high = blockCount - 1;
+      while (low < high) {
+        final int middle = (low + high) >>> 1;
+        if (this.blockMaxIds[middle] < id) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      if (low < blockCount) {
+        final int index = this.blocks.get(low).getIndex(id);
+        if (index != -1) {
+          return toIndex(low, index);
+        }
+      }
+    } else {
+      for (int blockIndex = blockCount - 1; blockIndex >= 0; blockIndex--) {
+        final int index = this.blocks.get(blockIndex).getIndex(id);
+        if (index != -1) {
+          return toIndex(blockIndex, index);
+        }
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public double getX(final long index) {
+    final int blockIndex = (int)(index >>> BLOCK_SHIFT);
+    final int offset = (int)(index & BLOCK_MASK);
+    final int x;
+    if (blockIndex == this.blocks.size()) {
+      x = this.xs[offset];
+    } else {
+      x = this.blocks.get(blockIndex).getX(offset);
+    }
+    return x / SCALE;
+  }
+
+  @Override
+  public double getY(final long index) {
+    final int blockIndex = (int)(index >>> BLOCK_SHIFT);
+    final int offset = (int)(index & BLOCK_MASK);
+    final int y;
+    if (blockIndex == this.blocks.size()) {
+      y = this.ys[offset];
+    } else {
+      y = this.blocks.get(blockIndex).getY(offset);
+    }
+    return y / SCALE;
+  }
+
+  @Override
+  public void put(final long id, final double x, final double y) {
+    final int index = this.count;
+    if (index > 0 && id <= this.ids[index - 1]) {
+      this.currentSorted = false;
+    }
+    this.ids[index] = id;
+    this.xs[index] = (int)Math.round(x * SCALE);
+    this.ys[index] = (int)Math.round(y * SCALE);
+    this.count++;
+    if (this.count == BLOCK_SIZE) {
+      finishBlock();
+    }
+  }
+
+  /**
+   * Remove the entries with the same id as the next entry in the sorted
+   * current block, keeping the last location put for each id.
+   *
+   * @return The number of entries left.
+   */
+  private int removeDuplicates(final int size) {
+    final long[] ids = this.ids;
+    int newSize = 0;
+    for (int i = 0; i < size; i++) {
+      if (i == size - 1 || ids[i] != ids[i + 1]) {
+        ids[newSize] = ids[i];
+        this.xs[newSize] = this.xs[i];
+        this.ys[newSize] = this.ys[i];
+        newSize++;
+      }
+    }
+    return newSize;
+  }
+
+  /**
+   * Get the number of locations in the store. A node put again after the
+   * block containing it was finished is counted twice.
+   */
+  @Override
+  public long size() {
+    return this.blockNodeCount + this.count;
+  }
+
+  private void spillBlock(final int blockIndex) {
+    try {
+      if (this.fileChannel == null) {
+        this.file = FileUtil.createTempFile("nodes", ".bin");
+        this.randomAccessFile = new RandomAccessFile(this.file, "rw");
+        this.fileChannel = this.randomAccessFile.getChannel();
+      }
+      final int segmentIndex = this.spilledBlockCount / BLOCKS_PER_SEGMENT;
+      if (segmentIndex == this.segments.size()) {
+        final MappedByteBuffer segment = this.fileChannel.map(
+          MapMode.READ_WRITE, segmentIndex * SEGMENT_BYTES, SEGMENT_BYTES);
+        this.segments.add(segment);
+      }
+      final ByteBuffer buffer = this.segments.get(segmentIndex).duplicate();
+      final int offset = this.spilledBlockCount % BLOCKS_PER_SEGMENT
+        * BLOCK_BYTES;
+      buffer.position(offset);
+      buffer.limit(offset + BLOCK_BYTES);
+
+      final Block block = this.blocks.get(blockIndex);
+      final ByteBuffer blockBuffer = buffer.slice();
+      for (int i = 0; i < block.size; i++) {
+        blockBuffer.putLong(block.getId(i));
+        blockBuffer.putInt(block.getX(i));
+        blockBuffer.putInt(block.getY(i));
+      }
+      this.blocks.set(blockIndex, new MappedBlock(block, blockBuffer));
+      this.spilledBlockCount++;
+    } catch (final IOException e) {
+      throw new RuntimeException("Unable to write node locations to "
+        + this.file, e);
+    }
+  }
+
+  private long toIndex(final int blockIndex, final int index) {
+    return (long)blockIndex << BLOCK_SHIFT | index;
+  }
+
+  @Override
+  public String toString() {
+    return "nodes=" + size() + ", spilledBlocks=" + this.spilledBlockCount;
+  }
+}
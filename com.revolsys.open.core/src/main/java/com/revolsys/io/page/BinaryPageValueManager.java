@@ -0,0 +1,169 @@
+package com.revolsys.io.page;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.revolsys.util.ExceptionUtil;
+
+/**
+ * <p>Base class for page value managers that write values using a compact
+ * binary layout instead of Java serialization. The bytes for a value are the
+ * size of the value as an int followed by the bytes written by
+ * {@link #writeValue(DataOutput, Object)}.</p>
+ *
+ * <p>Variable length integers are written using 7 bits per byte with the high
+ * bit set if more bytes follow. Signed values are zig-zag encoded so small
+ * negative values are also written using few bytes.</p>
+ */
+public abstract class BinaryPageValueManager<T> implements PageValueManager<T> {
+
+  /**
+   * Read an array of ints written using
+   * {@link #writeIntArray(DataOutput, int[])}.
+   */
+  public static int[] readIntArray(final DataInput in) throws IOException {
+    final int[] values = new int[readVarInt(in)];
+    int value = 0;
+    for (int i = 0; i < values.length; i++) {
+      value += readSignedVarInt(in);
+      values[i] = value;
+    }
+    return values;
+  }
+
+  public static int readSignedVarInt(final DataInput in) throws IOException {
+    final int value = readVarInt(in);
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public static long readSignedVarLong(final DataInput in) throws IOException {
+    final long value = readVarLong(in);
+    return value >>> 1 ^ -(value & 1);
+  }
+
+  public static int readVarInt(final DataInput in) throws IOException {
+    int value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readByte();
+      value |= (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  public static long readVarLong(final DataInput in) throws IOException {
+    long value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = in.readByte();
+      value |= (long)(b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  /**
+   * Write an array of ints as the length followed by the difference of each
+   * value from the previous value. Sorted arrays of ids are written using one
+   * or two bytes per value.
+   */
+  public static void writeIntArray(final DataOutput out, final int[] values)
+    throws IOException {
+    writeVarInt(out, values.length);
+    int previousValue = 0;
+    for (final int value : values) {
+      writeSignedVarInt(out, value - previousValue);
+      previousValue = value;
+    }
+  }
+
+  public static void writeSignedVarInt(final DataOutput out, final int value)
+    throws IOException {
+    writeVarInt(out, value << 1 ^ value >> 31);
+  }
+
+  public static void writeSignedVarLong(final DataOutput out, final long value)
+    throws IOException {
+    writeVarLong(out, value << 1 ^ value >> 63);
+  }
+
+  public static void writeVarInt(final DataOutput out, int value)
+    throws IOException {
+    while ((value & ~0x7F) != 0) {
+      out.writeByte(value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte(value);
+  }
+
+  public static void writeVarLong(final DataOutput out, long value)
+    throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int)value & 0x7F | 0x80);
+      value >>>= 7;
+    }
+    out.writeByte((int)value);
+  }
+
+  @Override
+  public void disposeBytes(final byte[] bytes) {
+  }
+
+  @Override
+  public byte[] getBytes(final Page page) {
+    final byte[] sizeBytes = MethodPageValueManager.getIntBytes(page);
+    final int size = MethodPageValueManager.getIntValue(sizeBytes);
+    final byte[] bytes = new byte[size + 4];
+    System.arraycopy(sizeBytes, 0, bytes, 0, 4);
+    page.readBytes(bytes, 4, size);
+    return bytes;
+  }
+
+  @Override
+  public byte[] getBytes(final T value) {
+    try {
+      final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+      final DataOutputStream out = new DataOutputStream(bOut);
+      out.writeInt(0);
+      writeValue(out, value);
+      out.close();
+      final byte[] bytes = bOut.toByteArray();
+      final byte[] sizeBytes = MethodPageValueManager.getValueIntBytes(bytes.length - 4);
+      System.arraycopy(sizeBytes, 0, bytes, 0, 4);
+      return bytes;
+    } catch (final IOException e) {
+      return (byte[])ExceptionUtil.throwUncheckedException(e);
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V extends T> V getValue(final byte[] bytes) {
+    try {
+      final DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+        bytes, 4, bytes.length - 4));
+      return (V)readValue(in);
+    } catch (final IOException e) {
+      return (V)ExceptionUtil.throwUncheckedException(e);
+    }
+  }
+
+  @Override
+  public <V extends T> V readFromPage(final Page page) {
+    final byte[] bytes = getBytes(page);
+    return getValue(bytes);
+  }
+
+  protected abstract T readValue(DataInput in) throws IOException;
+
+  protected abstract void writeValue(DataOutput out, T value)
+    throws IOException;
+}
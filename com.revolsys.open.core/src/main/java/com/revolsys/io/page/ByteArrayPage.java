@@ -5,6 +5,8 @@ public class ByteArrayPage extends AbstractPage {
 
   private int offset = 0;
 
+  private boolean modified = false;
+
   public ByteArrayPage(final PageManager pageManager, final int index,
     final int size) {
     super(pageManager, index);
@@ -26,6 +28,14 @@ public class ByteArrayPage extends AbstractPage {
     return this.content.length;
   }
 
+  /**
+   * Check if the content was changed since the page was created or last
+   * written by the page manager.
+   */
+  boolean isModified() {
+    return this.modified;
+  }
+
   @Override
   protected int readNextByte() {
     final byte b = this.content[this.offset];
@@ -37,6 +47,11 @@ public class ByteArrayPage extends AbstractPage {
   public void setContent(final Page page) {
     final byte[] copyContent = page.getContent();
     System.arraycopy(copyContent, 0, this.content, 0, copyContent.length);
+    this.modified = true;
+  }
+
+  void setModified(final boolean modified) {
+    this.modified = modified;
   }
 
   @Override
@@ -51,5 +66,6 @@ public class ByteArrayPage extends AbstractPage {
   @Override
   protected void writeByte(final int b) {
     this.content[this.offset++] = (byte)b;
+    this.modified = true;
   }
 }
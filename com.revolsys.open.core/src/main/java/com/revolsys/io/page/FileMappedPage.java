@@ -24,14 +24,14 @@ public class FileMappedPage implements Page {
 
   @Override
   public void clearBytes(final int startIndex) {
-    this.buffer.mark();
+    final int position = this.buffer.position();
     try {
       this.buffer.position(startIndex);
       for (int i = startIndex; i < getSize(); i++) {
         writeByte((byte)0);
       }
     } finally {
-      this.buffer.reset();
+      this.buffer.position(position);
     }
   }
 
@@ -55,12 +55,12 @@ public class FileMappedPage implements Page {
   @Override
   public byte[] getContent() {
     final byte[] data = new byte[getSize()];
-    this.buffer.mark();
+    final int position = this.buffer.position();
     try {
       this.buffer.position(0);
       this.buffer.get(data);
     } finally {
-      this.buffer.reset();
+      this.buffer.position(position);
     }
     return data;
   }
@@ -45,7 +45,10 @@ public class FilePageManager implements PageManager {
       if (this.freePageIndexes.isEmpty()) {
         try {
           final int index = (int)(this.randomAccessFile.length() / this.pageSize);
-          page = new ByteArrayPage(this, index, this.pageSize);
+          final ByteArrayPage newPage = new ByteArrayPage(this, index,
+            this.pageSize);
+          newPage.setModified(true);
+          page = newPage;
           this.pages.put(page.getIndex(), page);
           write(page);
         } catch (final IOException e) {
@@ -130,6 +133,13 @@ public class FilePageManager implements PageManager {
   @Override
   public synchronized void write(final Page page) {
     if (page.getPageManager() == this) {
+      if (page instanceof ByteArrayPage) {
+        final ByteArrayPage byteArrayPage = (ByteArrayPage)page;
+        if (!byteArrayPage.isModified()) {
+          return;
+        }
+        byteArrayPage.setModified(false);
+      }
       synchronized (this.randomAccessFile) {
         try {
           final long index = page.getIndex();
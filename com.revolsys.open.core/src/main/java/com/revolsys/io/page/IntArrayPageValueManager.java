@@ -0,0 +1,22 @@
+package com.revolsys.io.page;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Write int arrays using {@link #writeIntArray(DataOutput, int[])}.
+ */
+public class IntArrayPageValueManager extends BinaryPageValueManager<int[]> {
+
+  @Override
+  protected int[] readValue(final DataInput in) throws IOException {
+    return readIntArray(in);
+  }
+
+  @Override
+  protected void writeValue(final DataOutput out, final int[] values)
+    throws IOException {
+    writeIntArray(out, values);
+  }
+}
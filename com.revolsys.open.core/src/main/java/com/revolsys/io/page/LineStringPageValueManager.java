@@ -0,0 +1,133 @@
+package com.revolsys.io.page;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+
+/**
+ * <p>Write {@link LineString}s as the index of the geometry factory, the axis
+ * count, the vertex count and the coordinates. If the geometry factory has a
+ * fixed precision and all the x, y coordinates are on the precision grid they
+ * are written as variable length deltas from the previous vertex in units of
+ * the grid, otherwise the coordinates are written as doubles.</p>
+ *
+ * <p>The geometry factories aren't written, so the values can only be read by
+ * the same instance that wrote them.</p>
+ */
+public class LineStringPageValueManager extends
+BinaryPageValueManager<LineString> {
+
+  private static final byte DOUBLE = 0;
+
+  private static final byte SCALED = 1;
+
+  private static boolean isScaled(final LineString line, final double scale) {
+    final int vertexCount = line.getVertexCount();
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      for (int axisIndex = 0; axisIndex < 2; axisIndex++) {
+        final double value = line.getCoordinate(vertexIndex, axisIndex);
+        final long scaledValue = Math.round(value * scale);
+        if (scaledValue / scale != value) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private final List<GeometryFactory> geometryFactories = new ArrayList<>();
+
+  private final Map<GeometryFactory, Integer> geometryFactoryIndexes = new IdentityHashMap<>();
+
+  private synchronized GeometryFactory getGeometryFactory(final int index) {
+    return this.geometryFactories.get(index);
+  }
+
+  private synchronized int getGeometryFactoryIndex(
+    final GeometryFactory geometryFactory) {
+    Integer index = this.geometryFactoryIndexes.get(geometryFactory);
+    if (index == null) {
+      index = this.geometryFactories.size();
+      this.geometryFactories.add(geometryFactory);
+      this.geometryFactoryIndexes.put(geometryFactory, index);
+    }
+    return index;
+  }
+
+  @Override
+  protected LineString readValue(final DataInput in) throws IOException {
+    final GeometryFactory geometryFactory = getGeometryFactory(readVarInt(in));
+    final int axisCount = in.readByte();
+    final int vertexCount = readVarInt(in);
+    if (vertexCount == 0) {
+      return geometryFactory.lineString();
+    } else {
+      final byte encoding = in.readByte();
+      final double[] coordinates = new double[vertexCount * axisCount];
+      if (encoding == SCALED) {
+        final double scale = geometryFactory.getScaleXY();
+        long x = 0;
+        long y = 0;
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+          final int offset = vertexIndex * axisCount;
+          x += readSignedVarLong(in);
+          y += readSignedVarLong(in);
+          coordinates[offset] = x / scale;
+          coordinates[offset + 1] = y / scale;
+          for (int axisIndex = 2; axisIndex < axisCount; axisIndex++) {
+            coordinates[offset + axisIndex] = in.readDouble();
+          }
+        }
+      } else {
+        for (int i = 0; i < coordinates.length; i++) {
+          coordinates[i] = in.readDouble();
+        }
+      }
+      return geometryFactory.lineString(axisCount, coordinates);
+    }
+  }
+
+  @Override
+  protected void writeValue(final DataOutput out, final LineString line)
+    throws IOException {
+    final GeometryFactory geometryFactory = line.getGeometryFactory();
+    final int axisCount = line.getAxisCount();
+    final int vertexCount = line.getVertexCount();
+    writeVarInt(out, getGeometryFactoryIndex(geometryFactory));
+    out.writeByte(axisCount);
+    writeVarInt(out, vertexCount);
+    if (vertexCount > 0) {
+      final double scale = geometryFactory.getScaleXY();
+      if (scale > 0 && isScaled(line, scale)) {
+        out.writeByte(SCALED);
+        long previousX = 0;
+        long previousY = 0;
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+          final long x = Math.round(line.getX(vertexIndex) * scale);
+          final long y = Math.round(line.getY(vertexIndex) * scale);
+          writeSignedVarLong(out, x - previousX);
+          writeSignedVarLong(out, y - previousY);
+          previousX = x;
+          previousY = y;
+          for (int axisIndex = 2; axisIndex < axisCount; axisIndex++) {
+            out.writeDouble(line.getCoordinate(vertexIndex, axisIndex));
+          }
+        }
+      } else {
+        out.writeByte(DOUBLE);
+        for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+          for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+            out.writeDouble(line.getCoordinate(vertexIndex, axisIndex));
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package com.revolsys.io.page;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.revolsys.io.RecordBinaryCodec;
+import com.revolsys.jts.geom.Geometry;
+
+/**
+ * Write maps of names to values (e.g. the attributes of graph nodes and edges)
+ * as the number of entries followed by the name and value of each entry. The
+ * names are written as UTF strings. Strings, numbers, booleans, dates and
+ * geometries are written using a {@link RecordBinaryCodec}, any other values
+ * using Java serialization. The values can only be read by the same instance
+ * that wrote them.
+ */
+public class MapPageValueManager extends
+BinaryPageValueManager<Map<String, Object>> {
+
+  private static final byte CODEC = 0;
+
+  private static final byte SERIALIZED = 1;
+
+  private static boolean isCodecValue(final Object value) {
+    return value == null || value instanceof String || value instanceof Integer
+      || value instanceof Long || value instanceof Double
+      || value instanceof Float || value instanceof Short
+      || value instanceof Byte || value instanceof Boolean
+      || value instanceof BigDecimal || value instanceof BigInteger
+      || value instanceof Date || value instanceof Geometry;
+  }
+
+  private final RecordBinaryCodec codec = new RecordBinaryCodec();
+
+  @Override
+  protected Map<String, Object> readValue(final DataInput in)
+    throws IOException {
+    final int size = readVarInt(in);
+    final Map<String, Object> map = new HashMap<String, Object>();
+    for (int i = 0; i < size; i++) {
+      final String name = in.readUTF();
+      final byte encoding = in.readByte();
+      if (encoding == SERIALIZED) {
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        try (
+          ObjectInputStream objectIn = new ObjectInputStream(
+            new ByteArrayInputStream(bytes))) {
+          map.put(name, objectIn.readObject());
+        } catch (final ClassNotFoundException e) {
+          throw new IOException("Unable to read value for " + name, e);
+        }
+      } else {
+        final Object value = this.codec.readValue(in, null);
+        map.put(name, value);
+      }
+    }
+    return map;
+  }
+
+  @Override
+  protected void writeValue(final DataOutput out, final Map<String, Object> map)
+    throws IOException {
+    writeVarInt(out, map.size());
+    for (final Entry<String, Object> entry : map.entrySet()) {
+      out.writeUTF(entry.getKey());
+      final Object value = entry.getValue();
+      if (isCodecValue(value)) {
+        out.writeByte(CODEC);
+        this.codec.writeValue(out, value);
+      } else {
+        out.writeByte(SERIALIZED);
+        final ByteArrayOutputStream bOut = new ByteArrayOutputStream();
+        try (
+          ObjectOutputStream objectOut = new ObjectOutputStream(bOut)) {
+          objectOut.writeObject(value);
+        }
+        final byte[] bytes = bOut.toByteArray();
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+      }
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package com.revolsys.io.page;
+
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.impl.PointDouble;
+
+/**
+ * Write the x, y coordinates of {@link Point}s as two doubles. The values
+ * have a fixed size so they can be used as the keys of a B+ tree.
+ */
+public class PointPageValueManager implements PageValueManager<Point> {
+
+  @Override
+  public void disposeBytes(final byte[] bytes) {
+  }
+
+  @Override
+  public byte[] getBytes(final Page page) {
+    return page.readBytes(16);
+  }
+
+  @Override
+  public byte[] getBytes(final Point point) {
+    final byte[] bytes = new byte[16];
+    final byte[] xBytes = MethodPageValueManager.getValueDoubleBytes(point.getX());
+    final byte[] yBytes = MethodPageValueManager.getValueDoubleBytes(point.getY());
+    System.arraycopy(xBytes, 0, bytes, 0, 8);
+    System.arraycopy(yBytes, 0, bytes, 8, 8);
+    return bytes;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <V extends Point> V getValue(final byte[] bytes) {
+    final long xBits = MethodPageValueManager.getLongValue(bytes);
+    final byte[] yBytes = new byte[8];
+    System.arraycopy(bytes, 8, yBytes, 0, 8);
+    final long yBits = MethodPageValueManager.getLongValue(yBytes);
+    final double x = Double.longBitsToDouble(xBits);
+    final double y = Double.longBitsToDouble(yBits);
+    return (V)new PointDouble(x, y);
+  }
+
+  @Override
+  public <V extends Point> V readFromPage(final Page page) {
+    final byte[] bytes = getBytes(page);
+    return getValue(bytes);
+  }
+}
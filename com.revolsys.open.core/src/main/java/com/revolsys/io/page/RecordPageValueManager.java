@@ -0,0 +1,29 @@
+package com.revolsys.io.page;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import com.revolsys.data.record.Record;
+import com.revolsys.io.RecordBinaryCodec;
+
+/**
+ * Write records using a {@link RecordBinaryCodec}. The record definitions
+ * aren't written, so the values can only be read by the same instance that
+ * wrote them.
+ */
+public class RecordPageValueManager extends BinaryPageValueManager<Record> {
+
+  private final RecordBinaryCodec codec = new RecordBinaryCodec();
+
+  @Override
+  protected Record readValue(final DataInput in) throws IOException {
+    return this.codec.readRecord(in);
+  }
+
+  @Override
+  protected void writeValue(final DataOutput out, final Record record)
+    throws IOException {
+    this.codec.writeRecord(out, record);
+  }
+}
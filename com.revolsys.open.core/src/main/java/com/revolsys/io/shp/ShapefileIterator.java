@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.nio.channels.FileChannel.MapMode;
 import java.util.NoSuchElementException;
 
+import org.slf4j.LoggerFactory;
 import org.springframework.core.io.Resource;
 
 import com.revolsys.collection.AbstractIterator;
@@ -26,6 +27,7 @@ import com.revolsys.io.EndianInput;
 import com.revolsys.io.FileUtil;
 import com.revolsys.io.IoConstants;
 import com.revolsys.io.xbase.XbaseIterator;
+import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.parallel.process.InvokeMethodRunnable;
@@ -37,6 +39,12 @@ RecordIterator {
 
   private boolean closeFile = true;
 
+  /** The index of the record after the last record to read. */
+  private int endIndex = Integer.MAX_VALUE;
+
+  /** Only records whose bounding box intersects this are read. */
+  private BoundingBox filterBoundingBox;
+
   private RecordFactory recordDefinitionFactory;
 
   private GeometryFactory geometryFactory;
@@ -53,10 +61,17 @@ RecordIterator {
 
   private int position;
 
+  /** The record numbers from the spatial index to read. */
+  private int[] recordNumbers;
+
+  private int recordNumberIndex;
+
   private Resource resource;
 
   private int shapeType;
 
+  private ShapefileSpatialIndex spatialIndex;
+
   private XbaseIterator xbaseIterator;
 
   private String typeName;
@@ -72,6 +87,70 @@ RecordIterator {
     this.resource = resource;
   }
 
+  /**
+   * Construct a new iterator for a range of records that shares the memory
+   * mapped files and record definition with the iterator.
+   */
+  private ShapefileIterator(final ShapefileIterator iterator,
+    final int startIndex, final int endIndex) {
+    this.recordDefinitionFactory = iterator.recordDefinitionFactory;
+    this.name = iterator.name;
+    this.typeName = iterator.typeName;
+    this.resource = iterator.resource;
+    this.geometryFactory = iterator.geometryFactory;
+    this.shapeType = iterator.shapeType;
+    this.recordDefinition = iterator.recordDefinition;
+    this.returnRecordDefinition = iterator.returnRecordDefinition;
+    this.spatialIndex = iterator.spatialIndex;
+    this.in = ((EndianMappedByteBuffer)iterator.in).duplicate();
+    this.indexIn = iterator.indexIn.duplicate();
+    this.mappedFile = true;
+    if (iterator.xbaseIterator != null) {
+      this.xbaseIterator = iterator.xbaseIterator.createIterator();
+    }
+    this.endIndex = endIndex;
+    setProperties(iterator.getProperties());
+    setPosition(startIndex);
+  }
+
+  /**
+   * Create a new iterator for the records from startIndex up to but not
+   * including endIndex. The new iterator shares the memory mapped files and
+   * record definition with this iterator so the ranges of a file can be read
+   * by several threads at the same time, each thread using its own iterator.
+   *
+   * @param startIndex The index of the first record to read.
+   * @param endIndex The index of the record after the last record to read.
+   * @return The new iterator.
+   */
+  public ShapefileIterator createIterator(final int startIndex,
+    final int endIndex) {
+    init();
+    if (this.mappedFile) {
+      return new ShapefileIterator(this, startIndex, endIndex);
+    } else {
+      throw new UnsupportedOperationException(
+          "A new iterator can only be created for memory mapped files");
+    }
+  }
+
+  /**
+   * Create a new iterator for the records whose bounding box intersects the
+   * bounding box. The record numbers are found using the
+   * {@link ShapefileSpatialIndex} for the file, which is created if it does
+   * not exist. The geometries are only intersected using the bounding boxes
+   * so the records should be filtered if an exact intersection is required.
+   *
+   * @param boundingBox The bounding box.
+   * @return The new iterator.
+   */
+  public ShapefileIterator createIterator(final BoundingBox boundingBox) {
+    final ShapefileIterator iterator = createIterator(0, Integer.MAX_VALUE);
+    iterator.filterBoundingBox = boundingBox.convert(this.geometryFactory);
+    iterator.recordNumbers = queryRecordNumbers(iterator.filterBoundingBox);
+    return iterator;
+  }
+
   @Override
   protected void doClose() {
     if (this.closeFile) {
@@ -83,12 +162,14 @@ RecordIterator {
   protected synchronized void doInit() {
     if (this.in == null) {
       try {
-        final Boolean memoryMapped = getProperty("memoryMapped");
+        final BoundingBox boundingBox = getProperty("boundingBox");
+        final boolean memoryMapped = Boolean.TRUE == getProperty("memoryMapped")
+            || boundingBox != null;
         try {
           final File file = SpringUtil.getFile(this.resource);
           final File indexFile = new File(file.getParentFile(), this.name
             + ".shx");
-          if (Boolean.TRUE == memoryMapped) {
+          if (memoryMapped) {
             this.in = new EndianMappedByteBuffer(file, MapMode.READ_ONLY);
             this.indexIn = new EndianMappedByteBuffer(indexFile,
               MapMode.READ_ONLY);
@@ -156,6 +237,9 @@ RecordIterator {
           this.recordDefinition = RecordUtil.createGeometryRecordDefinition();
         }
         this.recordDefinition.setGeometryFactory(this.geometryFactory);
+        if (boundingBox != null) {
+          setFilterBoundingBox(boundingBox);
+        }
       } catch (final IOException e) {
         throw new RuntimeException("Error initializing mappedFile "
             + this.resource, e);
@@ -181,22 +265,13 @@ RecordIterator {
   protected Record getNext() {
     Record record;
     try {
-      if (this.xbaseIterator != null) {
-        if (this.xbaseIterator.hasNext()) {
-          record = this.xbaseIterator.next();
-          for (int i = 0; i < this.xbaseIterator.getDeletedCount(); i++) {
-            this.position++;
-            readGeometry();
-          }
+      do {
+        if (this.recordNumbers == null) {
+          record = readRecord();
         } else {
-          throw new NoSuchElementException();
+          record = readIndexedRecord();
         }
-      } else {
-        record = this.recordDefinitionFactory.createRecord(this.recordDefinition);
-      }
-
-      final Geometry geometry = readGeometry();
-      record.setGeometryValue(geometry);
+      } while (record == null);
     } catch (final EOFException e) {
       throw new NoSuchElementException();
     } catch (final IOException e) {
@@ -220,10 +295,40 @@ RecordIterator {
     return this.recordDefinition;
   }
 
+  /**
+   * Get the number of records in the file, including any deleted records,
+   * from the length of the .shx index file. Only supported for memory mapped
+   * files.
+   *
+   * @return The number of records.
+   */
+  public int getRecordCount() {
+    init();
+    if (this.indexIn == null) {
+      throw new UnsupportedOperationException(
+          "The record count is only available for memory mapped files");
+    } else {
+      try {
+        return (int)((this.indexIn.length() - 100) / 8);
+      } catch (final IOException e) {
+        throw new RuntimeException("Unable to read index " + this.resource, e);
+      }
+    }
+  }
+
   public RecordFactory getRecordDefinitionFactory() {
     return this.recordDefinitionFactory;
   }
 
+  private synchronized ShapefileSpatialIndex getSpatialIndex()
+      throws IOException {
+    if (this.spatialIndex == null) {
+      final File file = SpringUtil.getFile(this.resource);
+      this.spatialIndex = ShapefileSpatialIndex.open(file);
+    }
+    return this.spatialIndex;
+  }
+
   public String getTypeName() {
     return this.typeName;
   }
@@ -232,6 +337,49 @@ RecordIterator {
     return this.closeFile;
   }
 
+  /**
+   * Check if the bounding box in the header of the geometry intersects the
+   * filter bounding box. If it does the file is positioned back at the start
+   * of the geometry, otherwise the geometry is skipped.
+   */
+  private boolean isInFilterBoundingBox(final int shapeType,
+    final int recordLength) throws IOException {
+    final EndianMappedByteBuffer file = (EndianMappedByteBuffer)this.in;
+    final long offset = file.getFilePointer();
+    final long endOffset = offset + recordLength * 2L - 4;
+    double minX;
+    double minY;
+    double maxX;
+    double maxY;
+    switch (shapeType) {
+      case ShapefileConstants.NULL_SHAPE:
+        file.seek(endOffset);
+        return false;
+      case ShapefileConstants.POINT_SHAPE:
+      case ShapefileConstants.POINT_M_SHAPE:
+      case ShapefileConstants.POINT_Z_SHAPE:
+      case ShapefileConstants.POINT_ZM_SHAPE:
+        minX = maxX = file.readLEDouble();
+        minY = maxY = file.readLEDouble();
+      break;
+      default:
+        minX = file.readLEDouble();
+        minY = file.readLEDouble();
+        maxX = file.readLEDouble();
+        maxY = file.readLEDouble();
+      break;
+    }
+    final BoundingBox boundingBox = this.filterBoundingBox;
+    if (minX > boundingBox.getMaxX() || minY > boundingBox.getMaxY()
+        || maxX < boundingBox.getMinX() || maxY < boundingBox.getMinY()) {
+      file.seek(endOffset);
+      return false;
+    } else {
+      file.seek(offset);
+      return true;
+    }
+  }
+
   /**
    * Load the header record from the shape mappedFile.
    *
@@ -259,6 +407,10 @@ RecordIterator {
     final int recordNumber = this.in.readInt();
     final int recordLength = this.in.readInt();
     final int shapeType = this.in.readLEInt();
+    if (this.filterBoundingBox != null && this.mappedFile
+        && !isInFilterBoundingBox(shapeType, recordLength)) {
+      return null;
+    }
     final ShapefileGeometryUtil util = ShapefileGeometryUtil.SHP_INSTANCE;
     switch (shapeType) {
       case ShapefileConstants.NULL_SHAPE:
@@ -332,6 +484,98 @@ RecordIterator {
     }
   }
 
+  /**
+   * Get the record numbers of the records that intersect the bounding box from
+   * the spatial index.
+   *
+   * @return The record numbers or null if the spatial index could not be read.
+   */
+  private int[] queryRecordNumbers(final BoundingBox boundingBox) {
+    try {
+      final ShapefileSpatialIndex spatialIndex = getSpatialIndex();
+      return spatialIndex.query(boundingBox);
+    } catch (final IOException | RuntimeException e) {
+      LoggerFactory.getLogger(getClass()).warn(
+        "Unable to read spatial index for " + this.resource, e);
+      return null;
+    }
+  }
+
+  /**
+   * Read the record with the next record number from the spatial index.
+   *
+   * @return The record or null if the record was deleted or is outside the
+   * filter bounding box.
+   */
+  private Record readIndexedRecord() throws IOException {
+    if (this.recordNumberIndex >= this.recordNumbers.length) {
+      throw new NoSuchElementException();
+    }
+    final int recordNumber = this.recordNumbers[this.recordNumberIndex++];
+    if (recordNumber >= this.endIndex) {
+      throw new NoSuchElementException();
+    }
+    setPosition(recordNumber);
+    Record record;
+    if (this.xbaseIterator != null) {
+      if (this.xbaseIterator.hasNext()) {
+        record = this.xbaseIterator.next();
+        if (this.xbaseIterator.getDeletedCount() > 0) {
+          return null;
+        }
+      } else {
+        throw new NoSuchElementException();
+      }
+    } else {
+      record = this.recordDefinitionFactory.createRecord(this.recordDefinition);
+    }
+    final Geometry geometry = readGeometry();
+    this.position++;
+    if (geometry == null) {
+      return null;
+    } else {
+      record.setGeometryValue(geometry);
+      return record;
+    }
+  }
+
+  /**
+   * Read the next record in the file.
+   *
+   * @return The record or null if the geometry is outside the filter bounding
+   * box.
+   */
+  private Record readRecord() throws IOException {
+    if (this.position >= this.endIndex) {
+      throw new NoSuchElementException();
+    }
+    Record record;
+    if (this.xbaseIterator != null) {
+      if (this.xbaseIterator.hasNext()) {
+        record = this.xbaseIterator.next();
+        for (int i = 0; i < this.xbaseIterator.getDeletedCount(); i++) {
+          this.position++;
+          readGeometry();
+        }
+        if (this.position >= this.endIndex) {
+          throw new NoSuchElementException();
+        }
+      } else {
+        throw new NoSuchElementException();
+      }
+    } else {
+      record = this.recordDefinitionFactory.createRecord(this.recordDefinition);
+    }
+    final Geometry geometry = readGeometry();
+    this.position++;
+    if (geometry == null) {
+      return null;
+    } else {
+      record.setGeometryValue(geometry);
+      return record;
+    }
+  }
+
   public void setCloseFile(final boolean closeFile) {
     this.closeFile = closeFile;
     if (this.xbaseIterator != null) {
@@ -339,6 +583,20 @@ RecordIterator {
     }
   }
 
+  /**
+   * Only read the records whose bounding box intersects the bounding box. If
+   * the file is memory mapped the record numbers are read from the spatial
+   * index, otherwise all the records are read and the bounding box from the
+   * header of each geometry is checked.
+   */
+  private void setFilterBoundingBox(final BoundingBox boundingBox) {
+    this.filterBoundingBox = boundingBox.convert(this.geometryFactory);
+    if (this.mappedFile) {
+      this.recordNumbers = queryRecordNumbers(this.filterBoundingBox);
+      this.recordNumberIndex = 0;
+    }
+  }
+
   public void setPosition(final int position) {
     if (this.mappedFile) {
       final EndianMappedByteBuffer file = (EndianMappedByteBuffer)this.in;
@@ -346,7 +604,7 @@ RecordIterator {
       try {
         this.indexIn.seek(100 + 8 * position);
         final int offset = this.indexIn.readInt();
-        file.seek(offset * 2);
+        file.seek(offset * 2L);
         setLoadNext(true);
       } catch (final IOException e) {
         throw new RuntimeException("Unable to find record " + position, e);
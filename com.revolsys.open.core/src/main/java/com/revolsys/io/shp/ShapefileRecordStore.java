@@ -1,21 +1,63 @@
 package com.revolsys.io.shp;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.core.io.FileSystemResource;
+
+import com.revolsys.collection.AbstractIterator;
+import com.revolsys.collection.Visitor;
+import com.revolsys.data.io.RecordIteratorReader;
+import com.revolsys.data.io.RecordReader;
+import com.revolsys.data.identifier.Identifier;
 import com.revolsys.data.query.Query;
+import com.revolsys.data.query.QueryValue;
 import com.revolsys.data.record.ArrayRecord;
 import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.AbstractRecordStore;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.io.FileUtil;
+import com.revolsys.io.Path;
 import com.revolsys.io.Writer;
+import com.revolsys.io.directory.RecordReaderQueryIterator;
+import com.revolsys.jts.geom.BoundingBox;
 
+/**
+ * A record store for a directory of shapefiles. Records are written using a
+ * {@link ShapefileDirectoryWriter}. Existing shapefiles are read using memory
+ * mapped files so records can be loaded by record number using the .shx index
+ * and all the records can be visited by several threads at the same time.
+ */
 public class ShapefileRecordStore extends AbstractRecordStore {
 
+  private final File directory;
+
+  private ExecutorService executorService;
+
+  private final Map<String, ShapefileIterator> iterators = new HashMap<>();
+
+  /** The length and last modified time of the .shp file of each iterator. */
+  private final Map<String, long[]> iteratorFileStamps = new HashMap<>();
+
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+
   private ShapefileDirectoryWriter writer;
 
   public ShapefileRecordStore(final File directory) {
     directory.mkdirs();
+    this.directory = directory;
     this.writer = new ShapefileDirectoryWriter(directory);
     this.writer.setLogCounts(false);
   }
@@ -25,6 +67,13 @@ public class ShapefileRecordStore extends AbstractRecordStore {
     super.close();
     FileUtil.closeSilent(this.writer);
     this.writer = null;
+    synchronized (this.iterators) {
+      for (final ShapefileIterator iterator : this.iterators.values()) {
+        iterator.forceClose();
+      }
+      this.iterators.clear();
+      this.iteratorFileStamps.clear();
+    }
   }
 
   @Override
@@ -38,14 +87,94 @@ public class ShapefileRecordStore extends AbstractRecordStore {
     }
   }
 
+  /**
+   * Create an iterator for the query. If the where condition restricts the
+   * records to a bounding box only the records found using the
+   * {@link ShapefileSpatialIndex} are read.
+   */
+  @Override
+  public AbstractIterator<Record> createIterator(final Query query,
+    final Map<String, Object> properties) {
+    final String typePath = query.getTypeName();
+    final ShapefileIterator iterator = getIterator(typePath);
+    if (iterator == null) {
+      return super.createIterator(query, properties);
+    } else {
+      final BoundingBox boundingBox = QueryValue.getFilterBoundingBox(query);
+      ShapefileIterator queryIterator;
+      if (boundingBox == null) {
+        queryIterator = iterator.createIterator(0, Integer.MAX_VALUE);
+      } else {
+        queryIterator = iterator.createIterator(boundingBox);
+      }
+      final RecordReader reader = new RecordIteratorReader(queryIterator);
+      return new RecordReaderQueryIterator(reader, query);
+    }
+  }
+
   @Override
   public Writer<Record> createWriter() {
     return this.writer;
   }
 
+  /**
+   * Get the memory mapped iterator for the shapefile used to create the
+   * iterators that read the file. If the length or last modified time of the
+   * .shp file changed since the iterator was created the file was written
+   * again, so the iterator is closed and a new one created. Iterators already
+   * created from the old iterator keep reading their own copy of the mapped
+   * files.
+   *
+   * @param typePath The type path.
+   * @return The iterator or null if the shapefile does not exist.
+   */
+  protected ShapefileIterator getIterator(final String typePath) {
+    synchronized (this.iterators) {
+      final String name = Path.getName(typePath);
+      final File file = new File(this.directory, name + ".shp");
+      ShapefileIterator iterator = this.iterators.get(typePath);
+      if (iterator != null) {
+        final long[] fileStamp = this.iteratorFileStamps.get(typePath);
+        if (fileStamp[0] != file.length()
+            || fileStamp[1] != file.lastModified()) {
+          this.iterators.remove(typePath);
+          this.iteratorFileStamps.remove(typePath);
+          iterator.forceClose();
+          iterator = null;
+        }
+      }
+      if (iterator == null) {
+        if (file.exists()) {
+          final long[] fileStamp = {
+            file.length(), file.lastModified()
+          };
+          try {
+            iterator = new ShapefileIterator(new FileSystemResource(file),
+              getRecordFactory());
+          } catch (final IOException e) {
+            throw new RuntimeException("Unable to open " + file, e);
+          }
+          iterator.setTypeName(typePath);
+          iterator.setProperty("memoryMapped", true);
+          iterator.init();
+          this.iterators.put(typePath, iterator);
+          this.iteratorFileStamps.put(typePath, fileStamp);
+        }
+      }
+      return iterator;
+    }
+  }
+
   @Override
   public RecordDefinition getRecordDefinition(final String typePath) {
-    return this.writer.getRecordDefinition(typePath);
+    final RecordDefinition recordDefinition = this.writer.getRecordDefinition(typePath);
+    if (recordDefinition == null) {
+      final ShapefileIterator iterator = getIterator(typePath);
+      if (iterator != null) {
+        return iterator.getRecordDefinition();
+      }
+    }
+    return recordDefinition;
   }
 
   @Override
@@ -54,9 +183,154 @@ public class ShapefileRecordStore extends AbstractRecordStore {
     return 0;
   }
 
+  public ExecutorService getExecutorService() {
+    return this.executorService;
+  }
+
+  public int getThreadCount() {
+    return this.threadCount;
+  }
+
   @Override
   public void insert(final Record record) {
     this.writer.write(record);
   }
 
+  @Override
+  public Record load(final String typePath, final Identifier id) {
+    if (id != null && id.getValues().size() == 1) {
+      final Object value = id.getValue(0);
+      return load(typePath, new Object[] {
+        value
+      });
+    } else {
+      return super.load(typePath, id);
+    }
+  }
+
+  /**
+   * Load the record using the record number (starting at 0) as the id. The
+   * offset of the record is read from the .shx index.
+   *
+   * @param typePath The type path.
+   * @param id The record number.
+   * @return The record or null if it does not exist or was deleted.
+   */
+  @Override
+  public Record load(final String typePath, final Object... id) {
+    if (id.length == 1 && id[0] instanceof Number) {
+      final int recordNumber = ((Number)id[0]).intValue();
+      final ShapefileIterator iterator = getIterator(typePath);
+      if (iterator == null || recordNumber < 0
+          || recordNumber >= iterator.getRecordCount()) {
+        return null;
+      } else {
+        final ShapefileIterator recordIterator = iterator.createIterator(
+          recordNumber, recordNumber + 1);
+        try {
+          if (recordIterator.hasNext()) {
+            return recordIterator.next();
+          } else {
+            return null;
+          }
+        } finally {
+          recordIterator.close();
+        }
+      }
+    } else {
+      return super.load(typePath, id);
+    }
+  }
+
+  /**
+   * @param executorService The executor used to read the ranges of records
+   * when visiting a shapefile. The range readers block until the file is
+   * read so a shared executor must have at least threadCount free threads.
+   * If null a pool of threadCount daemon threads is created for each visit.
+   */
+  public void setExecutorService(final ExecutorService executorService) {
+    this.executorService = executorService;
+  }
+
+  /**
+   * @param threadCount The number of threads used to visit the records.
+   */
+  public void setThreadCount(final int threadCount) {
+    this.threadCount = threadCount;
+  }
+
+  /**
+   * Visit all the records in the shapefile. The file is split into a range of
+   * records for each thread and each thread reads its range from its own
+   * iterator over the memory mapped files. The records are not visited in file
+   * order so the visitor must be thread safe. If the visitor returns false the
+   * remaining records are not visited. The ranges are read using the
+   * {@link #setExecutorService(ExecutorService)} or a pool of threads created
+   * for the visit.
+   *
+   * @param typePath The type path.
+   * @param visitor The visitor.
+   */
+  public void visit(final String typePath, final Visitor<Record> visitor) {
+    final ShapefileIterator iterator = getIterator(typePath);
+    if (iterator != null) {
+      final int recordCount = iterator.getRecordCount();
+      final int rangeCount = Math.max(1,
+        Math.min(this.threadCount, recordCount));
+      final AtomicBoolean cancelled = new AtomicBoolean();
+      ExecutorService executorService = this.executorService;
+      final boolean ownExecutor = executorService == null;
+      if (ownExecutor) {
+        final AtomicInteger threadIndex = new AtomicInteger();
+        executorService = Executors.newFixedThreadPool(rangeCount,
+          new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+              final Thread thread = new Thread(runnable, "Shapefile Visit "
+                + threadIndex.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          });
+      }
+      final List<Future<Void>> futures = new ArrayList<>();
+      try {
+        for (int i = 0; i < rangeCount; i++) {
+          final int startIndex = (int)((long)recordCount * i / rangeCount);
+          final int endIndex = (int)((long)recordCount * (i + 1) / rangeCount);
+          final ShapefileIterator rangeIterator = iterator.createIterator(
+            startIndex, endIndex);
+          futures.add(executorService.submit(new Callable<Void>() {
+            @Override
+            public Void call() {
+              try {
+                while (!cancelled.get() && rangeIterator.hasNext()) {
+                  final Record record = rangeIterator.next();
+                  if (!visitor.visit(record)) {
+                    cancelled.set(true);
+                  }
+                }
+              } finally {
+                rangeIterator.close();
+              }
+              return null;
+            }
+          }));
+        }
+        for (final Future<Void> future : futures) {
+          future.get();
+        }
+      } catch (final InterruptedException e) {
+        cancelled.set(true);
+        throw new RuntimeException("Interrupted reading " + typePath, e);
+      } catch (final ExecutionException e) {
+        cancelled.set(true);
+        throw new RuntimeException("Unable to read " + typePath, e.getCause());
+      } finally {
+        if (ownExecutor) {
+          executorService.shutdown();
+        }
+      }
+    }
+  }
 }
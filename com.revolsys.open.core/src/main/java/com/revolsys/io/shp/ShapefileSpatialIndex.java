@@ -0,0 +1,419 @@
+package com.revolsys.io.shp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Arrays;
+
+import org.slf4j.LoggerFactory;
+
+import com.revolsys.gis.algorithm.index.PackedRTree;
+import com.revolsys.io.FileUtil;
+import com.revolsys.jts.geom.BoundingBox;
+
+/**
+ * <p>A packed R-Tree of the bounding boxes of the records in a shapefile used
+ * to find the records that intersect a bounding box without reading the whole
+ * file. The tree is bulk loaded using the Sort-Tile-Recursive (STR) algorithm
+ * from the bounding boxes in the .shp record headers (using the offsets from
+ * the .shx file).</p>
+ *
+ * <p>The tree is saved to a <code>.rix</code> file next to the shapefile and
+ * is rebuilt if the .shp file has changed since the index was created. If the
+ * index file can't be written the tree is kept in memory.</p>
+ */
+public class ShapefileSpatialIndex {
+  public static final String FILE_EXTENSION = "rix";
+
+  private static final int HEADER_SIZE = 40;
+
+  private static final int MAGIC = 0x52495831;
+
+  private static final int NODE_CAPACITY = 16;
+
+  /** The size of the shape type and bounding box at the start of a record. */
+  private static final int RECORD_HEADER_SIZE = 36;
+
+  private static final int VERSION = 1;
+
+  /**
+   * Create the spatial index file for the shapefile, replacing any existing
+   * index.
+   *
+   * @param shpFile The .shp file.
+   * @throws IOException If the shapefile could not be read or the index
+   * written.
+   */
+  public static void create(final File shpFile) throws IOException {
+    final ByteBuffer buffer = createIndex(shpFile);
+    write(shpFile, buffer);
+  }
+
+  private static ByteBuffer createIndex(final File shpFile) throws IOException {
+    final File shxFile = getRelatedFile(shpFile, "shx");
+    try (
+      RandomAccessFile shpIn = new RandomAccessFile(shpFile, "r");
+      RandomAccessFile shxIn = new RandomAccessFile(shxFile, "r")) {
+      // A buffer can't be mapped past 2GB, the headers of records after that
+      // are read from the channel
+      final FileChannel shpChannel = shpIn.getChannel();
+      final long mappedSize = Math.min(shpIn.length(), Integer.MAX_VALUE);
+      final MappedByteBuffer shp = shpChannel.map(MapMode.READ_ONLY, 0,
+        mappedSize);
+      shp.order(ByteOrder.LITTLE_ENDIAN);
+      final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+      header.order(ByteOrder.LITTLE_ENDIAN);
+      final MappedByteBuffer shx = shxIn.getChannel().map(MapMode.READ_ONLY, 0,
+        shxIn.length());
+      shx.order(ByteOrder.BIG_ENDIAN);
+
+      final int recordCount = (int)((shxIn.length() - 100) / 8);
+      final double[] bounds = new double[recordCount * 4];
+      final int[] recordNumbers = new int[recordCount];
+      int entryCount = 0;
+      for (int i = 0; i < recordCount; i++) {
+        final long contentOffset = getContentOffset(shx, i);
+        final ByteBuffer record;
+        final int offset;
+        if (contentOffset + RECORD_HEADER_SIZE <= mappedSize) {
+          record = shp;
+          offset = (int)contentOffset;
+        } else {
+          readRecordHeader(shpChannel, contentOffset, header);
+          record = header;
+          offset = 0;
+        }
+        final int shapeType = record.getInt(offset);
+        double minX;
+        double minY;
+        double maxX;
+        double maxY;
+        switch (shapeType) {
+          case ShapefileConstants.NULL_SHAPE:
+            continue;
+          case ShapefileConstants.POINT_SHAPE:
+          case ShapefileConstants.POINT_M_SHAPE:
+          case ShapefileConstants.POINT_Z_SHAPE:
+          case ShapefileConstants.POINT_ZM_SHAPE:
+            minX = maxX = record.getDouble(offset + 4);
+            minY = maxY = record.getDouble(offset + 12);
+          break;
+          default:
+            minX = record.getDouble(offset + 4);
+            minY = record.getDouble(offset + 12);
+            maxX = record.getDouble(offset + 20);
+            maxY = record.getDouble(offset + 28);
+          break;
+        }
+        if (!Double.isNaN(minX) && !Double.isNaN(minY)) {
+          final int boundsIndex = entryCount * 4;
+          bounds[boundsIndex] = minX;
+          bounds[boundsIndex + 1] = minY;
+          bounds[boundsIndex + 2] = maxX;
+          bounds[boundsIndex + 3] = maxY;
+          recordNumbers[entryCount] = i;
+          entryCount++;
+        }
+      }
+
+      int levelCount = 1;
+      for (int nodeCount = entryCount; nodeCount > NODE_CAPACITY; nodeCount = (nodeCount
+        + NODE_CAPACITY - 1)
+        / NODE_CAPACITY) {
+        levelCount++;
+      }
+      sortTile(bounds, recordNumbers, entryCount);
+      final double[][] levelBounds = new double[levelCount][];
+      levelBounds[0] = Arrays.copyOf(bounds, entryCount * 4);
+      for (int level = 1; level < levelCount; level++) {
+        levelBounds[level] = createParentBounds(levelBounds[level - 1]);
+      }
+
+      int headerSize = HEADER_SIZE + levelCount * 4;
+      headerSize += (8 - headerSize % 8) % 8;
+      int size = headerSize + entryCount * 4;
+      for (final double[] nodeBounds : levelBounds) {
+        size += nodeBounds.length * 8;
+      }
+      final ByteBuffer buffer = ByteBuffer.allocate(size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffer.putInt(MAGIC);
+      buffer.putInt(VERSION);
+      buffer.putLong(shpFile.length());
+      buffer.putLong(shpFile.lastModified());
+      buffer.putInt(recordCount);
+      buffer.putInt(entryCount);
+      buffer.putInt(NODE_CAPACITY);
+      buffer.putInt(levelCount);
+      for (final double[] nodeBounds : levelBounds) {
+        buffer.putInt(nodeBounds.length / 4);
+      }
+      buffer.position(headerSize);
+      for (final double[] nodeBounds : levelBounds) {
+        buffer.asDoubleBuffer().put(nodeBounds);
+        buffer.position(buffer.position() + nodeBounds.length * 8);
+      }
+      buffer.asIntBuffer().put(recordNumbers, 0, entryCount);
+      buffer.clear();
+      return buffer;
+    }
+  }
+
+  private static double[] createParentBounds(final double[] childBounds) {
+    final int childCount = childBounds.length / 4;
+    final int nodeCount = (childCount + NODE_CAPACITY - 1) / NODE_CAPACITY;
+    final double[] bounds = new double[nodeCount * 4];
+    for (int node = 0; node < nodeCount; node++) {
+      double minX = Double.MAX_VALUE;
+      double minY = Double.MAX_VALUE;
+      double maxX = -Double.MAX_VALUE;
+      double maxY = -Double.MAX_VALUE;
+      final int start = node * NODE_CAPACITY;
+      final int end = Math.min(childCount, start + NODE_CAPACITY);
+      for (int child = start; child < end; child++) {
+        minX = Math.min(minX, childBounds[child * 4]);
+        minY = Math.min(minY, childBounds[child * 4 + 1]);
+        maxX = Math.max(maxX, childBounds[child * 4 + 2]);
+        maxY = Math.max(maxY, childBounds[child * 4 + 3]);
+      }
+      bounds[node * 4] = minX;
+      bounds[node * 4 + 1] = minY;
+      bounds[node * 4 + 2] = maxX;
+      bounds[node * 4 + 3] = maxY;
+    }
+    return bounds;
+  }
+
+  /**
+   * Get the offset in the .shp file of the content of a record, after the
+   * record number and content length. The offsets in the .shx file are in
+   * 16-bit words so the offset in bytes can be larger than an int.
+   *
+   * @param shx The .shx file buffer.
+   * @param recordIndex The index of the record starting at 0.
+   * @return The offset in bytes.
+   */
+  static long getContentOffset(final ByteBuffer shx, final int recordIndex) {
+    return shx.getInt(100 + recordIndex * 8) * 2L + 8;
+  }
+
+  private static File getRelatedFile(final File shpFile, final String extension) {
+    final String baseName = FileUtil.getBaseName(shpFile.getName());
+    return new File(shpFile.getParentFile(), baseName + "." + extension);
+  }
+
+  private static boolean isValid(final ByteBuffer buffer, final File shpFile) {
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer.capacity() >= HEADER_SIZE && buffer.getInt(0) == MAGIC
+      && buffer.getInt(4) == VERSION && buffer.getLong(8) == shpFile.length()
+      && buffer.getLong(16) == shpFile.lastModified();
+  }
+
+  /**
+   * Open the spatial index for the shapefile. If the index file does not exist
+   * or the shapefile has been modified since it was created the index is
+   * created.
+   *
+   * @param shpFile The .shp file.
+   * @return The spatial index.
+   * @throws IOException If the shapefile or index could not be read.
+   */
+  public static ShapefileSpatialIndex open(final File shpFile)
+    throws IOException {
+    final File indexFile = getRelatedFile(shpFile, FILE_EXTENSION);
+    if (indexFile.exists()) {
+      try (
+        RandomAccessFile in = new RandomAccessFile(indexFile, "r")) {
+        final ByteBuffer buffer = in.getChannel().map(MapMode.READ_ONLY, 0,
+          in.length());
+        if (isValid(buffer, shpFile)) {
+          return new ShapefileSpatialIndex(buffer);
+        }
+      }
+    }
+    final ByteBuffer buffer = createIndex(shpFile);
+    try {
+      write(shpFile, buffer);
+    } catch (final IOException e) {
+      LoggerFactory.getLogger(ShapefileSpatialIndex.class).debug(
+        "Unable to write spatial index " + indexFile, e);
+    }
+    return new ShapefileSpatialIndex(buffer);
+  }
+
+  /**
+   * Read the shape type and bounding box of a record into the header. Less is
+   * read if the record is at the end of the file.
+   */
+  private static void readRecordHeader(final FileChannel channel,
+    final long offset, final ByteBuffer header) throws IOException {
+    header.clear();
+    int count = 0;
+    while (count != -1 && header.hasRemaining()) {
+      count = channel.read(header, offset + header.position());
+    }
+  }
+
+  /**
+   * Sort the entries into the order of the leaves of the tree using the
+   * Sort-Tile-Recursive algorithm from the {@link PackedRTree}.
+   */
+  private static void sortTile(final double[] bounds,
+    final int[] recordNumbers, final int entryCount) {
+    final int[] order = new int[entryCount];
+    for (int i = 0; i < entryCount; i++) {
+      order[i] = i;
+    }
+    PackedRTree.sortTileRecursive(bounds, order, NODE_CAPACITY);
+
+    final double[] sortedBounds = Arrays.copyOf(bounds, entryCount * 4);
+    final int[] sortedRecordNumbers = Arrays.copyOf(recordNumbers, entryCount);
+    for (int i = 0; i < entryCount; i++) {
+      final int index = order[i];
+      System.arraycopy(sortedBounds, index * 4, bounds, i * 4, 4);
+      recordNumbers[i] = sortedRecordNumbers[index];
+    }
+  }
+
+  private static void write(final File shpFile, final ByteBuffer buffer)
+    throws IOException {
+    final File indexFile = getRelatedFile(shpFile, FILE_EXTENSION);
+    final File tempFile = getRelatedFile(shpFile, FILE_EXTENSION + ".tmp");
+    try {
+      try (
+        RandomAccessFile out = new RandomAccessFile(tempFile, "rw")) {
+        out.setLength(0);
+        final FileChannel channel = out.getChannel();
+        final ByteBuffer data = buffer.duplicate();
+        data.clear();
+        while (data.hasRemaining()) {
+          channel.write(data);
+        }
+      }
+      if (!tempFile.renameTo(indexFile)) {
+        indexFile.delete();
+        if (!tempFile.renameTo(indexFile)) {
+          throw new IOException("Unable to rename " + tempFile + " to "
+            + indexFile);
+        }
+      }
+    } finally {
+      tempFile.delete();
+    }
+  }
+
+  private final ByteBuffer buffer;
+
+  private final int entryCount;
+
+  private final int[] levelNodeCounts;
+
+  private final int[] levelOffsets;
+
+  private final int recordCount;
+
+  private final int recordNumbersOffset;
+
+  private ShapefileSpatialIndex(final ByteBuffer buffer) {
+    this.buffer = buffer;
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    this.recordCount = buffer.getInt(24);
+    this.entryCount = buffer.getInt(28);
+    final int levelCount = buffer.getInt(36);
+    this.levelNodeCounts = new int[levelCount];
+    this.levelOffsets = new int[levelCount];
+    int offset = HEADER_SIZE + levelCount * 4;
+    offset += (8 - offset % 8) % 8;
+    for (int level = 0; level < levelCount; level++) {
+      this.levelNodeCounts[level] = buffer.getInt(HEADER_SIZE + level * 4);
+      this.levelOffsets[level] = offset;
+      offset += this.levelNodeCounts[level] * 32;
+    }
+    this.recordNumbersOffset = offset;
+  }
+
+  /**
+   * @return The number of records in the shapefile, including null and
+   * deleted records.
+   */
+  public int getRecordCount() {
+    return this.recordCount;
+  }
+
+  private boolean intersects(final int offset, final double minX,
+    final double minY, final double maxX, final double maxY) {
+    return !(this.buffer.getDouble(offset) > maxX
+      || this.buffer.getDouble(offset + 8) > maxY
+      || this.buffer.getDouble(offset + 16) < minX || this.buffer.getDouble(offset + 24) < minY);
+  }
+
+  /**
+   * Get the record numbers (starting at 0) of the records whose bounding box
+   * intersects the bounding box. The bounding box must be in the coordinate
+   * system of the shapefile.
+   *
+   * @param boundingBox The bounding box.
+   * @return The record numbers in file order.
+   */
+  public int[] query(final BoundingBox boundingBox) {
+    if (boundingBox == null || boundingBox.isEmpty()) {
+      return new int[0];
+    } else {
+      return query(boundingBox.getMinX(), boundingBox.getMinY(),
+        boundingBox.getMaxX(), boundingBox.getMaxY());
+    }
+  }
+
+  public int[] query(final double minX, final double minY, final double maxX,
+    final double maxY) {
+    int[] result = new int[64];
+    int resultCount = 0;
+    final int levelCount = this.levelNodeCounts.length;
+    if (this.entryCount > 0) {
+      int[] stack = new int[64];
+      int stackSize = 0;
+      final int topLevel = levelCount - 1;
+      for (int node = 0; node < this.levelNodeCounts[topLevel]; node++) {
+        if (stackSize + 2 > stack.length) {
+          stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[stackSize++] = topLevel;
+        stack[stackSize++] = node;
+      }
+      while (stackSize > 0) {
+        final int node = stack[--stackSize];
+        final int level = stack[--stackSize];
+        if (intersects(this.levelOffsets[level] + node * 32, minX, minY, maxX,
+          maxY)) {
+          if (level == 0) {
+            if (resultCount == result.length) {
+              result = Arrays.copyOf(result, result.length * 2);
+            }
+            result[resultCount++] = this.buffer.getInt(this.recordNumbersOffset
+              + node * 4);
+          } else {
+            final int childLevel = level - 1;
+            final int start = node * NODE_CAPACITY;
+            final int end = Math.min(this.levelNodeCounts[childLevel], start
+              + NODE_CAPACITY);
+            for (int child = start; child < end; child++) {
+              if (stackSize + 2 > stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+              }
+              stack[stackSize++] = childLevel;
+              stack[stackSize++] = child;
+            }
+          }
+        }
+      }
+    }
+    final int[] recordNumbers = Arrays.copyOf(result, resultCount);
+    Arrays.sort(recordNumbers);
+    return recordNumbers;
+  }
+}
@@ -118,6 +118,43 @@ RecordIterator {
     this.initCallback = initCallback;
   }
 
+  /**
+   * Construct a new iterator that shares the memory mapped file and record
+   * definition with the iterator.
+   */
+  private XbaseIterator(final XbaseIterator iterator) {
+    this.resource = iterator.resource;
+    this.recordFactory = iterator.recordFactory;
+    this.charset = iterator.charset;
+    this.typeName = iterator.typeName;
+    this.in = ((EndianMappedByteBuffer)iterator.in).duplicate();
+    this.mappedFile = true;
+    this.recordDefinition = iterator.recordDefinition;
+    this.recordSize = iterator.recordSize;
+    this.recordBuffer = new byte[this.recordSize];
+    this.numRecords = iterator.numRecords;
+    this.firstIndex = iterator.firstIndex;
+    setPosition(0);
+  }
+
+  /**
+   * Create a new iterator that shares the memory mapped file and record
+   * definition with this iterator. The new iterator is positioned at the first
+   * record, use {@link #setPosition(int)} to read from another record. Each
+   * thread reading the file must use its own iterator.
+   *
+   * @return The new iterator.
+   */
+  public XbaseIterator createIterator() {
+    init();
+    if (this.mappedFile) {
+      return new XbaseIterator(this);
+    } else {
+      throw new UnsupportedOperationException(
+          "A new iterator can only be created for memory mapped files");
+    }
+  }
+
   @Override
   protected void doClose() {
     if (this.closeFile) {
@@ -315,24 +352,25 @@ RecordIterator {
     for (int i = 0; i < this.recordDefinition.getFieldCount(); i++) {
       int len = this.recordDefinition.getFieldLength(i);
       final DataType type = this.recordDefinition.getFieldType(i);
-      Object value = null;
-
-      if (type == DataTypes.STRING) {
-        if (len < 255) {
-          value = getString(startIndex, len);
-        } else {
-          value = getMemo(startIndex, len);
-          len = 10;
+      if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
+        setNumber(object, i, startIndex, len);
+      } else {
+        Object value = null;
+        if (type == DataTypes.STRING) {
+          if (len < 255) {
+            value = getString(startIndex, len);
+          } else {
+            value = getMemo(startIndex, len);
+            len = 10;
+          }
+        } else if (type == DataTypes.BOOLEAN) {
+          value = getBoolean(startIndex);
+        } else if (type == DataTypes.DATE_TIME) {
+          value = getDate(startIndex, len);
         }
-      } else if (type == DataTypes.DECIMAL || type == DataTypes.FLOAT) {
-        value = getNumber(startIndex, len);
-      } else if (type == DataTypes.BOOLEAN) {
-        value = getBoolean(startIndex);
-      } else if (type == DataTypes.DATE_TIME) {
-        value = getDate(startIndex, len);
+        object.setValue(i, value);
       }
       startIndex += len;
-      object.setValue(i, value);
     }
     return object;
   }
@@ -382,6 +420,63 @@ RecordIterator {
     this.closeFile = closeFile;
   }
 
+  /**
+   * Parse the number directly from the record bytes and set it as an unscaled
+   * value so records that store primitive values don't need a
+   * {@link BigDecimal}. Numbers that can't be parsed as up to 18 digits are
+   * read using {@link #getNumber(int, int)}.
+   */
+  private void setNumber(final Record record, final int index,
+    final int startIndex, final int len) {
+    final byte[] buffer = this.recordBuffer;
+    final int endIndex = startIndex + len;
+    int i = startIndex;
+    while (i < endIndex && (buffer[i] & 0xFF) <= ' ') {
+      i++;
+    }
+    boolean negative = false;
+    if (i < endIndex && (buffer[i] == '-' || buffer[i] == '+')) {
+      negative = buffer[i] == '-';
+      i++;
+    }
+    long value = 0;
+    int digitCount = 0;
+    int scale = -1;
+    boolean valid = true;
+    for (; i < endIndex && valid; i++) {
+      final int b = buffer[i] & 0xFF;
+      if (b >= '0' && b <= '9') {
+        if (digitCount == 18) {
+          valid = false;
+        } else {
+          value = value * 10 + b - '0';
+          digitCount++;
+          if (scale >= 0) {
+            scale++;
+          }
+        }
+      } else if (b == '.' && scale == -1) {
+        scale = 0;
+      } else if (b <= ' ') {
+        for (; i < endIndex && valid; i++) {
+          valid = (buffer[i] & 0xFF) <= ' ';
+        }
+      } else {
+        valid = false;
+      }
+    }
+    if (valid && digitCount > 0) {
+      if (negative) {
+        value = -value;
+      }
+      record.setDecimal(index, value, Math.max(0, scale));
+    } else if (valid && !negative && scale == -1) {
+      record.setValue(index, null);
+    } else {
+      record.setValue(index, getNumber(startIndex, len));
+    }
+  }
+
   public void setPosition(final int position) {
     if (this.mappedFile) {
       final EndianMappedByteBuffer file = (EndianMappedByteBuffer)this.in;
@@ -74,6 +74,8 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore implem
 
   private List<String> excludeTablePatterns = new ArrayList<String>();
 
+  private int fetchSize;
+
   private boolean flushBetweenTypes;
 
   private String hints;
@@ -104,6 +106,8 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore implem
 
   private Set<String> excludeTablePaths = new HashSet<String>();
 
+  private boolean streamingResults;
+
   private DataSourceTransactionManager transactionManager;
 
   public AbstractJdbcRecordStore() {
@@ -394,6 +398,17 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore implem
     return this.excludeTablePaths;
   }
 
+  /**
+   * Get the number of rows fetched from the database in each round trip. If 0
+   * the fetch size is calculated from the width of the rows in the query.
+   *
+   * @return The fetch size.
+   */
+  @Override
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
   public JdbcFieldDefinition getField(final String schemaName, final String tableName,
     final String columnName) {
     final String typePath = Path.toPath(schemaName, tableName);
@@ -654,6 +669,17 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore implem
 
   public abstract boolean isSchemaExcluded(String schemaName);
 
+  /**
+   * Check if queries should stream the results from a server side cursor in a
+   * read only transaction instead of using the connection's auto commit mode.
+   *
+   * @return True if the results are streamed.
+   */
+  @Override
+  public boolean isStreamingResults() {
+    return this.streamingResults;
+  }
+
   protected synchronized Map<String, List<String>> loadIdColumnNames(final String dbSchemaName) {
     final String schemaName = "/" + dbSchemaName.toUpperCase();
     final Map<String, List<String>> idColumnNames = new HashMap<String, List<String>>();
@@ -834,6 +860,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore implem
     this.excludeTablePatterns = new ArrayList<String>(Arrays.asList(excludeTablePatterns));
   }
 
+  public void setFetchSize(final int fetchSize) {
+    this.fetchSize = fetchSize;
+  }
+
   public void setFlushBetweenTypes(final boolean flushBetweenTypes) {
     this.flushBetweenTypes = flushBetweenTypes;
   }
@@ -858,6 +888,10 @@ public abstract class AbstractJdbcRecordStore extends AbstractRecordStore implem
     this.sqlSuffix = sqlSuffix;
   }
 
+  public void setStreamingResults(final boolean streamingResults) {
+    this.streamingResults = streamingResults;
+  }
+
   public void setTablePermissionsSql(final String tablePermissionsSql) {
     this.tablePermissionsSql = tablePermissionsSql;
   }
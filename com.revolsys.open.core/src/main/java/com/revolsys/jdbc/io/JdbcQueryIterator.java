@@ -5,12 +5,15 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 
 import javax.annotation.PreDestroy;
 
+import org.apache.log4j.Logger;
+
 import com.revolsys.collection.AbstractIterator;
 import com.revolsys.converter.string.BooleanStringConverter;
 import com.revolsys.data.io.RecordIterator;
@@ -21,14 +24,77 @@ import com.revolsys.data.record.RecordState;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataType;
 import com.revolsys.gis.io.Statistics;
 import com.revolsys.io.FileUtil;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.attribute.JdbcFieldDefinition;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.util.Maps;
 
 public class JdbcQueryIterator extends AbstractIterator<Record> implements
 RecordIterator {
+  /**
+   * Calculate the number of rows to fetch in each round trip so that each
+   * fetch returns approximately {@link #FETCH_BUFFER_SIZE} bytes.
+   *
+   * @param fields The fields in the query.
+   * @return The fetch size.
+   */
+  public static int getFetchSize(final List<FieldDefinition> fields) {
+    if (fields == null || fields.isEmpty()) {
+      return DEFAULT_FETCH_SIZE;
+    } else {
+      int rowWidth = 0;
+      for (final FieldDefinition field : fields) {
+        rowWidth += getFieldWidth(field);
+      }
+      final int fetchSize = FETCH_BUFFER_SIZE / rowWidth;
+      return Math.max(MIN_FETCH_SIZE, Math.min(MAX_FETCH_SIZE, fetchSize));
+    }
+  }
+
+  /**
+   * Estimate the number of bytes used to transfer the field's value.
+   */
+  private static int getFieldWidth(final FieldDefinition field) {
+    final DataType dataType = field.getType();
+    final Class<?> javaClass;
+    if (dataType == null) {
+      javaClass = Object.class;
+    } else {
+      javaClass = dataType.getJavaClass();
+    }
+    final int width;
+    if (Point.class.isAssignableFrom(javaClass)) {
+      width = 32;
+    } else if (Geometry.class.isAssignableFrom(javaClass)) {
+      width = 2048;
+    } else if (String.class.equals(javaClass)) {
+      final int length = field.getLength();
+      if (length > 0) {
+        width = Math.min(length, 1024);
+      } else {
+        width = 256;
+      }
+    } else if (Byte.class.equals(javaClass) || Boolean.class.equals(javaClass)) {
+      width = 1;
+    } else if (Short.class.equals(javaClass)) {
+      width = 2;
+    } else if (Integer.class.equals(javaClass) || Float.class.equals(javaClass)) {
+      width = 4;
+    } else if (Long.class.equals(javaClass) || Double.class.equals(javaClass)
+        || Date.class.isAssignableFrom(javaClass)) {
+      width = 8;
+    } else if (Number.class.isAssignableFrom(javaClass)) {
+      width = 16;
+    } else {
+      width = 64;
+    }
+    return width + 4;
+  }
 
   public static Record getNextObject(final JdbcRecordStore recordStore,
     final RecordDefinition recordDefinition,
@@ -62,6 +128,16 @@ RecordIterator {
     return statement.executeQuery();
   }
 
+  public static final int DEFAULT_FETCH_SIZE = 100;
+
+  public static final int FETCH_BUFFER_SIZE = 1024 * 1024;
+
+  private static final Logger LOG = Logger.getLogger(JdbcQueryIterator.class);
+
+  public static final int MAX_FETCH_SIZE = 10000;
+
+  public static final int MIN_FETCH_SIZE = 10;
+
   private JdbcConnection connection;
 
   private final int currentQueryIndex = -1;
@@ -70,7 +146,28 @@ RecordIterator {
 
   private JdbcRecordStore recordStore;
 
-  private final int fetchSize = 10;
+  private int fetchSize;
+
+  private boolean adaptiveFetchSize;
+
+  /** The number of rows left from the last fetch, -1 if all rows were read. */
+  private long fetchRowsRemaining;
+
+  private boolean streamingResults;
+
+  private boolean streamingTransaction;
+
+  private boolean readOnlyChanged;
+
+  private long rowCount;
+
+  private long fetchCount;
+
+  private long fetchTime;
+
+  private long startTime;
+
+  private long endTime;
 
   private RecordDefinition recordDefinition;
 
@@ -102,12 +199,54 @@ RecordIterator {
     if (this.statistics == null) {
       this.statistics = (Statistics)properties.get(Statistics.class.getName());
     }
+    final Map<String, Object> queryProperties = query.getProperties();
+    this.fetchSize = Maps.getInteger(queryProperties, "fetchSize",
+      recordStore.getFetchSize());
+    this.adaptiveFetchSize = this.fetchSize <= 0;
+    final Boolean streamingResults = Maps.getBoolean(queryProperties,
+      "streamingResults");
+    if (streamingResults == null) {
+      this.streamingResults = recordStore.isStreamingResults();
+    } else {
+      this.streamingResults = streamingResults;
+    }
+  }
+
+  /**
+   * Add the row count, fetch count, fetch time (ms) and rows per second to the
+   * statistics, prefixed by the type path.
+   */
+  private void addStatistics() {
+    final Statistics statistics = this.statistics;
+    if (statistics != null && this.fetchCount > 0) {
+      String typePath = null;
+      if (this.recordDefinition != null) {
+        typePath = this.recordDefinition.getPath();
+      } else if (this.query != null) {
+        typePath = this.query.getTypeName();
+      }
+      final String prefix;
+      if (typePath == null) {
+        prefix = "";
+      } else {
+        prefix = typePath + " ";
+      }
+      statistics.add(prefix + "rowCount", this.rowCount);
+      statistics.add(prefix + "fetchCount", this.fetchCount);
+      statistics.add(prefix + "fetchTime", getFetchTime());
+      statistics.add(prefix + "rowsPerSecond", Math.round(getRowsPerSecond()));
+    }
   }
 
   @Override
   @PreDestroy
   public void doClose() {
+    if (this.endTime == 0) {
+      this.endTime = System.nanoTime();
+    }
     JdbcUtils.close(this.statement, this.resultSet);
+    endStreaming();
+    addStatistics();
     FileUtil.closeSilent(this.connection);
     this.attributes = null;
     this.connection = null;
@@ -126,6 +265,64 @@ RecordIterator {
     this.resultSet = getResultSet();
   }
 
+  /**
+   * End the read only transaction used to stream the results and restore the
+   * connection's previous auto commit and read only settings. Each setting is
+   * restored even if the previous step fails, so the connection isn't left in
+   * a transaction or read only.
+   */
+  private void endStreaming() {
+    final JdbcConnection connection = this.connection;
+    if (connection != null && this.streamingTransaction) {
+      this.streamingTransaction = false;
+      try {
+        connection.rollback();
+      } catch (final SQLException e) {
+        LOG.error("Unable to rollback streaming transaction", e);
+      }
+      try {
+        connection.setAutoCommit(true);
+      } catch (final SQLException e) {
+        LOG.error("Unable to restore auto commit", e);
+      }
+      if (this.readOnlyChanged) {
+        this.readOnlyChanged = false;
+        try {
+          connection.setReadOnly(false);
+        } catch (final SQLException e) {
+          LOG.error("Unable to restore read only", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of round trips made to the database to fetch the rows,
+   * including the execution of the query. A round trip is counted each time
+   * all the rows returned by the previous fetch have been read. If the
+   * database returns all the rows when the query is executed (e.g. PostgreSQL
+   * outside of a transaction) this is 1.
+   *
+   * @return The number of fetches.
+   */
+  public long getFetchCount() {
+    return this.fetchCount;
+  }
+
+  public int getFetchSize() {
+    return this.fetchSize;
+  }
+
+  /**
+   * Get the time spent executing the query and reading rows from the result
+   * set, including the time waiting for the database to return each fetch.
+   *
+   * @return The time in milliseconds.
+   */
+  public long getFetchTime() {
+    return this.fetchTime / 1000000;
+  }
+
   protected String getErrorMessage() {
     if (this.queries == null) {
       return null;
@@ -137,7 +334,7 @@ RecordIterator {
   @Override
   protected Record getNext() throws NoSuchElementException {
     try {
-      if (this.resultSet != null && this.resultSet.next()) {
+      if (this.resultSet != null && nextRow()) {
         final Record object = getNextObject(this.recordStore,
           this.recordDefinition, this.attributes, this.recordFactory,
           this.resultSet);
@@ -173,6 +370,33 @@ RecordIterator {
     return this.recordStore;
   }
 
+  public long getRowCount() {
+    return this.rowCount;
+  }
+
+  /**
+   * Get the number of rows read per second from when the first row was read
+   * until the iterator was closed.
+   *
+   * @return The rows per second.
+   */
+  public double getRowsPerSecond() {
+    if (this.rowCount == 0) {
+      return 0;
+    } else {
+      long endTime = this.endTime;
+      if (endTime == 0) {
+        endTime = System.nanoTime();
+      }
+      final long time = endTime - this.startTime;
+      if (time <= 0) {
+        return 0;
+      } else {
+        return this.rowCount * 1000000000.0 / time;
+      }
+    }
+  }
+
   protected ResultSet getResultSet() {
     final String tableName = this.query.getTypeName();
     this.recordDefinition = this.query.getRecordDefinition();
@@ -184,11 +408,30 @@ RecordIterator {
     }
     final String sql = getSql(this.query);
     try {
-      this.statement = this.connection.prepareStatement(sql);
+      if (this.streamingResults) {
+        startStreaming();
+      }
+      this.statement = this.connection.prepareStatement(sql,
+        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      if (this.adaptiveFetchSize) {
+        if (this.recordDefinition == null) {
+          this.fetchSize = DEFAULT_FETCH_SIZE;
+        } else {
+          this.fetchSize = getFetchSize(this.recordDefinition.getFields());
+        }
+      }
       this.statement.setFetchSize(this.fetchSize);
 
+      final long time = System.nanoTime();
       this.resultSet = getResultSet(this.recordDefinition, this.statement,
         this.query);
+      this.fetchTime += System.nanoTime() - time;
+      this.fetchCount = 1;
+      if (this.fetchSize > 0 && isFetchInBatches(this.connection)) {
+        this.fetchRowsRemaining = this.fetchSize;
+      } else {
+        this.fetchRowsRemaining = -1;
+      }
       final ResultSetMetaData resultSetMetaData = this.resultSet.getMetaData();
 
       if (this.recordDefinition == null) {
@@ -212,6 +455,14 @@ RecordIterator {
         }
       }
 
+      if (this.adaptiveFetchSize) {
+        final int fetchSize = getFetchSize(this.attributes);
+        if (fetchSize != this.fetchSize) {
+          this.fetchSize = fetchSize;
+          this.resultSet.setFetchSize(fetchSize);
+        }
+      }
+
       final String typePath = this.query.getTypeNameAlias();
       if (typePath != null) {
         final RecordDefinitionImpl newRecordDefinition = ((RecordDefinitionImpl)this.recordDefinition).rename(typePath);
@@ -228,8 +479,70 @@ RecordIterator {
     return JdbcUtils.getSelectSql(query);
   }
 
+  /**
+   * Check if the driver fetches the rows in batches of the fetch size on the
+   * connection, instead of returning all the rows when the query is executed.
+   *
+   * @param connection The connection used for the query.
+   * @return True if the rows are fetched in batches.
+   */
+  protected boolean isFetchInBatches(final JdbcConnection connection)
+    throws SQLException {
+    return true;
+  }
+
+  private boolean nextRow() throws SQLException {
+    final long time = System.nanoTime();
+    if (this.rowCount == 0) {
+      this.startTime = time;
+    }
+    if (this.fetchRowsRemaining == 0) {
+      this.fetchCount++;
+      this.fetchRowsRemaining = Math.max(1, this.fetchSize);
+    }
+    final boolean hasNext = this.resultSet.next();
+    this.fetchTime += System.nanoTime() - time;
+    if (hasNext) {
+      this.rowCount++;
+      if (this.fetchRowsRemaining > 0) {
+        this.fetchRowsRemaining--;
+      }
+    }
+    return hasNext;
+  }
+
   protected void setQuery(final Query query) {
     this.query = query;
   }
 
+  /**
+   * Start a read only transaction so that databases such as PostgreSQL use a
+   * server side cursor and fetch the rows in batches of the fetch size instead
+   * of reading the whole result set into memory. The connection is set to
+   * read only before the transaction is started, as PostgreSQL doesn't allow
+   * it to be changed in a transaction.
+   */
+  protected void startStreaming() throws SQLException {
+    final JdbcConnection connection = this.connection;
+    if (connection.getAutoCommit()) {
+      if (!connection.isReadOnly()) {
+        try {
+          connection.setReadOnly(true);
+          this.readOnlyChanged = true;
+        } catch (final SQLException e) {
+          LOG.debug("Unable to set connection read only, streaming the results"
+            + " in a read write transaction", e);
+        }
+      }
+      connection.setAutoCommit(false);
+      this.streamingTransaction = true;
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.query + " (rows=" + this.rowCount + ", fetchSize="
+        + this.fetchSize + ", fetches=" + this.fetchCount + ")";
+  }
+
 }
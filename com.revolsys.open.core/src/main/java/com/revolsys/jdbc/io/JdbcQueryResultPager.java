@@ -11,11 +11,13 @@ import javax.annotation.PreDestroy;
 
 import com.revolsys.collection.ResultPager;
 import com.revolsys.converter.string.BooleanStringConverter;
+import com.revolsys.data.query.KeysetPageIndex;
 import com.revolsys.data.query.Query;
 import com.revolsys.data.record.Record;
 import com.revolsys.data.record.RecordFactory;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.io.FileUtil;
+import com.revolsys.io.Reader;
 import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.JdbcUtils;
 
@@ -51,6 +53,8 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
 
   private final String sql;
 
+  private KeysetPageIndex pageIndex;
+
   public JdbcQueryResultPager(final JdbcRecordStore recordStore,
     final Map<String, Object> properties, final Query query) {
     final boolean autoCommit = BooleanStringConverter.getBoolean(properties.get("autoCommit"));
@@ -80,6 +84,7 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     this.recordStore = null;
     this.recordDefinition = null;
     this.results = null;
+    this.pageIndex = null;
     this.resultSet = null;
     this.statement = null;
   }
@@ -168,6 +173,32 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     return this.pageSize;
   }
 
+  /**
+   * Get the query for the current page. If the query can be ordered by the id
+   * fields the page query starts after the key of the nearest checkpoint
+   * instead of using an offset from the first record. The checkpoints are
+   * loaded using a query for only the key fields the first time a page far
+   * from the loaded checkpoints is requested.
+   *
+   * @return The query for the current page.
+   */
+  protected Query getPageQuery() {
+    synchronized (this) {
+      if (this.pageIndex == null) {
+        this.pageIndex = new KeysetPageIndex(this.recordDefinition,
+          this.query.getOrderBy(), this.pageSize);
+      }
+      if (this.pageIndex.isKeyScanRequired(this.query, this.pageNumber)) {
+        final Query keyQuery = this.pageIndex.getKeyQuery(this.query);
+        try (
+          Reader<Record> reader = this.recordStore.query(keyQuery)) {
+          this.pageIndex.setKeyRecords(reader);
+        }
+      }
+      return this.pageIndex.getPageQuery(this.query, this.pageNumber);
+    }
+  }
+
   /**
    * Get the page number of the previous page.
    *
@@ -302,11 +333,25 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
     } else {
       this.pageNumber = pageNumber - 1;
     }
-    this.pageSize = pageSize;
+    setPageSizeInternal(pageSize);
     updateNumPages();
     updateResults();
   }
 
+  /**
+   * Save the records loaded for the current page so the keys can be used to
+   * query the following pages.
+   *
+   * @param records The records in the current page.
+   */
+  protected void setPageRecords(final List<Record> records) {
+    synchronized (this) {
+      if (this.pageIndex != null) {
+        this.pageIndex.setPageRecords(this.pageNumber, records);
+      }
+    }
+  }
+
   /**
    * Set the number of objects per page.
    *
@@ -314,11 +359,20 @@ public class JdbcQueryResultPager implements ResultPager<Record> {
    */
   @Override
   public void setPageSize(final int pageSize) {
-    this.pageSize = pageSize;
+    setPageSizeInternal(pageSize);
     updateNumPages();
     updateResults();
   }
 
+  private void setPageSizeInternal(final int pageSize) {
+    synchronized (this) {
+      if (pageSize != this.pageSize) {
+        this.pageSize = pageSize;
+        this.pageIndex = null;
+      }
+    }
+  }
+
   protected void setResults(final List<Record> results) {
     this.results = results;
   }
@@ -21,6 +21,8 @@ public interface JdbcRecordStore extends RecordStore {
 
   String getDatabaseTableName(final String typePath);
 
+  int getFetchSize();
+
   String getGeneratePrimaryKeySql(RecordDefinition recordDefinition);
 
   JdbcConnection getJdbcConnection();
@@ -43,6 +45,8 @@ public interface JdbcRecordStore extends RecordStore {
   @Override
   void initialize();
 
+  boolean isStreamingResults();
+
   @Override
   void setLabel(String label);
 }
@@ -43,6 +43,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.revolsys.collection.IntHashMap;
 import com.revolsys.data.types.DataType;
@@ -53,6 +54,7 @@ import com.revolsys.gis.cs.ProjectedCoordinateSystem;
 import com.revolsys.gis.cs.epsg.EpsgCoordinateSystems;
 import com.revolsys.gis.cs.esri.EsriCoordinateSystems;
 import com.revolsys.gis.cs.projection.CoordinatesOperation;
+import com.revolsys.gis.cs.projection.CopyOperation;
 import com.revolsys.gis.cs.projection.ProjectionFactory;
 import com.revolsys.gis.model.coordinates.list.CoordinatesListUtil;
 import com.revolsys.io.map.MapSerializer;
@@ -361,10 +363,16 @@ public class GeometryFactory implements Serializable, MapSerializer {
 
   private static IntHashMap<IntHashMap<List<GeometryFactory>>> factoriesBySrid = new IntHashMap<>();
 
+  /** Marker in {@link #coordinatesOperations} for no conversion. */
+  private static final CoordinatesOperation NULL_OPERATION = new CopyOperation();
+
   private final CoordinateSystem coordinateSystem;
 
   private int axisCount = 2;
 
+  /** The cached operations to convert to other geometry factories. */
+  private transient volatile Map<GeometryFactory, CoordinatesOperation> coordinatesOperations;
+
   private final int srid;
 
   private final WktParser parser = new WktParser(this);
@@ -802,16 +810,34 @@ public class GeometryFactory implements Serializable, MapSerializer {
 
   /**
    * <p>Get the {@link CoordinatesOperation} to convert between this factory's and the other factory's
-   * {@link CoordinateSystem}.</p>
+   * {@link CoordinateSystem}. The operation is cached for each target geometry factory.</p>
    *
    * @author Paul Austin <paul.austin@revolsys.com>
    * @param geometryFactory The geometry factory to convert to.
    * @return The coordinates operation or null if no conversion is available.
    */
   public CoordinatesOperation getCoordinatesOperation(final GeometryFactory geometryFactory) {
-    final CoordinateSystem coordinateSystem = getCoordinateSystem();
-    final CoordinateSystem otherCoordinateSystem = geometryFactory.getCoordinateSystem();
-    return ProjectionFactory.getCoordinatesOperation(coordinateSystem, otherCoordinateSystem);
+    Map<GeometryFactory, CoordinatesOperation> coordinatesOperations = this.coordinatesOperations;
+    if (coordinatesOperations == null) {
+      coordinatesOperations = new ConcurrentHashMap<>();
+      this.coordinatesOperations = coordinatesOperations;
+    }
+    CoordinatesOperation operation = coordinatesOperations.get(geometryFactory);
+    if (operation == null) {
+      final CoordinateSystem coordinateSystem = getCoordinateSystem();
+      final CoordinateSystem otherCoordinateSystem = geometryFactory.getCoordinateSystem();
+      operation = ProjectionFactory.getCoordinatesOperation(coordinateSystem,
+        otherCoordinateSystem);
+      if (operation == null) {
+        operation = NULL_OPERATION;
+      }
+      coordinatesOperations.put(geometryFactory, operation);
+    }
+    if (operation == NULL_OPERATION) {
+      return null;
+    } else {
+      return operation;
+    }
   }
 
   public CoordinateSystem getCoordinateSystem() {
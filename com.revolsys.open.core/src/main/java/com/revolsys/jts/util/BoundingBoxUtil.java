@@ -19,7 +19,7 @@ public class BoundingBoxUtil {
       final double coordinate = bounds[axisIndex];
       if (!MathUtil.isNanOrInfinite(coordinate)) {
         newBounds[axisIndex] = coordinate;
-        newBounds[axisCount + axisCount] = coordinate;
+        newBounds[axisCount + axisIndex] = coordinate;
       }
     }
     return newBounds;
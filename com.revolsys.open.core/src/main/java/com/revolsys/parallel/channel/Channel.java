@@ -1,17 +1,19 @@
 package com.revolsys.parallel.channel;
 
 import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
 
 import com.revolsys.parallel.ThreadInterruptedException;
 import com.revolsys.parallel.ThreadUtil;
+import com.revolsys.parallel.channel.store.RingBuffer;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
 public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** The Alternative class which will control the selection */
-  protected MultiInputSelector alt;
+  protected volatile MultiInputSelector alt;
 
   /** Flag indicating if the channel has been closed. */
-  private boolean closed = false;
+  private volatile boolean closed = false;
 
   /** The ChannelValueStore used to store the data for the Channel */
   protected ChannelValueStore<T> data;
@@ -31,8 +33,14 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   /** The monitor reads must synchronize on */
   protected Object readMonitor = new Object();
 
+  /**
+   * The data if it is a RingBuffer, reads and writes use the RingBuffer
+   * directly instead of synchronizing on the monitors.
+   */
+  private final RingBuffer<T> ringBuffer;
+
   /** Flag indicating if the channel is closed for writing. */
-  private boolean writeClosed;
+  private volatile boolean writeClosed;
 
   /** The monitor writes must synchronize on */
   protected Object writeMonitor = new Object();
@@ -51,6 +59,7 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   public Channel(final ChannelValueStore<T> data) {
     this.data = data;
+    this.ringBuffer = getRingBuffer(data);
   }
 
   public Channel(final String name) {
@@ -61,10 +70,14 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
   public Channel(final String name, final ChannelValueStore<T> data) {
     this.name = name;
     this.data = data;
+    this.ringBuffer = getRingBuffer(data);
   }
 
   public void close() {
     this.closed = true;
+    if (this.ringBuffer != null) {
+      this.ringBuffer.signalAll();
+    }
   }
 
   @Override
@@ -75,6 +88,15 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
 
   @Override
   public boolean enable(final MultiInputSelector alt) {
+    if (this.ringBuffer != null) {
+      this.alt = alt;
+      if (this.data.getState() == ChannelValueStore.EMPTY) {
+        return false;
+      } else {
+        this.alt = null;
+        return true;
+      }
+    }
     synchronized (this.monitor) {
       if (this.data.getState() == ChannelValueStore.EMPTY) {
         this.alt = alt;
@@ -89,6 +111,14 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     return this.name;
   }
 
+  private RingBuffer<T> getRingBuffer(final ChannelValueStore<T> data) {
+    if (data instanceof RingBuffer) {
+      return (RingBuffer<T>)data;
+    } else {
+      return null;
+    }
+  }
+
   @Override
   public boolean isClosed() {
     if (!this.closed) {
@@ -130,6 +160,9 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public T read(final long timeout) {
+    if (this.ringBuffer != null) {
+      return readRingBuffer(timeout);
+    }
     synchronized (this.readMonitor) {
       synchronized (this.monitor) {
         if (isClosed()) {
@@ -184,6 +217,30 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
     }
   }
 
+  private T readRingBuffer(final long timeout) {
+    final RingBuffer<T> ringBuffer = this.ringBuffer;
+    long deadline = 0;
+    if (timeout > 0) {
+      deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+    while (true) {
+      if (isClosed()) {
+        throw new ClosedException();
+      }
+      final T value = ringBuffer.poll();
+      if (value != null) {
+        return value;
+      } else if (deadline > 0 && System.nanoTime() - deadline >= 0) {
+        return null;
+      }
+      ringBuffer.awaitNotEmpty(deadline);
+      if (Thread.interrupted()) {
+        close();
+        throw new ClosedException();
+      }
+    }
+  }
+
   @Override
   public String toString() {
     if (this.name == null) {
@@ -202,6 +259,10 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
    */
   @Override
   public void write(final T value) {
+    if (this.ringBuffer != null) {
+      writeRingBuffer(value);
+      return;
+    }
     synchronized (this.writeMonitor) {
       synchronized (this.monitor) {
         if (this.closed) {
@@ -255,9 +316,32 @@ public class Channel<T> implements SelectableChannelInput<T>, ChannelOutput<T> {
           } else {
             this.monitor.notifyAll();
           }
+          if (this.ringBuffer != null) {
+            this.ringBuffer.signalAll();
+          }
         }
       }
 
     }
   }
+
+  private void writeRingBuffer(final T value) {
+    final RingBuffer<T> ringBuffer = this.ringBuffer;
+    while (true) {
+      if (this.closed) {
+        throw new ClosedException();
+      } else if (ringBuffer.offer(value)) {
+        final MultiInputSelector tempAlt = this.alt;
+        if (tempAlt != null) {
+          tempAlt.schedule();
+        }
+        return;
+      }
+      ringBuffer.awaitNotFull();
+      if (Thread.interrupted()) {
+        close();
+        throw new ClosedException();
+      }
+    }
+  }
 }
@@ -3,6 +3,7 @@ package com.revolsys.parallel.channel;
 import org.springframework.beans.factory.BeanNameAware;
 
 import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.RingBuffer;
 import com.revolsys.spring.config.SetBeanProperties;
 
 public class SetBeanChannelProperty<T> extends SetBeanProperties implements
@@ -15,6 +16,8 @@ BeanNameAware {
 
   private String outBeanName;
 
+  private boolean ringBuffer;
+
   @Override
   public void afterPropertiesSet() throws Exception {
     if (this.outBeanName != null) {
@@ -31,7 +34,14 @@ BeanNameAware {
           this.name = getBeanPropertyNames().toString();
         }
         final Channel<T> channel;
-        if (this.bufferSize > 0) {
+        if (this.ringBuffer) {
+          if (this.bufferSize > 0) {
+            channel = new Channel<T>(this.name, new RingBuffer<T>(
+              this.bufferSize));
+          } else {
+            channel = new Channel<T>(this.name, new RingBuffer<T>());
+          }
+        } else if (this.bufferSize > 0) {
           channel = new Channel<T>(this.name, new Buffer<T>(this.bufferSize));
         } else {
           channel = new Channel<T>(this.name);
@@ -58,6 +68,10 @@ BeanNameAware {
     return this.outBeanName;
   }
 
+  public boolean isRingBuffer() {
+    return this.ringBuffer;
+  }
+
   @Override
   public void setBeanName(final String name) {
     this.name = name;
@@ -79,4 +93,12 @@ BeanNameAware {
   public void setOutBeanName(final String outBeanName) {
     this.outBeanName = outBeanName;
   }
+
+  /**
+   * @param ringBuffer True if the channel should use a {@link RingBuffer}
+   * instead of a {@link Buffer}.
+   */
+  public void setRingBuffer(final boolean ringBuffer) {
+    this.ringBuffer = ringBuffer;
+  }
 }
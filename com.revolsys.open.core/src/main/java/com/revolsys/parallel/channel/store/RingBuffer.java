@@ -0,0 +1,314 @@
+package com.revolsys.parallel.channel.store;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import com.revolsys.parallel.channel.ChannelValueStore;
+
+/**
+ * <h2>Description</h2>
+ * <p>
+ * The RingBuffer class is an implementation of ChannelValueStore which stores
+ * up to a fixed number of Objects in a pre-allocated array. Writers and readers
+ * claim slots using compare and set on the head and tail counters and each
+ * slot has a sequence number used to publish the value, so any number of
+ * writers and readers can use the buffer without locks.
+ * </p>
+ * <p>
+ * A {@link com.revolsys.parallel.channel.Channel} using a RingBuffer doesn't
+ * synchronize on the channel monitors for reads and writes. A reader or writer
+ * that can't continue spins for a short time before parking until the other
+ * side signals it. Every parked reader and writer is signalled so there can be
+ * any number of waiting readers and writers.
+ * </p>
+ * <p>
+ * The getState method will return EMPTY if the Channel does not contain any
+ * Objects, FULL if it cannot accept more data and NONEMPTYFULL otherwise. Null
+ * values cannot be stored in a RingBuffer.
+ * </p>
+ */
+public class RingBuffer<T> extends ChannelValueStore<T> {
+  /**
+   * The maximum time to park before checking the state again, so a thread
+   * that starts waiting just after the channel was closed sees it is closed.
+   */
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private static final int SPIN_COUNT = 1000;
+
+  private static final int YIELD_COUNT = 10;
+
+  private final Object[] buffer;
+
+  private final int capacity;
+
+  /** The sequence number of the next value to read. */
+  private final AtomicLong head = new AtomicLong();
+
+  private final int mask;
+
+  /** The sequence number of each slot used to publish the values. */
+  private final AtomicLongArray sequences;
+
+  /** The sequence number of the next value to write. */
+  private final AtomicLong tail = new AtomicLong();
+
+  /** The readers waiting for a value to be written. */
+  private final Queue<Thread> waitingReaders = new ConcurrentLinkedQueue<>();
+
+  /** The writers waiting for a value to be read. */
+  private final Queue<Thread> waitingWriters = new ConcurrentLinkedQueue<>();
+
+  public RingBuffer() {
+    this(1024);
+  }
+
+  /**
+   * Construct a new RingBuffer with the specified size.
+   *
+   * @param size The minimum number of Objects the RingBuffer can store. The
+   * capacity is rounded up to the next power of 2.
+   */
+  public RingBuffer(final int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Size must be > 0 not " + size);
+    }
+    int capacity = 1;
+    while (capacity < size) {
+      capacity <<= 1;
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.buffer = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      this.sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Wait for a value to be written. Spin for a short time then park until a
+   * writer signals, the deadline passes or the wait times out.
+   *
+   * @param deadline The {@link System#nanoTime()} to stop waiting at or 0 to
+   * wait until signalled.
+   */
+  public void awaitNotEmpty(final long deadline) {
+    for (int i = 0; i < SPIN_COUNT + YIELD_COUNT; i++) {
+      if (isReadable()) {
+        return;
+      } else if (i >= SPIN_COUNT) {
+        Thread.yield();
+      }
+    }
+    final Thread thread = Thread.currentThread();
+    this.waitingReaders.add(thread);
+    try {
+      // Check again after adding the thread so a write can't be missed
+      if (!isReadable()) {
+        park(deadline);
+      }
+    } finally {
+      this.waitingReaders.remove(thread);
+    }
+  }
+
+  /**
+   * Wait for space for a value to be available. Spin for a short time then park
+   * until a reader signals.
+   */
+  public void awaitNotFull() {
+    for (int i = 0; i < SPIN_COUNT + YIELD_COUNT; i++) {
+      if (isWritable()) {
+        return;
+      } else if (i >= SPIN_COUNT) {
+        Thread.yield();
+      }
+    }
+    final Thread thread = Thread.currentThread();
+    this.waitingWriters.add(thread);
+    try {
+      // Check again after adding the thread so a read can't be missed
+      if (!isWritable()) {
+        park(0);
+      }
+    } finally {
+      this.waitingWriters.remove(thread);
+    }
+  }
+
+  /**
+   * Returns a new Object with the same creation parameters as this Object.
+   * <I>NOTE: Only the sizes of the data should be cloned not the stored
+   * data.</I>
+   *
+   * @return The cloned instance of this Object.
+   */
+  @Override
+  protected Object clone() {
+    return new RingBuffer<T>(this.capacity);
+  }
+
+  /**
+   * Returns the first Object from the RingBuffer and removes the Object from
+   * the RingBuffer.
+   * <P>
+   * Pre-condition: The state must not be EMPTY
+   *
+   * @return The next available Object from the RingBuffer
+   */
+  @Override
+  protected T get() {
+    return poll();
+  }
+
+  public int getCapacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Returns the current state of the RingBuffer.
+   *
+   * @return The current state of the RingBuffer (EMPTY, NONEMPTYFULL or FULL)
+   */
+  @Override
+  protected int getState() {
+    final long head = this.head.get();
+    final long tail = this.tail.get();
+    if (tail <= head) {
+      return EMPTY;
+    } else if (tail - head >= this.capacity) {
+      return FULL;
+    } else {
+      return NONEMPTYFULL;
+    }
+  }
+
+  private boolean isReadable() {
+    final long head = this.head.get();
+    return this.sequences.get((int)head & this.mask) == head + 1;
+  }
+
+  private boolean isWritable() {
+    final long tail = this.tail.get();
+    return this.sequences.get((int)tail & this.mask) == tail;
+  }
+
+  /**
+   * Add the value to the RingBuffer if there is space.
+   *
+   * @param value The value to add.
+   * @return True if the value was added, false if the RingBuffer is full.
+   */
+  public boolean offer(final T value) {
+    if (value == null) {
+      throw new NullPointerException("Cannot write a null value to a RingBuffer");
+    }
+    long position = this.tail.get();
+    while (true) {
+      final int index = (int)position & this.mask;
+      final long sequence = this.sequences.get(index);
+      if (sequence == position) {
+        if (this.tail.compareAndSet(position, position + 1)) {
+          this.buffer[index] = value;
+          this.sequences.set(index, position + 1);
+          signal(this.waitingReaders);
+          return true;
+        }
+      } else if (sequence < position) {
+        return false;
+      }
+      position = this.tail.get();
+    }
+  }
+
+  private void park(final long deadline) {
+    long parkNanos = MAX_PARK_NANOS;
+    if (deadline > 0) {
+      parkNanos = Math.min(parkNanos, deadline - System.nanoTime());
+    }
+    if (parkNanos > 0) {
+      LockSupport.parkNanos(this, parkNanos);
+    }
+  }
+
+  /**
+   * Remove and return the first value from the RingBuffer.
+   *
+   * @return The value or null if the RingBuffer is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    long position = this.head.get();
+    while (true) {
+      final int index = (int)position & this.mask;
+      final long sequence = this.sequences.get(index);
+      if (sequence == position + 1) {
+        if (this.head.compareAndSet(position, position + 1)) {
+          final T value = (T)this.buffer[index];
+          this.buffer[index] = null;
+          this.sequences.set(index, position + this.capacity);
+          signal(this.waitingWriters);
+          return value;
+        }
+      } else if (sequence < position + 1) {
+        return null;
+      }
+      position = this.head.get();
+    }
+  }
+
+  /**
+   * Puts a new Object into the RingBuffer.
+   * <P>
+   * Pre-condition: The state must not be FULL
+   *
+   * @param value The object to put in the RingBuffer
+   */
+  @Override
+  protected void put(final T value) {
+    offer(value);
+  }
+
+  /**
+   * Wake up all the waiting threads. Each thread checks the buffer again and
+   * waits again if it still can't continue.
+   *
+   * @param threads The waiting threads.
+   */
+  private void signal(final Queue<Thread> threads) {
+    if (!threads.isEmpty()) {
+      for (final Thread thread : threads) {
+        LockSupport.unpark(thread);
+      }
+    }
+  }
+
+  /**
+   * Wake up all the waiting readers and writers so they can check if the
+   * channel was closed.
+   */
+  public void signalAll() {
+    signal(this.waitingReaders);
+    signal(this.waitingWriters);
+  }
+
+  /**
+   * The number of items in the buffer.
+   *
+   * @return The number of items in the buffer.
+   */
+  public int size() {
+    final long size = this.tail.get() - this.head.get();
+    return (int)Math.max(0, Math.min(size, this.capacity));
+  }
+
+  @Override
+  public String toString() {
+    return "RingBuffer[size=" + size() + ", capacity=" + this.capacity + "]";
+  }
+}
@@ -6,6 +6,7 @@ import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ChannelValueStore;
 import com.revolsys.parallel.channel.ClosedException;
 import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.RingBuffer;
 import com.revolsys.parallel.channel.store.ZeroBuffer;
 
 public abstract class AbstractInOutProcess<I, O> extends AbstractProcess
@@ -15,10 +16,14 @@ implements InOutProcess<I, O> {
 
   private int inBufferSize = 0;
 
+  private boolean inRingBuffer = false;
+
   private Channel<O> out;
 
   private int outBufferSize = 0;
 
+  private boolean outRingBuffer = false;
+
   public AbstractInOutProcess() {
   }
 
@@ -28,7 +33,13 @@ implements InOutProcess<I, O> {
   }
 
   protected ChannelValueStore<I> createInValueStore() {
-    if (this.inBufferSize == 0) {
+    if (this.inRingBuffer) {
+      if (this.inBufferSize > 0) {
+        return new RingBuffer<I>(this.inBufferSize);
+      } else {
+        return new RingBuffer<I>();
+      }
+    } else if (this.inBufferSize == 0) {
       return new ZeroBuffer<I>();
     } else if (this.inBufferSize < 0) {
       return new Buffer<I>();
@@ -38,7 +49,13 @@ implements InOutProcess<I, O> {
   }
 
   protected ChannelValueStore<O> createOutValueStore() {
-    if (this.outBufferSize == 0) {
+    if (this.outRingBuffer) {
+      if (this.outBufferSize > 0) {
+        return new RingBuffer<O>(this.outBufferSize);
+      } else {
+        return new RingBuffer<O>();
+      }
+    } else if (this.outBufferSize == 0) {
       return new ZeroBuffer<O>();
     } else if (this.outBufferSize < 0) {
       return new Buffer<O>();
@@ -89,6 +106,14 @@ implements InOutProcess<I, O> {
   protected void init() {
   }
 
+  public boolean isInRingBuffer() {
+    return this.inRingBuffer;
+  }
+
+  public boolean isOutRingBuffer() {
+    return this.outRingBuffer;
+  }
+
   @Override
   public final void run() {
     boolean hasError = false;
@@ -133,6 +158,14 @@ implements InOutProcess<I, O> {
     this.inBufferSize = inBufferSize;
   }
 
+  /**
+   * @param inRingBuffer True if the in channel should use a {@link RingBuffer}
+   * instead of a {@link Buffer}.
+   */
+  public void setInRingBuffer(final boolean inRingBuffer) {
+    this.inRingBuffer = inRingBuffer;
+  }
+
   /**
    * @param out the out to set
    */
@@ -146,4 +179,12 @@ implements InOutProcess<I, O> {
     this.outBufferSize = outBufferSize;
   }
 
+  /**
+   * @param outRingBuffer True if the out channel should use a
+   * {@link RingBuffer} instead of a {@link Buffer}.
+   */
+  public void setOutRingBuffer(final boolean outRingBuffer) {
+    this.outRingBuffer = outRingBuffer;
+  }
+
 }
@@ -5,12 +5,15 @@ import org.apache.log4j.Logger;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ClosedException;
 import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.RingBuffer;
 
 public abstract class AbstractInProcess<T> extends AbstractProcess implements
 InProcess<T> {
 
   private int inBufferSize = 0;
 
+  private boolean inRingBuffer = false;
+
   private Channel<T> in;
 
   public AbstractInProcess() {
@@ -34,7 +37,13 @@ InProcess<T> {
   public Channel<T> getIn() {
     if (this.in == null) {
       final String channelName = getBeanName() + ".in";
-      if (this.inBufferSize == 0) {
+      if (this.inRingBuffer) {
+        if (this.inBufferSize > 0) {
+          setIn(new Channel<T>(channelName, new RingBuffer<T>(this.inBufferSize)));
+        } else {
+          setIn(new Channel<T>(channelName, new RingBuffer<T>()));
+        }
+      } else if (this.inBufferSize == 0) {
         setIn(new Channel<T>(channelName));
       } else {
         setIn(new Channel<T>(channelName, new Buffer<T>(this.inBufferSize)));
@@ -53,6 +62,10 @@ InProcess<T> {
   protected void init() {
   }
 
+  public boolean isInRingBuffer() {
+    return this.inRingBuffer;
+  }
+
   @Override
   public final void run() {
     final Logger log = Logger.getLogger(getClass());
@@ -92,4 +105,12 @@ InProcess<T> {
   public void setInBufferSize(final int inBufferSize) {
     this.inBufferSize = inBufferSize;
   }
+
+  /**
+   * @param inRingBuffer True if the in channel should use a {@link RingBuffer}
+   * instead of a {@link Buffer}.
+   */
+  public void setInRingBuffer(final boolean inRingBuffer) {
+    this.inRingBuffer = inRingBuffer;
+  }
 }
@@ -5,12 +5,15 @@ import org.apache.log4j.Logger;
 import com.revolsys.parallel.channel.Channel;
 import com.revolsys.parallel.channel.ClosedException;
 import com.revolsys.parallel.channel.store.Buffer;
+import com.revolsys.parallel.channel.store.RingBuffer;
 
 public abstract class AbstractOutProcess<T> extends AbstractProcess implements
 OutProcess<T> {
 
   private int outBufferSize = 0;
 
+  private boolean outRingBuffer = false;
+
   private Channel<T> out;
 
   public AbstractOutProcess() {
@@ -34,7 +37,16 @@ OutProcess<T> {
   public Channel<T> getOut() {
     if (this.out == null) {
       final String channelName = getBeanName() + ".out";
-      if (this.outBufferSize == 0) {
+      if (this.outRingBuffer) {
+        final RingBuffer<T> buffer;
+        if (this.outBufferSize > 0) {
+          buffer = new RingBuffer<T>(this.outBufferSize);
+        } else {
+          buffer = new RingBuffer<T>();
+        }
+        final Channel<T> channel = new Channel<T>(channelName, buffer);
+        setOut(channel);
+      } else if (this.outBufferSize == 0) {
         final Channel<T> channel = new Channel<T>(channelName);
         setOut(channel);
       } else {
@@ -53,6 +65,10 @@ OutProcess<T> {
   protected void init() {
   }
 
+  public boolean isOutRingBuffer() {
+    return this.outRingBuffer;
+  }
+
   @Override
   public final void run() {
     final Logger log = Logger.getLogger(getClass());
@@ -91,4 +107,12 @@ OutProcess<T> {
     this.outBufferSize = outBufferSize;
   }
 
+  /**
+   * @param outRingBuffer True if the out channel should use a
+   * {@link RingBuffer} instead of a {@link Buffer}.
+   */
+  public void setOutRingBuffer(final boolean outRingBuffer) {
+    this.outRingBuffer = outRingBuffer;
+  }
+
 }
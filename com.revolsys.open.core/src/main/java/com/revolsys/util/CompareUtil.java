@@ -15,8 +15,9 @@ public class CompareUtil {
     } else if (object2 == null) {
       return 1;
     } else {
-      if (object1 instanceof Number) {
-        object2 = StringConverterRegistry.toObject(object1.getClass(), object2);
+      final Class<?> class1 = object1.getClass();
+      if (object1 instanceof Number && class1 != object2.getClass()) {
+        object2 = StringConverterRegistry.toObject(class1, object2);
       }
       return object1.compareTo(object2);
     }
@@ -41,8 +42,9 @@ public class CompareUtil {
         return -1;
       }
     } else {
-      if (object1 instanceof Number) {
-        object2 = StringConverterRegistry.toObject(object1.getClass(), object2);
+      final Class<?> class1 = object1.getClass();
+      if (object1 instanceof Number && class1 != object2.getClass()) {
+        object2 = StringConverterRegistry.toObject(class1, object2);
       }
       return object1.compareTo(object2);
     }
@@ -73,8 +75,9 @@ public class CompareUtil {
     } else if (object2 == null) {
       return 1;
     } else if (object1 instanceof Comparable) {
-      if (object1 instanceof Number) {
-        object2 = StringConverterRegistry.toObject(object1.getClass(), object2);
+      final Class<?> class1 = object1.getClass();
+      if (object1 instanceof Number && class1 != object2.getClass()) {
+        object2 = StringConverterRegistry.toObject(class1, object2);
       }
       @SuppressWarnings("unchecked")
       final Comparable<Object> comparable = (Comparable<Object>)object1;
@@ -0,0 +1,283 @@
+package com.revolsys.collection.bplus;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.util.comparator.ComparableComparator;
+
+import com.revolsys.io.page.FilePageManager;
+import com.revolsys.io.page.IntArrayPageValueManager;
+import com.revolsys.io.page.LineStringPageValueManager;
+import com.revolsys.io.page.MemoryPageManager;
+import com.revolsys.io.page.Page;
+import com.revolsys.io.page.PageManager;
+import com.revolsys.io.page.PageValueManager;
+import com.revolsys.io.page.PointPageValueManager;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.impl.PointDouble;
+
+/**
+ * Check the put, replace, remove and iteration of {@link BPlusTreeMap}s with
+ * enough keys for several levels of pages and values that are larger than a
+ * page, and the round trip of the binary page value managers.
+ */
+public class BPlusTreeMapTest {
+  /**
+   * A page manager that checks every page that is used is released, including
+   * the pages that are removed.
+   */
+  private static class CheckedPageManager implements PageManager {
+    private final PageManager pageManager;
+
+    private final Set<Integer> pagesInUse = new HashSet<>();
+
+    private final Set<Integer> pages = new HashSet<>();
+
+    public CheckedPageManager(final PageManager pageManager) {
+      this.pageManager = pageManager;
+    }
+
+    public void assertAllReleased() {
+      Assert.assertEquals("Pages in use", Collections.emptySet(),
+        this.pagesInUse);
+    }
+
+    @Override
+    public Page createPage() {
+      final Page page = this.pageManager.createPage();
+      final int index = page.getIndex();
+      this.pages.add(index);
+      Assert.assertTrue("Page created twice " + index,
+        this.pagesInUse.add(index));
+      return page;
+    }
+
+    @Override
+    public Page createTempPage() {
+      return this.pageManager.createTempPage();
+    }
+
+    @Override
+    public int getNumPages() {
+      return this.pageManager.getNumPages();
+    }
+
+    @Override
+    public Page getPage(final int index) {
+      Assert.assertTrue("Page was removed " + index, this.pages.contains(index));
+      Assert.assertTrue("Page is in use " + index, this.pagesInUse.add(index));
+      return this.pageManager.getPage(index);
+    }
+
+    public int getPageCount() {
+      return this.pages.size();
+    }
+
+    @Override
+    public int getPageSize() {
+      return this.pageManager.getPageSize();
+    }
+
+    @Override
+    public void releasePage(final Page page) {
+      this.pagesInUse.remove(page.getIndex());
+      this.pageManager.releasePage(page);
+    }
+
+    @Override
+    public void removePage(final Page page) {
+      this.pages.remove(page.getIndex());
+      this.pageManager.removePage(page);
+    }
+
+    @Override
+    public void write(final Page page) {
+      this.pageManager.write(page);
+    }
+  }
+
+  private static int[] createValue(final int key, final int version) {
+    // Large enough to need at least two data pages
+    final int[] value = new int[40 + key % 30];
+    for (int i = 0; i < value.length; i++) {
+      value[i] = key * 1000 + i * 100 - version;
+    }
+    return value;
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private void assertMap(final Map<Integer, int[]> expected,
+    final Map<Integer, int[]> map) {
+    Assert.assertEquals(expected.size(), map.size());
+    for (final Entry<Integer, int[]> entry : expected.entrySet()) {
+      final Integer key = entry.getKey();
+      Assert.assertArrayEquals("Key " + key, entry.getValue(), map.get(key));
+    }
+    final List<Integer> keys = new ArrayList<>(map.keySet());
+    Assert.assertEquals(new ArrayList<>(expected.keySet()), keys);
+
+    final Iterator<int[]> expectedValues = expected.values().iterator();
+    for (final int[] value : map.values()) {
+      Assert.assertArrayEquals(expectedValues.next(), value);
+    }
+    Assert.assertFalse(expectedValues.hasNext());
+  }
+
+  private void assertPutReplaceRemove(final PageManager pages) {
+    final CheckedPageManager checkedPages = new CheckedPageManager(pages);
+    final PageValueManager<int[]> valueManager = BPlusTreePageValueManager.create(
+      checkedPages, new IntArrayPageValueManager());
+    final BPlusTreeMap<Integer, int[]> map = new BPlusTreeMap<Integer, int[]>(
+      checkedPages, new ComparableComparator<Integer>(), PageValueManager.INT,
+      valueManager);
+    final Map<Integer, int[]> expected = new TreeMap<>();
+
+    final List<Integer> keys = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      keys.add(i);
+    }
+    Collections.shuffle(keys, new Random(1));
+    for (final Integer key : keys) {
+      final int[] value = createValue(key, 0);
+      Assert.assertNull(map.put(key, value));
+      expected.put(key, value);
+    }
+    checkedPages.assertAllReleased();
+    assertMap(expected, map);
+
+    // Replacing a value with one of the same size reuses the old data pages
+    final int pageCount = checkedPages.getPageCount();
+    for (int version = 1; version < 3; version++) {
+      for (final Integer key : keys) {
+        final int[] value = createValue(key, version);
+        Assert.assertArrayEquals(expected.get(key), map.put(key, value));
+        expected.put(key, value);
+      }
+      checkedPages.assertAllReleased();
+      Assert.assertEquals(pageCount, checkedPages.getPageCount());
+      assertMap(expected, map);
+    }
+
+    for (int i = 0; i < keys.size(); i += 3) {
+      final Integer key = keys.get(i);
+      Assert.assertArrayEquals(expected.remove(key), map.remove(key));
+      Assert.assertNull(map.remove(key));
+      Assert.assertNull(map.get(key));
+    }
+    checkedPages.assertAllReleased();
+    Assert.assertTrue(checkedPages.getPageCount() < pageCount);
+    assertMap(expected, map);
+
+    // Remove the rest then add them back
+    for (final Integer key : new ArrayList<>(expected.keySet())) {
+      Assert.assertArrayEquals(expected.remove(key), map.remove(key));
+    }
+    assertMap(expected, map);
+    for (final Integer key : keys) {
+      final int[] value = createValue(key, 3);
+      Assert.assertNull(map.put(key, value));
+      expected.put(key, value);
+    }
+    checkedPages.assertAllReleased();
+    assertMap(expected, map);
+  }
+
+  @Test
+  public void testFilePages() {
+    final File file = new File(this.folder.getRoot(), "test.pf");
+    assertPutReplaceRemove(new FilePageManager(file));
+  }
+
+  @Test
+  public void testLineStringValues() {
+    final GeometryFactory fixed = GeometryFactory.fixed(26910, 1000.0);
+    final GeometryFactory floating = GeometryFactory.floating(26910, 3);
+    final LineStringPageValueManager valueManager = new LineStringPageValueManager();
+    final List<LineString> lines = new ArrayList<>();
+    lines.add(fixed.lineString(2, 1000.001, 2000.002, 999.5, 2001, -10, -20));
+    lines.add(fixed.lineString(2, 0.0001, 0, 1, 1));
+    lines.add(floating.lineString(3, 0.1, 0.2, 0.3, 1e10, -1e-10, Double.NaN));
+    lines.add(floating.lineString());
+    for (final LineString line : lines) {
+      final byte[] bytes = valueManager.getBytes(line);
+      final LineString copy = valueManager.getValue(bytes);
+      Assert.assertSame(line.getGeometryFactory(), copy.getGeometryFactory());
+      Assert.assertEquals(line.getAxisCount(), copy.getAxisCount());
+      Assert.assertEquals(line.getVertexCount(), copy.getVertexCount());
+      for (int i = 0; i < line.getVertexCount(); i++) {
+        for (int axisIndex = 0; axisIndex < line.getAxisCount(); axisIndex++) {
+          Assert.assertEquals(line.getCoordinate(i, axisIndex),
+            copy.getCoordinate(i, axisIndex), 0);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testMemoryPages() {
+    assertPutReplaceRemove(new MemoryPageManager());
+  }
+
+  @Test
+  public void testIntArrayValues() {
+    final IntArrayPageValueManager valueManager = new IntArrayPageValueManager();
+    final int[][] values = {
+      {}, {
+        0
+      }, {
+        -1, 1, -64, 64, 8191, -8192
+      }, {
+        Integer.MIN_VALUE, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+        Integer.MIN_VALUE
+      }
+    };
+    for (final int[] value : values) {
+      final byte[] bytes = valueManager.getBytes(value);
+      final int[] copy = valueManager.getValue(bytes);
+      Assert.assertArrayEquals(value, copy);
+    }
+  }
+
+  @Test
+  public void testPointKeys() {
+    final Comparator<Point> comparator = new Comparator<Point>() {
+      @Override
+      public int compare(final Point point1, final Point point2) {
+        return point1.compareTo(point2);
+      }
+    };
+    final Map<Point, Integer> map = BPlusTreeMap.createInMemory(comparator,
+      new PointPageValueManager(), PageValueManager.INT);
+    final Map<Point, Integer> expected = new TreeMap<>();
+    for (int i = 0; i < 100; i++) {
+      final Point point = new PointDouble(i % 10 - 4.5, i / 10 * 0.1);
+      map.put(point, i);
+      expected.put(point, i);
+    }
+    Assert.assertEquals(expected.size(), map.size());
+    Assert.assertEquals(new ArrayList<>(expected.keySet()),
+      new ArrayList<>(map.keySet()));
+    Assert.assertEquals(new ArrayList<>(expected.values()),
+      new ArrayList<>(map.values()));
+    Assert.assertEquals(Integer.valueOf(55),
+      map.get(new PointDouble(0.5, 0.5)));
+  }
+}
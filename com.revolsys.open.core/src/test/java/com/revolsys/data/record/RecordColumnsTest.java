@@ -0,0 +1,306 @@
+package com.revolsys.data.record;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataTypes;
+
+/**
+ * Check the values of each type of column are read back as they were set,
+ * including nulls, values that don't fit the column's primitive type and rows
+ * in more than one block.
+ */
+public class RecordColumnsTest {
+  private static final int INT = 0;
+
+  private static final int SHORT = 1;
+
+  private static final int BYTE = 2;
+
+  private static final int LONG = 3;
+
+  private static final int DOUBLE = 4;
+
+  private static final int FLOAT = 5;
+
+  private static final int BOOLEAN = 6;
+
+  private static final int STRING = 7;
+
+  private static final int DECIMAL = 8;
+
+  private static final int BIG_DECIMAL = 9;
+
+  private static final int DATE = 10;
+
+  private final RecordDefinitionImpl recordDefinition;
+
+  private final RecordColumns columns;
+
+  public RecordColumnsTest() {
+    this.recordDefinition = new RecordDefinitionImpl("/Test");
+    this.recordDefinition.addField("INT", DataTypes.INT);
+    this.recordDefinition.addField("SHORT", DataTypes.SHORT);
+    this.recordDefinition.addField("BYTE", DataTypes.BYTE);
+    this.recordDefinition.addField("LONG", DataTypes.LONG);
+    this.recordDefinition.addField("DOUBLE", DataTypes.DOUBLE);
+    this.recordDefinition.addField("FLOAT", DataTypes.FLOAT);
+    this.recordDefinition.addField("BOOLEAN", DataTypes.BOOLEAN);
+    this.recordDefinition.addField("STRING", DataTypes.STRING);
+    this.recordDefinition.addField("DECIMAL", DataTypes.DECIMAL, 10, 2, false);
+    this.recordDefinition.addField("BIG_DECIMAL", DataTypes.DECIMAL);
+    this.recordDefinition.addField("DATE", DataTypes.DATE);
+    this.columns = new RecordColumns(this.recordDefinition);
+  }
+
+  private void assertValue(final int index, final Object value) {
+    assertValue(index, value, value);
+  }
+
+  /**
+   * Set the value in a new row and check the value read back has the expected
+   * value and class. Then set it to null in the same row.
+   */
+  private void assertValue(final int index, final Object value,
+    final Object expected) {
+    final int row = this.columns.addRow();
+    this.columns.setValue(row, index, value);
+    final Object actual = this.columns.getValue(row, index);
+    Assert.assertEquals(String.valueOf(value), expected, actual);
+    if (expected != null) {
+      Assert.assertEquals(expected.getClass(), actual.getClass());
+    }
+    this.columns.setValue(row, index, null);
+    Assert.assertNull(this.columns.getValue(row, index));
+  }
+
+  private Object getValue(final int row, final int index) {
+    return this.columns.getValue(row, index);
+  }
+
+  @Test
+  public void testBlocks() {
+    final int rowCount = 3 * 1024 + 5;
+    for (int i = 0; i < rowCount; i++) {
+      final int row = this.columns.addRow();
+      Assert.assertEquals(i, row);
+      this.columns.setInt(row, INT, i);
+      this.columns.setLong(row, LONG, i * 1000000000L);
+      this.columns.setDouble(row, DOUBLE, i / 4.0);
+      this.columns.setValue(row, BOOLEAN, i % 3 == 0);
+      this.columns.setValue(row, STRING, "S" + i % 10);
+      this.columns.setDecimal(row, DECIMAL, i, 2);
+      if (i % 7 == 0) {
+        this.columns.setValue(row, DATE, new Date(i));
+      }
+    }
+    Assert.assertEquals(rowCount, this.columns.getRowCount());
+    for (int row = 0; row < rowCount; row++) {
+      Assert.assertEquals(row, getValue(row, INT));
+      Assert.assertEquals(row * 1000000000L, getValue(row, LONG));
+      Assert.assertEquals(row / 4.0, getValue(row, DOUBLE));
+      Assert.assertEquals(row % 3 == 0, getValue(row, BOOLEAN));
+      Assert.assertEquals("S" + row % 10, getValue(row, STRING));
+      Assert.assertEquals(BigDecimal.valueOf(row, 2), getValue(row, DECIMAL));
+      Assert.assertEquals(row, this.columns.getUnscaledDecimal(row, DECIMAL));
+      if (row % 7 == 0) {
+        Assert.assertEquals(new Date(row), getValue(row, DATE));
+      } else {
+        Assert.assertNull(getValue(row, DATE));
+      }
+      Assert.assertNull(getValue(row, SHORT));
+    }
+  }
+
+  @Test
+  public void testBoolean() {
+    assertValue(BOOLEAN, true);
+    assertValue(BOOLEAN, false);
+    assertValue(BOOLEAN, null);
+    assertValue(BOOLEAN, "Y");
+  }
+
+  @Test
+  public void testDecimal() {
+    Assert.assertEquals(2, this.columns.getDecimalScale(DECIMAL));
+    Assert.assertEquals(-1, this.columns.getDecimalScale(BIG_DECIMAL));
+    Assert.assertEquals(-1, this.columns.getDecimalScale(INT));
+
+    assertValue(DECIMAL, new BigDecimal("123.45"));
+    assertValue(DECIMAL, new BigDecimal("-0.01"));
+    // Other scales and precisions are stored as objects
+    assertValue(DECIMAL, new BigDecimal("1.5"));
+    assertValue(DECIMAL, new BigDecimal("1.12345"));
+    assertValue(DECIMAL, new BigDecimal("12345678901234567890.12"));
+    assertValue(DECIMAL, null);
+    assertValue(BIG_DECIMAL, new BigDecimal("12345678901234567890.12"));
+
+    final int row = this.columns.addRow();
+    Assert.assertFalse(this.columns.isUnscaledDecimal(row, DECIMAL));
+    this.columns.setDecimal(row, DECIMAL, 12345, 2);
+    Assert.assertTrue(this.columns.isUnscaledDecimal(row, DECIMAL));
+    Assert.assertEquals(12345, this.columns.getUnscaledDecimal(row, DECIMAL));
+    Assert.assertEquals(new BigDecimal("123.45"), getValue(row, DECIMAL));
+
+    this.columns.setDecimal(row, DECIMAL, 12345, 3);
+    Assert.assertFalse(this.columns.isUnscaledDecimal(row, DECIMAL));
+    Assert.assertEquals(new BigDecimal("12.345"), getValue(row, DECIMAL));
+    try {
+      this.columns.getUnscaledDecimal(row, DECIMAL);
+      Assert.fail("Expected the value to be an object");
+    } catch (final IllegalStateException e) {
+    }
+
+    this.columns.setValue(row, DECIMAL, new BigDecimal("-0.50"));
+    Assert.assertTrue(this.columns.isUnscaledDecimal(row, DECIMAL));
+    Assert.assertEquals(-50, this.columns.getUnscaledDecimal(row, DECIMAL));
+
+    this.columns.setValue(row, DECIMAL, null);
+    Assert.assertFalse(this.columns.isUnscaledDecimal(row, DECIMAL));
+    Assert.assertFalse(this.columns.isUnscaledDecimal(row, INT));
+  }
+
+  @Test
+  public void testDouble() {
+    assertValue(DOUBLE, 1.5);
+    assertValue(DOUBLE, -0.0);
+    assertValue(DOUBLE, Double.NaN);
+    assertValue(DOUBLE, 3, 3.0);
+    assertValue(DOUBLE, new BigDecimal("0.1"), 0.1);
+    assertValue(DOUBLE, "x");
+    assertValue(FLOAT, 1.5f);
+    assertValue(FLOAT, 0.1, 0.1f);
+
+    final int row = this.columns.addRow();
+    this.columns.setDecimal(row, DOUBLE, 12345, 2);
+    Assert.assertEquals(123.45, getValue(row, DOUBLE));
+    this.columns.setDecimal(row, DOUBLE, -7, 0);
+    Assert.assertEquals(-7.0, getValue(row, DOUBLE));
+    // Not exact as a double so converted using a BigDecimal
+    this.columns.setDecimal(row, DOUBLE, Long.MAX_VALUE, 5);
+    Assert.assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 5).doubleValue(),
+      getValue(row, DOUBLE));
+    this.columns.setInt(row, FLOAT, 3);
+    Assert.assertEquals(3.0f, getValue(row, FLOAT));
+    this.columns.setLong(row, DOUBLE, 1L << 40);
+    Assert.assertEquals((double)(1L << 40), getValue(row, DOUBLE));
+  }
+
+  @Test
+  public void testInt() {
+    assertValue(INT, 0);
+    assertValue(INT, Integer.MIN_VALUE);
+    assertValue(INT, Integer.MAX_VALUE);
+    assertValue(INT, 12L, 12);
+    assertValue(INT, new BigDecimal("12"), 12);
+    assertValue(INT, BigInteger.TEN, 10);
+    // Values that don't fit are stored as objects
+    assertValue(INT, Long.MAX_VALUE);
+    assertValue(INT, 1.5);
+    assertValue(INT, "x");
+    assertValue(SHORT, (short)-5);
+    assertValue(SHORT, 100000);
+    assertValue(BYTE, (byte)127);
+    assertValue(BYTE, 128);
+
+    final int row = this.columns.addRow();
+    this.columns.setValue(row, INT, "x");
+    this.columns.setInt(row, INT, 5);
+    Assert.assertEquals(5, getValue(row, INT));
+    this.columns.setLong(row, SHORT, 70000L);
+    Assert.assertEquals(70000L, getValue(row, SHORT));
+    this.columns.setInt(row, SHORT, -1);
+    Assert.assertEquals((short)-1, getValue(row, SHORT));
+    this.columns.setDecimal(row, BYTE, 12, 0);
+    Assert.assertEquals((byte)12, getValue(row, BYTE));
+    this.columns.setDecimal(row, BYTE, 12, 1);
+    Assert.assertEquals(new BigDecimal("1.2"), getValue(row, BYTE));
+  }
+
+  @Test
+  public void testLong() {
+    assertValue(LONG, Long.MIN_VALUE);
+    assertValue(LONG, 5, 5L);
+    assertValue(LONG, new BigInteger("9223372036854775807"), Long.MAX_VALUE);
+    assertValue(LONG, new BigInteger("9223372036854775808"));
+    assertValue(LONG, 0.5);
+
+    final int row = this.columns.addRow();
+    this.columns.setInt(row, LONG, -3);
+    Assert.assertEquals(-3L, getValue(row, LONG));
+    // Whole decimals are stored as longs, others as objects
+    this.columns.setDecimal(row, LONG, 300, 2);
+    Assert.assertEquals(3L, getValue(row, LONG));
+    this.columns.setDecimal(row, LONG, 305, 2);
+    Assert.assertEquals(new BigDecimal("3.05"), getValue(row, LONG));
+  }
+
+  @Test
+  public void testNewRowIsNull() {
+    final int row = this.columns.addRow();
+    for (int i = 0; i < this.recordDefinition.getFieldCount(); i++) {
+      Assert.assertNull(this.recordDefinition.getFieldName(i),
+        getValue(row, i));
+    }
+  }
+
+  @Test
+  public void testObject() {
+    assertValue(DATE, new Date(1234567890123L));
+    assertValue(DATE, "2014-01-01");
+    assertValue(DATE, null);
+  }
+
+  @Test
+  public void testRecord() {
+    final ColumnarRecordFactory factory = new ColumnarRecordFactory();
+    final ColumnarRecord record = factory.createRecord(this.recordDefinition);
+    final ColumnarRecord record2 = factory.createRecord(this.recordDefinition);
+    record.setValue("INT", 1);
+    record.setValue("STRING", "");
+    record.setDecimal(DECIMAL, 150, 2);
+    record2.setValue("INT", 2);
+    Assert.assertEquals(Integer.valueOf(1), record.getInteger("INT"));
+    Assert.assertEquals(Integer.valueOf(2), record2.getInteger("INT"));
+    Assert.assertNull("Empty strings are null", record.getValue("STRING"));
+    Assert.assertTrue(record.isUnscaledDecimal(DECIMAL));
+    Assert.assertEquals(150, record.getUnscaledDecimal(DECIMAL));
+    Assert.assertEquals(2, record.getDecimalScale(DECIMAL));
+    Assert.assertFalse(record2.isUnscaledDecimal(DECIMAL));
+
+    final ColumnarRecord clone = record.clone();
+    record.setValue("INT", 3);
+    Assert.assertEquals(Integer.valueOf(1), clone.getInteger("INT"));
+    Assert.assertEquals(150, clone.getUnscaledDecimal(DECIMAL));
+  }
+
+  @Test
+  public void testString() {
+    assertValue(STRING, "a");
+    assertValue(STRING, "");
+    assertValue(STRING, 5);
+
+    // Distinct values after the dictionary is full are stored as objects
+    final int count = (1 << 16) + 100;
+    final int firstRow = this.columns.getRowCount();
+    for (int i = 0; i < count; i++) {
+      final int row = this.columns.addRow();
+      this.columns.setValue(row, STRING, "V" + i);
+    }
+    for (int i = 0; i < count; i++) {
+      Assert.assertEquals("V" + i, getValue(firstRow + i, STRING));
+    }
+    final int row = this.columns.addRow();
+    this.columns.setValue(row, STRING, "V1");
+    Assert.assertEquals("V1", getValue(row, STRING));
+    this.columns.setValue(row, STRING, "New");
+    Assert.assertEquals("New", getValue(row, STRING));
+    this.columns.setValue(row, STRING, null);
+    Assert.assertNull(getValue(row, STRING));
+  }
+}
@@ -0,0 +1,143 @@
+package com.revolsys.gis.algorithm.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * Compare the time to load and query an {@link RTree} and a bulk loaded
+ * {@link PackedRTree}. The results of the queries are checked to be the same,
+ * and the nearest neighbour results are checked against a linear scan.
+ */
+public class PackedRTreePerfTest {
+  private static final int OBJECT_COUNT = 1000000;
+
+  private static final int QUERY_COUNT = 10000;
+
+  private static final int NEAREST_QUERY_COUNT = 100;
+
+  private static final double EXTENT = 100000;
+
+  private static void checkResults(final List<BoundingBox> expected,
+    final List<BoundingBox> actual) {
+    final Set<BoundingBox> expectedSet = Collections.newSetFromMap(new IdentityHashMap<BoundingBox, Boolean>());
+    expectedSet.addAll(expected);
+    final Set<BoundingBox> actualSet = Collections.newSetFromMap(new IdentityHashMap<BoundingBox, Boolean>());
+    actualSet.addAll(actual);
+    if (!expectedSet.equals(actualSet)) {
+      throw new IllegalStateException("Expected " + expected.size()
+        + " results not " + actual.size());
+    }
+  }
+
+  private static List<BoundingBox> createBoundingBoxes(final Random random,
+    final int count, final double maxSize) {
+    final List<BoundingBox> boundingBoxes = new ArrayList<BoundingBox>();
+    for (int i = 0; i < count; i++) {
+      final double x = random.nextDouble() * EXTENT;
+      final double y = random.nextDouble() * EXTENT;
+      final double width = random.nextDouble() * maxSize;
+      final double height = random.nextDouble() * maxSize;
+      boundingBoxes.add(new BoundingBoxDoubleGf(2, x, y, x + width, y + height));
+    }
+    return boundingBoxes;
+  }
+
+  public static void main(final String[] args) {
+    final Random random = new Random(1);
+    final List<BoundingBox> boundingBoxes = createBoundingBoxes(random,
+      OBJECT_COUNT, 50);
+    final List<BoundingBox> queries = createBoundingBoxes(random, QUERY_COUNT,
+      1000);
+
+    long time = System.currentTimeMillis();
+    final RTree<BoundingBox> rTree = new RTree<BoundingBox>();
+    for (final BoundingBox boundingBox : boundingBoxes) {
+      rTree.put(boundingBox, boundingBox);
+    }
+    System.out.println("RTree load " + (System.currentTimeMillis() - time)
+      + "ms");
+
+    time = System.currentTimeMillis();
+    final PackedRTree<BoundingBox> packedTree = new PackedRTree<BoundingBox>();
+    for (final BoundingBox boundingBox : boundingBoxes) {
+      packedTree.put(boundingBox, boundingBox);
+    }
+    packedTree.build();
+    System.out.println("PackedRTree load " + (System.currentTimeMillis() - time)
+      + "ms");
+
+    for (int run = 0; run < 2; run++) {
+      time = System.nanoTime();
+      final List<List<BoundingBox>> rTreeResults = new ArrayList<List<BoundingBox>>();
+      for (final BoundingBox query : queries) {
+        rTreeResults.add(rTree.find(query));
+      }
+      System.out.println("RTree query " + (System.nanoTime() - time)
+        / 1000000.0 / QUERY_COUNT + "ms/query");
+
+      time = System.nanoTime();
+      final List<List<BoundingBox>> packedResults = new ArrayList<List<BoundingBox>>();
+      for (final BoundingBox query : queries) {
+        packedResults.add(packedTree.find(query));
+      }
+      System.out.println("PackedRTree query " + (System.nanoTime() - time)
+        / 1000000.0 / QUERY_COUNT + "ms/query");
+      for (int i = 0; i < QUERY_COUNT; i++) {
+        checkResults(rTreeResults.get(i), packedResults.get(i));
+      }
+    }
+
+    time = System.nanoTime();
+    for (int i = 0; i < NEAREST_QUERY_COUNT; i++) {
+      final double x = random.nextDouble() * EXTENT;
+      final double y = random.nextDouble() * EXTENT;
+      final List<BoundingBox> nearest = packedTree.findNearest(x, y, 10,
+        Double.POSITIVE_INFINITY);
+      final double maxDistance = nearest.get(nearest.size() - 1).distance(
+        new BoundingBoxDoubleGf(2, x, y, x, y));
+      final List<BoundingBox> expected = new ArrayList<BoundingBox>();
+      for (final BoundingBox boundingBox : boundingBoxes) {
+        final double distance = boundingBox.distance(new BoundingBoxDoubleGf(2,
+          x, y, x, y));
+        if (distance < maxDistance) {
+          expected.add(boundingBox);
+        }
+      }
+      if (!new HashSet<BoundingBox>(nearest).containsAll(expected)) {
+        throw new IllegalStateException("Nearest objects not found");
+      }
+    }
+    System.out.println("PackedRTree nearest " + (System.nanoTime() - time)
+      / 1000000.0 / NEAREST_QUERY_COUNT + "ms/query (including linear scan)");
+
+    time = System.currentTimeMillis();
+    Collections.sort(boundingBoxes, new Comparator<BoundingBox>() {
+      @Override
+      public int compare(final BoundingBox boundingBox1,
+        final BoundingBox boundingBox2) {
+        return Double.compare(boundingBox1.getMinX(), boundingBox2.getMinX());
+      }
+    });
+    for (int i = 0; i < OBJECT_COUNT; i += 2) {
+      final BoundingBox boundingBox = boundingBoxes.get(i);
+      if (!packedTree.remove(boundingBox, boundingBox)) {
+        throw new IllegalStateException("Object not removed");
+      }
+    }
+    if (packedTree.getSize() != OBJECT_COUNT / 2) {
+      throw new IllegalStateException("Expected size " + OBJECT_COUNT / 2
+        + " not " + packedTree.getSize());
+    }
+    System.out.println("PackedRTree remove " + (System.currentTimeMillis() - time)
+      + "ms");
+  }
+}
@@ -0,0 +1,277 @@
+package com.revolsys.gis.algorithm.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.gis.tin.Triangle;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+import com.revolsys.jts.geom.impl.PointDouble;
+import com.revolsys.jts.util.BoundingBoxUtil;
+
+/**
+ * Check the objects returned by {@link PackedRTree#visit} and
+ * {@link PackedRTree#findNearest} against a scan of the bounding boxes before
+ * and after the tree is built, after objects are removed and after it is
+ * rebuilt. Also check the {@link RTree} and the triangle bounding boxes used
+ * by the triangulated irregular network.
+ */
+public class PackedRTreeTest {
+  private static final double EXTENT = 10000;
+
+  /**
+   * The ids of the objects, the {@link RTree} compares the objects to remove
+   * by identity so the same instance must be used for each id.
+   */
+  private static final Integer[] IDS = new Integer[6000];
+
+  static {
+    for (int i = 0; i < IDS.length; i++) {
+      IDS[i] = new Integer(i);
+    }
+  }
+
+  private static void assertFind(final EnvelopeSpatialIndex<Integer> index,
+    final List<BoundingBox> boundingBoxes, final Random random) {
+    Assert.assertEquals(getExpectedIds(boundingBoxes,
+      new BoundingBoxDoubleGf(2, -EXTENT, -EXTENT, EXTENT * 2, EXTENT * 2)),
+      new TreeSet<>(index.findAll()));
+    for (int i = 0; i < 200; i++) {
+      final BoundingBox query = createBoundingBox(random, 1000);
+      final List<Integer> ids = index.find(query);
+      Assert.assertEquals(query.toString(),
+        getExpectedIds(boundingBoxes, query), new TreeSet<>(ids));
+      Assert.assertEquals(query.toString(), new TreeSet<>(ids).size(),
+        ids.size());
+    }
+  }
+
+  private static void assertFindNearest(final PackedRTree<Integer> tree,
+    final List<BoundingBox> boundingBoxes, final Random random) {
+    for (int i = 0; i < 100; i++) {
+      final double x = random.nextDouble() * EXTENT;
+      final double y = random.nextDouble() * EXTENT;
+      final int maxCount = 1 + random.nextInt(20);
+      final double maxDistance;
+      if (i % 2 == 0) {
+        maxDistance = Double.POSITIVE_INFINITY;
+      } else {
+        maxDistance = random.nextDouble() * 200;
+      }
+      final List<Integer> nearest = tree.findNearest(x, y, maxCount,
+        maxDistance);
+
+      final List<Integer> ids = new ArrayList<>();
+      for (int id = 0; id < boundingBoxes.size(); id++) {
+        final BoundingBox boundingBox = boundingBoxes.get(id);
+        if (boundingBox != null && distance(boundingBox, x, y) <= maxDistance) {
+          ids.add(id);
+        }
+      }
+      Collections.sort(ids, new Comparator<Integer>() {
+        @Override
+        public int compare(final Integer id1, final Integer id2) {
+          return Double.compare(distance(boundingBoxes.get(id1), x, y),
+            distance(boundingBoxes.get(id2), x, y));
+        }
+      });
+      final String message = x + "," + y + " " + maxCount + " " + maxDistance;
+      Assert.assertEquals(message, Math.min(maxCount, ids.size()),
+        nearest.size());
+      double previousDistance = 0;
+      for (int j = 0; j < nearest.size(); j++) {
+        final double distance = distance(boundingBoxes.get(nearest.get(j)), x,
+          y);
+        // Objects at the same distance can be returned in any order
+        Assert.assertEquals(message,
+          distance(boundingBoxes.get(ids.get(j)), x, y), distance, 0);
+        Assert.assertTrue(message, distance >= previousDistance);
+        previousDistance = distance;
+      }
+    }
+  }
+
+  private static BoundingBox createBoundingBox(final Random random,
+    final double maxSize) {
+    final double x = random.nextDouble() * EXTENT;
+    final double y = random.nextDouble() * EXTENT;
+    final double width = random.nextDouble() * maxSize;
+    final double height = random.nextDouble() * maxSize;
+    return new BoundingBoxDoubleGf(2, x, y, x + width, y + height);
+  }
+
+  private static List<BoundingBox> createBoundingBoxes(
+    final EnvelopeSpatialIndex<Integer> index, final Random random,
+    final int count) {
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final BoundingBox boundingBox;
+      if (i % 10 == 0) {
+        // A point
+        boundingBox = createBoundingBox(random, 0);
+      } else {
+        boundingBox = createBoundingBox(random, 100);
+      }
+      boundingBoxes.add(boundingBox);
+      index.put(boundingBox, IDS[i]);
+    }
+    return boundingBoxes;
+  }
+
+  private static double distance(final BoundingBox boundingBox,
+    final double x, final double y) {
+    final double dx = Math.max(0,
+      Math.max(boundingBox.getMinX() - x, x - boundingBox.getMaxX()));
+    final double dy = Math.max(0,
+      Math.max(boundingBox.getMinY() - y, y - boundingBox.getMaxY()));
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+
+  private static Set<Integer> getExpectedIds(
+    final List<BoundingBox> boundingBoxes, final BoundingBox query) {
+    final Set<Integer> ids = new TreeSet<>();
+    for (int id = 0; id < boundingBoxes.size(); id++) {
+      final BoundingBox boundingBox = boundingBoxes.get(id);
+      if (boundingBox != null && boundingBox.intersects(query)) {
+        ids.add(id);
+      }
+    }
+    return ids;
+  }
+
+  private static void removeEvery(final EnvelopeSpatialIndex<Integer> index,
+    final List<BoundingBox> boundingBoxes, final int step) {
+    for (int id = 0; id < boundingBoxes.size(); id += step) {
+      final BoundingBox boundingBox = boundingBoxes.get(id);
+      if (boundingBox != null) {
+        Assert.assertTrue("Remove " + id, index.remove(boundingBox, IDS[id]));
+        Assert.assertFalse("Remove again " + id,
+          index.remove(boundingBox, IDS[id]));
+        boundingBoxes.set(id, null);
+      }
+    }
+  }
+
+  /**
+   * {@link BoundingBoxUtil#createBounds(double...)} must set the min and max
+   * of each axis.
+   */
+  @Test
+  public void testCreateBounds() {
+    Assert.assertArrayEquals(new double[] {
+      1, 2, 1, 2
+    }, BoundingBoxUtil.createBounds(1.0, 2.0), 0);
+    Assert.assertArrayEquals(new double[] {
+      1, 2, 3, 1, 2, 3
+    }, BoundingBoxUtil.createBounds(1.0, 2.0, 3.0), 0);
+  }
+
+  @Test
+  public void testFind() {
+    final Random random = new Random(1);
+    final PackedRTree<Integer> tree = new PackedRTree<>();
+    final List<BoundingBox> boundingBoxes = createBoundingBoxes(tree, random,
+      5000);
+    assertFind(tree, boundingBoxes, random);
+    assertFindNearest(tree, boundingBoxes, random);
+    Assert.assertEquals(5000, tree.getSize());
+
+    // Objects that are added after the build and scanned until the rebuild
+    for (int i = 0; i < 100; i++) {
+      final BoundingBox boundingBox = createBoundingBox(random, 100);
+      tree.put(boundingBox, IDS[boundingBoxes.size()]);
+      boundingBoxes.add(boundingBox);
+    }
+    assertFind(tree, boundingBoxes, random);
+    assertFindNearest(tree, boundingBoxes, random);
+
+    tree.build();
+    assertFind(tree, boundingBoxes, random);
+    assertFindNearest(tree, boundingBoxes, random);
+    Assert.assertEquals(5100, tree.getSize());
+  }
+
+  @Test
+  public void testNodeCapacity() {
+    for (final int nodeCapacity : new int[] {
+      2, 3, 7
+    }) {
+      final Random random = new Random(nodeCapacity);
+      final PackedRTree<Integer> tree = new PackedRTree<>(nodeCapacity);
+      final List<BoundingBox> boundingBoxes = createBoundingBoxes(tree,
+        random, 500);
+      assertFind(tree, boundingBoxes, random);
+      assertFindNearest(tree, boundingBoxes, random);
+    }
+  }
+
+  @Test
+  public void testRemove() {
+    final Random random = new Random(2);
+    final PackedRTree<Integer> tree = new PackedRTree<>();
+    final List<BoundingBox> boundingBoxes = createBoundingBoxes(tree, random,
+      3000);
+    tree.build();
+
+    removeEvery(tree, boundingBoxes, 7);
+    assertFind(tree, boundingBoxes, random);
+    assertFindNearest(tree, boundingBoxes, random);
+
+    // Enough removed objects to rebuild the tree
+    removeEvery(tree, boundingBoxes, 2);
+    assertFind(tree, boundingBoxes, random);
+    assertFindNearest(tree, boundingBoxes, random);
+
+    tree.build();
+    Assert.assertEquals(tree.findAll().size(), tree.getSize());
+    assertFind(tree, boundingBoxes, random);
+    assertFindNearest(tree, boundingBoxes, random);
+
+    removeEvery(tree, boundingBoxes, 1);
+    Assert.assertEquals(0, tree.getSize());
+    assertFind(tree, boundingBoxes, random);
+    Assert.assertTrue(tree.findNearest(0, 0, 10, Double.POSITIVE_INFINITY)
+      .isEmpty());
+  }
+
+  /**
+   * The first put into an {@link RTree} must not fail, a node must contain
+   * only the bounding boxes it covers and removing an object must find the
+   * node that contains it.
+   */
+  @Test
+  public void testRTree() {
+    final RTreeLeaf<Integer> leaf = new RTreeLeaf<>(4);
+    leaf.add(new BoundingBoxDoubleGf(2, 0, 0, 10, 10), IDS[0]);
+    Assert.assertTrue(leaf.contains(new BoundingBoxDoubleGf(2, 1, 1, 9, 9)));
+    Assert.assertFalse(leaf.contains(new BoundingBoxDoubleGf(2, 5, 5, 15, 15)));
+
+    final Random random = new Random(3);
+    final RTree<Integer> tree = new RTree<>();
+    final List<BoundingBox> boundingBoxes = createBoundingBoxes(tree, random,
+      1000);
+    assertFind(tree, boundingBoxes, random);
+
+    removeEvery(tree, boundingBoxes, 3);
+    assertFind(tree, boundingBoxes, random);
+  }
+
+  @Test
+  public void testTriangleEnvelope() {
+    final Triangle triangle = new Triangle(new PointDouble(10.0, 5.0),
+      new PointDouble(2.0, 20.0), new PointDouble(6.0, 1.0));
+    final BoundingBox boundingBox = triangle.getEnvelopeInternal();
+    Assert.assertEquals(2, boundingBox.getMinX(), 0);
+    Assert.assertEquals(1, boundingBox.getMinY(), 0);
+    Assert.assertEquals(10, boundingBox.getMaxX(), 0);
+    Assert.assertEquals(20, boundingBox.getMaxY(), 0);
+  }
+}
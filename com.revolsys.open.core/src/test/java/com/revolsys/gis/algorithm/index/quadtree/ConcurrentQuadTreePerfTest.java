@@ -0,0 +1,149 @@
+package com.revolsys.gis.algorithm.index.quadtree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * Check that a {@link ConcurrentQuadTree} returns the same query results as a
+ * {@link QuadTree}, then run reader threads that query the tree while a writer
+ * thread moves items. Every item is in the tree for the whole test so each
+ * query over the full extent must return all the items.
+ */
+public class ConcurrentQuadTreePerfTest {
+  private static final int ITEM_COUNT = 100000;
+
+  private static final int QUERY_COUNT = 10000;
+
+  private static final int READER_COUNT = 4;
+
+  private static final long RUN_MILLIS = 5000;
+
+  private static final double EXTENT = 100000;
+
+  private static BoundingBox createBoundingBox(final Random random) {
+    final double x = random.nextDouble() * EXTENT;
+    final double y = random.nextDouble() * EXTENT;
+    final double size = random.nextDouble() * 50;
+    return new BoundingBoxDoubleGf(2, x, y, x + size, y + size);
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final Random random = new Random(1);
+    final List<BoundingBox> boundingBoxes = new ArrayList<BoundingBox>();
+    final List<Integer> items = new ArrayList<Integer>();
+    final QuadTree<Integer> quadTree = new QuadTree<Integer>();
+    final ConcurrentQuadTree<Integer> concurrentTree = new ConcurrentQuadTree<Integer>();
+
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      final BoundingBox boundingBox = createBoundingBox(random);
+      final Integer item = Integer.valueOf(i);
+      boundingBoxes.add(boundingBox);
+      items.add(item);
+      quadTree.insert(boundingBox, item);
+    }
+    System.out.println("QuadTree insert " + (System.currentTimeMillis() - time)
+      + "ms");
+
+    time = System.currentTimeMillis();
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      concurrentTree.insert(boundingBoxes.get(i), items.get(i));
+    }
+    System.out.println("ConcurrentQuadTree insert "
+      + (System.currentTimeMillis() - time) + "ms");
+
+    final List<BoundingBox> queries = new ArrayList<BoundingBox>();
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      final double x = random.nextDouble() * EXTENT;
+      final double y = random.nextDouble() * EXTENT;
+      queries.add(new BoundingBoxDoubleGf(2, x, y, x + 1000, y + 1000));
+    }
+    for (int run = 0; run < 2; run++) {
+      time = System.nanoTime();
+      final List<List<Integer>> expected = new ArrayList<List<Integer>>();
+      for (final BoundingBox query : queries) {
+        expected.add(quadTree.query(query));
+      }
+      System.out.println("QuadTree query " + (System.nanoTime() - time)
+        / 1000000.0 / QUERY_COUNT + "ms/query");
+      time = System.nanoTime();
+      final List<List<Integer>> actual = new ArrayList<List<Integer>>();
+      for (final BoundingBox query : queries) {
+        actual.add(concurrentTree.query(query));
+      }
+      System.out.println("ConcurrentQuadTree query "
+        + (System.nanoTime() - time) / 1000000.0 / QUERY_COUNT + "ms/query");
+      for (int i = 0; i < QUERY_COUNT; i++) {
+        if (!new HashSet<Integer>(expected.get(i)).equals(new HashSet<Integer>(
+          actual.get(i)))) {
+          throw new IllegalStateException("Query " + i + " results differ");
+        }
+      }
+    }
+
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final AtomicLong queryCount = new AtomicLong();
+    final List<Throwable> errors = new ArrayList<Throwable>();
+    final BoundingBox all = new BoundingBoxDoubleGf(2, -EXTENT, -EXTENT,
+      EXTENT * 2, EXTENT * 2);
+    final List<Thread> readers = new ArrayList<Thread>();
+    for (int i = 0; i < READER_COUNT; i++) {
+      final Thread reader = new Thread() {
+        @Override
+        public void run() {
+          try {
+            while (running.get()) {
+              final int size = concurrentTree.query(all).size();
+              if (size != ITEM_COUNT) {
+                throw new IllegalStateException("Expected " + ITEM_COUNT
+                  + " items not " + size);
+              }
+              queryCount.incrementAndGet();
+            }
+          } catch (final Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      };
+      readers.add(reader);
+      reader.start();
+    }
+    final Random writerRandom = new Random(2);
+    long moveCount = 0;
+    time = System.currentTimeMillis();
+    while (System.currentTimeMillis() - time < RUN_MILLIS) {
+      final int index = writerRandom.nextInt(ITEM_COUNT);
+      final BoundingBox oldBoundingBox = boundingBoxes.get(index);
+      final BoundingBox newBoundingBox = createBoundingBox(writerRandom);
+      if (!concurrentTree.move(oldBoundingBox, newBoundingBox,
+        items.get(index))) {
+        throw new IllegalStateException("Item " + index + " not moved");
+      }
+      boundingBoxes.set(index, newBoundingBox);
+      moveCount++;
+    }
+    running.set(false);
+    for (final Thread reader : readers) {
+      reader.join();
+    }
+    if (!errors.isEmpty()) {
+      throw new IllegalStateException("Reader failed", errors.get(0));
+    }
+    if (concurrentTree.getSize() != ITEM_COUNT) {
+      throw new IllegalStateException("Expected size " + ITEM_COUNT + " not "
+        + concurrentTree.getSize());
+    }
+    System.out.println("ConcurrentQuadTree " + moveCount / (RUN_MILLIS / 1000)
+      + " moves/s with " + READER_COUNT + " readers doing "
+      + queryCount.get() / (RUN_MILLIS / 1000) + " full queries/s");
+  }
+}
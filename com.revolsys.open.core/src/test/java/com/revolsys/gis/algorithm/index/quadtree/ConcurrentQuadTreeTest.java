@@ -0,0 +1,248 @@
+package com.revolsys.gis.algorithm.index.quadtree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * Check the query results and size of a {@link ConcurrentQuadTree} against a
+ * scan of the items after inserts, re-inserts, removes and moves, and that a
+ * reader querying the tree while a writer edits it always sees a complete
+ * tree.
+ */
+public class ConcurrentQuadTreeTest {
+  private static final double EXTENT = 10000;
+
+  private static final BoundingBox ALL = new BoundingBoxDoubleGf(2, -EXTENT,
+    -EXTENT, EXTENT * 2, EXTENT * 2);
+
+  private static void assertQuery(final ConcurrentQuadTree<Integer> tree,
+    final List<BoundingBox> boundingBoxes, final Random random) {
+    Assert.assertEquals(getItemCount(boundingBoxes), tree.size());
+    for (int i = 0; i < 200; i++) {
+      final BoundingBox query = createBoundingBox(random, 1000);
+      final Set<Integer> expected = new TreeSet<>();
+      for (int item = 0; item < boundingBoxes.size(); item++) {
+        final BoundingBox boundingBox = boundingBoxes.get(item);
+        if (boundingBox != null && boundingBox.intersects(query)) {
+          expected.add(item);
+        }
+      }
+      final List<Integer> actual = tree.query(query);
+      Assert.assertEquals(query.toString(), expected, new TreeSet<>(actual));
+      Assert.assertEquals(query.toString(), expected.size(), actual.size());
+    }
+    final List<Integer> all = tree.getAll();
+    Assert.assertEquals(getItemCount(boundingBoxes), all.size());
+    Assert.assertEquals(all.size(), new HashSet<>(all).size());
+  }
+
+  private static BoundingBox createBoundingBox(final Random random,
+    final double maxSize) {
+    final double x = random.nextDouble() * EXTENT;
+    final double y = random.nextDouble() * EXTENT;
+    final double size = random.nextDouble() * maxSize;
+    return new BoundingBoxDoubleGf(2, x, y, x + size, y + size);
+  }
+
+  private static int getItemCount(final List<BoundingBox> boundingBoxes) {
+    int count = 0;
+    for (final BoundingBox boundingBox : boundingBoxes) {
+      if (boundingBox != null) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  @Test
+  public void testInsertQueryRemove() {
+    final Random random = new Random(1);
+    final ConcurrentQuadTree<Integer> tree = new ConcurrentQuadTree<>();
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    final List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      final BoundingBox boundingBox;
+      if (i % 10 == 0) {
+        // A point
+        boundingBox = createBoundingBox(random, 0);
+      } else {
+        boundingBox = createBoundingBox(random, 100);
+      }
+      final Integer item = i;
+      boundingBoxes.add(boundingBox);
+      items.add(item);
+      tree.insert(boundingBox, item);
+    }
+    assertQuery(tree, boundingBoxes, random);
+
+    for (int i = 0; i < boundingBoxes.size(); i += 3) {
+      final BoundingBox boundingBox = boundingBoxes.get(i);
+      final Integer item = items.get(i);
+      Assert.assertTrue("Remove " + i, tree.remove(boundingBox, item));
+      Assert.assertFalse("Remove again " + i, tree.remove(boundingBox, item));
+      boundingBoxes.set(i, null);
+    }
+    assertQuery(tree, boundingBoxes, random);
+
+    for (int i = 0; i < boundingBoxes.size(); i++) {
+      final BoundingBox boundingBox = boundingBoxes.get(i);
+      if (boundingBox != null) {
+        Assert.assertTrue("Remove " + i,
+          tree.remove(boundingBox, items.get(i)));
+      }
+    }
+    Assert.assertEquals(0, tree.size());
+    Assert.assertTrue(tree.query(ALL).isEmpty());
+  }
+
+  @Test
+  public void testMove() {
+    final Random random = new Random(2);
+    final ConcurrentQuadTree<Integer> tree = new ConcurrentQuadTree<>();
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    final List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      final BoundingBox boundingBox = createBoundingBox(random, 100);
+      final Integer item = i;
+      boundingBoxes.add(boundingBox);
+      items.add(item);
+      tree.insert(boundingBox, item);
+    }
+    for (int i = 0; i < 1000; i++) {
+      final BoundingBox boundingBox = createBoundingBox(random, 100);
+      Assert.assertTrue("Move " + i,
+        tree.move(boundingBoxes.get(i), boundingBox, items.get(i)));
+      boundingBoxes.set(i, boundingBox);
+    }
+    assertQuery(tree, boundingBoxes, random);
+
+    // Moving an item that isn't in the tree inserts it
+    final BoundingBox boundingBox = createBoundingBox(random, 100);
+    Assert.assertFalse(tree.move(boundingBox, boundingBox, 1000));
+    boundingBoxes.add(boundingBox);
+    assertQuery(tree, boundingBoxes, random);
+
+    // Moving to a null bounding box removes the item
+    Assert.assertTrue(tree.move(boundingBoxes.get(5), null, items.get(5)));
+    boundingBoxes.set(5, null);
+    assertQuery(tree, boundingBoxes, random);
+  }
+
+  /**
+   * Run readers that query the whole tree while a writer moves the permanent
+   * items and inserts and removes other items. Each query must return every
+   * permanent item exactly once.
+   */
+  @Test
+  public void testReadWhileWriting() throws InterruptedException {
+    final int permanentCount = 1000;
+    final Random random = new Random(3);
+    final ConcurrentQuadTree<Integer> tree = new ConcurrentQuadTree<>();
+    final List<BoundingBox> boundingBoxes = new ArrayList<>();
+    final List<Integer> items = new ArrayList<>();
+    for (int i = 0; i < permanentCount; i++) {
+      final BoundingBox boundingBox = createBoundingBox(random, 100);
+      final Integer item = i;
+      boundingBoxes.add(boundingBox);
+      items.add(item);
+      tree.insert(boundingBox, item);
+    }
+
+    final AtomicBoolean running = new AtomicBoolean(true);
+    final List<Throwable> errors = new ArrayList<>();
+    final List<Thread> readers = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      final Thread reader = new Thread() {
+        @Override
+        public void run() {
+          try {
+            while (running.get()) {
+              final List<Integer> results = tree.query(ALL);
+              final Set<Integer> uniqueItems = new HashSet<>(results);
+              if (uniqueItems.size() != results.size()) {
+                throw new IllegalStateException("Duplicate items");
+              }
+              for (int item = 0; item < permanentCount; item++) {
+                if (!uniqueItems.contains(item)) {
+                  throw new IllegalStateException("Missing item " + item);
+                }
+              }
+            }
+          } catch (final Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      };
+      readers.add(reader);
+      reader.start();
+    }
+    try {
+      final List<BoundingBox> otherBoundingBoxes = new ArrayList<>();
+      final List<Integer> otherItems = new ArrayList<>();
+      for (int i = 0; i < 20000; i++) {
+        final int index = random.nextInt(permanentCount);
+        final BoundingBox boundingBox = createBoundingBox(random, 100);
+        Assert.assertTrue(tree.move(boundingBoxes.get(index), boundingBox,
+          items.get(index)));
+        boundingBoxes.set(index, boundingBox);
+
+        final Integer otherItem = permanentCount + i;
+        final BoundingBox otherBoundingBox = createBoundingBox(random, 100);
+        tree.insert(otherBoundingBox, otherItem);
+        otherBoundingBoxes.add(otherBoundingBox);
+        otherItems.add(otherItem);
+        if (i % 2 == 1) {
+          Assert.assertTrue(tree.remove(otherBoundingBoxes.get(i - 1),
+            otherItems.get(i - 1)));
+        }
+      }
+    } finally {
+      running.set(false);
+      for (final Thread reader : readers) {
+        reader.join();
+      }
+    }
+    if (!errors.isEmpty()) {
+      throw new AssertionError(errors.get(0));
+    }
+    Assert.assertEquals(permanentCount + 10000, tree.size());
+  }
+
+  /**
+   * Inserting an item again with the same bounding box replaces the item and
+   * must not change the size.
+   */
+  @Test
+  public void testReinsert() {
+    final ConcurrentQuadTree<Integer> tree = new ConcurrentQuadTree<>();
+    final Integer item = 1;
+    final BoundingBox boundingBox = new BoundingBoxDoubleGf(2, 10, 10, 20, 20);
+    tree.insert(boundingBox, item);
+    tree.insert(boundingBox, item);
+    Assert.assertEquals(1, tree.size());
+    Assert.assertEquals(1, tree.query(boundingBox).size());
+
+    final BoundingBox point = new BoundingBoxDoubleGf(2, 30, 30, 30, 30);
+    tree.insert(point, 2);
+    tree.insert(point, 2);
+    Assert.assertEquals(2, tree.size());
+    Assert.assertEquals(2, tree.getAll().size());
+
+    Assert.assertTrue(tree.remove(boundingBox, item));
+    Assert.assertFalse(tree.remove(boundingBox, item));
+    Assert.assertEquals(1, tree.size());
+  }
+}
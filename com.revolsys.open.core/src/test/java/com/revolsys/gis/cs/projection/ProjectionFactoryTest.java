@@ -0,0 +1,60 @@
+package com.revolsys.gis.cs.projection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.Point;
+
+/**
+ * Check the conversion of projected coordinates that aren't in metres. NAD83 /
+ * BLM 11N (ftUS) and NAD83 / UTM zone 11N use the same projection parameters,
+ * so a point in US survey feet must convert to the same location as the point
+ * in metres.
+ */
+public class ProjectionFactoryTest {
+  private static final GeometryFactory BLM_11N_FEET = GeometryFactory.floating(
+    4431, 2);
+
+  private static final GeometryFactory NAD83 = GeometryFactory.floating(4269,
+    2);
+
+  private static final double US_SURVEY_FOOT = 0.30480060960121924;
+
+  private static final GeometryFactory UTM_11N = GeometryFactory.floating(
+    26911, 2);
+
+  @Test
+  public void testCachedOperation() {
+    final CoordinatesOperation operation = BLM_11N_FEET.getCoordinatesOperation(UTM_11N);
+    Assert.assertNotNull(operation);
+    Assert.assertSame(operation,
+      BLM_11N_FEET.getCoordinatesOperation(UTM_11N));
+  }
+
+  @Test
+  public void testFeetToGeographic() {
+    final Point feetPoint = BLM_11N_FEET.point(500000 / US_SURVEY_FOOT,
+      4000000 / US_SURVEY_FOOT);
+    final Point metrePoint = UTM_11N.point(500000, 4000000);
+
+    final Point feetGeographic = feetPoint.convert(NAD83);
+    final Point metreGeographic = metrePoint.convert(NAD83);
+    Assert.assertEquals(-117, metreGeographic.getX(), 1e-7);
+    Assert.assertEquals(metreGeographic.getX(), feetGeographic.getX(), 1e-7);
+    Assert.assertEquals(metreGeographic.getY(), feetGeographic.getY(), 1e-7);
+  }
+
+  @Test
+  public void testFeetToMetres() {
+    final Point feetPoint = BLM_11N_FEET.point(500000 / US_SURVEY_FOOT,
+      4000000 / US_SURVEY_FOOT);
+    final Point metrePoint = feetPoint.convert(UTM_11N);
+    Assert.assertEquals(500000, metrePoint.getX(), 0.01);
+    Assert.assertEquals(4000000, metrePoint.getY(), 0.01);
+
+    final Point roundTrip = metrePoint.convert(BLM_11N_FEET);
+    Assert.assertEquals(feetPoint.getX(), roundTrip.getX(), 0.01);
+    Assert.assertEquals(feetPoint.getY(), roundTrip.getY(), 0.01);
+  }
+}
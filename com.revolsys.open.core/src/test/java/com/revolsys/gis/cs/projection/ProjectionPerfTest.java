@@ -0,0 +1,73 @@
+package com.revolsys.gis.cs.projection;
+
+import java.util.Random;
+
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.Point;
+
+/**
+ * Compare the number of points per second converted from geographic
+ * coordinates to a projected coordinate system using the cached
+ * {@link CoordinatesOperation} on a coordinate array with converting each
+ * point using {@link Point#copy(GeometryFactory)}. The projected coordinates
+ * are converted back to check the round trip.
+ */
+public class ProjectionPerfTest {
+  private static final int POINT_COUNT = 500000;
+
+  private static final int RUN_COUNT = 3;
+
+  public static void main(final String[] args) {
+    // UTM 10N, BC Albers, Canada Atlas Lambert
+    final int[] srids = {
+      26910, 3005, 3979
+    };
+    final GeometryFactory geographicFactory = GeometryFactory.floating3(4269);
+    final Random random = new Random(1);
+    final double[] coordinates = new double[POINT_COUNT * 3];
+    for (int i = 0; i < POINT_COUNT; i++) {
+      coordinates[i * 3] = -126 + random.nextDouble() * 6;
+      coordinates[i * 3 + 1] = 49 + random.nextDouble() * 6;
+      coordinates[i * 3 + 2] = random.nextDouble() * 1000;
+    }
+    for (final int srid : srids) {
+      final GeometryFactory projectedFactory = GeometryFactory.floating3(srid);
+      final CoordinatesOperation operation = geographicFactory.getCoordinatesOperation(projectedFactory);
+      final CoordinatesOperation inverseOperation = projectedFactory.getCoordinatesOperation(geographicFactory);
+      final double[] projected = new double[coordinates.length];
+      final double[] geographic = new double[coordinates.length];
+      for (int run = 0; run < RUN_COUNT; run++) {
+        long time = System.nanoTime();
+        operation.perform(3, coordinates, 3, projected);
+        final long projectTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        inverseOperation.perform(3, projected, 3, geographic);
+        final long inverseTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        for (int i = 0; i < POINT_COUNT; i++) {
+          final Point point = geographicFactory.point(coordinates[i * 3],
+            coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
+          point.copy(projectedFactory);
+        }
+        final long pointTime = System.nanoTime() - time;
+
+        for (int i = 0; i < coordinates.length; i++) {
+          if (Math.abs(geographic[i] - coordinates[i]) > 1e-7) {
+            throw new IllegalStateException(srid + " ordinate " + i
+              + " expected " + coordinates[i] + " not " + geographic[i]);
+          }
+        }
+        System.out.println(String.format(
+          "%6d project %,12.0f pts/s, inverse %,12.0f pts/s, point copy %,12.0f pts/s",
+          srid, pointsPerSecond(projectTime), pointsPerSecond(inverseTime),
+          pointsPerSecond(pointTime)));
+      }
+    }
+  }
+
+  private static double pointsPerSecond(final long time) {
+    return POINT_COUNT * 1000000000.0 / Math.max(1, time);
+  }
+}
@@ -0,0 +1,188 @@
+package com.revolsys.gis.data.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import junit.framework.Assert;
+
+import com.revolsys.data.query.Condition;
+import com.revolsys.data.query.KeysetPageIndex;
+import com.revolsys.data.query.Query;
+import com.revolsys.data.record.ArrayRecord;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.filter.Filter;
+import com.revolsys.util.CompareUtil;
+
+/**
+ * Check that the pages returned using the {@link KeysetPageIndex} checkpoints
+ * are the same as the pages using the offset from the first record, for
+ * pages loaded in sequence, pages loaded in a random order and pages loaded
+ * after the checkpoints are read from the key query.
+ */
+public class KeysetPageIndexTest {
+  private static final int PAGE_SIZE = 40;
+
+  private static final int RECORD_COUNT = 2000;
+
+  public static void main(final String[] args) {
+    new KeysetPageIndexTest().run();
+  }
+
+  private final RecordDefinitionImpl recordDefinition;
+
+  private final List<Record> records = new ArrayList<>();
+
+  public KeysetPageIndexTest() {
+    this.recordDefinition = new RecordDefinitionImpl("Test");
+    this.recordDefinition.addField("ID", DataTypes.INT, true);
+    this.recordDefinition.addField("NAME", DataTypes.STRING, 255, true);
+    this.recordDefinition.addField("DESCRIPTION", DataTypes.STRING, 255, false);
+    this.recordDefinition.setIdFieldName("ID");
+
+    final Random random = new Random(1);
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      final Record record = new ArrayRecord(this.recordDefinition);
+      record.setValue("ID", i);
+      // Duplicate names so the id is needed to make the order unique
+      record.setValue("NAME", "N" + random.nextInt(100));
+      record.setValue("DESCRIPTION", "D" + random.nextInt(100));
+      this.records.add(record);
+    }
+  }
+
+  private void assertPages(final Map<String, Boolean> orderBy,
+    final boolean keyset) {
+    final KeysetPageIndex pageIndex = new KeysetPageIndex(
+      this.recordDefinition, orderBy, PAGE_SIZE);
+    Assert.assertEquals(keyset, pageIndex.isKeyset());
+    final Query query = new Query(this.recordDefinition);
+    final int pageCount = RECORD_COUNT / PAGE_SIZE;
+    final List<Integer> pageNumbers = new ArrayList<>();
+    for (int i = 0; i < pageCount; i++) {
+      pageNumbers.add(i);
+    }
+    Collections.shuffle(pageNumbers, new Random(2));
+    for (int i = 0; i < pageCount; i++) {
+      pageNumbers.add(i);
+    }
+    final KeysetPageIndex offsetIndex = new KeysetPageIndex(
+      this.recordDefinition, orderBy, PAGE_SIZE);
+    for (final Integer pageNumber : pageNumbers) {
+      final Query pageQuery = pageIndex.getPageQuery(query, pageNumber);
+      final List<Record> page = query(pageQuery);
+      pageIndex.setPageRecords(pageNumber, page);
+
+      final List<Record> expected = query(offsetIndex.getPageQuery(query,
+        pageNumber));
+      Assert.assertEquals("Page " + pageNumber, expected, page);
+    }
+    final Query lastPageQuery = pageIndex.getPageQuery(query, pageCount - 1);
+    if (keyset) {
+      Assert.assertEquals(0, lastPageQuery.getOffset());
+    } else {
+      Assert.assertEquals((pageCount - 1) * PAGE_SIZE,
+        lastPageQuery.getOffset());
+    }
+  }
+
+  private List<Record> query(final Query query) {
+    final List<Record> results = new ArrayList<>();
+    final Condition where = query.getWhereCondition();
+    final Filter<Record> filter;
+    if (where == null) {
+      filter = null;
+    } else {
+      filter = where.compile(this.recordDefinition);
+    }
+    for (final Record record : this.records) {
+      if (filter == null || filter.accept(record)) {
+        results.add(record);
+      }
+    }
+    final Map<String, Boolean> orderBy = query.getOrderBy();
+    Collections.sort(results, new Comparator<Record>() {
+      @Override
+      public int compare(final Record record1, final Record record2) {
+        for (final Entry<String, Boolean> entry : orderBy.entrySet()) {
+          final String fieldName = entry.getKey();
+          int compare = CompareUtil.compare(record1.getValue(fieldName),
+            record2.getValue(fieldName));
+          if (!entry.getValue()) {
+            compare = -compare;
+          }
+          if (compare != 0) {
+            return compare;
+          }
+        }
+        return 0;
+      }
+    });
+    final int fromIndex = Math.min(results.size(), query.getOffset());
+    int toIndex = results.size();
+    if (query.getLimit() >= 0) {
+      toIndex = Math.min(toIndex, fromIndex + query.getLimit());
+    }
+    return new ArrayList<>(results.subList(fromIndex, toIndex));
+  }
+
+  public void run() {
+    testIdOrder();
+    testKeyScan();
+    testSortOrder();
+    testNullableSortOrder();
+  }
+
+  public void testIdOrder() {
+    assertPages(null, true);
+  }
+
+  /**
+   * Load the checkpoints using the key query and then jump to pages that
+   * haven't been loaded. The offset from the nearest checkpoint must be at
+   * most the checkpoint interval.
+   */
+  public void testKeyScan() {
+    final Map<String, Boolean> orderBy = Collections.singletonMap("NAME",
+      true);
+    final KeysetPageIndex pageIndex = new KeysetPageIndex(
+      this.recordDefinition, orderBy, PAGE_SIZE);
+    pageIndex.setCheckpointInterval(4);
+    final Query query = new Query(this.recordDefinition);
+    final int pageCount = RECORD_COUNT / PAGE_SIZE;
+    Assert.assertFalse(pageIndex.isKeyScanRequired(query, 4));
+    Assert.assertTrue(pageIndex.isKeyScanRequired(query, pageCount - 1));
+
+    final Query keyQuery = pageIndex.getKeyQuery(query);
+    Assert.assertEquals(Arrays.asList("NAME", "ID"), keyQuery.getFieldNames());
+    pageIndex.setKeyRecords(query(keyQuery));
+    Assert.assertFalse(pageIndex.isKeyScanRequired(query, pageCount - 1));
+
+    final KeysetPageIndex offsetIndex = new KeysetPageIndex(
+      this.recordDefinition, orderBy, PAGE_SIZE);
+    for (int pageNumber = pageCount - 1; pageNumber >= 0; pageNumber -= 3) {
+      final Query pageQuery = pageIndex.getPageQuery(query, pageNumber);
+      Assert.assertTrue("Page " + pageNumber,
+        pageQuery.getOffset() <= 4 * PAGE_SIZE);
+      final List<Record> expected = query(offsetIndex.getPageQuery(query,
+        pageNumber));
+      Assert.assertEquals("Page " + pageNumber, expected, query(pageQuery));
+    }
+  }
+
+  public void testNullableSortOrder() {
+    assertPages(Collections.singletonMap("DESCRIPTION", true), false);
+  }
+
+  public void testSortOrder() {
+    assertPages(Collections.singletonMap("NAME", true), true);
+    assertPages(Collections.singletonMap("NAME", false), true);
+  }
+}
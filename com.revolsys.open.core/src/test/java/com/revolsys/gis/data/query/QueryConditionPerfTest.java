@@ -0,0 +1,87 @@
+package com.revolsys.gis.data.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.revolsys.data.query.Condition;
+import com.revolsys.data.query.Q;
+import com.revolsys.data.record.ArrayRecord;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.FieldDefinition;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.filter.Filter;
+
+/**
+ * Compare the time to filter records by evaluating the condition tree with the
+ * time using the filter compiled from the condition, and check both accept the
+ * same number of records.
+ */
+public class QueryConditionPerfTest {
+  private static final int RECORD_COUNT = 500000;
+
+  private static final int RUN_COUNT = 3;
+
+  public static void main(final String[] args) {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      "Test");
+    final FieldDefinition idField = recordDefinition.addField("ID",
+      DataTypes.INT, true);
+    final FieldDefinition nameField = recordDefinition.addField("NAME",
+      DataTypes.STRING, 255, true);
+    final FieldDefinition typeField = recordDefinition.addField("TYPE",
+      DataTypes.STRING, 10, true);
+    final FieldDefinition lengthField = recordDefinition.addField("LENGTH",
+      DataTypes.DOUBLE, true);
+
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      final Record record = new ArrayRecord(recordDefinition);
+      record.setValue("ID", i);
+      record.setValue("NAME", "Road " + i);
+      record.setValue("TYPE", "T" + i % 7);
+      record.setValue("LENGTH", i % 1000 / 10.0);
+      records.add(record);
+    }
+
+    final List<Condition> conditions = Arrays.<Condition> asList(
+      Q.equal(typeField, "T3"),
+      Q.and(Q.equal(typeField, "T3"), Q.greaterThan(idField, 1000)),
+      Q.between(lengthField, 10.0, 20.0),
+      Q.like(nameField, "%12%"),
+      Q.iLike(nameField, "road 1%"),
+      Q.in(typeField, "T1", "T2", "T5"),
+      Q.or(Q.isNull(nameField), Q.lessThan(lengthField, "5")));
+
+    for (final Condition condition : conditions) {
+      for (int run = 0; run < RUN_COUNT; run++) {
+        long time = System.nanoTime();
+        int interpretedCount = 0;
+        for (final Record record : records) {
+          if (condition.accept(record)) {
+            interpretedCount++;
+          }
+        }
+        final long interpretedTime = System.nanoTime() - time;
+
+        time = System.nanoTime();
+        final Filter<Record> filter = condition.compile(recordDefinition);
+        int compiledCount = 0;
+        for (final Record record : records) {
+          if (filter.accept(record)) {
+            compiledCount++;
+          }
+        }
+        final long compiledTime = System.nanoTime() - time;
+        if (interpretedCount != compiledCount) {
+          throw new IllegalStateException(condition + " interpreted "
+            + interpretedCount + " != compiled " + compiledCount);
+        }
+        System.out.println(String.format(
+          "%-50s %8d interpreted %5dms, compiled %5dms", condition,
+          compiledCount, interpretedTime / 1000000, compiledTime / 1000000));
+      }
+    }
+  }
+}
@@ -6,11 +6,16 @@ import junit.framework.Assert;
 
 import com.revolsys.data.query.Condition;
 import com.revolsys.data.query.Q;
+import com.revolsys.data.query.Query;
+import com.revolsys.data.query.QueryValue;
+import com.revolsys.data.query.functions.F;
 import com.revolsys.data.record.ArrayRecord;
 import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinitionImpl;
 import com.revolsys.data.types.DataTypes;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
 
 public class QueryValueTest {
   public static void main(final String[] args) {
@@ -41,19 +46,47 @@ public class QueryValueTest {
     this.record.setValue("NAME", "foobar");
   }
 
+  public void assertBoundingBox(final double min, final double max,
+    final BoundingBox boundingBox) {
+    Assert.assertNotNull(boundingBox);
+    Assert.assertEquals(min, boundingBox.getMinX(), 0);
+    Assert.assertEquals(min, boundingBox.getMinY(), 0);
+    Assert.assertEquals(max, boundingBox.getMaxX(), 0);
+    Assert.assertEquals(max, boundingBox.getMaxY(), 0);
+  }
+
   public void assertConditionFalse(final Condition trueCondition1,
     final Record record) {
     final boolean result1 = trueCondition1.accept(record);
     Assert.assertFalse(result1);
+    final boolean result2 = trueCondition1.compile(
+      record.getRecordDefinition()).accept(record);
+    Assert.assertFalse(result2);
   }
 
   public void assertConditionTrue(final Condition trueCondition1,
     final Record record) {
     final boolean result1 = trueCondition1.accept(record);
     Assert.assertTrue(result1);
+    final boolean result2 = trueCondition1.compile(
+      record.getRecordDefinition()).accept(record);
+    Assert.assertTrue(result2);
+  }
+
+  /**
+   * Check the compiled condition gives the same result as the interpreted
+   * condition, without assuming what the result is.
+   */
+  public void assertCompiledEqualsInterpreted(final Condition condition,
+    final Record record) {
+    final boolean interpreted = condition.accept(record);
+    final boolean compiled = condition.compile(record.getRecordDefinition())
+      .accept(record);
+    Assert.assertEquals(condition.toString(), interpreted, compiled);
   }
 
   public void run() {
+    testBoundingBox();
     testEqual();
     testNotEqual();
     testLessThan();
@@ -69,6 +102,7 @@ public class QueryValueTest {
     testAnd();
     testOr();
     testNot();
+    testMismatchedNumberTypes();
   }
 
   private void testAnd() {
@@ -83,6 +117,37 @@ public class QueryValueTest {
     assertConditionFalse(falseCondition1, this.record);
   }
 
+  private void testBoundingBox() {
+    final BoundingBox boundingBox = new BoundingBoxDoubleGf(2, 0, 0, 10, 10);
+    final BoundingBox boundingBox2 = new BoundingBoxDoubleGf(2, 20, 20, 30,
+      30);
+    final Condition intersects = F.envelopeIntersects("GEOMETRY", boundingBox);
+    final Condition intersects2 = F.envelopeIntersects("GEOMETRY",
+      boundingBox2);
+    final Condition equal = Q.equal(this.idField, 10);
+
+    assertBoundingBox(0, 10,
+      QueryValue.getBoundingBox(new Query("Test", intersects)));
+    assertBoundingBox(0, 10,
+      QueryValue.getFilterBoundingBox(new Query("Test", intersects)));
+    assertBoundingBox(0, 10, QueryValue.getFilterBoundingBox(new Query("Test",
+      Q.and(equal, intersects))));
+    assertBoundingBox(0, 30, QueryValue.getFilterBoundingBox(new Query("Test",
+      Q.and(intersects, intersects2))));
+
+    // Records that don't intersect the bounding box can match an Or or Not
+    for (final Condition condition : Arrays.asList(Q.or(intersects, equal),
+      Q.or(equal, intersects), Q.not(intersects),
+      Q.and(equal, Q.or(intersects, equal)), Q.and(Q.not(intersects)))) {
+      final Query query = new Query("Test", condition);
+      Assert.assertNull(condition.toString(), QueryValue.getBoundingBox(query));
+      Assert.assertNull(condition.toString(),
+        QueryValue.getFilterBoundingBox(query));
+    }
+    Assert.assertNull(QueryValue.getFilterBoundingBox(new Query("Test", equal)));
+    Assert.assertNull(QueryValue.getFilterBoundingBox(new Query("Test")));
+  }
+
   private void testBetween() {
     final Condition trueCondition1 = Q.between(this.idField, 9, 10);
     assertConditionTrue(trueCondition1, this.record);
@@ -207,12 +272,45 @@ public class QueryValueTest {
     }
 
     for (final String like : Arrays.asList("%Foobar", "Foobar%", "%Foobar%",
-      "%Foo%", "%Bar%", "%O%b%")) {
+      "%Foo%", "%Bar%", "%O%b%", "foo.ar%", "%(o%")) {
       final Condition falseCondition = Q.like(this.nameAttribute, like);
       assertConditionFalse(falseCondition, this.record);
     }
   }
 
+  private void testMismatchedNumberTypes() {
+    for (final Object value : Arrays.<Object> asList(10, 10L, 10.0, 10.5, 9.5,
+      "10", "10.0", "10.5", 11.0f)) {
+      assertCompiledEqualsInterpreted(Q.equal(this.idField, value),
+        this.record);
+      assertCompiledEqualsInterpreted(Q.notEqual(this.idField, value),
+        this.record);
+      assertCompiledEqualsInterpreted(Q.in(this.idField, value), this.record);
+    }
+    for (final Object value : Arrays.<Object> asList(10, 10L, 10.0, 10.5, 9.5,
+      11.0f)) {
+      assertCompiledEqualsInterpreted(Q.lessThan(this.idField, value),
+        this.record);
+      assertCompiledEqualsInterpreted(Q.greaterThanEqual(this.idField, value),
+        this.record);
+    }
+    assertConditionFalse(Q.equal(this.idField, 10.5), this.record);
+    assertConditionTrue(Q.notEqual(this.idField, 10.5), this.record);
+    assertConditionFalse(Q.in(this.idField, 10.5, 11), this.record);
+
+    // A null allowed value or a null field value
+    for (final FieldDefinition field : Arrays.asList(this.idField,
+      this.descriptionAttribute)) {
+      assertCompiledEqualsInterpreted(Q.in(field, null, 10, 10.5), this.record);
+      assertCompiledEqualsInterpreted(Q.in(field, 10L, null, "10"),
+        this.record);
+      assertCompiledEqualsInterpreted(
+        Q.in(field, Arrays.asList((Object)null)), this.record);
+      assertCompiledEqualsInterpreted(Q.in(field, 11, 12), this.record);
+    }
+    assertConditionTrue(Q.in(this.idField, null, 10.5, 10), this.record);
+  }
+
   private void testNot() {
     final Condition trueCondition1 = Q.not(Q.equal(this.idField, 11));
     assertConditionTrue(trueCondition1, this.record);
@@ -0,0 +1,215 @@
+package com.revolsys.gis.graph;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.gis.algorithm.index.AbstractIdObjectGridIndex;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * Check a {@link Graph} with more than {@link Graph#getMaxEdgesInMemory()}
+ * edges that was written to disk. The changes to the edges of the nodes and
+ * the attributes must be written back, loop edges must use the same node for
+ * both ends, and the edge and node grid indexes must return the same objects as
+ * a scan of the graph, including for cells that were split because they had
+ * too many objects.
+ */
+public class GraphSpillTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(
+    3005, 2);
+
+  private static final int MAX_EDGES_IN_MEMORY = 20;
+
+  private static Edge<Object> addEdge(final Graph<Object> graph,
+    final double... coordinates) {
+    return graph.addEdge(null, GEOMETRY_FACTORY.lineString(2, coordinates));
+  }
+
+  private static void assertIndexes(final Graph<Object> graph,
+    final Random random) {
+    for (int i = 0; i < 200; i++) {
+      final double x = random.nextDouble() * 1100 - 50;
+      final double y = random.nextDouble() * 1100 - 50;
+      final double size;
+      if (i % 2 == 0) {
+        size = random.nextDouble() * 5;
+      } else {
+        size = random.nextDouble() * 200;
+      }
+      final BoundingBox boundingBox = new BoundingBoxDoubleGf(2, x, y, x
+        + size, y + size);
+
+      final Set<Integer> expectedEdgeIds = new TreeSet<>();
+      for (final Edge<Object> edge : graph.getEdges()) {
+        if (edge.getLine().getBoundingBox().intersects(boundingBox)) {
+          expectedEdgeIds.add(edge.getId());
+        }
+      }
+      final Set<Integer> edgeIds = new TreeSet<>();
+      for (final Edge<Object> edge : graph.getEdgeIndex().query(boundingBox)) {
+        edgeIds.add(edge.getId());
+      }
+      Assert.assertEquals(boundingBox.toString(), expectedEdgeIds, edgeIds);
+
+      final Set<Integer> expectedNodeIds = new TreeSet<>();
+      for (final Node<Object> node : graph.getNodes()) {
+        if (boundingBox.covers(node.getX(), node.getY())) {
+          expectedNodeIds.add(node.getId());
+        }
+      }
+      final Set<Integer> nodeIds = new TreeSet<>();
+      for (final Node<Object> node : graph.getNodeIndex().query(boundingBox)) {
+        nodeIds.add(node.getId());
+      }
+      Assert.assertEquals(boundingBox.toString(), expectedNodeIds, nodeIds);
+    }
+  }
+
+  private static void assertNodeDegree(final Graph<Object> graph,
+    final double x, final double y, final int degree) {
+    final Node<Object> node = graph.findNode(GEOMETRY_FACTORY.point(x, y));
+    if (degree == 0) {
+      Assert.assertNull(x + "," + y, node);
+    } else {
+      Assert.assertNotNull(x + "," + y, node);
+      Assert.assertEquals(x + "," + y, degree, node.getDegree());
+      Assert.assertEquals(x + "," + y, degree, graph.getNode(node.getId())
+        .getEdges()
+        .size());
+    }
+  }
+
+  private Graph<Object> graph;
+
+  @After
+  public void close() {
+    this.graph.close();
+  }
+
+  @Before
+  public void createGraph() {
+    this.graph = new Graph<Object>();
+    this.graph.setMaxEdgesInMemory(MAX_EDGES_IN_MEMORY);
+    // A 10 x 10 grid of horizontal and vertical edges
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        addEdge(this.graph, i * 100, j * 100, i * 100 + 100, j * 100);
+        addEdge(this.graph, i * 100, j * 100, i * 100, j * 100 + 100);
+      }
+    }
+    Assert.assertTrue(this.graph.getEdgeCount() > MAX_EDGES_IN_MEMORY);
+  }
+
+  @Test
+  public void testEdgeAttributes() {
+    final Edge<Object> edge = this.graph.getEdges().get(10);
+    final int edgeId = edge.getId();
+    edge.setAttribute("name", "a");
+    Assert.assertEquals("a", this.graph.getEdge(edgeId).getField("name"));
+
+    final Map<String, Object> attributes = new HashMap<>();
+    attributes.put("count", 2);
+    this.graph.getEdge(edgeId).setAttributes(attributes);
+    final Edge<Object> savedEdge = this.graph.getEdge(edgeId);
+    Assert.assertEquals("a", savedEdge.getField("name"));
+    Assert.assertEquals(Integer.valueOf(2), savedEdge.getField("count"));
+
+    savedEdge.setAttribute("name", "b");
+    Assert.assertEquals("b", this.graph.getEdge(edgeId).getField("name"));
+    Assert.assertEquals(Integer.valueOf(2),
+      this.graph.getEdge(edgeId).getField("count"));
+
+    final Node<Object> node = edge.getFromNode();
+    node.setAttribute("name", "c");
+    Assert.assertEquals("c", this.graph.getNode(node.getId())
+      .getField("name"));
+  }
+
+  /**
+   * Add edges after the indexes were created, with enough edges in a small
+   * area to split the cells, and remove some of the edges.
+   */
+  @Test
+  public void testIndexes() {
+    final Random random = new Random(1);
+    assertIndexes(this.graph, random);
+
+    for (int i = 0; i < AbstractIdObjectGridIndex.MAX_CELL_IDS * 4; i++) {
+      final double x = 510 + random.nextDouble() * 20;
+      final double y = 510 + random.nextDouble() * 20;
+      addEdge(this.graph, x, y, x + random.nextDouble() * 2,
+        y + random.nextDouble() * 2);
+    }
+    // Edges crossing the middle of the split cells
+    for (int i = 0; i < 20; i++) {
+      addEdge(this.graph, 505, 505 + i, 535, 505 + i);
+    }
+    // An edge that covers too many cells
+    addEdge(this.graph, 0, 0, 1000, 1000);
+    assertIndexes(this.graph, random);
+
+    for (final Edge<Object> edge : this.graph.getEdges()) {
+      if (edge.getId() % 3 == 0) {
+        this.graph.remove(edge);
+      }
+    }
+    assertIndexes(this.graph, random);
+  }
+
+  @Test
+  public void testLoopEdge() {
+    // The end of a grid edge
+    final Edge<Object> edge = addEdge(this.graph, 1000, 900, 1050, 900, 1050,
+      950, 1000, 900);
+    Assert.assertEquals(edge.getFromNode().getId(), edge.getToNode().getId());
+    assertNodeDegree(this.graph, 1000, 900, 3);
+
+    final Edge<Object> savedEdge = this.graph.getEdge(edge.getId());
+    Assert.assertEquals(savedEdge.getFromNode().getId(),
+      savedEdge.getToNode().getId());
+
+    this.graph.remove(savedEdge);
+    assertNodeDegree(this.graph, 1000, 900, 1);
+
+    final Edge<Object> loop = addEdge(this.graph, 2000, 2000, 2050, 2000,
+      2050, 2050, 2000, 2000);
+    assertNodeDegree(this.graph, 2000, 2000, 2);
+    this.graph.remove(loop);
+    assertNodeDegree(this.graph, 2000, 2000, 0);
+  }
+
+  /**
+   * The nodes read from disk are copies so adding and removing edges must
+   * write the edges of the nodes back.
+   */
+  @Test
+  public void testNodeEdges() {
+    assertNodeDegree(this.graph, 0, 0, 2);
+    assertNodeDegree(this.graph, 500, 500, 4);
+    assertNodeDegree(this.graph, 1000, 0, 1);
+
+    final Edge<Object> edge = addEdge(this.graph, 500, 500, 550, 550);
+    assertNodeDegree(this.graph, 500, 500, 5);
+    assertNodeDegree(this.graph, 550, 550, 1);
+
+    this.graph.remove(edge);
+    assertNodeDegree(this.graph, 500, 500, 4);
+    assertNodeDegree(this.graph, 550, 550, 0);
+
+    final Node<Object> node = this.graph.findNode(GEOMETRY_FACTORY.point(500,
+      500));
+    for (final Edge<Object> nodeEdge : node.getEdges()) {
+      Assert.assertTrue(nodeEdge.hasNode(node));
+    }
+  }
+}
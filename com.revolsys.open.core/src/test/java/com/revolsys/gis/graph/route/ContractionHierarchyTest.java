@@ -0,0 +1,296 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.gis.graph.Edge;
+import com.revolsys.gis.graph.Graph;
+import com.revolsys.gis.graph.Node;
+import com.revolsys.jts.geom.GeometryFactory;
+
+/**
+ * Check the costs and paths found by a {@link ContractionHierarchySearch} are
+ * the same as a Dijkstra search on the {@link Graph} and on the
+ * {@link RoutingGraph}, for a small graph with one way edges, different costs
+ * in each direction and nodes that can't be reached.
+ */
+public class ContractionHierarchyTest {
+  private static class Entry implements Comparable<Entry> {
+    private final Node<Object> node;
+
+    private final double cost;
+
+    public Entry(final Node<Object> node, final double cost) {
+      this.node = node;
+      this.cost = cost;
+    }
+
+    @Override
+    public int compareTo(final Entry entry) {
+      return Double.compare(this.cost, entry.cost);
+    }
+  }
+
+  /**
+   * Edges cost their length from the from node to the to node and 1.5 times
+   * their length in reverse, unless they are one way.
+   */
+  private static class OneWayCostFunction implements EdgeCostFunction<Object> {
+    private final Set<Integer> oneWayEdgeIds = new HashSet<>();
+
+    public void addOneWay(final Edge<Object> edge) {
+      this.oneWayEdgeIds.add(edge.getId());
+    }
+
+    @Override
+    public double getCost(final Edge<Object> edge) {
+      return edge.getLength();
+    }
+
+    @Override
+    public double getReverseCost(final Edge<Object> edge) {
+      if (this.oneWayEdgeIds.contains(edge.getId())) {
+        return Double.POSITIVE_INFINITY;
+      } else {
+        return edge.getLength() * 1.5;
+      }
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(
+    3005, 2);
+
+  private static final int GRID_SIZE = 8;
+
+  private static Edge<Object> addEdge(final Graph<Object> graph,
+    final double x1, final double y1, final double x2, final double y2) {
+    return graph.addEdge(null, GEOMETRY_FACTORY.lineString(2, x1, y1, x2, y2));
+  }
+
+  private static void assertPath(final String message,
+    final Graph<Object> graph, final RoutingGraph routingGraph,
+    final EdgeCostFunction<Object> costFunction, final int fromIndex,
+    final int toIndex, final int[] edgeIds, final double expectedCost) {
+    int nodeId = routingGraph.getNodeId(fromIndex);
+    double cost = 0;
+    for (final int edgeId : edgeIds) {
+      final Edge<Object> edge = graph.getEdge(edgeId);
+      if (edge.getFromNode().getId() == nodeId) {
+        cost += costFunction.getCost(edge);
+        nodeId = edge.getToNode().getId();
+      } else {
+        Assert.assertEquals(message, nodeId, edge.getToNode().getId());
+        cost += costFunction.getReverseCost(edge);
+        nodeId = edge.getFromNode().getId();
+      }
+    }
+    Assert.assertEquals(message, routingGraph.getNodeId(toIndex), nodeId);
+    Assert.assertEquals(message, expectedCost, cost, 1e-6);
+  }
+
+  private static void assertSameAsDijkstra(final Graph<Object> graph,
+    final EdgeCostFunction<Object> costFunction) {
+    final RoutingGraph routingGraph = RoutingGraph.create(graph, costFunction);
+    final ContractionHierarchy hierarchy = ContractionHierarchy.create(routingGraph);
+    final ShortestPathSearch search = new ShortestPathSearch(routingGraph);
+    final ContractionHierarchySearch hierarchySearch = new ContractionHierarchySearch(
+      hierarchy);
+    final int nodeCount = routingGraph.getNodeCount();
+    for (int fromIndex = 0; fromIndex < nodeCount; fromIndex++) {
+      final Node<Object> fromNode = graph.getNode(routingGraph.getNodeId(fromIndex));
+      final Map<Node<Object>, Double> costs = findCosts(fromNode,
+        costFunction);
+      for (int toIndex = 0; toIndex < nodeCount; toIndex++) {
+        final String message = fromIndex + "->" + toIndex;
+        final Node<Object> toNode = graph.getNode(routingGraph.getNodeId(toIndex));
+        double expectedCost = Double.POSITIVE_INFINITY;
+        if (costs.containsKey(toNode)) {
+          expectedCost = costs.get(toNode);
+        }
+
+        final double dijkstraCost = search.findPathDijkstra(fromIndex, toIndex);
+        final double hierarchyCost = hierarchySearch.findPath(fromIndex,
+          toIndex);
+        final int[] edgeIds = hierarchySearch.getEdgeIds();
+        if (Double.isInfinite(expectedCost)) {
+          Assert.assertTrue(message, Double.isInfinite(dijkstraCost));
+          Assert.assertTrue(message, Double.isInfinite(hierarchyCost));
+          Assert.assertEquals(message, 0, edgeIds.length);
+        } else {
+          Assert.assertEquals(message, expectedCost, dijkstraCost, 1e-6);
+          Assert.assertEquals(message, expectedCost, hierarchyCost, 1e-6);
+          assertPath(message, graph, routingGraph, costFunction, fromIndex,
+            toIndex, edgeIds, expectedCost);
+        }
+        if (fromIndex == toIndex) {
+          Assert.assertEquals(message, 0, hierarchyCost, 0);
+          Assert.assertEquals(message, 0, edgeIds.length);
+        }
+      }
+    }
+  }
+
+  /**
+   * Create a jittered grid with some edges missing, a separate triangle, a
+   * node that can only be entered and a node that can only be left. A quarter
+   * of the grid edges are one way.
+   */
+  private static Graph<Object> createGraph(
+    final OneWayCostFunction costFunction) {
+    final Random random = new Random(1);
+    final double[][] xs = new double[GRID_SIZE][GRID_SIZE];
+    final double[][] ys = new double[GRID_SIZE][GRID_SIZE];
+    for (int i = 0; i < GRID_SIZE; i++) {
+      for (int j = 0; j < GRID_SIZE; j++) {
+        xs[i][j] = i * 100 + random.nextDouble() * 40;
+        ys[i][j] = j * 100 + random.nextDouble() * 40;
+      }
+    }
+    final Graph<Object> graph = new Graph<Object>();
+    for (int i = 0; i < GRID_SIZE; i++) {
+      for (int j = 0; j < GRID_SIZE; j++) {
+        if (i + 1 < GRID_SIZE && random.nextInt(10) > 0) {
+          final Edge<Object> edge = addEdge(graph, xs[i][j], ys[i][j],
+            xs[i + 1][j], ys[i + 1][j]);
+          if (random.nextInt(4) == 0) {
+            costFunction.addOneWay(edge);
+          }
+        }
+        if (j + 1 < GRID_SIZE && random.nextInt(10) > 0) {
+          final Edge<Object> edge = addEdge(graph, xs[i][j + 1],
+            ys[i][j + 1], xs[i][j], ys[i][j]);
+          if (random.nextInt(4) == 0) {
+            costFunction.addOneWay(edge);
+          }
+        }
+      }
+    }
+    // Not connected to the grid
+    addEdge(graph, 5000, 5000, 5100, 5000);
+    addEdge(graph, 5100, 5000, 5050, 5100);
+    addEdge(graph, 5050, 5100, 5000, 5000);
+
+    // Can be reached from the grid but can't reach it
+    costFunction.addOneWay(addEdge(graph, xs[0][0], ys[0][0], -100, -100));
+    // Can reach the grid but can't be reached from it
+    costFunction.addOneWay(addEdge(graph, -100, 1000, xs[0][GRID_SIZE - 1],
+      ys[0][GRID_SIZE - 1]));
+    return graph;
+  }
+
+  /**
+   * Find the cost to each node that can be reached from the node using a
+   * Dijkstra search on the graph objects.
+   */
+  private static Map<Node<Object>, Double> findCosts(
+    final Node<Object> fromNode, final EdgeCostFunction<Object> costFunction) {
+    final Map<Node<Object>, Double> costs = new HashMap<Node<Object>, Double>();
+    final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+    costs.put(fromNode, 0.0);
+    queue.add(new Entry(fromNode, 0));
+    while (!queue.isEmpty()) {
+      final Entry entry = queue.poll();
+      final Node<Object> node = entry.node;
+      if (entry.cost <= costs.get(node)) {
+        for (final Edge<Object> edge : node.getEdges()) {
+          double edgeCost;
+          if (edge.getFromNode() == node) {
+            edgeCost = costFunction.getCost(edge);
+          } else {
+            edgeCost = costFunction.getReverseCost(edge);
+          }
+          if (!Double.isInfinite(edgeCost)) {
+            final Node<Object> oppositeNode = edge.getOppositeNode(node);
+            final double cost = entry.cost + edgeCost;
+            final Double oldCost = costs.get(oppositeNode);
+            if (oldCost == null || cost < oldCost) {
+              costs.put(oppositeNode, cost);
+              queue.add(new Entry(oppositeNode, cost));
+            }
+          }
+        }
+      }
+    }
+    return costs;
+  }
+
+  /**
+   * Get the index of the node nearest the point.
+   */
+  private static int getNodeIndex(final RoutingGraph routingGraph,
+    final double x, final double y) {
+    int nearestIndex = -1;
+    double nearestDistance = Double.MAX_VALUE;
+    for (int i = 0; i < routingGraph.getNodeCount(); i++) {
+      final double distance = Math.hypot(routingGraph.getX(i) - x,
+        routingGraph.getY(i) - y);
+      if (distance < nearestDistance) {
+        nearestIndex = i;
+        nearestDistance = distance;
+      }
+    }
+    return nearestIndex;
+  }
+
+  @Test
+  public void testAllOneWay() {
+    final OneWayCostFunction costFunction = new OneWayCostFunction();
+    final Graph<Object> graph = createGraph(costFunction);
+    assertSameAsDijkstra(graph, new EdgeLengthCostFunction<Object>(true));
+  }
+
+  @Test
+  public void testOneWay() {
+    final OneWayCostFunction costFunction = new OneWayCostFunction();
+    final Graph<Object> graph = createGraph(costFunction);
+    assertSameAsDijkstra(graph, costFunction);
+  }
+
+  @Test
+  public void testTwoWay() {
+    final Graph<Object> graph = createGraph(new OneWayCostFunction());
+    assertSameAsDijkstra(graph, new EdgeLengthCostFunction<Object>());
+  }
+
+  @Test
+  public void testUnreachable() {
+    final OneWayCostFunction costFunction = new OneWayCostFunction();
+    final Graph<Object> graph = createGraph(costFunction);
+    final RoutingGraph routingGraph = RoutingGraph.create(graph, costFunction);
+    final ContractionHierarchySearch search = new ContractionHierarchySearch(
+      ContractionHierarchy.create(routingGraph));
+    final int bottomIndex = getNodeIndex(routingGraph, 0, 0);
+    final int topIndex = getNodeIndex(routingGraph, 0, (GRID_SIZE - 1) * 100);
+    final int triangleIndex = getNodeIndex(routingGraph, 5000, 5000);
+    final int enterOnlyIndex = getNodeIndex(routingGraph, -100, -100);
+    final int leaveOnlyIndex = getNodeIndex(routingGraph, -100, 1000);
+
+    Assert.assertTrue(Double.isInfinite(search.findPath(bottomIndex,
+      triangleIndex)));
+    Assert.assertTrue(Double.isInfinite(search.findPath(triangleIndex,
+      bottomIndex)));
+    Assert.assertFalse(Double.isInfinite(search.findPath(bottomIndex,
+      enterOnlyIndex)));
+    Assert.assertEquals(1, search.getEdgeIds().length);
+    Assert.assertTrue(Double.isInfinite(search.findPath(enterOnlyIndex,
+      bottomIndex)));
+    Assert.assertEquals(0, search.getEdgeIds().length);
+    Assert.assertFalse(Double.isInfinite(search.findPath(leaveOnlyIndex,
+      topIndex)));
+    Assert.assertEquals(1, search.getEdgeIds().length);
+    Assert.assertTrue(Double.isInfinite(search.findPath(topIndex,
+      leaveOnlyIndex)));
+    Assert.assertTrue(Double.isInfinite(search.findPath(enterOnlyIndex,
+      leaveOnlyIndex)));
+    Assert.assertTrue(Double.isInfinite(search.findPath(leaveOnlyIndex,
+      triangleIndex)));
+    Assert.assertEquals(0, search.getEdgeIds().length);
+  }
+}
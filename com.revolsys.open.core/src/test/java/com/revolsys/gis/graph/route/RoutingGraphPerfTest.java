@@ -0,0 +1,188 @@
+package com.revolsys.gis.graph.route;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import com.revolsys.gis.graph.Edge;
+import com.revolsys.gis.graph.Graph;
+import com.revolsys.gis.graph.Node;
+import com.revolsys.jts.geom.GeometryFactory;
+
+/**
+ * Compare the time for shortest path queries on a grid shaped road network
+ * using a Dijkstra search on the {@link Graph} objects, Dijkstra and A*
+ * searches on a {@link RoutingGraph} and a {@link ContractionHierarchy}. The
+ * costs of the paths found by each method are checked to be the same.
+ */
+public class RoutingGraphPerfTest {
+  private static class Entry implements Comparable<Entry> {
+    private final Node<Object> node;
+
+    private final double cost;
+
+    public Entry(final Node<Object> node, final double cost) {
+      this.node = node;
+      this.cost = cost;
+    }
+
+    @Override
+    public int compareTo(final Entry entry) {
+      return Double.compare(this.cost, entry.cost);
+    }
+  }
+
+  private static final int GRID_SIZE = 200;
+
+  private static final int QUERY_COUNT = 200;
+
+  private static void checkCost(final String name, final double expected,
+    final double actual) {
+    if (Math.abs(expected - actual) > 1e-6) {
+      throw new IllegalStateException(name + " cost " + actual + " != "
+        + expected);
+    }
+  }
+
+  private static Graph<Object> createGraph() {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(3005, 2);
+    final Random random = new Random(1);
+    final double[][] xs = new double[GRID_SIZE][GRID_SIZE];
+    final double[][] ys = new double[GRID_SIZE][GRID_SIZE];
+    for (int i = 0; i < GRID_SIZE; i++) {
+      for (int j = 0; j < GRID_SIZE; j++) {
+        xs[i][j] = i * 100 + random.nextDouble() * 40;
+        ys[i][j] = j * 100 + random.nextDouble() * 40;
+      }
+    }
+    final Graph<Object> graph = new Graph<Object>();
+    for (int i = 0; i < GRID_SIZE; i++) {
+      for (int j = 0; j < GRID_SIZE; j++) {
+        if (i + 1 < GRID_SIZE && random.nextInt(10) > 0) {
+          graph.addEdge(null, geometryFactory.lineString(2, xs[i][j],
+            ys[i][j], xs[i + 1][j], ys[i + 1][j]));
+        }
+        if (j + 1 < GRID_SIZE && random.nextInt(10) > 0) {
+          graph.addEdge(null, geometryFactory.lineString(2, xs[i][j],
+            ys[i][j], xs[i][j + 1], ys[i][j + 1]));
+        }
+      }
+    }
+    return graph;
+  }
+
+  private static double findPath(final Node<Object> fromNode,
+    final Node<Object> toNode) {
+    final Map<Node<Object>, Double> costs = new HashMap<Node<Object>, Double>();
+    final PriorityQueue<Entry> queue = new PriorityQueue<Entry>();
+    costs.put(fromNode, 0.0);
+    queue.add(new Entry(fromNode, 0));
+    while (!queue.isEmpty()) {
+      final Entry entry = queue.poll();
+      final Node<Object> node = entry.node;
+      if (entry.cost <= costs.get(node)) {
+        if (node == toNode) {
+          return entry.cost;
+        }
+        for (final Edge<Object> edge : node.getEdges()) {
+          final Node<Object> oppositeNode = edge.getOppositeNode(node);
+          final double cost = entry.cost + edge.getLength();
+          final Double oldCost = costs.get(oppositeNode);
+          if (oldCost == null || cost < oldCost) {
+            costs.put(oppositeNode, cost);
+            queue.add(new Entry(oppositeNode, cost));
+          }
+        }
+      }
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+  public static void main(final String[] args) {
+    long time = System.currentTimeMillis();
+    final Graph<Object> graph = createGraph();
+    System.out.println("Graph " + graph.getNodeIds().size() + " nodes "
+      + graph.getEdgeCount() + " edges "
+      + (System.currentTimeMillis() - time) + "ms");
+
+    time = System.currentTimeMillis();
+    final RoutingGraph routingGraph = RoutingGraph.create(graph,
+      new EdgeLengthCostFunction<Object>());
+    System.out.println("RoutingGraph " + routingGraph.getArcCount() + " arcs "
+      + (System.currentTimeMillis() - time) + "ms");
+
+    time = System.currentTimeMillis();
+    final ContractionHierarchy hierarchy = ContractionHierarchy.create(routingGraph);
+    System.out.println("ContractionHierarchy " + hierarchy.getShortcutCount()
+      + " shortcuts " + (System.currentTimeMillis() - time) + "ms");
+
+    final Random random = new Random(2);
+    final int nodeCount = routingGraph.getNodeCount();
+    final int[] fromNodes = new int[QUERY_COUNT];
+    final int[] toNodes = new int[QUERY_COUNT];
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      fromNodes[i] = random.nextInt(nodeCount);
+      toNodes[i] = random.nextInt(nodeCount);
+    }
+    final double[] expectedCosts = new double[QUERY_COUNT];
+
+    time = System.nanoTime();
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      final Node<Object> fromNode = graph.getNode(routingGraph.getNodeId(fromNodes[i]));
+      final Node<Object> toNode = graph.getNode(routingGraph.getNodeId(toNodes[i]));
+      expectedCosts[i] = findPath(fromNode, toNode);
+    }
+    printTime("Graph Dijkstra", time);
+
+    final ShortestPathSearch search = new ShortestPathSearch(routingGraph);
+    for (int run = 0; run < 2; run++) {
+      time = System.nanoTime();
+      long settledCount = 0;
+      for (int i = 0; i < QUERY_COUNT; i++) {
+        final double cost = search.findPathDijkstra(fromNodes[i], toNodes[i]);
+        checkCost("Dijkstra", expectedCosts[i], cost);
+        settledCount += search.getSettledCount();
+      }
+      printTime("RoutingGraph Dijkstra settled=" + settledCount / QUERY_COUNT,
+        time);
+
+      time = System.nanoTime();
+      settledCount = 0;
+      for (int i = 0; i < QUERY_COUNT; i++) {
+        final double cost = search.findPathAStar(fromNodes[i], toNodes[i]);
+        checkCost("A*", expectedCosts[i], cost);
+        settledCount += search.getSettledCount();
+      }
+      printTime("RoutingGraph A* settled=" + settledCount / QUERY_COUNT, time);
+    }
+
+    final ContractionHierarchySearch hierarchySearch = new ContractionHierarchySearch(
+      hierarchy);
+    for (int run = 0; run < 2; run++) {
+      time = System.nanoTime();
+      long settledCount = 0;
+      for (int i = 0; i < QUERY_COUNT; i++) {
+        final double cost = hierarchySearch.findPath(fromNodes[i], toNodes[i]);
+        checkCost("Contraction hierarchy", expectedCosts[i], cost);
+        settledCount += hierarchySearch.getSettledCount();
+      }
+      printTime("ContractionHierarchy settled=" + settledCount / QUERY_COUNT,
+        time);
+    }
+
+    for (int i = 0; i < QUERY_COUNT; i++) {
+      hierarchySearch.findPath(fromNodes[i], toNodes[i]);
+      double pathCost = 0;
+      for (final int edgeId : hierarchySearch.getEdgeIds()) {
+        pathCost += graph.getEdge(edgeId).getLength();
+      }
+      checkCost("Contraction hierarchy path", expectedCosts[i], pathCost);
+    }
+  }
+
+  private static void printTime(final String name, final long startTime) {
+    final double time = (System.nanoTime() - startTime) / 1000000.0;
+    System.out.println(name + " " + time / QUERY_COUNT + "ms/query");
+  }
+}
@@ -0,0 +1,183 @@
+package com.revolsys.gis.parallel;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.record.ArrayRecord;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.parallel.channel.Channel;
+
+/**
+ * Check the records are sorted (and equal records keep their order) when they
+ * are sorted in memory, merged from several runs and merged from more runs
+ * than can be merged at once. Also check the run files are deleted if writing
+ * the sorted records fails.
+ */
+public class ExternalSortTest {
+  /**
+   * A channel that saves the records written to it, failing after a number of
+   * records.
+   */
+  private static class ListChannel extends Channel<Record> {
+    private final List<Record> records = new ArrayList<>();
+
+    private final int failAfter;
+
+    public ListChannel(final int failAfter) {
+      this.failAfter = failAfter;
+    }
+
+    @Override
+    public void write(final Record record) {
+      if (this.records.size() == this.failAfter) {
+        throw new IllegalStateException("Write failed");
+      }
+      this.records.add(record);
+    }
+  }
+
+  /** Each record with the estimated size of the test records. */
+  private static final int RECORD_SIZE = 128;
+
+  private static final FilenameFilter RUN_FILTER = new FilenameFilter() {
+    @Override
+    public boolean accept(final File directory, final String name) {
+      return name.startsWith("sort") && name.endsWith(".bin");
+    }
+  };
+
+  private static Set<String> getRunFiles() {
+    final File directory = new File(System.getProperty("java.io.tmpdir"));
+    final String[] names = directory.list(RUN_FILTER);
+    if (names == null) {
+      return new HashSet<>();
+    } else {
+      return new HashSet<>(Arrays.asList(names));
+    }
+  }
+
+  private final RecordDefinitionImpl recordDefinition;
+
+  public ExternalSortTest() {
+    this.recordDefinition = new RecordDefinitionImpl("/Test");
+    this.recordDefinition.addField("ID", DataTypes.INT, true);
+    this.recordDefinition.addField("VALUE", DataTypes.INT, false);
+  }
+
+  private List<Record> createRecords(final int count) {
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      final Record record = new ArrayRecord(this.recordDefinition);
+      record.setValue("ID", i);
+      // Lots of equal values, with some nulls
+      if (i % 17 != 0) {
+        record.setValue("VALUE", i * 7919 % 50);
+      }
+      records.add(record);
+    }
+    return records;
+  }
+
+  private ExternalSort createSort(final int recordsPerChunk) {
+    final ExternalSort sort = new ExternalSort();
+    sort.setFieldName("VALUE");
+    sort.setThreadCount(2);
+    // The chunk budget is the memory budget / (thread count + 1)
+    sort.setMemoryBudget(3L * RECORD_SIZE * recordsPerChunk);
+    return sort;
+  }
+
+  private void assertSorted(final List<Record> records, final int count) {
+    Assert.assertEquals(count, records.size());
+    final Set<Integer> ids = new HashSet<>();
+    for (int i = 0; i < records.size(); i++) {
+      final Record record = records.get(i);
+      Assert.assertTrue("Duplicate", ids.add(record.getInteger("ID")));
+      if (i > 0) {
+        final Record previous = records.get(i - 1);
+        final Integer previousValue = previous.getInteger("VALUE");
+        final Integer value = record.getInteger("VALUE");
+        final boolean stable = previous.getInteger("ID") < record.getInteger("ID");
+        if (value == null) {
+          if (previousValue == null) {
+            Assert.assertTrue("Stable", stable);
+          }
+        } else {
+          Assert.assertNotNull("Nulls are last", previousValue);
+          Assert.assertTrue(previousValue <= value);
+          if (previousValue.equals(value)) {
+            Assert.assertTrue("Stable", stable);
+          }
+        }
+      }
+    }
+  }
+
+  private List<Record> sort(final ExternalSort sort, final int count) {
+    final ListChannel out = new ListChannel(-1);
+    for (final Record record : createRecords(count)) {
+      sort.process(null, out, record);
+    }
+    sort.postRun(null, out);
+    return out.records;
+  }
+
+  private void assertSort(final int recordsPerChunk, final int count) {
+    final Set<String> runFiles = getRunFiles();
+    final List<Record> records = sort(createSort(recordsPerChunk), count);
+    assertSorted(records, count);
+    Assert.assertEquals("Run files deleted", runFiles, getRunFiles());
+  }
+
+  @Test
+  public void testEmpty() {
+    assertSort(5, 0);
+  }
+
+  @Test
+  public void testInMemory() {
+    assertSort(1000, 500);
+  }
+
+  @Test
+  public void testManyRuns() {
+    // More than the 128 runs that are merged at once
+    assertSort(5, 1000);
+  }
+
+  @Test
+  public void testRuns() {
+    assertSort(10, 95);
+  }
+
+  @Test
+  public void testWriteFailure() {
+    final Set<String> runFiles = getRunFiles();
+    final ExternalSort sort = createSort(5);
+    final ListChannel out = new ListChannel(100);
+    for (final Record record : createRecords(1000)) {
+      sort.process(null, out, record);
+    }
+    try {
+      sort.postRun(null, out);
+      Assert.fail("Expected the write to fail");
+    } catch (final IllegalStateException e) {
+      Assert.assertEquals("Write failed", e.getMessage());
+    }
+    Assert.assertEquals(100, out.records.size());
+    Assert.assertEquals("Run files deleted", runFiles, getRunFiles());
+
+    // The sort can be used again
+    assertSorted(sort(sort, 200), 200);
+  }
+}
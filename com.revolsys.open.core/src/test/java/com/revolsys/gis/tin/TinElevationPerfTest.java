@@ -0,0 +1,94 @@
+package com.revolsys.gis.tin;
+
+import java.util.Random;
+
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+import com.revolsys.jts.geom.impl.PointDouble;
+
+/**
+ * Build a TIN from random nodes on a plane and check that the elevations from
+ * the {@link TriangleMesh} match the plane, then compare the time to locate
+ * points using the mesh with the time using the triangle R-tree.
+ */
+public class TinElevationPerfTest {
+  private static final int NODE_COUNT = 20000;
+
+  private static final int POINT_COUNT = 1000000;
+
+  private static final int RTREE_POINT_COUNT = 2000;
+
+  private static final double EXTENT = 10000;
+
+  private static double getPlaneZ(final double x, final double y) {
+    return 5 + 0.02 * x + 0.03 * y;
+  }
+
+  public static void main(final String[] args) {
+    final Random random = new Random(1);
+    final GeometryFactory geometryFactory = GeometryFactory.fixed(26910,
+      1000.0, 1000.0);
+    final BoundingBox boundingBox = new BoundingBoxDoubleGf(geometryFactory,
+      2, 0, 0, EXTENT, EXTENT);
+    final TriangulatedIrregularNetwork tin = new TriangulatedIrregularNetwork(
+      geometryFactory, boundingBox);
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < NODE_COUNT; i++) {
+      final double x = Math.round(random.nextDouble() * EXTENT);
+      final double y = Math.round(random.nextDouble() * EXTENT);
+      tin.insertNode(new PointDouble(x, y, getPlaneZ(x, y)));
+    }
+    tin.finishEditing();
+    System.out.println("Insert " + NODE_COUNT + " nodes "
+      + (System.currentTimeMillis() - time) + "ms");
+
+    time = System.currentTimeMillis();
+    final TriangleMesh mesh = tin.getMesh();
+    System.out.println("Mesh " + mesh.getTriangleCount() + " triangles "
+      + (System.currentTimeMillis() - time) + "ms");
+
+    // Points along random walks, like the vertices of lines
+    final double[] coordinates = new double[POINT_COUNT * 3];
+    double x = EXTENT / 2;
+    double y = EXTENT / 2;
+    for (int i = 0; i < POINT_COUNT; i++) {
+      x = Math.max(EXTENT * 0.2,
+        Math.min(EXTENT * 0.8, x + (random.nextDouble() - 0.5) * 100));
+      y = Math.max(EXTENT * 0.2,
+        Math.min(EXTENT * 0.8, y + (random.nextDouble() - 0.5) * 100));
+      coordinates[i * 3] = x;
+      coordinates[i * 3 + 1] = y;
+    }
+    for (int run = 0; run < 3; run++) {
+      time = System.nanoTime();
+      final double[] elevations = tin.getElevations(coordinates, 3);
+      final long batchTime = System.nanoTime() - time;
+
+      time = System.nanoTime();
+      for (int i = 0; i < POINT_COUNT; i++) {
+        mesh.getElevation(coordinates[i * 3], coordinates[i * 3 + 1]);
+      }
+      final long pointTime = System.nanoTime() - time;
+
+      time = System.nanoTime();
+      for (int i = 0; i < RTREE_POINT_COUNT; i++) {
+        tin.getTriangles(new PointDouble(coordinates[i * 3],
+          coordinates[i * 3 + 1]));
+      }
+      final long rTreeTime = (System.nanoTime() - time) * POINT_COUNT
+        / RTREE_POINT_COUNT;
+      for (int i = 0; i < POINT_COUNT; i++) {
+        final double expected = getPlaneZ(coordinates[i * 3],
+          coordinates[i * 3 + 1]);
+        if (Math.abs(elevations[i] - expected) > 0.001) {
+          throw new IllegalStateException("Point " + i + " expected "
+            + expected + " not " + elevations[i]);
+        }
+      }
+      System.out.println("Mesh batch " + batchTime / 1000000 + "ms, mesh "
+        + pointTime / 1000000 + "ms, R-tree (estimated) " + rTreeTime
+        / 1000000 + "ms for " + POINT_COUNT + " points");
+    }
+  }
+}
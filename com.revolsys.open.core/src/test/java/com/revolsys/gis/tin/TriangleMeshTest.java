@@ -0,0 +1,177 @@
+package com.revolsys.gis.tin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jts.geom.impl.PointDouble;
+
+/**
+ * Check the elevations from a {@link TriangleMesh} for points inside
+ * triangles, on vertices, on edges and outside the mesh, for a convex mesh and
+ * for a concave mesh where the walk leaves the mesh before reaching the point.
+ */
+public class TriangleMeshTest {
+  private static void addSquare(final List<Triangle> triangles,
+    final double minX, final double minY, final double size) {
+    final PointDouble p0 = point(minX, minY);
+    final PointDouble p1 = point(minX + size, minY);
+    final PointDouble p2 = point(minX + size, minY + size);
+    final PointDouble p3 = point(minX, minY + size);
+    triangles.add(new Triangle(p0, p1, p2));
+    // Counter clockwise to check the mesh orders the vertices
+    triangles.add(new Triangle(p0, p3, p2));
+  }
+
+  private static void assertElevation(final TriangleMesh mesh,
+    final double x, final double y) {
+    Assert.assertEquals(x + "," + y, getPlaneZ(x, y),
+      mesh.getElevation(x, y), 1e-9);
+  }
+
+  private static void assertOutside(final TriangleMesh mesh, final double x,
+    final double y) {
+    Assert.assertTrue(x + "," + y, Double.isNaN(mesh.getElevation(x, y)));
+    Assert.assertEquals(x + "," + y, -1, mesh.getTriangleIndex(-1, x, y));
+  }
+
+  /**
+   * Create a U shaped mesh of 10 x 10 squares, 3 squares wide and 2 high with
+   * the top middle square missing.
+   */
+  private static TriangleMesh createConcaveMesh() {
+    final List<Triangle> triangles = new ArrayList<>();
+    addSquare(triangles, 0, 0, 10);
+    addSquare(triangles, 10, 0, 10);
+    addSquare(triangles, 20, 0, 10);
+    addSquare(triangles, 0, 10, 10);
+    addSquare(triangles, 20, 10, 10);
+    return new TriangleMesh(triangles);
+  }
+
+  private static TriangleMesh createConvexMesh() {
+    final List<Triangle> triangles = new ArrayList<>();
+    addSquare(triangles, 0, 0, 10);
+    return new TriangleMesh(triangles);
+  }
+
+  private static double getPlaneZ(final double x, final double y) {
+    return 1 + x + 2 * y;
+  }
+
+  private static PointDouble point(final double x, final double y) {
+    return new PointDouble(x, y, getPlaneZ(x, y));
+  }
+
+  @Test
+  public void testConcave() {
+    final TriangleMesh mesh = createConcaveMesh();
+    Assert.assertEquals(10, mesh.getTriangleCount());
+    for (final double[] point : new double[][] {
+      {
+        5, 15
+      }, {
+        25, 15
+      }, {
+        15, 5
+      }, {
+        29, 19
+      }, {
+        1, 19
+      }
+    }) {
+      assertElevation(mesh, point[0], point[1]);
+    }
+    // In the bounding box but in the gap between the arms
+    assertOutside(mesh, 15, 15);
+    assertOutside(mesh, 11, 19);
+    // On the edges and corners of the gap
+    assertElevation(mesh, 10, 15);
+    assertElevation(mesh, 20, 20);
+    assertElevation(mesh, 15, 10);
+
+    // Walk from the left arm to the right arm, leaving the mesh at the gap
+    final int leftIndex = mesh.getTriangleIndex(-1, 5, 15);
+    final int rightIndex = mesh.getTriangleIndex(leftIndex, 25, 15);
+    Assert.assertNotEquals(-1, rightIndex);
+    Assert.assertEquals(rightIndex, mesh.getTriangleIndex(-1, 25, 15));
+    Assert.assertEquals(leftIndex, mesh.getTriangleIndex(rightIndex, 5, 15));
+
+    final double[] elevations = mesh.getElevations(new double[] {
+      5, 15, 25, 15, 15, 15, 5, 18, 28, 12
+    }, 2);
+    Assert.assertEquals(getPlaneZ(5, 15), elevations[0], 1e-9);
+    Assert.assertEquals(getPlaneZ(25, 15), elevations[1], 1e-9);
+    Assert.assertTrue(Double.isNaN(elevations[2]));
+    Assert.assertEquals(getPlaneZ(5, 18), elevations[3], 1e-9);
+    Assert.assertEquals(getPlaneZ(28, 12), elevations[4], 1e-9);
+  }
+
+  @Test
+  public void testEdges() {
+    final TriangleMesh mesh = createConvexMesh();
+    // The shared diagonal
+    assertElevation(mesh, 5, 5);
+    assertElevation(mesh, 2.5, 2.5);
+    // The boundary
+    assertElevation(mesh, 5, 0);
+    assertElevation(mesh, 10, 5);
+    assertElevation(mesh, 5, 10);
+    assertElevation(mesh, 0, 5);
+  }
+
+  @Test
+  public void testInterior() {
+    final TriangleMesh mesh = createConvexMesh();
+    Assert.assertEquals(2, mesh.getTriangleCount());
+    Assert.assertEquals(4 * 3, mesh.getVertices().length);
+    assertElevation(mesh, 7, 2);
+    assertElevation(mesh, 2, 7);
+    assertElevation(mesh, 9.99, 0.01);
+
+    final double[] elevations = mesh.getElevations(new double[] {
+      1, 2, 100, 3, 4, 200, 8, 9, 300
+    }, 3);
+    Assert.assertEquals(3, elevations.length);
+    Assert.assertEquals(getPlaneZ(1, 2), elevations[0], 1e-9);
+    Assert.assertEquals(getPlaneZ(3, 4), elevations[1], 1e-9);
+    Assert.assertEquals(getPlaneZ(8, 9), elevations[2], 1e-9);
+  }
+
+  @Test
+  public void testOutside() {
+    final TriangleMesh mesh = createConvexMesh();
+    assertOutside(mesh, -1, 5);
+    assertOutside(mesh, 5, -0.001);
+    assertOutside(mesh, 11, 11);
+    assertOutside(mesh, 5, 100);
+
+    final double[] elevations = mesh.getElevations(new double[] {
+      5, 5, -5, -5, 6, 6
+    }, 2);
+    Assert.assertEquals(getPlaneZ(5, 5), elevations[0], 1e-9);
+    Assert.assertTrue(Double.isNaN(elevations[1]));
+    Assert.assertEquals(getPlaneZ(6, 6), elevations[2], 1e-9);
+
+    final TriangleMesh emptyMesh = new TriangleMesh(new ArrayList<Triangle>());
+    Assert.assertTrue(Double.isNaN(emptyMesh.getElevation(0, 0)));
+  }
+
+  @Test
+  public void testVertices() {
+    final TriangleMesh mesh = createConvexMesh();
+    assertElevation(mesh, 0, 0);
+    assertElevation(mesh, 10, 0);
+    assertElevation(mesh, 10, 10);
+    assertElevation(mesh, 0, 10);
+
+    final TriangleMesh concaveMesh = createConcaveMesh();
+    // Vertices shared by several triangles, including on the gap
+    assertElevation(concaveMesh, 10, 10);
+    assertElevation(concaveMesh, 20, 10);
+    assertElevation(concaveMesh, 10, 20);
+    assertElevation(concaveMesh, 30, 20);
+  }
+}
@@ -0,0 +1,198 @@
+package com.revolsys.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.record.ArrayRecord;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.RecordState;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataType;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+
+/**
+ * Check each type of value and geometry can be written and read back using a
+ * {@link RecordBinaryCodec}.
+ */
+public class RecordBinaryCodecTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed(
+    26910, 1000.0);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_3D = GeometryFactory.floating(
+    4326, 3);
+
+  private final RecordBinaryCodec codec = new RecordBinaryCodec();
+
+  private byte[] write(final List<Record> records) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (
+      DataOutputStream out = new DataOutputStream(bytes)) {
+      for (final Record record : records) {
+        this.codec.writeRecord(out, record);
+      }
+      this.codec.writeEnd(out);
+    }
+    return bytes.toByteArray();
+  }
+
+  private Object roundTrip(final Object value, final DataType dataType)
+    throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (
+      DataOutputStream out = new DataOutputStream(bytes)) {
+      this.codec.writeValue(out, value);
+    }
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+      bytes.toByteArray()));
+    final Object copy = this.codec.readValue(in, dataType);
+    Assert.assertEquals("Unread bytes", -1, in.read());
+    return copy;
+  }
+
+  @Test
+  public void testGeometries() throws IOException {
+    final List<Geometry> geometries = new ArrayList<>();
+    for (final String wkt : new String[] {
+      "POINT(1 2)",
+      "POINT EMPTY",
+      "LINESTRING(1 2,3.001 4.002,-5 -6)",
+      "LINESTRING EMPTY",
+      "POLYGON((0 0,10 0,10 10,0 10,0 0),(2 2,2 4,4 4,4 2,2 2))",
+      "POLYGON EMPTY",
+      "MULTIPOINT((1 2),(3 4))",
+      "MULTILINESTRING((1 2,3 4),(5 6,7 8))",
+      "MULTIPOLYGON(((0 0,10 0,10 10,0 0)),((20 20,30 20,30 30,20 20)))",
+      "GEOMETRYCOLLECTION(POINT(1 2),LINESTRING(1 2,3 4))"
+    }) {
+      geometries.add(GEOMETRY_FACTORY.geometry(wkt));
+    }
+    geometries.add(GEOMETRY_FACTORY.linearRing(2, 0, 0, 10, 0, 10, 10, 0, 0));
+    geometries.add(GEOMETRY_FACTORY_3D.geometry("LINESTRING(1 2 3,4 5 6)"));
+    geometries.add(GEOMETRY_FACTORY_3D.geometry("POINT(1.5 2.5 -3.5)"));
+
+    for (final Geometry geometry : geometries) {
+      final Geometry copy = (Geometry)roundTrip(geometry, DataTypes.GEOMETRY);
+      Assert.assertEquals(geometry.toString(), geometry.getClass(),
+        copy.getClass());
+      Assert.assertSame(geometry.getGeometryFactory(),
+        copy.getGeometryFactory());
+      Assert.assertEquals(geometry.getAxisCount(), copy.getAxisCount());
+      Assert.assertTrue(geometry.toString(),
+        geometry.equals(geometry.getAxisCount(), copy));
+    }
+  }
+
+  @Test
+  public void testRecords() throws IOException {
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      "/Test");
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("NAME", DataTypes.STRING, false);
+    recordDefinition.addField("GEOMETRY", DataTypes.GEOMETRY, false);
+    final RecordDefinitionImpl recordDefinition2 = new RecordDefinitionImpl(
+      "/Test2");
+    recordDefinition2.addField("VALUE", DataTypes.DOUBLE, false);
+
+    final List<Record> records = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      final Record record = new ArrayRecord(recordDefinition);
+      record.setValue("ID", i);
+      if (i != 1) {
+        record.setValue("NAME", "Name " + i);
+        record.setValue("GEOMETRY", GEOMETRY_FACTORY.point(i, i * 2));
+      }
+      records.add(record);
+
+      final Record record2 = new ArrayRecord(recordDefinition2);
+      record2.setValue("VALUE", i + 0.5);
+      record2.setState(RecordState.Persisted);
+      records.add(record2);
+    }
+
+    final byte[] bytes = write(records);
+    final DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+      bytes));
+    for (final Record record : records) {
+      final Record copy = this.codec.readRecord(in);
+      Assert.assertSame(record.getRecordDefinition(),
+        copy.getRecordDefinition());
+      Assert.assertEquals(record.getState(), copy.getState());
+      Assert.assertEquals(record.getValues(), copy.getValues());
+    }
+    Assert.assertNull(this.codec.readRecord(in));
+  }
+
+  @Test
+  public void testValues() throws IOException {
+    final Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    final Object[][] values = {
+      {
+        null, DataTypes.STRING
+      }, {
+        "", DataTypes.STRING
+      }, {
+        "caf\u00e9 \u6771\u4eac \ud83d\ude00", DataTypes.STRING
+      }, {
+        Integer.MIN_VALUE, DataTypes.INT
+      }, {
+        Long.MAX_VALUE, DataTypes.LONG
+      }, {
+        -0.0, DataTypes.DOUBLE
+      }, {
+        Double.NaN, DataTypes.DOUBLE
+      }, {
+        1.5f, DataTypes.FLOAT
+      }, {
+        (short)-12345, DataTypes.SHORT
+      }, {
+        (byte)-128, DataTypes.BYTE
+      }, {
+        Boolean.TRUE, DataTypes.BOOLEAN
+      }, {
+        Boolean.FALSE, DataTypes.BOOLEAN
+      }, {
+        new BigDecimal("-12345678901234567890.0012300"), DataTypes.DECIMAL
+      }, {
+        new BigInteger("123456789012345678901234567890"), DataTypes.INTEGER
+      }, {
+        new Date(1234567890123L), DataTypes.DATE_TIME
+      }, {
+        new java.sql.Date(1234567890123L), DataTypes.DATE
+      }, {
+        timestamp, DataTypes.DATE_TIME
+      }
+    };
+    for (final Object[] row : values) {
+      final Object value = row[0];
+      final Object copy = roundTrip(value, (DataType)row[1]);
+      Assert.assertEquals(String.valueOf(value), value, copy);
+      if (value != null) {
+        Assert.assertEquals(value.getClass(), copy.getClass());
+      }
+    }
+    Assert.assertEquals(123456789, ((Timestamp)roundTrip(timestamp,
+      DataTypes.DATE_TIME)).getNanos());
+
+    // Other types are written as strings and converted back using the type
+    final URL url = new URL("http://www.revolsys.com/test?a=1");
+    final Object copy = roundTrip(url, DataTypes.URL);
+    Assert.assertEquals(URL.class, copy.getClass());
+    Assert.assertEquals(url.toString(), copy.toString());
+  }
+}
@@ -0,0 +1,118 @@
+package com.revolsys.io.directory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.io.ListRecordReader;
+import com.revolsys.data.query.Q;
+import com.revolsys.data.query.Query;
+import com.revolsys.data.record.ArrayRecord;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataTypes;
+
+/**
+ * Check the where condition, order by, offset and limit of a query are applied
+ * to the records read from a reader.
+ */
+public class RecordReaderQueryIteratorTest {
+  private final RecordDefinitionImpl recordDefinition;
+
+  private final List<Record> records = new ArrayList<>();
+
+  public RecordReaderQueryIteratorTest() {
+    this.recordDefinition = new RecordDefinitionImpl("Test");
+    this.recordDefinition.addField("ID", DataTypes.INT, true);
+    this.recordDefinition.addField("NAME", DataTypes.STRING, 255, false);
+    // ID 1-10 with the names in reverse order
+    for (int i = 1; i <= 10; i++) {
+      final Record record = new ArrayRecord(this.recordDefinition);
+      record.setValue("ID", i);
+      record.setValue("NAME", "N" + (10 - i));
+      this.records.add(record);
+    }
+  }
+
+  private void assertIds(final Query query, final int... expectedIds) {
+    final ListRecordReader reader = new ListRecordReader(
+      this.recordDefinition, this.records);
+    final RecordReaderQueryIterator iterator = new RecordReaderQueryIterator(
+      reader, query);
+    final List<Integer> ids = new ArrayList<>();
+    try {
+      while (iterator.hasNext()) {
+        final Record record = iterator.next();
+        ids.add(record.getInteger("ID"));
+      }
+    } finally {
+      iterator.close();
+    }
+    final List<Integer> expected = new ArrayList<>();
+    for (final int id : expectedIds) {
+      expected.add(id);
+    }
+    Assert.assertEquals(query.toString(), expected, ids);
+  }
+
+  private Query createQuery() {
+    return new Query(this.recordDefinition);
+  }
+
+  @Test
+  public void testAll() {
+    assertIds(createQuery(), 1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+  }
+
+  @Test
+  public void testOffsetLimit() {
+    final Query query = createQuery();
+    query.setOffset(2);
+    query.setLimit(3);
+    assertIds(query, 3, 4, 5);
+
+    // The pages don't overlap
+    query.setOffset(5);
+    assertIds(query, 6, 7, 8);
+
+    query.setOffset(8);
+    assertIds(query, 9, 10);
+
+    query.setOffset(20);
+    assertIds(query);
+
+    query.setOffset(0);
+    query.setLimit(0);
+    assertIds(query);
+  }
+
+  @Test
+  public void testOrderBy() {
+    final Query query = createQuery();
+    query.addOrderBy("NAME", true);
+    assertIds(query, 10, 9, 8, 7, 6, 5, 4, 3, 2, 1);
+    query.setOffset(1);
+    query.setLimit(2);
+    assertIds(query, 9, 8);
+
+    final Query descendingQuery = createQuery();
+    descendingQuery.addOrderBy("ID", false);
+    descendingQuery.setLimit(3);
+    assertIds(descendingQuery, 10, 9, 8);
+  }
+
+  @Test
+  public void testWhereOffsetLimit() {
+    final Query query = createQuery();
+    query.setWhereCondition(Q.greaterThan(
+      this.recordDefinition.getField("ID"), 4));
+    query.setOffset(1);
+    query.setLimit(2);
+    assertIds(query, 6, 7);
+
+    query.addOrderBy("NAME", true);
+    assertIds(query, 9, 8);
+  }
+}
@@ -0,0 +1,98 @@
+package com.revolsys.io.geojson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+import org.springframework.core.io.FileSystemResource;
+
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.json.JsonParser;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.LineString;
+
+/**
+ * Write a GeoJSON file of random line strings and compare the time to read the
+ * geometries using {@link GeoJsonGeometryIterator} with the time to read the
+ * document as generic maps and lists using {@link JsonParser#read(Object)}.
+ * The coordinates read are checked against the generated coordinates.
+ */
+public class GeoJsonReadPerfTest {
+  private static final int LINE_COUNT = 20000;
+
+  private static final int RUN_COUNT = 3;
+
+  private static final int VERTEX_COUNT = 100;
+
+  public static void main(final String[] args) throws IOException {
+    final File file = File.createTempFile("perf", ".geojson");
+    file.deleteOnExit();
+    final Random random = new Random(1);
+    final double[][] lines = new double[LINE_COUNT][];
+    try (
+      Writer out = FileUtil.getWriter(file)) {
+      out.write("{\"type\":\"FeatureCollection\",\"features\":[\n");
+      for (int i = 0; i < LINE_COUNT; i++) {
+        if (i > 0) {
+          out.write(",\n");
+        }
+        final double[] coordinates = new double[VERTEX_COUNT * 2];
+        out.write("{\"type\":\"Feature\",\"properties\":{\"ID\":" + i
+          + ",\"NAME\":\"Line \\\"" + i
+          + "\\\"\"},\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+        for (int j = 0; j < VERTEX_COUNT; j++) {
+          if (j > 0) {
+            out.write(',');
+          }
+          final double x = Math.round((-130 + random.nextDouble() * 10) * 1e7) / 1e7;
+          final double y = Math.round((48 + random.nextDouble() * 10) * 1e7) / 1e7;
+          coordinates[j * 2] = x;
+          coordinates[j * 2 + 1] = y;
+          out.write("[" + x + "," + y + "]");
+        }
+        lines[i] = coordinates;
+        out.write("]}}");
+      }
+      out.write("]}\n");
+    }
+    final double megabytes = file.length() / 1024.0 / 1024.0;
+
+    for (int run = 0; run < RUN_COUNT; run++) {
+      long time = System.nanoTime();
+      final GeoJsonGeometryIterator iterator = new GeoJsonGeometryIterator(
+        new FileSystemResource(file));
+      try {
+        int lineIndex = 0;
+        while (iterator.hasNext()) {
+          final Geometry geometry = iterator.next();
+          final LineString line = (LineString)geometry;
+          final double[] expected = lines[lineIndex++];
+          for (int j = 0; j < VERTEX_COUNT; j++) {
+            if (line.getX(j) != expected[j * 2]
+              || line.getY(j) != expected[j * 2 + 1]) {
+              throw new IllegalStateException("Line " + lineIndex
+                + " vertex " + j + " " + line.getPoint(j));
+            }
+          }
+        }
+        if (lineIndex != LINE_COUNT) {
+          throw new IllegalStateException("Expecting " + LINE_COUNT
+            + " lines not " + lineIndex);
+        }
+      } finally {
+        iterator.close();
+      }
+      final long geometryTime = System.nanoTime() - time;
+
+      time = System.nanoTime();
+      JsonParser.read(file);
+      final long mapTime = System.nanoTime() - time;
+
+      System.out.println(String.format(
+        "%.1fMB geometries %5dms (%.1fMB/s), maps %5dms (%.1fMB/s)",
+        megabytes, geometryTime / 1000000, megabytes * 1e9 / geometryTime,
+        mapTime / 1000000, megabytes * 1e9 / mapTime));
+    }
+  }
+}
@@ -0,0 +1,231 @@
+package com.revolsys.io.json;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check the doubles parsed by {@link JsonParser} are the same as
+ * {@link Double#parseDouble(String)} and the strings and numbers are read
+ * correctly when they span a refill of the read buffer.
+ */
+public class JsonParserTest {
+  /**
+   * Reader that returns at most chunkSize characters for each read so the
+   * parser's buffer is refilled at every position.
+   */
+  private static class ChunkReader extends FilterReader {
+    private final int chunkSize;
+
+    public ChunkReader(final Reader in, final int chunkSize) {
+      super(in);
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int read(final char[] buffer, final int offset, final int length)
+      throws IOException {
+      return super.read(buffer, offset, Math.min(length, this.chunkSize));
+    }
+  }
+
+  private static final String ESCAPED_TEXT = "a\\nb\\r\\tc\\b\\f\\\\\\\"\\/\\u0041\\u00e9\\ud83d\\ude00z";
+
+  private static final String UNESCAPED_TEXT = "a\nb\r\tc\b\f\\\"/A\u00e9\ud83d\ude00z";
+
+  private static final String[] NUMBERS = {
+    "0", "-0", "0.0", "-0.0", "-0e5", "00", "007", "-007.50", "0.001",
+    "000123.4500", "1", "-1", "10", "123456789012345", "-123456789012345",
+    "1234567890123456", "12345678901234567", "123456789012345678",
+    "1234567890123456789", "123456789012345678901234567890",
+    "0.000000000000000000000000000001234", "9007199254740991",
+    "9007199254740992", "9007199254740993", "9007199254740995", "0.1", "0.2",
+    "0.3", "0.30000000000000004", "0.1000000000000000055511151231257827",
+    "2.5e-3", "123.456e-7", "3.141592653589793", "2.718281828459045",
+    "1e22", "1e23", "1e-22", "1e-23", "-1e22", "-1e23", "1E+22", "1E+23",
+    "1.5e22", "1.5e23", "123456789012345e22", "123456789012345e-22",
+    "123456789012345e23", "123456789012345e-23", "0.000001e-16",
+    "100000000000000000000000e-23", "1.7976931348623157e308",
+    "-1.7976931348623157e308", "2.2250738585072014E-308", "4.9e-324",
+    "1e400", "-1e400", "1e-400", "0e400"
+  };
+
+  private static void assertDouble(final String message, final String number,
+    final double actual) {
+    final double expected = Double.parseDouble(number);
+    Assert.assertEquals(message, Double.doubleToLongBits(expected),
+      Double.doubleToLongBits(actual));
+  }
+
+  private static void assertParseDouble(final String number) {
+    final char[] chars = number.toCharArray();
+    assertDouble(number, number, JsonParser.parseDouble(chars, chars.length));
+  }
+
+  private static String createPadding(final int length) {
+    final char[] padding = new char[length];
+    Arrays.fill(padding, ' ');
+    return new String(padding);
+  }
+
+  private static double[] readDoubles(final Reader reader) {
+    try (
+      JsonParser parser = new JsonParser(reader)) {
+      parser.next();
+      return JsonParser.getDoubleArray(parser);
+    }
+  }
+
+  private static String toJsonArray(final String... values) {
+    final StringBuilder json = new StringBuilder("[");
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      json.append(values[i]);
+    }
+    json.append(']');
+    return json.toString();
+  }
+
+  @Test
+  public void testChunkedRead() {
+    final String json = "{\"text\":\"" + ESCAPED_TEXT + "\",\"numbers\":"
+      + toJsonArray(NUMBERS) + ",\"flag\":true,\"none\":null}";
+    for (final int chunkSize : new int[] {
+      1, 2, 3, 5, 7
+    }) {
+      final Map<String, Object> map = JsonParser.getMap(new ChunkReader(
+        new StringReader(json), chunkSize));
+      Assert.assertEquals(UNESCAPED_TEXT, map.get("text"));
+      Assert.assertEquals(Boolean.TRUE, map.get("flag"));
+      Assert.assertTrue(map.containsKey("none"));
+      Assert.assertNull(map.get("none"));
+      final List<?> numbers = (List<?>)map.get("numbers");
+      Assert.assertEquals(NUMBERS.length, numbers.size());
+      for (int i = 0; i < NUMBERS.length; i++) {
+        Assert.assertEquals(new BigDecimal(NUMBERS[i]), numbers.get(i));
+      }
+
+      final double[] values = readDoubles(new ChunkReader(new StringReader(
+        toJsonArray(NUMBERS)), chunkSize));
+      for (int i = 0; i < NUMBERS.length; i++) {
+        assertDouble(NUMBERS[i], NUMBERS[i], values[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testEscapes() {
+    Assert.assertEquals(UNESCAPED_TEXT, JsonParser.read("\"" + ESCAPED_TEXT
+      + "\""));
+    Assert.assertEquals("", JsonParser.read("\"\""));
+    Assert.assertEquals("\u0000\u001f\uffff",
+      JsonParser.read("\"\\u0000\\u001F\\uFFFF\""));
+    // Unterminated strings end at the end of the document
+    Assert.assertEquals("abc", JsonParser.read("\"abc"));
+    Assert.assertEquals("abc", JsonParser.read("\"abc\\"));
+  }
+
+  @Test
+  public void testLongString() {
+    // A string longer than several buffers with escapes throughout
+    final StringBuilder escaped = new StringBuilder();
+    final StringBuilder unescaped = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      escaped.append("text ").append(i).append(ESCAPED_TEXT);
+      unescaped.append("text ").append(i).append(UNESCAPED_TEXT);
+    }
+    Assert.assertEquals(unescaped.toString(), JsonParser.read("\"" + escaped
+      + "\""));
+  }
+
+  @Test
+  public void testNumbersAcrossBufferBoundary() {
+    final String numbers = toJsonArray(NUMBERS);
+    // Move the start of the array so each character of the numbers is at the
+    // end of the first buffer
+    for (int offset = 0; offset < numbers.length(); offset++) {
+      final String json = createPadding(8192 - offset) + numbers;
+      final double[] values = readDoubles(new StringReader(json));
+      Assert.assertEquals(NUMBERS.length, values.length);
+      for (int i = 0; i < NUMBERS.length; i++) {
+        assertDouble(NUMBERS[i] + " offset " + offset, NUMBERS[i], values[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testParseDouble() {
+    for (final String number : NUMBERS) {
+      assertParseDouble(number);
+    }
+    // Exponents around the exact powers of 10
+    for (int exponent = 15; exponent <= 25; exponent++) {
+      for (final String mantissa : new String[] {
+        "1", "-1", "7", "999999999999999", "-123456789012345", "1.25",
+        "0.000123"
+      }) {
+        assertParseDouble(mantissa + "e" + exponent);
+        assertParseDouble(mantissa + "e-" + exponent);
+        assertParseDouble(mantissa + "E+" + exponent);
+      }
+    }
+  }
+
+  @Test
+  public void testParseDoubleRandom() {
+    final Random random = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      // The shortest string for a random double
+      final double value = Double.longBitsToDouble(random.nextLong());
+      if (!Double.isNaN(value) && !Double.isInfinite(value)) {
+        assertParseDouble(Double.toString(value));
+      }
+      assertParseDouble(Double.toString(random.nextDouble() * 1000000));
+
+      // Short decimals with up to 17 digits and a small exponent
+      final int digitCount = 1 + random.nextInt(17);
+      final StringBuilder number = new StringBuilder();
+      if (random.nextBoolean()) {
+        number.append('-');
+      }
+      for (int j = 0; j < digitCount; j++) {
+        number.append((char)('0' + random.nextInt(10)));
+      }
+      final int pointIndex = random.nextInt(number.length() + 1);
+      if (pointIndex > 0 && pointIndex < number.length()
+        && number.charAt(pointIndex - 1) != '-') {
+        number.insert(pointIndex, '.');
+      }
+      if (random.nextBoolean()) {
+        number.append('e').append(random.nextInt(61) - 30);
+      }
+      assertParseDouble(number.toString());
+    }
+  }
+
+  @Test
+  public void testStringsAcrossBufferBoundary() {
+    final String string = "\"" + ESCAPED_TEXT + "\"";
+    // Move the start of the string so each character of the string, including
+    // the quotes, the escapes and each digit of the \\u escapes, is at the end
+    // of the first buffer
+    for (int offset = 0; offset <= string.length(); offset++) {
+      final String json = createPadding(8192 - offset) + "[" + string + ","
+        + string + "]";
+      final List<Object> values = JsonParser.read(json);
+      Assert.assertEquals("Offset " + offset,
+        Arrays.asList(UNESCAPED_TEXT, UNESCAPED_TEXT), values);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Measure the records and megabytes per second read from a synthetic PBF file
+ * held in memory, decoding the blocks on 1, 2, 4 and the number of available
+ * processors threads.
+ */
+public class OsmPbfReadPerfTest {
+  private static final int BLOCK_COUNT = 500;
+
+  private static final int NODES_PER_BLOCK = 8000;
+
+  public static void main(final String[] args) throws IOException {
+    final byte[] pbf = OsmPbfTestWriter.createPbf(BLOCK_COUNT,
+      NODES_PER_BLOCK, -1);
+    final int processorCount = Runtime.getRuntime().availableProcessors();
+    final int[] threadCounts = {
+      1, 2, 4, processorCount
+    };
+    for (int i = 0; i < 3; i++) {
+      for (final int threadCount : threadCounts) {
+        run(pbf, threadCount);
+      }
+    }
+  }
+
+  private static void run(final byte[] pbf, final int threadCount) {
+    final long startTime = System.nanoTime();
+    long count = 0;
+    final OsmPbfRecordIterator iterator = new OsmPbfRecordIterator(
+      new DataInputStream(new ByteArrayInputStream(pbf)));
+    try {
+      iterator.setThreadCount(threadCount);
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+    } finally {
+      iterator.close();
+    }
+    final double seconds = (System.nanoTime() - startTime) / 1e9;
+    System.out.println(String.format(
+      "threads=%2d records=%d time=%.2fs %.0f records/s %.1f MB/s",
+      threadCount, count, seconds, count / seconds, pbf.length / 1048576.0
+        / seconds));
+  }
+}
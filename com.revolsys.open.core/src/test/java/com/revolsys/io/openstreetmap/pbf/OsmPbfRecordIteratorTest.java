@@ -0,0 +1,122 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.record.Record;
+import com.revolsys.io.openstreetmap.model.OsmElement;
+
+/**
+ * Check the records read from a multi block PBF file are the same and in the
+ * same order when the blocks are decoded in parallel, and that an error in a
+ * block reaches the caller after the records of the blocks before it.
+ */
+public class OsmPbfRecordIteratorTest {
+  private static final int BLOCK_COUNT = 20;
+
+  private static final int NODES_PER_BLOCK = 200;
+
+  private static final List<Integer> THREAD_COUNTS = Arrays.asList(1, 2, 4, 8);
+
+  /**
+   * Read the records until the end of the file or an error.
+   *
+   * @param keys The keys of the records that were read.
+   * @return The error or null if all the records were read.
+   */
+  private static RuntimeException read(final byte[] pbf,
+    final int threadCount, final List<String> keys) {
+    final OsmPbfRecordIterator iterator = new OsmPbfRecordIterator(
+      new DataInputStream(new ByteArrayInputStream(pbf)));
+    try {
+      iterator.setThreadCount(threadCount);
+      while (iterator.hasNext()) {
+        final Record record = iterator.next();
+        keys.add(toKey(record));
+      }
+      return null;
+    } catch (final RuntimeException e) {
+      return e;
+    } finally {
+      iterator.close();
+    }
+  }
+
+  private static List<String> readAll(final byte[] pbf, final int threadCount) {
+    final List<String> keys = new ArrayList<>();
+    final RuntimeException e = read(pbf, threadCount, keys);
+    if (e != null) {
+      throw e;
+    }
+    return keys;
+  }
+
+  private static String toKey(final Record record) {
+    final OsmElement element = (OsmElement)record;
+    return element.getClass().getSimpleName() + ":" + element.getId() + ":"
+      + element.getTags() + ":" + element.getGeometryValue();
+  }
+
+  @Test
+  public void testCorruptBlock() throws IOException {
+    final int corruptBlockIndex = BLOCK_COUNT / 2;
+    final byte[] pbf = OsmPbfTestWriter.createPbf(BLOCK_COUNT,
+      NODES_PER_BLOCK, corruptBlockIndex);
+    final byte[] validPbf = OsmPbfTestWriter.createPbf(corruptBlockIndex,
+      NODES_PER_BLOCK, -1);
+    final List<String> expectedKeys = readAll(validPbf, 1);
+    for (final int threadCount : THREAD_COUNTS) {
+      final List<String> keys = new ArrayList<>();
+      final RuntimeException e = read(pbf, threadCount, keys);
+      Assert.assertNotNull("threadCount=" + threadCount, e);
+      Assert.assertEquals("threadCount=" + threadCount,
+        "Unable to decompress PBF blob.", e.getMessage());
+      // The ways with missing nodes, one per block and the first way, are
+      // only returned at the end of the file
+      Assert.assertEquals("threadCount=" + threadCount,
+        expectedKeys.size() - corruptBlockIndex - 1, keys.size());
+      Assert.assertEquals("threadCount=" + threadCount,
+        expectedKeys.subList(0, keys.size()), keys);
+    }
+  }
+
+  @Test
+  public void testParallelRecordOrder() throws IOException {
+    final byte[] pbf = OsmPbfTestWriter.createPbf(BLOCK_COUNT,
+      NODES_PER_BLOCK, -1);
+    final List<String> expectedKeys = readAll(pbf, 1);
+    // Tagged nodes, half the ways, one way per block that ends in the next
+    // block and the relations
+    Assert.assertEquals(BLOCK_COUNT
+      * (NODES_PER_BLOCK / 10 + NODES_PER_BLOCK / 20 + 2), expectedKeys.size());
+    for (final int threadCount : THREAD_COUNTS) {
+      Assert.assertEquals("threadCount=" + threadCount, expectedKeys,
+        readAll(pbf, threadCount));
+    }
+  }
+
+  @Test
+  public void testTruncatedFile() throws IOException {
+    final byte[] pbf = OsmPbfTestWriter.createPbf(BLOCK_COUNT,
+      NODES_PER_BLOCK, -1);
+    final byte[] truncatedPbf = Arrays.copyOf(pbf, pbf.length / 2);
+    final List<String> expectedKeys = readAll(pbf, 1);
+    for (final int threadCount : THREAD_COUNTS) {
+      final List<String> keys = new ArrayList<>();
+      final RuntimeException e = read(truncatedPbf, threadCount, keys);
+      Assert.assertNotNull("threadCount=" + threadCount, e);
+      Assert.assertTrue("threadCount=" + threadCount,
+        e.getCause() instanceof EOFException);
+      Assert.assertEquals("threadCount=" + threadCount,
+        expectedKeys.subList(0, keys.size()), keys);
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+
+/**
+ * Write synthetic OSM PBF files for the tests. Each data block contains dense
+ * nodes (every 10th one tagged), ways that use nodes from the previous, the
+ * current and the next block, closed ways and a relation with a way and a
+ * node member.
+ */
+public class OsmPbfTestWriter {
+  private static class Message {
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    private final CodedOutputStream out = CodedOutputStream.newInstance(this.bytes);
+
+    public byte[] toByteArray() throws IOException {
+      this.out.flush();
+      return this.bytes.toByteArray();
+    }
+
+    public ByteString toByteString() throws IOException {
+      return ByteString.copyFrom(toByteArray());
+    }
+
+    public void writeMessage(final int fieldNumber, final Message message)
+      throws IOException {
+      this.out.writeBytes(fieldNumber, message.toByteString());
+    }
+
+    public void writePackedSInt64(final int fieldNumber, final long... values)
+      throws IOException {
+      final Message packed = new Message();
+      for (final long value : values) {
+        packed.out.writeSInt64NoTag(value);
+      }
+      writeMessage(fieldNumber, packed);
+    }
+
+    public void writePackedUInt32(final int fieldNumber, final int... values)
+      throws IOException {
+      final Message packed = new Message();
+      for (final int value : values) {
+        packed.out.writeUInt32NoTag(value);
+      }
+      writeMessage(fieldNumber, packed);
+    }
+  }
+
+  private static final String[] STRINGS = {
+    "", "amenity", "cafe", "highway", "residential", "name", "type", "route",
+    "inner"
+  };
+
+  private static final int STRING_AMENITY = 1;
+
+  private static final int STRING_CAFE = 2;
+
+  private static final int STRING_HIGHWAY = 3;
+
+  private static final int STRING_RESIDENTIAL = 4;
+
+  private static final int STRING_NAME = 5;
+
+  private static final int STRING_TYPE = 6;
+
+  private static final int STRING_ROUTE = 7;
+
+  private static final int STRING_INNER = 8;
+
+  private static final int STRING_BLOCK_NAME = 9;
+
+  /**
+   * Create a PBF file with a header block and the data blocks.
+   *
+   * @param blockCount The number of data blocks.
+   * @param nodesPerBlock The number of nodes in each block, a multiple of 10.
+   * @param corruptBlockIndex The index of a data block whose compressed data
+   * is corrupted or -1 for none.
+   */
+  public static byte[] createPbf(final int blockCount,
+    final int nodesPerBlock, final int corruptBlockIndex) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    final Message header = new Message();
+    header.out.writeString(4, "OsmSchema-V0.6");
+    header.out.writeString(4, "DenseNodes");
+    header.out.writeString(16, OsmPbfTestWriter.class.getName());
+    writeBlob(out, "OSMHeader", header.toByteArray(), false);
+    for (int blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+      final byte[] block = createPrimitiveBlock(blockIndex, nodesPerBlock);
+      writeBlob(out, "OSMData", block, blockIndex == corruptBlockIndex);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static byte[] createPrimitiveBlock(final int blockIndex,
+    final int nodesPerBlock) throws IOException {
+    final long firstNodeId = (long)blockIndex * nodesPerBlock + 1;
+    final long lastNodeId = firstNodeId + nodesPerBlock - 1;
+    final Message block = new Message();
+
+    final Message stringTable = new Message();
+    for (final String string : STRINGS) {
+      stringTable.out.writeString(1, string);
+    }
+    stringTable.out.writeString(1, "Block " + blockIndex);
+    block.writeMessage(1, stringTable);
+
+    final long[] ids = new long[nodesPerBlock];
+    final long[] lats = new long[nodesPerBlock];
+    final long[] lons = new long[nodesPerBlock];
+    final Message keysVals = new Message();
+    long previousId = 0;
+    long previousLat = 0;
+    long previousLon = 0;
+    for (int i = 0; i < nodesPerBlock; i++) {
+      final long id = firstNodeId + i;
+      final long lat = getLatitude(id);
+      final long lon = getLongitude(id);
+      ids[i] = id - previousId;
+      lats[i] = lat - previousLat;
+      lons[i] = lon - previousLon;
+      previousId = id;
+      previousLat = lat;
+      previousLon = lon;
+      if (id % 10 == 0) {
+        keysVals.out.writeUInt32NoTag(STRING_AMENITY);
+        keysVals.out.writeUInt32NoTag(STRING_CAFE);
+        keysVals.out.writeUInt32NoTag(STRING_NAME);
+        keysVals.out.writeUInt32NoTag(STRING_BLOCK_NAME);
+      }
+      keysVals.out.writeUInt32NoTag(0);
+    }
+    final Message denseNodes = new Message();
+    denseNodes.writePackedSInt64(1, ids);
+    denseNodes.writePackedSInt64(8, lats);
+    denseNodes.writePackedSInt64(9, lons);
+    denseNodes.writeMessage(10, keysVals);
+    final Message nodeGroup = new Message();
+    nodeGroup.writeMessage(2, denseNodes);
+    block.writeMessage(2, nodeGroup);
+
+    final Message wayGroup = new Message();
+    final long firstWayId = (long)blockIndex * nodesPerBlock + 1;
+    for (int i = 0; i < nodesPerBlock / 10; i++) {
+      final long wayId = firstWayId + i;
+      final Message way = new Message();
+      way.out.writeInt64(1, wayId);
+      if (i % 2 == 0) {
+        way.writePackedUInt32(2, STRING_HIGHWAY);
+        way.writePackedUInt32(3, STRING_RESIDENTIAL);
+      }
+      // Starts in the previous block, the first way uses ids that don't exist
+      final long firstRefId = firstNodeId - 3 + i * 10;
+      if (i % 4 == 3) {
+        way.writePackedSInt64(8, firstRefId, 1, 1, 1, -3);
+      } else {
+        way.writePackedSInt64(8, firstRefId, 1, 1, 1, 1);
+      }
+      wayGroup.writeMessage(3, way);
+    }
+    // Ends in the next block
+    final Message nextWay = new Message();
+    nextWay.out.writeInt64(1, firstWayId + nodesPerBlock / 10);
+    nextWay.writePackedUInt32(2, STRING_HIGHWAY, STRING_NAME);
+    nextWay.writePackedUInt32(3, STRING_RESIDENTIAL, STRING_BLOCK_NAME);
+    nextWay.writePackedSInt64(8, lastNodeId - 1, 1, 1, 1);
+    wayGroup.writeMessage(3, nextWay);
+    block.writeMessage(2, wayGroup);
+
+    final Message relation = new Message();
+    relation.out.writeInt64(1, blockIndex + 1);
+    relation.writePackedUInt32(2, STRING_TYPE);
+    relation.writePackedUInt32(3, STRING_ROUTE);
+    relation.writePackedUInt32(8, STRING_INNER, 0);
+    relation.writePackedSInt64(9, firstWayId + 1, firstNodeId
+      - (firstWayId + 1));
+    relation.writePackedUInt32(10, 1, 0);
+    final Message relationGroup = new Message();
+    relationGroup.writeMessage(4, relation);
+    block.writeMessage(2, relationGroup);
+    return block.toByteArray();
+  }
+
+  private static long getLatitude(final long id) {
+    return 480000000 + id * 7919 % 10000000;
+  }
+
+  private static long getLongitude(final long id) {
+    return -1230000000 + id * 104729 % 10000000;
+  }
+
+  private static void writeBlob(final DataOutputStream out,
+    final String type, final byte[] data, final boolean corrupt)
+    throws IOException {
+    final Deflater deflater = new Deflater();
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      final byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        final int count = deflater.deflate(buffer);
+        compressed.write(buffer, 0, count);
+      }
+    } finally {
+      deflater.end();
+    }
+    final byte[] zlibData = compressed.toByteArray();
+    if (corrupt) {
+      for (int i = 2; i < zlibData.length; i++) {
+        zlibData[i] = (byte)0xff;
+      }
+    }
+    final Message blob = new Message();
+    blob.out.writeInt32(2, data.length);
+    blob.out.writeBytes(3, ByteString.copyFrom(zlibData));
+    final byte[] blobBytes = blob.toByteArray();
+
+    final Message blobHeader = new Message();
+    blobHeader.out.writeString(1, type);
+    blobHeader.out.writeInt32(3, blobBytes.length);
+    final byte[] blobHeaderBytes = blobHeader.toByteArray();
+
+    out.writeInt(blobHeaderBytes.length);
+    out.write(blobHeaderBytes);
+    out.write(blobBytes);
+  }
+}
@@ -0,0 +1,183 @@
+package com.revolsys.io.openstreetmap.pbf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check the locations read from a {@link PackedNodeLocationStore} for blocks
+ * on the heap, blocks written to the memory mapped file and the current block,
+ * for sorted, unsorted, duplicate and missing node ids.
+ */
+public class PackedNodeLocationStoreTest {
+  private static final int BLOCK_SIZE = PackedNodeLocationStore.BLOCK_SIZE;
+
+  private static void assertLocation(final NodeLocationStore store,
+    final long id, final double x, final double y) {
+    final long index = store.getIndex(id);
+    Assert.assertTrue("Node " + id, index != -1);
+    Assert.assertEquals("Node " + id + " x", x, store.getX(index), 1e-7);
+    Assert.assertEquals("Node " + id + " y", y, store.getY(index), 1e-7);
+  }
+
+  private static void assertLocation(final NodeLocationStore store,
+    final long id) {
+    assertLocation(store, id, getX(id), getY(id));
+  }
+
+  private static void assertMissing(final NodeLocationStore store,
+    final long id) {
+    Assert.assertEquals("Node " + id, -1, store.getIndex(id));
+  }
+
+  private static double getX(final long id) {
+    return id % 3600000 / 10000.0 - 180;
+  }
+
+  private static double getY(final long id) {
+    return id * 7 % 1800000 / 10000.0 - 90;
+  }
+
+  private static void put(final NodeLocationStore store, final long id) {
+    store.put(id, getX(id), getY(id));
+  }
+
+  @Test
+  public void testCurrentBlock() {
+    final PackedNodeLocationStore store = new PackedNodeLocationStore();
+    try {
+      assertMissing(store, 1);
+      for (long id = 10; id <= 100; id += 10) {
+        put(store, id);
+      }
+      Assert.assertEquals(10, store.size());
+      for (long id = 10; id <= 100; id += 10) {
+        assertLocation(store, id);
+        assertMissing(store, id + 1);
+      }
+      assertMissing(store, 0);
+
+      // An id less than the last makes the current block unsorted
+      put(store, 55);
+      put(store, 5);
+      assertLocation(store, 55);
+      assertLocation(store, 5);
+      assertLocation(store, 100);
+      assertMissing(store, 56);
+      Assert.assertEquals(12, store.size());
+    } finally {
+      store.close();
+    }
+  }
+
+  @Test
+  public void testDuplicateIds() {
+    final PackedNodeLocationStore store = new PackedNodeLocationStore(0);
+    try {
+      // Duplicates in the current block
+      for (int i = 0; i < 100; i++) {
+        put(store, i);
+      }
+      store.put(50, 1, 2);
+      assertLocation(store, 50, 1, 2);
+      store.put(50, 3, 4);
+      assertLocation(store, 50, 3, 4);
+
+      // Duplicates in the block that was sorted and written to the file
+      for (int i = 100; i < BLOCK_SIZE - 4; i++) {
+        put(store, i);
+      }
+      store.put(60, 5, 6);
+      store.put(60, 7, 8);
+      Assert.assertEquals("nodes=" + (BLOCK_SIZE - 4) + ", spilledBlocks=1",
+        store.toString());
+      assertLocation(store, 50, 3, 4);
+      assertLocation(store, 60, 7, 8);
+      assertLocation(store, 59);
+
+      // Duplicates of nodes in the file in the current block
+      store.put(50, 9, 10);
+      assertLocation(store, 50, 9, 10);
+      assertLocation(store, 60, 7, 8);
+
+      // Duplicates of nodes in the file in a later block
+      for (int i = 0; i < BLOCK_SIZE - 1; i++) {
+        put(store, BLOCK_SIZE + i);
+      }
+      Assert.assertEquals("nodes=" + (BLOCK_SIZE * 2 - 4)
+        + ", spilledBlocks=2", store.toString());
+      assertLocation(store, 50, 9, 10);
+      assertLocation(store, 60, 7, 8);
+      assertLocation(store, BLOCK_SIZE * 2 - 2);
+      assertMissing(store, BLOCK_SIZE * 2 - 1);
+    } finally {
+      store.close();
+    }
+  }
+
+  /**
+   * Put 3 and a half blocks of sorted ids with gaps, keeping only one block on
+   * the heap so the first two blocks are written to the file.
+   */
+  @Test
+  public void testSpillToFile() {
+    final PackedNodeLocationStore store = new PackedNodeLocationStore(
+      BLOCK_SIZE * 16);
+    try {
+      final int count = BLOCK_SIZE * 7 / 2;
+      for (int i = 0; i < count; i++) {
+        put(store, i * 3L + 1);
+      }
+      Assert.assertEquals(count, store.size());
+      Assert.assertEquals("nodes=" + count + ", spilledBlocks=2",
+        store.toString());
+      for (int i = 0; i < count; i++) {
+        final long id = i * 3L + 1;
+        assertLocation(store, id);
+        assertMissing(store, id + 1);
+      }
+      assertMissing(store, 0);
+      assertMissing(store, count * 3L + 1);
+      assertMissing(store, Long.MAX_VALUE);
+    } finally {
+      store.close();
+    }
+  }
+
+  /**
+   * Put the ids in a random order so the blocks are sorted when they are
+   * finished and overlap each other.
+   */
+  @Test
+  public void testUnsortedIds() {
+    final PackedNodeLocationStore store = new PackedNodeLocationStore(
+      BLOCK_SIZE * 16);
+    try {
+      final int count = BLOCK_SIZE * 5 / 2;
+      final List<Long> ids = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        ids.add(i * 2L + 1);
+      }
+      Collections.shuffle(ids, new Random(1));
+      for (final long id : ids) {
+        put(store, id);
+      }
+      Assert.assertEquals(count, store.size());
+      Assert.assertEquals("nodes=" + count + ", spilledBlocks=1",
+        store.toString());
+      for (int i = 0; i < count; i++) {
+        final long id = i * 2L + 1;
+        assertLocation(store, id);
+        assertMissing(store, id + 1);
+      }
+      assertMissing(store, 0);
+      assertMissing(store, -1);
+    } finally {
+      store.close();
+    }
+  }
+}
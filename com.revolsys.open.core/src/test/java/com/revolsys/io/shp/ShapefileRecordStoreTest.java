@@ -0,0 +1,257 @@
+package com.revolsys.io.shp;
+
+import java.io.File;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.FileSystemResource;
+
+import com.revolsys.collection.Visitor;
+import com.revolsys.data.io.RecordIo;
+import com.revolsys.data.record.ArrayRecord;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.gis.io.EndianMappedByteBuffer;
+import com.revolsys.io.Reader;
+import com.revolsys.io.Writer;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.Point;
+
+/**
+ * Check the record ranges, load by record number and parallel visit of the
+ * memory mapped shapefiles in a {@link ShapefileRecordStore}, and that a
+ * shapefile written after it was read is read again.
+ */
+public class ShapefileRecordStoreTest {
+  private static final int RECORD_COUNT = 100;
+
+  private static final String TYPE_PATH = "/test";
+
+  private static void assertRecord(final int expectedId, final Record record) {
+    Assert.assertNotNull("Record " + expectedId, record);
+    Assert.assertEquals(Integer.valueOf(expectedId), record.getInteger("ID"));
+    final Point point = record.getGeometryValue();
+    Assert.assertEquals(expectedId, point.getX(), 0);
+    Assert.assertEquals(expectedId * 2, point.getY(), 0);
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ShapefileRecordStore recordStore;
+
+  private void assertRange(final ShapefileIterator iterator,
+    final int startIndex, final int endIndex, final int... expectedIds) {
+    final ShapefileIterator rangeIterator = iterator.createIterator(startIndex,
+      endIndex);
+    try {
+      final List<Integer> ids = new ArrayList<>();
+      while (rangeIterator.hasNext()) {
+        final Record record = rangeIterator.next();
+        assertRecord(record.getInteger("ID"), record);
+        ids.add(record.getInteger("ID"));
+      }
+      final List<Integer> expected = new ArrayList<>();
+      for (final int id : expectedIds) {
+        expected.add(id);
+      }
+      Assert.assertEquals(startIndex + "-" + endIndex, expected, ids);
+    } finally {
+      rangeIterator.close();
+    }
+  }
+
+  private void assertVisitAll(final int threadCount) {
+    this.recordStore.setThreadCount(threadCount);
+    final List<Integer> ids = Collections.synchronizedList(new ArrayList<Integer>());
+    this.recordStore.visit(TYPE_PATH, new Visitor<Record>() {
+      @Override
+      public boolean visit(final Record record) {
+        final int id = record.getInteger("ID");
+        assertRecord(id, record);
+        ids.add(id);
+        return true;
+      }
+    });
+    Assert.assertEquals(RECORD_COUNT, ids.size());
+    Collections.sort(ids);
+    for (int i = 0; i < RECORD_COUNT; i++) {
+      Assert.assertEquals("Threads " + threadCount, Integer.valueOf(i),
+        ids.get(i));
+    }
+  }
+
+  @After
+  public void close() {
+    this.recordStore.close();
+  }
+
+  @Before
+  public void createShapefile() {
+    final File directory = this.folder.getRoot();
+    writeShapefile(RECORD_COUNT);
+    this.recordStore = new ShapefileRecordStore(directory);
+  }
+
+  @Test
+  public void testCreateIterator() {
+    final ShapefileIterator iterator = this.recordStore.getIterator(TYPE_PATH);
+    Assert.assertEquals(RECORD_COUNT, iterator.getRecordCount());
+    assertRange(iterator, 0, 3, 0, 1, 2);
+    assertRange(iterator, 10, 14, 10, 11, 12, 13);
+    assertRange(iterator, 97, Integer.MAX_VALUE, 97, 98, 99);
+    assertRange(iterator, 99, 100, 99);
+    assertRange(iterator, 50, 50);
+    assertRange(iterator, RECORD_COUNT, Integer.MAX_VALUE);
+
+    // Each iterator has its own position in the shared files
+    final ShapefileIterator iterator1 = iterator.createIterator(0, 10);
+    final ShapefileIterator iterator2 = iterator.createIterator(50, 60);
+    try {
+      for (int i = 0; i < 10; i++) {
+        assertRecord(i, iterator1.next());
+        assertRecord(50 + i, iterator2.next());
+      }
+      Assert.assertFalse(iterator1.hasNext());
+      Assert.assertFalse(iterator2.hasNext());
+    } finally {
+      iterator1.close();
+      iterator2.close();
+    }
+  }
+
+  @Test
+  public void testDuplicateBuffer() throws Exception {
+    final File file = new File(this.folder.getRoot(), "test.shx");
+    final EndianMappedByteBuffer buffer = new EndianMappedByteBuffer(file,
+      MapMode.READ_ONLY);
+    try {
+      final EndianMappedByteBuffer duplicate1 = buffer.duplicate();
+      final EndianMappedByteBuffer duplicate2 = buffer.duplicate();
+      Assert.assertEquals(buffer.length(), duplicate1.length());
+      // The file code and the offset of the first record
+      duplicate2.seek(100);
+      Assert.assertEquals(9994, duplicate1.readInt());
+      Assert.assertEquals(50, duplicate2.readInt());
+      Assert.assertEquals(4, duplicate1.getFilePointer());
+      Assert.assertEquals(104, duplicate2.getFilePointer());
+      Assert.assertEquals(0, buffer.getFilePointer());
+
+      // Closing a duplicate doesn't close the file
+      duplicate1.close();
+      Assert.assertEquals(9994, buffer.readInt());
+    } finally {
+      buffer.close();
+    }
+  }
+
+  @Test
+  public void testLoad() {
+    for (final int recordNumber : new int[] {
+      0, 1, 57, RECORD_COUNT - 1
+    }) {
+      assertRecord(recordNumber,
+        this.recordStore.load(TYPE_PATH, recordNumber));
+    }
+    Assert.assertNull(this.recordStore.load(TYPE_PATH, -1));
+    Assert.assertNull(this.recordStore.load(TYPE_PATH, RECORD_COUNT));
+    Assert.assertNull(this.recordStore.load("/missing", 0));
+  }
+
+  @Test
+  public void testVisit() {
+    for (final int threadCount : new int[] {
+      1, 3, 7, RECORD_COUNT * 2
+    }) {
+      assertVisitAll(threadCount);
+    }
+  }
+
+  @Test
+  public void testVisitCancel() {
+    this.recordStore.setThreadCount(4);
+    final AtomicInteger count = new AtomicInteger();
+    this.recordStore.visit(TYPE_PATH, new Visitor<Record>() {
+      @Override
+      public boolean visit(final Record record) {
+        count.incrementAndGet();
+        return false;
+      }
+    });
+    // Each range stops after the visitor returns false
+    Assert.assertTrue(count.get() >= 1);
+    Assert.assertTrue(count.get() <= 4);
+  }
+
+  @Test
+  public void testVisitExecutorService() {
+    final ExecutorService executorService = Executors.newFixedThreadPool(3);
+    try {
+      this.recordStore.setExecutorService(executorService);
+      assertVisitAll(3);
+      // The caller's executor is not shut down by the visit
+      Assert.assertFalse(executorService.isShutdown());
+      assertVisitAll(2);
+    } finally {
+      executorService.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWriteThenQuery() {
+    final ShapefileIterator iterator = this.recordStore.getIterator(TYPE_PATH);
+    Assert.assertEquals(RECORD_COUNT, iterator.getRecordCount());
+    assertRecord(0, this.recordStore.load(TYPE_PATH, 0));
+
+    writeShapefile(RECORD_COUNT * 2);
+    final ShapefileIterator newIterator = this.recordStore.getIterator(TYPE_PATH);
+    Assert.assertNotSame(iterator, newIterator);
+    Assert.assertEquals(RECORD_COUNT * 2, newIterator.getRecordCount());
+    assertRecord(RECORD_COUNT * 2 - 1,
+      this.recordStore.load(TYPE_PATH, RECORD_COUNT * 2 - 1));
+    int count = 0;
+    try (
+      Reader<Record> reader = this.recordStore.query(TYPE_PATH)) {
+      for (final Record record : reader) {
+        assertRecord(count, record);
+        count++;
+      }
+    }
+    Assert.assertEquals(RECORD_COUNT * 2, count);
+
+    // The iterator is kept until the file is written again
+    Assert.assertSame(newIterator, this.recordStore.getIterator(TYPE_PATH));
+  }
+
+  private void writeShapefile(final int recordCount) {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(26910, 2);
+    final RecordDefinitionImpl recordDefinition = new RecordDefinitionImpl(
+      TYPE_PATH);
+    recordDefinition.addField("ID", DataTypes.INT, true);
+    recordDefinition.addField("GEOMETRY", DataTypes.POINT, true);
+    recordDefinition.setGeometryFactory(geometryFactory);
+    final File file = new File(this.folder.getRoot(), "test.shp");
+    try (
+      Writer<Record> writer = RecordIo.recordWriter(recordDefinition,
+        new FileSystemResource(file))) {
+      for (int i = 0; i < recordCount; i++) {
+        final Record record = new ArrayRecord(recordDefinition);
+        record.setValue("ID", i);
+        record.setGeometryValue(geometryFactory.point(i, i * 2));
+        writer.write(record);
+      }
+    }
+  }
+}
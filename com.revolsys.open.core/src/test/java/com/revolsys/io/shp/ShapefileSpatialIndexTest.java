@@ -0,0 +1,107 @@
+package com.revolsys.io.shp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Check the record offsets read from the .shx file and the queries of an index
+ * created from a synthetic shapefile.
+ */
+public class ShapefileSpatialIndexTest {
+  private static ByteBuffer createRecord(final int recordNumber,
+    final int shapeType, final double... values) {
+    final int contentLength = 4 + values.length * 8;
+    final ByteBuffer record = ByteBuffer.allocate(8 + contentLength);
+    record.putInt(recordNumber);
+    record.putInt(contentLength / 2);
+    record.order(ByteOrder.LITTLE_ENDIAN);
+    record.putInt(shapeType);
+    for (final double value : values) {
+      record.putDouble(value);
+    }
+    return record;
+  }
+
+  private static void write(final File file, final ByteBuffer buffer)
+    throws IOException {
+    try (
+      OutputStream out = new FileOutputStream(file)) {
+      out.write(buffer.array());
+    }
+  }
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File createShapefile() throws IOException {
+    // Polygon with no parts, null shape and a point at the end of the file
+    final ByteBuffer[] records = {
+      createRecord(1, ShapefileConstants.POLYGON_SHAPE, 0, 0, 10, 10, 0),
+      createRecord(2, ShapefileConstants.NULL_SHAPE),
+      createRecord(3, ShapefileConstants.POINT_SHAPE, 50, 50)
+    };
+    int shpLength = 100;
+    for (final ByteBuffer record : records) {
+      shpLength += record.capacity();
+    }
+    final ByteBuffer shp = ByteBuffer.allocate(shpLength);
+    final ByteBuffer shx = ByteBuffer.allocate(100 + records.length * 8);
+    shp.position(100);
+    shx.position(100);
+    for (final ByteBuffer record : records) {
+      shx.putInt(shp.position() / 2);
+      shx.putInt(record.capacity() / 2 - 4);
+      shp.put(record.array());
+    }
+    final File shpFile = new File(this.folder.getRoot(), "test.shp");
+    write(shpFile, shp);
+    write(new File(this.folder.getRoot(), "test.shx"), shx);
+    return shpFile;
+  }
+
+  @Test
+  public void testContentOffset() {
+    final ByteBuffer shx = ByteBuffer.allocate(124);
+    shx.putInt(100, 50);
+    shx.putInt(108, 0x50000000);
+    shx.putInt(116, Integer.MAX_VALUE);
+    Assert.assertEquals(108, ShapefileSpatialIndex.getContentOffset(shx, 0));
+    // Offsets over 2GB
+    Assert.assertEquals(0xA0000008L,
+      ShapefileSpatialIndex.getContentOffset(shx, 1));
+    Assert.assertEquals(0xFFFFFFFEL + 8,
+      ShapefileSpatialIndex.getContentOffset(shx, 2));
+  }
+
+  @Test
+  public void testQuery() throws IOException {
+    final File shpFile = createShapefile();
+    final ShapefileSpatialIndex index = ShapefileSpatialIndex.open(shpFile);
+    Assert.assertEquals(3, index.getRecordCount());
+    Assert.assertArrayEquals(new int[] {
+      0
+    }, index.query(5, 5, 6, 6));
+    Assert.assertArrayEquals(new int[] {
+      2
+    }, index.query(40, 40, 60, 60));
+    Assert.assertArrayEquals(new int[] {
+      0, 2
+    }, index.query(0, 0, 100, 100));
+    Assert.assertArrayEquals(new int[0], index.query(20, 20, 30, 30));
+
+    // Read the saved index file
+    Assert.assertTrue(new File(this.folder.getRoot(), "test.rix").exists());
+    Assert.assertArrayEquals(new int[] {
+      0, 2
+    }, ShapefileSpatialIndex.open(shpFile).query(0, 0, 100, 100));
+  }
+}
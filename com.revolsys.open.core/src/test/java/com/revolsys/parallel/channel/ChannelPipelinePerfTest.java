@@ -0,0 +1,96 @@
+package com.revolsys.parallel.channel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.revolsys.parallel.process.AbstractInProcess;
+import com.revolsys.parallel.process.AbstractOutProcess;
+import com.revolsys.parallel.process.BaseInOutProcess;
+import com.revolsys.parallel.process.Process;
+import com.revolsys.parallel.process.ProcessNetwork;
+
+/**
+ * Measure the number of records per second through a 5 stage pipeline of
+ * processes using channels with a {@link com.revolsys.parallel.channel.store.Buffer}
+ * and a {@link com.revolsys.parallel.channel.store.RingBuffer}.
+ */
+public class ChannelPipelinePerfTest {
+  private static class Sink extends AbstractInProcess<Object> {
+    private long count;
+
+    @Override
+    protected void run(final Channel<Object> in) {
+      while (true) {
+        in.read();
+        this.count++;
+      }
+    }
+  }
+
+  private static class Source extends AbstractOutProcess<Object> {
+    private final int count;
+
+    public Source(final int count) {
+      this.count = count;
+    }
+
+    @Override
+    protected void run(final Channel<Object> out) {
+      final Object value = new Object();
+      for (int i = 0; i < this.count; i++) {
+        out.write(value);
+      }
+    }
+  }
+
+  private static class Stage extends BaseInOutProcess<Object, Object> {
+    @Override
+    protected void process(final Channel<Object> in,
+      final Channel<Object> out, final Object object) {
+      out.write(object);
+    }
+  }
+
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final int RECORD_COUNT = 2000000;
+
+  public static void main(final String[] args) {
+    for (int i = 0; i < 3; i++) {
+      run(false);
+      run(true);
+    }
+  }
+
+  private static void run(final boolean ringBuffer) {
+    final List<Process> processes = new ArrayList<Process>();
+    final Source source = new Source(RECORD_COUNT);
+    source.setOutBufferSize(BUFFER_SIZE);
+    source.setOutRingBuffer(ringBuffer);
+    processes.add(source);
+    Channel<Object> channel = source.getOut();
+    for (int i = 0; i < 3; i++) {
+      final Stage stage = new Stage();
+      stage.setIn(channel);
+      stage.setOutBufferSize(BUFFER_SIZE);
+      stage.setOutRingBuffer(ringBuffer);
+      processes.add(stage);
+      channel = stage.getOut();
+    }
+    final Sink sink = new Sink();
+    sink.setIn(channel);
+    processes.add(sink);
+
+    final long startTime = System.currentTimeMillis();
+    ProcessNetwork.startAndWait(processes.toArray(new Process[0]));
+    final long time = System.currentTimeMillis() - startTime;
+    final String type;
+    if (ringBuffer) {
+      type = "RingBuffer";
+    } else {
+      type = "Buffer";
+    }
+    System.out.println(type + "\t" + sink.count + " records\t" + time
+      + "ms\t" + sink.count * 1000 / Math.max(1, time) + " records/s");
+  }
+}
@@ -0,0 +1,231 @@
+package com.revolsys.parallel.channel.store;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.parallel.channel.Channel;
+import com.revolsys.parallel.channel.ClosedException;
+
+/**
+ * Check the values written to a {@link RingBuffer} are read once in order,
+ * including when the sequence numbers wrap around the buffer, when there are
+ * several writers and readers blocked on a small buffer and when the channel is
+ * closed while readers or writers are blocked.
+ */
+public class RingBufferTest {
+  private static final int TIMEOUT_SECONDS = 30;
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private Future<Integer> read(final Channel<Integer> channel,
+    final AtomicIntegerArray counts) {
+    return this.executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        int readCount = 0;
+        try {
+          while (true) {
+            final int value = channel.read();
+            counts.incrementAndGet(value);
+            readCount++;
+          }
+        } catch (final ClosedException e) {
+          return readCount;
+        }
+      }
+    });
+  }
+
+  @After
+  public void shutdown() {
+    this.executor.shutdownNow();
+  }
+
+  @Test
+  public void testCapacity() {
+    Assert.assertEquals(1, new RingBuffer<Integer>(1).getCapacity());
+    Assert.assertEquals(8, new RingBuffer<Integer>(5).getCapacity());
+    Assert.assertEquals(8, new RingBuffer<Integer>(8).getCapacity());
+    Assert.assertEquals(1024, new RingBuffer<Integer>().getCapacity());
+    try {
+      new RingBuffer<Integer>(0);
+      Assert.fail("Expected the size to be rejected");
+    } catch (final IllegalArgumentException e) {
+    }
+  }
+
+  @Test
+  public void testCloseWhileBlocked() throws Exception {
+    // A reader blocked on an empty channel
+    final Channel<Integer> readChannel = new Channel<>(new RingBuffer<Integer>(
+      2));
+    final Future<Integer> reader = this.executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        return readChannel.read();
+      }
+    });
+
+    // A writer blocked on a full channel
+    final Channel<Integer> writeChannel = new Channel<>(new RingBuffer<Integer>(
+      2));
+    writeChannel.write(1);
+    writeChannel.write(2);
+    final Future<Integer> writer = this.executor.submit(new Callable<Integer>() {
+      @Override
+      public Integer call() {
+        writeChannel.write(3);
+        return 3;
+      }
+    });
+
+    final List<Future<Integer>> futures = Arrays.asList(reader, writer);
+    for (final Future<Integer> future : futures) {
+      try {
+        future.get(100, TimeUnit.MILLISECONDS);
+        Assert.fail("Expected the thread to be blocked");
+      } catch (final TimeoutException e) {
+      }
+    }
+    readChannel.close();
+    writeChannel.close();
+    for (final Future<Integer> future : futures) {
+      try {
+        future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        Assert.fail("Expected the channel to be closed");
+      } catch (final ExecutionException e) {
+        Assert.assertEquals(ClosedException.class, e.getCause().getClass());
+      }
+    }
+  }
+
+  @Test
+  public void testMultipleWritersAndReaders() throws Exception {
+    final int writerCount = 4;
+    final int readerCount = 4;
+    final int valueCount = 20000;
+    // A small buffer so the readers and writers are often blocked
+    final Channel<Integer> channel = new Channel<>(new RingBuffer<Integer>(4));
+    final AtomicIntegerArray counts = new AtomicIntegerArray(writerCount
+      * valueCount);
+
+    final List<Future<Integer>> writers = new ArrayList<>();
+    for (int i = 0; i < writerCount; i++) {
+      final int writerIndex = i;
+      channel.writeConnect();
+      writers.add(this.executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          try {
+            for (int j = 0; j < valueCount; j++) {
+              channel.write(writerIndex * valueCount + j);
+            }
+          } finally {
+            channel.writeDisconnect();
+          }
+          return valueCount;
+        }
+      }));
+    }
+    final List<Future<Integer>> readers = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      readers.add(read(channel, counts));
+    }
+
+    for (final Future<Integer> writer : writers) {
+      writer.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    int readCount = 0;
+    for (final Future<Integer> reader : readers) {
+      readCount += reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+    Assert.assertEquals(writerCount * valueCount, readCount);
+    for (int i = 0; i < counts.length(); i++) {
+      Assert.assertEquals("Value " + i, 1, counts.get(i));
+    }
+  }
+
+  @Test
+  public void testOfferPoll() {
+    final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+    Assert.assertNull(buffer.poll());
+    int written = 0;
+    int read = 0;
+    // Wrap around the buffer many times with different numbers of values
+    for (int round = 0; round < 100; round++) {
+      final int writeCount = 1 + round % 4;
+      for (int i = 0; i < writeCount; i++) {
+        Assert.assertTrue(buffer.offer(written++));
+      }
+      Assert.assertEquals(writeCount, buffer.size());
+      for (int i = 0; i < writeCount; i++) {
+        Assert.assertEquals(Integer.valueOf(read++), buffer.poll());
+      }
+      Assert.assertNull(buffer.poll());
+      Assert.assertEquals(0, buffer.size());
+    }
+
+    for (int i = 0; i < 4; i++) {
+      Assert.assertTrue(buffer.offer(i));
+    }
+    Assert.assertFalse("Full", buffer.offer(4));
+    Assert.assertEquals(4, buffer.size());
+    Assert.assertEquals(Integer.valueOf(0), buffer.poll());
+    Assert.assertTrue(buffer.offer(4));
+    for (int i = 1; i <= 4; i++) {
+      Assert.assertEquals(Integer.valueOf(i), buffer.poll());
+    }
+
+    try {
+      buffer.offer(null);
+      Assert.fail("Expected null to be rejected");
+    } catch (final NullPointerException e) {
+    }
+  }
+
+  @Test
+  public void testWaitingReaders() throws Exception {
+    // Several readers parked at the same time must all be woken by the writes
+    final RingBuffer<Integer> buffer = new RingBuffer<>(8);
+    final int readerCount = 4;
+    final List<Future<Integer>> readers = new ArrayList<>();
+    for (int i = 0; i < readerCount; i++) {
+      readers.add(this.executor.submit(new Callable<Integer>() {
+        @Override
+        public Integer call() {
+          while (true) {
+            final Integer value = buffer.poll();
+            if (value != null) {
+              return value;
+            }
+            buffer.awaitNotEmpty(0);
+          }
+        }
+      }));
+    }
+    Thread.sleep(100);
+    for (int i = 0; i < readerCount; i++) {
+      Assert.assertTrue(buffer.offer(i));
+    }
+    final AtomicIntegerArray counts = new AtomicIntegerArray(readerCount);
+    for (final Future<Integer> reader : readers) {
+      counts.incrementAndGet(reader.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+    for (int i = 0; i < readerCount; i++) {
+      Assert.assertEquals(1, counts.get(i));
+    }
+  }
+}
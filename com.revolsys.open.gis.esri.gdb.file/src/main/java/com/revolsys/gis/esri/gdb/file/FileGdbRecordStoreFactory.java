@@ -8,9 +8,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.revolsys.converter.string.BooleanStringConverter;
 import com.revolsys.data.io.RecordStoreFactory;
 import com.revolsys.data.io.RecordStoreFactoryRegistry;
 import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.gis.esri.gdb.file.table.FileGdbTableRecordStore;
 import com.revolsys.io.FileUtil;
 import com.revolsys.util.Maps;
 
@@ -79,8 +81,15 @@ public class FileGdbRecordStoreFactory implements RecordStoreFactory {
         connectionProperties);
     final String url = (String)properties.remove("url");
     final File file = FileUtil.getUrlFile(url);
+    final boolean readOnly = BooleanStringConverter.getBoolean(properties.remove(
+      "readOnly"));
 
-    final FileGdbRecordStore recordStore = create(file);
+    final FileGdbRecordStore recordStore;
+    if (readOnly) {
+      recordStore = new FileGdbTableRecordStore(file);
+    } else {
+      recordStore = create(file);
+    }
     RecordStoreFactoryRegistry.setConnectionProperties(recordStore, properties);
     return recordStore;
   }
@@ -0,0 +1,611 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.RecordFactory;
+import com.revolsys.data.record.RecordState;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.record.schema.RecordStoreSchema;
+import com.revolsys.data.types.DataType;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.gis.cs.CoordinateSystem;
+import com.revolsys.gis.cs.esri.EsriCoordinateSystems;
+import com.revolsys.gis.esri.gdb.file.table.field.AbstractFileGdbTableFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.BinaryFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.DateFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.DoubleFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.FloatFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.GeometryFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.GuidFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.IntegerFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.OidFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.ShortFieldDefinition;
+import com.revolsys.gis.esri.gdb.file.table.field.StringFieldDefinition;
+import com.revolsys.io.FileUtil;
+import com.revolsys.io.esri.gdb.xml.EsriGeodatabaseXmlConstants;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+
+/**
+ * <p>A table in an ESRI file geodatabase read directly from the .gdbtable and
+ * .gdbtablx files. The .gdbtablx file contains the offset of each row in the
+ * .gdbtable file indexed by object id.</p>
+ *
+ * <p>Both files are memory mapped and the table has no mutable state, so any
+ * number of threads can read the table at the same time using their own
+ * duplicates of the buffers (see {@link #duplicateBuffers()}). Files larger
+ * than {@link #SEGMENT_SIZE} are mapped as several overlapping segments so a
+ * row is always contained in a single buffer.</p>
+ *
+ * <p>Only file geodatabase 10 tables are supported.</p>
+ */
+public class FileGdbTable {
+  private static final int FIELDS_VERSION_10 = 4;
+
+  private static final int INDEX_HEADER_SIZE = 16;
+
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  public static ByteBuffer[] duplicate(final ByteBuffer[] buffers) {
+    final ByteBuffer[] duplicates = new ByteBuffer[buffers.length];
+    for (int i = 0; i < buffers.length; i++) {
+      final ByteBuffer duplicate = buffers[i].duplicate();
+      duplicate.order(ByteOrder.LITTLE_ENDIAN);
+      duplicates[i] = duplicate;
+    }
+    return duplicates;
+  }
+
+  private static ByteBuffer getBuffer(final ByteBuffer[] buffers,
+    final long position) {
+    final int segmentIndex = (int)(position / SEGMENT_SIZE);
+    final ByteBuffer buffer = buffers[segmentIndex];
+    buffer.position((int)(position - segmentIndex * SEGMENT_SIZE));
+    return buffer;
+  }
+
+  /**
+   * Check if the bit for the nullable field is set in the null bitmap at the
+   * start of a row.
+   *
+   * @param buffer The buffer for the row.
+   * @param nullOffset The position of the null bitmap.
+   * @param nullableIndex The index of the field in the nullable fields.
+   * @return True if the value is null.
+   */
+  static boolean isNull(final ByteBuffer buffer, final int nullOffset,
+    final int nullableIndex) {
+    final int nullBits = buffer.get(nullOffset + nullableIndex / 8);
+    return (nullBits & 1 << nullableIndex % 8) != 0;
+  }
+
+  private static ByteBuffer[] map(final FileChannel channel,
+    final int overlap) throws IOException {
+    final long length = channel.size();
+    final int segmentCount = (int)Math.max(1, (length + SEGMENT_SIZE - 1)
+      / SEGMENT_SIZE);
+    final ByteBuffer[] buffers = new ByteBuffer[segmentCount];
+    for (int i = 0; i < segmentCount; i++) {
+      final long start = i * SEGMENT_SIZE;
+      final long size = Math.min(length - start, SEGMENT_SIZE + overlap);
+      final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, start, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      buffers[i] = buffer;
+    }
+    return buffers;
+  }
+
+  private static ByteBuffer read(final FileChannel channel,
+    final long position, final int length) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of file");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Read the bitmap of the 1024 row blocks that are stored in a sparse
+   * .gdbtablx file. Blocks that don't contain any rows aren't stored, so the
+   * index of a block in the file is the number of set bits before it.
+   *
+   * @param buffers The buffers for the .gdbtablx file.
+   * @param bitmapOffset The position of the bitmap.
+   * @param bitmapWordCount The number of 32 bit words in the bitmap.
+   * @return The index of each block in the file or -1 if it isn't stored.
+   */
+  static int[] readBlockIndexes(final ByteBuffer[] buffers,
+    final long bitmapOffset, final int bitmapWordCount) {
+    final int[] blockIndexes = new int[bitmapWordCount * 32];
+    int blockIndex = 0;
+    for (int i = 0; i < blockIndexes.length; i++) {
+      final int bits = getBuffer(buffers, bitmapOffset + i / 8).get();
+      if ((bits & 1 << i % 8) == 0) {
+        blockIndexes[i] = -1;
+      } else {
+        blockIndexes[i] = blockIndex++;
+      }
+    }
+    return blockIndexes;
+  }
+
+  private static String readUtf16(final ByteBuffer buffer, final int length) {
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_16LE);
+  }
+
+  private static void skip(final ByteBuffer buffer, final int count) {
+    buffer.position(buffer.position() + count);
+  }
+
+  /** The index of each 1024 row block in the .gdbtablx or -1 if no rows. */
+  private int[] blockIndexes;
+
+  private final AbstractFileGdbTableFieldDefinition[] fields;
+
+  private final File file;
+
+  private int geometryFieldIndex = -1;
+
+  private final ByteBuffer[] indexBuffers;
+
+  private final int maxObjectId;
+
+  private final boolean[] nullable;
+
+  private final int nullBytesCount;
+
+  private final int offsetSize;
+
+  private final int recordCount;
+
+  private final RecordDefinitionImpl recordDefinition;
+
+  private final ByteBuffer[] tableBuffers;
+
+  public FileGdbTable(final RecordStoreSchema schema, final String typePath,
+    final File file) throws IOException {
+    this.file = file;
+    final File indexFile = FileUtil.getFileWithExtension(file, "gdbtablx");
+    try (
+      RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+      final FileChannel channel = randomAccessFile.getChannel();
+      final ByteBuffer header = read(channel, 0, 40);
+      this.recordCount = header.getInt(4);
+      final int maxRowSize = header.getInt(8);
+      final long fieldsOffset = header.getLong(32);
+      final int fieldsLength = read(channel, fieldsOffset, 4).getInt();
+      final ByteBuffer fieldsBuffer = read(channel, fieldsOffset + 4,
+        fieldsLength);
+
+      this.recordDefinition = new RecordDefinitionImpl(schema, typePath);
+      final List<AbstractFileGdbTableFieldDefinition> fields = new ArrayList<>();
+      final List<Boolean> nullable = new ArrayList<>();
+      readFields(fieldsBuffer, fields, nullable);
+      this.fields = fields.toArray(new AbstractFileGdbTableFieldDefinition[fields.size()]);
+      this.nullable = new boolean[nullable.size()];
+      int nullableCount = 0;
+      for (int i = 0; i < this.nullable.length; i++) {
+        this.nullable[i] = nullable.get(i);
+        if (this.nullable[i]) {
+          nullableCount++;
+        }
+      }
+      this.nullBytesCount = (nullableCount + 7) / 8;
+      this.tableBuffers = map(channel, maxRowSize + 16);
+    }
+    try (
+      RandomAccessFile randomAccessFile = new RandomAccessFile(indexFile, "r")) {
+      this.indexBuffers = map(randomAccessFile.getChannel(), INDEX_HEADER_SIZE);
+    }
+    final ByteBuffer indexHeader = this.indexBuffers[0];
+    final int blockCount = indexHeader.getInt(4);
+    this.maxObjectId = indexHeader.getInt(8);
+    this.offsetSize = indexHeader.getInt(12);
+    if (blockCount > 0) {
+      final long trailerOffset = INDEX_HEADER_SIZE + (long)this.offsetSize
+        * 1024 * blockCount;
+      final int bitmapWordCount = getBuffer(this.indexBuffers, trailerOffset).getInt();
+      if (bitmapWordCount > 0) {
+        this.blockIndexes = readBlockIndexes(this.indexBuffers,
+          trailerOffset + 16, bitmapWordCount);
+      }
+    }
+  }
+
+  /**
+   * Create an iterator over the records in the table.
+   *
+   * @param recordFactory The factory used to create the records.
+   * @param boundingBox If not null only records whose geometry intersects the
+   * bounding box are returned.
+   * @return The iterator.
+   */
+  public FileGdbTableIterator createIterator(final RecordFactory recordFactory,
+    final BoundingBox boundingBox) {
+    return new FileGdbTableIterator(this, recordFactory, boundingBox);
+  }
+
+  /**
+   * Create duplicates of the memory mapped buffers for the .gdbtable and
+   * .gdbtablx files that share the mapped files but have their own positions.
+   *
+   * @return The .gdbtable and .gdbtablx buffers.
+   */
+  public ByteBuffer[][] duplicateBuffers() {
+    return new ByteBuffer[][] {
+      duplicate(this.tableBuffers), duplicate(this.indexBuffers)
+    };
+  }
+
+  public File getFile() {
+    return this.file;
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    if (this.geometryFieldIndex == -1) {
+      return null;
+    } else {
+      return ((GeometryFieldDefinition)this.fields[this.geometryFieldIndex]).getGeometryFactory();
+    }
+  }
+
+  /**
+   * Get the maximum object id. Object ids less than or equal to this may
+   * exist.
+   */
+  public int getMaxObjectId() {
+    return this.maxObjectId;
+  }
+
+  /**
+   * Get the number of records that have not been deleted.
+   */
+  public int getRecordCount() {
+    return this.recordCount;
+  }
+
+  public RecordDefinitionImpl getRecordDefinition() {
+    return this.recordDefinition;
+  }
+
+  private long getRowOffset(final ByteBuffer[] indexBuffers,
+    final int objectId) {
+    final int rowIndex = objectId - 1;
+    if (rowIndex < 0 || rowIndex >= this.maxObjectId) {
+      return 0;
+    } else {
+      long entryIndex;
+      if (this.blockIndexes == null) {
+        entryIndex = rowIndex;
+      } else {
+        final int blockNumber = rowIndex >>> 10;
+        if (blockNumber >= this.blockIndexes.length) {
+          return 0;
+        } else {
+          final int blockIndex = this.blockIndexes[blockNumber];
+          if (blockIndex == -1) {
+            return 0;
+          } else {
+            entryIndex = blockIndex * 1024L + (rowIndex & 1023);
+          }
+        }
+      }
+      final ByteBuffer buffer = getBuffer(indexBuffers, INDEX_HEADER_SIZE
+        + entryIndex * this.offsetSize);
+      long offset = 0;
+      for (int i = 0; i < this.offsetSize; i++) {
+        offset |= (long)(buffer.get() & 0xff) << i * 8;
+      }
+      return offset;
+    }
+  }
+
+  /**
+   * Load the record with the object id.
+   *
+   * @param recordFactory The factory used to create the record.
+   * @param objectId The object id.
+   * @return The record or null if it does not exist or was deleted.
+   */
+  public Record load(final RecordFactory recordFactory, final int objectId) {
+    final ByteBuffer[][] buffers = duplicateBuffers();
+    return readRecord(buffers[0], buffers[1], recordFactory, objectId, null);
+  }
+
+  private AbstractFileGdbTableFieldDefinition readField(
+    final ByteBuffer buffer, final DataType geometryDataType,
+    final String name, final int fieldType, final boolean[] nullable) {
+    final int flags;
+    switch (fieldType) {
+      case 0:
+      case 1:
+      case 2:
+      case 3:
+      case 5: {
+        buffer.get();
+        flags = buffer.get();
+        final int defaultLength = buffer.get() & 0xff;
+        skip(buffer, defaultLength);
+        nullable[0] = (flags & 1) != 0;
+        final boolean required = !nullable[0];
+        switch (fieldType) {
+          case 0:
+            return new ShortFieldDefinition(name, required);
+          case 1:
+            return new IntegerFieldDefinition(name, required);
+          case 2:
+            return new FloatFieldDefinition(name, required);
+          case 3:
+            return new DoubleFieldDefinition(name, required);
+          default:
+            return new DateFieldDefinition(name, required);
+        }
+      }
+      case 4: {
+        final int length = buffer.getInt();
+        flags = buffer.get();
+        final int defaultLength = (int)AbstractFileGdbTableFieldDefinition.readVarUInt(buffer);
+        skip(buffer, defaultLength);
+        nullable[0] = (flags & 1) != 0;
+        return new StringFieldDefinition(name, length, !nullable[0]);
+      }
+      case 6:
+        buffer.get();
+        buffer.get();
+        nullable[0] = false;
+        return new OidFieldDefinition(name);
+      case 7:
+        return readGeometryField(buffer, geometryDataType, name, nullable);
+      case 8:
+      case 10:
+      case 11:
+      case 12: {
+        buffer.get();
+        flags = buffer.get();
+        nullable[0] = (flags & 1) != 0;
+        final boolean required = !nullable[0];
+        switch (fieldType) {
+          case 8:
+            return new BinaryFieldDefinition(name, required);
+          case 12:
+            return new StringFieldDefinition(name, 0, required);
+          default:
+            return new GuidFieldDefinition(name, required);
+        }
+      }
+      default:
+        throw new IllegalArgumentException("Field type " + fieldType
+          + " is not supported for " + name + " in " + this.file);
+    }
+  }
+
+  private void readFields(final ByteBuffer buffer,
+    final List<AbstractFileGdbTableFieldDefinition> fields,
+    final List<Boolean> nullableList) {
+    final int version = buffer.getInt();
+    if (version != FIELDS_VERSION_10) {
+      throw new IllegalArgumentException(
+        "Only file geodatabase 10 tables are supported " + this.file);
+    }
+    final int tableGeometryType = buffer.get() & 0xff;
+    final DataType geometryDataType;
+    switch (tableGeometryType) {
+      case 1:
+        geometryDataType = DataTypes.POINT;
+      break;
+      case 2:
+        geometryDataType = DataTypes.MULTI_POINT;
+      break;
+      case 3:
+        geometryDataType = DataTypes.MULTI_LINE_STRING;
+      break;
+      case 4:
+        geometryDataType = DataTypes.MULTI_POLYGON;
+      break;
+      default:
+        geometryDataType = DataTypes.GEOMETRY;
+      break;
+    }
+    skip(buffer, 3);
+    final int fieldCount = buffer.getShort() & 0xffff;
+    final boolean[] nullable = new boolean[1];
+    String oidFieldName = null;
+    String globalIdFieldName = null;
+    for (int i = 0; i < fieldCount; i++) {
+      final String name = readUtf16(buffer, (buffer.get() & 0xff) * 2);
+      final String alias = readUtf16(buffer, (buffer.get() & 0xff) * 2);
+      final int fieldType = buffer.get() & 0xff;
+      final AbstractFileGdbTableFieldDefinition field = readField(buffer,
+        geometryDataType, name, fieldType, nullable);
+      if (alias.length() > 0 && !alias.equals(name)) {
+        field.setTitle(alias);
+      }
+      if (fieldType == 6) {
+        oidFieldName = name;
+      } else if (fieldType == 11) {
+        globalIdFieldName = name;
+      } else if (fieldType == 7 && this.geometryFieldIndex == -1) {
+        this.geometryFieldIndex = fields.size();
+      }
+      fields.add(field);
+      nullableList.add(nullable[0]);
+      this.recordDefinition.addField(field);
+    }
+    if (oidFieldName != null) {
+      this.recordDefinition.setProperty(
+        EsriGeodatabaseXmlConstants.ESRI_OBJECT_ID_FIELD_NAME, oidFieldName);
+    }
+    if (globalIdFieldName != null) {
+      this.recordDefinition.setIdFieldName(globalIdFieldName);
+    } else if (oidFieldName != null) {
+      this.recordDefinition.setIdFieldName(oidFieldName);
+    }
+    if (this.geometryFieldIndex != -1) {
+      final String geometryFieldName = fields.get(this.geometryFieldIndex)
+        .getName();
+      this.recordDefinition.setGeometryFieldName(geometryFieldName);
+    }
+  }
+
+  private GeometryFieldDefinition readGeometryField(final ByteBuffer buffer,
+    final DataType dataType, final String name, final boolean[] nullable) {
+    buffer.get();
+    final int flags = buffer.get();
+    nullable[0] = (flags & 1) != 0;
+    final int wktLength = buffer.getShort() & 0xffff;
+    final String wkt = readUtf16(buffer, wktLength);
+    final int geometryFlags = buffer.get();
+    final boolean hasM = (geometryFlags & 2) != 0;
+    final boolean hasZ = (geometryFlags & 4) != 0;
+    final double xOrigin = buffer.getDouble();
+    final double yOrigin = buffer.getDouble();
+    final double xyScale = buffer.getDouble();
+    double mOrigin = 0;
+    double mScale = 1;
+    if (hasM) {
+      mOrigin = buffer.getDouble();
+      mScale = buffer.getDouble();
+    }
+    double zOrigin = 0;
+    double zScale = 1;
+    if (hasZ) {
+      zOrigin = buffer.getDouble();
+      zScale = buffer.getDouble();
+    }
+    // xy tolerance, m tolerance, z tolerance and the extent
+    skip(buffer, (1 + (hasM ? 1 : 0) + (hasZ ? 1 : 0) + 4) * 8);
+    // The z and m ranges (if any) followed by 0, the number of spatial index
+    // grid sizes as a 4 byte integer and the grid sizes
+    boolean gridSizesFound = false;
+    for (int i = 0; i < 5 && !gridSizesFound && buffer.remaining() >= 5; i++) {
+      final int position = buffer.position();
+      final int gridCount = buffer.get(position + 1);
+      if (buffer.get(position) == 0 && gridCount >= 1 && gridCount <= 3
+        && buffer.get(position + 2) == 0 && buffer.get(position + 3) == 0
+        && buffer.get(position + 4) == 0) {
+        skip(buffer, 5 + gridCount * 8);
+        gridSizesFound = true;
+      } else {
+        skip(buffer, 8);
+      }
+    }
+    if (!gridSizesFound) {
+      throw new IllegalArgumentException(
+        "Unable to find the spatial index grid sizes for geometry field "
+          + name + " in " + this.recordDefinition.getPath() + " " + this.file);
+    }
+
+    CoordinateSystem coordinateSystem = null;
+    if (wkt.length() > 0 && !wkt.startsWith("{")) {
+      try {
+        coordinateSystem = EsriCoordinateSystems.getCoordinateSystem(wkt);
+      } catch (final Throwable e) {
+        LoggerFactory.getLogger(getClass()).error(
+          "Unable to parse coordinate system for " + name + " in " + this.file
+            + "\n" + wkt, e);
+      }
+    }
+    int axisCount = 2;
+    if (hasM) {
+      axisCount = 4;
+    } else if (hasZ) {
+      axisCount = 3;
+    }
+    final GeometryFactory geometryFactory;
+    if (hasZ) {
+      geometryFactory = GeometryFactory.fixed(coordinateSystem, axisCount,
+        xyScale, zScale);
+    } else {
+      geometryFactory = GeometryFactory.fixed(coordinateSystem, axisCount,
+        xyScale, 0.0);
+    }
+    return new GeometryFieldDefinition(name, dataType, !nullable[0],
+      geometryFactory, xOrigin, yOrigin, xyScale, zOrigin, zScale, mOrigin,
+      mScale);
+  }
+
+  /**
+   * Read the record with the object id using the buffers.
+   *
+   * @param tableBuffers The buffers for the .gdbtable file.
+   * @param indexBuffers The buffers for the .gdbtablx file.
+   * @param recordFactory The factory used to create the record.
+   * @param objectId The object id.
+   * @param boundingBox If not null return null if the geometry of the record
+   * does not intersect the bounding box.
+   * @return The record or null if it does not exist or was deleted.
+   */
+  Record readRecord(final ByteBuffer[] tableBuffers,
+    final ByteBuffer[] indexBuffers, final RecordFactory recordFactory,
+    final int objectId, final BoundingBox boundingBox) {
+    final long offset = getRowOffset(indexBuffers, objectId);
+    if (offset <= 0) {
+      return null;
+    } else {
+      final ByteBuffer buffer = getBuffer(tableBuffers, offset);
+      final int length = buffer.getInt();
+      if (length <= 0) {
+        return null;
+      } else {
+        final int nullOffset = buffer.position();
+        skip(buffer, this.nullBytesCount);
+        final Record record = recordFactory.createRecord(this.recordDefinition);
+        record.setState(RecordState.Initalizing);
+        int nullableIndex = 0;
+        for (int fieldIndex = 0; fieldIndex < this.fields.length; fieldIndex++) {
+          final AbstractFileGdbTableFieldDefinition field = this.fields[fieldIndex];
+          if (field instanceof OidFieldDefinition) {
+            record.setValue(fieldIndex, objectId);
+          } else {
+            boolean isNull = false;
+            if (this.nullable[fieldIndex]) {
+              isNull = isNull(buffer, nullOffset, nullableIndex);
+              nullableIndex++;
+            }
+            Object value = null;
+            if (!isNull) {
+              value = field.readValue(buffer);
+              record.setValue(fieldIndex, value);
+            }
+            if (boundingBox != null && fieldIndex == this.geometryFieldIndex) {
+              if (!(value instanceof Geometry)) {
+                return null;
+              } else {
+                final Geometry geometry = (Geometry)value;
+                if (!boundingBox.intersects(geometry.getBoundingBox())) {
+                  return null;
+                }
+              }
+            }
+          }
+        }
+        record.setState(RecordState.Persisted);
+        return record;
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.recordDefinition.getPath() + " " + this.file;
+  }
+}
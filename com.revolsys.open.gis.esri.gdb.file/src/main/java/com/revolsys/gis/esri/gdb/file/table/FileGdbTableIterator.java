@@ -0,0 +1,95 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+import com.revolsys.collection.AbstractIterator;
+import com.revolsys.data.io.RecordIterator;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.RecordFactory;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.GeometryFactory;
+
+/**
+ * Iterate over the records in a {@link FileGdbTable} in object id order. Each
+ * iterator reads the table using its own duplicates of the memory mapped
+ * buffers so iterators can be used by different threads without any locking.
+ */
+public class FileGdbTableIterator extends AbstractIterator<Record> implements
+  RecordIterator {
+  private BoundingBox boundingBox;
+
+  private ByteBuffer[] indexBuffers;
+
+  private final int maxObjectId;
+
+  private int objectId = 0;
+
+  private final RecordFactory recordFactory;
+
+  private FileGdbTable table;
+
+  private ByteBuffer[] tableBuffers;
+
+  public FileGdbTableIterator(final FileGdbTable table,
+    final RecordFactory recordFactory, final BoundingBox boundingBox) {
+    this.table = table;
+    this.recordFactory = recordFactory;
+    this.maxObjectId = table.getMaxObjectId();
+    if (boundingBox != null) {
+      final GeometryFactory geometryFactory = table.getGeometryFactory();
+      if (geometryFactory == null) {
+        this.boundingBox = boundingBox;
+      } else {
+        this.boundingBox = boundingBox.convert(geometryFactory);
+      }
+    }
+  }
+
+  @Override
+  protected void doClose() {
+    this.table = null;
+    this.tableBuffers = null;
+    this.indexBuffers = null;
+  }
+
+  @Override
+  protected void doInit() {
+    final ByteBuffer[][] buffers = this.table.duplicateBuffers();
+    this.tableBuffers = buffers[0];
+    this.indexBuffers = buffers[1];
+  }
+
+  @Override
+  protected Record getNext() throws NoSuchElementException {
+    if (this.table == null) {
+      throw new NoSuchElementException();
+    } else {
+      while (this.objectId < this.maxObjectId) {
+        this.objectId++;
+        final Record record = this.table.readRecord(this.tableBuffers,
+          this.indexBuffers, this.recordFactory, this.objectId,
+          this.boundingBox);
+        if (record != null) {
+          return record;
+        }
+      }
+      throw new NoSuchElementException();
+    }
+  }
+
+  @Override
+  public RecordDefinition getRecordDefinition() {
+    if (this.table == null) {
+      return null;
+    } else {
+      return this.table.getRecordDefinition();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(this.table);
+  }
+}
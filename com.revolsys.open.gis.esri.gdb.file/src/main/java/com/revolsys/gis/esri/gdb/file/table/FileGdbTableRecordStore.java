@@ -0,0 +1,333 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.revolsys.collection.AbstractIterator;
+import com.revolsys.data.io.RecordIteratorReader;
+import com.revolsys.data.query.Query;
+import com.revolsys.data.query.QueryValue;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.AbstractRecordStore;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.record.schema.RecordDefinitionImpl;
+import com.revolsys.data.record.schema.RecordStoreSchema;
+import com.revolsys.data.record.schema.RecordStoreSchemaElement;
+import com.revolsys.gis.esri.gdb.file.FileGdbRecordStore;
+import com.revolsys.io.Path;
+import com.revolsys.io.Writer;
+import com.revolsys.io.directory.RecordReaderQueryIterator;
+import com.revolsys.io.esri.gdb.xml.EsriGeodatabaseXmlConstants;
+import com.revolsys.jts.geom.BoundingBox;
+
+/**
+ * <p>A read only record store for an ESRI file geodatabase that reads the
+ * .gdbtable and .gdbtablx files directly using {@link FileGdbTable} instead of
+ * the ESRI File Geodatabase API. The files are memory mapped and each query
+ * reads the table using its own buffers, so any number of tables and queries
+ * can be read by different threads at the same time without any locking.</p>
+ *
+ * <p>The tables are found using the GDB_SystemCatalog table and the feature
+ * datasets and paths of the tables using the GDB_Items table. Where conditions
+ * are evaluated in Java after reading each record. If the query has an order by
+ * the matching records are sorted in memory before the offset and limit are
+ * applied. Only file geodatabase 10 tables are supported and the spatial
+ * indexes are not used.</p>
+ */
+public class FileGdbTableRecordStore extends AbstractRecordStore implements
+  FileGdbRecordStore {
+  private static final String CATALOG_FILE_NAME = "a00000001.gdbtable";
+
+  private static final String FEATURE_DATASET_TYPE = "{74737149-DCB5-4257-8904-B9724E32A530}";
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileGdbTableRecordStore.class);
+
+  private String defaultSchemaPath = "/";
+
+  private final File directory;
+
+  /** The tables indexed by the upper case type path. */
+  private final Map<String, FileGdbTable> tablesByPath = new HashMap<>();
+
+  public FileGdbTableRecordStore(final File directory) {
+    this.directory = directory;
+  }
+
+  @Override
+  public void close() {
+    synchronized (this.tablesByPath) {
+      this.tablesByPath.clear();
+    }
+    super.close();
+  }
+
+  @Override
+  public AbstractIterator<Record> createIterator(final Query query,
+    final Map<String, Object> properties) {
+    final FileGdbTable table = getTable(query);
+    if (table == null) {
+      return super.createIterator(query, properties);
+    } else {
+      final BoundingBox boundingBox = QueryValue.getFilterBoundingBox(query);
+      final FileGdbTableIterator iterator = table.createIterator(
+        getRecordFactory(), boundingBox);
+      return new RecordReaderQueryIterator(new RecordIteratorReader(iterator),
+        query);
+    }
+  }
+
+  @Override
+  public Writer<Record> createWriter() {
+    throw new UnsupportedOperationException(this.directory + " is read only");
+  }
+
+  @Override
+  public void deleteGeodatabase() {
+    throw new UnsupportedOperationException(this.directory + " is read only");
+  }
+
+  public String getDefaultSchema() {
+    return this.defaultSchemaPath;
+  }
+
+  public File getDirectory() {
+    return this.directory;
+  }
+
+  @Override
+  public int getRowCount(final Query query) {
+    final FileGdbTable table = getTable(query);
+    if (table == null) {
+      return 0;
+    } else if (query.getWhereCondition() == null) {
+      return table.getRecordCount();
+    } else {
+      int count = 0;
+      final AbstractIterator<Record> iterator = createIterator(query, null);
+      try {
+        while (iterator.hasNext()) {
+          iterator.next();
+          count++;
+        }
+      } finally {
+        iterator.close();
+      }
+      return count;
+    }
+  }
+
+  /**
+   * Get the table for the type path.
+   *
+   * @param typePath The type path.
+   * @return The table or null if it does not exist.
+   */
+  public FileGdbTable getTable(final String typePath) {
+    if (typePath == null) {
+      return null;
+    } else {
+      final RecordDefinition recordDefinition = getRecordDefinition(typePath);
+      if (recordDefinition == null) {
+        return null;
+      } else {
+        synchronized (this.tablesByPath) {
+          return this.tablesByPath.get(recordDefinition.getPath()
+            .toUpperCase());
+        }
+      }
+    }
+  }
+
+  private FileGdbTable getTable(final Query query) {
+    final RecordDefinition recordDefinition = query.getRecordDefinition();
+    if (recordDefinition == null) {
+      return getTable(query.getTypeName());
+    } else {
+      return getTable(recordDefinition.getPath());
+    }
+  }
+
+  /**
+   * Load the record using the object id. The offset of the record is read from
+   * the .gdbtablx index.
+   */
+  @Override
+  public Record load(final String typePath, final Object... id) {
+    final FileGdbTable table = getTable(typePath);
+    if (table != null && id.length == 1 && id[0] instanceof Number) {
+      final RecordDefinition recordDefinition = table.getRecordDefinition();
+      final String idFieldName = recordDefinition.getIdFieldName();
+      final String oidFieldName = recordDefinition.getProperty(EsriGeodatabaseXmlConstants.ESRI_OBJECT_ID_FIELD_NAME);
+      if (idFieldName != null && idFieldName.equals(oidFieldName)) {
+        final int objectId = ((Number)id[0]).intValue();
+        return table.load(getRecordFactory(), objectId);
+      }
+    }
+    return super.load(typePath, id);
+  }
+
+  /**
+   * Read the name and file of the tables from the GDB_SystemCatalog table.
+   */
+  private Map<String, File> readCatalog() throws IOException {
+    final Map<String, File> filesByName = new LinkedHashMap<>();
+    final File catalogFile = new File(this.directory, CATALOG_FILE_NAME);
+    final FileGdbTable catalog = new FileGdbTable(null, "/GDB_SystemCatalog",
+      catalogFile);
+    final FileGdbTableIterator iterator = catalog.createIterator(
+      getRecordFactory(), null);
+    try {
+      while (iterator.hasNext()) {
+        final Record record = iterator.next();
+        final String name = record.getValue("Name");
+        final Number format = record.getValue("FileFormat");
+        final Number tableNumber = record.getValue("ID");
+        if (name != null && tableNumber != null
+          && (format == null || format.intValue() == 0)) {
+          final String fileName = String.format("a%08x.gdbtable",
+            tableNumber.intValue());
+          final File file = new File(this.directory, fileName);
+          if (file.exists()) {
+            filesByName.put(name, file);
+          }
+        }
+      }
+    } finally {
+      iterator.close();
+    }
+    return filesByName;
+  }
+
+  /**
+   * Read the paths of the feature datasets and the tables (indexed by the
+   * upper case table name) from the GDB_Items table.
+   */
+  private void readItems(final File itemsFile,
+    final Map<String, String> tablePaths,
+    final List<String> featureDatasetPaths) throws IOException {
+    final FileGdbTable items = new FileGdbTable(null, "/GDB_Items", itemsFile);
+    final FileGdbTableIterator iterator = items.createIterator(
+      getRecordFactory(), null);
+    try {
+      while (iterator.hasNext()) {
+        final Record record = iterator.next();
+        final String itemPath = record.getValue("Path");
+        if (itemPath != null) {
+          final String path = Path.clean(itemPath);
+          final String type = record.getValue("Type");
+          if (FEATURE_DATASET_TYPE.equalsIgnoreCase(type)) {
+            featureDatasetPaths.add(path);
+          } else {
+            final String name = Path.getName(path);
+            tablePaths.put(name.toUpperCase(), path);
+          }
+        }
+      }
+    } finally {
+      iterator.close();
+    }
+  }
+
+  @Override
+  protected Map<String, ? extends RecordStoreSchemaElement> refreshSchemaElements(
+    final RecordStoreSchema schema) {
+    final Map<String, RecordStoreSchemaElement> elementsByPath = new TreeMap<>();
+    final String schemaPath = schema.getPath();
+    final Map<String, File> filesByName;
+    final Map<String, String> tablePaths = new HashMap<>();
+    final List<String> featureDatasetPaths = new ArrayList<>();
+    try {
+      filesByName = readCatalog();
+      final File itemsFile = filesByName.get("GDB_Items");
+      if (itemsFile != null) {
+        readItems(itemsFile, tablePaths, featureDatasetPaths);
+      }
+    } catch (final IOException | RuntimeException e) {
+      LOG.error("Unable to read catalog for " + this.directory, e);
+      return elementsByPath;
+    }
+    for (final String childPath : featureDatasetPaths) {
+      if (Path.getPath(childPath).equalsIgnoreCase(schemaPath)) {
+        RecordStoreSchema childSchema = schema.getSchema(childPath);
+        if (childSchema == null) {
+          childSchema = new RecordStoreSchema(schema, childPath);
+        } else if (childSchema.isInitialized()) {
+          childSchema.refresh();
+        }
+        elementsByPath.put(childPath.toUpperCase(), childSchema);
+      }
+    }
+    if (!this.defaultSchemaPath.equals("/")
+      && Path.getPath(this.defaultSchemaPath).equalsIgnoreCase(schemaPath)
+      && !elementsByPath.containsKey(this.defaultSchemaPath.toUpperCase())) {
+      RecordStoreSchema childSchema = schema.getSchema(this.defaultSchemaPath);
+      if (childSchema == null) {
+        childSchema = new RecordStoreSchema(schema, this.defaultSchemaPath);
+      }
+      elementsByPath.put(this.defaultSchemaPath.toUpperCase(), childSchema);
+    }
+
+    for (final Entry<String, File> entry : filesByName.entrySet()) {
+      final String name = entry.getKey();
+      String tableSchemaPath = "/";
+      final String tablePath = tablePaths.get(name.toUpperCase());
+      if (tablePath != null) {
+        tableSchemaPath = Path.getPath(tablePath);
+      }
+      if (tableSchemaPath.equals("/")) {
+        tableSchemaPath = this.defaultSchemaPath;
+      }
+      if (!name.startsWith("GDB_")
+        && tableSchemaPath.equalsIgnoreCase(schemaPath)) {
+        final String typePath = Path.toPath(schemaPath, name);
+        final File file = entry.getValue();
+        try {
+          final FileGdbTable table = new FileGdbTable(schema, typePath, file);
+          final RecordDefinitionImpl recordDefinition = table.getRecordDefinition();
+          addRecordDefinitionProperties(recordDefinition);
+          addRecordDefinition(recordDefinition);
+          final String upperPath = typePath.toUpperCase();
+          synchronized (this.tablesByPath) {
+            this.tablesByPath.put(upperPath, table);
+          }
+          elementsByPath.put(upperPath, recordDefinition);
+        } catch (final IOException | RuntimeException e) {
+          LOG.error("Unable to read table " + typePath + " from " + file, e);
+        }
+      }
+    }
+    return elementsByPath;
+  }
+
+  @Override
+  public void setCreateMissingRecordStore(final boolean createMissingRecordStore) {
+  }
+
+  @Override
+  public void setCreateMissingTables(final boolean createMissingTables) {
+  }
+
+  @Override
+  public void setDefaultSchema(final String defaultSchema) {
+    if (defaultSchema == null) {
+      this.defaultSchemaPath = "/";
+    } else {
+      this.defaultSchemaPath = Path.clean(defaultSchema);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return this.directory.toString();
+  }
+}
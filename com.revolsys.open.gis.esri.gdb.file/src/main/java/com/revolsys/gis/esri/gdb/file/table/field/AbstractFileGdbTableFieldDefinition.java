@@ -0,0 +1,71 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.data.record.schema.FieldDefinition;
+import com.revolsys.data.types.DataType;
+
+/**
+ * A field in a .gdbtable file that reads the value of the field from the
+ * buffer positioned at the start of the value in a row.
+ */
+public abstract class AbstractFileGdbTableFieldDefinition extends
+  FieldDefinition {
+
+  /**
+   * Read a signed variable length integer. The first byte contains 6 bits of
+   * the value, the sign bit (0x40) and the continuation bit (0x80). The
+   * following bytes contain 7 bits of the value and the continuation bit.
+   */
+  public static long readVarInt(final ByteBuffer buffer) {
+    int b = buffer.get();
+    long value = b & 0x3f;
+    final boolean negative = (b & 0x40) != 0;
+    int shift = 6;
+    while ((b & 0x80) != 0) {
+      b = buffer.get();
+      value |= (long)(b & 0x7f) << shift;
+      shift += 7;
+    }
+    if (negative) {
+      return -value;
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * Read an unsigned variable length integer. Each byte contains 7 bits of the
+   * value and the continuation bit (0x80).
+   */
+  public static long readVarUInt(final ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    int b;
+    do {
+      b = buffer.get();
+      value |= (long)(b & 0x7f) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+
+  public AbstractFileGdbTableFieldDefinition(final String name,
+    final DataType dataType, final boolean required) {
+    super(name, dataType, required);
+  }
+
+  public AbstractFileGdbTableFieldDefinition(final String name,
+    final DataType dataType, final int length, final boolean required) {
+    super(name, dataType, length, required);
+  }
+
+  /**
+   * Read the value from the buffer, leaving the buffer positioned at the start
+   * of the next value.
+   *
+   * @param buffer The little endian buffer positioned at the value.
+   * @return The value.
+   */
+  public abstract Object readValue(ByteBuffer buffer);
+}
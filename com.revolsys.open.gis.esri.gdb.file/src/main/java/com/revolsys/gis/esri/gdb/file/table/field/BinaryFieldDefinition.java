@@ -0,0 +1,19 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.data.types.DataTypes;
+
+public class BinaryFieldDefinition extends AbstractFileGdbTableFieldDefinition {
+  public BinaryFieldDefinition(final String name, final boolean required) {
+    super(name, DataTypes.BLOB, required);
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    final int length = (int)readVarUInt(buffer);
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return bytes;
+  }
+}
@@ -0,0 +1,34 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.TimeZone;
+
+import com.revolsys.data.types.DataTypes;
+
+/**
+ * A date stored as the number of days since 1899-12-30 in the local time of
+ * the geodatabase, returned as a date in the default time zone to match the
+ * values returned by the ESRI API.
+ */
+public class DateFieldDefinition extends AbstractFileGdbTableFieldDefinition {
+  /** The number of days from 1899-12-30 to 1970-01-01. */
+  private static final double EPOCH_DAYS = 25569;
+
+  private static final double MILLIS_PER_DAY = 86400000;
+
+  public DateFieldDefinition(final String name, final boolean required) {
+    super(name, DataTypes.DATE, required);
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    final double days = buffer.getDouble();
+    final long localTime = Math.round((days - EPOCH_DAYS) * MILLIS_PER_DAY);
+    final TimeZone timeZone = TimeZone.getDefault();
+    long time = localTime - timeZone.getOffset(localTime);
+    // Use the offset at the converted time for dates near a DST change
+    time = localTime - timeZone.getOffset(time);
+    return new Date(time);
+  }
+}
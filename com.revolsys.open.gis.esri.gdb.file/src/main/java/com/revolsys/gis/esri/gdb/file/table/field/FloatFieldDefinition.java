@@ -0,0 +1,16 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.data.types.DataTypes;
+
+public class FloatFieldDefinition extends AbstractFileGdbTableFieldDefinition {
+  public FloatFieldDefinition(final String name, final boolean required) {
+    super(name, DataTypes.FLOAT, required);
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    return buffer.getFloat();
+  }
+}
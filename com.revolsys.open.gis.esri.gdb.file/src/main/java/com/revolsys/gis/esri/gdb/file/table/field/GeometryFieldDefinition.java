@@ -0,0 +1,308 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.revolsys.data.record.property.FieldProperties;
+import com.revolsys.data.types.DataType;
+import com.revolsys.io.shp.ShapefileGeometryUtil;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+
+/**
+ * <p>A geometry field that decodes the compressed shape buffer stored in the
+ * .gdbtable directly into the coordinate arrays of the geometry. The x, y, z
+ * and m values are stored as variable length integers, relative to the origin
+ * and scale of the field. For multi points, lines and polygons each value is
+ * the difference from the previous vertex.</p>
+ *
+ * <p>Curves are not supported and only the vertices of curved lines are
+ * returned. Multi patches are returned as null.</p>
+ */
+public class GeometryFieldDefinition extends
+  AbstractFileGdbTableFieldDefinition {
+  private static final int FLAG_CURVES = 0x20000000;
+
+  private static final int FLAG_M = 0x40000000;
+
+  private static final int FLAG_Z = 0x80000000;
+
+  private static boolean hasM(final int geometryType) {
+    if ((geometryType & FLAG_M) != 0) {
+      return true;
+    } else {
+      switch (geometryType & 0xff) {
+        case 11:
+        case 13:
+        case 15:
+        case 18:
+        case 21:
+        case 23:
+        case 25:
+        case 28:
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+
+  private static boolean hasZ(final int geometryType) {
+    if ((geometryType & FLAG_Z) != 0) {
+      return true;
+    } else {
+      switch (geometryType & 0xff) {
+        case 9:
+        case 10:
+        case 11:
+        case 13:
+        case 15:
+        case 18:
+        case 19:
+        case 20:
+          return true;
+        default:
+          return false;
+      }
+    }
+  }
+
+  private final int axisCount;
+
+  private final GeometryFactory geometryFactory;
+
+  private final double mOrigin;
+
+  private final double mScale;
+
+  private final double xOrigin;
+
+  private final double xyScale;
+
+  private final double yOrigin;
+
+  private final double zOrigin;
+
+  private final double zScale;
+
+  public GeometryFieldDefinition(final String name, final DataType dataType,
+    final boolean required, final GeometryFactory geometryFactory,
+    final double xOrigin, final double yOrigin, final double xyScale,
+    final double zOrigin, final double zScale, final double mOrigin,
+    final double mScale) {
+    super(name, dataType, required);
+    this.geometryFactory = geometryFactory;
+    this.axisCount = geometryFactory.getAxisCount();
+    this.xOrigin = xOrigin;
+    this.yOrigin = yOrigin;
+    this.xyScale = xyScale;
+    this.zOrigin = zOrigin;
+    this.zScale = zScale;
+    this.mOrigin = mOrigin;
+    this.mScale = mScale;
+    setProperty(FieldProperties.GEOMETRY_FACTORY, geometryFactory);
+  }
+
+  public GeometryFactory getGeometryFactory() {
+    return this.geometryFactory;
+  }
+
+  @Override
+  public int getMaxStringLength() {
+    return 40;
+  }
+
+  /**
+   * Read the delta encoded values for one axis of all the vertices.
+   */
+  private void readAxis(final ByteBuffer buffer, final List<double[]> parts,
+    final int axisIndex, final double origin, final double scale) {
+    final int axisCount = this.axisCount;
+    long value = 0;
+    for (final double[] coordinates : parts) {
+      for (int i = axisIndex; i < coordinates.length; i += axisCount) {
+        value += readVarInt(buffer);
+        coordinates[i] = value / scale + origin;
+      }
+    }
+  }
+
+  private void readCoordinates(final ByteBuffer buffer, final int endPosition,
+    final int geometryType, final int vertexCount, final List<double[]> parts) {
+    final int axisCount = this.axisCount;
+    long x = 0;
+    long y = 0;
+    for (final double[] coordinates : parts) {
+      for (int i = 0; i < coordinates.length; i += axisCount) {
+        x += readVarInt(buffer);
+        y += readVarInt(buffer);
+        coordinates[i] = x / this.xyScale + this.xOrigin;
+        coordinates[i + 1] = y / this.xyScale + this.yOrigin;
+      }
+    }
+    if (axisCount > 2) {
+      if (hasZ(geometryType)) {
+        readAxis(buffer, parts, 2, this.zOrigin, this.zScale);
+      } else {
+        setNaN(parts, 2);
+      }
+    }
+    if (axisCount > 3) {
+      final int remaining = endPosition - buffer.position();
+      if (!hasM(geometryType) || remaining <= 0) {
+        setNaN(parts, 3);
+      } else if (buffer.get(buffer.position()) == 0x42
+        && remaining - 1 < vertexCount) {
+        // All the m values are null
+        setNaN(parts, 3);
+      } else {
+        readAxis(buffer, parts, 3, this.mOrigin, this.mScale);
+      }
+    }
+  }
+
+  private Geometry readMultiPoint(final ByteBuffer buffer,
+    final int endPosition, final int geometryType) {
+    final int vertexCount = (int)readVarUInt(buffer);
+    if (vertexCount == 0) {
+      return this.geometryFactory.multiPoint();
+    } else {
+      skipBoundingBox(buffer);
+      final double[] coordinates = new double[vertexCount * this.axisCount];
+      final List<double[]> parts = Arrays.asList(coordinates);
+      readCoordinates(buffer, endPosition, geometryType, vertexCount, parts);
+      return this.geometryFactory.multiPoint(this.axisCount, coordinates);
+    }
+  }
+
+  private Geometry readPoint(final ByteBuffer buffer, final int geometryType) {
+    final long x = readVarUInt(buffer);
+    final long y = readVarUInt(buffer);
+    if (x == 0) {
+      return this.geometryFactory.point();
+    } else {
+      final double[] coordinates = new double[this.axisCount];
+      coordinates[0] = (x - 1) / this.xyScale + this.xOrigin;
+      coordinates[1] = (y - 1) / this.xyScale + this.yOrigin;
+      if (this.axisCount > 2) {
+        if (hasZ(geometryType)) {
+          coordinates[2] = (readVarUInt(buffer) - 1) / this.zScale
+            + this.zOrigin;
+        } else {
+          coordinates[2] = Double.NaN;
+        }
+      }
+      if (this.axisCount > 3) {
+        if (hasM(geometryType)) {
+          final long m = readVarUInt(buffer);
+          if (m == 0) {
+            coordinates[3] = Double.NaN;
+          } else {
+            coordinates[3] = (m - 1) / this.mScale + this.mOrigin;
+          }
+        } else {
+          coordinates[3] = Double.NaN;
+        }
+      }
+      return this.geometryFactory.point(coordinates);
+    }
+  }
+
+  private Geometry readPolylineOrPolygon(final ByteBuffer buffer,
+    final int endPosition, final int geometryType, final boolean polygon) {
+    final int vertexCount = (int)readVarUInt(buffer);
+    if (vertexCount == 0) {
+      if (polygon) {
+        return this.geometryFactory.polygon();
+      } else {
+        return this.geometryFactory.lineString();
+      }
+    } else {
+      final int partCount = (int)readVarUInt(buffer);
+      if ((geometryType & FLAG_CURVES) != 0) {
+        readVarUInt(buffer);
+      }
+      skipBoundingBox(buffer);
+      final List<double[]> parts = new ArrayList<>(partCount);
+      int partsVertexCount = 0;
+      for (int i = 0; i < partCount - 1; i++) {
+        final int partVertexCount = (int)readVarUInt(buffer);
+        parts.add(new double[partVertexCount * this.axisCount]);
+        partsVertexCount += partVertexCount;
+      }
+      parts.add(new double[(vertexCount - partsVertexCount) * this.axisCount]);
+      readCoordinates(buffer, endPosition, geometryType, vertexCount, parts);
+
+      if (polygon) {
+        return ShapefileGeometryUtil.SHP_INSTANCE.createPolygonGeometryFromParts(
+          this.geometryFactory, parts, this.axisCount);
+      } else if (partCount == 1) {
+        return this.geometryFactory.lineString(this.axisCount, parts.get(0));
+      } else {
+        final List<LineString> lines = new ArrayList<>(partCount);
+        for (final double[] coordinates : parts) {
+          lines.add(this.geometryFactory.lineString(this.axisCount,
+            coordinates));
+        }
+        return this.geometryFactory.multiLineString(lines);
+      }
+    }
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    final int length = (int)readVarUInt(buffer);
+    final int endPosition = buffer.position() + length;
+    try {
+      final int geometryType = (int)readVarUInt(buffer);
+      switch (geometryType & 0xff) {
+        case 1:
+        case 9:
+        case 11:
+        case 21:
+        case 52:
+          return readPoint(buffer, geometryType);
+        case 8:
+        case 18:
+        case 20:
+        case 28:
+        case 53:
+          return readMultiPoint(buffer, endPosition, geometryType);
+        case 3:
+        case 10:
+        case 13:
+        case 23:
+        case 50:
+          return readPolylineOrPolygon(buffer, endPosition, geometryType,
+            false);
+        case 5:
+        case 15:
+        case 19:
+        case 25:
+        case 51:
+          return readPolylineOrPolygon(buffer, endPosition, geometryType, true);
+        default:
+          return null;
+      }
+    } finally {
+      buffer.position(endPosition);
+    }
+  }
+
+  private void setNaN(final List<double[]> parts, final int axisIndex) {
+    for (final double[] coordinates : parts) {
+      for (int i = axisIndex; i < coordinates.length; i += this.axisCount) {
+        coordinates[i] = Double.NaN;
+      }
+    }
+  }
+
+  private void skipBoundingBox(final ByteBuffer buffer) {
+    for (int i = 0; i < 4; i++) {
+      readVarUInt(buffer);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.data.types.DataTypes;
+
+/**
+ * A GUID or global id stored as 16 bytes and returned in the
+ * {XXXXXXXX-XXXX-XXXX-XXXX-XXXXXXXXXXXX} form used by the ESRI API.
+ */
+public class GuidFieldDefinition extends AbstractFileGdbTableFieldDefinition {
+  private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+  private static void appendHex(final StringBuilder string, final long value,
+    final int digitCount) {
+    for (int shift = (digitCount - 1) * 4; shift >= 0; shift -= 4) {
+      string.append(HEX[(int)(value >>> shift) & 0xf]);
+    }
+  }
+
+  public GuidFieldDefinition(final String name, final boolean required) {
+    super(name, DataTypes.STRING, required);
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    final StringBuilder string = new StringBuilder(38);
+    string.append('{');
+    appendHex(string, buffer.getInt() & 0xffffffffL, 8);
+    string.append('-');
+    appendHex(string, buffer.getShort(), 4);
+    string.append('-');
+    appendHex(string, buffer.getShort(), 4);
+    string.append('-');
+    for (int i = 0; i < 8; i++) {
+      if (i == 2) {
+        string.append('-');
+      }
+      appendHex(string, buffer.get(), 2);
+    }
+    string.append('}');
+    return string.toString();
+  }
+}
@@ -0,0 +1,21 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+
+import com.revolsys.data.types.DataTypes;
+
+/**
+ * The object id field. The value is not stored in the row, it is the position
+ * of the row in the .gdbtablx index.
+ */
+public class OidFieldDefinition extends AbstractFileGdbTableFieldDefinition {
+  public OidFieldDefinition(final String name) {
+    super(name, DataTypes.INT, true);
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    throw new UnsupportedOperationException(
+      "Object id is not stored in the row");
+  }
+}
@@ -0,0 +1,24 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.revolsys.data.types.DataTypes;
+
+/**
+ * A string or XML field stored as the UTF-8 byte length followed by the bytes.
+ */
+public class StringFieldDefinition extends AbstractFileGdbTableFieldDefinition {
+  public StringFieldDefinition(final String name, final int length,
+    final boolean required) {
+    super(name, DataTypes.STRING, length, required);
+  }
+
+  @Override
+  public Object readValue(final ByteBuffer buffer) {
+    final int length = (int)readVarUInt(buffer);
+    final byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
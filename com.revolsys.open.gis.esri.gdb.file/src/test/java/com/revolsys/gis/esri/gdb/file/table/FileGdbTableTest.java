@@ -0,0 +1,77 @@
+package com.revolsys.gis.esri.gdb.file.table;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Check the null bitmap of a row and the block bitmap of a sparse .gdbtablx
+ * file using synthetic buffers.
+ */
+public class FileGdbTableTest {
+  private static ByteBuffer buffer(final int... bytes) {
+    final ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    for (final int b : bytes) {
+      buffer.put((byte)b);
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  @Test
+  public void testBlockIndexes() {
+    // 4 byte word count and 12 bytes skipped before the bitmap
+    final ByteBuffer buffer = buffer(0xff, 0xff, 0xff, 0xff, 0, 0, 0, 0, 0, 0,
+      0, 0, 0, 0, 0, 0, 0x05, 0x00, 0x80, 0x01);
+    final int[] blockIndexes = FileGdbTable.readBlockIndexes(
+      new ByteBuffer[] {
+        buffer
+      }, 16, 1);
+    Assert.assertEquals(32, blockIndexes.length);
+    final int[] expected = new int[32];
+    for (int i = 0; i < expected.length; i++) {
+      expected[i] = -1;
+    }
+    expected[0] = 0;
+    expected[2] = 1;
+    expected[23] = 2;
+    expected[24] = 3;
+    Assert.assertArrayEquals(expected, blockIndexes);
+  }
+
+  @Test
+  public void testBlockIndexesMultipleWords() {
+    final ByteBuffer buffer = buffer(0, 0, 0, 0, 0, 0, 0, 0x80, 0xff, 0, 0, 0);
+    final int[] blockIndexes = FileGdbTable.readBlockIndexes(
+      new ByteBuffer[] {
+        buffer
+      }, 4, 2);
+    Assert.assertEquals(64, blockIndexes.length);
+    for (int i = 0; i < 31; i++) {
+      Assert.assertEquals("Block " + i, -1, blockIndexes[i]);
+    }
+    for (int i = 31; i < 40; i++) {
+      Assert.assertEquals("Block " + i, i - 31, blockIndexes[i]);
+    }
+    for (int i = 40; i < 64; i++) {
+      Assert.assertEquals("Block " + i, -1, blockIndexes[i]);
+    }
+  }
+
+  @Test
+  public void testNullBitmap() {
+    // 2 bytes of row data then a null bitmap for 10 nullable fields
+    final ByteBuffer buffer = buffer(0xff, 0xff, 0x81, 0x02);
+    final boolean[] expected = {
+      true, false, false, false, false, false, false, true, false, true
+    };
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals("Field " + i, expected[i],
+        FileGdbTable.isNull(buffer, 2, i));
+    }
+    Assert.assertEquals(0, buffer.position());
+  }
+}
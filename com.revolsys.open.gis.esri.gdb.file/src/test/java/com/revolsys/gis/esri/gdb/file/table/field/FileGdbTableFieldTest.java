@@ -0,0 +1,246 @@
+package com.revolsys.gis.esri.gdb.file.table.field;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.MultiLineString;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * Check the decoding of variable length integers and compressed shape
+ * buffers using synthetic buffers.
+ */
+public class FileGdbTableFieldTest {
+  private static final double X_ORIGIN = -100;
+
+  private static final double XY_SCALE = 1000;
+
+  private static final double Y_ORIGIN = 40;
+
+  private static ByteBuffer buffer(final byte[] bytes) {
+    final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    return buffer;
+  }
+
+  private static ByteBuffer buffer(final int... bytes) {
+    final byte[] byteArray = new byte[bytes.length];
+    for (int i = 0; i < bytes.length; i++) {
+      byteArray[i] = (byte)bytes[i];
+    }
+    return buffer(byteArray);
+  }
+
+  private static long readVarInt(final int... bytes) {
+    return AbstractFileGdbTableFieldDefinition.readVarInt(buffer(bytes));
+  }
+
+  private static long readVarUInt(final int... bytes) {
+    return AbstractFileGdbTableFieldDefinition.readVarUInt(buffer(bytes));
+  }
+
+  private static void writeVarInt(final ByteArrayOutputStream out,
+    final long value) {
+    long absValue = Math.abs(value);
+    int b = (int)(absValue & 0x3f);
+    if (value < 0) {
+      b |= 0x40;
+    }
+    absValue >>>= 6;
+    while (absValue != 0) {
+      out.write(b | 0x80);
+      b = (int)(absValue & 0x7f);
+      absValue >>>= 7;
+    }
+    out.write(b);
+  }
+
+  private static void writeVarUInt(final ByteArrayOutputStream out,
+    long value) {
+    while (value >= 0x80) {
+      out.write((int)(value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write((int)value);
+  }
+
+  private final GeometryFieldDefinition field = new GeometryFieldDefinition(
+    "SHAPE", DataTypes.GEOMETRY, false, GeometryFactory.floating(0, 2),
+    X_ORIGIN, Y_ORIGIN, XY_SCALE, 0, 1, 0, 1);
+
+  private void assertCoordinates(final LineString line,
+    final double... coordinates) {
+    Assert.assertEquals(coordinates.length / 2, line.getVertexCount());
+    for (int i = 0; i < coordinates.length / 2; i++) {
+      Assert.assertEquals(coordinates[i * 2], line.getX(i), 0);
+      Assert.assertEquals(coordinates[i * 2 + 1], line.getY(i), 0);
+    }
+  }
+
+  /**
+   * Create the shape buffer for a line or polygon with the parts, followed by
+   * a byte that isn't part of the value.
+   */
+  private ByteBuffer createShapeBuffer(final int geometryType,
+    final double[]... parts) {
+    final ByteArrayOutputStream shape = new ByteArrayOutputStream();
+    writeVarUInt(shape, geometryType);
+    int vertexCount = 0;
+    for (final double[] part : parts) {
+      vertexCount += part.length / 2;
+    }
+    writeVarUInt(shape, vertexCount);
+    writeVarUInt(shape, parts.length);
+    for (int i = 0; i < 4; i++) {
+      writeVarUInt(shape, 0);
+    }
+    for (int i = 0; i < parts.length - 1; i++) {
+      writeVarUInt(shape, parts[i].length / 2);
+    }
+    long previousX = 0;
+    long previousY = 0;
+    for (final double[] part : parts) {
+      for (int i = 0; i < part.length; i += 2) {
+        final long x = Math.round((part[i] - X_ORIGIN) * XY_SCALE);
+        final long y = Math.round((part[i + 1] - Y_ORIGIN) * XY_SCALE);
+        writeVarInt(shape, x - previousX);
+        writeVarInt(shape, y - previousY);
+        previousX = x;
+        previousY = y;
+      }
+    }
+    return createValueBuffer(shape);
+  }
+
+  private ByteBuffer createValueBuffer(final ByteArrayOutputStream shape) {
+    final ByteArrayOutputStream value = new ByteArrayOutputStream();
+    writeVarUInt(value, shape.size());
+    final byte[] shapeBytes = shape.toByteArray();
+    value.write(shapeBytes, 0, shapeBytes.length);
+    value.write(0x7f);
+    return buffer(value.toByteArray());
+  }
+
+  @Test
+  public void testEmptyPoint() {
+    final ByteArrayOutputStream shape = new ByteArrayOutputStream();
+    writeVarUInt(shape, 1);
+    writeVarUInt(shape, 0);
+    writeVarUInt(shape, 0);
+    final ByteBuffer buffer = createValueBuffer(shape);
+    final Point point = (Point)this.field.readValue(buffer);
+    Assert.assertTrue(point.isEmpty());
+    Assert.assertEquals(0x7f, buffer.get());
+  }
+
+  @Test
+  public void testLineString() {
+    final double[] coordinates = {
+      -99.5, 40.25, -99, 41, -100, 40.125
+    };
+    final ByteBuffer buffer = createShapeBuffer(3, coordinates);
+    final LineString line = (LineString)this.field.readValue(buffer);
+    assertCoordinates(line, coordinates);
+    Assert.assertEquals(0x7f, buffer.get());
+  }
+
+  @Test
+  public void testMultiLineString() {
+    final double[] part1 = {
+      -99.5, 40.25, -99, 41
+    };
+    final double[] part2 = {
+      -98, 42, -97.5, 42.5, -97, 43
+    };
+    final ByteBuffer buffer = createShapeBuffer(3, part1, part2);
+    final Geometry geometry = (Geometry)this.field.readValue(buffer);
+    Assert.assertTrue(geometry instanceof MultiLineString);
+    Assert.assertEquals(2, geometry.getGeometryCount());
+    assertCoordinates((LineString)geometry.getGeometry(0), part1);
+    assertCoordinates((LineString)geometry.getGeometry(1), part2);
+    Assert.assertEquals(0x7f, buffer.get());
+  }
+
+  @Test
+  public void testPoint() {
+    final ByteArrayOutputStream shape = new ByteArrayOutputStream();
+    writeVarUInt(shape, 1);
+    // Point values are offset by 1 so 0 can be used for an empty point
+    writeVarUInt(shape, Math.round((-99.5 - X_ORIGIN) * XY_SCALE) + 1);
+    writeVarUInt(shape, Math.round((40.25 - Y_ORIGIN) * XY_SCALE) + 1);
+    final ByteBuffer buffer = createValueBuffer(shape);
+    final Point point = (Point)this.field.readValue(buffer);
+    Assert.assertEquals(-99.5, point.getX(), 0);
+    Assert.assertEquals(40.25, point.getY(), 0);
+    Assert.assertEquals(0x7f, buffer.get());
+  }
+
+  @Test
+  public void testPolygon() {
+    // Clockwise exterior ring and counter clockwise hole
+    final double[] exterior = {
+      -100, 40, -100, 50, -90, 50, -90, 40, -100, 40
+    };
+    final double[] hole = {
+      -98, 42, -95, 42, -95, 45, -98, 45, -98, 42
+    };
+    final ByteBuffer buffer = createShapeBuffer(5, exterior, hole);
+    final Polygon polygon = (Polygon)this.field.readValue(buffer);
+    Assert.assertEquals(2, polygon.getRingCount());
+    Assert.assertEquals(5, polygon.getRing(0).getVertexCount());
+    Assert.assertEquals(5, polygon.getRing(1).getVertexCount());
+    Assert.assertEquals(100 - 9, polygon.getArea(), 0);
+    Assert.assertEquals(0x7f, buffer.get());
+  }
+
+  @Test
+  public void testReadVarInt() {
+    Assert.assertEquals(0, readVarInt(0x00));
+    Assert.assertEquals(5, readVarInt(0x05));
+    Assert.assertEquals(-5, readVarInt(0x45));
+    Assert.assertEquals(63, readVarInt(0x3f));
+    Assert.assertEquals(-63, readVarInt(0x7f));
+    Assert.assertEquals(64, readVarInt(0x80, 0x01));
+    Assert.assertEquals(-127, readVarInt(0xff, 0x01));
+    Assert.assertEquals(-(0x3fL | 0x7fL << 6 | 0x7fL << 13 | 0x03L << 20),
+      readVarInt(0xff, 0xff, 0xff, 0x03));
+
+    final ByteBuffer buffer = buffer(0xc1, 0x02, 0x07);
+    Assert.assertEquals(-129,
+      AbstractFileGdbTableFieldDefinition.readVarInt(buffer));
+    Assert.assertEquals(2, buffer.position());
+
+    for (final long value : new long[] {
+      0, 1, -1, 63, -64, 8191, -8192, 1234567890123L, -1234567890123L
+    }) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      writeVarInt(out, value);
+      final ByteBuffer valueBuffer = buffer(out.toByteArray());
+      Assert.assertEquals(value,
+        AbstractFileGdbTableFieldDefinition.readVarInt(valueBuffer));
+    }
+  }
+
+  @Test
+  public void testReadVarUInt() {
+    Assert.assertEquals(0, readVarUInt(0x00));
+    Assert.assertEquals(127, readVarUInt(0x7f));
+    Assert.assertEquals(128, readVarUInt(0x80, 0x01));
+    Assert.assertEquals(300, readVarUInt(0xac, 0x02));
+    Assert.assertEquals(0xffffffffL, readVarUInt(0xff, 0xff, 0xff, 0xff, 0x0f));
+
+    final ByteBuffer buffer = buffer(0x80, 0x80, 0x01, 0x05);
+    Assert.assertEquals(16384,
+      AbstractFileGdbTableFieldDefinition.readVarUInt(buffer));
+    Assert.assertEquals(3, buffer.position());
+  }
+}
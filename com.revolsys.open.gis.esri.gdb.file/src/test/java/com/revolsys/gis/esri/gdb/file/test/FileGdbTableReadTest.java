@@ -0,0 +1,140 @@
+package com.revolsys.gis.esri.gdb.file.test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+
+import com.revolsys.data.equals.EqualsRegistry;
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.data.record.schema.RecordStoreSchema;
+import com.revolsys.gis.esri.gdb.file.CapiFileGdbRecordStore;
+import com.revolsys.gis.esri.gdb.file.FileGdbRecordStoreFactory;
+import com.revolsys.gis.esri.gdb.file.table.FileGdbTableRecordStore;
+import com.revolsys.io.Reader;
+
+/**
+ * Read all the tables in a file geodatabase using the
+ * {@link FileGdbTableRecordStore}, with one thread per table and each table
+ * read by several threads at the same time. If the compare argument is given
+ * the records are compared with the records read using the ESRI API.
+ *
+ * <pre>FileGdbTableReadTest file.gdb [threadCount] [compare]</pre>
+ */
+public class FileGdbTableReadTest {
+  private static void addRecordDefinitions(final RecordStoreSchema schema,
+    final List<RecordDefinition> recordDefinitions) {
+    recordDefinitions.addAll(schema.getRecordDefinitions());
+    for (final RecordStoreSchema childSchema : schema.getSchemas()) {
+      addRecordDefinitions(childSchema, recordDefinitions);
+    }
+  }
+
+  private static void compare(final File file,
+    final FileGdbTableRecordStore recordStore,
+    final List<RecordDefinition> recordDefinitions) {
+    final CapiFileGdbRecordStore capiRecordStore = FileGdbRecordStoreFactory.create(file);
+    try {
+      capiRecordStore.initialize();
+      for (final RecordDefinition recordDefinition : recordDefinitions) {
+        final String typePath = recordDefinition.getPath();
+        final List<Record> records = read(recordStore, typePath);
+        final List<Record> expectedRecords = read(capiRecordStore, typePath);
+        Assert.assertEquals(typePath + " count", expectedRecords.size(),
+          records.size());
+        for (int i = 0; i < records.size(); i++) {
+          final Record record = records.get(i);
+          final Record expected = expectedRecords.get(i);
+          for (final String fieldName : recordDefinition.getFieldNames()) {
+            final Object value = record.getValue(fieldName);
+            final Object expectedValue = expected.getValue(fieldName);
+            if (!EqualsRegistry.equal(expectedValue, value)) {
+              Assert.fail(typePath + " " + i + "." + fieldName + " " + expectedValue + " != " + value);
+            }
+          }
+        }
+        System.out.println("Compared " + typePath + " " + records.size());
+      }
+    } finally {
+      capiRecordStore.close();
+    }
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final File file = new File(args[0]);
+    int threadCount = Runtime.getRuntime().availableProcessors();
+    if (args.length > 1) {
+      threadCount = Integer.parseInt(args[1]);
+    }
+    final boolean compare = args.length > 2 && args[2].equals("compare");
+
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put("url", file.toURI().toString());
+    properties.put("readOnly", true);
+    final FileGdbRecordStoreFactory factory = new FileGdbRecordStoreFactory();
+    final FileGdbTableRecordStore recordStore = (FileGdbTableRecordStore)factory.createRecordStore(properties);
+    try {
+      recordStore.initialize();
+      final List<RecordDefinition> recordDefinitions = new ArrayList<>();
+      addRecordDefinitions(recordStore.getRootSchema(), recordDefinitions);
+
+      final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+      try {
+        final long time = System.currentTimeMillis();
+        final List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+          final List<RecordDefinition> threadRecordDefinitions = new ArrayList<>(
+            recordDefinitions);
+          Collections.rotate(threadRecordDefinitions, i);
+          futures.add(executor.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+              int count = 0;
+              for (final RecordDefinition recordDefinition : threadRecordDefinitions) {
+                final String typePath = recordDefinition.getPath();
+                final int recordCount = read(recordStore, typePath).size();
+                final int rowCount = recordStore.getTable(typePath)
+                  .getRecordCount();
+                Assert.assertEquals(typePath, rowCount, recordCount);
+                count += recordCount;
+              }
+              return count;
+            }
+          }));
+        }
+        int count = 0;
+        for (final Future<Integer> future : futures) {
+          count += future.get();
+        }
+        System.out.println("Read " + count + " records from "
+          + recordDefinitions.size() + " tables using " + threadCount
+          + " threads " + (System.currentTimeMillis() - time) + "ms");
+      } finally {
+        executor.shutdown();
+      }
+      if (compare) {
+        compare(file, recordStore, recordDefinitions);
+      }
+    } finally {
+      recordStore.close();
+    }
+  }
+
+  private static List<Record> read(final RecordStore recordStore,
+    final String typePath) {
+    try (
+      Reader<Record> reader = recordStore.query(typePath)) {
+      return reader.read();
+    }
+  }
+}
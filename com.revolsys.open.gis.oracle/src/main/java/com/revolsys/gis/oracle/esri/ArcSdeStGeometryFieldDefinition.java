@@ -1,7 +1,5 @@
 package com.revolsys.gis.oracle.esri;
 
-import java.io.BufferedInputStream;
-import java.io.InputStream;
 import java.sql.Blob;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -109,8 +107,7 @@ public class ArcSdeStGeometryFieldDefinition extends JdbcFieldDefinition {
     if (!resultSet.wasNull()) {
       final int numPoints = resultSet.getInt(columnIndex + 1);
       final Blob blob = resultSet.getBlob(columnIndex + 2);
-      final InputStream pointsIn = new BufferedInputStream(
-        blob.getBinaryStream(), 32000);
+      final byte[] data = blob.getBytes(1, (int)blob.length());
 
       final Double xOffset = this.spatialReference.getXOffset();
       final Double yOffset = this.spatialReference.getYOffset();
@@ -121,7 +118,7 @@ public class ArcSdeStGeometryFieldDefinition extends JdbcFieldDefinition {
       final Double mOffset = this.spatialReference.getMOffset();
 
       final GeometryFactory geometryFactory = this.spatialReference.getGeometryFactory();
-      final Geometry geometry = PackedCoordinateUtil.getGeometry(pointsIn,
+      final Geometry geometry = PackedCoordinateUtil.getGeometry(data,
         geometryFactory, geometryType, numPoints, xOffset, yOffset, xyScale,
         zOffset, zScale, mOffset, mScale);
       object.setValue(getIndex(), geometry);
@@ -1,9 +1,9 @@
 package com.revolsys.gis.oracle.esri;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.slf4j.LoggerFactory;
@@ -12,330 +12,126 @@ import com.revolsys.io.FileUtil;
 import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.jts.geom.LineString;
-import com.revolsys.jts.geom.LinearRing;
-import com.revolsys.jts.geom.MultiLineString;
-import com.revolsys.jts.geom.MultiPoint;
 import com.revolsys.jts.geom.MultiPolygon;
-import com.revolsys.jts.geom.Point;
 import com.revolsys.jts.geom.Polygon;
-import com.revolsys.jts.geom.impl.LineStringDouble;
 import com.revolsys.jts.geom.vertex.Vertex;
 
 /**
+ * <pre>
  * Point        (x,y [,z] [,m])
  * Line         (x,y (,x,y)+) [,z (,z)+] [,m (,m)+]
  * Multi Point  x,y (,-1,0, x,y)* [,z (,0,z)*] [,m (,0,m)*]
  * Multi Line   (x,y (,x,y)+) (,-1,0, (x,y (,x,y)+))* [(,z (,z)+) (,0, (,z (,z)+))*] [(,m (,m)+) (,0, (,m (,m)+))*]
+ * </pre>
  *
+ * <p>The bytes are decoded in a single pass into one coordinates array for
+ * all the vertices (including the part separators). The parts and rings are
+ * passed to the {@link GeometryFactory} as views of ranges of that array so
+ * the only copy of the coordinates is the one made by the geometry.</p>
  */
 public class PackedCoordinateUtil {
 
-  @SuppressWarnings("unused")
-  private static List<LineString> getCoordinatesLists(final int vertexCount,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale, final InputStream inputStream) {
-
-    try {
-      final List<double[]> pointsList = new ArrayList<>();
-      final PackedIntegerInputStream in = new PackedIntegerInputStream(
-        inputStream);
-
-      final long packedByteLength = in.readLong5();
-      final long dimensionFlag = in.readLong();
-      final int annotationDimension = in.read();
-      final int shapeFlags = in.read();
-      final boolean hasZ = (dimensionFlag & 0x01) == 0x01;
-      final boolean hasM = (dimensionFlag & 0x02) == 0x02;
-
-      int axisCount;
-      if (hasM) {
-        axisCount = 4;
-      } else if (hasZ) {
-        axisCount = 3;
-      } else {
-        axisCount = 2;
-      }
-      double[] coordinates = new double[vertexCount * axisCount];
-
-      double x = xOffset;
-      double y = yOffset;
-
-      int j = 0;
-      for (int i = 0; i < vertexCount; i++) {
-        x = readCoordinate(in, coordinates, j, axisCount, 0, x, xyScale);
-        y = readCoordinate(in, coordinates, j, axisCount, 1, y, xyScale);
-        if (x == -1 && y == 0) {
-          final double[] subCoordinates = new double[j * axisCount];
-          System.arraycopy(coordinates, 0, subCoordinates, 0,
-            subCoordinates.length);
-          pointsList.add(subCoordinates);
-          coordinates = new double[(vertexCount - j) * axisCount];
-          j = 0;
-        } else {
-          j++;
-        }
-      }
-      if (coordinates.length == axisCount * j) {
-        pointsList.add(coordinates);
-      } else {
-        final double[] subCoordinates = new double[j * axisCount];
-        System.arraycopy(coordinates, 0, subCoordinates, 0,
-          subCoordinates.length);
-        pointsList.add(subCoordinates);
-      }
-
-      if (hasZ) {
-        readCoordinates(in, pointsList, axisCount, 2, zOffset, zScale);
-      }
-      if (hasM) {
-        readCoordinates(in, pointsList, axisCount, 3, mOffset, mScale);
-      }
-
-      final List<LineString> lists = new ArrayList<>();
-      for (final double[] partCoordinates : pointsList) {
-        lists.add(new LineStringDouble(axisCount, partCoordinates));
-      }
-      return lists;
-    } catch (final IOException e) {
-      throw new RuntimeException("Error reading coordinates", e);
-    } finally {
-      FileUtil.closeSilent(inputStream);
-    }
-  }
-
   public static Geometry getGeometry(final byte[] data,
-    final GeometryFactory geometryFactory, final int entity,
-    final int numPoints, final Double xOffset, final Double yOffset,
-    final Double xyScale, final Double zOffset, final Double zScale,
-    final Double mOffset, final Double mScale) {
-    final InputStream in = new ByteArrayInputStream(data);
-    return getGeometry(in, geometryFactory, entity, numPoints, xOffset,
-      yOffset, xyScale, zOffset, zScale, mOffset, mScale);
-  }
-
-  public static Geometry getGeometry(final InputStream pointsIn,
     final GeometryFactory geometryFactory, final int geometryType,
     final int numPoints, final Double xOffset, final Double yOffset,
     final Double xyScale, final Double zOffset, final Double zScale,
     final Double mOffset, final Double mScale) {
+    final PackedIntegerReader in = new PackedIntegerReader(data);
+    in.readLong5(); // packed byte length
+    final long dimensionFlag = in.readLong();
+    in.read(); // annotation dimension
+    in.read(); // shape flags
+    final boolean hasZ = (dimensionFlag & 0x01) == 0x01;
+    final boolean hasM = (dimensionFlag & 0x02) == 0x02;
+
+    int axisCount;
+    if (hasM) {
+      axisCount = 4;
+    } else if (hasZ) {
+      axisCount = 3;
+    } else {
+      axisCount = 2;
+    }
+    final boolean multiPart = geometryType == ArcSdeConstants.ST_GEOMETRY_MULTI_POINT
+        || geometryType == ArcSdeConstants.ST_GEOMETRY_MULTI_LINESTRING
+        || geometryType == ArcSdeConstants.ST_GEOMETRY_MULTI_POLYGON;
+
+    final double[] coordinates = new double[numPoints * axisCount];
+    final int[] partEnds = readXyCoordinates(in, coordinates, numPoints,
+      axisCount, xOffset, yOffset, xyScale, multiPart);
+    if (hasZ) {
+      readCoordinates(in, coordinates, numPoints, axisCount, 2, zOffset,
+        zScale);
+    } else if (hasM) {
+      for (int i = 0; i < numPoints; i++) {
+        coordinates[i * axisCount + 2] = Double.NaN;
+      }
+    }
+    if (hasM) {
+      readCoordinates(in, coordinates, numPoints, axisCount, 3, mOffset,
+        mScale);
+    }
+
     switch (geometryType) {
       case ArcSdeConstants.ST_GEOMETRY_POINT:
-        return getPoint(pointsIn, geometryFactory, numPoints, xOffset, yOffset,
-          xyScale, zOffset, zScale, mOffset, mScale);
+        return geometryFactory.point(coordinates);
       case ArcSdeConstants.ST_GEOMETRY_MULTI_POINT:
-        return getMultiPoint(pointsIn, geometryFactory, numPoints, xOffset,
-          yOffset, xyScale, zOffset, zScale, mOffset, mScale);
+        return geometryFactory.multiPoint(getParts(coordinates, axisCount,
+          partEnds));
       case ArcSdeConstants.ST_GEOMETRY_LINESTRING:
-        return getLineString(pointsIn, geometryFactory, numPoints, xOffset,
-          yOffset, xyScale, zOffset, zScale, mOffset, mScale);
+        return geometryFactory.lineString(axisCount, coordinates);
       case ArcSdeConstants.ST_GEOMETRY_MULTI_LINESTRING:
-        return getMultiLineString(pointsIn, geometryFactory, numPoints,
-          xOffset, yOffset, xyScale, zOffset, zScale, mOffset, mScale);
+        return geometryFactory.multiLineString(getParts(coordinates,
+          axisCount, partEnds));
       case ArcSdeConstants.ST_GEOMETRY_POLYGON:
-        return getPolygon(pointsIn, geometryFactory, numPoints, xOffset,
-          yOffset, xyScale, zOffset, zScale, mOffset, mScale);
+        return getPolygon(geometryFactory, coordinates, axisCount, numPoints);
       case ArcSdeConstants.ST_GEOMETRY_MULTI_POLYGON:
-        return getMultiPolygon(pointsIn, geometryFactory, numPoints, xOffset,
-          yOffset, xyScale, zOffset, zScale, mOffset, mScale);
+        return getMultiPolygon(geometryFactory, coordinates, axisCount,
+          partEnds);
       default:
         throw new IllegalArgumentException("Unknown ST_GEOMETRY entity type: "
             + geometryType);
     }
   }
 
-  @SuppressWarnings("unused")
-  private static LineString getLineString(final InputStream inputStream,
-    final GeometryFactory geometryFactory, final int vertexCount,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale) {
-    try (
-        final PackedIntegerInputStream in = new PackedIntegerInputStream(
-          inputStream)) {
-      final long packedByteLength = in.readLong5();
-      final long dimensionFlag = in.readLong();
-      final int annotationDimension = in.read();
-      final int shapeFlags = in.read();
-      final boolean hasZ = (dimensionFlag & 0x01) == 0x01;
-      final boolean hasM = (dimensionFlag & 0x02) == 0x02;
-
-      int axisCount;
-      if (hasM) {
-        axisCount = 4;
-      } else if (hasZ) {
-        axisCount = 3;
-      } else {
-        axisCount = 2;
-      }
-      final double[] coordinates = new double[vertexCount * axisCount];
-
-      double x = xOffset;
-      double y = yOffset;
-
-      for (int i = 0; i < vertexCount; i++) {
-        x = readCoordinate(in, coordinates, i, axisCount, 0, x, xyScale);
-        y = readCoordinate(in, coordinates, i, axisCount, 1, y, xyScale);
-      }
-
-      if (hasZ) {
-        readCoordinates(in, coordinates, vertexCount, axisCount, 2, zOffset,
-          zScale);
-      }
-      if (hasM) {
-        readCoordinates(in, coordinates, vertexCount, axisCount, 3, mOffset,
-          mScale);
-      }
-
-      return geometryFactory.lineString(axisCount, coordinates);
-    } catch (final IOException e) {
-      throw new RuntimeException("Error reading coordinates", e);
+  public static Geometry getGeometry(final InputStream pointsIn,
+    final GeometryFactory geometryFactory, final int geometryType,
+    final int numPoints, final Double xOffset, final Double yOffset,
+    final Double xyScale, final Double zOffset, final Double zScale,
+    final Double mOffset, final Double mScale) {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      FileUtil.copy(pointsIn, out);
+    } finally {
+      FileUtil.closeSilent(pointsIn);
     }
+    final byte[] data = out.toByteArray();
+    return getGeometry(data, geometryFactory, geometryType, numPoints,
+      xOffset, yOffset, xyScale, zOffset, zScale, mOffset, mScale);
   }
 
-  private static MultiLineString getMultiLineString(final InputStream pointsIn,
-    final GeometryFactory geometryFactory, final int numPoints,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale) {
-    final List<LineString> parts = getCoordinatesLists(numPoints, xOffset,
-      yOffset, xyScale, zOffset, zScale, mOffset, mScale, pointsIn);
-    return geometryFactory.multiLineString(parts);
-  }
-
-  private static MultiPoint getMultiPoint(final InputStream pointsIn,
-    final GeometryFactory geometryFactory, final int numPoints,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale) {
-    final List<LineString> parts = getCoordinatesLists(numPoints, xOffset,
-      yOffset, xyScale, zOffset, zScale, mOffset, mScale, pointsIn);
-    return geometryFactory.multiPoint(parts);
-  }
-
-  private static MultiPolygon getMultiPolygon(final InputStream pointsIn,
-    final GeometryFactory geometryFactory, final int numPoints,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale) {
-    final List<List<LineString>> pointsList = getMultiPolygonCoordinatesLists(
-      numPoints, xOffset, yOffset, xyScale, zOffset, zScale, mOffset, mScale,
-      pointsIn);
+  private static MultiPolygon getMultiPolygon(
+    final GeometryFactory geometryFactory, final double[] coordinates,
+    final int axisCount, final int[] partEnds) {
+    final List<List<LineString>> polygons = new ArrayList<>();
+    int partStart = 0;
+    for (final int partEnd : partEnds) {
+      final List<LineString> rings = getRings(coordinates, axisCount,
+        partStart, partEnd);
+      if (!rings.isEmpty()) {
+        polygons.add(rings);
+      }
+      partStart = partEnd + 1;
+    }
     try {
-      return geometryFactory.multiPolygon(pointsList);
+      return geometryFactory.multiPolygon(polygons);
     } catch (final IllegalArgumentException e) {
-      e.printStackTrace();
       LoggerFactory.getLogger(PackedCoordinateUtil.class).error(
         "Unable to load polygon", e);
       return null;
     }
   }
 
-  @SuppressWarnings("unused")
-  private static List<List<LineString>> getMultiPolygonCoordinatesLists(
-    final int vertexCount, final Double xOffset, final Double yOffset,
-    final Double xyScale, final Double zOffset, final Double zScale,
-    final Double mOffset, final Double mScale, final InputStream inputStream) {
-
-    try {
-      final List<List<double[]>> parts = new ArrayList<>();
-      final PackedIntegerInputStream in = new PackedIntegerInputStream(
-        inputStream);
-
-      final long packedByteLength = in.readLong5();
-      final long dimensionFlag = in.readLong();
-      final int annotationDimension = in.read();
-      final int shapeFlags = in.read();
-      final boolean hasZ = (dimensionFlag & 0x01) == 0x01;
-      final boolean hasM = (dimensionFlag & 0x02) == 0x02;
-
-      int axisCount;
-      if (hasM) {
-        axisCount = 4;
-      } else if (hasZ) {
-        axisCount = 3;
-      } else {
-        axisCount = 2;
-      }
-
-      List<double[]> pointsList = new ArrayList<>();
-      double[] coordinates = new double[vertexCount * axisCount];
-
-      double x = xOffset;
-      double y = yOffset;
-
-      int j = 0;
-      for (int i = 0; i < vertexCount; i++) {
-        x = readCoordinate(in, coordinates, j, axisCount, 0, x, xyScale);
-        y = readCoordinate(in, coordinates, j, axisCount, 1, y, xyScale);
-        if (x == -1 && y == 0) {
-          if (j > 2) {
-            final double[] subCoordinates = new double[j * axisCount
-                                                       + axisCount];
-            System.arraycopy(coordinates, 0, subCoordinates, 0,
-              subCoordinates.length);
-            pointsList.add(subCoordinates);
-          }
-          coordinates = new double[(vertexCount - j) * axisCount];
-          if (!pointsList.isEmpty()) {
-            parts.add(pointsList);
-          }
-          pointsList = new ArrayList<>();
-        } else if (j > 0 && i < vertexCount - 1) {
-          if (coordinates[0] == coordinates[j * axisCount]
-              && coordinates[1] == coordinates[j * axisCount + 1]) {
-            if (j > 2) {
-              final double[] subCoordinates = new double[j * axisCount
-                                                         + axisCount];
-              System.arraycopy(coordinates, 0, subCoordinates, 0,
-                subCoordinates.length);
-              pointsList.add(subCoordinates);
-            }
-            coordinates = new double[(vertexCount - j) * axisCount];
-            j = 0;
-          } else {
-            j++;
-          }
-        } else {
-          j++;
-        }
-      }
-      if (j > 2) {
-        if (coordinates.length == axisCount * j) {
-          pointsList.add(coordinates);
-        } else {
-          final double[] subCoordinates = new double[j * axisCount];
-          System.arraycopy(coordinates, 0, subCoordinates, 0,
-            subCoordinates.length);
-          pointsList.add(subCoordinates);
-        }
-      }
-      if (!pointsList.isEmpty()) {
-        parts.add(pointsList);
-      }
-      if (hasZ) {
-        readMultiPolygonCoordinates(in, parts, axisCount, 2, zOffset, zScale);
-      }
-      if (hasM) {
-        readMultiPolygonCoordinates(in, parts, axisCount, 3, mOffset, mScale);
-      }
-
-      final List<List<LineString>> lists = new ArrayList<>();
-      for (final List<double[]> part : parts) {
-        final List<LineString> list = new ArrayList<>();
-        lists.add(list);
-        for (final double[] partCoordinates : part) {
-          list.add(new LineStringDouble(axisCount, partCoordinates));
-        }
-      }
-      return lists;
-    } catch (final IOException e) {
-      throw new RuntimeException("Error reading coordinates", e);
-    } finally {
-      FileUtil.closeSilent(inputStream);
-    }
-  }
-
   public static int getNumPoints(final List<List<Geometry>> parts) {
     int numPoints = 0;
     if (!parts.isEmpty()) {
@@ -359,34 +155,54 @@ public class PackedCoordinateUtil {
     final byte annotationDimension = 0;
     final byte shapeFlags = 0;
 
+    int axisCount = 2;
     if (hasZ) {
       dimensionFlag |= 1;
+      axisCount++;
     }
     if (hasM) {
       dimensionFlag |= 2;
+      axisCount++;
     }
 
-    final PackedIntegerOutputStream out = new PackedIntegerOutputStream();
+    // Most deltas fit in 2-3 bytes, the writer grows if required
+    final int numPoints = getNumPoints(parts);
+    final PackedIntegerWriter out = new PackedIntegerWriter(8 + numPoints
+      * axisCount * 3);
     out.writeLong5(packedByteLength);
     out.writeLong(dimensionFlag);
     out.writeLong(annotationDimension);
     out.writeLong(shapeFlags);
 
     // Write x,y for all parts
-    long previousX = Math.round(xOffset * xyScale);
-    long previousY = Math.round(yOffset * xyScale);
+    final double scale = xyScale;
+    long previousX = Math.round(xOffset * scale);
+    long previousY = Math.round(yOffset * scale);
     boolean first = true;
     for (final List<Geometry> part : parts) {
       if (first) {
         first = false;
       } else {
-        previousX = writeCoordinate(out, previousX, xyScale, -1);
-        previousY = writeCoordinate(out, previousY, xyScale, 0);
+        previousX = writeCoordinate(out, previousX, scale, -1);
+        previousY = writeCoordinate(out, previousY, scale, 0);
       }
       for (final Geometry component : part) {
-        for (final Vertex vertex : component.vertices()) {
-          previousX = writeCoordinate(out, vertex, previousX, xyScale, 0);
-          previousY = writeCoordinate(out, vertex, previousY, xyScale, 1);
+        if (component instanceof LineString) {
+          final LineString line = (LineString)component;
+          final int vertexCount = line.getVertexCount();
+          for (int i = 0; i < vertexCount; i++) {
+            previousX = writeCoordinate(out, previousX, scale,
+              line.getCoordinate(i, 0));
+            previousY = writeCoordinate(out, previousY, scale,
+              line.getCoordinate(i, 1));
+          }
+        } else {
+          for (final Vertex vertex : component.vertices()) {
+            previousX = writeCoordinate(out, previousX, scale,
+              vertex.getCoordinate(0));
+            previousY = writeCoordinate(out, previousY, scale,
+              vertex.getCoordinate(1));
+          }
         }
       }
     }
@@ -403,235 +219,131 @@ public class PackedCoordinateUtil {
     return out.toByteArray();
   }
 
-  @SuppressWarnings("unused")
-  private static Point getPoint(final InputStream inputStream,
-    final GeometryFactory geometryFactory, final int numPoints,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale) {
-    try (
-        final PackedIntegerInputStream in = new PackedIntegerInputStream(
-          inputStream)) {
-      final long packedByteLength = in.readLong5();
-      final long dimensionFlag = in.readLong();
-      final int annotationDimension = in.read();
-      final int shapeFlags = in.read();
-      final boolean hasZ = (dimensionFlag & 0x01) == 0x01;
-      final boolean hasM = (dimensionFlag & 0x02) == 0x02;
-
-      final double x = readCoordinate(in, xOffset, xyScale);
-      final double y = readCoordinate(in, yOffset, xyScale);
-
-      if (hasM) {
-        double z;
-        if (hasZ) {
-          z = readCoordinate(in, zOffset, zScale);
-        } else {
-          z = Double.NaN;
-        }
-        final double m = readCoordinate(in, mOffset, mScale);
-        return geometryFactory.point(x, y, z, m);
-      } else if (hasZ) {
-        final double z = readCoordinate(in, zOffset, zScale);
-        return geometryFactory.point(x, y, z);
-      } else {
-        return geometryFactory.point(x, y);
-      }
-    } catch (final IOException e) {
-      throw new RuntimeException("Error reading coordinates", e);
+  /**
+   * Get a view of the vertices for each part, excluding the separators.
+   */
+  private static List<LineString> getParts(final double[] coordinates,
+    final int axisCount, final int[] partEnds) {
+    final List<LineString> parts = new ArrayList<>(partEnds.length);
+    int partStart = 0;
+    for (final int partEnd : partEnds) {
+      parts.add(new PackedLineString(axisCount, coordinates, partStart,
+        partEnd - partStart));
+      partStart = partEnd + 1;
     }
+    return parts;
   }
 
-  private static Polygon getPolygon(final InputStream pointsIn,
-    final GeometryFactory geometryFactory, final int numPoints,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale) {
-    final List<LinearRing> pointsList = getPolygonRings(geometryFactory,
-      numPoints, xOffset, yOffset, xyScale, zOffset, zScale, mOffset, mScale,
-      pointsIn);
+  private static Polygon getPolygon(final GeometryFactory geometryFactory,
+    final double[] coordinates, final int axisCount, final int vertexCount) {
+    final List<LineString> rings = getRings(coordinates, axisCount, 0,
+      vertexCount);
     try {
-      return geometryFactory.polygon(pointsList);
+      return geometryFactory.polygon(rings);
     } catch (final IllegalArgumentException e) {
-      e.printStackTrace();
       LoggerFactory.getLogger(PackedCoordinateUtil.class).error(
         "Unable to load polygon", e);
       return null;
     }
   }
 
-  @SuppressWarnings("unused")
-  private static List<LinearRing> getPolygonRings(
-    final GeometryFactory geometryFactory, final int vertexCount,
-    final Double xOffset, final Double yOffset, final Double xyScale,
-    final Double zOffset, final Double zScale, final Double mOffset,
-    final Double mScale, final InputStream inputStream) {
-
-    try (
-        final PackedIntegerInputStream in = new PackedIntegerInputStream(
-          inputStream)) {
-      final List<double[]> pointsList = new ArrayList<>();
-
-      final long packedByteLength = in.readLong5();
-      final long dimensionFlag = in.readLong();
-      final int annotationDimension = in.read();
-      final int shapeFlags = in.read();
-      final boolean hasZ = (dimensionFlag & 0x01) == 0x01;
-      final boolean hasM = (dimensionFlag & 0x02) == 0x02;
-
-      int axisCount;
-      if (hasM) {
-        axisCount = 4;
-      } else if (hasZ) {
-        axisCount = 3;
-      } else {
-        axisCount = 2;
-      }
-      double[] coordinates = new double[vertexCount * axisCount];
-
-      double x = xOffset;
-      double y = yOffset;
-
-      int j = 0;
-      for (int i = 0; i < vertexCount; i++) {
-        x = readCoordinate(in, coordinates, j, axisCount, 0, x, xyScale);
-        y = readCoordinate(in, coordinates, j, axisCount, 1, y, xyScale);
-        if (j > 0 && i < vertexCount - 1) {
-          final int numCoordinates = j * axisCount;
-          if (coordinates[0] == coordinates[numCoordinates]
-              && coordinates[1] == coordinates[numCoordinates + 1]) {
-            if (j > 2) {
-              final double[] subCoordinates = new double[numCoordinates
-                                                         + axisCount];
-              System.arraycopy(coordinates, 0, subCoordinates, 0,
-                subCoordinates.length);
-              pointsList.add(subCoordinates);
-            }
-            coordinates = new double[(vertexCount - j) * axisCount];
-            j = 0;
-          } else {
-            j++;
-          }
-        } else {
-          j++;
-        }
-      }
-      if (j > 2) {
-        final int numCoordinates = j * axisCount;
-        if (numCoordinates == coordinates.length) {
-          pointsList.add(coordinates);
-        } else {
-          final double[] subCoordinates = new double[numCoordinates];
-          System.arraycopy(coordinates, 0, subCoordinates, 0,
-            subCoordinates.length);
-          pointsList.add(subCoordinates);
+  /**
+   * Get a view of each ring in the range of vertices. A ring ends at the
+   * vertex that is equal to the first vertex of the ring. Rings with less than
+   * 4 vertices are ignored.
+   */
+  private static List<LineString> getRings(final double[] coordinates,
+    final int axisCount, final int startIndex, final int endIndex) {
+    final List<LineString> rings = new ArrayList<>();
+    int ringStart = startIndex;
+    double startX = 0;
+    double startY = 0;
+    for (int i = startIndex; i < endIndex; i++) {
+      final double x = coordinates[i * axisCount];
+      final double y = coordinates[i * axisCount + 1];
+      if (i == ringStart) {
+        startX = x;
+        startY = y;
+      } else if (x == startX && y == startY) {
+        final int ringVertexCount = i - ringStart + 1;
+        if (ringVertexCount > 3) {
+          rings.add(new PackedLineString(axisCount, coordinates, ringStart,
+            ringVertexCount));
         }
+        ringStart = i + 1;
       }
-      if (hasZ) {
-        readPolygonOordinates(in, pointsList, axisCount, 2, zOffset, zScale);
-      }
-      if (hasM) {
-        readPolygonOordinates(in, pointsList, axisCount, 3, mOffset, mScale);
-      }
-      final List<LinearRing> rings = new ArrayList<>();
-      for (final double[] partCoordinates : pointsList) {
-        rings.add(geometryFactory.linearRing(axisCount, partCoordinates));
-      }
-      return rings;
-    } catch (final IOException e) {
-      throw new RuntimeException("Error reading coordinates", e);
-    } finally {
-      FileUtil.closeSilent(inputStream);
     }
+    final int ringVertexCount = endIndex - ringStart;
+    if (ringVertexCount > 2) {
+      rings.add(new PackedLineString(axisCount, coordinates, ringStart,
+        ringVertexCount));
+    }
+    return rings;
   }
 
-  private static double readCoordinate(final PackedIntegerInputStream in,
-    final double previousValue, final double scale) throws IOException {
-    final long deltaValueLong = in.readLong();
-    final double deltaValue = deltaValueLong / scale;
-    final double value = Math.round((previousValue + deltaValue) * scale)
-        / scale;
-    return value;
-  }
-
-  private static double readCoordinate(final PackedIntegerInputStream in,
-    final double[] coordinates, final int vertexIndex, final int axisCount,
-    final int axisIndex, final double previousValue, final double scale)
-        throws IOException {
-    final double value = readCoordinate(in, previousValue, scale);
-    coordinates[vertexIndex * axisCount + axisIndex] = value;
-    return value;
-  }
-
-  private static void readCoordinates(final PackedIntegerInputStream in,
+  /**
+   * Read the values for one axis of all the vertices into the coordinates.
+   */
+  private static void readCoordinates(final PackedIntegerReader in,
     final double[] coordinates, final int vertexCount, final int axisCount,
-    final int axisIndex, final double offset, final double scale)
-        throws IOException {
-
-    double previousValue = offset;
+    final int axisIndex, final double offset, final double scale) {
+    long value = Math.round(offset * scale);
     for (int i = 0; i < vertexCount; i++) {
-      previousValue = readCoordinate(in, coordinates, i, axisCount, axisIndex,
-        previousValue, scale);
+      value += in.readLong();
+      coordinates[i * axisCount + axisIndex] = value / scale;
     }
   }
 
-  private static void readCoordinates(final PackedIntegerInputStream in,
-    final List<double[]> pointsList, final int axisCount, final int axisIndex,
-    final double offset, final double scale) throws IOException {
-
-    double previousValue = offset;
-    int j = 0;
-    for (final double[] coordinates : pointsList) {
-      if (j > 0) {
-        previousValue = readCoordinate(in, previousValue, scale);
-      }
-      final int vertexCount = coordinates.length / axisCount;
-      for (int i = 0; i < vertexCount; i++) {
-        previousValue = readCoordinate(in, coordinates, i, axisCount,
-          axisIndex, previousValue, scale);
-      }
-      j++;
-    }
-  }
-
-  private static void readMultiPolygonCoordinates(
-    final PackedIntegerInputStream in, final List<List<double[]>> parts,
-    final int axisCount, final int axisIndex, final double offset,
-    final double scale) throws IOException {
-
-    double previousValue = offset;
-    boolean first = true;
-    for (final List<double[]> part : parts) {
-      if (first) {
-        first = false;
-      } else {
-        previousValue = readCoordinate(in, previousValue, scale);
-      }
-      for (final double[] points : part) {
-        final int numPoints = points.length / axisCount;
-        for (int i = 0; i < numPoints; i++) {
-          previousValue = readCoordinate(in, points, i, axisCount, axisIndex,
-            previousValue, scale);
+  /**
+   * Read the x,y values of all the vertices into the coordinates. The values
+   * are accumulated as the scaled long values so there is no rounding error
+   * between the vertices.
+   *
+   * @return The index of the vertex after each part. For multi-part
+   * geometries this is the index of the -1,0 part separator.
+   */
+  private static int[] readXyCoordinates(final PackedIntegerReader in,
+    final double[] coordinates, final int vertexCount, final int axisCount,
+    final double xOffset, final double yOffset, final double xyScale,
+    final boolean multiPart) {
+    int[] partEnds = new int[8];
+    int partCount = 0;
+    long x = Math.round(xOffset * xyScale);
+    long y = Math.round(yOffset * xyScale);
+    for (int i = 0; i < vertexCount; i++) {
+      x += in.readLong();
+      y += in.readLong();
+      final int coordinateIndex = i * axisCount;
+      final double xValue = x / xyScale;
+      final double yValue = y / xyScale;
+      coordinates[coordinateIndex] = xValue;
+      coordinates[coordinateIndex + 1] = yValue;
+      if (multiPart && xValue == -1 && yValue == 0) {
+        if (partCount == partEnds.length) {
+          partEnds = Arrays.copyOf(partEnds, partCount * 2);
         }
+        partEnds[partCount++] = i;
       }
     }
-  }
-
-  private static void readPolygonOordinates(final PackedIntegerInputStream in,
-    final List<double[]> pointsList, final int axisCount, final int axisIndex,
-    final double offset, final double scale) throws IOException {
-
-    double previousValue = offset;
-    for (final double[] coordinates : pointsList) {
-      final int numPoints = coordinates.length / axisCount;
-      for (int i = 0; i < numPoints; i++) {
-        previousValue = readCoordinate(in, coordinates, i, axisCount,
-          axisIndex, previousValue, scale);
-      }
+    if (partCount == partEnds.length) {
+      partEnds = Arrays.copyOf(partEnds, partCount + 1);
     }
+    partEnds[partCount++] = vertexCount;
+    return Arrays.copyOf(partEnds, partCount);
   }
 
-  private static long writeCoordinate(final PackedIntegerOutputStream out,
+  /**
+   * Write the difference between the value and the previous value, which are
+   * both multiplied by the scale and rounded to longs.
+   *
+   * @param out The writer to write the bytes to.
+   * @param previousValue The value of the previous coordinate, returned from
+   *          this method.
+   * @param scale The scale which defines the precision of the values.
+   * @param value The value to write.
+   * @return The current value * scale rounded to a long value.
+   */
+  private static long writeCoordinate(final PackedIntegerWriter out,
     final long previousValue, final double scale, final double value) {
     long longValue;
     if (Double.isNaN(value)) {
@@ -643,41 +355,28 @@ public class PackedCoordinateUtil {
     return longValue;
   }
 
-  /**
-   * Write the value of an ordinate from the coordinates which has the specified
-   * coordinateIndex and ordinateIndex. The value written is the difference
-   * between the current value and the previous value which are both multiplied
-   * by the scale and rounded to longs before conversion.
-   *
-   * @param out The stream to write the bytes to.
-   * @param coordinates The coordinates.
-   * @param previousValue The value of the previous coordinate, returned from
-   *          this method.
-   * @param scale The scale which defines the precision of the values.
-   * @param vertexIndex The coordinate index.
-   * @param axisIndex The ordinate index.
-   * @return The current ordinate value * scale rounded to a long value.
-   */
-  private static long writeCoordinate(final PackedIntegerOutputStream out,
-    final Vertex vertex, final long previousValue, final double scale,
-    final int axisIndex) {
-    final double coordinate = vertex.getCoordinate(axisIndex);
-    return writeCoordinate(out, previousValue, scale, coordinate);
-  }
-
-  private static long writeCoordinates(final PackedIntegerOutputStream out,
+  private static long writeCoordinates(final PackedIntegerWriter out,
     final Geometry geometry, long previousValue, final double scale,
     final int axisIndex) {
-    for (final Vertex vertex : geometry.vertices()) {
-      previousValue = writeCoordinate(out, vertex, previousValue, scale,
-        axisIndex);
+    if (geometry instanceof LineString) {
+      final LineString line = (LineString)geometry;
+      final int vertexCount = line.getVertexCount();
+      for (int i = 0; i < vertexCount; i++) {
+        previousValue = writeCoordinate(out, previousValue, scale,
+          line.getCoordinate(i, axisIndex));
+      }
+    } else {
+      for (final Vertex vertex : geometry.vertices()) {
+        previousValue = writeCoordinate(out, previousValue, scale,
+          vertex.getCoordinate(axisIndex));
+      }
     }
     return previousValue;
   }
 
-  private static void writeMultiCoordinates(
-    final PackedIntegerOutputStream out, final List<List<Geometry>> partsList,
-    final int axisIndex, final double offset, final double scale) {
+  private static void writeMultiCoordinates(final PackedIntegerWriter out,
+    final List<List<Geometry>> partsList, final int axisIndex,
+    final double offset, final double scale) {
     long previous = Math.round(offset * scale);
     boolean firstPart = true;
     for (final List<Geometry> part : partsList) {
@@ -698,7 +397,7 @@ public class PackedCoordinateUtil {
     }
   }
 
-  private static long writeZeroCoordinates(final PackedIntegerOutputStream out,
+  private static long writeZeroCoordinates(final PackedIntegerWriter out,
     final int vertexCount, final double scale, long previousValue) {
     for (int i = 0; i < vertexCount; i++) {
       previousValue = writeCoordinate(out, previousValue, scale, 0);
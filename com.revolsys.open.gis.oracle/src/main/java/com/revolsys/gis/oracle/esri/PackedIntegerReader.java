@@ -0,0 +1,74 @@
+package com.revolsys.gis.oracle.esri;
+
+/**
+ * Read the packed integers used by ST_GEOMETRY directly from a byte array.
+ * The first byte of a value has 6 bits of the value, a sign bit (0x40) and a
+ * continuation bit (0x80). The following bytes have 7 bits of the value and a
+ * continuation bit.
+ */
+public class PackedIntegerReader {
+  private final byte[] data;
+
+  private int offset;
+
+  public PackedIntegerReader(final byte[] data) {
+    this(data, 0);
+  }
+
+  public PackedIntegerReader(final byte[] data, final int offset) {
+    this.data = data;
+    this.offset = offset;
+  }
+
+  public int getOffset() {
+    return this.offset;
+  }
+
+  public int read() {
+    if (this.offset < this.data.length) {
+      return this.data[this.offset++] & 0xFF;
+    } else {
+      throw new IllegalStateException("Reached end of data");
+    }
+  }
+
+  public long readLong() {
+    final byte[] data = this.data;
+    int offset = this.offset;
+    if (offset >= data.length) {
+      throw new IllegalStateException("Reached end of data");
+    }
+    int b = data[offset++];
+    final boolean positive = (b & 0x40) == 0;
+    long value = b & 0x3F;
+    int shift = 6;
+    while ((b & 0x80) != 0) {
+      if (offset >= data.length) {
+        throw new IllegalStateException("Reached end of data");
+      }
+      b = data[offset++];
+      value += (long)(b & 0x7F) << shift;
+      shift += 7;
+    }
+    this.offset = offset;
+    if (positive) {
+      return value;
+    } else {
+      return -value;
+    }
+  }
+
+  /**
+   * Read a value which is always stored in 5 bytes, padded with zeros.
+   */
+  public long readLong5() {
+    final int startOffset = this.offset;
+    final long value = readLong();
+    this.offset = Math.max(this.offset, startOffset + 5);
+    return value;
+  }
+
+  public void setOffset(final int offset) {
+    this.offset = offset;
+  }
+}
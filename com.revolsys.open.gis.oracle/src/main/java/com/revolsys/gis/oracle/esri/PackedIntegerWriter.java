@@ -0,0 +1,85 @@
+package com.revolsys.gis.oracle.esri;
+
+/**
+ * Write the packed integers used by ST_GEOMETRY directly to a growable byte
+ * array. See {@link PackedIntegerReader} for the format.
+ */
+public class PackedIntegerWriter {
+  private byte[] buffer;
+
+  private int count;
+
+  public PackedIntegerWriter() {
+    this(8000);
+  }
+
+  public PackedIntegerWriter(final int size) {
+    this.buffer = new byte[Math.max(16, size)];
+  }
+
+  private void ensureCapacity(final int size) {
+    if (size > this.buffer.length) {
+      final byte[] buffer = new byte[Math.max(size, this.buffer.length * 2)];
+      System.arraycopy(this.buffer, 0, buffer, 0, this.count);
+      this.buffer = buffer;
+    }
+  }
+
+  public int size() {
+    return this.count;
+  }
+
+  /**
+   * Get the bytes written, with the 5 byte length at the start of the data
+   * set to the number of bytes after the 8 byte header.
+   */
+  public byte[] toByteArray() {
+    final int count = this.count;
+    this.count = 0;
+    writeLong5(count - 8);
+    this.count = count;
+    final byte[] data = new byte[count];
+    System.arraycopy(this.buffer, 0, data, 0, count);
+    return data;
+  }
+
+  public void write(final int b) {
+    ensureCapacity(this.count + 1);
+    this.buffer[this.count++] = (byte)b;
+  }
+
+  public void writeLong(final long value) {
+    ensureCapacity(this.count + 10);
+    final byte[] buffer = this.buffer;
+    int count = this.count;
+    long newValue;
+    int nextByte;
+    if (value >= 0) {
+      newValue = value;
+      nextByte = 0;
+    } else {
+      newValue = -value;
+      nextByte = 0x40;
+    }
+    nextByte |= newValue & 0x3F;
+    newValue = newValue >> 6;
+    while (newValue > 0) {
+      buffer[count++] = (byte)(nextByte | 0x80);
+      nextByte = (int)(newValue & 0x7F);
+      newValue = newValue >> 7;
+    }
+    buffer[count++] = (byte)nextByte;
+    this.count = count;
+  }
+
+  /**
+   * Write a value which is always stored in 5 bytes, padded with zeros.
+   */
+  public void writeLong5(final long value) {
+    final int startCount = this.count;
+    writeLong(value);
+    while (this.count < startCount + 5) {
+      write(0);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package com.revolsys.gis.oracle.esri;
+
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.impl.AbstractLineString;
+
+/**
+ * A read only view of a range of vertices in the coordinates decoded from
+ * an ST_GEOMETRY. Used to pass the parts to the {@link GeometryFactory}
+ * without copying the coordinates for each part.
+ */
+class PackedLineString extends AbstractLineString {
+  private static final long serialVersionUID = 1L;
+
+  private final int axisCount;
+
+  private final double[] coordinates;
+
+  private final int vertexCount;
+
+  private final int vertexOffset;
+
+  PackedLineString(final int axisCount, final double[] coordinates,
+    final int vertexOffset, final int vertexCount) {
+    this.axisCount = axisCount;
+    this.coordinates = coordinates;
+    this.vertexOffset = vertexOffset;
+    this.vertexCount = vertexCount;
+  }
+
+  @Override
+  public int getAxisCount() {
+    return this.axisCount;
+  }
+
+  @Override
+  public double getCoordinate(final int index, final int axisIndex) {
+    if (axisIndex < this.axisCount) {
+      return this.coordinates[(this.vertexOffset + index) * this.axisCount
+        + axisIndex];
+    } else {
+      return Double.NaN;
+    }
+  }
+
+  @Override
+  public double[] getCoordinates() {
+    final double[] coordinates = new double[this.vertexCount * this.axisCount];
+    System.arraycopy(this.coordinates, this.vertexOffset * this.axisCount,
+      coordinates, 0, coordinates.length);
+    return coordinates;
+  }
+
+  @Override
+  public GeometryFactory getGeometryFactory() {
+    return GeometryFactory.floating(0, this.axisCount);
+  }
+
+  @Override
+  public int getVertexCount() {
+    return this.vertexCount;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.vertexCount == 0;
+  }
+}
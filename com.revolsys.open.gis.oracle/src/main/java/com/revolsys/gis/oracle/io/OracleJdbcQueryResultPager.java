@@ -13,6 +13,7 @@ import com.revolsys.data.record.RecordFactory;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcQueryResultPager;
 import com.revolsys.jdbc.io.JdbcRecordStore;
@@ -39,9 +40,10 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
       final int pageSize = getPageSize();
       final int pageNumber = getPageNumber();
       if (pageNumber != -1) {
-        String sql = getSql();
+        final Query pageQuery = getPageQuery();
+        String sql = JdbcUtils.getSelectSql(pageQuery);
 
-        final int startRowNum = (pageNumber - 1) * pageSize + 1;
+        final int startRowNum = pageQuery.getOffset() + 1;
         final int endRowNum = startRowNum + pageSize - 1;
         sql = "SELECT * FROM ( SELECT  T2.*, ROWNUM TROWNUM FROM ( " + sql
             + ") T2 ) WHERE TROWNUM BETWEEN " + startRowNum + " AND " + endRowNum;
@@ -70,7 +72,7 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
           try (
               final PreparedStatement statement = connection.prepareStatement(sql);
               final ResultSet resultSet = JdbcQueryIterator.getResultSet(
-                recordDefinition, statement, getQuery());) {
+                recordDefinition, statement, pageQuery);) {
             if (resultSet.next()) {
               int i = 0;
               do {
@@ -86,6 +88,7 @@ public class OracleJdbcQueryResultPager extends JdbcQueryResultPager {
           }
         }
         setResults(results);
+        setPageRecords(results);
       }
     }
   }
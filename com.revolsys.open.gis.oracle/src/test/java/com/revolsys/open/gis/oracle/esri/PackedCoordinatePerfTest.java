@@ -0,0 +1,113 @@
+package com.revolsys.open.gis.oracle.esri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.revolsys.data.equals.GeometryEqualsExact3d;
+import com.revolsys.gis.oracle.esri.ArcSdeConstants;
+import com.revolsys.gis.oracle.esri.ArcSdeStGeometryFieldDefinition;
+import com.revolsys.gis.oracle.esri.PackedCoordinateUtil;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * Time the encoding and decoding of large multi-polygon ST_GEOMETRY blobs
+ * and check the decoded geometries are equal to the original.
+ *
+ * Arguments: [polygonCount] [ringVertexCount] [iterations]
+ */
+public class PackedCoordinatePerfTest {
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.fixed(
+    3005, 3, 1000.0, 1000.0);
+
+  private static final double X_OFFSET = -400000;
+
+  private static final double Y_OFFSET = -400000;
+
+  private static final double XY_SCALE = 1000;
+
+  private static final double Z_OFFSET = -100000;
+
+  private static final double Z_SCALE = 1000;
+
+  private static Polygon createPolygon(final Random random,
+    final double centreX, final double centreY, final int vertexCount) {
+    final List<LinearRing> rings = new ArrayList<>();
+    rings.add(createRing(random, centreX, centreY, 1000, vertexCount, false));
+    rings.add(createRing(random, centreX, centreY, 200, vertexCount / 4, true));
+    return GEOMETRY_FACTORY.polygon(rings);
+  }
+
+  private static LinearRing createRing(final Random random,
+    final double centreX, final double centreY, final double radius,
+    final int vertexCount, final boolean clockwise) {
+    final double[] coordinates = new double[(vertexCount + 1) * 3];
+    for (int i = 0; i < vertexCount; i++) {
+      double angle = 2 * Math.PI * i / vertexCount;
+      if (clockwise) {
+        angle = -angle;
+      }
+      final double distance = radius * (0.9 + random.nextDouble() * 0.1);
+      coordinates[i * 3] = centreX + Math.cos(angle) * distance;
+      coordinates[i * 3 + 1] = centreY + Math.sin(angle) * distance;
+      coordinates[i * 3 + 2] = random.nextDouble() * 100;
+    }
+    System.arraycopy(coordinates, 0, coordinates, vertexCount * 3, 3);
+    return GEOMETRY_FACTORY.linearRing(3, coordinates);
+  }
+
+  public static void main(final String[] args) {
+    int polygonCount = 20;
+    int ringVertexCount = 5000;
+    int iterations = 200;
+    if (args.length > 0) {
+      polygonCount = Integer.parseInt(args[0]);
+    }
+    if (args.length > 1) {
+      ringVertexCount = Integer.parseInt(args[1]);
+    }
+    if (args.length > 2) {
+      iterations = Integer.parseInt(args[2]);
+    }
+    final Random random = new Random(1);
+    final List<Polygon> polygons = new ArrayList<>();
+    for (int i = 0; i < polygonCount; i++) {
+      polygons.add(createPolygon(random, 1000000 + i * 3000, 500000,
+        ringVertexCount));
+    }
+    final Geometry geometry = GEOMETRY_FACTORY.multiPolygon(polygons);
+    final List<List<Geometry>> parts = ArcSdeStGeometryFieldDefinition.getParts(
+      geometry, false);
+    final int numPoints = PackedCoordinateUtil.getNumPoints(parts);
+    final int geometryType = ArcSdeConstants.getStGeometryType(geometry);
+
+    byte[] data = null;
+    long time = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      data = PackedCoordinateUtil.getPackedBytes(X_OFFSET, Y_OFFSET, XY_SCALE,
+        true, Z_OFFSET, Z_SCALE, false, null, null, parts);
+    }
+    final long encodeTime = System.nanoTime() - time;
+
+    Geometry geometry2 = null;
+    time = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      geometry2 = PackedCoordinateUtil.getGeometry(data, GEOMETRY_FACTORY,
+        geometryType, numPoints, X_OFFSET, Y_OFFSET, XY_SCALE, Z_OFFSET,
+        Z_SCALE, null, null);
+    }
+    final long decodeTime = System.nanoTime() - time;
+
+    if (!new GeometryEqualsExact3d().equals(geometry, geometry2,
+      Collections.<String> emptyList())) {
+      throw new RuntimeException("Geometry not equal");
+    }
+    System.out.println("vertices=" + numPoints + " bytes=" + data.length);
+    System.out.println("encode " + encodeTime / iterations / 1000 + "us");
+    System.out.println("decode " + decodeTime / iterations / 1000 + "us");
+  }
+}
@@ -0,0 +1,366 @@
+package com.revolsys.open.gis.oracle.esri;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.gis.oracle.esri.ArcSdeConstants;
+import com.revolsys.gis.oracle.esri.ArcSdeStGeometryFieldDefinition;
+import com.revolsys.gis.oracle.esri.PackedCoordinateUtil;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * Check {@link PackedCoordinateUtil} against bytes written by the original
+ * stream based encoder for each ST_GEOMETRY type, with z and m values, empty
+ * geometries and polygon rings that don't close. The encoder must write the
+ * same bytes and the decoder must return the original geometry. The original
+ * decoder read past the end of an empty point, used 0 for the z of m only
+ * lines and multi-points and threw an exception for an unclosed polygon ring,
+ * these return an empty point, NaN and null like the other types.
+ */
+public class PackedCoordinateUtilTest {
+  private static final double X_OFFSET = -1000;
+
+  private static final double Y_OFFSET = -2000;
+
+  private static final double XY_SCALE = 1000;
+
+  private static final double Z_OFFSET = -100;
+
+  private static final double Z_SCALE = 100;
+
+  private static final double M_OFFSET = -10;
+
+  private static final double M_SCALE = 10;
+
+  private static final GeometryFactory GEOMETRY_FACTORY_2D = GeometryFactory.floating(
+    3005, 2);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_3D = GeometryFactory.floating(
+    3005, 3);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_4D = GeometryFactory.floating(
+    3005, 4);
+
+  private static void assertGeometry(final String message,
+    final Geometry expected, final Geometry actual, final int axisCount) {
+    Assert.assertNotNull(message, actual);
+    if (expected instanceof Point) {
+      Assert.assertTrue(message, actual instanceof Point);
+      Assert.assertEquals(message, expected.isEmpty(), actual.isEmpty());
+      if (!expected.isEmpty()) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          assertValue(message, ((Point)expected).getCoordinate(axisIndex),
+            ((Point)actual).getCoordinate(axisIndex));
+        }
+      }
+    } else if (expected instanceof LineString) {
+      Assert.assertTrue(message, actual instanceof LineString);
+      final LineString expectedLine = (LineString)expected;
+      final LineString actualLine = (LineString)actual;
+      Assert.assertEquals(message, expectedLine.getVertexCount(),
+        actualLine.getVertexCount());
+      for (int i = 0; i < expectedLine.getVertexCount(); i++) {
+        for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+          assertValue(message, expectedLine.getCoordinate(i, axisIndex),
+            actualLine.getCoordinate(i, axisIndex));
+        }
+      }
+    } else if (expected instanceof Polygon) {
+      Assert.assertTrue(message, actual instanceof Polygon);
+      final Polygon expectedPolygon = (Polygon)expected;
+      final Polygon actualPolygon = (Polygon)actual;
+      Assert.assertEquals(message, expectedPolygon.getRingCount(),
+        actualPolygon.getRingCount());
+      for (int i = 0; i < expectedPolygon.getRingCount(); i++) {
+        assertGeometry(message, expectedPolygon.getRing(i),
+          actualPolygon.getRing(i), axisCount);
+      }
+    } else {
+      Assert.assertEquals(message, expected.getClass(), actual.getClass());
+      Assert.assertEquals(message, expected.getGeometryCount(),
+        actual.getGeometryCount());
+      for (int i = 0; i < expected.getGeometryCount(); i++) {
+        final Geometry expectedPart = expected.getGeometry(i);
+        final Geometry actualPart = actual.getGeometry(i);
+        assertGeometry(message, expectedPart, actualPart, axisCount);
+      }
+    }
+  }
+
+  /**
+   * Encode the geometry and check the bytes are the same as those from the
+   * original encoder, then decode the bytes and check the geometry is the
+   * same.
+   */
+  private static void assertPacked(final String expectedHex,
+    final int geometryType, final boolean hasZ, final boolean hasM,
+    final Geometry geometry) {
+    final List<List<Geometry>> parts = ArcSdeStGeometryFieldDefinition.getParts(
+      geometry, false);
+    assertPacked(expectedHex, geometryType, hasZ, hasM, geometry,
+      geometry.getGeometryFactory(), parts);
+  }
+
+  private static void assertPacked(final String expectedHex,
+    final int geometryType, final boolean hasZ, final boolean hasM,
+    final Geometry expected, final GeometryFactory geometryFactory,
+    final List<List<Geometry>> parts) {
+    final int axisCount = geometryFactory.getAxisCount();
+    final String message = expectedHex;
+
+    final byte[] data = PackedCoordinateUtil.getPackedBytes(X_OFFSET,
+      Y_OFFSET, XY_SCALE, hasZ, Z_OFFSET, Z_SCALE, hasM, M_SCALE, M_OFFSET,
+      parts);
+    Assert.assertEquals(message, expectedHex, toHex(data));
+
+    final int numPoints = PackedCoordinateUtil.getNumPoints(parts);
+    final Geometry actual = PackedCoordinateUtil.getGeometry(data,
+      geometryFactory, geometryType, numPoints, X_OFFSET, Y_OFFSET, XY_SCALE,
+      Z_OFFSET, Z_SCALE, M_OFFSET, M_SCALE);
+    if (expected == null) {
+      Assert.assertNull(message, actual);
+    } else {
+      assertGeometry(message, expected, actual, axisCount);
+    }
+  }
+
+  private static void assertValue(final String message, final double expected,
+    final double actual) {
+    if (Double.isNaN(expected)) {
+      Assert.assertTrue(message, Double.isNaN(actual));
+    } else {
+      Assert.assertEquals(message, expected, actual, 0);
+    }
+  }
+
+  private static LinearRing ring(final GeometryFactory geometryFactory,
+    final double... coordinates) {
+    return geometryFactory.linearRing(geometryFactory.getAxisCount(),
+      coordinates);
+  }
+
+  private static String toHex(final byte[] data) {
+    final StringBuilder hex = new StringBuilder();
+    for (final byte b : data) {
+      hex.append(String.format("%02x", b & 0xff));
+    }
+    return hex.toString();
+  }
+
+  @Test
+  public void testEmpty() {
+    final List<List<Geometry>> parts = Collections.emptyList();
+    final String empty = "0000000000000000";
+    assertPacked(empty, ArcSdeConstants.ST_GEOMETRY_POINT, false, false,
+      GEOMETRY_FACTORY_2D.point(), GEOMETRY_FACTORY_2D, parts);
+    assertPacked(empty, ArcSdeConstants.ST_GEOMETRY_LINESTRING, false, false,
+      GEOMETRY_FACTORY_2D.lineString(), GEOMETRY_FACTORY_2D, parts);
+    assertPacked(empty, ArcSdeConstants.ST_GEOMETRY_POLYGON, false, false,
+      GEOMETRY_FACTORY_2D.polygon(), GEOMETRY_FACTORY_2D, parts);
+    assertPacked(empty, ArcSdeConstants.ST_GEOMETRY_MULTI_POLYGON, false,
+      false, GEOMETRY_FACTORY_2D.multiPolygon(), GEOMETRY_FACTORY_2D, parts);
+    for (final int geometryType : Arrays.asList(
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POINT,
+      ArcSdeConstants.ST_GEOMETRY_MULTI_LINESTRING)) {
+      final Geometry geometry = PackedCoordinateUtil.getGeometry(new byte[8],
+        GEOMETRY_FACTORY_2D, geometryType, 0, X_OFFSET, Y_OFFSET, XY_SCALE,
+        Z_OFFSET, Z_SCALE, M_OFFSET, M_SCALE);
+      Assert.assertTrue(geometry.isEmpty());
+    }
+    final String emptyZm = "0000000000030000";
+    assertPacked(emptyZm, ArcSdeConstants.ST_GEOMETRY_LINESTRING, true, true,
+      GEOMETRY_FACTORY_4D.lineString(), GEOMETRY_FACTORY_4D, parts);
+  }
+
+  @Test
+  public void testLineString() {
+    assertPacked("140000000000000094ab8601baca8c029c9401a6b402e3b602c0f104",
+      ArcSdeConstants.ST_GEOMETRY_LINESTRING, false, false,
+      GEOMETRY_FACTORY_2D.lineString(2, 100.5, 200.25, 110, 220, 90.125, 180));
+    assertPacked("1b0000000001000094ab8601baca8c029c9401a6b402e3b602c0f104"
+      + "aea101f2199414",
+      ArcSdeConstants.ST_GEOMETRY_LINESTRING, true, false,
+      GEOMETRY_FACTORY_3D.lineString(3, 100.5, 200.25, 3.5, 110, 220, -13,
+        90.125, 180, 0));
+    assertPacked("190000000002000094ab8601baca8c029c9401a6b402e3b602c0f104"
+      + "b3010adf01",
+      ArcSdeConstants.ST_GEOMETRY_LINESTRING, false, true,
+      GEOMETRY_FACTORY_4D.lineString(4, 100.5, 200.25, Double.NaN, 1.5, 110,
+        220, Double.NaN, 2.5, 90.125, 180, Double.NaN, -7));
+    assertPacked("200000000003000094ab8601baca8c029c9401a6b402e3b602c0f104"
+      + "aea101f2199414b3010adf01",
+      ArcSdeConstants.ST_GEOMETRY_LINESTRING, true, true,
+      GEOMETRY_FACTORY_4D.lineString(4, 100.5, 200.25, 3.5, 1.5, 110, 220, -13,
+        2.5, 90.125, 180, 0, -7));
+  }
+
+  @Test
+  public void testMultiLineString() {
+    assertPacked("2600000000000000a0a3860180c78c02909c01a0b802d8c60de0ed1a"
+      + "a8f930a0843d909c01a0b802a0b802d09c01",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_LINESTRING, false, false,
+      GEOMETRY_FACTORY_2D.multiLineString(
+        GEOMETRY_FACTORY_2D.lineString(2, 100, 200, 110, 220),
+        GEOMETRY_FACTORY_2D.lineString(2, 400, 500, 410, 520, 430, 510)));
+    // The -1,0 part separators have z and m values of 0
+    assertPacked("3300000000010000a0a3860180c78c02909c01a0b802d8c60de0ed1a"
+      + "a8f930a0843d909c01a0b802a0b802d09c01bca001a80fd4149809a8"
+      + "0ffa1c",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_LINESTRING, true, false,
+      GEOMETRY_FACTORY_3D.multiLineString(
+        GEOMETRY_FACTORY_3D.lineString(3, 100, 200, 3, 110, 220, 13),
+        GEOMETRY_FACTORY_3D.lineString(3, 400, 500, 6, 410, 520, 16, 430, 510,
+          -2.5)));
+    assertPacked("9501000000030000a0a3860180c78c02909c01a0b802d8c60de0ed1a"
+      + "a8f930a0843d909c01a0b802f89532c0bd3f88c95580d461909c01a0"
+      + "b802909c01909c01bca001a80fd4149809a80fc019840ea80fa80fb3"
+      + "010a59230a6d370a0a",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_LINESTRING, true, true,
+      GEOMETRY_FACTORY_4D.multiLineString(
+        GEOMETRY_FACTORY_4D.lineString(4, 100, 200, 3, 1.5, 110, 220, 13, 2.5),
+        GEOMETRY_FACTORY_4D.lineString(4, 400, 500, 6, 3.5, 410, 520, 16, 4.5),
+        GEOMETRY_FACTORY_4D.lineString(4, 700, 800, 9, 5.5, 710, 820, 19, 6.5,
+          720, 830, 29, 7.5)));
+  }
+
+  @Test
+  public void testMultiPoint() {
+    assertPacked("2000000000000000a0a3860180c78c02c8aa0cc0b5189c8131948c3d"
+      + "dc8131d48c3db8ab01a0b802",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POINT, false, false,
+      GEOMETRY_FACTORY_2D.multiPoint(GEOMETRY_FACTORY_2D.point(100, 200),
+        GEOMETRY_FACTORY_2D.point(400.5, 500.5),
+        GEOMETRY_FACTORY_2D.point(10, 20)));
+    assertPacked("1b00000000010000a0a3860180c78c02c8aa0cc0b5189c8131948c3d"
+      + "bca001ec04d809",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POINT, true, false,
+      GEOMETRY_FACTORY_3D.multiPoint(GEOMETRY_FACTORY_3D.point(100, 200, 3),
+        GEOMETRY_FACTORY_3D.point(400.5, 500.5, -6)));
+    assertPacked("1800000000020000a0a3860180c78c02c8aa0cc0b5189c8131948c3d"
+      + "b3014f19",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POINT, false, true,
+      GEOMETRY_FACTORY_4D.multiPoint(
+        GEOMETRY_FACTORY_4D.point(100, 200, Double.NaN, 1.5),
+        GEOMETRY_FACTORY_4D.point(400.5, 500.5, Double.NaN, 2.5)));
+    assertPacked("3000000000030000a0a3860180c78c02c8aa0cc0b5189c8131948c3d"
+      + "dc8131d48c3db8ab01a0b802bca001ec04d809980900b3014f195900",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POINT, true, true,
+      GEOMETRY_FACTORY_4D.multiPoint(
+        GEOMETRY_FACTORY_4D.point(100, 200, 3, 1.5),
+        GEOMETRY_FACTORY_4D.point(400.5, 500.5, -6, 2.5),
+        GEOMETRY_FACTORY_4D.point(10, 20, 0, 0)));
+  }
+
+  @Test
+  public void testMultiPolygon() {
+    final Polygon polygon1 = GEOMETRY_FACTORY_2D.polygon(
+      ring(GEOMETRY_FACTORY_2D, 100, 100, 200, 100, 200, 200, 100, 200, 100,
+        100),
+      ring(GEOMETRY_FACTORY_2D, 150, 150, 150, 170, 170, 170, 170, 150, 150,
+        150));
+    final Polygon polygon2 = GEOMETRY_FACTORY_2D.polygon(ring(
+      GEOMETRY_FACTORY_2D, 300, 300, 400, 300, 400, 400, 300, 300));
+    assertPacked("8801000000000000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0c908d06908d0600a0b802a0b8020000e0b802e0b80200d8b7"
+      + "12f0a71288df24a0cf24a09a0c0000a09a0ce09a0ce09a0c",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POLYGON, false, false,
+      GEOMETRY_FACTORY_2D.multiPolygon(polygon1, polygon2));
+
+    final Polygon polygonZm1 = GEOMETRY_FACTORY_4D.polygon(
+      ring(GEOMETRY_FACTORY_4D, 100, 100, 1, 0.5, 200, 100, 2, 1, 200, 200, 3,
+        1.5, 100, 200, 4, 2, 100, 100, 1, 0.5),
+      ring(GEOMETRY_FACTORY_4D, 150, 150, 5, 3, 150, 170, 6, 3.5, 170, 170, 7,
+        4, 170, 150, 8, 4.5, 150, 150, 5, 3));
+    final Polygon polygonZm2 = GEOMETRY_FACTORY_4D.polygon(ring(
+      GEOMETRY_FACTORY_4D, 300, 300, -1, -0.5, 400, 300, -2, -1, 400, 400, -3,
+      -1.5, 300, 300, -1, -0.5));
+    assertPacked("b701000000030000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0c908d06908d0600a0b802a0b8020000e0b802e0b80200d8b7"
+      + "12f0a71288df24a0cf24a09a0c0000a09a0ce09a0ce09a0cb49d01a4"
+      + "01a401a401ec049006a401a401a401ec04f407e401e401e4018803a9"
+      + "010505054f190505054f5e4545450a",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POLYGON, true, true,
+      GEOMETRY_FACTORY_4D.multiPolygon(polygonZm1, polygonZm2));
+  }
+
+  @Test
+  public void testPoint() {
+    assertPacked("080000000000000094ab8601baca8c02",
+      ArcSdeConstants.ST_GEOMETRY_POINT, false, false,
+      GEOMETRY_FACTORY_2D.point(100.5, 200.25));
+    assertPacked("0b0000000001000094ab8601baca8c02aea101",
+      ArcSdeConstants.ST_GEOMETRY_POINT, true, false,
+      GEOMETRY_FACTORY_3D.point(100.5, 200.25, 3.5));
+    assertPacked("0a0000000002000094ab8601baca8c02af02",
+      ArcSdeConstants.ST_GEOMETRY_POINT, false, true,
+      GEOMETRY_FACTORY_4D.point(100.5, 200.25, Double.NaN, 7.5));
+    assertPacked("0d0000000003000094ab8601baca8c02aea101af02",
+      ArcSdeConstants.ST_GEOMETRY_POINT, true, true,
+      GEOMETRY_FACTORY_4D.point(100.5, 200.25, 3.5, 7.5));
+  }
+
+  @Test
+  public void testPolygon() {
+    assertPacked("2e00000000000000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0c908d06908d0600a0b802a0b8020000e0b802e0b80200",
+      ArcSdeConstants.ST_GEOMETRY_POLYGON, false, false,
+      GEOMETRY_FACTORY_2D.polygon(
+        ring(GEOMETRY_FACTORY_2D, 100, 100, 200, 100, 200, 200, 100, 200, 100,
+          100),
+        ring(GEOMETRY_FACTORY_2D, 150, 150, 150, 170, 170, 170, 170, 150, 150,
+          150)));
+    assertPacked("2300000000010000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0cb49d01a401a401a401a401",
+      ArcSdeConstants.ST_GEOMETRY_POLYGON, true, false,
+      GEOMETRY_FACTORY_3D.polygon(ring(GEOMETRY_FACTORY_3D, 100, 100, 1, 200,
+        100, 2, 200, 200, 3, 100, 200, 4, 100, 100, 5)));
+  }
+
+  /**
+   * A polygon ring that doesn't close is ignored if it has less than 3
+   * vertices, otherwise the polygon or multi-polygon can't be created and null
+   * is returned.
+   */
+  @Test
+  public void testUnclosedRings() {
+    final LinearRing shell = ring(GEOMETRY_FACTORY_2D, 100, 100, 200, 100,
+      200, 200, 100, 200, 100, 100);
+    final LineString shortRing = GEOMETRY_FACTORY_2D.lineString(2, 150, 150,
+      150, 170);
+    final LineString openRing = GEOMETRY_FACTORY_2D.lineString(2, 150, 150,
+      150, 170, 170, 170, 170, 150);
+
+    final List<List<Geometry>> shortParts = new ArrayList<>();
+    shortParts.add(Arrays.<Geometry> asList(shell, shortRing));
+    assertPacked("2200000000000000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0c908d06908d0600a0b802",
+      ArcSdeConstants.ST_GEOMETRY_POLYGON, false, false,
+      GEOMETRY_FACTORY_2D.polygon(shell), GEOMETRY_FACTORY_2D, shortParts);
+
+    final List<List<Geometry>> openParts = new ArrayList<>();
+    openParts.add(Arrays.<Geometry> asList(shell, openRing));
+    assertPacked("2a00000000000000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0c908d06908d0600a0b802a0b8020000e0b802",
+      ArcSdeConstants.ST_GEOMETRY_POLYGON, false, false, null,
+      GEOMETRY_FACTORY_2D, openParts);
+
+    final List<List<Geometry>> openMultiParts = new ArrayList<>();
+    openMultiParts.add(Arrays.<Geometry> asList(shell, openRing));
+    openMultiParts.add(Collections.<Geometry> singletonList(shell));
+    assertPacked("8601000000000000a0a38601a0ac8002a09a0c0000a09a0ce09a0c00"
+      + "00e09a0c908d06908d0600a0b802a0b8020000e0b802f8ef14f0a712"
+      + "88aa0ca09a0ca09a0c0000a09a0ce09a0c0000e09a0c",
+      ArcSdeConstants.ST_GEOMETRY_MULTI_POLYGON, false, false, null,
+      GEOMETRY_FACTORY_2D, openMultiParts);
+  }
+}
@@ -0,0 +1,634 @@
+package com.revolsys.gis.postgresql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.apache.log4j.Logger;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.dao.DataAccessException;
+
+import com.revolsys.data.record.Record;
+import com.revolsys.data.record.RecordState;
+import com.revolsys.data.record.property.GlobalIdProperty;
+import com.revolsys.data.record.schema.FieldDefinition;
+import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.gis.io.StatisticsMap;
+import com.revolsys.io.AbstractRecordWriter;
+import com.revolsys.io.FileUtil;
+import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
+import com.revolsys.jdbc.attribute.JdbcFieldDefinition;
+import com.revolsys.jdbc.io.JdbcWriter;
+import com.revolsys.transaction.Transaction;
+
+/**
+ * <p>A {@link JdbcWriter} that inserts records using
+ * <code>COPY ... FROM STDIN (FORMAT binary)</code> instead of batched insert
+ * statements. The records for each table are encoded directly into the binary
+ * COPY format in memory and sent to the server when the number of records
+ * reaches the batch size or the size of the buffer reaches the flush size.</p>
+ *
+ * <p>COPY can only insert records, writing a modified or deleted record will
+ * throw an exception. Records without a primary key value are assigned one
+ * from the table's sequence, the values are fetched from the sequence in
+ * blocks of the batch size. Dates and timestamps are written as
+ * <code>date</code> and <code>timestamp without time zone</code> values in the
+ * default time zone. Values for <code>timestamp with time zone</code> columns
+ * are written in UTC.</p>
+ *
+ * <p>As with the {@link com.revolsys.jdbc.io.JdbcWriterImpl} the records are
+ * written using a single connection with auto commit off,
+ * {@link #flush()} sends the buffered records, {@link #commit()} flushes and
+ * commits and {@link #close()} flushes and commits unless there is a current
+ * transaction.</p>
+ */
+public class PostgreSQLCopyWriter extends AbstractRecordWriter implements
+JdbcWriter {
+  private static class CopyBuffer extends ByteArrayOutputStream {
+    private int recordCount;
+
+    public CopyBuffer(final int size) {
+      super(size);
+    }
+
+    public InputStream getInputStream() {
+      return new ByteArrayInputStream(this.buf, 0, this.count);
+    }
+
+    /**
+     * Discard the bytes written after the size.
+     */
+    public void truncate(final int size) {
+      if (size < this.count) {
+        this.count = size;
+      }
+    }
+  }
+
+  private static final byte[] COPY_HEADER = {
+    'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte)0xFF, '\r', '\n', 0, 0, 0, 0, 0,
+    0, 0, 0, 0
+  };
+
+  private static final Logger LOG = Logger.getLogger(PostgreSQLCopyWriter.class);
+
+  private static final long POSTGRESQL_EPOCH_MILLIS = 946684800000L;
+
+  private static final long MILLIS_PER_DAY = 86400000L;
+
+  private static final BigInteger NUMERIC_BASE = BigInteger.valueOf(10000);
+
+  private static long floorDiv(final long value, final long divisor) {
+    long result = value / divisor;
+    if (value % divisor != 0 && value < 0) {
+      result--;
+    }
+    return result;
+  }
+
+  /**
+   * JDBC reports both <code>timestamp</code> and <code>timestamptz</code>
+   * columns as {@link Types#TIMESTAMP} so the column's type name is used.
+   */
+  private static boolean isTimestampWithTimeZone(
+    final JdbcFieldDefinition field) {
+    final String typeName = field.getProperty(PostgreSQLRecordStore.COLUMN_TYPE_NAME);
+    return "timestamptz".equals(typeName);
+  }
+
+  private static long toLocalMillis(final TimeZone timeZone,
+    final java.util.Date date) {
+    final long time = date.getTime();
+    return time + timeZone.getOffset(time);
+  }
+
+  private static void writeBytes(final DataOutputStream out, final byte[] bytes)
+    throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Write a number in the PostgreSQL numeric binary format: the number of
+   * base 10000 digits, the weight of the first digit, the sign and display
+   * scale followed by the digits.
+   */
+  private static void writeNumeric(final DataOutputStream out, final Object value)
+    throws IOException {
+    BigDecimal number;
+    if (value instanceof BigDecimal) {
+      number = (BigDecimal)value;
+    } else if (value instanceof BigInteger) {
+      number = new BigDecimal((BigInteger)value);
+    } else if (value instanceof Long || value instanceof Integer
+      || value instanceof Short || value instanceof Byte) {
+      number = BigDecimal.valueOf(((Number)value).longValue());
+    } else {
+      number = new BigDecimal(value.toString());
+    }
+    if (number.scale() < 0) {
+      number = number.setScale(0);
+    }
+    final int scale = number.scale();
+    final int sign = number.signum() < 0 ? 0x4000 : 0;
+
+    // Scale the fraction up to a multiple of 4 digits and split into base 10000
+    final int fractionDigitCount = (scale + 3) / 4;
+    BigInteger unscaled = number.abs().movePointRight(fractionDigitCount * 4)
+      .toBigIntegerExact();
+    final List<Short> digits = new ArrayList<>();
+    while (unscaled.signum() > 0) {
+      final BigInteger[] divideAndRemainder = unscaled.divideAndRemainder(NUMERIC_BASE);
+      digits.add(0, divideAndRemainder[1].shortValue());
+      unscaled = divideAndRemainder[0];
+    }
+    int weight = digits.size() - fractionDigitCount - 1;
+    while (!digits.isEmpty() && digits.get(digits.size() - 1) == 0) {
+      digits.remove(digits.size() - 1);
+    }
+    if (digits.isEmpty()) {
+      weight = 0;
+    }
+    out.writeInt(8 + digits.size() * 2);
+    out.writeShort(digits.size());
+    out.writeShort(weight);
+    out.writeShort(sign);
+    out.writeShort(scale);
+    for (final Short digit : digits) {
+      out.writeShort(digit);
+    }
+  }
+
+  /**
+   * Write the value in the binary COPY format for the field's column: the
+   * length of the value in bytes (-1 for null) followed by the bytes.
+   * <code>date</code> and <code>timestamp</code> values are written in the
+   * time zone, <code>timestamptz</code> values are written in UTC.
+   */
+  static void writeValue(final DataOutputStream out,
+    final JdbcFieldDefinition field, final Object value,
+    final TimeZone timeZone) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else if (field instanceof PostgreSQLGeometryJdbcFieldDefinition) {
+      final PostgreSQLGeometryJdbcFieldDefinition geometryField = (PostgreSQLGeometryJdbcFieldDefinition)field;
+      writeBytes(out, geometryField.toEwkb(value));
+    } else {
+      final int sqlType = field.getSqlType();
+      switch (sqlType) {
+        case Types.BIT:
+        case Types.BOOLEAN: {
+          final boolean booleanValue;
+          if (value instanceof Boolean) {
+            booleanValue = (Boolean)value;
+          } else {
+            booleanValue = Boolean.parseBoolean(value.toString());
+          }
+          out.writeInt(1);
+          out.writeByte(booleanValue ? 1 : 0);
+          break;
+        }
+        case Types.TINYINT:
+        case Types.SMALLINT:
+          out.writeInt(2);
+          if (value instanceof Number) {
+            out.writeShort(((Number)value).shortValue());
+          } else {
+            out.writeShort(Short.parseShort(value.toString()));
+          }
+          break;
+        case Types.INTEGER:
+          out.writeInt(4);
+          if (value instanceof Number) {
+            out.writeInt(((Number)value).intValue());
+          } else {
+            out.writeInt(Integer.parseInt(value.toString()));
+          }
+          break;
+        case Types.BIGINT:
+          out.writeInt(8);
+          if (value instanceof Number) {
+            out.writeLong(((Number)value).longValue());
+          } else {
+            out.writeLong(Long.parseLong(value.toString()));
+          }
+          break;
+        case Types.REAL:
+          out.writeInt(4);
+          if (value instanceof Number) {
+            out.writeFloat(((Number)value).floatValue());
+          } else {
+            out.writeFloat(Float.parseFloat(value.toString()));
+          }
+          break;
+        case Types.FLOAT:
+        case Types.DOUBLE:
+          out.writeInt(8);
+          if (value instanceof Number) {
+            out.writeDouble(((Number)value).doubleValue());
+          } else {
+            out.writeDouble(Double.parseDouble(value.toString()));
+          }
+          break;
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+          writeNumeric(out, value);
+          break;
+        case Types.DATE: {
+          final java.util.Date date;
+          if (value instanceof java.util.Date) {
+            date = (java.util.Date)value;
+          } else {
+            date = java.sql.Date.valueOf(value.toString());
+          }
+          final long localMillis = toLocalMillis(timeZone, date);
+          final long days = floorDiv(localMillis - POSTGRESQL_EPOCH_MILLIS,
+            MILLIS_PER_DAY);
+          out.writeInt(4);
+          out.writeInt((int)days);
+          break;
+        }
+        case Types.TIMESTAMP: {
+          final Timestamp timestamp;
+          if (value instanceof Timestamp) {
+            timestamp = (Timestamp)value;
+          } else if (value instanceof java.util.Date) {
+            timestamp = new Timestamp(((java.util.Date)value).getTime());
+          } else {
+            timestamp = Timestamp.valueOf(value.toString());
+          }
+          final long millis;
+          if (isTimestampWithTimeZone(field)) {
+            millis = timestamp.getTime();
+          } else {
+            millis = toLocalMillis(timeZone, timestamp);
+          }
+          final long seconds = floorDiv(millis, 1000L);
+          final long micros = (seconds * 1000 - POSTGRESQL_EPOCH_MILLIS) * 1000
+            + timestamp.getNanos() / 1000;
+          out.writeInt(8);
+          out.writeLong(micros);
+          break;
+        }
+        case Types.BINARY:
+        case Types.VARBINARY:
+        case Types.LONGVARBINARY:
+          if (value instanceof byte[]) {
+            writeBytes(out, (byte[])value);
+          } else {
+            throw new IllegalArgumentException("Expecting a byte[] for "
+              + field.getName() + " not " + value.getClass());
+          }
+          break;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.LONGVARCHAR:
+        case Types.CLOB:
+          writeBytes(out, value.toString().getBytes(StandardCharsets.UTF_8));
+          break;
+        default:
+          throw new IllegalArgumentException("COPY not supported for "
+            + field.getName() + " with SQL type " + sqlType);
+      }
+    }
+  }
+
+  private int batchSize = 10000;
+
+  private JdbcConnection connection;
+
+  private CopyManager copyManager;
+
+  private int flushSize = 8 * 1024 * 1024;
+
+  private PostgreSQLRecordStore recordStore;
+
+  private StatisticsMap statistics;
+
+  private boolean throwExceptions = false;
+
+  private final TimeZone timeZone = TimeZone.getDefault();
+
+  private Map<String, CopyBuffer> typeBufferMap = new LinkedHashMap<>();
+
+  private final Map<String, Integer> typeCountMap = new LinkedHashMap<>();
+
+  private final Map<String, LinkedList<Object>> typeIdsMap = new LinkedHashMap<>();
+
+  private final Map<String, String> typeSqlMap = new LinkedHashMap<>();
+
+  public PostgreSQLCopyWriter(final PostgreSQLRecordStore recordStore) {
+    this(recordStore, recordStore.getStatistics());
+  }
+
+  public PostgreSQLCopyWriter(final PostgreSQLRecordStore recordStore,
+    final StatisticsMap statistics) {
+    this.recordStore = recordStore;
+    this.statistics = statistics;
+    this.connection = recordStore.getJdbcConnection();
+    try {
+      final DataSource dataSource = this.connection.getDataSource();
+      if (dataSource != null) {
+        this.connection.setAutoCommit(false);
+      }
+      final PGConnection pgConnection = this.connection.unwrap(PGConnection.class);
+      this.copyManager = pgConnection.getCopyAPI();
+    } catch (final SQLException e) {
+      FileUtil.closeSilent(this.connection);
+      throw new RuntimeException("Unable to create connection", e);
+    }
+    statistics.connect();
+  }
+
+  @Override
+  @PreDestroy
+  public void close() {
+    flush();
+    doClose();
+  }
+
+  public synchronized void commit() {
+    flush();
+    JdbcUtils.commit(this.connection);
+  }
+
+  protected synchronized void doClose() {
+    if (this.recordStore != null) {
+      try {
+        if (this.statistics != null) {
+          this.statistics.disconnect();
+          this.statistics = null;
+        }
+      } finally {
+        this.typeBufferMap = null;
+        this.recordStore = null;
+        this.copyManager = null;
+        if (this.connection != null) {
+          final DataSource dataSource = this.connection.getDataSource();
+          try {
+            if (dataSource != null && !Transaction.isHasCurrentTransaction()) {
+              this.connection.commit();
+            }
+          } catch (final SQLException e) {
+            throw new RuntimeException("Failed to commit data:", e);
+          } finally {
+            FileUtil.closeSilent(this.connection);
+            this.connection = null;
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void flush() {
+    if (this.typeBufferMap != null) {
+      for (final Entry<String, CopyBuffer> entry : this.typeBufferMap.entrySet()) {
+        final String typePath = entry.getKey();
+        final CopyBuffer buffer = entry.getValue();
+        try {
+          flush(typePath, buffer);
+        } catch (final DataAccessException e) {
+          if (this.throwExceptions) {
+            throw e;
+          } else {
+            LOG.error("Error writing to database", e);
+          }
+        }
+      }
+    }
+  }
+
+  private void flush(final String typePath, final CopyBuffer buffer) {
+    final int recordCount = buffer.recordCount;
+    if (recordCount > 0) {
+      final String sql = this.typeSqlMap.get(typePath);
+      try {
+        buffer.write(0xFF);
+        buffer.write(0xFF);
+        this.copyManager.copyIn(sql, buffer.getInputStream());
+        Integer typeCount = this.typeCountMap.get(typePath);
+        if (typeCount == null) {
+          typeCount = recordCount;
+        } else {
+          typeCount += recordCount;
+        }
+        this.typeCountMap.put(typePath, typeCount);
+      } catch (final SQLException e) {
+        throw this.connection.getException("Copy", sql, e);
+      } catch (final IOException e) {
+        throw new RuntimeException("Unable to copy records: " + sql, e);
+      } finally {
+        buffer.reset();
+        buffer.recordCount = 0;
+      }
+    }
+  }
+
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  private CopyBuffer getBuffer(final String typePath,
+    final RecordDefinition recordDefinition) {
+    CopyBuffer buffer = this.typeBufferMap.get(typePath);
+    if (buffer == null) {
+      buffer = new CopyBuffer(Math.min(this.flushSize, 1024 * 1024));
+      this.typeBufferMap.put(typePath, buffer);
+      this.typeSqlMap.put(typePath, getCopySql(recordDefinition));
+    }
+    if (buffer.recordCount == 0) {
+      buffer.reset();
+      buffer.write(COPY_HEADER, 0, COPY_HEADER.length);
+    }
+    return buffer;
+  }
+
+  private String getCopySql(final RecordDefinition recordDefinition) {
+    final String typePath = recordDefinition.getPath();
+    final StringBuilder sql = new StringBuilder("COPY ");
+    sql.append(JdbcUtils.getQualifiedTableName(typePath));
+    sql.append(" (");
+    boolean first = true;
+    for (final FieldDefinition field : recordDefinition.getFields()) {
+      if (first) {
+        first = false;
+      } else {
+        sql.append(", ");
+      }
+      final JdbcFieldDefinition jdbcField = (JdbcFieldDefinition)field;
+      sql.append('"').append(jdbcField.getDbName()).append('"');
+    }
+    sql.append(") FROM STDIN (FORMAT binary)");
+    return sql.toString();
+  }
+
+  /**
+   * @return The maximum number of bytes buffered for a table before the
+   * records are sent to the server.
+   */
+  public int getFlushSize() {
+    return this.flushSize;
+  }
+
+  private Object getNextId(final String typePath,
+    final RecordDefinition recordDefinition) throws SQLException {
+    LinkedList<Object> ids = this.typeIdsMap.get(typePath);
+    if (ids == null) {
+      ids = new LinkedList<>();
+      this.typeIdsMap.put(typePath, ids);
+    }
+    if (ids.isEmpty()) {
+      final String sequenceName = this.recordStore.getSequenceName(recordDefinition);
+      final String sql = "SELECT nextval(?) FROM generate_series(1, ?)";
+      final List<Object> newIds = JdbcUtils.selectList(this.connection, sql, 1,
+        sequenceName, Math.max(1, this.batchSize));
+      ids.addAll(newIds);
+    }
+    return ids.removeFirst();
+  }
+
+  private RecordDefinition getRecordDefinition(final String typePath) {
+    if (this.recordStore == null) {
+      return null;
+    } else {
+      return this.recordStore.getRecordDefinition(typePath);
+    }
+  }
+
+  /**
+   * @return The number of records written to each table.
+   */
+  public Map<String, Integer> getTypeCounts() {
+    return this.typeCountMap;
+  }
+
+  private void insert(final Record object) throws SQLException, IOException {
+    final RecordDefinition objectType = object.getRecordDefinition();
+    final String typePath = objectType.getPath();
+    final RecordDefinition recordDefinition = getRecordDefinition(typePath);
+
+    final GlobalIdProperty globalIdProperty = GlobalIdProperty.getProperty(object);
+    if (globalIdProperty != null) {
+      if (object.getValue(globalIdProperty.getFieldName()) == null) {
+        object.setValue(globalIdProperty.getFieldName(), UUID.randomUUID()
+          .toString());
+      }
+    }
+    final String idFieldName = recordDefinition.getIdFieldName();
+    if (idFieldName != null && object.getValue(idFieldName) == null) {
+      final Object id = getNextId(typePath, recordDefinition);
+      object.setValue(idFieldName, id);
+    }
+
+    final CopyBuffer buffer = getBuffer(typePath, recordDefinition);
+    final int size = buffer.size();
+    try {
+      final DataOutputStream out = new DataOutputStream(buffer);
+      final List<FieldDefinition> fields = recordDefinition.getFields();
+      out.writeShort(fields.size());
+      for (final FieldDefinition field : fields) {
+        final String name = field.getName();
+        final Object value = object.getValue(name);
+        writeValue(out, (JdbcFieldDefinition)field, value, this.timeZone);
+      }
+    } catch (final IOException | RuntimeException e) {
+      // Remove the partial tuple so it isn't sent with the other records
+      buffer.truncate(size);
+      throw e;
+    }
+    buffer.recordCount++;
+
+    object.setState(RecordState.Persisted);
+    this.recordStore.addStatistic("Insert", object);
+    if (buffer.recordCount >= this.batchSize || buffer.size() >= this.flushSize) {
+      flush(typePath, buffer);
+    }
+  }
+
+  public boolean isThrowExceptions() {
+    return this.throwExceptions;
+  }
+
+  /**
+   * @param batchSize The maximum number of records buffered for a table
+   * before the records are sent to the server.
+   */
+  public void setBatchSize(final int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  public void setFlushSize(final int flushSize) {
+    this.flushSize = flushSize;
+  }
+
+  public void setThrowExceptions(final boolean throwExceptions) {
+    this.throwExceptions = throwExceptions;
+  }
+
+  @Override
+  public String toString() {
+    if (this.recordStore == null) {
+      return super.toString();
+    } else {
+      return this.recordStore.toString() + " copy writer";
+    }
+  }
+
+  @Override
+  public synchronized void write(final Record object) {
+    try {
+      final RecordDefinition recordDefinition = object.getRecordDefinition();
+      final RecordStore recordStore = recordDefinition.getRecordStore();
+      final RecordState state = object.getState();
+      if (recordStore != this.recordStore) {
+        if (state != RecordState.Deleted) {
+          insert(object);
+        }
+      } else {
+        switch (state) {
+          case New:
+            insert(object);
+            break;
+          case Persisted:
+            // No action required
+            break;
+          case Modified:
+          case Deleted:
+            throw new IllegalArgumentException(
+              "COPY can only insert new records not " + state + " records");
+          default:
+            throw new IllegalStateException("State not known");
+        }
+      }
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Error e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new RuntimeException("Unable to write", e);
+    }
+  }
+}
@@ -3,6 +3,7 @@ package com.revolsys.gis.postgresql;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.Map;
 
 import org.postgresql.geometric.PGbox;
@@ -11,6 +12,8 @@ import com.revolsys.data.record.Record;
 import com.revolsys.data.record.property.FieldProperties;
 import com.revolsys.data.types.DataType;
 import com.revolsys.data.types.DataTypes;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbReader;
+import com.revolsys.gis.postgresql.type.PostgreSQLEwkbWriter;
 import com.revolsys.gis.postgresql.type.PostgreSQLGeometryWrapper;
 import com.revolsys.jdbc.attribute.JdbcFieldDefinition;
 import com.revolsys.jts.geom.BoundingBox;
@@ -39,6 +42,30 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     this.axisCount = axisCount;
   }
 
+  /**
+   * Select the geometry as EWKB so the driver returns the bytes instead of
+   * the hex encoded text.
+   */
+  @Override
+  public void addColumnName(final StringBuilder sql, final String tablePrefix) {
+    sql.append("ST_AsEWKB(");
+    super.addColumnName(sql, tablePrefix);
+    sql.append(") AS ");
+    if (isQuoteName()) {
+      sql.append('"');
+    }
+    sql.append(getDbName());
+    if (isQuoteName()) {
+      sql.append('"');
+    }
+  }
+
+  @Override
+  public void addInsertStatementPlaceHolder(final StringBuilder sql,
+    final boolean generateKeys) {
+    sql.append("ST_GeomFromEWKB(?)");
+  }
+
   @Override
   public JdbcFieldDefinition clone() {
     return new PostgreSQLGeometryJdbcFieldDefinition(getDbName(), getName(), getType(),
@@ -69,29 +96,38 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     }
   }
 
+  private Geometry getInsertUpdateGeometry(Geometry geometry) {
+    geometry = geometry.convert(this.geometryFactory);
+    if (geometry.isEmpty()) {
+      return geometry;
+    } else {
+      final DataType type = getType();
+      if (type == DataTypes.POINT) {
+        return getGeometry(geometry, Point.class);
+      } else if (type == DataTypes.LINE_STRING) {
+        return getGeometry(geometry, LineString.class);
+      } else if (type == DataTypes.POLYGON) {
+        return getGeometry(geometry, Polygon.class);
+      } else if (type == DataTypes.MULTI_POINT) {
+        return this.geometryFactory.multiPoint(geometry);
+      } else if (type == DataTypes.MULTI_LINE_STRING) {
+        return this.geometryFactory.multiLineString(geometry);
+      } else if (type == DataTypes.MULTI_POLYGON) {
+        return this.geometryFactory.multiPolygon(geometry);
+      } else {
+        return geometry;
+      }
+    }
+  }
+
   public Object getInsertUpdateValue(final Object object) throws SQLException {
     if (object == null) {
       return null;
     } else if (object instanceof Geometry) {
-      Geometry geometry = (Geometry)object;
-      geometry = geometry.convert(this.geometryFactory);
+      final Geometry geometry = getInsertUpdateGeometry((Geometry)object);
       if (geometry.isEmpty()) {
         return geometry;
       } else {
-        final DataType type = getType();
-        if (type == DataTypes.POINT) {
-          geometry = getGeometry(geometry, Point.class);
-        } else if (type == DataTypes.LINE_STRING) {
-          geometry = getGeometry(geometry, LineString.class);
-        } else if (type == DataTypes.POLYGON) {
-          geometry = getGeometry(geometry, Polygon.class);
-        } else if (type == DataTypes.MULTI_POINT) {
-          geometry = this.geometryFactory.multiPoint(geometry);
-        } else if (type == DataTypes.MULTI_LINE_STRING) {
-          geometry = this.geometryFactory.multiLineString(geometry);
-        } else if (type == DataTypes.MULTI_POLYGON) {
-          geometry = this.geometryFactory.multiPolygon(geometry);
-        }
         return new PostgreSQLGeometryWrapper(geometry);
       }
     } else {
@@ -102,8 +138,8 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   @Override
   public int setFieldValueFromResultSet(final ResultSet resultSet, final int columnIndex,
     final Record object) throws SQLException {
-    final Object oracleValue = resultSet.getObject(columnIndex);
-    final Object value = toJava(oracleValue);
+    final Object databaseValue = resultSet.getObject(columnIndex);
+    final Object value = toJava(databaseValue);
     object.setValue(getIndex(), value);
     return columnIndex + 1;
   }
@@ -113,11 +149,31 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
     final int parameterIndex, final Record object) throws SQLException {
     final String name = getName();
     final Object value = object.getValue(name);
-    final Object jdbcValue = getInsertUpdateValue(value);
-    statement.setObject(parameterIndex, jdbcValue);
+    final byte[] bytes = toEwkb(value);
+    if (bytes == null) {
+      statement.setNull(parameterIndex, Types.BINARY);
+    } else {
+      statement.setBytes(parameterIndex, bytes);
+    }
     return parameterIndex + 1;
   }
 
+  /**
+   * Convert the geometry to the geometry factory and type of the column and
+   * return the EWKB bytes.
+   */
+  public byte[] toEwkb(final Object value) {
+    if (value == null) {
+      return null;
+    } else if (value instanceof Geometry) {
+      final Geometry geometry = getInsertUpdateGeometry((Geometry)value);
+      return PostgreSQLEwkbWriter.toBytes(geometry);
+    } else {
+      throw new IllegalArgumentException("Expecting a geometry not "
+        + value.getClass());
+    }
+  }
+
   @Override
   public int setPreparedStatementValue(final PreparedStatement statement, final int parameterIndex,
     final Object value) throws SQLException {
@@ -127,7 +183,10 @@ public class PostgreSQLGeometryJdbcFieldDefinition extends JdbcFieldDefinition {
   }
 
   public Object toJava(final Object object) throws SQLException {
-    if (object instanceof PostgreSQLGeometryWrapper) {
+    if (object instanceof byte[]) {
+      final byte[] bytes = (byte[])object;
+      return PostgreSQLEwkbReader.read(bytes);
+    } else if (object instanceof PostgreSQLGeometryWrapper) {
       final PostgreSQLGeometryWrapper geometryType = (PostgreSQLGeometryWrapper)object;
       return geometryType.getGeometry();
     } else {
@@ -1,8 +1,10 @@
 package com.revolsys.gis.postgresql;
 
+import java.sql.SQLException;
 import java.util.Map;
 
 import com.revolsys.data.query.Query;
+import com.revolsys.jdbc.JdbcConnection;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcRecordStore;
 
@@ -27,4 +29,14 @@ public class PostgreSQLJdbcQueryIterator extends JdbcQueryIterator {
     return sql;
   }
 
+  /**
+   * The PostgreSQL driver only uses a cursor to fetch the rows in batches if
+   * the connection isn't in auto commit mode.
+   */
+  @Override
+  protected boolean isFetchInBatches(final JdbcConnection connection)
+    throws SQLException {
+    return !connection.getAutoCommit();
+  }
+
 }
@@ -13,6 +13,7 @@ import com.revolsys.data.record.RecordFactory;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.jdbc.JdbcConnection;
+import com.revolsys.jdbc.JdbcUtils;
 import com.revolsys.jdbc.io.JdbcQueryIterator;
 import com.revolsys.jdbc.io.JdbcQueryResultPager;
 import com.revolsys.jdbc.io.JdbcRecordStore;
@@ -36,10 +37,13 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
         final int pageSize = getPageSize();
         final int pageNumber = getPageNumber();
         if (pageNumber != -1) {
-          String sql = getSql();
-
-          final int startRowNum = (pageNumber - 1) * pageSize;
-          sql = getSql() + " OFFSET " + startRowNum + " LIMIT " + pageSize;
+          final Query pageQuery = getPageQuery();
+          String sql = JdbcUtils.getSelectSql(pageQuery);
+          final int offset = pageQuery.getOffset();
+          if (offset > 0) {
+            sql += " OFFSET " + offset;
+          }
+          sql += " LIMIT " + pageSize;
 
           final RecordDefinition recordDefinition = getRecordDefinition();
           if (recordDefinition != null) {
@@ -52,7 +56,7 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
               try (
                   final PreparedStatement statement = connection.prepareStatement(sql);
                   final ResultSet resultSet = JdbcQueryIterator.getResultSet(
-                    recordDefinition, statement, getQuery());) {
+                    recordDefinition, statement, pageQuery);) {
                 if (resultSet.next()) {
                   int i = 0;
                   do {
@@ -70,6 +74,7 @@ public class PostgreSQLJdbcQueryResultPager extends JdbcQueryResultPager {
           }
         }
         this.results = results;
+        setPageRecords(results);
       }
       return this.results;
     }
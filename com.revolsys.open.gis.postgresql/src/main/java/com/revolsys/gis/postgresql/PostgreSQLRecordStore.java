@@ -40,6 +40,9 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     return new PostgreSQLJdbcQueryIterator(recordStore, query, properties);
   }
 
+  /** The field property with the PostgreSQL type name of the column. */
+  public static final String COLUMN_TYPE_NAME = "columnTypeName";
+
   public static final List<String> POSTGRESQL_INTERNAL_SCHEMAS = Arrays.asList(
     "information_schema", "pg_catalog", "pg_toast_temp_1");
 
@@ -82,6 +85,7 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     if (!dbColumnName.matches("[a-z_]")) {
       attribute.setQuoteName(true);
     }
+    attribute.setProperty(COLUMN_TYPE_NAME, dataType);
     return attribute;
   }
 
@@ -108,6 +112,14 @@ public class PostgreSQLRecordStore extends AbstractJdbcRecordStore {
     }
   }
 
+  /**
+   * Create a writer that inserts the records using COPY instead of batched
+   * insert statements.
+   */
+  public PostgreSQLCopyWriter createCopyWriter() {
+    return new PostgreSQLCopyWriter(this);
+  }
+
   @Override
   public String getGeneratePrimaryKeySql(final RecordDefinition recordDefinition) {
     final String sequenceName = getSequenceName(recordDefinition);
@@ -0,0 +1,178 @@
+package com.revolsys.gis.postgresql.type;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * Read a geometry from the PostGIS extended well known binary (EWKB) bytes
+ * returned by <code>ST_AsEWKB</code>. The coordinates are read directly from the
+ * bytes into the <code>double[]</code> used to create each line string or ring.
+ */
+public class PostgreSQLEwkbReader {
+  private static final int WKB_M = 0x40000000;
+
+  private static final int WKB_SRID = 0x20000000;
+
+  private static final int WKB_Z = 0x80000000;
+
+  public static Geometry read(final byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    } else {
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      return readGeometry(buffer, 0);
+    }
+  }
+
+  private static double[] readCoordinates(final ByteBuffer buffer,
+    final int axisCount, final boolean hasZ, final boolean hasM) {
+    final int vertexCount = buffer.getInt();
+    final double[] coordinates = new double[axisCount * vertexCount];
+    int storedAxisCount = 2;
+    if (hasZ) {
+      storedAxisCount++;
+    }
+    if (hasM) {
+      storedAxisCount++;
+    }
+    if (storedAxisCount == axisCount) {
+      final int position = buffer.position();
+      buffer.asDoubleBuffer().get(coordinates);
+      buffer.position(position + coordinates.length * 8);
+    } else {
+      int coordinateIndex = 0;
+      for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+        coordinates[coordinateIndex++] = buffer.getDouble();
+        coordinates[coordinateIndex++] = buffer.getDouble();
+        if (hasZ) {
+          coordinates[coordinateIndex++] = buffer.getDouble();
+        } else {
+          coordinates[coordinateIndex++] = Double.NaN;
+        }
+        if (hasM) {
+          coordinates[coordinateIndex++] = buffer.getDouble();
+        }
+      }
+    }
+    return coordinates;
+  }
+
+  private static Geometry readGeometry(final ByteBuffer buffer,
+    final int parentSrid) {
+    final byte byteOrder = buffer.get();
+    if (byteOrder == 0) {
+      buffer.order(ByteOrder.BIG_ENDIAN);
+    } else if (byteOrder == 1) {
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+    } else {
+      throw new IllegalArgumentException("Unknown Endian type:" + byteOrder);
+    }
+    final int typeWord = buffer.getInt();
+    final int geometryType = typeWord & 0x1FFFFFFF;
+    final boolean hasZ = (typeWord & WKB_Z) != 0;
+    final boolean hasM = (typeWord & WKB_M) != 0;
+
+    int srid = parentSrid;
+    if ((typeWord & WKB_SRID) != 0) {
+      srid = buffer.getInt();
+    }
+    final int axisCount;
+    if (hasM) {
+      axisCount = 4;
+    } else if (hasZ) {
+      axisCount = 3;
+    } else {
+      axisCount = 2;
+    }
+    final GeometryFactory geometryFactory = GeometryFactory.floating(srid,
+      axisCount);
+
+    switch (geometryType) {
+      case 1:
+        return readPoint(geometryFactory, buffer, hasZ, hasM);
+      case 2: {
+        final double[] coordinates = readCoordinates(buffer, axisCount, hasZ,
+          hasM);
+        return geometryFactory.lineString(axisCount, coordinates);
+      }
+      case 3:
+        return readPolygon(geometryFactory, buffer, hasZ, hasM);
+      case 4: {
+        final Point[] points = new Point[buffer.getInt()];
+        readGeometries(buffer, srid, points);
+        return geometryFactory.multiPoint(points);
+      }
+      case 5: {
+        final LineString[] lines = new LineString[buffer.getInt()];
+        readGeometries(buffer, srid, lines);
+        return geometryFactory.multiLineString(lines);
+      }
+      case 6: {
+        final Polygon[] polygons = new Polygon[buffer.getInt()];
+        readGeometries(buffer, srid, polygons);
+        return geometryFactory.multiPolygon(polygons);
+      }
+      case 7: {
+        final Geometry[] geometries = new Geometry[buffer.getInt()];
+        readGeometries(buffer, srid, geometries);
+        return geometryFactory.geometryCollection(geometries);
+      }
+      default:
+        throw new IllegalArgumentException("Unknown Geometry Type: "
+            + geometryType);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <G extends Geometry> void readGeometries(
+    final ByteBuffer buffer, final int srid, final G[] geometries) {
+    for (int i = 0; i < geometries.length; i++) {
+      geometries[i] = (G)readGeometry(buffer, srid);
+    }
+  }
+
+  private static Point readPoint(final GeometryFactory geometryFactory,
+    final ByteBuffer buffer, final boolean hasZ, final boolean hasM) {
+    final double x = buffer.getDouble();
+    final double y = buffer.getDouble();
+    if (hasM) {
+      double z = Double.NaN;
+      if (hasZ) {
+        z = buffer.getDouble();
+      }
+      final double m = buffer.getDouble();
+      return geometryFactory.point(x, y, z, m);
+    } else if (hasZ) {
+      final double z = buffer.getDouble();
+      return geometryFactory.point(x, y, z);
+    } else if (Double.isNaN(x) && Double.isNaN(y)) {
+      return geometryFactory.point();
+    } else {
+      return geometryFactory.point(x, y);
+    }
+  }
+
+  private static Polygon readPolygon(final GeometryFactory geometryFactory,
+    final ByteBuffer buffer, final boolean hasZ, final boolean hasM) {
+    final int axisCount = geometryFactory.getAxisCount();
+    final int ringCount = buffer.getInt();
+    if (ringCount == 0) {
+      return geometryFactory.polygon();
+    } else {
+      final LinearRing[] rings = new LinearRing[ringCount];
+      for (int i = 0; i < ringCount; i++) {
+        final double[] coordinates = readCoordinates(buffer, axisCount, hasZ,
+          hasM);
+        rings[i] = geometryFactory.linearRing(axisCount, coordinates);
+      }
+      return geometryFactory.polygon(rings);
+    }
+  }
+}
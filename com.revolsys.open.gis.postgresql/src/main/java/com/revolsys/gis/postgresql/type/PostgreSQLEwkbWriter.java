@@ -0,0 +1,151 @@
+package com.revolsys.gis.postgresql.type;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryCollection;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.MultiLineString;
+import com.revolsys.jts.geom.MultiPoint;
+import com.revolsys.jts.geom.MultiPolygon;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * Write a geometry as the little endian PostGIS extended well known binary
+ * (EWKB) bytes accepted by <code>ST_GeomFromEWKB</code>. The size of the
+ * geometry is calculated first so the bytes are written into a single array.
+ */
+public class PostgreSQLEwkbWriter {
+  private static final int WKB_M = 0x40000000;
+
+  private static final int WKB_SRID = 0x20000000;
+
+  private static final int WKB_Z = 0x80000000;
+
+  private static int getAxisCount(final Geometry geometry) {
+    return Math.min(4, Math.max(2, geometry.getAxisCount()));
+  }
+
+  private static int getGeometryType(final Geometry geometry) {
+    if (geometry instanceof Point) {
+      return 1;
+    } else if (geometry instanceof LineString) {
+      return 2;
+    } else if (geometry instanceof Polygon) {
+      return 3;
+    } else if (geometry instanceof MultiPoint) {
+      return 4;
+    } else if (geometry instanceof MultiLineString) {
+      return 5;
+    } else if (geometry instanceof MultiPolygon) {
+      return 6;
+    } else if (geometry instanceof GeometryCollection) {
+      return 7;
+    } else {
+      throw new IllegalArgumentException("Unsupported geometry type "
+          + geometry.getClass());
+    }
+  }
+
+  private static int getSize(final Geometry geometry, final int axisCount,
+    final boolean includeSrid) {
+    int size = 5;
+    if (includeSrid) {
+      size += 4;
+    }
+    final int coordinateSize = axisCount * 8;
+    if (geometry instanceof Point) {
+      size += coordinateSize;
+    } else if (geometry instanceof LineString) {
+      final LineString line = (LineString)geometry;
+      size += 4 + line.getVertexCount() * coordinateSize;
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      size += 4;
+      for (int i = 0; i < polygon.getRingCount(); i++) {
+        final LineString ring = polygon.getRing(i);
+        size += 4 + ring.getVertexCount() * coordinateSize;
+      }
+    } else {
+      size += 4;
+      for (int i = 0; i < geometry.getGeometryCount(); i++) {
+        final Geometry part = geometry.getGeometry(i);
+        size += getSize(part, axisCount, false);
+      }
+    }
+    return size;
+  }
+
+  private static void writeCoordinates(final ByteBuffer buffer,
+    final LineString line, final int axisCount) {
+    final int vertexCount = line.getVertexCount();
+    buffer.putInt(vertexCount);
+    for (int vertexIndex = 0; vertexIndex < vertexCount; vertexIndex++) {
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        buffer.putDouble(line.getCoordinate(vertexIndex, axisIndex));
+      }
+    }
+  }
+
+  private static void writeGeometry(final ByteBuffer buffer,
+    final Geometry geometry, final int axisCount, final int srid) {
+    buffer.put((byte)1);
+    int typeWord = getGeometryType(geometry);
+    if (axisCount > 2) {
+      typeWord |= WKB_Z;
+    }
+    if (axisCount > 3) {
+      typeWord |= WKB_M;
+    }
+    if (srid > 0) {
+      typeWord |= WKB_SRID;
+    }
+    buffer.putInt(typeWord);
+    if (srid > 0) {
+      buffer.putInt(srid);
+    }
+    if (geometry instanceof Point) {
+      final Point point = (Point)geometry;
+      for (int axisIndex = 0; axisIndex < axisCount; axisIndex++) {
+        if (point.isEmpty()) {
+          buffer.putDouble(Double.NaN);
+        } else {
+          buffer.putDouble(point.getCoordinate(axisIndex));
+        }
+      }
+    } else if (geometry instanceof LineString) {
+      writeCoordinates(buffer, (LineString)geometry, axisCount);
+    } else if (geometry instanceof Polygon) {
+      final Polygon polygon = (Polygon)geometry;
+      final int ringCount = polygon.getRingCount();
+      buffer.putInt(ringCount);
+      for (int i = 0; i < ringCount; i++) {
+        writeCoordinates(buffer, polygon.getRing(i), axisCount);
+      }
+    } else {
+      final int geometryCount = geometry.getGeometryCount();
+      buffer.putInt(geometryCount);
+      for (int i = 0; i < geometryCount; i++) {
+        final Geometry part = geometry.getGeometry(i);
+        writeGeometry(buffer, part, axisCount, 0);
+      }
+    }
+  }
+
+  public static byte[] toBytes(final Geometry geometry) {
+    if (geometry == null) {
+      return null;
+    } else {
+      final int axisCount = getAxisCount(geometry);
+      final int srid = geometry.getSrid();
+      final int size = getSize(geometry, axisCount, srid > 0);
+      final byte[] bytes = new byte[size];
+      final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      writeGeometry(buffer, geometry, axisCount, srid);
+      return bytes;
+    }
+  }
+}
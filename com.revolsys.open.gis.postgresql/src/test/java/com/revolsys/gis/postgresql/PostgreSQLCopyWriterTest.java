@@ -0,0 +1,135 @@
+package com.revolsys.gis.postgresql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TimeZone;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.types.DataType;
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.jdbc.attribute.JdbcFieldDefinition;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.Point;
+
+/**
+ * Check the bytes written for each field type in the binary COPY format. A
+ * server isn't required.
+ */
+public class PostgreSQLCopyWriterTest {
+  private static final TimeZone GMT_MINUS_8 = TimeZone.getTimeZone("GMT-8");
+
+  private static byte[] bytes(final long... values) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    for (int i = 0; i < values.length; i += 2) {
+      if (values[i] == 4) {
+        out.writeInt((int)values[i + 1]);
+      } else {
+        out.writeLong(values[i + 1]);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static JdbcFieldDefinition field(final DataType type,
+    final int sqlType, final Map<String, Object> properties) {
+    return new JdbcFieldDefinition("VALUE", "VALUE", type, sqlType, 0, 0,
+      false, null, properties);
+  }
+
+  private static byte[] write(final JdbcFieldDefinition field,
+    final Object value) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+    PostgreSQLCopyWriter.writeValue(out, field, value, GMT_MINUS_8);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testDouble() throws IOException {
+    final JdbcFieldDefinition field = field(DataTypes.DOUBLE, Types.DOUBLE,
+      null);
+    Assert.assertArrayEquals(
+      bytes(4, 8, 8, Double.doubleToLongBits(-12.5)), write(field, -12.5));
+    Assert.assertArrayEquals(bytes(4, 8, 8, Double.doubleToLongBits(3)),
+      write(field, 3));
+  }
+
+  @Test
+  public void testGeometry() throws IOException {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(4326, 2);
+    final PostgreSQLGeometryJdbcFieldDefinition field = new PostgreSQLGeometryJdbcFieldDefinition(
+      "GEOMETRY", "GEOMETRY", DataTypes.POINT, false, null, null, 4326, 2,
+      geometryFactory);
+    final Point point = geometryFactory.point(-123.5, 49.25);
+
+    // Big endian COPY length, then little endian EWKB with the SRID flag
+    final ByteBuffer ewkb = ByteBuffer.allocate(4 + 25);
+    ewkb.putInt(25);
+    ewkb.order(ByteOrder.LITTLE_ENDIAN);
+    ewkb.put((byte)1);
+    ewkb.putInt(0x20000001);
+    ewkb.putInt(4326);
+    ewkb.putDouble(-123.5);
+    ewkb.putDouble(49.25);
+    Assert.assertArrayEquals(ewkb.array(), write(field, point));
+  }
+
+  @Test
+  public void testInteger() throws IOException {
+    final JdbcFieldDefinition field = field(DataTypes.INT, Types.INTEGER, null);
+    Assert.assertArrayEquals(bytes(4, 4, 4, 42), write(field, 42));
+    Assert.assertArrayEquals(bytes(4, 4, 4, -1), write(field, -1L));
+  }
+
+  @Test
+  public void testNull() throws IOException {
+    Assert.assertArrayEquals(bytes(4, -1),
+      write(field(DataTypes.INT, Types.INTEGER, null), null));
+    Assert.assertArrayEquals(bytes(4, -1),
+      write(field(DataTypes.STRING, Types.VARCHAR, null), null));
+  }
+
+  @Test
+  public void testText() throws IOException {
+    final JdbcFieldDefinition field = field(DataTypes.STRING, Types.VARCHAR,
+      null);
+    Assert.assertArrayEquals(new byte[] {
+      0, 0, 0, 4, 'a', (byte)0xC3, (byte)0xA9, 'b'
+    }, write(field, "aéb"));
+    Assert.assertArrayEquals(bytes(4, 0), write(field, ""));
+  }
+
+  /**
+   * A <code>timestamp</code> is written as the wall clock time in the time
+   * zone, a <code>timestamptz</code> as the instant in UTC.
+   */
+  @Test
+  public void testTimestamp() throws IOException {
+    // 2000-01-02 00:00:00.000123 UTC, 2000-01-01 16:00:00.000123 in GMT-8
+    final Timestamp timestamp = new Timestamp(946684800000L + 86400000L);
+    timestamp.setNanos(123000);
+
+    final JdbcFieldDefinition localField = field(DataTypes.DATE_TIME,
+      Types.TIMESTAMP, null);
+    Assert.assertArrayEquals(bytes(4, 8, 8, 57600000000L + 123),
+      write(localField, timestamp));
+
+    final Map<String, Object> properties = Collections.<String, Object> singletonMap(
+      PostgreSQLRecordStore.COLUMN_TYPE_NAME, "timestamptz");
+    final JdbcFieldDefinition utcField = field(DataTypes.DATE_TIME,
+      Types.TIMESTAMP, properties);
+    Assert.assertArrayEquals(bytes(4, 8, 8, 86400000000L + 123),
+      write(utcField, timestamp));
+  }
+}
@@ -0,0 +1,77 @@
+package com.revolsys.gis.postgresql.type;
+
+import java.sql.SQLException;
+
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.Polygon;
+import com.revolsys.util.Hex;
+
+/**
+ * Compare the time to read and write large polygons using the hex encoded
+ * text returned for a geometry column and the EWKB bytes returned by
+ * <code>ST_AsEWKB</code>.
+ */
+public class PostgreSQLEwkbBenchmark {
+  private static final int ITERATIONS = 20;
+
+  private static Polygon createPolygon(final int vertexCount) {
+    final GeometryFactory geometryFactory = GeometryFactory.floating(3005, 3);
+    final double[] coordinates = new double[vertexCount * 3];
+    for (int i = 0; i < vertexCount - 1; i++) {
+      final double angle = 2 * Math.PI * i / (vertexCount - 1);
+      coordinates[i * 3] = 1000000 + 1000 * Math.cos(angle);
+      coordinates[i * 3 + 1] = 500000 + 1000 * Math.sin(angle);
+      coordinates[i * 3 + 2] = i;
+    }
+    System.arraycopy(coordinates, 0, coordinates, (vertexCount - 1) * 3, 3);
+    final LinearRing ring = geometryFactory.linearRing(3, coordinates);
+    return geometryFactory.polygon(ring);
+  }
+
+  public static void main(final String[] args) throws SQLException {
+    final Polygon polygon = createPolygon(100000);
+    final byte[] bytes = PostgreSQLEwkbWriter.toBytes(polygon);
+    final String hex = "SRID=" + polygon.getSrid() + ";"
+      + Hex.toHex(bytes).toUpperCase();
+
+    final PostgreSQLGeometryWrapper wrapper = new PostgreSQLGeometryWrapper();
+    wrapper.setValue(hex);
+    if (!polygon.equalsExact(wrapper.getGeometry())) {
+      throw new IllegalStateException("Hex text geometry not equal");
+    }
+    if (!polygon.equalsExact(PostgreSQLEwkbReader.read(bytes))) {
+      throw new IllegalStateException("EWKB geometry not equal");
+    }
+
+    long time = System.currentTimeMillis();
+    for (int i = 0; i < ITERATIONS; i++) {
+      wrapper.setValue(hex);
+      wrapper.getGeometry();
+    }
+    System.out.println("Read hex text:\t" + (System.currentTimeMillis() - time)
+      + "ms");
+
+    time = System.currentTimeMillis();
+    for (int i = 0; i < ITERATIONS; i++) {
+      PostgreSQLEwkbReader.read(bytes);
+    }
+    System.out.println("Read EWKB:\t" + (System.currentTimeMillis() - time)
+      + "ms");
+
+    time = System.currentTimeMillis();
+    for (int i = 0; i < ITERATIONS; i++) {
+      new PostgreSQLGeometryWrapper(polygon).getValue();
+    }
+    System.out.println("Write WKT:\t" + (System.currentTimeMillis() - time)
+      + "ms");
+
+    time = System.currentTimeMillis();
+    for (int i = 0; i < ITERATIONS; i++) {
+      PostgreSQLEwkbWriter.toBytes(polygon);
+    }
+    System.out.println("Write EWKB:\t" + (System.currentTimeMillis() - time)
+      + "ms");
+  }
+}
@@ -0,0 +1,212 @@
+package com.revolsys.gis.postgresql.type;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.data.types.DataTypes;
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.Point;
+import com.revolsys.jts.geom.Polygon;
+import com.revolsys.util.Hex;
+
+/**
+ * Check geometries written by {@link PostgreSQLEwkbWriter} are read back by
+ * {@link PostgreSQLEwkbReader} with the same SRID, axis count and coordinates,
+ * and the same geometries are read using the hex text and WKT used before.
+ */
+public class PostgreSQLEwkbTest {
+  private static final GeometryFactory GEOMETRY_FACTORY_2D = GeometryFactory.floating(
+    3005, 2);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_3D = GeometryFactory.floating(
+    3005, 3);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_4D = GeometryFactory.floating(
+    4326, 4);
+
+  private static final GeometryFactory GEOMETRY_FACTORY_NO_SRID = GeometryFactory.floating(
+    0, 2);
+
+  private static List<Geometry> createGeometries(
+    final GeometryFactory geometryFactory) {
+    final int axisCount = geometryFactory.getAxisCount();
+    final List<Geometry> geometries = new ArrayList<>();
+    final Point point = geometryFactory.point(createCoordinates(axisCount, 1));
+    geometries.add(point);
+
+    final LineString line = geometryFactory.lineString(axisCount,
+      createCoordinates(axisCount, 0, 0, 10, 5, 20, 0.5));
+    geometries.add(line);
+
+    final Polygon polygon = geometryFactory.polygon(new LinearRing[] {
+      geometryFactory.linearRing(axisCount,
+        createCoordinates(axisCount, 0, 0, 100, 0, 100, 100, 0, 100, 0, 0)),
+      geometryFactory.linearRing(axisCount,
+        createCoordinates(axisCount, 10, 10, 10, 20, 20, 20, 10, 10)),
+      geometryFactory.linearRing(axisCount,
+        createCoordinates(axisCount, 50, 50, 50, 60, 60, 60, 60, 50, 50, 50))
+    });
+    geometries.add(polygon);
+
+    geometries.add(geometryFactory.multiPoint(new Point[] {
+      point, geometryFactory.point(createCoordinates(axisCount, -5))
+    }));
+    geometries.add(geometryFactory.multiLineString(new LineString[] {
+      line,
+      geometryFactory.lineString(axisCount,
+        createCoordinates(axisCount, 1, 1, 2, 2))
+    }));
+    geometries.add(geometryFactory.multiPolygon(new Polygon[] {
+      polygon,
+      geometryFactory.polygon(new LinearRing[] {
+        geometryFactory.linearRing(axisCount,
+          createCoordinates(axisCount, 200, 200, 300, 200, 300, 300, 200, 200))
+      })
+    }));
+    geometries.add(geometryFactory.geometryCollection(new Geometry[] {
+      point, line, polygon
+    }));
+    return geometries;
+  }
+
+  /**
+   * Create the coordinates for the x, y values, using the x value plus 1000
+   * and 2000 for the z and m values.
+   */
+  private static double[] createCoordinates(final int axisCount,
+    final double... xyValues) {
+    final int vertexCount = Math.max(1, xyValues.length / 2);
+    final double[] coordinates = new double[vertexCount * axisCount];
+    for (int i = 0; i < vertexCount; i++) {
+      final double x = xyValues[i * 2];
+      double y = x;
+      if (i * 2 + 1 < xyValues.length) {
+        y = xyValues[i * 2 + 1];
+      }
+      coordinates[i * axisCount] = x;
+      coordinates[i * axisCount + 1] = y;
+      for (int axisIndex = 2; axisIndex < axisCount; axisIndex++) {
+        coordinates[i * axisCount + axisIndex] = x + 1000 * (axisIndex - 1);
+      }
+    }
+    return coordinates;
+  }
+
+  private void assertFlags(final Geometry geometry, final byte[] bytes) {
+    Assert.assertEquals("Little endian", 1, bytes[0]);
+    final int typeWord = ByteBuffer.wrap(bytes)
+      .order(ByteOrder.LITTLE_ENDIAN)
+      .getInt(1);
+    final int axisCount = geometry.getAxisCount();
+    Assert.assertEquals("Z", axisCount > 2, (typeWord & 0x80000000) != 0);
+    Assert.assertEquals("M", axisCount > 3, (typeWord & 0x40000000) != 0);
+    Assert.assertEquals("SRID", geometry.getSrid() > 0,
+      (typeWord & 0x20000000) != 0);
+  }
+
+  private void assertRoundTrip(final Geometry geometry) {
+    final String message = geometry.toString();
+    final int axisCount = geometry.getAxisCount();
+    final byte[] bytes = PostgreSQLEwkbWriter.toBytes(geometry);
+    assertFlags(geometry, bytes);
+
+    final Geometry ewkbGeometry = PostgreSQLEwkbReader.read(bytes);
+    Assert.assertEquals(message, geometry.getClass(), ewkbGeometry.getClass());
+    Assert.assertEquals(message, geometry.getSrid(), ewkbGeometry.getSrid());
+    Assert.assertEquals(message, axisCount, ewkbGeometry.getAxisCount());
+    Assert.assertEquals(message, geometry.getGeometryCount(),
+      ewkbGeometry.getGeometryCount());
+    Assert.assertTrue(message, geometry.equals(axisCount, ewkbGeometry));
+
+    // The hex text for a geometry column
+    final PostgreSQLGeometryWrapper hexWrapper = new PostgreSQLGeometryWrapper();
+    hexWrapper.setValue("SRID=" + geometry.getSrid() + ";"
+        + Hex.toHex(bytes).toUpperCase());
+    final Geometry hexGeometry = hexWrapper.getGeometry();
+    Assert.assertEquals(message, hexGeometry.getAxisCount(),
+      ewkbGeometry.getAxisCount());
+    Assert.assertTrue(message, hexGeometry.equals(axisCount, ewkbGeometry));
+
+    // The WKT written for inserts and updates. The WKT parser doesn't support
+    // GEOMETRYCOLLECTION so only the x, y values of the other types are
+    // compared
+    if (geometry.getDataType() != DataTypes.GEOMETRY_COLLECTION) {
+      final PostgreSQLGeometryWrapper wktWrapper = new PostgreSQLGeometryWrapper(
+        geometry);
+      final Geometry wktGeometry = wktWrapper.getGeometry();
+      if (geometry.getSrid() > 0) {
+        Assert.assertEquals(message, geometry.getSrid(), wktGeometry.getSrid());
+      }
+      Assert.assertTrue(message + "\n" + wktWrapper.getValue(),
+        wktGeometry.equals(2, ewkbGeometry));
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    for (final Geometry geometry : new Geometry[] {
+      GEOMETRY_FACTORY_2D.point(), GEOMETRY_FACTORY_2D.lineString(),
+      GEOMETRY_FACTORY_2D.polygon()
+    }) {
+      final byte[] bytes = PostgreSQLEwkbWriter.toBytes(geometry);
+      final Geometry copy = PostgreSQLEwkbReader.read(bytes);
+      Assert.assertEquals(geometry.getClass(), copy.getClass());
+      Assert.assertTrue(copy.isEmpty());
+      Assert.assertEquals(3005, copy.getSrid());
+    }
+    Assert.assertNull(PostgreSQLEwkbWriter.toBytes(null));
+    Assert.assertNull(PostgreSQLEwkbReader.read(null));
+  }
+
+  @Test
+  public void testBigEndian() {
+    // POINT Z(1 2 3) with SRID 3005 written by a big endian server
+    final ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 + 3 * 8);
+    buffer.put((byte)0);
+    buffer.putInt(0x80000000 | 0x20000000 | 1);
+    buffer.putInt(3005);
+    buffer.putDouble(1);
+    buffer.putDouble(2);
+    buffer.putDouble(3);
+    final Geometry point = PostgreSQLEwkbReader.read(buffer.array());
+    Assert.assertTrue(GEOMETRY_FACTORY_3D.point(1, 2, 3).equals(3, point));
+    Assert.assertEquals(3005, point.getSrid());
+  }
+
+  @Test
+  public void testGeometries() {
+    for (final GeometryFactory geometryFactory : new GeometryFactory[] {
+      GEOMETRY_FACTORY_2D, GEOMETRY_FACTORY_3D, GEOMETRY_FACTORY_NO_SRID
+    }) {
+      for (final Geometry geometry : createGeometries(geometryFactory)) {
+        assertRoundTrip(geometry);
+      }
+    }
+  }
+
+  @Test
+  public void testMeasures() {
+    // The WKT parser drops the M values so only check the binary formats
+    for (final Geometry geometry : createGeometries(GEOMETRY_FACTORY_4D)) {
+      final byte[] bytes = PostgreSQLEwkbWriter.toBytes(geometry);
+      assertFlags(geometry, bytes);
+      final Geometry ewkbGeometry = PostgreSQLEwkbReader.read(bytes);
+      Assert.assertEquals(4326, ewkbGeometry.getSrid());
+      Assert.assertEquals(4, ewkbGeometry.getAxisCount());
+      Assert.assertTrue(geometry.toString(), geometry.equals(4, ewkbGeometry));
+
+      final PostgreSQLGeometryWrapper hexWrapper = new PostgreSQLGeometryWrapper();
+      hexWrapper.setValue("SRID=4326;" + Hex.toHex(bytes).toUpperCase());
+      Assert.assertTrue(geometry.toString(),
+        hexWrapper.getGeometry().equals(4, ewkbGeometry));
+    }
+  }
+}
@@ -223,7 +223,11 @@ public class Viewport2D implements PropertyChangeSupportProxy {
         final BoundingBox geometryExtent = geometry.getBoundingBox();
         if (geometryExtent.intersects(viewExtent)) {
           final GeometryFactory geometryFactory = getGeometryFactory();
-          return geometryFactory.geometry(geometry);
+          if (geometry.getGeometryFactory() == geometryFactory) {
+            return geometry;
+          } else {
+            return geometryFactory.geometry(geometry);
+          }
         }
       }
     }
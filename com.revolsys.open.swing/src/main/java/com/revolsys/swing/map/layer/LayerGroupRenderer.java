@@ -1,44 +1,370 @@
 package com.revolsys.swing.map.layer;
 
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.LoggerFactory;
 
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.parallel.NamedThreadFactory;
+import com.revolsys.swing.map.ImageViewport;
 import com.revolsys.swing.map.Viewport2D;
+import com.revolsys.util.Property;
 
+/**
+ * <p>Render the layers in a group. When rendering to an {@link ImageViewport}
+ * each visible layer in the group (including the layers in child groups) is
+ * rendered to its own image on a bounded pool of threads and the images are
+ * then drawn in z-order. The image for a layer is reused if the layer hasn't
+ * fired a property change and the viewport is the same as the last render.</p>
+ *
+ * <p>The cached images are limited to {@link #getMaxImageCacheSize()} bytes.
+ * When there are more images than fit, the images of the layers that were
+ * slowest to render are kept and the others are rendered again each time.</p>
+ *
+ * <p>If the thread rendering the group is interrupted (e.g. the
+ * LayerRendererOverlaySwingWorker is cancelled on a pan or zoom) the layer
+ * renders that haven't finished are cancelled.</p>
+ */
 public class LayerGroupRenderer extends AbstractLayerRenderer<LayerGroup> {
+  private static class LayerImage implements PropertyChangeListener {
+    private BoundingBox boundingBox;
+
+    private GeometryFactory geometryFactory;
+
+    private int height;
+
+    private BufferedImage image;
+
+    /** The modification count when the image was rendered. */
+    private int imageModificationCount = -1;
+
+    private final Layer layer;
+
+    /** Incremented each time the layer changes. */
+    private final AtomicInteger modificationCount = new AtomicInteger();
+
+    /** Lock so only one thread renders the layer at a time. */
+    private final Object renderSync = new Object();
+
+    /** The time in nanoseconds taken to render the cached image. */
+    private long renderTime;
+
+    private int width;
+
+    public LayerImage(final Layer layer) {
+      this.layer = layer;
+      Property.addListener(layer, this);
+    }
+
+    public synchronized void clearImage() {
+      this.image = null;
+    }
+
+    public void dispose() {
+      Property.removeListener(this.layer, this);
+      clearImage();
+    }
+
+    public synchronized BufferedImage getImage(final Viewport2D viewport) {
+      if (this.image != null
+        && this.imageModificationCount == this.modificationCount.get()
+        && this.width == viewport.getViewWidthPixels()
+        && this.height == viewport.getViewHeightPixels()
+        && this.geometryFactory == viewport.getGeometryFactory()
+        && this.boundingBox.equals(viewport.getBoundingBox())) {
+        return this.image;
+      } else {
+        return null;
+      }
+    }
+
+    /**
+     * Get the size in bytes of the cached image, 0 if there isn't one.
+     */
+    public synchronized long getImageSize() {
+      if (this.image == null) {
+        return 0;
+      } else {
+        return 4L * this.image.getWidth() * this.image.getHeight();
+      }
+    }
+
+    public synchronized long getRenderTime() {
+      return this.renderTime;
+    }
+
+    @Override
+    public void propertyChange(final PropertyChangeEvent event) {
+      final String propertyName = event.getPropertyName();
+      if (!IGNORE_PROPERTY_NAMES.contains(propertyName)) {
+        this.modificationCount.incrementAndGet();
+      }
+    }
+
+    /**
+     * Render the layer to an image. The image is only cached if the render
+     * wasn't interrupted and the layer didn't change while it was rendered.
+     * If another thread rendered the same view while this thread was waiting
+     * that image is returned.
+     */
+    public BufferedImage render(final Viewport2D parentViewport) {
+      synchronized (this.renderSync) {
+        final BufferedImage cachedImage = getImage(parentViewport);
+        if (cachedImage != null) {
+          return cachedImage;
+        }
+        final int modificationCount = this.modificationCount.get();
+        final long startTime = System.nanoTime();
+        try (
+          ImageViewport viewport = new ImageViewport(parentViewport)) {
+          final LayerRenderer<Layer> renderer = this.layer.getRenderer();
+          if (renderer != null) {
+            renderer.render(viewport);
+          }
+          final BufferedImage image = viewport.getImage();
+          synchronized (this) {
+            if (!Thread.currentThread().isInterrupted()
+              && modificationCount == this.modificationCount.get()) {
+              this.image = image;
+              this.renderTime = System.nanoTime() - startTime;
+              this.imageModificationCount = modificationCount;
+              this.width = parentViewport.getViewWidthPixels();
+              this.height = parentViewport.getViewHeightPixels();
+              this.geometryFactory = parentViewport.getGeometryFactory();
+              this.boundingBox = parentViewport.getBoundingBox();
+            }
+          }
+          return image;
+        }
+      }
+    }
+  }
+
+  private static final ThreadPoolExecutor EXECUTOR;
+
+  private static final Collection<String> IGNORE_PROPERTY_NAMES = new HashSet<>(
+    Arrays.asList("selectionCount", "hasSelectedRecords",
+      "hasHighlightedRecords", "highlightedCount", "scale"));
+
+  /** Sort the layer images by the slowest render time first. */
+  private static final Comparator<Entry<LayerImage, Long>> RENDER_TIME_COMPARATOR = new Comparator<Entry<LayerImage, Long>>() {
+    @Override
+    public int compare(final Entry<LayerImage, Long> entry1,
+      final Entry<LayerImage, Long> entry2) {
+      return entry2.getValue().compareTo(entry1.getValue());
+    }
+  };
+
+  static {
+    final int threadCount = Math.max(1, Runtime.getRuntime()
+      .availableProcessors());
+    final NamedThreadFactory threadFactory = new NamedThreadFactory(
+      Thread.NORM_PRIORITY - 1);
+    threadFactory.setNamePrefix("Layer Renderer");
+    EXECUTOR = new ThreadPoolExecutor(threadCount, threadCount, 60,
+      TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+    EXECUTOR.allowCoreThreadTimeOut(true);
+  }
+
+  private final Map<Layer, LayerImage> layerImages = new HashMap<>();
+
+  private long maxImageCacheSize = Runtime.getRuntime().maxMemory() / 8;
+
   public LayerGroupRenderer(final LayerGroup layer) {
     super("group", layer);
   }
 
+  private void addVisibleLayers(final List<Layer> visibleLayers,
+    final LayerGroup layerGroup, final double scale) {
+    final List<Layer> layers = new ArrayList<Layer>(layerGroup.getLayers());
+    Collections.reverse(layers);
+    for (final Layer childLayer : layers) {
+      if (childLayer.isVisible(scale)) {
+        if (childLayer instanceof LayerGroup
+          && childLayer.getRenderer() instanceof LayerGroupRenderer) {
+          addVisibleLayers(visibleLayers, (LayerGroup)childLayer, scale);
+        } else {
+          visibleLayers.add(childLayer);
+        }
+      }
+    }
+  }
+
+  private LayerImage getLayerImage(final Layer layer) {
+    synchronized (this.layerImages) {
+      LayerImage layerImage = this.layerImages.get(layer);
+      if (layerImage == null) {
+        layerImage = new LayerImage(layer);
+        this.layerImages.put(layer, layerImage);
+      }
+      return layerImage;
+    }
+  }
+
+  /**
+   * Get the maximum size in bytes of the images cached for the layers.
+   */
+  public long getMaxImageCacheSize() {
+    return this.maxImageCacheSize;
+  }
+
+  /**
+   * Remove the cached images for layers that weren't rendered.
+   */
+  private void removeLayerImages(final List<Layer> layers) {
+    synchronized (this.layerImages) {
+      final Iterator<Entry<Layer, LayerImage>> entries = this.layerImages.entrySet()
+        .iterator();
+      while (entries.hasNext()) {
+        final Entry<Layer, LayerImage> entry = entries.next();
+        if (!layers.contains(entry.getKey())) {
+          entry.getValue().dispose();
+          entries.remove();
+        }
+      }
+    }
+  }
+
   @Override
   public void render(final Viewport2D viewport, final LayerGroup layer) {
     if (layer.isVisible(viewport.getScale())) {
-      final List<Layer> layers = new ArrayList<Layer>(layer.getLayers());
-      Collections.reverse(layers);
-
-      for (final Layer childLayer : layers) {
-        if (childLayer.isVisible(viewport.getScale())) {
-          try {
-            final LayerRenderer<Layer> renderer = childLayer.getRenderer();
-            if (renderer != null) {
-              renderer.render(viewport);
+      if (viewport instanceof ImageViewport) {
+        renderParallel((ImageViewport)viewport, layer);
+      } else {
+        final List<Layer> layers = new ArrayList<Layer>(layer.getLayers());
+        Collections.reverse(layers);
+
+        for (final Layer childLayer : layers) {
+          if (childLayer.isVisible(viewport.getScale())) {
+            try {
+              final LayerRenderer<Layer> renderer = childLayer.getRenderer();
+              if (renderer != null) {
+                renderer.render(viewport);
+              }
+            } catch (final Throwable e) {
+              LoggerFactory.getLogger(getClass()).error(
+                "Error rendering layer: " + childLayer, e);
             }
-          } catch (final Throwable e) {
-            LoggerFactory.getLogger(getClass()).error(
-              "Error rendering layer: " + childLayer, e);
           }
         }
       }
     }
   }
 
+  /**
+   * Render each visible layer to an image on the {@link #EXECUTOR} and draw the
+   * images in z-order. Cached images are used for layers that haven't changed.
+   */
+  private void renderParallel(final ImageViewport viewport,
+    final LayerGroup layerGroup) {
+    final List<Layer> layers = new ArrayList<>();
+    addVisibleLayers(layers, layerGroup, viewport.getScale());
+
+    final List<Object> images = new ArrayList<>();
+    for (final Layer childLayer : layers) {
+      final LayerImage layerImage = getLayerImage(childLayer);
+      final BufferedImage image = layerImage.getImage(viewport);
+      if (image == null) {
+        final Future<BufferedImage> future = EXECUTOR.submit(new Callable<BufferedImage>() {
+          @Override
+          public BufferedImage call() throws Exception {
+            return layerImage.render(viewport);
+          }
+        });
+        images.add(future);
+      } else {
+        images.add(image);
+      }
+    }
+    removeLayerImages(layers);
+
+    final Graphics2D graphics = viewport.getGraphics();
+    for (int i = 0; i < images.size(); i++) {
+      final Object image = images.get(i);
+      try {
+        if (image instanceof Future) {
+          @SuppressWarnings("unchecked")
+          final Future<BufferedImage> future = (Future<BufferedImage>)image;
+          graphics.drawImage(future.get(), 0, 0, null);
+        } else {
+          graphics.drawImage((BufferedImage)image, 0, 0, null);
+        }
+      } catch (final InterruptedException e) {
+        for (final Object otherImage : images) {
+          if (otherImage instanceof Future) {
+            ((Future<?>)otherImage).cancel(true);
+          }
+        }
+        Thread.currentThread().interrupt();
+        return;
+      } catch (final ExecutionException e) {
+        LoggerFactory.getLogger(getClass()).error(
+          "Error rendering layer: " + layers.get(i), e.getCause());
+      }
+    }
+    trimLayerImages();
+  }
+
+  /**
+   * Set the maximum size in bytes of the images cached for the layers. A size
+   * of 0 disables the cache.
+   */
+  public void setMaxImageCacheSize(final long maxImageCacheSize) {
+    this.maxImageCacheSize = maxImageCacheSize;
+  }
+
   @Override
   public Map<String, Object> toMap() {
     return Collections.emptyMap();
   }
 
+  /**
+   * Clear the cached images that don't fit in the
+   * {@link #getMaxImageCacheSize()}, keeping the images of the layers that
+   * were slowest to render.
+   */
+  private void trimLayerImages() {
+    final List<Entry<LayerImage, Long>> renderTimes = new ArrayList<>();
+    synchronized (this.layerImages) {
+      for (final LayerImage layerImage : this.layerImages.values()) {
+        renderTimes.add(new SimpleImmutableEntry<>(layerImage,
+          layerImage.getRenderTime()));
+      }
+    }
+    Collections.sort(renderTimes, RENDER_TIME_COMPARATOR);
+    long cacheSize = 0;
+    for (final Entry<LayerImage, Long> entry : renderTimes) {
+      final LayerImage layerImage = entry.getKey();
+      final long imageSize = layerImage.getImageSize();
+      if (cacheSize + imageSize > this.maxImageCacheSize) {
+        layerImage.clearImage();
+      } else {
+        cacheSize += imageSize;
+      }
+    }
+  }
+
 }
@@ -50,6 +50,24 @@ public abstract class MapTile {
     return this.height;
   }
 
+  /**
+   * Get the estimated number of bytes used by the loaded images (including the
+   * projected images) for this tile.
+   *
+   * @return The number of bytes.
+   */
+  public long getImageByteCount() {
+    long byteCount = 0;
+    synchronized (this.projectedImages) {
+      for (final GeoReferencedImage image : this.projectedImages.values()) {
+        if (image != null) {
+          byteCount += 4L * image.getImageWidth() * image.getImageHeight();
+        }
+      }
+    }
+    return byteCount;
+  }
+
   public GeoReferencedImage getImage() {
     final GeometryFactory geometryFactory = getGeometryFactory();
     return getImage(geometryFactory);
@@ -66,6 +84,8 @@ public abstract class MapTile {
     return getImage(coordinateSystem);
   }
 
+  public abstract AbstractTiledImageLayer getLayer();
+
   public double getResolution() {
     return this.resolution;
   }
@@ -74,6 +94,26 @@ public abstract class MapTile {
     return this.width;
   }
 
+  /**
+   * Check if the image for the coordinate system has been loaded, or if the
+   * tile was loaded and there is no image for the tile.
+   *
+   * @param geometryFactory The geometry factory.
+   * @return True if the tile was loaded.
+   */
+  public boolean isLoaded(final GeometryFactory geometryFactory) {
+    final CoordinateSystem coordinateSystem = geometryFactory.getCoordinateSystem();
+    final CoordinateSystem tileCoordinateSystem = getGeometryFactory().getCoordinateSystem();
+    synchronized (this.projectedImages) {
+      if (this.projectedImages.containsKey(coordinateSystem)) {
+        return true;
+      } else {
+        return this.projectedImages.containsKey(tileCoordinateSystem)
+          && this.projectedImages.get(tileCoordinateSystem) == null;
+      }
+    }
+  }
+
   protected abstract BufferedImage loadBuffferedImage();
 
   protected GeoReferencedImage loadImage() {
@@ -0,0 +1,309 @@
+package com.revolsys.swing.map.layer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.LoggerFactory;
+
+import com.revolsys.io.FileUtil;
+import com.revolsys.util.Md5;
+import com.revolsys.util.WrappedException;
+
+/**
+ * <p>Two level cache of the {@link MapTile}s for the
+ * {@link AbstractTiledImageLayer}s.</p>
+ *
+ * <p>The memory cache holds the tiles with their decoded images. It is limited
+ * to a maximum number of bytes of image data and the least recently used
+ * tiles are removed first. The tiles for all zoom levels are kept so zooming
+ * back to a recently viewed zoom level uses the cached tiles.</p>
+ *
+ * <p>The file cache holds the downloaded (encoded) image bytes for a tile. It
+ * is limited to a maximum size on disk. Each read of a file updates its last
+ * modified time and the least recently used files are deleted when the
+ * maximum size is exceeded. Tiles are downloaded without using the
+ * {@link java.net.ResponseCache} so they aren't also stored in that cache.</p>
+ */
+public class MapTileCache {
+  private static final MapTileCache INSTANCE = new MapTileCache(new File(
+    System.getProperty("java.io.tmpdir"), "mapTiles"), 128 * 1024 * 1024,
+    512 * 1024 * 1024);
+
+  public static MapTileCache getInstance() {
+    return INSTANCE;
+  }
+
+  private final File directory;
+
+  private long fileCacheSize = -1;
+
+  private long maxFileCacheSize;
+
+  private long maxMemoryCacheSize;
+
+  private long memoryCacheSize;
+
+  private final Map<MapTile, MapTile> tiles = new LinkedHashMap<>(256, 0.75f,
+    true);
+
+  public MapTileCache(final File directory, final long maxMemoryCacheSize,
+    final long maxFileCacheSize) {
+    this.directory = directory;
+    this.maxMemoryCacheSize = maxMemoryCacheSize;
+    this.maxFileCacheSize = maxFileCacheSize;
+  }
+
+  /**
+   * Add the tile to the memory cache if there isn't an equal tile in the cache
+   * already.
+   *
+   * @param tile The tile.
+   * @return The cached tile.
+   */
+  public MapTile addTile(final MapTile tile) {
+    synchronized (this.tiles) {
+      final MapTile cachedTile = this.tiles.get(tile);
+      if (cachedTile == null) {
+        this.tiles.put(tile, tile);
+        return tile;
+      } else {
+        return cachedTile;
+      }
+    }
+  }
+
+  private void addToFileCacheSize(final long size) {
+    if (this.fileCacheSize == -1) {
+      long fileCacheSize = 0;
+      for (final File file : getFiles()) {
+        fileCacheSize += file.length();
+      }
+      this.fileCacheSize = fileCacheSize;
+    } else {
+      this.fileCacheSize += size;
+    }
+    if (this.fileCacheSize > this.maxFileCacheSize) {
+      final List<File> files = getFiles();
+      Collections.sort(files, new Comparator<File>() {
+        @Override
+        public int compare(final File file1, final File file2) {
+          return Long.compare(file1.lastModified(), file2.lastModified());
+        }
+      });
+      final long targetSize = this.maxFileCacheSize * 9 / 10;
+      for (final Iterator<File> iterator = files.iterator(); this.fileCacheSize > targetSize
+        && iterator.hasNext();) {
+        final File file = iterator.next();
+        final long length = file.length();
+        if (file.delete()) {
+          this.fileCacheSize -= length;
+        }
+      }
+    }
+  }
+
+  public void clear(final AbstractTiledImageLayer layer) {
+    synchronized (this.tiles) {
+      final Iterator<MapTile> iterator = this.tiles.keySet().iterator();
+      while (iterator.hasNext()) {
+        final MapTile tile = iterator.next();
+        if (tile.getLayer() == layer) {
+          iterator.remove();
+          this.memoryCacheSize -= tile.getImageByteCount();
+        }
+      }
+    }
+  }
+
+  /**
+   * Delete a corrupt or partially written file from the file cache.
+   */
+  private void deleteFile(final File file) {
+    final long length = file.length();
+    if (file.delete()) {
+      synchronized (this.directory) {
+        if (this.fileCacheSize != -1) {
+          this.fileCacheSize -= length;
+        }
+      }
+    }
+  }
+
+  private File getFile(final String key) {
+    final String hash = Md5.md5Hex(key);
+    final File directory = new File(this.directory, hash.substring(0, 2));
+    return new File(directory, hash);
+  }
+
+  private List<File> getFiles() {
+    final List<File> files = new ArrayList<>();
+    final File[] directories = this.directory.listFiles();
+    if (directories != null) {
+      for (final File directory : directories) {
+        final File[] directoryFiles = directory.listFiles();
+        if (directoryFiles != null) {
+          for (final File file : directoryFiles) {
+            if (file.isFile()) {
+              files.add(file);
+            }
+          }
+        }
+      }
+    }
+    return files;
+  }
+
+  public long getMaxFileCacheSize() {
+    return this.maxFileCacheSize;
+  }
+
+  public long getMaxMemoryCacheSize() {
+    return this.maxMemoryCacheSize;
+  }
+
+  public long getMemoryCacheSize() {
+    synchronized (this.tiles) {
+      return this.memoryCacheSize;
+    }
+  }
+
+  /**
+   * Get the cached tile equal to the tile.
+   *
+   * @param tile The tile.
+   * @return The cached tile or null if the tile isn't cached.
+   */
+  public MapTile getTile(final MapTile tile) {
+    synchronized (this.tiles) {
+      return this.tiles.get(tile);
+    }
+  }
+
+  /**
+   * Get the image for a tile from the file cache or download it from the URL
+   * and save it in the file cache.
+   *
+   * @param key The unique key for the tile (e.g. the URL if the URL is the
+   * same each time the tile is requested).
+   * @param url The URL to download the tile from.
+   * @return The image or null if the tile doesn't exist on the server.
+   */
+  public BufferedImage loadImage(final String key, final String url) {
+    final File file = getFile(key);
+    if (file.exists()) {
+      try {
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+          bytes));
+        if (image != null) {
+          file.setLastModified(System.currentTimeMillis());
+          return image;
+        }
+      } catch (final IOException e) {
+        LoggerFactory.getLogger(getClass()).debug(
+          "Unable to read cached tile " + file, e);
+      }
+      deleteFile(file);
+    }
+    if (url == null) {
+      return null;
+    } else {
+      final byte[] bytes;
+      try {
+        final URLConnection connection = new URL(url).openConnection();
+        connection.setUseCaches(false);
+        try (
+          InputStream in = connection.getInputStream()) {
+          final ByteArrayOutputStream out = new ByteArrayOutputStream();
+          FileUtil.copy(in, out);
+          bytes = out.toByteArray();
+        }
+      } catch (final FileNotFoundException e) {
+        return null;
+      } catch (final IOException e) {
+        throw new WrappedException(e);
+      }
+      try {
+        final BufferedImage image = ImageIO.read(new ByteArrayInputStream(
+          bytes));
+        if (image != null) {
+          saveFile(file, bytes);
+        }
+        return image;
+      } catch (final IOException e) {
+        throw new WrappedException(e);
+      }
+    }
+  }
+
+  private void saveFile(final File file, final byte[] bytes) {
+    try {
+      final File directory = file.getParentFile();
+      directory.mkdirs();
+      final File tempFile = File.createTempFile("tile", ".tmp", directory);
+      Files.write(tempFile.toPath(), bytes);
+      synchronized (this.directory) {
+        final long oldLength = file.length();
+        Files.move(tempFile.toPath(), file.toPath(),
+          StandardCopyOption.REPLACE_EXISTING);
+        addToFileCacheSize(bytes.length - oldLength);
+      }
+    } catch (final IOException e) {
+      LoggerFactory.getLogger(getClass()).debug(
+        "Unable to save cached tile " + file, e);
+    }
+  }
+
+  public void setMaxFileCacheSize(final long maxFileCacheSize) {
+    this.maxFileCacheSize = maxFileCacheSize;
+  }
+
+  public void setMaxMemoryCacheSize(final long maxMemoryCacheSize) {
+    synchronized (this.tiles) {
+      this.maxMemoryCacheSize = maxMemoryCacheSize;
+      setTileLoaded(null, 0);
+    }
+  }
+
+  /**
+   * Update the memory cache size after the images of a tile have been loaded
+   * and remove the least recently used tiles if the cache is too large.
+   *
+   * @param tile The tile.
+   * @param byteCount The number of bytes of images that were added to the tile.
+   */
+  public void setTileLoaded(final MapTile tile, final long byteCount) {
+    synchronized (this.tiles) {
+      if (tile != null && this.tiles.get(tile) == tile) {
+        this.memoryCacheSize += byteCount;
+      }
+      final Iterator<MapTile> iterator = this.tiles.keySet().iterator();
+      while (this.memoryCacheSize > this.maxMemoryCacheSize
+        && iterator.hasNext()) {
+        final MapTile eldestTile = iterator.next();
+        if (eldestTile != tile) {
+          iterator.remove();
+          this.memoryCacheSize -= eldestTile.getImageByteCount();
+        }
+      }
+    }
+  }
+}
@@ -4,6 +4,7 @@ import java.awt.image.BufferedImage;
 
 import com.revolsys.io.esri.map.rest.MapServer;
 import com.revolsys.swing.map.layer.MapTile;
+import com.revolsys.swing.map.layer.MapTileCache;
 
 public class ArcGisServerRestMapTile extends MapTile {
 
@@ -48,6 +49,11 @@ public class ArcGisServerRestMapTile extends MapTile {
     return false;
   }
 
+  @Override
+  public ArcGisServerRestLayer getLayer() {
+    return this.layer;
+  }
+
   public MapServer getMapServer() {
     return this.mapServer;
   }
@@ -66,13 +72,15 @@ public class ArcGisServerRestMapTile extends MapTile {
 
   @Override
   public int hashCode() {
-    return this.zoomLevel << 24 & this.tileX << 16 & this.tileY << 8;
+    return (this.zoomLevel * 31 + this.tileX) * 31 + this.tileY;
   }
 
   @Override
   protected BufferedImage loadBuffferedImage() {
     try {
-      return this.mapServer.getTileImage(this.zoomLevel, this.tileX, this.tileY);
+      final String url = this.mapServer.getTileUrl(this.zoomLevel, this.tileX,
+        this.tileY);
+      return MapTileCache.getInstance().loadImage(url, url);
     } catch (final Throwable t) {
       this.layer.setError(t);
       return null;
@@ -3,6 +3,7 @@ package com.revolsys.swing.map.layer.bing;
 import java.awt.image.BufferedImage;
 
 import com.revolsys.swing.map.layer.MapTile;
+import com.revolsys.swing.map.layer.MapTileCache;
 
 public class BingMapTile extends MapTile {
 
@@ -31,6 +32,11 @@ public class BingMapTile extends MapTile {
     return false;
   }
 
+  @Override
+  public BingLayer getLayer() {
+    return this.layer;
+  }
+
   public String getQuadKey() {
     return this.quadKey;
   }
@@ -46,9 +52,10 @@ public class BingMapTile extends MapTile {
       final BingClient client = this.layer.getClient();
       final ImagerySet imagerySet = this.layer.getImagerySetEnum();
       final MapLayer mapLayer = this.layer.getMapLayerEnum();
-      final BufferedImage image = client.getMapImage(imagerySet, mapLayer,
-        this.quadKey);
-      return image;
+      final String url = client.getMapUrl(imagerySet, mapLayer, this.quadKey);
+      final String key = "bing/" + imagerySet + "/" + mapLayer + "/"
+        + this.quadKey;
+      return MapTileCache.getInstance().loadImage(key, url);
     } catch (final Throwable t) {
       this.layer.setError(t);
       return null;
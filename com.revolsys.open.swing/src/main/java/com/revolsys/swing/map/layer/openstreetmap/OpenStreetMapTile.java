@@ -3,6 +3,7 @@ package com.revolsys.swing.map.layer.openstreetmap;
 import java.awt.image.BufferedImage;
 
 import com.revolsys.swing.map.layer.MapTile;
+import com.revolsys.swing.map.layer.MapTileCache;
 
 public class OpenStreetMapTile extends MapTile {
 
@@ -41,6 +42,11 @@ public class OpenStreetMapTile extends MapTile {
     return false;
   }
 
+  @Override
+  public OpenStreetMapLayer getLayer() {
+    return this.layer;
+  }
+
   public int getTileX() {
     return this.tileX;
   }
@@ -55,16 +61,16 @@ public class OpenStreetMapTile extends MapTile {
 
   @Override
   public int hashCode() {
-    return this.zoomLevel + this.tileX + this.tileY;
+    return (this.zoomLevel * 31 + this.tileX) * 31 + this.tileY;
   }
 
   @Override
   public BufferedImage loadBuffferedImage() {
     try {
       final OpenStreetMapClient client = this.layer.getClient();
-      final BufferedImage image = client.getMapImage(this.zoomLevel,
-        this.tileX, this.tileY);
-      return image;
+      final String url = client.getMapUrl(this.zoomLevel, this.tileX,
+        this.tileY);
+      return MapTileCache.getInstance().loadImage(url, url);
     } catch (final Throwable e) {
       return null;
     }
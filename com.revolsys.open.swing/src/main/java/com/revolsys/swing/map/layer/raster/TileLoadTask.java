@@ -4,6 +4,7 @@ import org.slf4j.LoggerFactory;
 
 import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.swing.map.layer.MapTile;
+import com.revolsys.swing.map.layer.MapTileCache;
 
 public class TileLoadTask implements Runnable {
   private final MapTile mapTile;
@@ -34,7 +35,10 @@ public class TileLoadTask implements Runnable {
   @Override
   public void run() {
     try {
+      final long byteCount = this.mapTile.getImageByteCount();
       this.mapTile.loadImage(this.geometryFactory);
+      MapTileCache.getInstance().setTileLoaded(this.mapTile,
+        this.mapTile.getImageByteCount() - byteCount);
       this.renderer.setLoaded(this);
     } catch (final Throwable e) {
       LoggerFactory.getLogger(getClass()).error(
@@ -3,28 +3,42 @@ package com.revolsys.swing.map.layer.raster;
 import java.awt.Graphics2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.jts.geom.GeometryFactory;
-import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
 import com.revolsys.raster.GeoReferencedImage;
 import com.revolsys.swing.map.Viewport2D;
 import com.revolsys.swing.map.layer.AbstractLayerRenderer;
 import com.revolsys.swing.map.layer.AbstractTiledImageLayer;
 import com.revolsys.swing.map.layer.MapTile;
+import com.revolsys.swing.map.layer.MapTileCache;
 import com.revolsys.swing.parallel.RunnableSwingWorkerManager;
 import com.revolsys.util.Property;
 
+/**
+ * Render the tiles of a tiled image layer. The tiles are cached in the shared
+ * {@link MapTileCache} so tiles for recently viewed zoom levels are reused.
+ * After the tiles for the viewport are queued for loading the tiles in a
+ * margin of a quarter of the view size around the viewport are queued so they
+ * are already loaded when the map is panned.
+ */
 public class TiledImageLayerRenderer extends
 AbstractLayerRenderer<AbstractTiledImageLayer> implements
 PropertyChangeListener {
 
-  private final Map<MapTile, MapTile> cachedTiles = new HashMap<MapTile, MapTile>();
+  private static final Collection<String> IGNORE_PROPERTY_NAMES = new HashSet<>(
+    Arrays.asList("loading", "visible", "name", "minimumScale", "maximumScale",
+      "layerGroup", "selectable", "editable"));
+
+  private static final double PREFETCH_MARGIN = 0.25;
 
   private static RunnableSwingWorkerManager tileLoaderManager = new RunnableSwingWorkerManager(
     "Load Map Tiles");
@@ -33,38 +47,62 @@ PropertyChangeListener {
 
   private double resolution;
 
-  private final List<Runnable> loadingTasks = new ArrayList<Runnable>();
+  private final Map<MapTile, Runnable> loadingTasks = new HashMap<>();
 
   public TiledImageLayerRenderer(final AbstractTiledImageLayer layer) {
     super("tiledImage", layer);
     Property.addListener(layer, this);
   }
 
-  @Override
-  public void propertyChange(final PropertyChangeEvent event) {
-    final Object newValue = event.getNewValue();
-    if (newValue instanceof BoundingBoxDoubleGf) {
-      final BoundingBox newBoundingBox = (BoundingBox)newValue;
-      synchronized (this.cachedTiles) {
-        final List<MapTile> mapTiles = new ArrayList<MapTile>(
-            this.cachedTiles.keySet());
-        final GeometryFactory newGeometryFactory = newBoundingBox.getGeometryFactory();
-        for (final MapTile mapTile : mapTiles) {
-          final BoundingBox boundingBox = mapTile.getBoundingBox();
-          final GeometryFactory geometryFactory = boundingBox.getGeometryFactory();
-          if (!geometryFactory.equals(newGeometryFactory)
-              || !newBoundingBox.intersects(boundingBox)) {
-            this.cachedTiles.remove(boundingBox);
+  private void addLoadTasks(final Map<MapTile, Runnable> tasks,
+    final GeometryFactory geometryFactory, final List<MapTile> mapTiles) {
+    final MapTileCache tileCache = MapTileCache.getInstance();
+    for (final MapTile mapTile : mapTiles) {
+      if (mapTile != null) {
+        final MapTile cachedTile = tileCache.addTile(mapTile);
+        if (!cachedTile.isLoaded(geometryFactory)
+          && !tasks.containsKey(cachedTile)) {
+          synchronized (this.loadingTasks) {
+            if (!this.loadingTasks.containsKey(cachedTile)) {
+              tasks.put(cachedTile, new TileLoadTask(this, geometryFactory,
+                cachedTile));
+            }
           }
         }
       }
-    } else if (!"loading".equals(event.getPropertyName())) {
-      synchronized (this.cachedTiles) {
-        this.cachedTiles.clear();
-        // if (this.tileLoaderProcess != null) {
-        // this.tileLoaderProcess.cancel(true);
-        // }
-      }
+    }
+  }
+
+  /**
+   * Get the tiles around the viewport that aren't in the viewport.
+   */
+  private List<MapTile> getPrefetchMapTiles(final Viewport2D viewport,
+    final AbstractTiledImageLayer layer, final List<MapTile> mapTiles) {
+    final int viewWidth = viewport.getViewWidthPixels();
+    final int viewHeight = viewport.getViewHeightPixels();
+    if (viewWidth > 0 && viewHeight > 0) {
+      final BoundingBox boundingBox = viewport.getBoundingBox();
+      final BoundingBox prefetchBoundingBox = boundingBox.expand(
+        boundingBox.getWidth() * PREFETCH_MARGIN, boundingBox.getHeight()
+        * PREFETCH_MARGIN);
+      final Viewport2D prefetchViewport = new Viewport2D(
+        viewport.getProject(),
+        (int)Math.round(viewWidth * (1 + 2 * PREFETCH_MARGIN)),
+        (int)Math.round(viewHeight * (1 + 2 * PREFETCH_MARGIN)),
+        prefetchBoundingBox);
+      final List<MapTile> prefetchMapTiles = layer.getOverlappingMapTiles(prefetchViewport);
+      prefetchMapTiles.removeAll(mapTiles);
+      return prefetchMapTiles;
+    } else {
+      return Collections.emptyList();
+    }
+  }
+
+  @Override
+  public void propertyChange(final PropertyChangeEvent event) {
+    final String propertyName = event.getPropertyName();
+    if (!IGNORE_PROPERTY_NAMES.contains(propertyName)) {
+      MapTileCache.getInstance().clear(getLayer());
     }
   }
 
@@ -73,47 +111,45 @@ PropertyChangeListener {
     final AbstractTiledImageLayer layer) {
     final GeometryFactory geometryFactory = viewport.getGeometryFactory();
     final double resolution = layer.getResolution(viewport);
-    synchronized (this.cachedTiles) {
+    synchronized (this.loadingTasks) {
       if (resolution != this.resolution
           || geometryFactory != this.geometryFactory) {
         this.resolution = resolution;
         this.geometryFactory = geometryFactory;
-        this.cachedTiles.clear();
-        tileLoaderManager.removeTasks(this.loadingTasks);
+        tileLoaderManager.removeTasks(this.loadingTasks.values());
         this.loadingTasks.clear();
       }
     }
-    final List<Runnable> tasks = new ArrayList<Runnable>();
+    final MapTileCache tileCache = MapTileCache.getInstance();
+    final Map<MapTile, Runnable> tasks = new LinkedHashMap<>();
     final List<MapTile> mapTiles = layer.getOverlappingMapTiles(viewport);
+    addLoadTasks(tasks, geometryFactory, mapTiles);
     for (final MapTile mapTile : mapTiles) {
       if (mapTile != null) {
-        MapTile cachedTile = null;
-        synchronized (this.cachedTiles) {
-          cachedTile = this.cachedTiles.get(mapTile);
-          if (cachedTile == null) {
-            cachedTile = mapTile;
-            this.cachedTiles.put(cachedTile, cachedTile);
-            final Runnable task = new TileLoadTask(this, geometryFactory,
-              cachedTile);
-            tasks.add(task);
+        final MapTile cachedTile = tileCache.getTile(mapTile);
+        if (cachedTile != null) {
+          final GeoReferencedImage image = cachedTile.getImage(geometryFactory);
+          final Graphics2D graphics = viewport.getGraphics();
+          if (graphics != null) {
+            GeoReferencedImageLayerRenderer.render(viewport, graphics, image,
+              false);
           }
         }
-        final GeoReferencedImage image = cachedTile.getImage(geometryFactory);
-        final Graphics2D graphics = viewport.getGraphics();
-        if (graphics != null) {
-          GeoReferencedImageLayerRenderer.render(viewport, graphics, image,
-            false);
-        }
       }
     }
+    final List<MapTile> prefetchMapTiles = getPrefetchMapTiles(viewport,
+      layer, mapTiles);
+    addLoadTasks(tasks, geometryFactory, prefetchMapTiles);
     synchronized (this.loadingTasks) {
-      this.loadingTasks.addAll(tasks);
-      tileLoaderManager.addTasks(tasks);
+      this.loadingTasks.putAll(tasks);
+      tileLoaderManager.addTasks(tasks.values());
     }
   }
 
   public void setLoaded(final TileLoadTask tileLoadTask) {
-    this.loadingTasks.remove(tileLoadTask);
+    synchronized (this.loadingTasks) {
+      this.loadingTasks.remove(tileLoadTask.getMapTile());
+    }
     getLayer().firePropertyChange("loading", false, true);
   }
 
@@ -261,7 +261,9 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
 
   private List<Window> formWindows = new LinkedList<>();
 
-  private RecordQuadTree index = new RecordQuadTree();
+  private volatile RecordQuadTree index = new RecordQuadTree();
+
+  private final ProjectedGeometryCache projectedGeometryCache = new ProjectedGeometryCache();
 
   private Set<AbstractProxyLayerRecord> proxyRecords = MapBackedSet.mapBackedSet(new WeakHashMap<AbstractProxyLayerRecord, Object>());
 
@@ -752,6 +754,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
     this.formComponents.clear();
     this.formWindows.clear();
     this.index.clear();
+    this.projectedGeometryCache.clear();
     this.cacheIdToRecordMap.clear();
     this.selectedRecordsIndex = null;
   }
@@ -1366,6 +1369,47 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
     }
   }
 
+  /**
+   * Get the geometry of the record converted to the geometry factory, using
+   * the layer's cache of projected geometries.
+   *
+   * @param record The record.
+   * @param geometryFactory The geometry factory (e.g. of the viewport).
+   * @return The projected geometry.
+   */
+  public Geometry getProjectedGeometry(final LayerRecord record,
+    final GeometryFactory geometryFactory) {
+    if (record == null) {
+      return null;
+    } else {
+      return this.projectedGeometryCache.getGeometry(record, geometryFactory);
+    }
+  }
+
+  /**
+   * Get the geometry of the record converted to the geometry factory and
+   * generalized for the resolution, using the layer's cache of projected
+   * geometries.
+   *
+   * @param record The record.
+   * @param geometryFactory The geometry factory (e.g. of the viewport).
+   * @param unitsPerPixel The resolution of the viewport.
+   * @return The projected and generalized geometry.
+   */
+  public Geometry getProjectedGeometry(final LayerRecord record,
+    final GeometryFactory geometryFactory, final double unitsPerPixel) {
+    if (record == null) {
+      return null;
+    } else {
+      return this.projectedGeometryCache.getGeometry(record, geometryFactory,
+        unitsPerPixel);
+    }
+  }
+
+  public ProjectedGeometryCache getProjectedGeometryCache() {
+    return this.projectedGeometryCache;
+  }
+
   public List<AbstractProxyLayerRecord> getProxyRecords() {
     return new ArrayList<>(this.proxyRecords);
   }
@@ -1933,6 +1977,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
           if (record.getLayer() == this) {
             if (EqualsRegistry.equal(propertyName, getGeometryFieldName())) {
               final Geometry oldGeometry = (Geometry)event.getOldValue();
+              this.projectedGeometryCache.remove(record);
               updateSpatialIndex(record, oldGeometry);
               clearSelectedRecordsIndex();
             }
@@ -2052,6 +2097,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
   }
 
   public void removeFromIndex(final LayerRecord record) {
+    this.projectedGeometryCache.remove(record);
     final Geometry geometry = record.getGeometryValue();
     if (geometry != null && !geometry.isEmpty()) {
       final BoundingBox boundingBox = geometry.getBoundingBox();
@@ -2346,6 +2392,7 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
       final List<LayerRecord> newRecords = getNewRecords();
       index.insert(newRecords);
       this.index = index;
+      this.projectedGeometryCache.clear();
     }
   }
 
@@ -2759,11 +2806,26 @@ public abstract class AbstractRecordLayer extends AbstractLayer implements Recor
   protected void updateSpatialIndex(final LayerRecord record, final Geometry oldGeometry) {
     if (oldGeometry != null) {
       final BoundingBox oldBoundingBox = oldGeometry.getBoundingBox();
-      if (removeFromIndex(oldBoundingBox, record)) {
-        addToIndex(record);
+      final RecordQuadTree index = getIndex();
+      final Record indexRecord = index.getFirst(oldBoundingBox, new Filter<Record>() {
+        @Override
+        public boolean accept(final Record indexRecord) {
+          return indexRecord == record;
+        }
+      });
+      if (indexRecord == null) {
+        if (removeFromIndex(oldBoundingBox, record)) {
+          addToIndex(record);
+        }
+      } else {
+        final Geometry geometry = record.getGeometryValue();
+        if (geometry == null || geometry.isEmpty()) {
+          index.move(oldBoundingBox, null, record);
+        } else {
+          index.move(oldBoundingBox, geometry.getBoundingBox(), record);
+        }
       }
     }
-
   }
 
   public void zoomToBoundingBox(BoundingBox boundingBox) {
@@ -7,10 +7,12 @@ import java.util.Map;
 
 import com.revolsys.data.query.Condition;
 import com.revolsys.data.query.Query;
+import com.revolsys.data.record.Record;
 import com.revolsys.data.record.RecordState;
 import com.revolsys.data.record.schema.RecordDefinition;
 import com.revolsys.data.record.schema.RecordDefinitionImpl;
 import com.revolsys.data.types.DataType;
+import com.revolsys.filter.Filter;
 import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
@@ -111,9 +113,10 @@ public class ListRecordLayer extends AbstractRecordLayer {
     if (whereCondition == null) {
       return new ArrayList<LayerRecord>(this.records);
     } else {
+      final Filter<Record> filter = whereCondition.compile(getRecordDefinition());
       final List<LayerRecord> records = new ArrayList<LayerRecord>();
       for (final LayerRecord record : new ArrayList<LayerRecord>(this.records)) {
-        if (whereCondition.accept(record)) {
+        if (filter.accept(record)) {
           records.add(record);
         }
       }
@@ -0,0 +1,279 @@
+package com.revolsys.swing.map.layer.record;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.swing.map.util.GeometryShapeUtil;
+
+/**
+ * <p>Cache of the geometries of the records in a layer converted to the
+ * coordinate system of the viewport. The rendering of a layer uses the cached
+ * geometry so that panning or repainting the map doesn't project the
+ * geometries of all the visible records again.</p>
+ *
+ * <p>The cache is keyed by the identity of the record and the target geometry
+ * factory. An entry is only used if the record still has the same geometry
+ * instance that was projected, the layer also removes the entries for a record
+ * when the record's geometry is edited. The cache has a maximum size in bytes,
+ * estimated from the number of coordinates, and the least recently used
+ * entries are removed when the cache is larger than the maximum size.</p>
+ *
+ * <p>The entry for a record also caches the projected geometry generalized for
+ * each scale band (see {@link GeometryShapeUtil#generalize(Geometry, double)})
+ * that the record was rendered at, these are removed with the entry.</p>
+ */
+public class ProjectedGeometryCache {
+  private static final class CacheEntry {
+    private final Map<Integer, Geometry> generalizedGeometries = new HashMap<>();
+
+    private final Geometry geometry;
+
+    private long size;
+
+    private final Geometry sourceGeometry;
+
+    private CacheEntry(final Geometry sourceGeometry, final Geometry geometry) {
+      this.sourceGeometry = sourceGeometry;
+      this.geometry = geometry;
+      if (geometry == sourceGeometry) {
+        this.size = ENTRY_SIZE;
+      } else {
+        this.size = getSize(geometry);
+      }
+    }
+  }
+
+  private static final class CacheKey {
+    private final GeometryFactory geometryFactory;
+
+    private final LayerRecord record;
+
+    private CacheKey(final LayerRecord record,
+      final GeometryFactory geometryFactory) {
+      this.record = record;
+      this.geometryFactory = geometryFactory;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (other instanceof CacheKey) {
+        final CacheKey key = (CacheKey)other;
+        return key.record == this.record
+          && key.geometryFactory == this.geometryFactory;
+      } else {
+        return false;
+      }
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(this.record) * 31
+        + System.identityHashCode(this.geometryFactory);
+    }
+  }
+
+  public static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024;
+
+  private static final long ENTRY_SIZE = 128;
+
+  private static final long PART_SIZE = 64;
+
+  private static long getSize(final Geometry geometry) {
+    final GeometryFactory geometryFactory = geometry.getGeometryFactory();
+    return ENTRY_SIZE + PART_SIZE * geometry.getGeometryCount() + 8L
+      * geometryFactory.getAxisCount() * geometry.getVertexCount();
+  }
+
+  private final Map<CacheKey, CacheEntry> cache = new LinkedHashMap<>(256,
+    0.75f, true);
+
+  /**
+   * The number of cached entries for each geometry factory, a geometry factory
+   * is removed when it has no entries.
+   */
+  private final Map<GeometryFactory, Integer> geometryFactoryEntryCounts = new IdentityHashMap<>();
+
+  private long maxSize;
+
+  private long size;
+
+  public ProjectedGeometryCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  public ProjectedGeometryCache(final long maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  public synchronized void clear() {
+    this.cache.clear();
+    this.geometryFactoryEntryCounts.clear();
+    this.size = 0;
+  }
+
+  /**
+   * Subtract the size of the entry that was removed from the cache and remove
+   * the geometry factory if it has no more entries.
+   */
+  private void entryRemoved(final CacheKey key, final CacheEntry entry) {
+    this.size -= entry.size;
+    final GeometryFactory geometryFactory = key.geometryFactory;
+    final Integer count = this.geometryFactoryEntryCounts.get(geometryFactory);
+    if (count != null) {
+      if (count <= 1) {
+        this.geometryFactoryEntryCounts.remove(geometryFactory);
+      } else {
+        this.geometryFactoryEntryCounts.put(geometryFactory, count - 1);
+      }
+    }
+  }
+
+  /**
+   * Get the geometry of the record converted to the geometry factory. The
+   * projected geometry is cached until the record's geometry is changed or the
+   * entry is removed to keep the cache within the maximum size. An entry is
+   * also cached for geometries that are already in the geometry factory so
+   * that their generalized geometries are cached.
+   *
+   * @param record The record.
+   * @param geometryFactory The geometry factory to convert the geometry to.
+   * @return The converted geometry.
+   */
+  public Geometry getGeometry(final LayerRecord record,
+    final GeometryFactory geometryFactory) {
+    final Geometry sourceGeometry = record.getGeometryValue();
+    if (sourceGeometry == null || sourceGeometry.isEmpty()
+      || geometryFactory == null) {
+      return sourceGeometry;
+    } else {
+      final CacheKey key = new CacheKey(record, geometryFactory);
+      synchronized (this) {
+        final CacheEntry entry = this.cache.get(key);
+        if (entry != null) {
+          if (entry.sourceGeometry == sourceGeometry) {
+            return entry.geometry;
+          } else {
+            this.cache.remove(key);
+            entryRemoved(key, entry);
+          }
+        }
+      }
+      final Geometry geometry = sourceGeometry.convert(geometryFactory);
+      final CacheEntry entry = new CacheEntry(sourceGeometry, geometry);
+      if (entry.size <= this.maxSize) {
+        synchronized (this) {
+          final CacheEntry oldEntry = this.cache.put(key, entry);
+          if (oldEntry == null) {
+            final Integer count = this.geometryFactoryEntryCounts.get(geometryFactory);
+            if (count == null) {
+              this.geometryFactoryEntryCounts.put(geometryFactory, 1);
+            } else {
+              this.geometryFactoryEntryCounts.put(geometryFactory, count + 1);
+            }
+          } else {
+            this.size -= oldEntry.size;
+          }
+          this.size += entry.size;
+          removeEldest();
+        }
+      }
+      return geometry;
+    }
+  }
+
+  /**
+   * Get the geometry of the record converted to the geometry factory and
+   * generalized for the scale band of the resolution. Vertices closer than
+   * half a pixel are removed. The generalized geometry is cached with the
+   * projected geometry.
+   *
+   * @param record The record.
+   * @param geometryFactory The geometry factory to convert the geometry to.
+   * @param unitsPerPixel The resolution of the view in model units per pixel.
+   * @return The converted and generalized geometry.
+   */
+  public Geometry getGeometry(final LayerRecord record,
+    final GeometryFactory geometryFactory, final double unitsPerPixel) {
+    final Geometry geometry = getGeometry(record, geometryFactory);
+    if (geometry == null || geometry.isEmpty() || !(unitsPerPixel > 0)
+      || geometry.getVertexCount() < 3) {
+      return geometry;
+    } else {
+      final int scaleBand = GeometryShapeUtil.getGeneralizeScaleBand(unitsPerPixel);
+      final CacheKey key = new CacheKey(record, geometryFactory);
+      synchronized (this) {
+        final CacheEntry entry = this.cache.get(key);
+        if (entry != null && entry.geometry == geometry) {
+          final Geometry generalizedGeometry = entry.generalizedGeometries.get(scaleBand);
+          if (generalizedGeometry != null) {
+            return generalizedGeometry;
+          }
+        }
+      }
+      final double tolerance = GeometryShapeUtil.getGeneralizeTolerance(scaleBand);
+      final Geometry generalizedGeometry = GeometryShapeUtil.generalize(
+        geometry, tolerance);
+      synchronized (this) {
+        final CacheEntry entry = this.cache.get(key);
+        if (entry != null && entry.geometry == geometry) {
+          final Geometry oldGeometry = entry.generalizedGeometries.put(
+            scaleBand, generalizedGeometry);
+          if (oldGeometry == null && generalizedGeometry != geometry) {
+            final long size = getSize(generalizedGeometry);
+            entry.size += size;
+            this.size += size;
+            removeEldest();
+          }
+        }
+      }
+      return generalizedGeometry;
+    }
+  }
+
+  public synchronized int getGeometryFactoryCount() {
+    return this.geometryFactoryEntryCounts.size();
+  }
+
+  public long getMaxSize() {
+    return this.maxSize;
+  }
+
+  public synchronized long getSize() {
+    return this.size;
+  }
+
+  public synchronized void remove(final LayerRecord record) {
+    if (record != null) {
+      for (final GeometryFactory geometryFactory : new ArrayList<>(
+        this.geometryFactoryEntryCounts.keySet())) {
+        final CacheKey key = new CacheKey(record, geometryFactory);
+        final CacheEntry entry = this.cache.remove(key);
+        if (entry != null) {
+          entryRemoved(key, entry);
+        }
+      }
+    }
+  }
+
+  private void removeEldest() {
+    final Iterator<Entry<CacheKey, CacheEntry>> entries = this.cache.entrySet()
+      .iterator();
+    while (this.size > this.maxSize && entries.hasNext()) {
+      final Entry<CacheKey, CacheEntry> entry = entries.next();
+      entries.remove();
+      entryRemoved(entry.getKey(), entry.getValue());
+    }
+  }
+
+  public synchronized void setMaxSize(final long maxSize) {
+    this.maxSize = maxSize;
+    removeEldest();
+  }
+}
@@ -18,6 +18,7 @@ import com.revolsys.filter.AcceptAllFilter;
 import com.revolsys.filter.Filter;
 import com.revolsys.io.map.MapSerializerUtil;
 import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.Geometry;
 import com.revolsys.jts.geom.TopologyException;
 import com.revolsys.swing.Icons;
 import com.revolsys.swing.action.InvokeMethodAction;
@@ -90,6 +91,44 @@ AbstractLayerRenderer<AbstractRecordLayer> {
     return DEFAULT_FILTER;
   }
 
+  /**
+   * Get the geometry of the record in the coordinate system of the viewport,
+   * generalized to the resolution of the viewport, from the record's layer's
+   * projected geometry cache.
+   *
+   * @param viewport The viewport.
+   * @param record The record.
+   * @return The projected and generalized geometry.
+   */
+  public static Geometry getGeneralizedGeometry(final Viewport2D viewport,
+    final LayerRecord record) {
+    final AbstractRecordLayer layer = record.getLayer();
+    if (layer == null) {
+      return record.getGeometryValue();
+    } else {
+      return layer.getProjectedGeometry(record, viewport.getGeometryFactory(),
+        viewport.getUnitsPerPixel());
+    }
+  }
+
+  /**
+   * Get the geometry of the record in the coordinate system of the viewport
+   * from the record's layer's projected geometry cache.
+   *
+   * @param viewport The viewport.
+   * @param record The record.
+   * @return The projected geometry.
+   */
+  public static Geometry getProjectedGeometry(final Viewport2D viewport,
+    final LayerRecord record) {
+    final AbstractRecordLayer layer = record.getLayer();
+    if (layer == null) {
+      return record.getGeometryValue();
+    } else {
+      return layer.getProjectedGeometry(record, viewport.getGeometryFactory());
+    }
+  }
+
   public static AbstractRecordLayerRenderer getRenderer(
     final AbstractLayer layer, final LayerRenderer<?> parent,
     final Map<String, Object> style) {
@@ -221,7 +260,9 @@ AbstractLayerRenderer<AbstractRecordLayer> {
     final AbstractRecordLayer layer, final List<LayerRecord> records) {
     final BoundingBox visibleArea = viewport.getBoundingBox();
     for (final LayerRecord record : records) {
-      if (record != null) {
+      if (Thread.currentThread().isInterrupted()) {
+        return;
+      } else if (record != null) {
         if (isVisible(record) && !layer.isHidden(record)) {
           try {
             renderRecord(viewport, visibleArea, layer, record);
@@ -64,7 +64,6 @@ public class GeometryStyleRenderer extends AbstractRecordLayerRenderer {
         if (geometryExtent.intersects(viewExtent)) {
           final GeometryFactory geometryFactory = viewport.getGeometryFactory();
           final Geometry convertedGeometry = geometry.convert(geometryFactory);
-          // TODO clipping
           return GeometryShapeUtil.toShape(viewport, convertedGeometry);
         }
       }
@@ -241,7 +240,7 @@ public class GeometryStyleRenderer extends AbstractRecordLayerRenderer {
   public void renderRecord(final Viewport2D viewport,
     final BoundingBox visibleArea, final AbstractLayer layer,
     final LayerRecord record) {
-    final Geometry geometry = record.getGeometryValue();
+    final Geometry geometry = getGeneralizedGeometry(viewport, record);
     viewport.drawGeometry(geometry, this.style);
   }
 
@@ -439,7 +439,7 @@ public class TextStyleRenderer extends AbstractRecordLayerRenderer {
   public void renderRecord(final Viewport2D viewport,
     final BoundingBox visibleArea, final AbstractLayer layer,
     final LayerRecord object) {
-    final Geometry geometry = object.getGeometryValue();
+    final Geometry geometry = getProjectedGeometry(viewport, object);
     viewport.drawText(object, geometry, this.style);
   }
 
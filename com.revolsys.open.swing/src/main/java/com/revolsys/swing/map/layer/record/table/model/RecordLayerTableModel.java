@@ -29,6 +29,7 @@ import com.revolsys.data.query.BinaryCondition;
 import com.revolsys.data.query.Cast;
 import com.revolsys.data.query.Column;
 import com.revolsys.data.query.Condition;
+import com.revolsys.data.query.KeysetPageIndex;
 import com.revolsys.data.query.Query;
 import com.revolsys.data.query.QueryValue;
 import com.revolsys.data.query.Value;
@@ -37,12 +38,15 @@ import com.revolsys.data.query.functions.Function;
 import com.revolsys.data.record.Record;
 import com.revolsys.data.record.schema.FieldDefinition;
 import com.revolsys.data.record.schema.RecordDefinition;
+import com.revolsys.data.record.schema.RecordStore;
+import com.revolsys.io.Reader;
 import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.swing.listener.InvokeMethodListener;
 import com.revolsys.swing.map.layer.Project;
 import com.revolsys.swing.map.layer.record.AbstractRecordLayer;
 import com.revolsys.swing.map.layer.record.LayerRecord;
 import com.revolsys.swing.map.layer.record.LoadingRecord;
+import com.revolsys.swing.map.layer.record.RecordStoreLayer;
 import com.revolsys.swing.map.layer.record.table.RecordLayerTable;
 import com.revolsys.swing.map.layer.record.table.predicate.DeletedPredicate;
 import com.revolsys.swing.map.layer.record.table.predicate.ModifiedPredicate;
@@ -139,6 +143,8 @@ SortableTableModel, PropertyChangeListener, PropertyChangeSupportProxy {
 
   private Map<String, Boolean> orderBy;
 
+  private KeysetPageIndex pageIndex;
+
   private int refreshIndex = 0;
 
   private final Object selectedSync = new Object();
@@ -157,6 +163,29 @@ SortableTableModel, PropertyChangeListener, PropertyChangeSupportProxy {
     this.loadingRecord = new LoadingRecord(layer);
   }
 
+  private void addLoadPageNumber(final int pageNumber) {
+    if (!this.loadingPageNumbers.contains(pageNumber)) {
+      this.loadingPageNumbers.add(pageNumber);
+      this.loadingPageNumbersToProcess.add(pageNumber);
+      if (this.loadObjectsWorker == null) {
+        this.loadObjectsWorker = Invoke.background("Loading records "
+            + getTypeName(), this, "loadPages", this.refreshIndex);
+      }
+    }
+  }
+
+  /**
+   * Load the page in the background if it isn't cached so it is loaded before
+   * the table is scrolled to it.
+   */
+  private void addPrefetchPageNumber(final int pageNumber) {
+    if (pageNumber >= 0 && this.countLoaded
+        && pageNumber * this.pageSize < this.rowCount
+        && !this.pageCache.containsKey(pageNumber)) {
+      addLoadPageNumber(pageNumber);
+    }
+  }
+
   @Override
   public String getColumnName(final int columnIndex) {
     // final String fieldName = getFieldName(columnIndex);
@@ -251,19 +280,26 @@ SortableTableModel, PropertyChangeListener, PropertyChangeSupportProxy {
     return this.orderBy;
   }
 
+  protected KeysetPageIndex getPageIndex() {
+    synchronized (getSync()) {
+      if (this.pageIndex == null) {
+        this.pageIndex = new KeysetPageIndex(getRecordDefinition(),
+          this.orderBy, this.pageSize);
+      }
+      return this.pageIndex;
+    }
+  }
+
   protected LayerRecord getPageRecord(final int pageNumber,
     final int recordNumber) {
     synchronized (getSync()) {
       final List<LayerRecord> page = this.pageCache.get(pageNumber);
       if (page == null) {
-        if (!this.loadingPageNumbers.contains(pageNumber)) {
-          this.loadingPageNumbers.add(pageNumber);
-          this.loadingPageNumbersToProcess.add(pageNumber);
-          if (this.loadObjectsWorker == null) {
-            this.loadObjectsWorker = Invoke.background("Loading records "
-                + getTypeName(), this, "loadPages", this.refreshIndex);
-          }
-        }
+        addLoadPageNumber(pageNumber);
+      }
+      addPrefetchPageNumber(pageNumber + 1);
+      addPrefetchPageNumber(pageNumber - 1);
+      if (page == null) {
         return this.loadingRecord;
       } else {
         if (recordNumber < page.size()) {
@@ -414,12 +450,31 @@ SortableTableModel, PropertyChangeListener, PropertyChangeSupportProxy {
     return getPageRecord(pageNumber, recordNumber);
   }
 
+  /**
+   * Load the records for the page. The page query starts after the key of the
+   * nearest checkpoint before this page, so the records before the checkpoint
+   * aren't read again. The first time a page far from the loaded checkpoints
+   * is requested the checkpoints are loaded from the record store using a
+   * query for only the key fields.
+   */
   protected List<LayerRecord> loadPage(final int pageNumber) {
     final Query query = getFilterQuery();
-    query.setOrderBy(this.orderBy);
-    query.setOffset(this.pageSize * pageNumber);
-    query.setLimit(this.pageSize);
-    final List<LayerRecord> objects = getLayerObjects(query);
+    final KeysetPageIndex pageIndex = getPageIndex();
+    if (pageIndex.isKeyScanRequired(query, pageNumber)) {
+      if (this.layer instanceof RecordStoreLayer) {
+        final RecordStore recordStore = this.layer.getRecordStore();
+        final Query keyQuery = pageIndex.getKeyQuery(query);
+        try (
+          Reader<Record> reader = recordStore.query(keyQuery)) {
+          pageIndex.setKeyRecords(reader);
+        }
+      } else {
+        pageIndex.setKeyRecords(Collections.<Record> emptyList());
+      }
+    }
+    final Query pageQuery = pageIndex.getPageQuery(query, pageNumber);
+    final List<LayerRecord> objects = getLayerObjects(pageQuery);
+    pageIndex.setPageRecords(pageNumber, objects);
     return objects;
   }
 
@@ -483,6 +538,7 @@ SortableTableModel, PropertyChangeListener, PropertyChangeSupportProxy {
         this.loadingPageNumbersToProcess.clear();
         this.rowCount = 0;
         this.pageCache = new LruMap<Integer, List<LayerRecord>>(5);
+        this.pageIndex = null;
         this.countLoaded = false;
 
       }
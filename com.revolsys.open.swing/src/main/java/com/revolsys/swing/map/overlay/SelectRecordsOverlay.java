@@ -274,7 +274,8 @@ public class SelectRecordsOverlay extends AbstractOverlay {
         final AbstractRecordLayer recordLayer = (AbstractRecordLayer)layer;
         for (final LayerRecord record : recordLayer.getHighlightedRecords()) {
           if (record != null && recordLayer.isVisible(record)) {
-            final Geometry geometry = record.getGeometryValue();
+            final Geometry geometry = recordLayer.getProjectedGeometry(record,
+              viewportGeometryFactory);
             final AbstractRecordLayerRenderer layerRenderer = layer.getRenderer();
             layerRenderer.renderSelectedRecord(viewport, recordLayer, record);
             HIGHLIGHT_RENDERER.paintSelected(viewport, viewportGeometryFactory,
@@ -327,7 +328,8 @@ public class SelectRecordsOverlay extends AbstractOverlay {
             if (record != null && recordLayer.isVisible(record)) {
               if (!recordLayer.isHighlighted(record)) {
                 if (!recordLayer.isDeleted(record)) {
-                  final Geometry geometry = record.getGeometryValue();
+                  final Geometry geometry = recordLayer.getProjectedGeometry(
+                    record, viewportGeometryFactory);
                   layerRenderer.renderSelectedRecord(viewport, recordLayer,
                     record);
                   SELECT_RENDERER.paintSelected(viewport,
@@ -1,34 +1,391 @@
 package com.revolsys.swing.map.util;
 
 import java.awt.Shape;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import com.revolsys.jts.geom.BoundingBox;
 import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
 import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.MultiLineString;
+import com.revolsys.jts.geom.MultiPolygon;
 import com.revolsys.jts.geom.Point;
 import com.revolsys.jts.geom.Polygon;
 import com.revolsys.swing.map.Viewport2D;
 
 public final class GeometryShapeUtil {
+  /** The number of pixels outside the view that shapes are clipped to. */
+  private static final int CLIP_MARGIN = 64;
+
+  private static final int OUT_BOTTOM = 8;
+
+  private static final int OUT_LEFT = 1;
+
+  private static final int OUT_RIGHT = 2;
+
+  private static final int OUT_TOP = 4;
+
+  /**
+   * Add the line to the path in view coordinates. Vertices closer than half a
+   * pixel to the previous vertex are skipped and segments that are entirely
+   * outside the view are not added to the path.
+   */
   public static void addLineString(final Viewport2D viewport,
     final GeneralPath path, final LineString line) {
-    double x = line.getX(0);
-    double y = line.getY(0);
-    double[] screenCoords = viewport.toViewCoordinates(x, y);
-    float screenX = (float)screenCoords[0];
-    float screenY = (float)screenCoords[1];
-    path.moveTo(screenX, screenY);
-    final int vertexCount = line.getVertexCount();
+    final double[] coordinates = toViewCoordinates(viewport, line);
+    final int vertexCount = coordinates.length / 2;
+    if (vertexCount > 0) {
+      final double[] clipBounds = getClipBounds(viewport);
+      if (clipBounds == null) {
+        addPath(path, coordinates, vertexCount, false);
+      } else {
+        double x = coordinates[0];
+        double y = coordinates[1];
+        int outCode = getOutCode(clipBounds, x, y);
+        boolean penDown = false;
+        for (int i = 1; i < vertexCount; i++) {
+          final double x2 = coordinates[i * 2];
+          final double y2 = coordinates[i * 2 + 1];
+          final int outCode2 = getOutCode(clipBounds, x2, y2);
+          if ((outCode & outCode2) == 0) {
+            if (!penDown) {
+              path.moveTo(x, y);
+              penDown = true;
+            }
+            path.lineTo(x2, y2);
+          } else {
+            penDown = false;
+          }
+          x = x2;
+          y = y2;
+          outCode = outCode2;
+        }
+      }
+    }
+  }
+
+  private static void addPath(final GeneralPath path,
+    final double[] coordinates, final int vertexCount, final boolean close) {
+    path.moveTo(coordinates[0], coordinates[1]);
     for (int i = 1; i < vertexCount; i++) {
-      x = line.getX(i);
-      y = line.getY(i);
-      screenCoords = viewport.toViewCoordinates(x, y);
-      screenX = (float)screenCoords[0];
-      screenY = (float)screenCoords[1];
-      path.lineTo(screenX, screenY);
+      path.lineTo(coordinates[i * 2], coordinates[i * 2 + 1]);
+    }
+    if (close) {
+      path.closePath();
+    }
+  }
+
+  /**
+   * Add the ring to the path in view coordinates. Vertices closer than half a
+   * pixel to the previous vertex are skipped and the ring is clipped to the
+   * view (expanded by a margin so the clipped edges aren't visible) using the
+   * Sutherland-Hodgman algorithm.
+   */
+  public static void addRing(final Viewport2D viewport, final GeneralPath path,
+    final LineString ring) {
+    double[] coordinates = toViewCoordinates(viewport, ring);
+    // Ignore the closing vertex, the path is closed instead
+    int vertexCount = coordinates.length / 2 - 1;
+    if (vertexCount > 0) {
+      final double[] clipBounds = getClipBounds(viewport);
+      if (clipBounds != null) {
+        final double[] clippedCoordinates = clipRing(coordinates, vertexCount,
+          clipBounds);
+        if (clippedCoordinates != coordinates) {
+          coordinates = clippedCoordinates;
+          vertexCount = coordinates.length / 2;
+        }
+      }
+      if (vertexCount > 0) {
+        addPath(path, coordinates, vertexCount, true);
+      }
+    }
+  }
+
+  /**
+   * Clip the ring to the clip rectangle using the Sutherland-Hodgman
+   * algorithm. The ring coordinates are x, y pairs without the closing vertex.
+   *
+   * @param coordinates The x, y coordinates of the ring.
+   * @param vertexCount The number of vertices to use from the coordinates.
+   * @param clipBounds The minX, minY, maxX, maxY of the clip rectangle.
+   * @return The coordinates array if the ring is inside the clip rectangle,
+   * otherwise the x, y coordinates of the clipped ring without the closing
+   * vertex (empty if the ring is outside the clip rectangle).
+   */
+  static double[] clipRing(final double[] coordinates, int vertexCount,
+    final double[] clipBounds) {
+    int anyOutCode = 0;
+    int allOutCode = OUT_LEFT | OUT_RIGHT | OUT_TOP | OUT_BOTTOM;
+    for (int i = 0; i < vertexCount; i++) {
+      final int outCode = getOutCode(clipBounds, coordinates[i * 2],
+        coordinates[i * 2 + 1]);
+      anyOutCode |= outCode;
+      allOutCode &= outCode;
+    }
+    if (allOutCode != 0) {
+      return new double[0];
+    } else if (anyOutCode == 0) {
+      return coordinates;
+    } else {
+      double[] clippedCoordinates = coordinates;
+      for (int edge = 0; edge < 4 && vertexCount > 0; edge++) {
+        final double[] edgeCoordinates = new double[vertexCount * 4];
+        vertexCount = clipRing(clippedCoordinates, vertexCount,
+          edgeCoordinates, edge, clipBounds[edge]);
+        clippedCoordinates = edgeCoordinates;
+      }
+      return Arrays.copyOf(clippedCoordinates, vertexCount * 2);
+    }
+  }
+
+  /**
+   * Clip the ring to one edge of the clip rectangle. The edges are 0 (minX), 1
+   * (minY), 2 (maxX) and 3 (maxY).
+   */
+  private static int clipRing(final double[] coordinates,
+    final int vertexCount, final double[] clippedCoordinates, final int edge,
+    final double value) {
+    int clippedCount = 0;
+    double x1 = coordinates[vertexCount * 2 - 2];
+    double y1 = coordinates[vertexCount * 2 - 1];
+    boolean inside1 = isInside(edge, value, x1, y1);
+    for (int i = 0; i < vertexCount; i++) {
+      final double x2 = coordinates[i * 2];
+      final double y2 = coordinates[i * 2 + 1];
+      final boolean inside2 = isInside(edge, value, x2, y2);
+      if (inside1 != inside2) {
+        double x;
+        double y;
+        if (edge == 0 || edge == 2) {
+          x = value;
+          y = y1 + (y2 - y1) * (value - x1) / (x2 - x1);
+        } else {
+          x = x1 + (x2 - x1) * (value - y1) / (y2 - y1);
+          y = value;
+        }
+        clippedCoordinates[clippedCount * 2] = x;
+        clippedCoordinates[clippedCount * 2 + 1] = y;
+        clippedCount++;
+      }
+      if (inside2) {
+        clippedCoordinates[clippedCount * 2] = x2;
+        clippedCoordinates[clippedCount * 2 + 1] = y2;
+        clippedCount++;
+      }
+      x1 = x2;
+      y1 = y2;
+      inside1 = inside2;
+    }
+    return clippedCount;
+  }
+
+  /**
+   * Generalize the geometry for rendering by removing vertices that are within
+   * the tolerance of the previous vertex. The first and last vertex of each
+   * line are always kept. Rings that would have less than 4 vertices are
+   * replaced by a ring of 4 of the original vertices so small polygons are
+   * still drawn. The geometry is returned if no vertices were removed.
+   *
+   * @param geometry The geometry.
+   * @param tolerance The minimum distance between vertices.
+   * @return The generalized geometry.
+   */
+  public static Geometry generalize(final Geometry geometry,
+    final double tolerance) {
+    if (geometry == null || geometry.isEmpty() || !(tolerance > 0)) {
+      return geometry;
+    } else if (geometry instanceof LinearRing) {
+      return generalize((LineString)geometry, tolerance, true);
+    } else if (geometry instanceof LineString) {
+      return generalize((LineString)geometry, tolerance, false);
+    } else if (geometry instanceof Polygon) {
+      return generalize((Polygon)geometry, tolerance);
+    } else if (geometry instanceof MultiLineString) {
+      boolean changed = false;
+      final List<LineString> lines = new ArrayList<>();
+      for (int i = 0; i < geometry.getGeometryCount(); i++) {
+        final LineString line = geometry.getGeometry(i);
+        final LineString generalizedLine = generalize(line, tolerance, false);
+        changed |= line != generalizedLine;
+        lines.add(generalizedLine);
+      }
+      if (changed) {
+        return geometry.getGeometryFactory().multiLineString(lines);
+      } else {
+        return geometry;
+      }
+    } else if (geometry instanceof MultiPolygon) {
+      boolean changed = false;
+      final List<Polygon> polygons = new ArrayList<>();
+      for (int i = 0; i < geometry.getGeometryCount(); i++) {
+        final Polygon polygon = geometry.getGeometry(i);
+        final Polygon generalizedPolygon = generalize(polygon, tolerance);
+        changed |= polygon != generalizedPolygon;
+        polygons.add(generalizedPolygon);
+      }
+      if (changed) {
+        return geometry.getGeometryFactory().multiPolygon(polygons);
+      } else {
+        return geometry;
+      }
+    } else {
+      return geometry;
+    }
+  }
+
+  private static LineString generalize(final LineString line,
+    final double tolerance, final boolean ring) {
+    final int vertexCount = line.getVertexCount();
+    final int minVertexCount;
+    if (ring) {
+      minVertexCount = 4;
+    } else {
+      minVertexCount = 2;
+    }
+    if (vertexCount <= minVertexCount) {
+      return line;
+    } else {
+      final int axisCount = line.getAxisCount();
+      final double[] coordinates = line.getCoordinates();
+      final double[] newCoordinates = new double[coordinates.length];
+      final double toleranceSquared = tolerance * tolerance;
+      double previousX = coordinates[0];
+      double previousY = coordinates[1];
+      System.arraycopy(coordinates, 0, newCoordinates, 0, axisCount);
+      int newVertexCount = 1;
+      final int lastIndex = vertexCount - 1;
+      for (int i = 1; i < lastIndex; i++) {
+        final int offset = i * axisCount;
+        final double x = coordinates[offset];
+        final double y = coordinates[offset + 1];
+        final double dx = x - previousX;
+        final double dy = y - previousY;
+        if (dx * dx + dy * dy > toleranceSquared) {
+          System.arraycopy(coordinates, offset, newCoordinates, newVertexCount
+            * axisCount, axisCount);
+          newVertexCount++;
+          previousX = x;
+          previousY = y;
+        }
+      }
+      System.arraycopy(coordinates, lastIndex * axisCount, newCoordinates,
+        newVertexCount * axisCount, axisCount);
+      newVertexCount++;
+
+      if (newVertexCount == vertexCount) {
+        return line;
+      } else {
+        final GeometryFactory geometryFactory = line.getGeometryFactory();
+        if (ring) {
+          if (newVertexCount < minVertexCount) {
+            final int[] indexes = {
+              0, lastIndex / 3, lastIndex * 2 / 3, lastIndex
+            };
+            for (int i = 0; i < indexes.length; i++) {
+              System.arraycopy(coordinates, indexes[i] * axisCount,
+                newCoordinates, i * axisCount, axisCount);
+            }
+            newVertexCount = indexes.length;
+          }
+          return geometryFactory.linearRing(axisCount, newVertexCount,
+            newCoordinates);
+        } else {
+          return geometryFactory.lineString(axisCount, newVertexCount,
+            newCoordinates);
+        }
+      }
+    }
+  }
+
+  private static Polygon generalize(final Polygon polygon,
+    final double tolerance) {
+    boolean changed = false;
+    final List<LinearRing> rings = new ArrayList<>();
+    for (final LinearRing ring : polygon.getRings()) {
+      final LinearRing generalizedRing = (LinearRing)generalize(ring,
+        tolerance, true);
+      changed |= ring != generalizedRing;
+      rings.add(generalizedRing);
+    }
+    if (changed) {
+      return polygon.getGeometryFactory().polygon(rings);
+    } else {
+      return polygon;
+    }
+  }
+
+  private static double[] getClipBounds(final Viewport2D viewport) {
+    final int viewWidth = viewport.getViewWidthPixels();
+    final int viewHeight = viewport.getViewHeightPixels();
+    if (viewWidth <= 0 || viewHeight <= 0
+      || viewport.getModelToScreenTransform() == null) {
+      return null;
+    } else {
+      return new double[] {
+        -CLIP_MARGIN, -CLIP_MARGIN, viewWidth + CLIP_MARGIN,
+        viewHeight + CLIP_MARGIN
+      };
+    }
+  }
+
+  /**
+   * Get the scale band for the resolution of a view. All resolutions in a band
+   * use the same generalized geometries. The tolerance for a band is at most
+   * half a pixel for all the resolutions in the band.
+   *
+   * @param unitsPerPixel The model units per pixel.
+   * @return The scale band.
+   */
+  public static int getGeneralizeScaleBand(final double unitsPerPixel) {
+    return Math.getExponent(unitsPerPixel);
+  }
+
+  /**
+   * Get the tolerance to use to {@link #generalize(Geometry, double)} a
+   * geometry for a scale band.
+   *
+   * @param scaleBand The scale band.
+   * @return The tolerance.
+   */
+  public static double getGeneralizeTolerance(final int scaleBand) {
+    return Math.scalb(1.0, scaleBand - 1);
+  }
+
+  private static int getOutCode(final double[] clipBounds, final double x,
+    final double y) {
+    int outCode = 0;
+    if (x < clipBounds[0]) {
+      outCode |= OUT_LEFT;
+    } else if (x > clipBounds[2]) {
+      outCode |= OUT_RIGHT;
+    }
+    if (y < clipBounds[1]) {
+      outCode |= OUT_TOP;
+    } else if (y > clipBounds[3]) {
+      outCode |= OUT_BOTTOM;
+    }
+    return outCode;
+  }
+
+  private static boolean isInside(final int edge, final double value,
+    final double x, final double y) {
+    switch (edge) {
+      case 0:
+        return x >= value;
+      case 1:
+        return y >= value;
+      case 2:
+        return x <= value;
+      default:
+        return y <= value;
     }
   }
 
@@ -72,14 +429,55 @@ public final class GeometryShapeUtil {
   public static Shape toShape(final Viewport2D viewport, final Polygon polygon) {
     final GeneralPath path = new GeneralPath(PathIterator.WIND_EVEN_ODD);
     final LineString exteriorRing = polygon.getExteriorRing();
-    addLineString(viewport, path, exteriorRing);
+    addRing(viewport, path, exteriorRing);
     for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
       final LineString interiorRing = polygon.getInteriorRing(i);
-      addLineString(viewport, path, interiorRing);
+      addRing(viewport, path, interiorRing);
     }
     return path;
   }
 
+  /**
+   * Convert the x, y coordinates of the line to view coordinates using a
+   * single transform. Vertices within half a pixel of the previous vertex are
+   * removed, the last vertex is always kept.
+   */
+  private static double[] toViewCoordinates(final Viewport2D viewport,
+    final LineString line) {
+    final int vertexCount = line.getVertexCount();
+    double[] coordinates = new double[vertexCount * 2];
+    for (int i = 0; i < vertexCount; i++) {
+      coordinates[i * 2] = line.getX(i);
+      coordinates[i * 2 + 1] = line.getY(i);
+    }
+    final AffineTransform transform = viewport.getModelToScreenTransform();
+    if (transform != null && vertexCount > 0) {
+      transform.transform(coordinates, 0, coordinates, 0, vertexCount);
+      int newVertexCount = 1;
+      double previousX = coordinates[0];
+      double previousY = coordinates[1];
+      for (int i = 1; i < vertexCount; i++) {
+        final double x = coordinates[i * 2];
+        final double y = coordinates[i * 2 + 1];
+        if (i == vertexCount - 1 || Math.abs(x - previousX) >= 0.5
+          || Math.abs(y - previousY) >= 0.5) {
+          coordinates[newVertexCount * 2] = x;
+          coordinates[newVertexCount * 2 + 1] = y;
+          newVertexCount++;
+          previousX = x;
+          previousY = y;
+        }
+      }
+      if (newVertexCount < vertexCount) {
+        final double[] newCoordinates = new double[newVertexCount * 2];
+        System.arraycopy(coordinates, 0, newCoordinates, 0,
+          newVertexCount * 2);
+        coordinates = newCoordinates;
+      }
+    }
+    return coordinates;
+  }
+
   private GeometryShapeUtil() {
   }
 }
@@ -0,0 +1,125 @@
+package com.revolsys.swing.map.layer;
+
+import java.awt.GraphicsEnvironment;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.revolsys.jts.geom.BoundingBox;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+import com.revolsys.swing.map.ImageViewport;
+import com.revolsys.swing.map.Viewport2D;
+
+/**
+ * Check the images cached by a {@link LayerGroupRenderer} are reused for the
+ * same view, are rendered again after a layer property change and are limited
+ * to the maximum cache size.
+ */
+public class LayerGroupRendererTest {
+  private static class CountingLayer extends AbstractLayer {
+    private final AtomicInteger renderCount = new AtomicInteger();
+
+    public CountingLayer(final String name, final long sleepMillis) {
+      super(name);
+      setRenderer(new AbstractLayerRenderer<CountingLayer>("counting", this) {
+        @Override
+        public void render(final Viewport2D viewport,
+          final CountingLayer layer) {
+          layer.renderCount.incrementAndGet();
+          if (sleepMillis > 0) {
+            try {
+              Thread.sleep(sleepMillis);
+            } catch (final InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+        }
+      });
+    }
+
+    public int getRenderCount() {
+      return this.renderCount.get();
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(
+    3005, 2);
+
+  private static final int HEIGHT = 50;
+
+  private static final int WIDTH = 100;
+
+  private LayerGroup layerGroup;
+
+  private void render() {
+    final BoundingBox boundingBox = new BoundingBoxDoubleGf(GEOMETRY_FACTORY,
+      2, 1000000, 1000000, 1002000, 1001000);
+    try (
+      ImageViewport viewport = new ImageViewport(null, WIDTH, HEIGHT,
+        boundingBox)) {
+      this.layerGroup.getRenderer().render(viewport);
+    }
+  }
+
+  @Before
+  public void setUp() {
+    // The viewport scale uses the screen resolution
+    Assume.assumeFalse(GraphicsEnvironment.isHeadless());
+    this.layerGroup = new LayerGroup("group");
+  }
+
+  @Test
+  public void testCacheSize() {
+    final CountingLayer fastLayer = new CountingLayer("fast", 0);
+    final CountingLayer slowLayer = new CountingLayer("slow", 100);
+    this.layerGroup.addLayer(fastLayer);
+    this.layerGroup.addLayer(slowLayer);
+    final LayerGroupRenderer renderer = this.layerGroup.getRenderer();
+
+    // Only one image fits so the slow layer's image is kept
+    renderer.setMaxImageCacheSize(4L * WIDTH * HEIGHT);
+    render();
+    render();
+    Assert.assertEquals(2, fastLayer.getRenderCount());
+    Assert.assertEquals(1, slowLayer.getRenderCount());
+
+    // No images are cached
+    renderer.setMaxImageCacheSize(0);
+    render();
+    render();
+    Assert.assertEquals(4, fastLayer.getRenderCount());
+    Assert.assertEquals(3, slowLayer.getRenderCount());
+  }
+
+  @Test
+  public void testPropertyChange() {
+    final CountingLayer layer = new CountingLayer("layer", 0);
+    this.layerGroup.addLayer(layer);
+
+    render();
+    render();
+    Assert.assertEquals("Cached", 1, layer.getRenderCount());
+
+    layer.firePropertyChange("style", null, "new");
+    render();
+    Assert.assertEquals("Property change", 2, layer.getRenderCount());
+    render();
+    Assert.assertEquals("Cached after change", 2, layer.getRenderCount());
+
+    // Selection changes are drawn by the overlays
+    layer.firePropertyChange("selectionCount", 0, 1);
+    render();
+    Assert.assertEquals("Ignored property", 2, layer.getRenderCount());
+
+    // A layer removed from the group is rendered again when it is added back
+    this.layerGroup.removeLayer(layer);
+    render();
+    this.layerGroup.addLayer(layer);
+    render();
+    Assert.assertEquals("Removed layer", 3, layer.getRenderCount());
+  }
+}
@@ -0,0 +1,247 @@
+package com.revolsys.swing.map.layer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.impl.BoundingBoxDoubleGf;
+
+/**
+ * Check that the memory cache of a {@link MapTileCache} stays within the
+ * maximum size, that downloaded tiles are written to the file cache and read
+ * back, that the least recently used files are deleted when the file cache is
+ * too large, and that a corrupt or partially written file is deleted and the
+ * tile downloaded again.
+ */
+public class MapTileCacheTest {
+  private static class TestMapTile extends MapTile {
+    private TestMapTile(final int index) {
+      super(new BoundingBoxDoubleGf(GEOMETRY_FACTORY, 2, index * 100, 0,
+        index * 100 + 100, 100), TILE_SIZE, TILE_SIZE, 100.0 / TILE_SIZE);
+    }
+
+    @Override
+    public AbstractTiledImageLayer getLayer() {
+      return null;
+    }
+
+    @Override
+    protected BufferedImage loadBuffferedImage() {
+      return new BufferedImage(getWidth(), getHeight(),
+        BufferedImage.TYPE_INT_ARGB);
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(
+    3857, 2);
+
+  private static final int TILE_SIZE = 16;
+
+  private static final long TILE_BYTE_COUNT = 4L * TILE_SIZE * TILE_SIZE;
+
+  private static Set<File> getFiles(final File directory) {
+    final Set<File> files = new HashSet<>();
+    final File[] directoryFiles = directory.listFiles();
+    if (directoryFiles != null) {
+      for (final File file : directoryFiles) {
+        if (file.isDirectory()) {
+          files.addAll(getFiles(file));
+        } else {
+          files.add(file);
+        }
+      }
+    }
+    return files;
+  }
+
+  private static MapTile loadTile(final MapTileCache cache, final int index) {
+    final MapTile tile = cache.addTile(new TestMapTile(index));
+    final long byteCount = tile.getImageByteCount();
+    tile.loadImage(GEOMETRY_FACTORY);
+    cache.setTileLoaded(tile, tile.getImageByteCount() - byteCount);
+    return tile;
+  }
+
+  private File cacheDirectory;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File imageFile;
+
+  private long imageFileLength;
+
+  private String imageUrl;
+
+  private void assertImage(final BufferedImage image) {
+    Assert.assertNotNull(image);
+    Assert.assertEquals(TILE_SIZE, image.getWidth());
+    Assert.assertEquals(TILE_SIZE, image.getHeight());
+    Assert.assertEquals(Color.RED.getRGB(), image.getRGB(0, 0));
+  }
+
+  @Before
+  public void createImage() throws IOException {
+    this.cacheDirectory = this.folder.newFolder("mapTiles");
+    final BufferedImage image = new BufferedImage(TILE_SIZE, TILE_SIZE,
+      BufferedImage.TYPE_INT_RGB);
+    final Graphics2D graphics = image.createGraphics();
+    graphics.setColor(Color.RED);
+    graphics.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+    graphics.dispose();
+    this.imageFile = this.folder.newFile("tile.png");
+    ImageIO.write(image, "png", this.imageFile);
+    this.imageFileLength = this.imageFile.length();
+    this.imageUrl = this.imageFile.toURI().toString();
+  }
+
+  /**
+   * Load a tile into the file cache and return the file it was saved to.
+   */
+  private File loadFile(final MapTileCache cache, final String key) {
+    final Set<File> files = getFiles(this.cacheDirectory);
+    assertImage(cache.loadImage(key, this.imageUrl));
+    final Set<File> newFiles = getFiles(this.cacheDirectory);
+    newFiles.removeAll(files);
+    Assert.assertEquals(key, 1, newFiles.size());
+    return newFiles.iterator().next();
+  }
+
+  /**
+   * A corrupt or partially written file must be deleted, and the tile must be
+   * downloaded again if there is a URL.
+   */
+  @Test
+  public void testCorruptFile() throws IOException {
+    final MapTileCache cache = new MapTileCache(this.cacheDirectory,
+      TILE_BYTE_COUNT * 100, this.imageFileLength * 100);
+    final File file = loadFile(cache, "tile");
+    final byte[] bytes = Files.readAllBytes(file.toPath());
+
+    Files.write(file.toPath(), new byte[] {
+      1, 2, 3
+    });
+    Assert.assertNull(cache.loadImage("tile", null));
+    Assert.assertFalse(file.exists());
+
+    Files.write(file.toPath(), new byte[0]);
+    Assert.assertNull(cache.loadImage("tile", null));
+    Assert.assertFalse(file.exists());
+
+    final byte[] partialBytes = new byte[bytes.length / 2];
+    System.arraycopy(bytes, 0, partialBytes, 0, partialBytes.length);
+    Files.write(file.toPath(), partialBytes);
+    assertImage(cache.loadImage("tile", this.imageUrl));
+    Assert.assertArrayEquals(bytes, Files.readAllBytes(file.toPath()));
+    assertImage(cache.loadImage("tile", null));
+  }
+
+  /**
+   * The least recently read or written files must be deleted when the file
+   * cache is larger than the maximum size.
+   */
+  @Test
+  public void testFileCacheMaxSize() {
+    final MapTileCache cache = new MapTileCache(this.cacheDirectory,
+      TILE_BYTE_COUNT * 100, this.imageFileLength * 4 + this.imageFileLength
+        / 2);
+    final long time = System.currentTimeMillis() - 100000;
+    final File[] files = new File[5];
+    for (int i = 0; i < 4; i++) {
+      files[i] = loadFile(cache, "tile" + i);
+      files[i].setLastModified(time + i * 1000);
+    }
+    Assert.assertEquals(4, getFiles(this.cacheDirectory).size());
+
+    // Reading tile0 makes tile1 the least recently used
+    assertImage(cache.loadImage("tile0", null));
+    Assert.assertTrue(files[0].lastModified() > files[3].lastModified());
+
+    files[4] = loadFile(cache, "tile4");
+    Assert.assertEquals(4, getFiles(this.cacheDirectory).size());
+    Assert.assertFalse(files[1].exists());
+    Assert.assertNull(cache.loadImage("tile1", null));
+    for (final int i : new int[] {
+      0, 2, 3, 4
+    }) {
+      Assert.assertTrue(files[i].exists());
+      assertImage(cache.loadImage("tile" + i, null));
+    }
+  }
+
+  /**
+   * A downloaded tile must be saved to the file cache and read from the file
+   * after the original is removed. A missing tile must not be cached.
+   */
+  @Test
+  public void testFileCacheReadBack() throws IOException {
+    final MapTileCache cache = new MapTileCache(this.cacheDirectory,
+      TILE_BYTE_COUNT * 100, this.imageFileLength * 100);
+    Assert.assertNull(cache.loadImage("tile", null));
+
+    final File file = loadFile(cache, "tile");
+    Assert.assertArrayEquals(Files.readAllBytes(this.imageFile.toPath()),
+      Files.readAllBytes(file.toPath()));
+
+    Assert.assertTrue(this.imageFile.delete());
+    assertImage(cache.loadImage("tile", this.imageUrl));
+    assertImage(cache.loadImage("tile", null));
+
+    // A new cache must use the files from the previous cache
+    final MapTileCache newCache = new MapTileCache(this.cacheDirectory,
+      TILE_BYTE_COUNT * 100, this.imageFileLength * 100);
+    assertImage(newCache.loadImage("tile", null));
+
+    Assert.assertNull(cache.loadImage("missing", this.imageUrl));
+    Assert.assertEquals(1, getFiles(this.cacheDirectory).size());
+  }
+
+  /**
+   * The memory cache must remove the least recently used tiles once the
+   * images of the loaded tiles are larger than the maximum size.
+   */
+  @Test
+  public void testMemoryCacheMaxSize() {
+    final MapTileCache cache = new MapTileCache(this.cacheDirectory,
+      TILE_BYTE_COUNT * 3, this.imageFileLength * 100);
+    final MapTile[] tiles = new MapTile[10];
+    for (int i = 0; i < tiles.length; i++) {
+      tiles[i] = loadTile(cache, i);
+      Assert.assertEquals(TILE_BYTE_COUNT, tiles[i].getImageByteCount());
+      Assert.assertTrue(cache.getMemoryCacheSize() <= TILE_BYTE_COUNT * 3);
+    }
+    Assert.assertEquals(TILE_BYTE_COUNT * 3, cache.getMemoryCacheSize());
+    for (int i = 0; i < 7; i++) {
+      Assert.assertNull(cache.getTile(new TestMapTile(i)));
+    }
+    // Getting tile 7 makes tile 8 the least recently used
+    Assert.assertSame(tiles[7], cache.getTile(new TestMapTile(7)));
+    Assert.assertSame(tiles[7], cache.addTile(new TestMapTile(7)));
+    loadTile(cache, 10);
+    Assert.assertNull(cache.getTile(new TestMapTile(8)));
+    Assert.assertSame(tiles[7], cache.getTile(new TestMapTile(7)));
+    Assert.assertSame(tiles[9], cache.getTile(new TestMapTile(9)));
+
+    cache.setMaxMemoryCacheSize(TILE_BYTE_COUNT);
+    Assert.assertEquals(TILE_BYTE_COUNT, cache.getMemoryCacheSize());
+    Assert.assertSame(tiles[9], cache.getTile(new TestMapTile(9)));
+
+    cache.clear(null);
+    Assert.assertEquals(0, cache.getMemoryCacheSize());
+    Assert.assertNull(cache.getTile(new TestMapTile(9)));
+  }
+}
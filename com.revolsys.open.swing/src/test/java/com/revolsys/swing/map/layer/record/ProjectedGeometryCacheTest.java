@@ -0,0 +1,211 @@
+package com.revolsys.swing.map.layer.record;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+
+/**
+ * Check the hits and misses of a {@link ProjectedGeometryCache} when the
+ * geometry factory or the record's geometry changes, the removal of the least
+ * recently used entries to stay within the maximum size, and the removal of
+ * the entries of a single record.
+ */
+public class ProjectedGeometryCacheTest {
+  /**
+   * A {@link LayerRecord} that only has a geometry, compared by identity like
+   * the records in a layer.
+   */
+  private static final class GeometryRecord implements InvocationHandler {
+    private Geometry geometry;
+
+    private final LayerRecord record = (LayerRecord)Proxy.newProxyInstance(
+      LayerRecord.class.getClassLoader(), new Class<?>[] {
+        LayerRecord.class
+      }, this);
+
+    private GeometryRecord(final Geometry geometry) {
+      this.geometry = geometry;
+    }
+
+    @Override
+    public Object invoke(final Object proxy, final Method method,
+      final Object[] args) {
+      final String name = method.getName();
+      if (name.equals("getGeometryValue")) {
+        return this.geometry;
+      } else if (name.equals("equals")) {
+        return proxy == args[0];
+      } else if (name.equals("hashCode")) {
+        return System.identityHashCode(proxy);
+      } else if (name.equals("toString")) {
+        return String.valueOf(this.geometry);
+      } else {
+        throw new UnsupportedOperationException(name);
+      }
+    }
+  }
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(
+    3005, 2);
+
+  private static final GeometryFactory VIEW_GEOMETRY_FACTORY_1 = GeometryFactory.fixed(
+    3005, 1000.0);
+
+  private static final GeometryFactory VIEW_GEOMETRY_FACTORY_2 = GeometryFactory.fixed(
+    3005, 10.0);
+
+  private static Geometry createLine(final double x) {
+    return GEOMETRY_FACTORY.lineString(2, x, 0, x + 10.123456, 20.987654,
+      x + 30, 5.5);
+  }
+
+  private static LayerRecord createRecord(final double x) {
+    return new GeometryRecord(createLine(x)).record;
+  }
+
+  private static long getEntrySize(final LayerRecord record) {
+    return getEntrySize(record, VIEW_GEOMETRY_FACTORY_1);
+  }
+
+  private static long getEntrySize(final LayerRecord record,
+    final GeometryFactory geometryFactory) {
+    final ProjectedGeometryCache cache = new ProjectedGeometryCache();
+    cache.getGeometry(record, geometryFactory);
+    return cache.getSize();
+  }
+
+  private static boolean isCached(final ProjectedGeometryCache cache,
+    final LayerRecord record, final Geometry geometry) {
+    return cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_1) == geometry;
+  }
+
+  /**
+   * A cached geometry must be returned until the record's geometry changes,
+   * and each geometry factory must have its own entry.
+   */
+  @Test
+  public void testHitsAndMisses() {
+    final GeometryRecord geometryRecord = new GeometryRecord(createLine(0));
+    final LayerRecord record = geometryRecord.record;
+    final ProjectedGeometryCache cache = new ProjectedGeometryCache();
+
+    final Geometry geometry1 = cache.getGeometry(record,
+      VIEW_GEOMETRY_FACTORY_1);
+    Assert.assertSame(VIEW_GEOMETRY_FACTORY_1, geometry1.getGeometryFactory());
+    Assert.assertSame(geometry1,
+      cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_1));
+
+    final Geometry geometry2 = cache.getGeometry(record,
+      VIEW_GEOMETRY_FACTORY_2);
+    Assert.assertNotSame(geometry1, geometry2);
+    Assert.assertSame(VIEW_GEOMETRY_FACTORY_2, geometry2.getGeometryFactory());
+    Assert.assertSame(geometry2,
+      cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_2));
+    Assert.assertSame(geometry1,
+      cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_1));
+    Assert.assertEquals(2, cache.getGeometryFactoryCount());
+
+    // A geometry already in the geometry factory isn't copied
+    Assert.assertSame(geometryRecord.geometry,
+      cache.getGeometry(record, GEOMETRY_FACTORY));
+    Assert.assertSame(geometryRecord.geometry, cache.getGeometry(record, null));
+
+    // Changing the record's geometry must not return the old geometry
+    final long size = cache.getSize();
+    geometryRecord.geometry = createLine(1000);
+    final LineString geometry3 = (LineString)cache.getGeometry(record,
+      VIEW_GEOMETRY_FACTORY_1);
+    Assert.assertNotSame(geometry1, geometry3);
+    Assert.assertEquals(1000, geometry3.getX(0), 0);
+    Assert.assertSame(geometry3,
+      cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_1));
+    Assert.assertEquals(size, cache.getSize());
+
+    cache.clear();
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(0, cache.getGeometryFactoryCount());
+    Assert.assertNotSame(geometry3,
+      cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_1));
+  }
+
+  /**
+   * Once the cache is larger than the maximum size the least recently used
+   * entries must be removed, and a geometry larger than the maximum size must
+   * not be cached.
+   */
+  @Test
+  public void testMaxSize() {
+    final List<LayerRecord> records = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      records.add(createRecord(i * 100));
+    }
+    final long entrySize = getEntrySize(records.get(0));
+    final ProjectedGeometryCache cache = new ProjectedGeometryCache(
+      entrySize * 3);
+    final List<Geometry> geometries = new ArrayList<>();
+    for (final LayerRecord record : records) {
+      geometries.add(cache.getGeometry(record, VIEW_GEOMETRY_FACTORY_1));
+      Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+    }
+    Assert.assertEquals(entrySize * 3, cache.getSize());
+
+    // Using record 7 makes record 8 the least recently used
+    Assert.assertTrue(isCached(cache, records.get(7), geometries.get(7)));
+    cache.getGeometry(records.get(0), VIEW_GEOMETRY_FACTORY_1);
+    Assert.assertFalse(isCached(cache, records.get(8), geometries.get(8)));
+    Assert.assertTrue(isCached(cache, records.get(7), geometries.get(7)));
+
+    cache.setMaxSize(entrySize);
+    Assert.assertEquals(entrySize, cache.getSize());
+
+    cache.setMaxSize(entrySize - 1);
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(0, cache.getGeometryFactoryCount());
+    final Geometry geometry = cache.getGeometry(records.get(1),
+      VIEW_GEOMETRY_FACTORY_1);
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertFalse(isCached(cache, records.get(1), geometry));
+  }
+
+  /**
+   * Removing a record must remove its entries for all the geometry factories
+   * and not the entries of other records. A geometry factory without entries
+   * must be removed.
+   */
+  @Test
+  public void testRemove() {
+    final LayerRecord record1 = createRecord(0);
+    final LayerRecord record2 = createRecord(100);
+    final long entrySize = getEntrySize(record1);
+    final ProjectedGeometryCache cache = new ProjectedGeometryCache();
+    final Geometry geometry1 = cache.getGeometry(record1,
+      VIEW_GEOMETRY_FACTORY_1);
+    cache.getGeometry(record1, VIEW_GEOMETRY_FACTORY_2);
+    final Geometry geometry2 = cache.getGeometry(record2,
+      VIEW_GEOMETRY_FACTORY_1);
+    Assert.assertEquals(2, cache.getGeometryFactoryCount());
+    Assert.assertEquals(entrySize * 2 + getEntrySize(record1,
+      VIEW_GEOMETRY_FACTORY_2), cache.getSize());
+
+    cache.remove(record1);
+    Assert.assertEquals(1, cache.getGeometryFactoryCount());
+    Assert.assertEquals(entrySize, cache.getSize());
+    Assert.assertTrue(isCached(cache, record2, geometry2));
+    Assert.assertFalse(isCached(cache, record1, geometry1));
+
+    cache.remove(record1);
+    cache.remove(record2);
+    cache.remove(null);
+    Assert.assertEquals(0, cache.getSize());
+    Assert.assertEquals(0, cache.getGeometryFactoryCount());
+  }
+}
@@ -0,0 +1,170 @@
+package com.revolsys.swing.map.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.revolsys.jts.geom.Geometry;
+import com.revolsys.jts.geom.GeometryFactory;
+import com.revolsys.jts.geom.LineString;
+import com.revolsys.jts.geom.LinearRing;
+import com.revolsys.jts.geom.MultiLineString;
+import com.revolsys.jts.geom.Polygon;
+
+/**
+ * Check the clipping of rings to the view and the generalization of
+ * geometries for rendering.
+ */
+public class GeometryShapeUtilTest {
+  private static final double[] CLIP_BOUNDS = {
+    0, 0, 100, 100
+  };
+
+  private static final GeometryFactory GEOMETRY_FACTORY = GeometryFactory.floating(
+    0, 2);
+
+  private static double getArea(final double[] coordinates) {
+    final int vertexCount = coordinates.length / 2;
+    double area = 0;
+    for (int i = 0; i < vertexCount; i++) {
+      final int j = (i + 1) % vertexCount;
+      area += coordinates[i * 2] * coordinates[j * 2 + 1] - coordinates[j * 2]
+        * coordinates[i * 2 + 1];
+    }
+    return Math.abs(area / 2);
+  }
+
+  private void assertCoordinates(final LineString line,
+    final double... coordinates) {
+    Assert.assertEquals(coordinates.length / 2, line.getVertexCount());
+    for (int i = 0; i < coordinates.length / 2; i++) {
+      Assert.assertEquals(coordinates[i * 2], line.getX(i), 0);
+      Assert.assertEquals(coordinates[i * 2 + 1], line.getY(i), 0);
+    }
+  }
+
+  private void assertInClipBounds(final double[] coordinates) {
+    for (int i = 0; i < coordinates.length; i += 2) {
+      Assert.assertTrue(coordinates[i] >= CLIP_BOUNDS[0]);
+      Assert.assertTrue(coordinates[i + 1] >= CLIP_BOUNDS[1]);
+      Assert.assertTrue(coordinates[i] <= CLIP_BOUNDS[2]);
+      Assert.assertTrue(coordinates[i + 1] <= CLIP_BOUNDS[3]);
+    }
+  }
+
+  private double[] clipRing(final double... coordinates) {
+    return GeometryShapeUtil.clipRing(coordinates, coordinates.length / 2,
+      CLIP_BOUNDS);
+  }
+
+  @Test
+  public void testClipRingInside() {
+    final double[] coordinates = {
+      10, 10, 20, 10, 20, 20, 10, 20
+    };
+    Assert.assertSame(coordinates, clipRing(coordinates));
+  }
+
+  @Test
+  public void testClipRingOutside() {
+    Assert.assertEquals(0, clipRing(200, 10, 300, 10, 300, 20, 200, 20).length);
+
+    // Each vertex is outside a different edge but the ring is still outside
+    Assert.assertEquals(0, clipRing(-10, 5, 5, -10, -10, -10).length);
+  }
+
+  @Test
+  public void testClipRingStraddling() {
+    final double[] clipped = clipRing(-50, -50, 50, -50, 50, 50, -50, 50);
+    assertInClipBounds(clipped);
+    Assert.assertEquals(2500, getArea(clipped), 0);
+
+    final double[] surrounding = clipRing(-50, -50, 150, -50, 150, 150, -50,
+      150);
+    assertInClipBounds(surrounding);
+    Assert.assertEquals(10000, getArea(surrounding), 0);
+
+    // Triangle with one vertex outside the right edge
+    final double[] triangle = clipRing(50, 10, 150, 50, 50, 90);
+    assertInClipBounds(triangle);
+    Assert.assertEquals(3000, getArea(triangle), 1e-9);
+  }
+
+  @Test
+  public void testClipRingTouchingEdge() {
+    // Inside touching the left edge
+    final double[] coordinates = {
+      0, 10, 20, 10, 20, 30, 0, 30
+    };
+    Assert.assertSame(coordinates, clipRing(coordinates));
+
+    // Outside touching the left edge
+    final double[] outside = clipRing(-20, 10, 0, 10, 0, 30, -20, 30);
+    assertInClipBounds(outside);
+    Assert.assertEquals(0, getArea(outside), 0);
+  }
+
+  @Test
+  public void testGeneralizeLineString() {
+    final LineString line = GEOMETRY_FACTORY.lineString(2, 0.0, 0, 0.5, 0, 1, 0,
+      3, 0, 3.2, 0, 10, 0);
+    assertCoordinates((LineString)GeometryShapeUtil.generalize(line, 1), 0, 0,
+      3, 0, 10, 0);
+    assertCoordinates((LineString)GeometryShapeUtil.generalize(line, 0.25), 0,
+      0, 0.5, 0, 1, 0, 3, 0, 10, 0);
+    Assert.assertSame(line, GeometryShapeUtil.generalize(line, 0.1));
+    Assert.assertSame(line, GeometryShapeUtil.generalize(line, 0));
+
+    // The first and last vertex are kept
+    final LineString shortLine = GEOMETRY_FACTORY.lineString(2, 0.0, 0, 0.1, 0,
+      0.2, 0);
+    assertCoordinates((LineString)GeometryShapeUtil.generalize(shortLine, 1),
+      0, 0, 0.2, 0);
+  }
+
+  @Test
+  public void testGeneralizeMultiLineString() {
+    final LineString line1 = GEOMETRY_FACTORY.lineString(2, 0.0, 0, 0.5, 0, 10,
+      0);
+    final LineString line2 = GEOMETRY_FACTORY.lineString(2, 0.0, 10, 10, 10);
+    final MultiLineString lines = GEOMETRY_FACTORY.multiLineString(line1,
+      line2);
+    final Geometry generalized = GeometryShapeUtil.generalize(lines, 1);
+    Assert.assertTrue(generalized instanceof MultiLineString);
+    assertCoordinates((LineString)generalized.getGeometry(0), 0, 0, 10, 0);
+    assertCoordinates((LineString)generalized.getGeometry(1), 0, 10, 10, 10);
+  }
+
+  @Test
+  public void testGeneralizePolygon() {
+    final LinearRing exterior = GEOMETRY_FACTORY.linearRing(2, 0.0, 0, 0.5, 0,
+      10, 0, 10, 10, 0, 10, 0, 0);
+    // A hole that is smaller than the tolerance
+    final LinearRing hole = GEOMETRY_FACTORY.linearRing(2, 5.0, 5, 5.1, 5, 5.2,
+      5, 5.2, 5.1, 5.2, 5.2, 5.1, 5.2, 5, 5.2, 5, 5);
+    final Polygon polygon = GEOMETRY_FACTORY.polygon(exterior, hole);
+    final Polygon generalized = (Polygon)GeometryShapeUtil.generalize(polygon,
+      1);
+    Assert.assertEquals(2, generalized.getRingCount());
+    assertCoordinates(generalized.getRing(0), 0, 0, 10, 0, 10, 10, 0, 10, 0, 0);
+    // Collapsed rings keep 4 of the original vertices
+    assertCoordinates(generalized.getRing(1), 5, 5, 5.2, 5, 5.2, 5.2, 5, 5);
+
+    Assert.assertSame(polygon, GeometryShapeUtil.generalize(polygon, 0.05));
+  }
+
+  @Test
+  public void testGeneralizeTolerance() {
+    for (final double unitsPerPixel : new double[] {
+      0.001, 0.3, 1, 1.5, 7, 1000, 123456
+    }) {
+      final int scaleBand = GeometryShapeUtil.getGeneralizeScaleBand(
+        unitsPerPixel);
+      final double tolerance = GeometryShapeUtil.getGeneralizeTolerance(
+        scaleBand);
+      Assert.assertTrue(tolerance <= unitsPerPixel / 2);
+      Assert.assertTrue(tolerance > unitsPerPixel / 4);
+    }
+    Assert.assertEquals(GeometryShapeUtil.getGeneralizeScaleBand(1.1),
+      GeometryShapeUtil.getGeneralizeScaleBand(1.9));
+  }
+}